@@ -0,0 +1,48 @@
+package org.imirsel.nema.analytics.evaluation;
+
+import org.imirsel.nema.model.NemaEvaluationResultSet;
+import org.imirsel.nema.model.NemaTrackList;
+
+/**
+ * Receives notifications from an evaluator in incremental mode (see
+ * {@link EvaluatorImpl#setIncrementalEvaluation(boolean)}) as each fold of
+ * results is evaluated, so that only the parts of the results affected need
+ * be refreshed (e.g. re-rendering the pages for a single job).
+ *
+ * Callbacks are made from the thread that evaluated the fold, after the
+ * result set has been updated. Readers of the result set should synchronize
+ * on it while results are still being added.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public interface EvaluationListener {
+
+	/**
+	 * Called when a fold of results for a job has been evaluated and added
+	 * to the result set.
+	 * @param results The result set that was updated.
+	 * @param jobId The job the fold belongs to.
+	 * @param testSet The test-set of the fold.
+	 */
+	public void foldEvaluated(NemaEvaluationResultSet results, String jobId, NemaTrackList testSet);
+
+	/**
+	 * Called when every fold of results for a job has been evaluated and the
+	 * overall evaluation for the job has been (re)computed. This follows the
+	 * call to {@link #foldEvaluated(NemaEvaluationResultSet, String, NemaTrackList)}
+	 * for the last fold.
+	 * @param results The result set that was updated.
+	 * @param jobId The job that was updated.
+	 */
+	public void jobEvaluated(NemaEvaluationResultSet results, String jobId);
+
+	/**
+	 * Called when the evaluation of a fold of results fails. The result set
+	 * is not updated.
+	 * @param jobId The job the fold belongs to.
+	 * @param testSet The test-set of the fold.
+	 * @param cause The reason the evaluation failed.
+	 */
+	public void evaluationFailed(String jobId, NemaTrackList testSet, Throwable cause);
+}
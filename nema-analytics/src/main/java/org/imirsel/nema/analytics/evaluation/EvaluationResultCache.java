@@ -0,0 +1,424 @@
+package org.imirsel.nema.analytics.evaluation;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.imirsel.nema.model.MappedNemaData;
+import org.imirsel.nema.model.NemaData;
+import org.imirsel.nema.model.NemaDataBinaryFormat;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.NemaDataContainer;
+import org.imirsel.nema.model.NemaTrack;
+import org.imirsel.nema.model.NemaTrackList;
+
+/**
+ * On-disk cache of fold evaluations, used by {@link EvaluatorImpl} to avoid
+ * re-evaluating folds whose inputs have not changed since they were last
+ * evaluated, e.g. when an evaluation is re-run after adding a new submission.
+ *
+ * Each entry holds the evaluation of a single fold of a single job and the
+ * per-track metadata that the evaluation added to the job's results. Entries
+ * are keyed on a description of the evaluator class and parameters, the job
+ * ID, the fold and content hashes of the ground-truth and the job's results
+ * for the fold (see {@link #buildKey(String, String, String, NemaTrackList, String, String)}),
+ * and are stored as {@link NemaDataContainer} files named by the SHA-1 hash
+ * of the key.
+ *
+ * Entries are written to a temporary file and renamed into place, so that
+ * an interrupted write never leaves a partial entry. When an entry is read
+ * the key stored in it is compared to the key requested and each record is
+ * checked against its checksum, entries that fail either check are deleted
+ * and treated as misses. The cache is bounded in both total size and number
+ * of entries, evicting the least recently used entries first. Recency is
+ * persisted through file modification times, so that it survives between
+ * runs.
+ *
+ * Instances are thread-safe, so that the folds of a job may be evaluated
+ * concurrently.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class EvaluationResultCache {
+
+	/** Default maximum total size of the cache, 512MB. */
+	public static final long DEFAULT_MAX_BYTES = 512L * 1024L * 1024L;
+	/** Default maximum number of entries in the cache. */
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private static final String FILE_EXTENSION = ".nemc";
+	private static final String TEMP_EXTENSION = ".tmp";
+	/** Metadata key of the cache key stored with each fold evaluation. */
+	private static final String CACHE_KEY = "evaluationResultCache.key";
+	/** Metadata key of the original id of each fold evaluation. */
+	private static final String FOLD_ID = "evaluationResultCache.id";
+	/** Id of the fold evaluation record in each entry, track records use the track id. */
+	private static final String FOLD_RECORD_ID = "evaluationResultCache.fold";
+
+	private final File directory;
+	private final long maxBytes;
+	private final int maxEntries;
+	private final Logger logger;
+
+	/** File name to size, in least recently used order. Guarded by this. */
+	private final LinkedHashMap<String,Long> entries = new LinkedHashMap<String,Long>(64, 0.75f, true);
+	private long totalBytes = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong stores = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * Creates a cache with the default bounds.
+	 * @param directory The directory to hold the cache, which is created if
+	 * it does not exist.
+	 * @throws IOException Thrown if the directory can't be created.
+	 */
+	public EvaluationResultCache(File directory) throws IOException{
+		this(directory, DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Creates a cache, indexing any entries already in the directory and
+	 * evicting entries if the directory holds more than the bounds allow.
+	 * @param directory The directory to hold the cache, which is created if
+	 * it does not exist.
+	 * @param maxBytes The maximum total size of the entries.
+	 * @param maxEntries The maximum number of entries.
+	 * @throws IOException Thrown if the directory can't be created.
+	 */
+	public EvaluationResultCache(File directory, long maxBytes, int maxEntries) throws IOException{
+		if (maxBytes < 1 || maxEntries < 1){
+			throw new IllegalArgumentException("The cache bounds must be positive, received maxBytes=" + maxBytes + ", maxEntries=" + maxEntries);
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.maxEntries = maxEntries;
+		this.logger = Logger.getLogger(EvaluationResultCache.class.getName());
+		directory.mkdirs();
+		if (!directory.isDirectory()){
+			throw new IOException("Unable to create evaluation result cache directory: " + directory.getAbsolutePath());
+		}
+
+		File[] files = directory.listFiles(new FileFilter() {
+			public boolean accept(File pathname) {
+				return pathname.getName().endsWith(FILE_EXTENSION) || pathname.getName().endsWith(TEMP_EXTENSION);
+			}
+		});
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File o1, File o2) {
+				long diff = o1.lastModified() - o2.lastModified();
+				return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+			}
+		});
+		synchronized(this){
+			for (int i = 0; i < files.length; i++) {
+				if (files[i].getName().endsWith(TEMP_EXTENSION)){
+					//left by an interrupted write
+					files[i].delete();
+				}else{
+					entries.put(files[i].getName(), files[i].length());
+					totalBytes += files[i].length();
+				}
+			}
+			evict();
+		}
+	}
+
+	/**
+	 * Builds the key of a fold evaluation.
+	 * @param evaluatorClass The class name of the evaluator.
+	 * @param parameters A description of any parameters of the evaluator that
+	 * affect its results.
+	 * @param jobId The job ID.
+	 * @param fold The fold.
+	 * @param groundTruthHash The hash of the ground-truth.
+	 * @param resultsHash The hash of the job's results for the fold.
+	 * @return The key.
+	 */
+	public static String buildKey(String evaluatorClass, String parameters, String jobId,
+			NemaTrackList fold, String groundTruthHash, String resultsHash){
+		StringBuilder key = new StringBuilder();
+		key.append(evaluatorClass).append('\n');
+		key.append(parameters).append('\n');
+		key.append(jobId).append('\n');
+		key.append("fold:").append(fold.getId());
+		List<NemaTrack> tracks = fold.getTracks();
+		if (tracks != null){
+			for (Iterator<NemaTrack> it = tracks.iterator(); it.hasNext();) {
+				key.append(',').append(it.next().getId());
+			}
+		}
+		key.append('\n');
+		key.append("gt:").append(groundTruthHash).append('\n');
+		key.append("results:").append(resultsHash);
+		return key.toString();
+	}
+
+	/**
+	 * Computes a SHA-1 content hash of a collection of NemaData Objects,
+	 * over their binary encoding in the order given.
+	 * @param data The NemaData to hash.
+	 * @return The hash, as a hex String.
+	 * @throws IllegalArgumentException Thrown if one of the NemaData holds a
+	 * value of a type not supported by {@link NemaDataBinaryFormat}.
+	 */
+	public static String hashData(Collection<NemaData> data) throws IllegalArgumentException{
+		MessageDigest digest = newDigest();
+		for (Iterator<NemaData> it = data.iterator(); it.hasNext();) {
+			digest.update(NemaDataBinaryFormat.encode(it.next()));
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest newDigest(){
+		try{
+			return MessageDigest.getInstance("SHA-1");
+		}catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException("SHA-1 is not available", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes){
+		StringBuilder out = new StringBuilder(bytes.length * 2);
+		for (int i = 0; i < bytes.length; i++) {
+			out.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+			out.append(Character.forDigit(bytes[i] & 0xF, 16));
+		}
+		return out.toString();
+	}
+
+	private static String fileName(String key){
+		try{
+			return toHex(newDigest().digest(key.getBytes("UTF-8"))) + FILE_EXTENSION;
+		}catch(java.io.UnsupportedEncodingException e){
+			throw new IllegalStateException("UTF-8 is not available", e);
+		}
+	}
+
+	/**
+	 * Retrieves a fold evaluation. On a hit the per-track metadata stored
+	 * with it is set on the corresponding tracks of the job's results.
+	 * @param key The key of the fold evaluation.
+	 * @param theData The job's results for the fold.
+	 * @return The fold evaluation or null if there was no valid entry.
+	 */
+	public NemaData get(String key, List<NemaData> theData){
+		String name = fileName(key);
+		synchronized(this){
+			if (entries.get(name) == null){
+				misses.incrementAndGet();
+				return null;
+			}
+		}
+		File file = new File(directory, name);
+		NemaData foldEvaluation = null;
+		List<NemaData> trackEvaluations = null;
+		try{
+			NemaDataContainer container = NemaDataContainer.open(file);
+			try{
+				container.verifyAll();
+				MappedNemaData fold = container.get(FOLD_RECORD_ID);
+				if (!key.equals(fold.getStringMetadata(CACHE_KEY))){
+					throw new IllegalArgumentException("Entry was written for a different key");
+				}
+				foldEvaluation = fold.toNemaData();
+				trackEvaluations = new ArrayList<NemaData>(container.size() - 1);
+				for (int i = 0; i < container.size(); i++) {
+					MappedNemaData track = container.get(i);
+					if (!track.getId().equals(FOLD_RECORD_ID)){
+						trackEvaluations.add(track.toNemaData());
+					}
+				}
+			}finally{
+				container.close();
+			}
+		}catch(Exception e){
+			logger.log(Level.WARNING, "Discarding invalid evaluation result cache entry: " + file.getAbsolutePath(), e);
+			failures.incrementAndGet();
+			misses.incrementAndGet();
+			remove(name);
+			return null;
+		}
+
+		//restore the fold evaluation and the metadata the evaluation added to each track
+		Map<String,NemaData> idToTrack = new HashMap<String,NemaData>(theData.size() * 2);
+		for (Iterator<NemaData> it = theData.iterator(); it.hasNext();) {
+			NemaData track = it.next();
+			idToTrack.put(track.getId(), track);
+		}
+		for (Iterator<NemaData> it = trackEvaluations.iterator(); it.hasNext();) {
+			NemaData trackEval = it.next();
+			NemaData track = idToTrack.get(trackEval.getId());
+			if (track != null){
+				String[] keys = trackEval.metadataKeys();
+				for (int k = 0; k < keys.length; k++) {
+					if (!keys[k].equals(NemaDataConstants.PROP_ID)){
+						track.setMetadata(keys[k], trackEval.getMetadata(keys[k]));
+					}
+				}
+			}
+		}
+		NemaData out = new NemaData();
+		String[] keys = foldEvaluation.metadataKeys();
+		for (int k = 0; k < keys.length; k++) {
+			if (keys[k].equals(FOLD_ID)){
+				out.setMetadata(NemaDataConstants.PROP_ID, foldEvaluation.getMetadata(FOLD_ID));
+			}else if (!keys[k].equals(CACHE_KEY) && !keys[k].equals(NemaDataConstants.PROP_ID)){
+				out.setMetadata(keys[k], foldEvaluation.getMetadata(keys[k]));
+			}
+		}
+
+		file.setLastModified(System.currentTimeMillis());
+		hits.incrementAndGet();
+		return out;
+	}
+
+	/**
+	 * Stores a fold evaluation.
+	 * @param key The key of the fold evaluation.
+	 * @param foldEvaluation The fold evaluation.
+	 * @param trackEvaluations The metadata the evaluation added to each track
+	 * of the job's results, with the track id.
+	 * @throws IOException Thrown if the entry can't be written.
+	 * @throws IllegalArgumentException Thrown if the evaluation holds a value
+	 * of a type not supported by {@link NemaDataBinaryFormat}.
+	 */
+	public void put(String key, NemaData foldEvaluation, List<NemaData> trackEvaluations) throws IOException, IllegalArgumentException{
+		String name = fileName(key);
+		NemaData fold = new NemaData(foldEvaluation);
+		if (foldEvaluation.hasMetadata(NemaDataConstants.PROP_ID)){
+			fold.setMetadata(FOLD_ID, foldEvaluation.getId());
+		}
+		fold.setMetadata(NemaDataConstants.PROP_ID, FOLD_RECORD_ID);
+		fold.setMetadata(CACHE_KEY, key);
+		List<NemaData> records = new ArrayList<NemaData>(trackEvaluations.size() + 1);
+		records.add(fold);
+		records.addAll(trackEvaluations);
+
+		File temp = File.createTempFile(name, TEMP_EXTENSION, directory);
+		File file = new File(directory, name);
+		try{
+			NemaDataContainer.write(temp, records);
+			if (!temp.renameTo(file)){
+				file.delete();
+				if (!temp.renameTo(file)){
+					throw new IOException("Unable to move evaluation result cache entry into place: " + file.getAbsolutePath());
+				}
+			}
+		}finally{
+			temp.delete();
+		}
+		stores.incrementAndGet();
+		synchronized(this){
+			Long old = entries.put(name, file.length());
+			if (old != null){
+				totalBytes -= old;
+			}
+			totalBytes += file.length();
+			evict();
+		}
+	}
+
+	/**
+	 * Evicts least recently used entries until the cache is within its
+	 * bounds. Called holding the lock.
+	 */
+	private void evict(){
+		Iterator<Map.Entry<String,Long>> it = entries.entrySet().iterator();
+		while((totalBytes > maxBytes || entries.size() > maxEntries) && it.hasNext()){
+			Map.Entry<String,Long> eldest = it.next();
+			it.remove();
+			totalBytes -= eldest.getValue();
+			new File(directory, eldest.getKey()).delete();
+			evictions.incrementAndGet();
+		}
+	}
+
+	private synchronized void remove(String name){
+		Long size = entries.remove(name);
+		if (size != null){
+			totalBytes -= size;
+		}
+		new File(directory, name).delete();
+	}
+
+	/**
+	 * Deletes every entry in the cache.
+	 */
+	public synchronized void clear(){
+		for (Iterator<String> it = entries.keySet().iterator(); it.hasNext();) {
+			new File(directory, it.next()).delete();
+		}
+		entries.clear();
+		totalBytes = 0;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public synchronized int getNumEntries() {
+		return entries.size();
+	}
+
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getStores() {
+		return stores.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the number of entries discarded because they failed their
+	 * integrity checks.
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	@Override
+	public String toString() {
+		return "EvaluationResultCache[" + directory.getAbsolutePath() + ": " + getNumEntries() + " entries, "
+				+ getTotalBytes() + " bytes, " + hits.get() + " hits, " + misses.get() + " misses, "
+				+ stores.get() + " stores, " + evictions.get() + " evictions, " + failures.get() + " failures]";
+	}
+}
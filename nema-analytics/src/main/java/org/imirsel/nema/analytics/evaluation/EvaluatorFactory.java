@@ -12,6 +12,7 @@ import org.imirsel.nema.analytics.evaluation.classification.ClassificationEvalua
 import org.imirsel.nema.analytics.evaluation.key.KeyEvaluator;
 import org.imirsel.nema.analytics.evaluation.melody.MelodyEvaluator;
 import org.imirsel.nema.analytics.evaluation.multif0.MultiF0EstEvaluator;
+import org.imirsel.nema.analytics.evaluation.multif0.MultiF0NtEvaluator;
 import org.imirsel.nema.analytics.evaluation.onset.OnsetEvaluator;
 import org.imirsel.nema.analytics.evaluation.structure.StructureEvaluator;
 import org.imirsel.nema.analytics.evaluation.tagsClassification.TagAffinityEvaluator;
@@ -44,7 +45,7 @@ public class EvaluatorFactory {
 		EVALUATOR_REGISTRY.put(NemaDataConstants.ONSET_DETECTION_DATA, OnsetEvaluator.class);
 		EVALUATOR_REGISTRY.put(NemaDataConstants.BEAT_TRACKING_DATA, BeatEvaluator.class);
 		EVALUATOR_REGISTRY.put(NemaDataConstants.MULTI_F0_EST_DATA, MultiF0EstEvaluator.class);
-//		EVALUATOR_REGISTRY.put(NemaDataConstants.MULTI_F0_NT_DATA, MultiF0NTEvaluator.class);
+		EVALUATOR_REGISTRY.put(NemaDataConstants.MULTI_F0_NT_DATA, MultiF0NtEvaluator.class);
 		
 		//tag tasks
 		EVALUATOR_REGISTRY.put(NemaDataConstants.TAG_CLASSIFICATIONS, TagClassificationEvaluator.class);
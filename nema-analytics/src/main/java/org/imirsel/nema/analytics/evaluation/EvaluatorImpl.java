@@ -14,7 +14,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Handler;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.StreamHandler;
 
@@ -56,6 +67,16 @@ public abstract class EvaluatorImpl implements Evaluator {
 	private boolean addSequenceNumbers = false;
 	private static final int JOBID_LENGTH_THRESHOLD = 10;
 	
+	/** Pool shared by all evaluators that have not been given their own Executor. */
+	private static ForkJoinPool defaultPool = null;
+	
+	private Executor executor = null;
+	private boolean parallelEvaluation = true;
+	private EvaluationResultCache resultCache = null;
+	private boolean incrementalEvaluation = false;
+	private IncrementalState incremental = null;
+	private final List<EvaluationListener> listeners = new CopyOnWriteArrayList<EvaluationListener>();
+	
 	public EvaluatorImpl(){
 		_logger = Logger.getLogger(this.getClass().getName());
 		
@@ -135,9 +156,44 @@ public abstract class EvaluatorImpl implements Evaluator {
 		}
 		return overall;
 	}
-	
+
 	/**
-	 * Checks that the algorithm results contain results for each of the test 
+	 * Averages double array metrics, such as the per-tolerance scores of a
+	 * tolerance sweep, over the folds and adds them to an overall evaluation.
+	 * The first array key is copied from the first fold rather than averaged,
+	 * so that it can hold the tolerances the other metrics were computed at.
+	 * Nothing is added if the folds don't hold the first key.
+	 *
+	 * @param overall The overall evaluation to add the averaged metrics to.
+	 * @param perFoldEvaluations The collection of fold evaluations to average.
+	 * @param keysKey The key of the array that the metrics are indexed by.
+	 * @param metrics The keys of the double array metrics to average.
+	 * @since 0.4.1
+	 */
+	protected void averageFoldArrayMetrics(NemaData overall, Collection<NemaData> perFoldEvaluations, String keysKey, List<String> metrics){
+		NemaData[] foldData = perFoldEvaluations.toArray(new NemaData[perFoldEvaluations.size()]);
+		if (foldData.length == 0 || !foldData[0].hasMetadata(keysKey)){
+			return;
+		}
+		overall.setMetadata(keysKey, foldData[0].getDoubleArrayMetadata(keysKey).clone());
+		for (Iterator<String> metricIt = metrics.iterator(); metricIt.hasNext();) {
+			String metric = metricIt.next();
+			double[] accum = foldData[0].getDoubleArrayMetadata(metric).clone();
+			for (int i = 1; i < foldData.length; i++) {
+				double[] metricArr = foldData[i].getDoubleArrayMetadata(metric);
+				for (int k = 0; k < accum.length; k++) {
+					accum[k] += metricArr[k];
+				}
+			}
+			for (int k = 0; k < accum.length; k++) {
+				accum[k] /= foldData.length;
+			}
+			overall.setMetadata(metric, accum);
+		}
+	}
+
+	/**
+	 * Checks that the algorithm results contain results for each of the test
 	 * sets declared in the experiment.
 	 * 
 	 * @throws IllegalArgumentException Thrown if the results for one of the 
@@ -217,6 +273,638 @@ public abstract class EvaluatorImpl implements Evaluator {
 		return numExamples;
 	}
 
+	/**
+	 * Returns the <code>Executor</code> shared by all evaluators that have not 
+	 * been given their own, creating it on first use. This is a fork-join pool 
+	 * with one worker per available processor, so per-track work spawned from 
+	 * within a fold evaluation can be stolen by idle workers rather than 
+	 * blocking them.
+	 * 
+	 * @return the default fork-join pool.
+	 */
+	protected static synchronized ForkJoinPool getDefaultPool(){
+		if (defaultPool == null){
+			defaultPool = new ForkJoinPool();
+		}
+		return defaultPool;
+	}
+	
+	/**
+	 * Sets the <code>Executor</code> used to evaluate the folds of each job 
+	 * concurrently. If not set (or set to null) the shared default fork-join 
+	 * pool is used.
+	 * 
+	 * @param executor the Executor to use.
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * @return the <code>Executor</code> used to evaluate the folds of each 
+	 * job concurrently.
+	 */
+	public Executor getExecutor() {
+		if (executor == null){
+			return getDefaultPool();
+		}
+		return executor;
+	}
+
+	/**
+	 * Sets a flag determining whether the folds of each job are evaluated 
+	 * concurrently (the default) or serially in the calling thread. Both 
+	 * modes produce identical results.
+	 * 
+	 * @param parallelEvaluation the flag to set.
+	 */
+	public void setParallelEvaluation(boolean parallelEvaluation) {
+		this.parallelEvaluation = parallelEvaluation;
+	}
+
+	/**
+	 * @return a flag determining whether the folds of each job are evaluated 
+	 * concurrently.
+	 */
+	public boolean getParallelEvaluation() {
+		return parallelEvaluation;
+	}
+
+	/**
+	 * Sets the cache of fold evaluations, so that folds evaluated in an 
+	 * earlier run with the same ground-truth, results and parameters are not 
+	 * evaluated again. If not set (or set to null) every fold is evaluated.
+	 * 
+	 * @param resultCache the cache to use.
+	 */
+	public void setResultCache(EvaluationResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * @return the cache of fold evaluations, or null if there is none.
+	 */
+	public EvaluationResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Returns a description of any parameters of the evaluator that affect 
+	 * its results, which is included in the key of each cached fold 
+	 * evaluation. Evaluators with such parameters must override this method.
+	 * State derived from the ground-truth need not be included, as the 
+	 * ground-truth is hashed separately.
+	 * 
+	 * @return the description of the evaluator's parameters.
+	 */
+	protected String getCacheParameters(){
+		return "";
+	}
+
+	/**
+	 * Prepares any state shared between folds that is derived from the 
+	 * ground-truth (such as the list of classes), which must be done before 
+	 * any fold is evaluated. Subclasses call this from <code>evaluate()</code>,
+	 * and it is called once before the first fold is evaluated in 
+	 * incremental mode. The default implementation does nothing.
+	 * 
+	 * @throws IllegalArgumentException Thrown if the ground-truth is missing 
+	 * required metadata.
+	 */
+	protected void prepareEvaluation() throws IllegalArgumentException{
+	}
+
+	/**
+	 * Aggregates the fold evaluations of a job to produce its overall 
+	 * evaluation. The default implementation averages the fold metrics with
+	 * {@link #averageFoldMetrics(String, Collection)}; evaluators that also 
+	 * produce sweeps or per-class metrics override this.
+	 * 
+	 * @param jobId the job ID.
+	 * @param foldEvals the evaluation of each fold of the job.
+	 * @return the overall evaluation of the job.
+	 */
+	protected NemaData aggregateFoldEvaluations(String jobId, Collection<NemaData> foldEvals){
+		return averageFoldMetrics(jobId, foldEvals);
+	}
+
+	/**
+	 * Sets a flag determining whether results are evaluated as they are 
+	 * added. In incremental mode each call to <code>addResults</code> 
+	 * schedules the evaluation of just that fold (on the Executor, unless 
+	 * parallel evaluation is disabled), which is then added to the result set
+	 * returned by {@link #getIncrementalResults()}. Once every fold of a job 
+	 * has been evaluated its overall evaluation is computed, and is 
+	 * recomputed whenever one of its folds is replaced. Listeners are 
+	 * notified of each update.
+	 * 
+	 * The ground-truth, task and test sets must be set before entering 
+	 * incremental mode. Entering it starts a new result set and schedules 
+	 * the evaluation of any results already added.
+	 * 
+	 * @param incrementalEvaluation the flag to set.
+	 * @throws IllegalArgumentException Thrown if the ground-truth can't be 
+	 * prepared for evaluation.
+	 */
+	public void setIncrementalEvaluation(boolean incrementalEvaluation) throws IllegalArgumentException{
+		List<Runnable> toRun = new ArrayList<Runnable>();
+		synchronized (this) {
+			this.incrementalEvaluation = incrementalEvaluation;
+			incremental = null;
+			if (incrementalEvaluation){
+				for (Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();) {
+					String jobId = it.next();
+					Map<NemaTrackList,List<NemaData>> sysResults = jobIDToFoldResults.get(jobId);
+					for (Iterator<NemaTrackList> foldIt = sysResults.keySet().iterator(); foldIt.hasNext();) {
+						NemaTrackList fold = foldIt.next();
+						toRun.add(scheduleIncrementalFold(jobId, fold, sysResults.get(fold)));
+					}
+				}
+			}
+		}
+		for (Iterator<Runnable> it = toRun.iterator(); it.hasNext();) {
+			runIncrementalFold(it.next());
+		}
+	}
+
+	/**
+	 * @return a flag determining whether results are evaluated as they are
+	 * added.
+	 */
+	public boolean getIncrementalEvaluation() {
+		return incrementalEvaluation;
+	}
+
+	/**
+	 * Returns the result set updated in incremental mode. It is updated 
+	 * concurrently as folds are evaluated, so readers should synchronize on 
+	 * it until {@link #waitForIncrementalResults()} has returned.
+	 * 
+	 * @return the result set, or null if not in incremental mode.
+	 * @throws IllegalArgumentException Thrown if the ground-truth can't be 
+	 * prepared for evaluation.
+	 */
+	public synchronized NemaEvaluationResultSet getIncrementalResults() throws IllegalArgumentException{
+		if (!incrementalEvaluation){
+			return null;
+		}
+		return getIncrementalState().results;
+	}
+
+	/**
+	 * Blocks until every fold scheduled in incremental mode so far has been 
+	 * evaluated and added to the result set.
+	 * 
+	 * @return the result set, or null if not in incremental mode.
+	 * @throws IllegalArgumentException Thrown if the evaluation of any fold 
+	 * failed.
+	 */
+	public NemaEvaluationResultSet waitForIncrementalResults() throws IllegalArgumentException{
+		IncrementalState state;
+		List<String> jobIds = new ArrayList<String>();
+		List<NemaTrackList> folds = new ArrayList<NemaTrackList>();
+		List<FutureTask<NemaData>> tasks = new ArrayList<FutureTask<NemaData>>();
+		synchronized (this) {
+			if (!incrementalEvaluation){
+				return null;
+			}
+			state = getIncrementalState();
+		}
+		synchronized (state.results) {
+			for (Iterator<String> it = state.pending.keySet().iterator(); it.hasNext();) {
+				String jobId = it.next();
+				Map<NemaTrackList,FutureTask<NemaData>> jobTasks = state.pending.get(jobId);
+				for (Iterator<NemaTrackList> foldIt = jobTasks.keySet().iterator(); foldIt.hasNext();) {
+					NemaTrackList fold = foldIt.next();
+					jobIds.add(jobId);
+					folds.add(fold);
+					tasks.add(jobTasks.get(fold));
+				}
+			}
+		}
+		for (int i = 0; i < tasks.size(); i++) {
+			waitForFold(jobIds.get(i), folds.get(i), tasks.get(i));
+		}
+		if (state.cache != null){
+			logCacheCounts(state.cache, state.counts);
+		}
+		return state.results;
+	}
+
+	/**
+	 * Adds a listener notified of updates to the results in incremental mode.
+	 * 
+	 * @param listener the listener to add.
+	 */
+	public void addEvaluationListener(EvaluationListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeEvaluationListener(EvaluationListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Evaluates every fold of every job by calling 
+	 * {@link #evaluateResultFold(String, NemaTrackList, List)}. In parallel 
+	 * mode each (jobId, fold) pair is scheduled on the Executor, otherwise 
+	 * they are run one after another in the calling thread. Either way the 
+	 * results are collected in the same order as they were scheduled, so the 
+	 * maps returned are identical.
+	 * 
+	 * Implementations of <code>evaluateResultFold</code> must therefore not 
+	 * modify state shared between folds; any such state should be prepared in 
+	 * <code>evaluate()</code> before calling this method.
+	 * 
+	 * If a result cache is set, each fold is first looked up in the cache and 
+	 * only evaluated on a miss, storing the evaluation afterwards. The 
+	 * number of hits and misses is logged once all folds have been evaluated.
+	 * 
+	 * @return a map of jobId to a map of the evaluators copy of each test set 
+	 * to its fold evaluation.
+	 * @throws IllegalArgumentException Thrown if the evaluation of any fold 
+	 * fails, any outstanding fold evaluations are cancelled.
+	 */
+	protected Map<String, Map<NemaTrackList,NemaData>> evaluateAllJobs() throws IllegalArgumentException{
+		int numJobs = jobIDToFoldResults.size();
+		Executor exec = parallelEvaluation ? getExecutor() : null;
+		
+		/* Hash the ground-truth once for the keys of all cached fold evaluations */
+		String gtHash = hashGroundTruth();
+		EvaluationResultCache cache = gtHash == null ? null : resultCache;
+		CacheCounts counts = new CacheCounts();
+		
+		/* Schedule the evaluation of each fold for each system */
+		List<String> jobIds = new ArrayList<String>(numJobs);
+		List<List<NemaTrackList>> jobFolds = new ArrayList<List<NemaTrackList>>(numJobs);
+		List<List<FutureTask<NemaData>>> jobTasks = new ArrayList<List<FutureTask<NemaData>>>(numJobs);
+		for (Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();) {
+			String jobId = it.next();
+			getLogger().info("Evaluating experiment for jobID: " + jobId);
+			Map<NemaTrackList,List<NemaData>> sysResults = jobIDToFoldResults.get(jobId);
+			List<NemaTrackList> folds = new ArrayList<NemaTrackList>(sysResults.size());
+			List<FutureTask<NemaData>> tasks = new ArrayList<FutureTask<NemaData>>(sysResults.size());
+			for (Iterator<NemaTrackList> trackIt = sysResults.keySet().iterator(); trackIt.hasNext();) {
+				//make sure we use the evaluators copy of the track list
+				NemaTrackList trackList = testSets.get(testSets.indexOf(trackIt.next()));
+				FutureTask<NemaData> task = new FutureTask<NemaData>(new FoldEvaluation(jobId, trackList, sysResults.get(trackList), cache, gtHash, counts));
+				if (exec == null){
+					task.run();
+				}else{
+					exec.execute(task);
+				}
+				folds.add(trackList);
+				tasks.add(task);
+			}
+			jobIds.add(jobId);
+			jobFolds.add(folds);
+			jobTasks.add(tasks);
+		}
+		
+		/* Collect the fold evaluations in the order they were scheduled */
+		Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
+		try{
+			for (int j = 0; j < jobIds.size(); j++) {
+				List<NemaTrackList> folds = jobFolds.get(j);
+				List<FutureTask<NemaData>> tasks = jobTasks.get(j);
+				Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
+				for (int f = 0; f < folds.size(); f++) {
+					foldEvals.put(folds.get(f), waitForFold(jobIds.get(j), folds.get(f), tasks.get(f)));
+				}
+				jobIdToFoldEvaluation.put(jobIds.get(j), foldEvals);
+			}
+		}catch(RuntimeException e){
+			for (Iterator<List<FutureTask<NemaData>>> it = jobTasks.iterator(); it.hasNext();) {
+				for (Iterator<FutureTask<NemaData>> taskIt = it.next().iterator(); taskIt.hasNext();) {
+					taskIt.next().cancel(true);
+				}
+			}
+			throw e;
+		}
+		if (cache != null){
+			logCacheCounts(cache, counts);
+		}
+		return jobIdToFoldEvaluation;
+	}
+	
+	/**
+	 * Hashes the ground-truth, in track ID order, for the keys of cached fold
+	 * evaluations.
+	 * 
+	 * @return the hash, or null if there is no result cache or the 
+	 * ground-truth can't be hashed.
+	 */
+	private String hashGroundTruth(){
+		if (resultCache == null){
+			return null;
+		}
+		List<String> trackIds = new ArrayList<String>(trackIDToGT.keySet());
+		Collections.sort(trackIds);
+		List<NemaData> gt = new ArrayList<NemaData>(trackIds.size());
+		for (Iterator<String> it = trackIds.iterator(); it.hasNext();) {
+			gt.add(trackIDToGT.get(it.next()));
+		}
+		try{
+			return EvaluationResultCache.hashData(gt);
+		}catch(IllegalArgumentException e){
+			getLogger().info("Not using the evaluation result cache as the ground-truth can't be hashed: " + e.getMessage());
+			return null;
+		}
+	}
+	
+	private void logCacheCounts(EvaluationResultCache cache, CacheCounts counts){
+		getLogger().info("Evaluation result cache: " + counts.hits.get() + " hits, " + counts.misses.get() + " misses"
+				+ (counts.uncacheable.get() > 0 ? ", " + counts.uncacheable.get() + " folds not cacheable" : "")
+				+ ". " + cache);
+	}
+	
+	private NemaData waitForFold(String jobId, NemaTrackList fold, FutureTask<NemaData> task) throws IllegalArgumentException{
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while evaluating fold " + fold.getFoldNumber() + " for job ID '" + jobId + "'", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException){
+				throw (RuntimeException)cause;
+			}else if (cause instanceof Error){
+				throw (Error)cause;
+			}
+			throw new IllegalArgumentException("Failed to evaluate fold " + fold.getFoldNumber() + " for job ID '" + jobId + "'", cause);
+		}
+	}
+	
+	/**
+	 * Counts of result cache lookups in a single call to 
+	 * {@link EvaluatorImpl#evaluateAllJobs()} or while in incremental mode.
+	 */
+	private static class CacheCounts{
+		final AtomicInteger hits = new AtomicInteger();
+		final AtomicInteger misses = new AtomicInteger();
+		final AtomicInteger uncacheable = new AtomicInteger();
+	}
+	
+	/**
+	 * Evaluation of a single fold of a single job, as scheduled by 
+	 * {@link EvaluatorImpl#evaluateAllJobs()}.
+	 */
+	private class FoldEvaluation implements Callable<NemaData>{
+		private final String jobId;
+		private final NemaTrackList fold;
+		private final List<NemaData> theData;
+		private final EvaluationResultCache cache;
+		private final String gtHash;
+		private final CacheCounts counts;
+		
+		FoldEvaluation(String jobId, NemaTrackList fold, List<NemaData> theData, 
+				EvaluationResultCache cache, String gtHash, CacheCounts counts){
+			this.jobId = jobId;
+			this.fold = fold;
+			this.theData = theData;
+			this.cache = cache;
+			this.gtHash = gtHash;
+			this.counts = counts;
+		}
+		
+		public NemaData call() {
+			if (cache == null){
+				getLogger().fine("Evaluating fold " + fold.getFoldNumber() + ", set " + fold.getId() + " for jobID: " + jobId);
+				return evaluateResultFold(jobId, fold, theData);
+			}
+			
+			String key;
+			try{
+				key = EvaluationResultCache.buildKey(EvaluatorImpl.this.getClass().getName(), getCacheParameters(), 
+						jobId, fold, gtHash, EvaluationResultCache.hashData(theData));
+			}catch(IllegalArgumentException e){
+				getLogger().fine("Results for fold " + fold.getFoldNumber() + " for jobID: " + jobId + " can't be cached: " + e.getMessage());
+				counts.uncacheable.incrementAndGet();
+				return evaluateResultFold(jobId, fold, theData);
+			}
+			NemaData cached = cache.get(key, theData);
+			if (cached != null){
+				getLogger().fine("Using cached evaluation of fold " + fold.getFoldNumber() + ", set " + fold.getId() + " for jobID: " + jobId);
+				counts.hits.incrementAndGet();
+				return cached;
+			}
+			counts.misses.incrementAndGet();
+			
+			getLogger().fine("Evaluating fold " + fold.getFoldNumber() + ", set " + fold.getId() + " for jobID: " + jobId);
+			List<Map<String,Object>> before = new ArrayList<Map<String,Object>>(theData.size());
+			for (Iterator<NemaData> it = theData.iterator(); it.hasNext();) {
+				NemaData track = it.next();
+				String[] keys = track.metadataKeys();
+				Map<String,Object> values = new HashMap<String,Object>(keys.length * 2);
+				for (int k = 0; k < keys.length; k++) {
+					values.put(keys[k], track.getMetadata(keys[k]));
+				}
+				before.add(values);
+			}
+			NemaData foldEval = evaluateResultFold(jobId, fold, theData);
+			
+			try{
+				cache.put(key, foldEval, addedMetadata(before));
+			}catch(IllegalArgumentException e){
+				getLogger().fine("Evaluation of fold " + fold.getFoldNumber() + " for jobID: " + jobId + " can't be cached: " + e.getMessage());
+				counts.uncacheable.incrementAndGet();
+			}catch(IOException e){
+				getLogger().log(Level.WARNING, "Failed to cache evaluation of fold " + fold.getFoldNumber() + " for jobID: " + jobId, e);
+			}
+			return foldEval;
+		}
+		
+		/**
+		 * Returns the metadata set on each track by the evaluation, i.e. 
+		 * that which is new or has been replaced since the snapshot.
+		 */
+		private List<NemaData> addedMetadata(List<Map<String,Object>> before){
+			List<NemaData> out = new ArrayList<NemaData>(theData.size());
+			for (int i = 0; i < theData.size(); i++) {
+				NemaData track = theData.get(i);
+				Map<String,Object> values = before.get(i);
+				NemaData added = new NemaData(track.getId());
+				String[] keys = track.metadataKeys();
+				for (int k = 0; k < keys.length; k++) {
+					Object value = track.getMetadata(keys[k]);
+					Object old = values.get(keys[k]);
+					//numbers are boxed by each call to getMetadata so compare by value
+					boolean unchanged = old != null && (old == value 
+							|| ((value instanceof Number || value instanceof String) && value.equals(old)));
+					if (!unchanged){
+						added.setMetadata(keys[k], value);
+					}
+				}
+				if (added.metadataKeys().length > 1){
+					out.add(added);
+				}
+			}
+			return out;
+		}
+	}
+
+	/**
+	 * The result set and bookkeeping for incremental mode, created when the
+	 * first fold is scheduled. The pending map is guarded by the lock on the
+	 * result set.
+	 */
+	private class IncrementalState{
+		final NemaEvaluationResultSet results;
+		final EvaluationResultCache cache;
+		final String gtHash;
+		final CacheCounts counts = new CacheCounts();
+		final Map<String,Map<NemaTrackList,FutureTask<NemaData>>> pending = new HashMap<String,Map<NemaTrackList,FutureTask<NemaData>>>();
+		
+		IncrementalState(){
+			prepareEvaluation();
+			results = getEmptyEvaluationResultSet();
+			gtHash = hashGroundTruth();
+			cache = gtHash == null ? null : resultCache;
+		}
+	}
+	
+	private IncrementalState getIncrementalState() throws IllegalArgumentException{
+		if (incremental == null){
+			incremental = new IncrementalState();
+		}
+		return incremental;
+	}
+	
+	/**
+	 * Creates the task evaluating a fold in incremental mode and records it 
+	 * as the latest for the (jobId, fold) pair, replacing any earlier task. 
+	 * Called while holding the lock on the evaluator; the task is run once 
+	 * the lock is released.
+	 */
+	private FutureTask<NemaData> scheduleIncrementalFold(String jobId, NemaTrackList fold, List<NemaData> theData) throws IllegalArgumentException{
+		IncrementalState state = getIncrementalState();
+		IncrementalFold evaluation = new IncrementalFold(state, jobId, jobIDToName.get(jobId), fold, theData);
+		FutureTask<NemaData> task = new FutureTask<NemaData>(evaluation);
+		evaluation.task = task;
+		synchronized (state.results) {
+			Map<NemaTrackList,FutureTask<NemaData>> jobTasks = state.pending.get(jobId);
+			if (jobTasks == null){
+				jobTasks = new HashMap<NemaTrackList,FutureTask<NemaData>>(testSets.size());
+				state.pending.put(jobId, jobTasks);
+			}
+			FutureTask<NemaData> old = jobTasks.put(fold, task);
+			if (old != null){
+				old.cancel(false);
+			}
+		}
+		return task;
+	}
+	
+	private void runIncrementalFold(Runnable task){
+		if (parallelEvaluation){
+			getExecutor().execute(task);
+		}else{
+			task.run();
+		}
+	}
+	
+	/**
+	 * Evaluation of a single fold in incremental mode, which adds the fold 
+	 * evaluation to the result set, recomputes the overall evaluation of the 
+	 * job if all its folds are present and notifies the listeners.
+	 */
+	private class IncrementalFold implements Callable<NemaData>{
+		private final IncrementalState state;
+		private final String jobId;
+		private final String jobName;
+		private final NemaTrackList fold;
+		private final List<NemaData> theData;
+		private FutureTask<NemaData> task;
+		
+		IncrementalFold(IncrementalState state, String jobId, String jobName, NemaTrackList fold, List<NemaData> theData){
+			this.state = state;
+			this.jobId = jobId;
+			this.jobName = jobName;
+			this.fold = fold;
+			this.theData = theData;
+		}
+		
+		public NemaData call() {
+			NemaData foldEval;
+			boolean jobComplete = false;
+			try{
+				foldEval = new FoldEvaluation(jobId, fold, theData, state.cache, state.gtHash, state.counts).call();
+				synchronized (state.results) {
+					if (state.pending.get(jobId).get(fold) != task){
+						//superseded by results added for the same fold since
+						return foldEval;
+					}
+					if (jobIDToSubmissionDetails != null){
+						state.results.setJobIdToSubmissionDetails(jobIDToSubmissionDetails);
+					}
+					state.results.addSingleFoldResultSet(jobId, jobName, fold, foldEval, theData);
+					Map<NemaTrackList,NemaData> foldEvals = state.results.getPerFoldEvaluation(jobId);
+					if (foldEvals.size() == testSets.size()){
+						getLogger().info("Aggregating results for jobID: " + jobId);
+						state.results.setOverallEvaluation(jobId, aggregateFoldEvaluations(jobId, foldEvals.values()));
+						jobComplete = true;
+					}
+				}
+			}catch(RuntimeException e){
+				getLogger().log(Level.WARNING, "Failed to evaluate fold " + fold.getFoldNumber() + " for job ID '" + jobId + "'", e);
+				for (Iterator<EvaluationListener> it = listeners.iterator(); it.hasNext();) {
+					it.next().evaluationFailed(jobId, fold, e);
+				}
+				throw e;
+			}
+			for (Iterator<EvaluationListener> it = listeners.iterator(); it.hasNext();) {
+				EvaluationListener listener = it.next();
+				listener.foldEvaluated(state.results, jobId, fold);
+				if (jobComplete){
+					listener.jobEvaluated(state.results, jobId);
+				}
+			}
+			return foldEval;
+		}
+	}
+
+	/**
+	 * Runs a list of per-track computations from within
+	 * {@link #evaluateResultFold(String, NemaTrackList, List)}. Unless
+	 * parallel evaluation is disabled they are forked onto a fork-join pool:
+	 * the pool of the calling thread if it is a fork-join worker (as fold
+	 * evaluations scheduled on the default pool are), in which case it helps
+	 * out rather than blocking, otherwise the default pool.
+	 *
+	 * @param tasks the computations to run.
+	 * @return the result of each computation, in the same order as the tasks.
+	 * @throws RuntimeException Thrown if any of the computations fails.
+	 */
+	protected <T> List<T> invokeTrackTasks(List<? extends Callable<T>> tasks){
+		final List<ForkJoinTask<T>> forkJoinTasks = new ArrayList<ForkJoinTask<T>>(tasks.size());
+		for (Iterator<? extends Callable<T>> it = tasks.iterator(); it.hasNext();) {
+			forkJoinTasks.add(ForkJoinTask.adapt(it.next()));
+		}
+
+		List<T> results = new ArrayList<T>(forkJoinTasks.size());
+		if (!parallelEvaluation){
+			for (Iterator<ForkJoinTask<T>> it = forkJoinTasks.iterator(); it.hasNext();) {
+				results.add(it.next().invoke());
+			}
+			return results;
+		}
+
+		if (Thread.currentThread() instanceof ForkJoinWorkerThread){
+			ForkJoinTask.invokeAll(forkJoinTasks);
+		}else{
+			getDefaultPool().invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+				protected void compute() {
+					invokeAll(forkJoinTasks);
+				}
+			});
+		}
+		for (Iterator<ForkJoinTask<T>> it = forkJoinTasks.iterator(); it.hasNext();) {
+			results.add(it.next().join());
+		}
+		return results;
+	}
+
 	public Logger getLogger() {
 		if (_logger == null){
 			_logger = Logger.getLogger(this.getClass().getName());
@@ -300,14 +988,22 @@ public abstract class EvaluatorImpl implements Evaluator {
 		}
 		NemaTrackList testSet = testSets.get(testSetIdx);
 		resultList.put(testSet,results);
+		
+		if (incrementalEvaluation){
+			FutureTask<NemaData> task;
+			synchronized (this) {
+				task = scheduleIncrementalFold(jobID, testSet, results);
+			}
+			runIncrementalFold(task);
+		}
 	}
 	
 	public void addResults(NemaSubmission submissionDetails, String jobID, NemaTrackList fold, List<NemaData> results) throws IllegalArgumentException{
-		addResults(submissionDetails.getSubmissionCode(),jobID,fold,results);
 		if(jobIDToSubmissionDetails == null){
 			jobIDToSubmissionDetails = new HashMap<String, NemaSubmission>();
 		}
 		jobIDToSubmissionDetails.put(jobID, submissionDetails);
+		addResults(submissionDetails.getSubmissionCode(),jobID,fold,results);
 	}
 	
 
@@ -0,0 +1,136 @@
+package org.imirsel.nema.analytics.evaluation;
+
+import java.io.File;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.imirsel.nema.analytics.evaluation.resultpages.Table;
+
+/**
+ * Holds the outcome of a Friedman's ANOVA with Tukey-Kramer HSD multiple
+ * comparisons, as produced by {@link FriedmansAnovaTkHsd}. Systems are held
+ * in the order they are compared in, i.e. sorted by descending mean score.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class FriedmanResult {
+
+	private String name;
+	private String[] systemNames;
+	private double[] meanRanks;
+	private int numRows;
+	private double chiSquare;
+	private double pValue;
+	private double[][] comparisons;
+	private File tableFile;
+
+	/**
+	 * Constructor.
+	 * @param name The name of the test (used to name the output files).
+	 * @param systemNames The system names, sorted by descending mean score.
+	 * @param meanRanks The mean rank of each system.
+	 * @param numRows The number of rows of data the test was based on.
+	 * @param chiSquare Friedman's chi-square statistic.
+	 * @param pValue The p-value of the chi-square statistic.
+	 * @param comparisons The pairwise comparisons, one row per pair in the
+	 * same layout as matlab's multcompare: the two system indices, the lower
+	 * bound, the difference in mean ranks and the upper bound.
+	 */
+	public FriedmanResult(String name, String[] systemNames, double[] meanRanks,
+			int numRows, double chiSquare, double pValue, double[][] comparisons) {
+		this.name = name;
+		this.systemNames = systemNames;
+		this.meanRanks = meanRanks;
+		this.numRows = numRows;
+		this.chiSquare = chiSquare;
+		this.pValue = pValue;
+		this.comparisons = comparisons;
+	}
+
+	/**
+	 * Returns a flag indicating whether the difference between the two
+	 * systems compared in the specified row of the comparisons is significant,
+	 * i.e. whether the confidence interval excludes zero.
+	 * @param comparison The index of the comparison.
+	 * @return the flag.
+	 */
+	public boolean isSignificant(int comparison) {
+		double[] row = comparisons[comparison];
+		return Math.signum(row[2]) * Math.signum(row[4]) > 0;
+	}
+
+	/**
+	 * Returns the half-width of the interval to plot around each mean rank,
+	 * such that the intervals of two systems do not overlap if and only if
+	 * they are significantly different.
+	 * @return the half-width.
+	 */
+	public double getPlotIntervalHalfWidth() {
+		if (comparisons.length == 0) {
+			return 0.0;
+		}
+		return (comparisons[0][4] - comparisons[0][2]) / 4.0;
+	}
+
+	/**
+	 * Prepares a Table Object representing the pairwise comparisons, in the
+	 * same format as the .friedmanTKHSD.csv file written by the matlab
+	 * implementation.
+	 * @return The prepared Table.
+	 */
+	public Table toTable() {
+		DecimalFormat dec = new DecimalFormat("0.0000");
+		String[] colNames = new String[]{"TeamID", "TeamID", "Lowerbound", "Mean", "Upperbound", "Significance"};
+		List<String[]> rows = new ArrayList<String[]>(comparisons.length);
+		for (int i = 0; i < comparisons.length; i++) {
+			double[] c = comparisons[i];
+			rows.add(new String[]{
+					systemNames[(int)c[0]], systemNames[(int)c[1]],
+					dec.format(c[2]), dec.format(c[3]), dec.format(c[4]),
+					isSignificant(i) ? "TRUE" : "FALSE"});
+		}
+		return new Table(colNames, rows);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String[] getSystemNames() {
+		return systemNames;
+	}
+
+	public double[] getMeanRanks() {
+		return meanRanks;
+	}
+
+	public int getNumRows() {
+		return numRows;
+	}
+
+	public double getChiSquare() {
+		return chiSquare;
+	}
+
+	public double getPValue() {
+		return pValue;
+	}
+
+	public double[][] getComparisons() {
+		return comparisons;
+	}
+
+	public void setTableFile(File tableFile) {
+		this.tableFile = tableFile;
+	}
+
+	/**
+	 * @return the .friedmanTKHSD.csv file the comparisons were written to, or
+	 * null if they have not been written out.
+	 */
+	public File getTableFile() {
+		return tableFile;
+	}
+}
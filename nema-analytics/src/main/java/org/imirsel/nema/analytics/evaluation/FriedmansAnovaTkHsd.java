@@ -4,9 +4,21 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+
+import org.imirsel.nema.analytics.evaluation.resultpages.Table;
 import org.imirsel.nema.analytics.util.io.CopyFileFromClassPathToDisk;
+import org.imirsel.nema.analytics.util.process.MatlabEnginePool;
 import org.imirsel.nema.analytics.util.process.MatlabExecutorImpl;
 
 /**
@@ -16,7 +28,9 @@ import org.imirsel.nema.analytics.util.process.MatlabExecutorImpl;
  * the normal distribution of the underlying data and fail to acknowledge the accumulation of error
  * likelihoods over multiple comparisons.
  * 
- * This implementation is currently based on Matlab but maybe re-implemented in pure java in the future.
+ * The test is computed in pure java from in-memory Tables or score arrays, producing the same 
+ * comparison table as matlab's friedman and multcompare functions. The original matlab implementation,
+ * which also renders a PNG plot, is retained for reference.
  * 
  * @author kris.west@gmail.com
  *
@@ -28,8 +42,354 @@ public class FriedmansAnovaTkHsd {
 	 */
 	public static final String DEFAULT_MATLAB_COMMAND = "matlab";
 	
+	/** The significance level used for the Tukey-Kramer HSD comparisons. */
+	public static final double ALPHA = 0.05;
+	
+	/** Suffix of the comparison tables written out by the test. */
+	public static final String TABLE_SUFFIX = ".friedmanTKHSD.csv";
+	
+	/** Critical values of the studentized range for infinite degrees of freedom, keyed by number of systems. */
+	private static final Map<Integer,Double> STUDENTIZED_RANGE_CACHE = new ConcurrentHashMap<Integer,Double>();
+	
+	private static final double INTEGRATION_LIMIT = 8.0;
+	private static final double INTEGRATION_STEP = 0.01;
+	
+	/**
+	 * Performs Friedman's ANOVA with Tukey-Kramer HSD multiple comparisons over a set of Tables
+	 * in one pass, writing a comparison table for each to the output directory. Each Table should 
+	 * hold the system names as its column headers and one row of scores per track, fold or class, 
+	 * as produced by the prepTableData methods of {@link WriteCsvResultFiles}.
+	 * 
+	 * @param outputDir The directory to write the test tables to.
+	 * @param nameToTable Map of test name to the Table to test. The name is used to name the output 
+	 * file (&lt;name&gt;.friedmanTKHSD.csv).
+	 * @param startDataCol The (zero-based) column number of the first data column.
+	 * @param numSystems The number of columns of data to use.
+	 * @return Map of test name to the result of the test, in the iteration order of nameToTable.
+	 * @throws IOException Thrown if a test table cannot be written out.
+	 */
+	public static Map<String,FriedmanResult> performFriedman(File outputDir, Map<String,Table> nameToTable, 
+			int startDataCol, int numSystems) throws IOException{
+		Map<String,FriedmanResult> out = new LinkedHashMap<String,FriedmanResult>();
+		for (Iterator<String> it = nameToTable.keySet().iterator(); it.hasNext();) {
+			String name = it.next();
+			FriedmanResult result = performFriedman(name, nameToTable.get(name), startDataCol, numSystems);
+			writeFriedmanTable(outputDir, result);
+			out.put(name, result);
+		}
+		return out;
+	}
+	
+	/**
+	 * Performs Friedman's ANOVA with Tukey-Kramer HSD multiple comparisons on the data in a Table.
+	 * Cells that cannot be parsed as numbers are treated as missing and rows containing them are 
+	 * excluded from the test.
+	 * 
+	 * @param name The name of the test.
+	 * @param table The Table to test. The column headers provide the system names.
+	 * @param startDataCol The (zero-based) column number of the first data column.
+	 * @param numSystems The number of columns of data to use.
+	 * @return The result of the test.
+	 */
+	public static FriedmanResult performFriedman(String name, Table table, int startDataCol, int numSystems){
+		String[] systemNames = new String[numSystems];
+		System.arraycopy(table.getColHeaders(), startDataCol, systemNames, 0, numSystems);
+		List<String[]> rows = table.getRows();
+		double[][] data = new double[rows.size()][numSystems];
+		for (int r = 0; r < data.length; r++) {
+			String[] row = rows.get(r);
+			for (int s = 0; s < numSystems; s++) {
+				try{
+					data[r][s] = Double.parseDouble(row[startDataCol + s].trim());
+				}catch(NumberFormatException e){
+					data[r][s] = Double.NaN;
+				}
+			}
+		}
+		return performFriedman(name, systemNames, data);
+	}
+	
+	/**
+	 * Performs Friedman's ANOVA with Tukey-Kramer HSD multiple comparisons on an array of scores.
+	 * Systems are sorted by descending mean score before testing, as in the matlab implementation,
+	 * and rows containing non-finite values are excluded.
+	 * 
+	 * @param name The name of the test.
+	 * @param systemNames The names of the systems.
+	 * @param data The scores, one row per track, fold or class and one column per system.
+	 * @return The result of the test.
+	 * @throws IllegalArgumentException Thrown if there are fewer than two systems or no complete 
+	 * rows of data.
+	 */
+	public static FriedmanResult performFriedman(String name, String[] systemNames, double[][] data) 
+			throws IllegalArgumentException{
+		final int numSystems = systemNames.length;
+		if (numSystems < 2){
+			throw new IllegalArgumentException("Friedman's test requires at least two systems, received " + numSystems);
+		}
+		List<double[]> rows = new ArrayList<double[]>(data.length);
+		for (int r = 0; r < data.length; r++) {
+			if (data[r].length != numSystems){
+				throw new IllegalArgumentException("Row " + r + " of the data for " + name + " has " + data[r].length 
+						+ " values, expected " + numSystems);
+			}
+			boolean complete = true;
+			for (int s = 0; s < numSystems && complete; s++) {
+				complete = !Double.isNaN(data[r][s]) && !Double.isInfinite(data[r][s]);
+			}
+			if (complete){
+				rows.add(data[r]);
+			}
+		}
+		if (rows.isEmpty()){
+			throw new IllegalArgumentException("No complete rows of data to perform Friedman's test on for " + name);
+		}
+		if (rows.size() < data.length){
+			Logger.getLogger(FriedmansAnovaTkHsd.class.getName()).warning("Excluded " + (data.length - rows.size()) 
+					+ " rows with missing values from Friedman's test on " + name);
+		}
+		final int numRows = rows.size();
+		
+		//sort systems by descending mean, reversing a stable ascending sort as matlab does
+		final double[] means = new double[numSystems];
+		for (double[] row : rows) {
+			for (int s = 0; s < numSystems; s++) {
+				means[s] += row[s];
+			}
+		}
+		List<Integer> order = new ArrayList<Integer>(numSystems);
+		for (int s = 0; s < numSystems; s++) {
+			means[s] /= numRows;
+			order.add(s);
+		}
+		Collections.sort(order, new Comparator<Integer>(){
+			public int compare(Integer a, Integer b){
+				return Double.compare(means[a], means[b]);
+			}
+		});
+		Collections.reverse(order);
+		String[] sortedNames = new String[numSystems];
+		for (int s = 0; s < numSystems; s++) {
+			sortedNames[s] = systemNames[order.get(s)];
+		}
+		
+		//rank each row, averaging the ranks of ties
+		double[] rankSums = new double[numSystems];
+		double sumTies = 0.0;
+		double[] vals = new double[numSystems];
+		Integer[] idx = new Integer[numSystems];
+		for (double[] row : rows) {
+			for (int s = 0; s < numSystems; s++) {
+				vals[s] = row[order.get(s)];
+				idx[s] = s;
+			}
+			final double[] rowVals = vals;
+			Arrays.sort(idx, new Comparator<Integer>(){
+				public int compare(Integer a, Integer b){
+					return Double.compare(rowVals[a], rowVals[b]);
+				}
+			});
+			int start = 0;
+			while (start < numSystems){
+				int end = start + 1;
+				while (end < numSystems && vals[idx[end]] == vals[idx[start]]){
+					end++;
+				}
+				double rank = (start + end + 1) / 2.0;
+				for (int i = start; i < end; i++) {
+					rankSums[idx[i]] += rank;
+				}
+				double t = end - start;
+				sumTies += t * t * t - t;
+				start = end;
+			}
+		}
+		
+		//Friedman's chi-square statistic, adjusted for ties
+		double[] meanRanks = new double[numSystems];
+		double expected = (numSystems + 1) / 2.0;
+		double ssc = 0.0;
+		for (int s = 0; s < numSystems; s++) {
+			meanRanks[s] = rankSums[s] / numRows;
+			ssc += (meanRanks[s] - expected) * (meanRanks[s] - expected);
+		}
+		ssc *= numRows;
+		double sigmaSq = numSystems * (numSystems + 1) / 12.0 - sumTies / (12.0 * numRows * (numSystems - 1));
+		double chiSquare = 0.0;
+		double pValue = 1.0;
+		if (sigmaSq > 0.0){
+			chiSquare = ssc / sigmaSq;
+			pValue = chiSquareUpperTail(chiSquare, numSystems - 1);
+		}
+		
+		//Tukey-Kramer HSD comparisons between mean ranks
+		double se = Math.sqrt(Math.max(sigmaSq, 0.0) * 2.0 / numRows);
+		double halfWidth = getStudentizedRangeCriticalValue(numSystems) / Math.sqrt(2.0) * se;
+		double[][] comparisons = new double[numSystems * (numSystems - 1) / 2][];
+		int c = 0;
+		for (int i = 0; i < numSystems; i++) {
+			for (int j = i + 1; j < numSystems; j++) {
+				double diff = meanRanks[i] - meanRanks[j];
+				comparisons[c++] = new double[]{i, j, diff - halfWidth, diff, diff + halfWidth};
+			}
+		}
+		
+		return new FriedmanResult(name, sortedNames, meanRanks, numRows, chiSquare, pValue, comparisons);
+	}
+	
+	/**
+	 * Writes the comparisons from a Friedman's test out to &lt;name&gt;.friedmanTKHSD.csv in the output 
+	 * directory and records the file in the result.
+	 * 
+	 * @param outputDir The directory to write to.
+	 * @param result The result to write out.
+	 * @return The file written.
+	 * @throws IOException Thrown if the file cannot be written.
+	 */
+	public static File writeFriedmanTable(File outputDir, FriedmanResult result) throws IOException{
+		File tableFile = new File(outputDir.getAbsolutePath() + File.separator + result.getName() + TABLE_SUFFIX);
+		WriteCsvResultFiles.writeTableToCsv(result.toTable(), tableFile);
+		result.setTableFile(tableFile);
+		return tableFile;
+	}
+	
+	/**
+	 * Returns the upper 1 - ALPHA quantile of the studentized range for the specified number of 
+	 * groups and infinite degrees of freedom, as used by multcompare when estimating from Friedman's 
+	 * test. Values are computed by numerical integration and cached.
+	 * 
+	 * @param numGroups The number of groups compared.
+	 * @return The critical value.
+	 */
+	static double getStudentizedRangeCriticalValue(int numGroups){
+		Double cached = STUDENTIZED_RANGE_CACHE.get(numGroups);
+		if (cached != null){
+			return cached;
+		}
+		double lo = 0.0;
+		double hi = 1.0;
+		while (studentizedRangeCdf(hi, numGroups) < 1.0 - ALPHA){
+			hi *= 2.0;
+		}
+		while (hi - lo > 1e-10){
+			double mid = (lo + hi) / 2.0;
+			if (studentizedRangeCdf(mid, numGroups) < 1.0 - ALPHA){
+				lo = mid;
+			}else{
+				hi = mid;
+			}
+		}
+		double q = (lo + hi) / 2.0;
+		STUDENTIZED_RANGE_CACHE.put(numGroups, q);
+		return q;
+	}
+	
+	/**
+	 * CDF of the range of numGroups independent standard normal variables, integrated with 
+	 * Simpson's rule.
+	 */
+	private static double studentizedRangeCdf(double q, int numGroups){
+		int steps = (int)Math.round(2.0 * INTEGRATION_LIMIT / INTEGRATION_STEP);
+		double sum = 0.0;
+		for (int i = 0; i <= steps; i++) {
+			double z = -INTEGRATION_LIMIT + i * INTEGRATION_STEP;
+			double f = Math.exp(-0.5 * z * z) / Math.sqrt(2.0 * Math.PI)
+					* Math.pow(normalCdf(z + q) - normalCdf(z), numGroups - 1);
+			double weight = (i == 0 || i == steps) ? 1.0 : ((i % 2 == 1) ? 4.0 : 2.0);
+			sum += weight * f;
+		}
+		return numGroups * sum * INTEGRATION_STEP / 3.0;
+	}
+	
+	/**
+	 * Standard normal CDF, using Marsaglia's series expansion.
+	 */
+	private static double normalCdf(double x){
+		if (x < -INTEGRATION_LIMIT - 1.0){
+			return 0.0;
+		}else if (x > INTEGRATION_LIMIT + 1.0){
+			return 1.0;
+		}
+		double sum = x;
+		double term = x;
+		double x2 = x * x;
+		for (int i = 3; sum + term != sum; i += 2) {
+			term = term * x2 / i;
+			sum += term;
+		}
+		return 0.5 + sum * Math.exp(-0.5 * x2 - 0.91893853320467274178);
+	}
+	
+	/**
+	 * Upper tail probability of the chi-square distribution, computed from the regularized 
+	 * incomplete gamma function.
+	 */
+	static double chiSquareUpperTail(double x, int degreesOfFreedom){
+		if (x <= 0.0){
+			return 1.0;
+		}
+		double a = degreesOfFreedom / 2.0;
+		double y = x / 2.0;
+		double lnPrefix = a * Math.log(y) - y - lnGamma(a);
+		if (y < a + 1.0){
+			//series representation of the lower tail
+			double term = 1.0 / a;
+			double sum = term;
+			for (int n = 1; n < 1000 && Math.abs(term) > Math.abs(sum) * 1e-15; n++) {
+				term *= y / (a + n);
+				sum += term;
+			}
+			return 1.0 - sum * Math.exp(lnPrefix);
+		}
+		//continued fraction representation of the upper tail (modified Lentz)
+		double tiny = 1e-300;
+		double b = y + 1.0 - a;
+		double c = 1.0 / tiny;
+		double d = 1.0 / b;
+		double h = d;
+		for (int n = 1; n < 1000; n++) {
+			double an = -n * (n - a);
+			b += 2.0;
+			d = an * d + b;
+			if (Math.abs(d) < tiny){
+				d = tiny;
+			}
+			c = b + an / c;
+			if (Math.abs(c) < tiny){
+				c = tiny;
+			}
+			d = 1.0 / d;
+			double delta = d * c;
+			h *= delta;
+			if (Math.abs(delta - 1.0) < 1e-15){
+				break;
+			}
+		}
+		return h * Math.exp(lnPrefix);
+	}
+	
+	/**
+	 * Natural log of the gamma function (Lanczos approximation).
+	 */
+	private static double lnGamma(double x){
+		double[] coef = {57.1562356658629235, -59.5979603554754912, 14.1360979747417471, 
+				-0.491913816097620199, 0.339946499848118887e-4, 0.465236289270485756e-4, 
+				-0.983744753048795646e-4, 0.158088703224912494e-3, -0.210264441724104883e-3, 
+				0.217439618115212643e-3, -0.164318106536763890e-3, 0.844182239838527433e-4, 
+				-0.261908384015814087e-4, 0.368991826595316234e-5};
+		double tmp = x + 5.24218750000000000;
+		tmp = (x + 0.5) * Math.log(tmp) - tmp;
+		double ser = 0.999999999999997092;
+		for (int j = 0; j < coef.length; j++) {
+			ser += coef[j] / (x + j + 1);
+		}
+		return tmp + Math.log(2.5066282746310005 * ser / x);
+	}
+	
 	/**
 	 * Uses a CSV File and set of system name labels to perform a statisitcal significance test in Matlab.
+	 * Superseded by the pure java implementations above, which produce the same test table without
+	 * launching matlab.
 	 * The test performed is Friedman's ANOVA with Tukey-Kramer Honestly-Significant-Difference multiple
 	 * comparisons. Hence the test is both non-parametric and performs valid pairwise comparisons between
 	 * the performance scores of a set of results from multiple systems.
@@ -49,6 +409,21 @@ public class FriedmansAnovaTkHsd {
 	public static File[] performFriedman(File outputDir, File CSVResultFile, int systemNamesRow, 
 			int startDataCol, int startDataRow, int numSystems, File matlabPath) 
 			throws IOException, IllegalArgumentException{
+		return performFriedman(outputDir, CSVResultFile, systemNamesRow, startDataCol, startDataRow, numSystems, matlabPath, null);
+	}
+
+	/**
+	 * Uses a CSV File and set of system name labels to perform Friedman's ANOVA with Tukey-Kramer 
+	 * HSD multiple comparisons in Matlab, running the test in an engine from a pool of warm
+	 * MATLAB engines rather than a new MATLAB process.
+	 * 
+	 * @param enginePool The pool of MATLAB engines to use, or null to start MATLAB.
+	 * @see #performFriedman(File, File, int, int, int, int, File)
+	 * @since 0.4.1
+	 */
+	public static File[] performFriedman(File outputDir, File CSVResultFile, int systemNamesRow, 
+			int startDataCol, int startDataRow, int numSystems, File matlabPath, MatlabEnginePool enginePool) 
+			throws IOException, IllegalArgumentException{
         //make sure readtext.m is in the working directory for Matlab
         File readtextMFile = new File(outputDir.getAbsolutePath() + File.separator + "readtext.m");
         CopyFileFromClassPathToDisk.copy("/org/imirsel/nema/analytics/evaluation/util/resources/readtext.m", readtextMFile);
@@ -149,8 +524,6 @@ public class FriedmansAnovaTkHsd {
             textOut.newLine();
             textOut.write("fclose(fidFriedman);");
             textOut.newLine();
-            textOut.write("exit;");
-            textOut.newLine(); 
 
 
             textOut.close();
@@ -160,6 +533,7 @@ public class FriedmansAnovaTkHsd {
 
         MatlabExecutorImpl matlabIntegrator = new MatlabExecutorImpl(outputDir,true,outputDir,outputDir,outputDir,"",evalCommand,null);
         matlabIntegrator.setMatlabBin(matlabPath);
+        matlabIntegrator.setEnginePool(enginePool);
         matlabIntegrator.runCommand(null);
         
         return new File[]{new File(matlabPlotPath),new File(friedmanTablePath)};
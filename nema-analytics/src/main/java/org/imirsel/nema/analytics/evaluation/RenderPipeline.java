@@ -0,0 +1,454 @@
+package org.imirsel.nema.analytics.evaluation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A graph of the stages of rendering a set of results (e.g. writing CSV
+ * files, running significance tests, compressing result directories and
+ * writing the HTML pages), each of which may depend on others. When run, each
+ * stage is started as soon as all of the stages it depends on have completed,
+ * so independent stages run concurrently. {@link #run(Executor)} returns once
+ * every stage has completed and logs the time spent in each kind of stage.
+ *
+ * Stages pass their results to the stages that depend on them through
+ * {@link Stage#get()}. For example:
+ * <pre>
+ * RenderPipeline pipeline = new RenderPipeline("melody results", getLogger());
+ * final Stage&lt;File&gt; summaryCsv = pipeline.add("summary CSV", new Callable&lt;File&gt;() {...});
+ * pipeline.add("HTML pages", new Callable&lt;Void&gt;() {... summaryCsv.get() ...}).after(summaryCsv);
+ * pipeline.run(executor);
+ * </pre>
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class RenderPipeline {
+
+	private static final int PENDING = 0;
+	private static final int RUNNING = 1;
+	private static final int DONE = 2;
+	private static final int FAILED = 3;
+	private static final int SKIPPED = 4;
+
+	private final String name;
+	private final Logger logger;
+	private final List<Stage<?>> stages = new ArrayList<Stage<?>>();
+	private boolean started = false;
+	private Executor executor = null;
+	private long totalTime = 0L;
+
+	/* guarded by this during a run */
+	private int numRunning = 0;
+	private int numFinished = 0;
+	private Throwable failure = null;
+
+	/**
+	 * A stage of the pipeline.
+	 * @param <T> The type of the value produced by the stage.
+	 */
+	public class Stage<T> {
+		private final String name;
+		private final Callable<T> work;
+		private final List<Stage<?>> dependents = new ArrayList<Stage<?>>();
+		private int numDependencies = 0;
+		private int remaining = 0;
+		private int state = PENDING;
+		private T value = null;
+		private long time = 0L;
+
+		private Stage(String name, Callable<T> work) {
+			this.name = name;
+			this.work = work;
+		}
+
+		/**
+		 * Makes this stage wait for another to complete before it starts.
+		 * @param dependency The stage to wait for, which must belong to the
+		 * same pipeline.
+		 * @return this stage.
+		 */
+		public Stage<T> after(Stage<?> dependency) {
+			if (started){
+				throw new IllegalStateException("Stages can't be changed once the pipeline '" + RenderPipeline.this.name + "' has been run");
+			}
+			if (dependency.pipeline() != RenderPipeline.this){
+				throw new IllegalArgumentException("Stage '" + dependency.name + "' belongs to a different pipeline");
+			}
+			dependency.dependents.add(this);
+			numDependencies++;
+			return this;
+		}
+
+		/**
+		 * Makes this stage wait for each of the other stages to complete
+		 * before it starts.
+		 * @param dependencies The stages to wait for.
+		 * @return this stage.
+		 */
+		public Stage<T> after(Collection<? extends Stage<?>> dependencies) {
+			for (Iterator<? extends Stage<?>> it = dependencies.iterator(); it.hasNext();) {
+				after(it.next());
+			}
+			return this;
+		}
+
+		/**
+		 * Returns the value produced by this stage, which may be called by the
+		 * stages that depend on it, or once the pipeline has been run.
+		 * @return the value.
+		 * @throws IllegalStateException Thrown if the stage has not completed.
+		 */
+		public T get() {
+			synchronized (RenderPipeline.this) {
+				if (state != DONE){
+					throw new IllegalStateException("Stage '" + name + "' of pipeline '" + RenderPipeline.this.name + "' has not completed");
+				}
+				return value;
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the time taken to run the stage in milliseconds, or 0 if it
+		 * has not been run.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		private RenderPipeline pipeline() {
+			return RenderPipeline.this;
+		}
+
+		private void execute() {
+			long start = System.currentTimeMillis();
+			T result = null;
+			Throwable error = null;
+			try{
+				result = work.call();
+			}catch(Throwable t){
+				error = t;
+			}
+			time = System.currentTimeMillis() - start;
+			logger.fine("Rendering stage '" + name + "' took " + time + "ms");
+			stageFinished(this, result, error);
+		}
+	}
+
+	/**
+	 * Creates an empty pipeline.
+	 * @param name A name for the pipeline, used in log messages.
+	 * @param logger The logger to report progress and timings to.
+	 */
+	public RenderPipeline(String name, Logger logger) {
+		this.name = name;
+		this.logger = logger;
+	}
+
+	/**
+	 * Adds a stage to the pipeline. Stages it depends on are set with
+	 * {@link Stage#after(Stage)}. Several stages may share a name (e.g. one
+	 * per job), their timings are then reported together.
+	 * @param stageName The name of the stage.
+	 * @param work The work done by the stage.
+	 * @return the stage.
+	 */
+	public synchronized <T> Stage<T> add(String stageName, Callable<T> work) {
+		if (started){
+			throw new IllegalStateException("Stages can't be added once the pipeline '" + name + "' has been run");
+		}
+		Stage<T> stage = new Stage<T>(stageName, work);
+		stages.add(stage);
+		return stage;
+	}
+
+	/**
+	 * Runs every stage, each as soon as the stages it depends on have
+	 * completed, and blocks until all have completed. If a stage fails no
+	 * further stages are started, the stages already running are allowed to
+	 * complete and the failure is then rethrown. A pipeline can only be run
+	 * once.
+	 *
+	 * @param executor The Executor to run the stages on, or null to run them
+	 * one at a time in the calling thread (in the order they were added,
+	 * where the dependencies allow).
+	 * @throws IOException Thrown if a stage fails with an IOException or
+	 * another checked exception.
+	 * @throws IllegalArgumentException Thrown if the dependencies between the
+	 * stages form a cycle.
+	 */
+	public void run(Executor executor) throws IOException, IllegalArgumentException {
+		List<Stage<?>> ready = new ArrayList<Stage<?>>();
+		synchronized (this) {
+			if (started){
+				throw new IllegalStateException("The pipeline '" + name + "' has already been run");
+			}
+			started = true;
+			checkForCycles();
+			this.executor = executor;
+			for (Iterator<Stage<?>> it = stages.iterator(); it.hasNext();) {
+				Stage<?> stage = it.next();
+				stage.remaining = stage.numDependencies;
+				if (stage.remaining == 0){
+					ready.add(stage);
+				}
+			}
+		}
+		long start = System.currentTimeMillis();
+		if (executor == null){
+			runSerially();
+		}else{
+			startAll(ready, executor);
+			synchronized (this) {
+				boolean interrupted = false;
+				while (numRunning > 0 || (failure == null && numFinished < stages.size())){
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						//the running stages still have to finish before returning
+						interrupted = true;
+					}
+				}
+				if (interrupted){
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		totalTime = System.currentTimeMillis() - start;
+
+		Throwable error;
+		synchronized (this) {
+			error = failure;
+		}
+		if (error == null){
+			logTimes();
+			return;
+		}
+		if (error instanceof IOException){
+			throw (IOException)error;
+		}else if (error instanceof RuntimeException){
+			throw (RuntimeException)error;
+		}else if (error instanceof Error){
+			throw (Error)error;
+		}
+		IOException ex = new IOException("Failed to render " + name);
+		ex.initCause(error);
+		throw ex;
+	}
+
+	/**
+	 * Runs the stages in the calling thread, repeatedly running the first
+	 * stage (in the order added) whose dependencies have all completed.
+	 */
+	private void runSerially() {
+		List<Stage<?>> todo = new ArrayList<Stage<?>>(stages);
+		while (!todo.isEmpty()){
+			Stage<?> next = null;
+			synchronized (this) {
+				if (failure != null){
+					break;
+				}
+				for (Iterator<Stage<?>> it = todo.iterator(); it.hasNext();) {
+					Stage<?> stage = it.next();
+					if (stage.remaining == 0){
+						next = stage;
+						it.remove();
+						break;
+					}
+				}
+				next.state = RUNNING;
+				numRunning++;
+			}
+			next.execute();
+		}
+	}
+
+	private void startAll(List<Stage<?>> ready, Executor executor) {
+		for (Iterator<Stage<?>> it = ready.iterator(); it.hasNext();) {
+			final Stage<?> stage = it.next();
+			synchronized (this) {
+				if (failure != null){
+					return;
+				}
+				stage.state = RUNNING;
+				numRunning++;
+			}
+			try{
+				executor.execute(new Runnable() {
+					public void run() {
+						stage.execute();
+					}
+				});
+			}catch(RejectedExecutionException e){
+				stageFinished(stage, null, e);
+			}
+		}
+	}
+
+	/**
+	 * Records the outcome of a stage and starts any dependents that are now
+	 * ready (when running on an Executor).
+	 */
+	private void stageFinished(Stage<?> stage, Object result, Throwable error) {
+		List<Stage<?>> ready = new ArrayList<Stage<?>>();
+		synchronized (this) {
+			numRunning--;
+			numFinished++;
+			if (error != null){
+				stage.state = FAILED;
+				if (failure == null){
+					failure = error;
+					logger.log(Level.SEVERE, "Rendering stage '" + stage.name + "' of '" + name + "' failed, no further stages will be started", error);
+				}
+				for (Iterator<Stage<?>> it = stages.iterator(); it.hasNext();) {
+					Stage<?> other = it.next();
+					if (other.state == PENDING){
+						other.state = SKIPPED;
+					}
+				}
+			}else{
+				setValue(stage, result);
+				stage.state = DONE;
+				for (Iterator<Stage<?>> it = stage.dependents.iterator(); it.hasNext();) {
+					Stage<?> dependent = it.next();
+					if (--dependent.remaining == 0 && failure == null){
+						ready.add(dependent);
+					}
+				}
+			}
+			notifyAll();
+		}
+		if (!ready.isEmpty() && executor != null){
+			startAll(ready, executor);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void setValue(Stage<T> stage, Object value) {
+		stage.value = (T)value;
+	}
+
+	private void checkForCycles() throws IllegalArgumentException {
+		//Kahn's algorithm: every stage must be reachable by removing those with no remaining dependencies
+		Map<Stage<?>,Integer> counts = new HashMap<Stage<?>,Integer>(stages.size() * 2);
+		List<Stage<?>> ready = new ArrayList<Stage<?>>();
+		for (Iterator<Stage<?>> it = stages.iterator(); it.hasNext();) {
+			Stage<?> stage = it.next();
+			counts.put(stage, stage.numDependencies);
+			if (stage.numDependencies == 0){
+				ready.add(stage);
+			}
+		}
+		int numOrdered = 0;
+		while (!ready.isEmpty()){
+			Stage<?> stage = ready.remove(ready.size() - 1);
+			numOrdered++;
+			for (Iterator<Stage<?>> it = stage.dependents.iterator(); it.hasNext();) {
+				Stage<?> dependent = it.next();
+				int count = counts.get(dependent) - 1;
+				counts.put(dependent, count);
+				if (count == 0){
+					ready.add(dependent);
+				}
+			}
+		}
+		if (numOrdered != stages.size()){
+			throw new IllegalArgumentException("The stages of pipeline '" + name + "' have cyclic dependencies");
+		}
+	}
+
+	/**
+	 * Returns the time spent in each kind of stage, i.e. summed over the
+	 * stages with the same name, in the order the stages were added.
+	 * @return Map of stage name to time in milliseconds.
+	 */
+	public synchronized Map<String,Long> getStageTimes() {
+		Map<String,Long> times = new LinkedHashMap<String,Long>();
+		for (Iterator<Stage<?>> it = stages.iterator(); it.hasNext();) {
+			Stage<?> stage = it.next();
+			Long time = times.get(stage.name);
+			times.put(stage.name, (time == null ? 0L : time) + stage.time);
+		}
+		return times;
+	}
+
+	/**
+	 * @return the elapsed time of the last run in milliseconds.
+	 */
+	public long getTotalTime() {
+		return totalTime;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	private void logTimes() {
+		Map<String,Integer> counts = new HashMap<String,Integer>();
+		long summed = 0L;
+		for (Iterator<Stage<?>> it = stages.iterator(); it.hasNext();) {
+			Stage<?> stage = it.next();
+			Integer count = counts.get(stage.name);
+			counts.put(stage.name, count == null ? 1 : count + 1);
+			summed += stage.time;
+		}
+		Map<String,Long> times = getStageTimes();
+		StringBuilder msg = new StringBuilder("Rendered " + name + " in " + totalTime + "ms (" + summed + "ms over " + stages.size() + " stages):");
+		for (Iterator<String> it = times.keySet().iterator(); it.hasNext();) {
+			String stageName = it.next();
+			int count = counts.get(stageName);
+			msg.append("\n\t").append(stageName).append(": ").append(times.get(stageName)).append("ms");
+			if (count > 1){
+				msg.append(" (").append(count).append(" stages)");
+			}
+		}
+		logger.info(msg.toString());
+	}
+
+	/**
+	 * Collects the values produced by a set of completed stages.
+	 * @param keyToStage Map of key (e.g. job ID) to stage.
+	 * @return Map of key to the value produced by its stage.
+	 */
+	public static <K,V> Map<K,V> values(Map<K,? extends RenderPipeline.Stage<V>> keyToStage) {
+		Map<K,V> out = new HashMap<K,V>(keyToStage.size() * 2);
+		for (Iterator<K> it = keyToStage.keySet().iterator(); it.hasNext();) {
+			K key = it.next();
+			out.put(key, keyToStage.get(key).get());
+		}
+		return out;
+	}
+
+	/**
+	 * Makes each stage in a map depend on the stage with the same key in 
+	 * another, e.g. to make the stage compressing each job's result directory
+	 * wait for the stage writing a file into it.
+	 * @param keyToStage Map of key to the stages that should wait.
+	 * @param keyToDependency Map of key to the stage each should wait for.
+	 * Keys with no stage in this map are ignored.
+	 */
+	public static <K> void afterEach(Map<K,? extends RenderPipeline.Stage<?>> keyToStage, Map<K,? extends RenderPipeline.Stage<?>> keyToDependency) {
+		for (Iterator<K> it = keyToStage.keySet().iterator(); it.hasNext();) {
+			K key = it.next();
+			RenderPipeline.Stage<?> dependency = keyToDependency.get(key);
+			if (dependency != null){
+				keyToStage.get(key).after(dependency);
+			}
+		}
+	}
+}
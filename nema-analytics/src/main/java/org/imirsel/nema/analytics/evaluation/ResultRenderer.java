@@ -62,18 +62,14 @@ public interface ResultRenderer {
     public void renderAnalysis(NemaEvaluationResultSet results) throws IOException;
     
     
-    //TODO: remove these temporary methods when we get a java implementation of stats tests
-    
     /**
-     * Sets a flag determining whether significance tests are performed in 
-     * matlab.
+     * Sets a flag determining whether significance tests are performed.
      * @param performMatlabStatSigTests The flag to set.
      */
 	public void setPerformMatlabStatSigTests(boolean performMatlabStatSigTests);
 
 	/**
-	 * Returns a flag determining whether significance tests are performed in 
-	 * matlab.
+	 * Returns a flag determining whether significance tests are performed.
 	 * @return The flag value.
 	 */
 	public boolean getPerformMatlabStatSigTests();
@@ -15,6 +15,7 @@ import org.imirsel.nema.analytics.evaluation.key.KeyEvaluator;
 import org.imirsel.nema.analytics.evaluation.key.KeyResultRenderer;
 import org.imirsel.nema.analytics.evaluation.melody.MelodyEvaluator;
 import org.imirsel.nema.analytics.evaluation.melody.MelodyResultRenderer;
+import org.imirsel.nema.analytics.evaluation.multif0.MultiF0NtResultRenderer;
 import org.imirsel.nema.analytics.evaluation.onset.OnsetResultRenderer;
 import org.imirsel.nema.analytics.evaluation.structure.StructureResultRenderer;
 import org.imirsel.nema.analytics.evaluation.tagsClassification.TagAffinityResultRenderer;
@@ -45,6 +46,7 @@ public class ResultRendererFactory {
 		RESULT_RENDERER_REGISTRY.put(NemaDataConstants.STRUCTURE_SEGMENTATION_DATA, StructureResultRenderer.class);
 		RESULT_RENDERER_REGISTRY.put(NemaDataConstants.ONSET_DETECTION_DATA, OnsetResultRenderer.class);
 		RESULT_RENDERER_REGISTRY.put(NemaDataConstants.BEAT_TRACKING_DATA, BeatResultRenderer.class);
+		RESULT_RENDERER_REGISTRY.put(NemaDataConstants.MULTI_F0_NT_DATA, MultiF0NtResultRenderer.class);
 		
 		//tag
 		RESULT_RENDERER_REGISTRY.put(NemaDataConstants.TAG_CLASSIFICATIONS, TagClassificationResultRenderer.class);
@@ -12,13 +12,21 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Handler;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.StreamHandler;
+import java.util.zip.Deflater;
 
 import org.imirsel.nema.analytics.evaluation.resultpages.Page;
 import org.imirsel.nema.analytics.evaluation.resultpages.PageItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisBarChartPlotItem;
+import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisLineChartPlotItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.Table;
 import org.imirsel.nema.analytics.evaluation.resultpages.TableItem;
 import org.imirsel.nema.model.NemaContributor;
@@ -43,10 +51,15 @@ public abstract class ResultRendererImpl implements ResultRenderer {
 	protected File workingDir;
 	protected File outputDir;
 	
-	//temporary variables for matlab until we have java implementation of stats tests
+	//significance tests are now computed in java, the matlab path is only used by the legacy implementation
 	protected boolean performMatlabStatSigTests = true;
 	protected File matlabPath = new File("matlab");
 	
+	private int numCompressionThreads = Math.min(8, Runtime.getRuntime().availableProcessors());
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	private boolean parallelRendering = true;
+	private int numRenderThreads = Math.min(8, Runtime.getRuntime().availableProcessors());
+	
 	public ResultRendererImpl() {
 		this._logger = Logger.getLogger(this.getClass().getName());
 		this.workingDir = null;
@@ -120,23 +133,35 @@ public abstract class ResultRendererImpl implements ResultRenderer {
 			NemaEvaluationResultSet results,
 			Map<String, File> jobIDToResultDir) throws IOException {
 		String jobId;
-		Map<NemaTrackList, List<NemaData>> sysResults;
 		Map<String, File> jobIDToPerTrackCSV = new HashMap<String, File>(jobIDToResultDir.size());
 		for (Iterator<String> it = results.getJobIds().iterator(); it
 				.hasNext();) {
 			jobId = it.next();
-			sysResults = results.getPerTrackEvaluationAndResults(jobId);
-			
-			File sysDir = jobIDToResultDir.get(jobId);
-			File trackCSV = new File(sysDir.getAbsolutePath() + File.separator + "per_track_results.csv");
-			WriteCsvResultFiles.writeTableToCsv(
-					WriteCsvResultFiles.prepTableDataOverTracks(results.getTestSetTrackLists(), sysResults, results.getTrackEvalMetricsAndResultsKeys())
-					,trackCSV);
-			jobIDToPerTrackCSV.put(jobId, trackCSV);
+			jobIDToPerTrackCSV.put(jobId, writePerTrackSystemResultCSV(results, jobId, jobIDToResultDir.get(jobId)));
 		}
 		return jobIDToPerTrackCSV;
 	}
 	
+	/**
+	 * Writes the per-track result CSV file for a single system.
+	 * 
+	 * @param results Result set to get the per-track results from.
+	 * @param jobId The job ID of the system.
+	 * @param sysDir The system's result directory to write to.
+	 * @return The CSV file created.
+	 * @throws IOException
+	 * @since 0.4.1
+	 */
+	protected File writePerTrackSystemResultCSV(NemaEvaluationResultSet results, 
+			String jobId, File sysDir) throws IOException {
+		Map<NemaTrackList, List<NemaData>> sysResults = results.getPerTrackEvaluationAndResults(jobId);
+		File trackCSV = new File(sysDir.getAbsolutePath() + File.separator + "per_track_results.csv");
+		WriteCsvResultFiles.writeTableToCsv(
+				WriteCsvResultFiles.prepTableDataOverTracks(results.getTestSetTrackLists(), sysResults, results.getTrackEvalMetricsAndResultsKeys())
+				,trackCSV);
+		return trackCSV;
+	}
+	
 	/**
 	 * Default method of writing result CSV files per fold, for each system. 
 	 * Uses the declared per-fold metrics and results keys to produce a 
@@ -151,24 +176,35 @@ public abstract class ResultRendererImpl implements ResultRenderer {
 			NemaEvaluationResultSet results,
 			Map<String, File> jobIDToResultDir) throws IOException {
 		String jobId;
-		Map<NemaTrackList, NemaData>  sysFoldResults;
 		Map<String, File> jobIDToPerFoldCSV = new HashMap<String, File>(jobIDToResultDir.size());
 		for (Iterator<String> it = results.getJobIds().iterator(); it
 				.hasNext();) {
 			jobId = it.next();
-			sysFoldResults = results
-			.getPerFoldEvaluation(jobId);
-			
-			File sysDir = jobIDToResultDir.get(jobId);
-			File foldCSV = new File(sysDir.getAbsolutePath() + File.separator + "per_fold_results.csv");
-			WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles
-					.prepTableDataOverFolds(results.getTestSetTrackLists(),
-							sysFoldResults, results.getFoldEvalMetricsKeys()),
-					foldCSV);
-			jobIDToPerFoldCSV.put(jobId, foldCSV);
+			jobIDToPerFoldCSV.put(jobId, writePerFoldSystemResultCSV(results, jobId, jobIDToResultDir.get(jobId)));
 		}
 		return jobIDToPerFoldCSV;
 	}
+	
+	/**
+	 * Writes the per-fold result CSV file for a single system.
+	 * 
+	 * @param results Result set to get the per-fold results from.
+	 * @param jobId The job ID of the system.
+	 * @param sysDir The system's result directory to write to.
+	 * @return The CSV file created.
+	 * @throws IOException
+	 * @since 0.4.1
+	 */
+	protected File writePerFoldSystemResultCSV(NemaEvaluationResultSet results, 
+			String jobId, File sysDir) throws IOException {
+		Map<NemaTrackList, NemaData> sysFoldResults = results.getPerFoldEvaluation(jobId);
+		File foldCSV = new File(sysDir.getAbsolutePath() + File.separator + "per_fold_results.csv");
+		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles
+				.prepTableDataOverFolds(results.getTestSetTrackLists(),
+						sysFoldResults, results.getFoldEvalMetricsKeys()),
+				foldCSV);
+		return foldCSV;
+	}
 
 	/**
 	 * Default method of writing overall result summary CSV file. Uses the 
@@ -189,7 +225,12 @@ public abstract class ResultRendererImpl implements ResultRenderer {
 	}
 	
     /**
-     * Compresses result directories into gzipped tarballs (tar.gz).
+     * Compresses result directories into gzipped tarballs (tar.gz). The 
+     * directories are archived concurrently on a pool of at most 
+     * <code>numCompressionThreads</code> threads; when there are fewer 
+     * directories than threads the spare threads compress blocks of each 
+     * archive in parallel. A failure to compress one directory is logged and 
+     * does not stop the others.
      * 
      * @param jobIDToResultDir
      * @return Map of job ID to a File Object representing the path to the 
@@ -197,15 +238,245 @@ public abstract class ResultRendererImpl implements ResultRenderer {
      */
 	protected Map<String, File> compressResultDirectories(
 			Map<String, File> jobIDToResultDir) {
-		String jobId;
-		Map<String, File> jobIDToTgz = new HashMap<String, File>(jobIDToResultDir.size());
-		for (Iterator<String> it = jobIDToResultDir.keySet().iterator(); it.hasNext();) {
-			jobId = it.next();
-			jobIDToTgz.put(jobId, IOUtil.tarAndGzip(jobIDToResultDir.get(jobId)));
+		int numJobs = jobIDToResultDir.size();
+		Map<String, File> jobIDToTgz = new HashMap<String, File>(numJobs);
+		if (numJobs == 0){
+			return jobIDToTgz;
+		}
+		final int level = compressionLevel;
+		final int threadsPerArchive = Math.max(1, numCompressionThreads / numJobs);
+		int poolSize = Math.min(numCompressionThreads, numJobs);
+		ExecutorService pool = poolSize > 1 ? Executors.newFixedThreadPool(poolSize) : null;
+		try{
+			Map<String, FutureTask<File>> jobIDToTask = new HashMap<String, FutureTask<File>>(numJobs);
+			for (Iterator<String> it = jobIDToResultDir.keySet().iterator(); it.hasNext();) {
+				String jobId = it.next();
+				final File dir = jobIDToResultDir.get(jobId);
+				FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+					public File call() throws IOException {
+						return IOUtil.tarAndGzip(dir, null, level, threadsPerArchive);
+					}
+				});
+				if (pool == null){
+					task.run();
+				}else{
+					pool.execute(task);
+				}
+				jobIDToTask.put(jobId, task);
+			}
+			for (Iterator<String> it = jobIDToTask.keySet().iterator(); it.hasNext();) {
+				String jobId = it.next();
+				File dir = jobIDToResultDir.get(jobId);
+				try {
+					jobIDToTgz.put(jobId, jobIDToTask.get(jobId).get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while compressing result directories", e);
+				} catch (ExecutionException e) {
+					getLogger().log(Level.SEVERE, "Failed to compress the result directory for job ID '" + jobId + "': " + dir.getAbsolutePath(), e.getCause());
+					jobIDToTgz.put(jobId, new File(dir.getAbsolutePath() + ".tar.gz"));
+				}
+			}
+		}finally{
+			if (pool != null){
+				pool.shutdownNow();
+			}
 		}
 		return jobIDToTgz;
 	}
 	
+	/**
+	 * Creates an empty pipeline for rendering a result set, to be run with 
+	 * {@link #runRenderPipeline(RenderPipeline)}.
+	 * 
+	 * @param results The result set that will be rendered.
+	 * @return the pipeline.
+	 * @since 0.4.1
+	 */
+	protected RenderPipeline createRenderPipeline(NemaEvaluationResultSet results) {
+		String name = results.getTask() == null ? "results" : results.getTask().getName() + " results";
+		return new RenderPipeline(name, getLogger());
+	}
+	
+	/**
+	 * Runs a rendering pipeline, on a pool of <code>numRenderThreads</code> 
+	 * threads if parallel rendering is enabled or serially otherwise, and 
+	 * returns once every stage has completed.
+	 * 
+	 * @param pipeline The pipeline to run.
+	 * @throws IOException Thrown if any stage fails.
+	 * @since 0.4.1
+	 */
+	protected void runRenderPipeline(RenderPipeline pipeline) throws IOException {
+		if (!parallelRendering || numRenderThreads == 1){
+			pipeline.run(null);
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(numRenderThreads);
+		try{
+			pipeline.run(pool);
+		}finally{
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * Adds a stage writing the per-track result CSV file for each system to 
+	 * a rendering pipeline.
+	 * 
+	 * @param pipeline The pipeline to add the stages to.
+	 * @param results Result set to get the per-track results from.
+	 * @param jobIDToResultDir Map of job ID to result directory to write to.
+	 * @return Map of job ID to the stage producing its CSV file.
+	 * @since 0.4.1
+	 */
+	protected Map<String, RenderPipeline.Stage<File>> addPerTrackCSVStages(RenderPipeline pipeline,
+			final NemaEvaluationResultSet results, Map<String, File> jobIDToResultDir) {
+		Map<String, RenderPipeline.Stage<File>> jobIDToStage = new HashMap<String, RenderPipeline.Stage<File>>(jobIDToResultDir.size());
+		for (Iterator<String> it = results.getJobIds().iterator(); it.hasNext();) {
+			final String jobId = it.next();
+			final File sysDir = jobIDToResultDir.get(jobId);
+			jobIDToStage.put(jobId, pipeline.add("per-track CSV", new Callable<File>() {
+				public File call() throws IOException {
+					return writePerTrackSystemResultCSV(results, jobId, sysDir);
+				}
+			}));
+		}
+		return jobIDToStage;
+	}
+	
+	/**
+	 * Adds a stage writing the per-fold result CSV file for each system to 
+	 * a rendering pipeline.
+	 * 
+	 * @param pipeline The pipeline to add the stages to.
+	 * @param results Result set to get the per-fold results from.
+	 * @param jobIDToResultDir Map of job ID to result directory to write to.
+	 * @return Map of job ID to the stage producing its CSV file.
+	 * @since 0.4.1
+	 */
+	protected Map<String, RenderPipeline.Stage<File>> addPerFoldCSVStages(RenderPipeline pipeline,
+			final NemaEvaluationResultSet results, Map<String, File> jobIDToResultDir) {
+		Map<String, RenderPipeline.Stage<File>> jobIDToStage = new HashMap<String, RenderPipeline.Stage<File>>(jobIDToResultDir.size());
+		for (Iterator<String> it = results.getJobIds().iterator(); it.hasNext();) {
+			final String jobId = it.next();
+			final File sysDir = jobIDToResultDir.get(jobId);
+			jobIDToStage.put(jobId, pipeline.add("per-fold CSV", new Callable<File>() {
+				public File call() throws IOException {
+					return writePerFoldSystemResultCSV(results, jobId, sysDir);
+				}
+			}));
+		}
+		return jobIDToStage;
+	}
+	
+	/**
+	 * Adds a stage compressing each system's result directory into a 
+	 * gzipped tarball to a rendering pipeline. Each stage must be made to 
+	 * depend on the stages writing into its directory, e.g. with 
+	 * {@link RenderPipeline#afterEach(Map, Map)}. As in 
+	 * {@link #compressResultDirectories(Map)} a failure to compress a 
+	 * directory is logged and does not stop the others.
+	 * 
+	 * @param pipeline The pipeline to add the stages to.
+	 * @param jobIDToResultDir Map of job ID to result directory to compress.
+	 * @return Map of job ID to the stage producing its tarball.
+	 * @since 0.4.1
+	 */
+	protected Map<String, RenderPipeline.Stage<File>> addCompressionStages(RenderPipeline pipeline,
+			Map<String, File> jobIDToResultDir) {
+		int numJobs = jobIDToResultDir.size();
+		Map<String, RenderPipeline.Stage<File>> jobIDToStage = new HashMap<String, RenderPipeline.Stage<File>>(numJobs);
+		if (numJobs == 0){
+			return jobIDToStage;
+		}
+		final int level = compressionLevel;
+		final int threadsPerArchive = Math.max(1, numCompressionThreads / numJobs);
+		for (Iterator<String> it = jobIDToResultDir.keySet().iterator(); it.hasNext();) {
+			final String jobId = it.next();
+			final File dir = jobIDToResultDir.get(jobId);
+			jobIDToStage.put(jobId, pipeline.add("tarball", new Callable<File>() {
+				public File call() {
+					try {
+						return IOUtil.tarAndGzip(dir, null, level, threadsPerArchive);
+					} catch (IOException e) {
+						getLogger().log(Level.SEVERE, "Failed to compress the result directory for job ID '" + jobId + "': " + dir.getAbsolutePath(), e);
+						return new File(dir.getAbsolutePath() + ".tar.gz");
+					}
+				}
+			}));
+		}
+		return jobIDToStage;
+	}
+	
+	/**
+	 * Sets whether the stages of rendering results (writing CSV files, 
+	 * significance tests, compression and HTML pages) are run concurrently 
+	 * where they don't depend on each other, which defaults to true.
+	 * 
+	 * @param parallelRendering the flag to set.
+	 * @since 0.4.1
+	 */
+	public void setParallelRendering(boolean parallelRendering) {
+		this.parallelRendering = parallelRendering;
+	}
+
+	public boolean getParallelRendering() {
+		return parallelRendering;
+	}
+
+	/**
+	 * Sets the number of threads used to run the stages of rendering 
+	 * results, which defaults to the number of processors (up to 8).
+	 * 
+	 * @param numRenderThreads the number of threads, at least 1.
+	 * @since 0.4.1
+	 */
+	public void setNumRenderThreads(int numRenderThreads) {
+		if (numRenderThreads < 1){
+			throw new IllegalArgumentException("The number of threads must be at least 1, received: " + numRenderThreads);
+		}
+		this.numRenderThreads = numRenderThreads;
+	}
+
+	public int getNumRenderThreads() {
+		return numRenderThreads;
+	}
+	
+	/**
+	 * Sets the maximum number of threads used to compress result 
+	 * directories, which defaults to the number of processors (up to 8).
+	 * 
+	 * @param numCompressionThreads the number of threads, at least 1.
+	 */
+	public void setNumCompressionThreads(int numCompressionThreads) {
+		if (numCompressionThreads < 1){
+			throw new IllegalArgumentException("The number of threads must be at least 1, received: " + numCompressionThreads);
+		}
+		this.numCompressionThreads = numCompressionThreads;
+	}
+
+	public int getNumCompressionThreads() {
+		return numCompressionThreads;
+	}
+
+	/**
+	 * Sets the GZIP compression level used for result directory tarballs.
+	 * 
+	 * @param compressionLevel the level (0-9, or 
+	 * <code>Deflater.DEFAULT_COMPRESSION</code>).
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		if ((compressionLevel < 0 || compressionLevel > 9) && compressionLevel != Deflater.DEFAULT_COMPRESSION){
+			throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+		}
+		this.compressionLevel = compressionLevel;
+	}
+
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+	
 	/**
 	 * Plots bar chart of a performance score over all jobs.
 	 * 
@@ -383,7 +654,41 @@ public abstract class ResultRendererImpl implements ResultRenderer {
 		
 		return new ProtovisBarChartPlotItem(name, caption, seriesNames, seriesVals);
 	}
-	
+
+	/**
+	 * Plots the overall value of a metric computed in a tolerance sweep as a
+	 * curve for each system.
+	 * @param tolerancesKey The key of the array of tolerances swept.
+	 * @param metric The key of the array of metric values at each tolerance.
+	 * @param results The results Object to retrieve data from.
+	 * @param name The name to give the plot.
+	 * @param caption The caption to give the plot.
+	 * @param xAxisLabel The label for the tolerance axis.
+	 * @return The plot or null if the results don't include a tolerance sweep.
+	 * @since 0.4.1
+	 */
+	protected static PageItem plotToleranceSweep(String tolerancesKey, String metric,
+			NemaEvaluationResultSet results, String name, String caption, String xAxisLabel) {
+		double[] tolerances = null;
+		List<String> seriesNames = new ArrayList<String>();
+		List<double[]> seriesVals = new ArrayList<double[]>();
+
+		for(String jobId:results.getJobIds()){
+			NemaData overall = results.getJobIdToOverallEvaluation().get(jobId);
+			if (!overall.hasMetadata(tolerancesKey)){
+				return null;
+			}
+			tolerances = overall.getDoubleArrayMetadata(tolerancesKey);
+			seriesNames.add(results.getJobName(jobId));
+			seriesVals.add(overall.getDoubleArrayMetadata(metric));
+		}
+		if (tolerances == null){
+			return null;
+		}
+
+		return new ProtovisLineChartPlotItem(name, caption, xAxisLabel, tolerances, seriesNames, seriesVals);
+	}
+
 	/**
 	 * Writes out a leaderboard CSV file giving ranks for each submission on a 
 	 * chosen metric.
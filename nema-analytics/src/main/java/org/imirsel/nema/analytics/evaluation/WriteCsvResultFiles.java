@@ -36,7 +36,26 @@ import org.imirsel.nema.model.NemaTrackList;
  */
 public class WriteCsvResultFiles {
 
+	/** Shared format for scores, which is not thread-safe: use {@link #formatScore(double)} instead. */
 	public static final DecimalFormat DEC = new DecimalFormat("0.0000");
+	
+	private static final ThreadLocal<DecimalFormat> SCORE_FORMAT = new ThreadLocal<DecimalFormat>() {
+		@Override
+		protected DecimalFormat initialValue() {
+			return new DecimalFormat("0.0000");
+		}
+	};
+	
+	/**
+	 * Formats a score to 4 decimal places. Safe to call from the concurrent 
+	 * stages of a {@link RenderPipeline}.
+	 * 
+	 * @param score The score to format.
+	 * @return The formatted score.
+	 */
+	public static String formatScore(double score) {
+		return SCORE_FORMAT.get().format(score);
+	}
     
 	/**
 	 * Prepares a Table Object that encodes the description of the specified task. To be
@@ -107,7 +126,7 @@ public class WriteCsvResultFiles {
         	String[] row = new String[numMetrics+1];
         	row[0] = jobName;
         	for (int i = 0; i < numMetrics; i++) {
-        		row[i+1] = DEC.format(eval.getDoubleMetadata(metricKeys.get(i)));
+        		row[i+1] = formatScore(eval.getDoubleMetadata(metricKeys.get(i)));
         	}
             rows.add(row);
         }
@@ -209,7 +228,7 @@ public class WriteCsvResultFiles {
 		        			
 		        			throw new IllegalArgumentException("Results from job ID: " + jobIDandName[i][0] + " are not ordered the same as results from job ID: " + firstJob);
 		        		}
-		        		row[i+2] = "" + DEC.format(data.getDoubleMetadata(metricKey));
+		        		row[i+2] = "" + formatScore(data.getDoubleMetadata(metricKey));
 		    	}
 		    	rows.add(row);
 		
@@ -255,7 +274,7 @@ public class WriteCsvResultFiles {
 	        					" for fold " + foldList.getFoldNumber() + " (id=" + foldList.getId() + ")");
 	        			row[i+2] = "0";
 	        		}else{
-	        			row[i+2] = "" + DEC.format(data.getDoubleMetadata(metricKey));
+	        			row[i+2] = "" + formatScore(data.getDoubleMetadata(metricKey));
 	        		}
 		    	}
 		    	rows.add(row);
@@ -325,7 +344,7 @@ public class WriteCsvResultFiles {
         	row[0] = "" + foldList.getFoldNumber();
         	for(int i=0;i<numAlgos;i++){
         		data = jobIDToFoldEval.get(jobIDandName[i][0]).get(foldList);
-        		row[i+1] = "" + DEC.format(data.getDoubleMetadata(metricKey));
+        		row[i+1] = "" + formatScore(data.getDoubleMetadata(metricKey));
         	}
         	rows.add(row);
         }
@@ -393,7 +412,7 @@ public class WriteCsvResultFiles {
         	row[0] = "" + foldList.getFoldNumber();
         	for(int i=0;i<numAlgos;i++){
         		data = jobIDToFoldEval.get(jobIDandName[i][0]).get(foldList);
-        		row[i+1] = "" + DEC.format(data.getDoubleArrayMetadata(metricKey)[arrayColumn]);
+        		row[i+1] = "" + formatScore(data.getDoubleArrayMetadata(metricKey)[arrayColumn]);
         	}
         	rows.add(row);
         }
@@ -450,7 +469,7 @@ public class WriteCsvResultFiles {
         	row[1] = trackEval.get(foldList).get(foldTrackCount).getId();
         	for(int i=0;i<numMetrics;i++){
         		data = trackEval.get(foldList).get(foldTrackCount);
-        		row[i+2] = "" + DEC.format(data.getDoubleMetadata(metricKeys.get(i)));
+        		row[i+2] = "" + formatScore(data.getDoubleMetadata(metricKeys.get(i)));
         	}
         	rows.add(row);
 
@@ -494,7 +513,7 @@ public class WriteCsvResultFiles {
         	row[0] = "" + i;
         	for(int m=0;m<numMetrics;m++){
         		data = foldEval.get(testSets.get(i));
-        		row[m+1] = "" + DEC.format(data.getDoubleMetadata(metricKeys.get(m)));
+        		row[m+1] = "" + formatScore(data.getDoubleMetadata(metricKeys.get(m)));
         	}
         	rows.add(row);
         }
@@ -592,10 +611,10 @@ public class WriteCsvResultFiles {
 
             for (int j = 0 ; j < numAlgos; j++){  
             	if (jobIDToAggregateEval.get(jobIDandName[j][0]).getMetadata(metadataKey).getClass().getComponentType().isArray()){
-            		row[j+1] = DEC.format(100.0 * jobIDToAggregateEval.get(jobIDandName[j][0]).get2dDoubleArrayMetadata(metadataKey)[c][c]);
+            		row[j+1] = formatScore(100.0 * jobIDToAggregateEval.get(jobIDandName[j][0]).get2dDoubleArrayMetadata(metadataKey)[c][c]);
             	}else{
             		//discounted types are 1D as there is no residual confusion after discounting
-            		row[j+1] = DEC.format(100.0 * jobIDToAggregateEval.get(jobIDandName[j][0]).getDoubleArrayMetadata(metadataKey)[c]);
+            		row[j+1] = formatScore(100.0 * jobIDToAggregateEval.get(jobIDandName[j][0]).getDoubleArrayMetadata(metadataKey)[c]);
             	}
             }
             rows.add(row);
@@ -644,7 +663,7 @@ public class WriteCsvResultFiles {
             row[0] = classNames.get(c).replaceAll(",", " ");
 
             for (int j = 0 ; j < numAlgos; j++){  
-            	row[j+1] = DEC.format(100.0 * ((Map<String,Double>)jobIDToAggregateEval.get(jobIDandName[j][0]).getMetadata(metadataKey)).get(classNames.get(c)));            	
+            	row[j+1] = formatScore(100.0 * ((Map<String,Double>)jobIDToAggregateEval.get(jobIDandName[j][0]).getMetadata(metadataKey)).get(classNames.get(c)));            	
             }
             rows.add(row);
         }
@@ -8,15 +8,19 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 
 import org.imirsel.nema.analytics.evaluation.EvaluatorImpl;
 import org.imirsel.nema.analytics.util.io.CopyFileFromClassPathToDisk;
+import org.imirsel.nema.analytics.util.process.MatlabEnginePool;
 import org.imirsel.nema.analytics.util.process.MatlabExecutorImpl;
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
@@ -26,8 +30,22 @@ import org.imirsel.nema.model.fileTypes.BeatTextFile;
 import org.imirsel.nema.model.fileTypes.StructureTextFile;
 import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
 
+/**
+ * Beat tracking evaluation, using a Java implementation of Davies' matlab 
+ * beat evaluation scripts. Tracks are evaluated in parallel. The original 
+ * scripts may still be run, either instead of or as a cross-check on the 
+ * Java implementation.
+ */
 public class BeatEvaluator extends EvaluatorImpl {
 	
+	/** Largest difference tolerated between the Java and matlab scores when cross-checking. */
+	private static final double CROSS_CHECK_TOLERANCE = 1e-6;
+	
+	private boolean useMatlab = false;
+	private MatlabEnginePool matlabEnginePool = null;
+	private boolean crossCheckWithMatlab = false;
+	private double[] tolerances = null;
+
 	/**
 	 * Constructor (no arg - task, dataset, output and working dirs, training
 	 * and test sets must be set manually).
@@ -53,24 +71,9 @@ public class BeatEvaluator extends EvaluatorImpl {
 			int numJobs = jobIDToFoldResults.size();
 
 			String jobId, jobName;
-			Map<NemaTrackList,List<NemaData>> sysResults;
 
 			//evaluate each fold for each system
-			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
-			for(Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();){
-				jobId = it.next();
-				getLogger().info("Evaluating experiment folds for jobID: " + jobId);
-				sysResults = jobIDToFoldResults.get(jobId);
-				Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
-				for (Iterator<NemaTrackList> trackIt = sysResults.keySet().iterator(); trackIt.hasNext();) {
-					//make sure we use the evaluators copy of the track list
-					NemaTrackList trackList = testSets.get(testSets.indexOf(trackIt.next()));
-					NemaData result = evaluateResultFold(jobId, trackList, sysResults.get(trackList));
-					foldEvals.put(trackList, result);
-				}
-
-				jobIdToFoldEvaluation.put(jobId, foldEvals);
-			}
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
 
 			/* Aggregated evaluation to produce overall results */
 			Map<String, NemaData> jobIdToOverallEvaluation = new HashMap<String, NemaData>(numJobs);
@@ -78,8 +81,7 @@ public class BeatEvaluator extends EvaluatorImpl {
 				jobId = it.next();
 				getLogger().info("Aggregating results for jobID: " + jobId);
 				Map<NemaTrackList,NemaData> foldEvals = jobIdToFoldEvaluation.get(jobId);
-				NemaData overall = averageFoldMetrics(jobId, foldEvals.values());
-				jobIdToOverallEvaluation.put(jobId, overall);
+				jobIdToOverallEvaluation.put(jobId, aggregateFoldEvaluations(jobId, foldEvals.values()));
 			}
 
 			/* Populate NemaEvaluationResultSet */
@@ -93,14 +95,169 @@ public class BeatEvaluator extends EvaluatorImpl {
 		return results;
 	}
 
+	@Override
+	protected NemaData aggregateFoldEvaluations(String jobId, Collection<NemaData> foldEvals) {
+		NemaData overall = averageFoldMetrics(jobId, foldEvals);
+		List<String> sweepMetrics = new ArrayList<String>();
+		sweepMetrics.add(NemaDataConstants.BEAT_TRACKING_FMEASURE_BY_TOLERANCE);
+		averageFoldArrayMetrics(overall, foldEvals, NemaDataConstants.BEAT_TRACKING_TOLERANCES, sweepMetrics);
+		return overall;
+	}
+
 	@Override
 	public NemaData evaluateResultFold(String jobID, NemaTrackList testSet,
 			List<NemaData> dataList) {
 		
-
-
 		int numExamples = checkFoldResultsAreComplete(jobID, testSet, dataList);
 		NemaData outObj = new NemaData(jobID);
+
+		double[][] trackResults;
+		if (useMatlab){
+			trackResults = evaluateFoldInMatlab(jobID, testSet, dataList);
+		}else{
+			List<TrackEvaluation> tasks = new ArrayList<TrackEvaluation>(dataList.size());
+			for(NemaData data:dataList){
+				tasks.add(new TrackEvaluation(trackIDToGT.get(data.getId()), data));
+			}
+			trackResults = invokeTrackTasks(tasks).toArray(new double[dataList.size()][]);
+			if (crossCheckWithMatlab){
+				crossCheck(jobID, dataList, trackResults, evaluateFoldInMatlab(jobID, testSet, dataList));
+			}
+		}
+		
+		// Initialize the per-track and aggregated/averaged results storage variables
+		double cemgilAcc = 0.0;
+		double fMeasure = 0.0;
+		double gotoAcc = 0.0;
+		double pScore = 0.0;
+		double cmlc = 0.0;
+		double cmlt = 0.0;
+		double amlc = 0.0;
+		double amlt = 0.0;
+		double D = 0.0;
+		
+		double cemgilAccAvg = 0.0;
+		double fMeasureAvg = 0.0;
+		double gotoAccAvg = 0.0;
+		double pScoreAvg = 0.0;
+		double cmlcAvg = 0.0;
+		double cmltAvg = 0.0;
+		double amlcAvg = 0.0;
+		double amltAvg = 0.0;
+		double DAvg = 0.0;
+		double DgAvg = 0.0;
+		double[] globalBinHistogram = null;
+		
+        for(int i=0;i<trackResults.length;i++){
+        	NemaData data = dataList.get(i);
+        	double[] trackResult = trackResults[i];
+			
+			fMeasure = trackResult[0];
+			cemgilAcc = trackResult[1];
+			gotoAcc = trackResult[2];
+			pScore = trackResult[3];
+			cmlc = trackResult[4];
+			cmlt = trackResult[5];
+			amlc = trackResult[6];
+			amlt = trackResult[7];
+			D = trackResult[8];
+			
+			double[] fileBinHistogram = new double[trackResult.length - 9];
+			for(int b=0; b < fileBinHistogram.length; b++) {
+				fileBinHistogram[b] = trackResult[b+9];
+			}
+			
+			fMeasureAvg += fMeasure;
+			cemgilAccAvg += cemgilAcc;
+			gotoAccAvg += gotoAcc;
+			pScoreAvg += pScore;
+			cmlcAvg += cmlc;
+			cmltAvg += cmlt;
+			amlcAvg += amlc;
+			amltAvg += amlt;
+			DAvg += D;
+
+			if(globalBinHistogram == null) {
+				globalBinHistogram = fileBinHistogram;
+			} else {
+				for(int b = 0; b<globalBinHistogram.length; b++) {
+					globalBinHistogram[b] = globalBinHistogram[b] + fileBinHistogram[b];
+				}
+			}
+			
+			/* 
+			 * Populate each track's NemaData object with the measures.  */
+			data.setMetadata(NemaDataConstants.BEAT_TRACKING_FMEASURE, fMeasure);
+			data.setMetadata(NemaDataConstants.BEAT_TRACKING_CEMGIL, cemgilAcc);
+			data.setMetadata(NemaDataConstants.BEAT_TRACKING_GOTO, gotoAcc);
+			data.setMetadata(NemaDataConstants.BEAT_TRACKING_MCKINNEY, pScore);
+			data.setMetadata(NemaDataConstants.BEAT_TRACKING_CMLC, cmlc);
+			data.setMetadata(NemaDataConstants.BEAT_TRACKING_CMLT, cmlt);
+			data.setMetadata(NemaDataConstants.BEAT_TRACKING_AMLC, amlc);
+			data.setMetadata(NemaDataConstants.BEAT_TRACKING_AMLT, amlt);
+			data.setMetadata(NemaDataConstants.BEAT_TRACKING_D, D);
+			
+
+		}
+		
+		// Calculate and populate average/summary result 
+		fMeasureAvg /= (double)numExamples;
+		cemgilAccAvg /= (double)numExamples;
+		gotoAccAvg /= (double)numExamples;
+		pScoreAvg /= (double)numExamples;
+		cmlcAvg /= (double)numExamples;
+		cmltAvg /= (double)numExamples;
+		amlcAvg /= (double)numExamples;
+		amltAvg /= (double)numExamples;
+		DAvg /= (double)numExamples;
+		DgAvg = computeInformationGain(globalBinHistogram); 
+		
+		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_FMEASURE, fMeasureAvg);
+		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_CEMGIL, cemgilAccAvg);
+		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_GOTO, gotoAccAvg);
+		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_MCKINNEY, pScoreAvg);
+		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_CMLC, cmlcAvg);
+		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_CMLT, cmltAvg);
+		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_AMLC, amlcAvg);
+		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_AMLT, amltAvg);
+		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_D, DAvg);
+		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_DG, DgAvg);
+
+		if (tolerances != null){
+			List<ToleranceSweep> sweeps = new ArrayList<ToleranceSweep>(dataList.size());
+			for(NemaData data:dataList){
+				sweeps.add(new ToleranceSweep(trackIDToGT.get(data.getId()), data, tolerances));
+			}
+			double[] sweepAvg = new double[tolerances.length];
+			for(double[] trackSweep:invokeTrackTasks(sweeps)){
+				for(int t=0;t<sweepAvg.length;t++){
+					sweepAvg[t] += trackSweep[t];
+				}
+			}
+			for(int t=0;t<sweepAvg.length;t++){
+				sweepAvg[t] /= (double)numExamples;
+			}
+			outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_TOLERANCES, tolerances.clone());
+			outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_FMEASURE_BY_TOLERANCE, sweepAvg);
+		}
+
+		return outObj;
+	}
+
+	/**
+	 * Evaluates the tracks of a fold using Davies' original matlab scripts, 
+	 * by writing the beats out to a temporary directory and running a 
+	 * generated m-file in matlab.
+	 * 
+	 * @param jobID the jobID being evaluated.
+	 * @param testSet the test set being evaluated.
+	 * @param dataList the results for each track.
+	 * @return the scores and histogram bin values for each track, in the same 
+	 * order as {@link BeatTrackingMetrics#evaluate(double[][], double[][])}.
+	 * @throws IllegalArgumentException Thrown if matlab fails or its results 
+	 * can't be read.
+	 */
+	private double[][] evaluateFoldInMatlab(String jobID, NemaTrackList testSet, List<NemaData> dataList) throws IllegalArgumentException{
 		NemaData gtData;
 
 		// Set up temporary directory for the evaluation to take place in
@@ -149,29 +306,6 @@ public class BeatEvaluator extends EvaluatorImpl {
 		String gtFileName;
 		String resultFileName;
 		
-		// Initialize the per-track and aggregated/averaged results storage variables
-		double cemgilAcc = 0.0;
-		double fMeasure = 0.0;
-		double gotoAcc = 0.0;
-		double pScore = 0.0;
-		double cmlc = 0.0;
-		double cmlt = 0.0;
-		double amlc = 0.0;
-		double amlt = 0.0;
-		double D = 0.0;
-		
-		double cemgilAccAvg = 0.0;
-		double fMeasureAvg = 0.0;
-		double gotoAccAvg = 0.0;
-		double pScoreAvg = 0.0;
-		double cmlcAvg = 0.0;
-		double cmltAvg = 0.0;
-		double amlcAvg = 0.0;
-		double amltAvg = 0.0;
-		double DAvg = 0.0;
-		double DgAvg = 0.0;
-		double[] globalBinHistogram = null;
-		
 		ArrayList<File> resultFiles = new ArrayList<File>();
 		String evalMFileContent = "echo on\n";
 		BeatTextFile beatFileWriter = new BeatTextFile();
@@ -200,7 +334,6 @@ public class BeatEvaluator extends EvaluatorImpl {
 			evalMFileContent += evalCommand + "('" + gtFile.getAbsolutePath() + "','" + algFile.getAbsolutePath() + "','" + resultFile.getAbsolutePath() + "');\n";		
 			//"echo 'evaluating track " + data.getId() + " for job " + jobID + "';\n" + 
 		}
-		evalMFileContent += "exit;\n";
 		byte[] jobIdBytes = {1};
 		try {
 			jobIdBytes = jobID.getBytes("UTF-8");
@@ -228,6 +361,7 @@ public class BeatEvaluator extends EvaluatorImpl {
 		
 		MatlabExecutorImpl matlabIntegrator = new MatlabExecutorImpl(evalTempDir,true,evalTempDir,evalTempDir,evalTempDir,"",evalFunction,null);
         matlabIntegrator.setMatlabBin(matlabPath);
+        matlabIntegrator.setEnginePool(matlabEnginePool);
         try {
 			matlabIntegrator.runCommand(null);
 		} catch (Exception e) {
@@ -235,8 +369,8 @@ public class BeatEvaluator extends EvaluatorImpl {
 			throw new IllegalArgumentException(e);
 		}
         
+        double[][] trackResults = new double[resultFiles.size()][];
         for(int i=0;i<resultFiles.size();i++){
-        	NemaData data = dataList.get(i);
         	File resultFile = resultFiles.get(i);
 	        String[][] beatResultsStrArray = null;
 	        
@@ -246,83 +380,161 @@ public class BeatEvaluator extends EvaluatorImpl {
 				getLogger().log(Level.SEVERE, "Failed to write beat files and evaluate them using MATLAB",e);
 				throw new IllegalArgumentException(e);
 			}
-			
-			fMeasure = Double.valueOf(beatResultsStrArray[0][0]);
-			cemgilAcc = Double.valueOf(beatResultsStrArray[0][1]);
-			gotoAcc = Double.valueOf(beatResultsStrArray[0][2]);
-			pScore = Double.valueOf(beatResultsStrArray[0][3]);
-			cmlc = Double.valueOf(beatResultsStrArray[0][4]);
-			cmlt = Double.valueOf(beatResultsStrArray[0][5]);
-			amlc = Double.valueOf(beatResultsStrArray[0][6]);
-			amlt = Double.valueOf(beatResultsStrArray[0][7]);
-			D = Double.valueOf(beatResultsStrArray[0][8]);
-			
-			double[] fileBinHistogram = new double[beatResultsStrArray[0].length - 9];
-			for(int b=0; b < fileBinHistogram.length; b++) {
-				fileBinHistogram[b] = Double.valueOf(beatResultsStrArray[0][b+9]);
+			trackResults[i] = new double[beatResultsStrArray[0].length];
+			for(int m=0;m<trackResults[i].length;m++){
+				trackResults[i][m] = Double.valueOf(beatResultsStrArray[0][m]);
 			}
-			
-			fMeasureAvg += fMeasure;
-			cemgilAccAvg += cemgilAcc;
-			gotoAccAvg += gotoAcc;
-			pScoreAvg += pScore;
-			cmlcAvg += cmlc;
-			cmltAvg += cmlt;
-			amlcAvg += amlc;
-			amltAvg += amlt;
-			DAvg += D;
+        }
+		
+		// remove temporary directory and files
+		recursiveDeleteTempDir(evalTempDir);
 
-			if(globalBinHistogram == null) {
-				globalBinHistogram = fileBinHistogram;
-			} else {
-				for(int b = 0; b<globalBinHistogram.length; b++) {
-					globalBinHistogram[b] = globalBinHistogram[b] + fileBinHistogram[b];
+		return trackResults;
+	}
+
+	/**
+	 * Logs a warning for every track score where the Java implementation and 
+	 * matlab disagree. Matlab reads the beat times from files written to 4 
+	 * decimal places, so small differences are to be expected.
+	 */
+	private void crossCheck(String jobID, List<NemaData> dataList, double[][] javaResults, double[][] matlabResults){
+		for(int i=0;i<javaResults.length;i++){
+			for(int m=0;m<BeatTrackingMetrics.NUM_METRICS;m++){
+				double java = javaResults[i][m];
+				double matlab = matlabResults[i][m];
+				boolean bothNaN = Double.isNaN(java) && Double.isNaN(matlab);
+				if(!bothNaN && !(Math.abs(java - matlab) <= CROSS_CHECK_TOLERANCE)){
+					getLogger().warning("Beat metric " + trackEvalMetrics.get(m) + " for job ID '" + jobID + "', track '" 
+							+ dataList.get(i).getId() + "' differs between Java (" + java + ") and MATLAB (" + matlab + ")");
 				}
 			}
-			
-			/* 
-			 * Populate each track's NemaData object with the measures.  */
-			data.setMetadata(NemaDataConstants.BEAT_TRACKING_FMEASURE, fMeasure);
-			data.setMetadata(NemaDataConstants.BEAT_TRACKING_CEMGIL, cemgilAcc);
-			data.setMetadata(NemaDataConstants.BEAT_TRACKING_GOTO, gotoAcc);
-			data.setMetadata(NemaDataConstants.BEAT_TRACKING_MCKINNEY, pScore);
-			data.setMetadata(NemaDataConstants.BEAT_TRACKING_CMLC, cmlc);
-			data.setMetadata(NemaDataConstants.BEAT_TRACKING_CMLT, cmlt);
-			data.setMetadata(NemaDataConstants.BEAT_TRACKING_AMLC, amlc);
-			data.setMetadata(NemaDataConstants.BEAT_TRACKING_AMLT, amlt);
-			data.setMetadata(NemaDataConstants.BEAT_TRACKING_D, D);
-			
+		}
+	}
 
+	/**
+	 * Evaluation of a single track, as run by 
+	 * {@link EvaluatorImpl#invokeTrackTasks(List)}.
+	 */
+	private static class TrackEvaluation implements Callable<double[]>{
+		private final NemaData gtData;
+		private final NemaData data;
+		
+		TrackEvaluation(NemaData gtData, NemaData data){
+			this.gtData = gtData;
+			this.data = data;
 		}
 		
-		// Calculate and populate average/summary result 
-		fMeasureAvg /= (double)numExamples;
-		cemgilAccAvg /= (double)numExamples;
-		gotoAccAvg /= (double)numExamples;
-		pScoreAvg /= (double)numExamples;
-		cmlcAvg /= (double)numExamples;
-		cmltAvg /= (double)numExamples;
-		amlcAvg /= (double)numExamples;
-		amltAvg /= (double)numExamples;
-		DAvg /= (double)numExamples;
-		DgAvg = computeInformationGain(globalBinHistogram); 
+		public double[] call() {
+			return BeatTrackingMetrics.evaluate(
+					gtData.get2dDoubleArrayMetadata(NemaDataConstants.BEAT_TRACKING_DATA), 
+					data.get2dDoubleArrayMetadata(NemaDataConstants.BEAT_TRACKING_DATA));
+		}
+	}
+
+	/**
+	 * F-measure tolerance sweep over a single track, as run by 
+	 * {@link EvaluatorImpl#invokeTrackTasks(List)}.
+	 */
+	private static class ToleranceSweep implements Callable<double[]>{
+		private final NemaData gtData;
+		private final NemaData data;
+		private final double[] tolerances;
 		
-		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_FMEASURE, fMeasureAvg);
-		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_CEMGIL, cemgilAccAvg);
-		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_GOTO, gotoAccAvg);
-		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_MCKINNEY, pScoreAvg);
-		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_CMLC, cmlcAvg);
-		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_CMLT, cmltAvg);
-		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_AMLC, amlcAvg);
-		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_AMLT, amltAvg);
-		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_D, DAvg);
-		outObj.setMetadata(NemaDataConstants.BEAT_TRACKING_DG, DgAvg);
+		ToleranceSweep(NemaData gtData, NemaData data, double[] tolerances){
+			this.gtData = gtData;
+			this.data = data;
+			this.tolerances = tolerances;
+		}
 		
-		// remove temporary directory and files
-		recursiveDeleteTempDir(evalTempDir);
+		public double[] call() {
+			return BeatTrackingMetrics.fMeasureSweep(
+					gtData.get2dDoubleArrayMetadata(NemaDataConstants.BEAT_TRACKING_DATA), 
+					data.get2dDoubleArrayMetadata(NemaDataConstants.BEAT_TRACKING_DATA), 
+					tolerances);
+		}
+	}
 
+	/**
+	 * Sets the F-measure tolerance windows (in seconds) to sweep, in addition 
+	 * to the standard 70ms window. When set, the F-measure is also computed 
+	 * in Java at each tolerance and stored as an array in the fold and 
+	 * overall evaluations, indexed by the array held under 
+	 * {@link NemaDataConstants#BEAT_TRACKING_TOLERANCES}.
+	 * 
+	 * @param tolerances the tolerances to sweep or null to disable the sweep.
+	 * @since 0.4.1
+	 */
+	public void setTolerances(double[] tolerances) {
+		this.tolerances = tolerances;
+	}
 
-		return outObj;
+	/**
+	 * @return the tolerance windows swept or null if the sweep is disabled.
+	 * @since 0.4.1
+	 */
+	public double[] getTolerances() {
+		return tolerances;
+	}
+
+	/**
+	 * Sets a flag determining whether the metrics are computed by Davies' 
+	 * original matlab scripts rather than the Java implementation (the 
+	 * default).
+	 * 
+	 * @param useMatlab the flag to set.
+	 */
+	public void setUseMatlab(boolean useMatlab) {
+		this.useMatlab = useMatlab;
+	}
+
+	/**
+	 * @return a flag determining whether the metrics are computed in matlab.
+	 */
+	public boolean getUseMatlab() {
+		return useMatlab;
+	}
+
+	/**
+	 * Sets a pool of warm MATLAB engines to compute the matlab metrics in, 
+	 * rather than starting MATLAB for each evaluation.
+	 * 
+	 * @param pool the pool or null to start MATLAB for each evaluation.
+	 * @since 0.4.1
+	 */
+	public void setMatlabEnginePool(MatlabEnginePool pool) {
+		this.matlabEnginePool = pool;
+	}
+
+	/**
+	 * @return the pool of MATLAB engines used or null.
+	 * @since 0.4.1
+	 */
+	public MatlabEnginePool getMatlabEnginePool() {
+		return matlabEnginePool;
+	}
+
+	@Override
+	protected String getCacheParameters() {
+		return "tolerances=" + Arrays.toString(tolerances) + ",useMatlab=" + useMatlab;
+	}
+
+	/**
+	 * Sets a flag determining whether the metrics computed in Java are also 
+	 * computed in matlab and any differences logged. The Java results are 
+	 * still the ones returned.
+	 * 
+	 * @param crossCheckWithMatlab the flag to set.
+	 */
+	public void setCrossCheckWithMatlab(boolean crossCheckWithMatlab) {
+		this.crossCheckWithMatlab = crossCheckWithMatlab;
+	}
+
+	/**
+	 * @return a flag determining whether the Java results are cross-checked 
+	 * against matlab.
+	 */
+	public boolean getCrossCheckWithMatlab() {
+		return crossCheckWithMatlab;
 	}
 
 	@Override
@@ -8,8 +8,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 
+import org.imirsel.nema.analytics.evaluation.RenderPipeline;
 import org.imirsel.nema.analytics.evaluation.ResultRendererImpl;
 import org.imirsel.nema.analytics.evaluation.WriteCsvResultFiles;
 import org.imirsel.nema.analytics.evaluation.resultpages.FileListItem;
@@ -50,36 +52,48 @@ public class BeatResultRenderer extends ResultRendererImpl {
 	}
 
 	@Override
-	public void renderResults(NemaEvaluationResultSet results)
+	public void renderResults(final NemaEvaluationResultSet results)
 			throws IOException {
-		
 		getLogger().info("Creating system result directories...");
 		Map<String, File> jobIDToResultDir = makeSystemResultDirs(results);
 
+		RenderPipeline pipeline = createRenderPipeline(results);
+
 		/* Write out leaderboard CSV file */
-		getLogger().info("Writing out leaderboard CSV...");
-		File leaderboardCSV = this.writeLeaderBoardCSVFile(NemaDataConstants.BEAT_TRACKING_FMEASURE, results, false);
+		RenderPipeline.Stage<File> leaderboardCSV = pipeline.add("leaderboard CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeLeaderBoardCSVFile(NemaDataConstants.BEAT_TRACKING_FMEASURE, results, false);
+			}
+		});
 		
 		/* Write out summary CSV */
-		getLogger().info("Writing out CSV result files over whole task...");
-		File summaryCsv = writeOverallResultsCSV(results);
+		final RenderPipeline.Stage<File> summaryCsv = pipeline.add("summary CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeOverallResultsCSV(results);
+			}
+		});
 		
 		/* Write out per track CSV for each system */
-		getLogger().info("Writing out per-system result files...");
-		Map<String, File> jobIDToPerTrackCSV = writePerTrackSystemResultCSVs(
-				results, jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerTrackCSV = addPerTrackCSVStages(
+				pipeline, results, jobIDToResultDir);
 
 		/* Create tar-balls of individual result directories */
-		getLogger().info("Preparing evaluation data tarballs...");
-		Map<String, File> jobIDToTgz = compressResultDirectories(jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToTgz = addCompressionStages(pipeline, jobIDToResultDir);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerTrackCSV);
 
 		/* Write result HTML pages */
-		getLogger().info("Creating result HTML files...");
-		writeResultHtmlPages(results, summaryCsv, jobIDToPerTrackCSV,
-				jobIDToTgz, outputDir);
+		pipeline.add("HTML pages", new Callable<Void>() {
+			public Void call() {
+				writeResultHtmlPages(results, summaryCsv.get(), RenderPipeline.values(jobIDToPerTrackCSV),
+						RenderPipeline.values(jobIDToTgz), outputDir);
+				return null;
+			}
+		}).after(leaderboardCSV).after(summaryCsv).after(jobIDToPerTrackCSV.values()).after(jobIDToTgz.values());
+		
+		getLogger().info("Rendering results...");
+		runRenderPipeline(pipeline);
 		
 		getLogger().info("Done.");
-
 	}
 	
 	/**
@@ -186,6 +200,11 @@ public class BeatResultRenderer extends ResultRendererImpl {
 					results.getJobIdToOverallEvaluation(), results.getJobIdToJobName(), results.getOverallEvalMetricsKeys());
 			items.add(new TableItem("summary_results", "Summary Results",
 					summaryTable.getColHeaders(), summaryTable.getRows()));
+			PageItem sweepPlot = plotToleranceSweep(NemaDataConstants.BEAT_TRACKING_TOLERANCES, NemaDataConstants.BEAT_TRACKING_FMEASURE_BY_TOLERANCE, 
+					results, "tolerance_sweep", NemaDataConstants.BEAT_TRACKING_FMEASURE_BY_TOLERANCE, "Tolerance window (secs)");
+			if (sweepPlot != null){
+				items.add(sweepPlot);
+			}
 			aPage = new Page("summary", "Summary", items, false);
 			resultPages.add(aPage);
 		}
@@ -0,0 +1,749 @@
+package org.imirsel.nema.analytics.evaluation.beat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pure-Java implementation of Matthew Davies' beat tracking evaluation
+ * metrics, as implemented by the matlab scripts in the <code>resources</code>
+ * package (<code>be_mirexWrapper.m</code> and the functions it calls). The
+ * parameters are those set in <code>be_params.m</code>.
+ *
+ * Where the scripts would fail on degenerate input (e.g. an annotation
+ * column with a single beat) the affected metric is scored as zero.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class BeatTrackingMetrics {
+
+	/** Number of per-track scores returned ahead of the histogram by {@link #evaluate(double[][], double[][])}. */
+	public static final int NUM_METRICS = 9;
+
+	/** Number of bins in the beat error histogram. */
+	public static final int NUM_BINS = 40;
+
+	/** Beats and annotations before this time (in seconds) are ignored. */
+	public static final double MIN_BEAT_TIME = 5.0;
+
+	/** Beats or annotations after this time suggest the data isn't in seconds. */
+	private static final double MAX_BEAT_TIME = 1000.0;
+
+	private static final double F_MEASURE_THRESH = 0.07;
+	private static final double CEMGIL_SIGMA = 0.04;
+	private static final double P_SCORE_THRESH = 0.2;
+	private static final int P_SCORE_FS = 100;
+	private static final double GOTO_THRESH = 0.35;
+	private static final double GOTO_MU = 0.2;
+	private static final double GOTO_SIGMA = 0.2;
+	private static final double CONTINUITY_PHASE_THRESH = 0.175;
+	private static final double CONTINUITY_PERIOD_THRESH = 0.175;
+
+	/** Matlab's <code>eps</code>. */
+	private static final double EPS = Math.ulp(1.0);
+
+	/**
+	 * Entropies closer than this are treated as equal when choosing between
+	 * the forward and backward histograms, so that histograms that are
+	 * permutations of each other don't pick a side on rounding noise.
+	 */
+	private static final double ENTROPY_TIE_TOLERANCE = 1e-12;
+
+	/** Upper edges of the beat error histogram bins, as used by matlab's <code>hist</code>. */
+	private static final double[] HISTOGRAM_EDGES = histogramEdges();
+
+	private BeatTrackingMetrics(){
+	}
+
+	/**
+	 * Evaluates a beat sequence against (possibly multiple) ground-truth
+	 * annotations, returning the values written out by
+	 * <code>be_mirexWrapper.m</code>: the F-measure, Cemgil accuracy, Goto
+	 * accuracy, McKinney P-score, CMLc, CMLt, AMLc, AMLt and information gain
+	 * D, each averaged over the annotations, followed by the beat error
+	 * histogram summed over the annotations.
+	 *
+	 * @param gt the ground-truth beat times, one column per annotator. NaN
+	 * values pad out shorter columns.
+	 * @param result the beat times returned by the system, in the same
+	 * layout (normally a single column).
+	 * @return an array of {@link #NUM_METRICS} scores followed by
+	 * {@link #NUM_BINS} histogram bin values.
+	 * @throws IllegalArgumentException Thrown if there is no ground-truth or
+	 * the times don't appear to be in seconds.
+	 */
+	public static double[] evaluate(double[][] gt, double[][] result) throws IllegalArgumentException{
+		int numAnnots = 0;
+		for (int i = 0; i < gt.length; i++) {
+			numAnnots = Math.max(numAnnots, gt[i].length);
+		}
+		if (numAnnots == 0){
+			throw new IllegalArgumentException("No ground-truth beat annotations to evaluate against");
+		}
+		double[] beats = trim(column(result, -1));
+
+		double[] out = new double[NUM_METRICS + NUM_BINS];
+		for (int a = 0; a < numAnnots; a++) {
+			double[] annotatorScores = evaluate(trim(column(gt, a)), beats);
+			for (int m = 0; m < NUM_METRICS; m++) {
+				out[m] += (1.0 / numAnnots) * annotatorScores[m];
+			}
+			for (int m = NUM_METRICS; m < out.length; m++) {
+				out[m] += annotatorScores[m];
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Computes the F-measure at each of a set of tolerance windows, averaged
+	 * over the annotations in the same way as {@link #evaluate(double[][], double[][])}.
+	 * Each annotation and the beats are trimmed and sorted once and then
+	 * matched at every tolerance.
+	 *
+	 * @param gt the ground-truth beat times, one column per annotator. NaN
+	 * values pad out shorter columns.
+	 * @param result the beat times returned by the system.
+	 * @param tolerances the half-widths of the windows (in seconds).
+	 * @return the F-measure (as a percentage) at each tolerance.
+	 * @throws IllegalArgumentException Thrown if there is no ground-truth.
+	 * @since 0.4.1
+	 */
+	public static double[] fMeasureSweep(double[][] gt, double[][] result, double[] tolerances) throws IllegalArgumentException{
+		int numAnnots = 0;
+		for (int i = 0; i < gt.length; i++) {
+			numAnnots = Math.max(numAnnots, gt[i].length);
+		}
+		if (numAnnots == 0){
+			throw new IllegalArgumentException("No ground-truth beat annotations to evaluate against");
+		}
+		double[] sortedBeats = trim(column(result, -1));
+		Arrays.sort(sortedBeats);
+
+		double[] out = new double[tolerances.length];
+		for (int a = 0; a < numAnnots; a++) {
+			double[] anns = trim(column(gt, a));
+			if (anns.length == 0 || sortedBeats.length == 0){
+				continue;
+			}
+			for (int t = 0; t < tolerances.length; t++) {
+				out[t] += (1.0 / numAnnots) * fMeasure(anns, sortedBeats, tolerances[t]);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Evaluates a beat sequence against a single annotation
+	 * (<code>be_evalWrapper.m</code>). Both sequences must already have had
+	 * the beats before {@link #MIN_BEAT_TIME} removed.
+	 *
+	 * @param anns the annotated beat times.
+	 * @param beats the beat times returned by the system.
+	 * @return an array of {@link #NUM_METRICS} scores followed by
+	 * {@link #NUM_BINS} histogram bin values.
+	 * @throws IllegalArgumentException Thrown if the times don't appear to be
+	 * in seconds.
+	 */
+	static double[] evaluate(double[] anns, double[] beats) throws IllegalArgumentException{
+		double[] out = new double[NUM_METRICS + NUM_BINS];
+		if (beats.length == 0 || anns.length == 0){
+			//zero scores and a uniform histogram
+			Arrays.fill(out, NUM_METRICS, out.length, anns.length / (double)NUM_BINS);
+			return out;
+		}
+		if (max(beats) > MAX_BEAT_TIME || max(anns) > MAX_BEAT_TIME){
+			throw new IllegalArgumentException("Either beats or annotations are not in seconds, please rectify.");
+		}
+
+		double[] sortedAnns = anns.clone();
+		Arrays.sort(sortedAnns);
+		double[] sortedBeats = beats.clone();
+		Arrays.sort(sortedBeats);
+
+		out[0] = fMeasure(anns, sortedBeats);
+		out[1] = cemgilAcc(anns, sortedBeats);
+		out[2] = gotoAcc(anns, sortedBeats);
+		out[3] = pScore(anns, beats);
+		double[] continuity = continuityBased(anns, beats);
+		System.arraycopy(continuity, 0, out, 4, continuity.length);
+		double[] infoGain = informationGain(sortedAnns, sortedBeats);
+		System.arraycopy(infoGain, 0, out, 8, infoGain.length);
+		return out;
+	}
+
+	/**
+	 * F-measure of beats within a fixed tolerance window of each annotation
+	 * (<code>be_fMeasure.m</code>). Beats are claimed by annotations in order,
+	 * a second beat in a window counts as a false positive.
+	 *
+	 * @param anns the annotated beat times.
+	 * @param sortedBeats the beat times, sorted.
+	 * @return the F-measure as a percentage.
+	 */
+	static double fMeasure(double[] anns, double[] sortedBeats){
+		return fMeasure(anns, sortedBeats, F_MEASURE_THRESH);
+	}
+
+	/**
+	 * F-measure of beats within a tolerance window of each annotation.
+	 *
+	 * @param anns the annotated beat times.
+	 * @param sortedBeats the beat times, sorted.
+	 * @param thresh the half-width of the window (in seconds).
+	 * @return the F-measure as a percentage.
+	 */
+	static double fMeasure(double[] anns, double[] sortedBeats, double thresh){
+		boolean[] used = new boolean[sortedBeats.length];
+		int numUsed = 0;
+		int fp = 0;
+		int fn = 0;
+		int hits = 0;
+		for (int i = 0; i < anns.length; i++) {
+			double windowMin = anns[i] - thresh;
+			double windowMax = anns[i] + thresh;
+			int inWindow = 0;
+			for (int j = lowerBound(sortedBeats, windowMin); j < sortedBeats.length && sortedBeats[j] <= windowMax; j++) {
+				if (!used[j]){
+					used[j] = true;
+					inWindow++;
+				}
+			}
+			numUsed += inWindow;
+			if (inWindow == 0){
+				fn++;
+			}else if (inWindow > 1){
+				hits++;
+				fp++;
+			}else{
+				hits++;
+			}
+		}
+		fp += sortedBeats.length - numUsed;
+
+		double p = (hits + fp) > 0 ? 100.0 * ((double)hits / (hits + fp)) : 0.0;
+		double r = (hits + fn) > 0 ? 100.0 * ((double)hits / (hits + fn)) : 0.0;
+		return (p + r) > 0 ? 2 * p * r / (p + r) : 0.0;
+	}
+
+	/**
+	 * Cemgil et al's accuracy, a Gaussian error function of the distance
+	 * from each annotation to its nearest beat (<code>be_cemgilAcc.m</code>).
+	 *
+	 * @param anns the annotated beat times.
+	 * @param sortedBeats the beat times, sorted.
+	 * @return the accuracy as a percentage.
+	 */
+	static double cemgilAcc(double[] anns, double[] sortedBeats){
+		double a = 0.0;
+		for (int i = 0; i < anns.length; i++) {
+			double beatDiff = Math.abs(anns[i] - sortedBeats[nearest(sortedBeats, anns[i], true)]);
+			a += Math.exp(-(beatDiff * beatDiff) / (2 * (CEMGIL_SIGMA * CEMGIL_SIGMA)));
+		}
+		a /= 0.5 * (sortedBeats.length + anns.length);
+		return a * 100;
+	}
+
+	/**
+	 * Goto and Muraoka's binary accuracy, requiring a continuously tracked
+	 * section with a small relative beat error (<code>be_gotoAcc.m</code>).
+	 *
+	 * @param anns the annotated beat times.
+	 * @param sortedBeats the beat times, sorted.
+	 * @return 100 if the beats are correctly tracked, 0 otherwise.
+	 */
+	static double gotoAcc(double[] anns, double[] sortedBeats){
+		int n = anns.length;
+		double[] beatError = new double[n];
+		Arrays.fill(beatError, 1.0);
+		for (int k = 1; k < n - 1; k++) {
+			double preInterval = 0.5 * (anns[k] - anns[k - 1]);
+			double windowMin = anns[k] - preInterval;
+			double postInterval = 0.5 * (anns[k + 1] - anns[k]);
+			double windowMax = anns[k] + postInterval;
+
+			//exactly one beat in [windowMin, windowMax) pairs it, otherwise the error stays at 1
+			int first = lowerBound(sortedBeats, windowMin);
+			int end = lowerBound(sortedBeats, windowMax);
+			if (end - first == 1){
+				double newError = sortedBeats[first] - anns[k];
+				if (newError < 0){
+					beatError[k] = newError / preInterval;
+				}else{
+					beatError[k] = newError / postInterval;
+				}
+			}
+		}
+
+		List<Integer> bad = new ArrayList<Integer>();
+		for (int k = 0; k < n; k++) {
+			if (Math.abs(beatError[k]) > GOTO_THRESH){
+				bad.add(k);
+			}
+		}
+		double[] track = null;
+		if (bad.size() < 3){
+			//only the first and last, so the whole track
+			track = Arrays.copyOfRange(beatError, bad.get(0) + 1, Math.max(bad.get(0) + 1, bad.get(bad.size() - 1)));
+		}else{
+			int ind = 0;
+			int trackLen = 0;
+			for (int i = 0; i < bad.size() - 1; i++) {
+				int len = bad.get(i + 1) - bad.get(i);
+				if (len > trackLen){
+					trackLen = len;
+					ind = i;
+				}
+			}
+			//more than 25% correct tracking somewhere
+			if ((trackLen - 1) > 0.25 * (n - 2)){
+				track = Arrays.copyOfRange(beatError, bad.get(ind), bad.get(ind + 1) + 1);
+			}
+		}
+
+		if (track != null && track.length > 0){
+			double meanAbs = 0.0;
+			double mean = 0.0;
+			for (int i = 0; i < track.length; i++) {
+				meanAbs += Math.abs(track[i]);
+				mean += track[i];
+			}
+			meanAbs /= track.length;
+			mean /= track.length;
+			double var = 0.0;
+			for (int i = 0; i < track.length; i++) {
+				var += (track[i] - mean) * (track[i] - mean);
+			}
+			double std = track.length > 1 ? Math.sqrt(var / (track.length - 1)) : 0.0;
+			if (meanAbs < GOTO_MU && std < GOTO_SIGMA){
+				return 100.0;
+			}
+		}
+		return 0.0;
+	}
+
+	/**
+	 * McKinney's P-score, the time-limited cross-correlation of beat and
+	 * annotation impulse trains sampled at 100Hz (<code>be_pScore.m</code>).
+	 * The correlation is counted directly from the impulse positions rather
+	 * than computing <code>xcorr</code> over the trains.
+	 *
+	 * @param anns the annotated beat times.
+	 * @param beats the beat times.
+	 * @return the P-score as a percentage.
+	 */
+	static double pScore(double[] anns, double[] beats){
+		int[] annImpulses = impulses(anns);
+		int[] beatImpulses = impulses(beats);
+
+		int w = 0;
+		if (annImpulses.length > 1){
+			double[] intervals = new double[annImpulses.length - 1];
+			for (int i = 0; i < intervals.length; i++) {
+				intervals[i] = annImpulses[i + 1] - annImpulses[i];
+			}
+			w = (int)Math.round(P_SCORE_THRESH * median(intervals));
+		}
+
+		//sum of xcorr over lags -w..w is the number of impulse pairs at most w samples apart
+		long matches = 0;
+		for (int i = 0; i < annImpulses.length; i++) {
+			matches += lowerBound(beatImpulses, annImpulses[i] + w + 1) - lowerBound(beatImpulses, annImpulses[i] - w);
+		}
+		return 100.0 * matches / Math.max(beatImpulses.length, annImpulses.length);
+	}
+
+	/**
+	 * Continuity based accuracies, at the annotated metrical level and
+	 * allowing double/half tempo and off-beat tracking
+	 * (<code>be_continuityBased.m</code>).
+	 *
+	 * @param anns the annotated beat times.
+	 * @param beats the beat times.
+	 * @return an array holding CMLc, CMLt, AMLc and AMLt as percentages.
+	 */
+	static double[] continuityBased(double[] anns, double[] beats){
+		int n = anns.length;
+		double[] doubleAnns = new double[2 * n - 1];
+		for (int i = 0; i < n; i++) {
+			doubleAnns[2 * i] = anns[i];
+			if (i < n - 1){
+				doubleAnns[2 * i + 1] = anns[i] + 0.5 * (anns[i + 1] - anns[i]);
+			}
+		}
+		double[][] testAnns = new double[5][];
+		testAnns[0] = anns;
+		testAnns[1] = every(doubleAnns, 1);
+		testAnns[2] = doubleAnns;
+		testAnns[3] = every(anns, 0);
+		testAnns[4] = every(anns, 1);
+
+		double[] out = new double[4];
+		for (int j = 0; j < testAnns.length; j++) {
+			double[] acc = continuityEval(testAnns[j], beats);
+			if (j == 0){
+				out[0] = acc[1];
+				out[1] = acc[0];
+			}
+			out[2] = Math.max(out[2], acc[1]);
+			out[3] = Math.max(out[3], acc[0]);
+		}
+		return out;
+	}
+
+	/**
+	 * @return the total and longest continuous proportion of beats whose
+	 * phase and period match the nearest unclaimed annotation.
+	 */
+	private static double[] continuityEval(double[] anns, double[] beats){
+		if (anns.length == 0){
+			return new double[2];
+		}
+		boolean sorted = isSorted(anns);
+		boolean[] checkAnns = new boolean[anns.length];
+		int total = 0;
+		int run = 0;
+		int longestRun = 0;
+		for (int i = 0; i < beats.length; i++) {
+			int b = nearest(anns, beats[i], sorted);
+			double a = Math.abs(beats[i] - anns[b]);
+			boolean cond = false;
+			if (!checkAnns[b]){
+				if (i == 0 || b == 0){
+					//first beat or annotation, look forward on both
+					if (b + 1 < anns.length && i + 1 < beats.length){
+						double annInterval = anns[b + 1] - anns[b];
+						cond = Math.abs(a / annInterval) < CONTINUITY_PHASE_THRESH
+								&& Math.abs(1 - ((beats[i + 1] - beats[i]) / annInterval)) < CONTINUITY_PERIOD_THRESH;
+					}
+				}else{
+					double annInterval = anns[b] - anns[b - 1];
+					cond = Math.abs(a / annInterval) < CONTINUITY_PHASE_THRESH
+							&& Math.abs(1 - ((beats[i] - beats[i - 1]) / annInterval)) < CONTINUITY_PERIOD_THRESH;
+				}
+			}
+			if (cond){
+				checkAnns[b] = true;
+				total++;
+				run++;
+				longestRun = Math.max(longestRun, run);
+			}else{
+				run = 0;
+			}
+		}
+		double len = Math.max(anns.length, beats.length);
+		return new double[]{100.0 * total / len, 100.0 * longestRun / len};
+	}
+
+	/**
+	 * Information gain of the beat error histogram, taking whichever of the
+	 * forward (beats against annotations) and backward errors has the higher
+	 * entropy (<code>be_informationGain.m</code>). Ties go to the backward
+	 * histogram.
+	 *
+	 * @param sortedAnns the annotated beat times, sorted.
+	 * @param sortedBeats the beat times, sorted.
+	 * @return an array holding the information gain D followed by the
+	 * {@link #NUM_BINS} bin values of the chosen histogram.
+	 */
+	static double[] informationGain(double[] sortedAnns, double[] sortedBeats){
+		double[] fwdBinVals = errorHistogram(beatErrors(sortedAnns, sortedBeats));
+		double fwdEntropy = entropy(fwdBinVals);
+		double[] bwdBinVals = errorHistogram(beatErrors(sortedBeats, sortedAnns));
+		double bwdEntropy = entropy(bwdBinVals);
+
+		double[] out = new double[NUM_BINS + 1];
+		double maxEntropy;
+		if (fwdEntropy - bwdEntropy > ENTROPY_TIE_TOLERANCE){
+			maxEntropy = fwdEntropy;
+			System.arraycopy(fwdBinVals, 0, out, 1, NUM_BINS);
+		}else{
+			maxEntropy = bwdEntropy;
+			System.arraycopy(bwdBinVals, 0, out, 1, NUM_BINS);
+		}
+		out[0] = log2(NUM_BINS) - maxEntropy;
+		return out;
+	}
+
+	/**
+	 * Error of each beat relative to the inter-annotation interval around its
+	 * nearest annotation, rounded to 4 decimal places
+	 * (<code>FindBeatError_nor</code>). Beats before the first or after the
+	 * last annotation are given zero error.
+	 */
+	private static double[] beatErrors(double[] sortedAnns, double[] sortedBeats){
+		double[] beatError = new double[sortedBeats.length];
+		int last = sortedAnns.length - 1;
+		for (int i = 0; i < sortedBeats.length; i++) {
+			int ie = nearest(sortedAnns, sortedBeats[i], true);
+			double eAbsolute = sortedBeats[i] - sortedAnns[ie];
+			double interval;
+			if (ie == 0){
+				if (eAbsolute < 0 || last == 0){
+					continue;
+				}
+				interval = 0.5 * (sortedAnns[1] - sortedAnns[0]);
+			}else if (ie == last){
+				if (eAbsolute > 0){
+					continue;
+				}
+				interval = 0.5 * (sortedAnns[ie] - sortedAnns[ie - 1]);
+			}else if (eAbsolute >= 0){
+				interval = 0.5 * (sortedAnns[ie + 1] - sortedAnns[ie]);
+			}else{
+				interval = 0.5 * (sortedAnns[ie] - sortedAnns[ie - 1]);
+			}
+			beatError[i] = round(10000 * (0.5 * eAbsolute / interval)) / 10000;
+		}
+		return beatError;
+	}
+
+	/**
+	 * Histogram of beat errors over {@link #NUM_BINS} bins, wrapping the
+	 * +/-0.5 bins together and spreading errors outside that range uniformly
+	 * (<code>FindEntropy</code>).
+	 */
+	private static double[] errorHistogram(double[] beatError){
+		double[] binVals = new double[NUM_BINS];
+		int numOutside = 0;
+		for (int i = 0; i < beatError.length; i++) {
+			double e = beatError[i];
+			if (e < -0.50001 || e > 0.50001){
+				numOutside++;
+			}
+			if (Double.isNaN(e) || e < -0.5 || e > 0.5){
+				continue;
+			}
+			//matlab's hist puts values on an edge in the lower bin, the last bin wraps to the first
+			int bin = upperBound(HISTOGRAM_EDGES, e);
+			binVals[bin == NUM_BINS ? 0 : bin]++;
+		}
+		for (int b = 0; b < NUM_BINS; b++) {
+			binVals[b] += numOutside / (double)NUM_BINS;
+		}
+		return binVals;
+	}
+
+	private static double entropy(double[] rawBinVals){
+		double sum = 0.0;
+		for (int b = 0; b < rawBinVals.length; b++) {
+			sum += rawBinVals[b] + EPS;
+		}
+		double entropy = 0.0;
+		for (int b = 0; b < rawBinVals.length; b++) {
+			double p = (rawBinVals[b] + EPS) / sum;
+			if (p != 0.0){
+				entropy -= p * log2(p);
+			}
+		}
+		return entropy;
+	}
+
+	/**
+	 * Upper edges of the bins matlab's <code>hist</code> uses for the
+	 * <code>NUM_BINS + 1</code> centres from -0.5 to 0.5, nudged up by
+	 * <code>eps</code> as <code>hist</code> does.
+	 */
+	private static double[] histogramEdges(){
+		double step = 1.0 / (NUM_BINS - 1);
+		double[] centres = new double[NUM_BINS + 1];
+		centres[0] = -0.5;
+		for (int i = 1; i < NUM_BINS; i++) {
+			centres[i] = (-0.5 + 0.5 * step) + (i - 1) * step;
+		}
+		centres[NUM_BINS] = 0.5;
+		double[] edges = new double[NUM_BINS];
+		for (int i = 0; i < NUM_BINS; i++) {
+			edges[i] = centres[i] + (centres[i + 1] - centres[i]) / 2;
+			edges[i] += Math.ulp(edges[i]);
+		}
+		return edges;
+	}
+
+	/**
+	 * Extracts a column of a beat data array, or all columns one after
+	 * another if <code>col</code> is negative, dropping NaN padding.
+	 */
+	private static double[] column(double[][] data, int col){
+		int numCols = 0;
+		for (int i = 0; i < data.length; i++) {
+			numCols = Math.max(numCols, data[i].length);
+		}
+		int from = col < 0 ? 0 : col;
+		int to = col < 0 ? numCols : col + 1;
+		double[] out = new double[data.length * (to - from)];
+		int n = 0;
+		for (int c = from; c < to; c++) {
+			for (int i = 0; i < data.length; i++) {
+				if (c < data[i].length && !Double.isNaN(data[i][c])){
+					out[n++] = data[i][c];
+				}
+			}
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * Removes the times before {@link #MIN_BEAT_TIME}, preserving the order
+	 * of the remainder.
+	 */
+	private static double[] trim(double[] times){
+		double[] out = new double[times.length];
+		int n = 0;
+		for (int i = 0; i < times.length; i++) {
+			if (!(times[i] < MIN_BEAT_TIME)){
+				out[n++] = times[i];
+			}
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * @return the sorted, distinct indices of the 100Hz impulse train
+	 * samples set by each time.
+	 */
+	private static int[] impulses(double[] times){
+		int[] idx = new int[times.length];
+		for (int i = 0; i < times.length; i++) {
+			idx[i] = (int)Math.ceil(times[i] * P_SCORE_FS);
+		}
+		Arrays.sort(idx);
+		int n = 0;
+		for (int i = 0; i < idx.length; i++) {
+			if (n == 0 || idx[i] != idx[n - 1]){
+				idx[n++] = idx[i];
+			}
+		}
+		return Arrays.copyOf(idx, n);
+	}
+
+	/**
+	 * @return every other element of the array, starting at <code>offset</code>.
+	 */
+	private static double[] every(double[] values, int offset){
+		double[] out = new double[Math.max(0, (values.length - offset + 1) / 2)];
+		for (int i = 0; i < out.length; i++) {
+			out[i] = values[offset + 2 * i];
+		}
+		return out;
+	}
+
+	/**
+	 * @return the lowest index of the element of a non-empty array closest to
+	 * <code>v</code>, as matlab's <code>min(abs(v - values))</code> would
+	 * return. A binary search is used if the values are sorted.
+	 */
+	private static int nearest(double[] values, double v, boolean sorted){
+		if (!sorted){
+			int best = 0;
+			for (int i = 1; i < values.length; i++) {
+				if (Math.abs(v - values[i]) < Math.abs(v - values[best])){
+					best = i;
+				}
+			}
+			return best;
+		}
+		int hi = lowerBound(values, v);
+		if (hi == 0){
+			return 0;
+		}
+		int lo = hi - 1;
+		while (lo > 0 && values[lo - 1] == values[lo]){
+			lo--;
+		}
+		if (hi == values.length || Math.abs(v - values[lo]) <= Math.abs(v - values[hi])){
+			return lo;
+		}
+		return hi;
+	}
+
+	/**
+	 * @return the index of the first element not less than <code>v</code>.
+	 */
+	private static int lowerBound(double[] sorted, double v){
+		int lo = 0;
+		int hi = sorted.length;
+		while (lo < hi){
+			int mid = (lo + hi) >>> 1;
+			if (sorted[mid] < v){
+				lo = mid + 1;
+			}else{
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @return the index of the first element greater than <code>v</code>.
+	 */
+	private static int upperBound(double[] sorted, double v){
+		int lo = 0;
+		int hi = sorted.length;
+		while (lo < hi){
+			int mid = (lo + hi) >>> 1;
+			if (sorted[mid] <= v){
+				lo = mid + 1;
+			}else{
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @return the index of the first element not less than <code>v</code>.
+	 */
+	private static int lowerBound(int[] sorted, int v){
+		int lo = 0;
+		int hi = sorted.length;
+		while (lo < hi){
+			int mid = (lo + hi) >>> 1;
+			if (sorted[mid] < v){
+				lo = mid + 1;
+			}else{
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private static boolean isSorted(double[] values){
+		for (int i = 1; i < values.length; i++) {
+			if (values[i] < values[i - 1]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static double max(double[] values){
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < values.length; i++) {
+			max = Math.max(max, values[i]);
+		}
+		return max;
+	}
+
+	private static double median(double[] values){
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int mid = sorted.length / 2;
+		if (sorted.length % 2 == 0){
+			return (sorted[mid - 1] + sorted[mid]) / 2.0;
+		}
+		return sorted[mid];
+	}
+
+	/**
+	 * Matlab's <code>round</code>, which rounds halves away from zero.
+	 */
+	private static double round(double x){
+		return x < 0 ? -Math.floor(-x + 0.5) : Math.floor(x + 0.5);
+	}
+
+	private static double log2(double x){
+		return Math.log(x) / Math.log(2.0);
+	}
+}
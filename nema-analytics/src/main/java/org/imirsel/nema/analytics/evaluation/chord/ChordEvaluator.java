@@ -7,10 +7,13 @@ package org.imirsel.nema.analytics.evaluation.chord;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.imirsel.nema.analytics.evaluation.*;
 import org.imirsel.nema.model.*;
@@ -27,6 +30,9 @@ public class ChordEvaluator extends EvaluatorImpl{
     
     private static final int GRID_RESOLUTION = 1000; //The grid resolution. 
     
+    /** Scores of the chord pairs seen so far, shared by concurrently evaluated folds. */
+    private final ConcurrentHashMap<ChordPair,Integer> chordPairScores = new ConcurrentHashMap<ChordPair,Integer>();
+    
     /**
 	 * Constructor (no arg - task, dataset, output and working dirs, training
 	 * and test sets must be set manually).
@@ -64,24 +70,9 @@ public class ChordEvaluator extends EvaluatorImpl{
 			int numJobs = jobIDToFoldResults.size();
 	        
 	        String jobId, jobName;
-	        Map<NemaTrackList,List<NemaData>> sysResults;
 			
 	        //evaluate each fold for each system
-			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
-			for(Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();){
-	        	jobId = it.next();
-	        	getLogger().info("Evaluating experiment folds for jobID: " + jobId);
-	        	sysResults = jobIDToFoldResults.get(jobId);
-	        	Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
-				for (Iterator<NemaTrackList> trackListIt = sysResults.keySet().iterator(); trackListIt.hasNext();) {
-					//make sure we use the evaluators copy of the track list
-					NemaTrackList trackList = testSets.get(testSets.indexOf(trackListIt.next()));
-					NemaData result = evaluateResultFold(jobId, trackList, sysResults.get(trackList));
-					foldEvals.put(trackList, result);
-				}
-	
-	        	jobIdToFoldEvaluation.put(jobId, foldEvals);
-	        }
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
 			
 			/* Aggregated evaluation to produce overall results */
 			Map<String, NemaData> jobIdToOverallEvaluation = new HashMap<String, NemaData>(numJobs);
@@ -159,30 +150,11 @@ public class ChordEvaluator extends EvaluatorImpl{
         	gtChords = (List<NemaChord>)gtData.getMetadata(NemaDataConstants.CHORD_LABEL_SEQUENCE);
         	
         	//evaluate here
-        	
-        	//Create grid for the ground-truth
         	int lnGT = trackIdToLnGT.get(data.getId()) ;
         	if (lnGT == 0 ){
         		throw new IllegalArgumentException("Length of GT is 0!");
         	}        		
-        	int[][] gridGT = new int[lnGT][];
-        	for (int i = 0; i < gtChords.size(); i++) {
-        		NemaChord currentChord = gtChords.get(i);
-        		int onset_index = (int)(currentChord.getOnset()*GRID_RESOLUTION);
-        		int offset_index = (int)(currentChord.getOffset()*GRID_RESOLUTION);
-        		for (int j = onset_index; j<offset_index; j++){
-        			gridGT[j]=currentChord.getNotes();
-        		}
-			}
-        
-        	// Create grid for the system
         	int lnSys = (int)(Math.ceil(GRID_RESOLUTION*systemChords.get(systemChords.size()-1).getOffset()));
-        	// for debugging
-        /*	if (lnSys<lnGT){
-        		double last_offGT = gtChords.get(gtChords.size()-1).getOffset();
-        		systemChords.get(systemChords.size()-1).setOffset(last_offGT);
-            	lnSys = (int)(Math.ceil(GRID_RESOLUTION*systemChords.get(systemChords.size()-1).getOffset()));
-        	}*/
         	double overlap_score;
         	if (lnSys == 0 ){
         		//they get nothing for this file!
@@ -192,51 +164,15 @@ public class ChordEvaluator extends EvaluatorImpl{
         						+ systemChords.get(systemChords.size()-1));
         		overlap_score = 0;
         	}else{
-        	
-
-        		int[][] gridSys = new int[lnSys][]; // comment in later
-        		//int[][] gridSys = new int[lnGT][];         		//for debugging
-	        	for (int i = 0; i < systemChords.size(); i++) {
-	        		NemaChord currentChord = systemChords.get(i);
-	        		int onset_index = (int)(currentChord.getOnset()*GRID_RESOLUTION);
-	        		int offset_index = (int)(currentChord.getOffset()*GRID_RESOLUTION);
-	        	//	System.out.println("Chord no " + i + " onset="+onset_index + "offset=" + offset_index);
-	        		for (int j = onset_index; j < offset_index; j++){
-	        			gridSys[j]=currentChord.getNotes();
-	        			if (gridSys[j] == null){
-	        				getLogger().warning("Returned null notes for track: " + data.getId() + ", chord " + i + ", onset index: " + onset_index + ", offset index: " + offset_index);
-	        			}
-	        		}
-				}
-	        		
-	        		
-	        	
-	        	int lnOverlap = Math.min(lnGT, lnSys);
-	        	//int[] overlaps = new int[lnOverlap]; 
-	        	int  overlap_total = 0;
-	        	//Calculate the overlap score 
-	        	for (int i = 0; i < lnOverlap; i++ ){
-	        		int[] gtFrame = gridGT[i]; 
-	//        		if(gtFrame == null){
-	//        			getLogger().warning("GT chord Null at " +i + "-ith frame");
-	//        		}
-	        		
-	        		int[] sysFrame = gridSys[i];
-	        		//disabled check as some systems do not mark data until first chord 
-	//        		if(sysFrame == null){
-	//        			getLogger().warning("System chord Null at " +i + "-ith frame");
-	//        		}
-	        	//	overlap_total +=  calcOverlap(gtFrame,sysFrame);    
-	        		//debugging purposes
-	        		//end debugging
-	        		overlap_total +=  calcOverlap(gtFrame,sysFrame);
-
-	        	}
+        		for (int i = 0; i < systemChords.size(); i++) {
+        			if (systemChords.get(i).getNotes() == null){
+        				getLogger().warning("Returned null notes for track: " + data.getId() + ", chord " + i);
+        			}
+        		}
+	        	long overlap_total = overlapFrames(gtChords, lnGT, systemChords, lnSys);
 	        	
 	        	//set eval metrics on input obj for track
 	        	overlap_score = (double)overlap_total / (double)lnGT;
-	        	
-	        	
         	}
         	weightedAverageOverlapAccum += overlap_score*lnGT;	
         	overlapAccum += overlap_score;
@@ -260,6 +196,128 @@ public class ChordEvaluator extends EvaluatorImpl{
     }
     
 
+    /**
+     * Computes the number of grid frames (at {@link #GRID_RESOLUTION} frames 
+     * per second) over which the system chords overlap the ground-truth, as 
+     * scored by {@link #calcOverlap(int[], int[])}. Rather than filling a 
+     * grid, each chord sequence is reduced to the integer frame intervals 
+     * it would have painted into the grid (later chords overwriting earlier 
+     * ones) and the two are swept together, so that each overlapping segment 
+     * is scored once and weighted by its length in frames.
+     * 
+     * @param gtChords The ground-truth chords.
+     * @param lnGT The length of the ground-truth grid in frames.
+     * @param systemChords The system chords.
+     * @param lnSys The length of the system grid in frames.
+     * @return The number of frames scored as overlapping, in the first 
+     * min(lnGT, lnSys) frames.
+     * @since 0.4.1
+     */
+    public long overlapFrames(List<NemaChord> gtChords, int lnGT, List<NemaChord> systemChords, int lnSys){
+    	int lnOverlap = Math.min(lnGT, lnSys);
+    	TreeMap<Integer,int[]> gtSegments = toSegments(gtChords);
+    	TreeMap<Integer,int[]> sysSegments = toSegments(systemChords);
+    	
+    	long overlap_total = 0;
+    	int start = 0;
+    	int[] gtNotes = notesAt(gtSegments, start);
+    	int[] sysNotes = notesAt(sysSegments, start);
+    	while (start < lnOverlap){
+    		Integer gtNext = gtSegments.higherKey(start);
+    		Integer sysNext = sysSegments.higherKey(start);
+    		int end = lnOverlap;
+    		if (gtNext != null && gtNext < end){
+    			end = gtNext;
+    		}
+    		if (sysNext != null && sysNext < end){
+    			end = sysNext;
+    		}
+    		if (gtNotes != null && sysNotes != null){
+    			overlap_total += (long)(end - start) * cachedOverlap(gtNotes, sysNotes);
+    		}
+    		if (gtNext != null && gtNext == end){
+    			gtNotes = gtSegments.get(gtNext);
+    		}
+    		if (sysNext != null && sysNext == end){
+    			sysNotes = sysSegments.get(sysNext);
+    		}
+    		start = end;
+    	}
+    	return overlap_total;
+    }
+    
+    /**
+     * Reduces a chord sequence to a map from the first frame of each 
+     * interval to the notes sounding from that frame until the next key, 
+     * with null marking frames that no chord covers.
+     */
+    private static TreeMap<Integer,int[]> toSegments(List<NemaChord> chords){
+    	TreeMap<Integer,int[]> segments = new TreeMap<Integer,int[]>();
+    	for (Iterator<NemaChord> it = chords.iterator(); it.hasNext();) {
+    		NemaChord chord = it.next();
+    		int onset_index = (int)(chord.getOnset()*GRID_RESOLUTION);
+    		int offset_index = (int)(chord.getOffset()*GRID_RESOLUTION);
+    		if (onset_index >= offset_index){
+    			continue;
+    		}
+    		//the notes that resume after this chord, if it is painted over another
+    		int[] resume = notesAt(segments, offset_index);
+    		segments.subMap(onset_index, true, offset_index, true).clear();
+    		segments.put(onset_index, chord.getNotes());
+    		segments.put(offset_index, resume);
+    	}
+    	return segments;
+    }
+    
+    private static int[] notesAt(TreeMap<Integer,int[]> segments, int frame){
+    	Map.Entry<Integer,int[]> entry = segments.floorEntry(frame);
+    	return entry == null ? null : entry.getValue();
+    }
+    
+    /**
+     * Returns the score from {@link #calcOverlap(int[], int[])} for a pair of 
+     * chords, memoised on the notes of both chords as most tracks repeat a 
+     * small number of chord pairs many times.
+     */
+    private int cachedOverlap(int[] gt, int[] sys){
+    	ChordPair key = new ChordPair(gt, sys);
+    	Integer score = chordPairScores.get(key);
+    	if (score == null){
+    		score = calcOverlap(gt, sys);
+    		chordPairScores.putIfAbsent(key, score);
+    	}
+    	return score;
+    }
+    
+    /**
+     * Key for the chord pair score cache, comparing the notes by value.
+     */
+    private static class ChordPair{
+    	private final int[] gt;
+    	private final int[] sys;
+    	private final int hash;
+    	
+    	ChordPair(int[] gt, int[] sys){
+    		this.gt = gt;
+    		this.sys = sys;
+    		this.hash = 31 * Arrays.hashCode(gt) + Arrays.hashCode(sys);
+    	}
+    	
+    	@Override
+    	public int hashCode(){
+    		return hash;
+    	}
+    	
+    	@Override
+    	public boolean equals(Object obj){
+    		if (!(obj instanceof ChordPair)){
+    			return false;
+    		}
+    		ChordPair other = (ChordPair)obj;
+    		return Arrays.equals(gt, other.gt) && Arrays.equals(sys, other.sys);
+    	}
+    }
+
     protected int calcOverlap(int[] gt, int[] sys) {
     	
     	
@@ -8,16 +8,19 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 
 
+import org.imirsel.nema.analytics.evaluation.FriedmanResult;
 import org.imirsel.nema.analytics.evaluation.FriedmansAnovaTkHsd;
+import org.imirsel.nema.analytics.evaluation.RenderPipeline;
 import org.imirsel.nema.analytics.evaluation.ResultRendererImpl;
 import org.imirsel.nema.analytics.evaluation.WriteCsvResultFiles;
 import org.imirsel.nema.analytics.evaluation.resultpages.FileListItem;
-import org.imirsel.nema.analytics.evaluation.resultpages.ImageItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.Page;
 import org.imirsel.nema.analytics.evaluation.resultpages.PageItem;
+import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisFriedmanPlotItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisSegmentationPlotItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.Table;
 import org.imirsel.nema.analytics.evaluation.resultpages.TableItem;
@@ -45,40 +48,55 @@ public class ChordResultRenderer extends ResultRendererImpl {
 	}
 
 	@Override
-	public void renderResults(NemaEvaluationResultSet results)
+	public void renderResults(final NemaEvaluationResultSet results)
 			throws IOException {
 		
-		int numJobs = results.getJobIds().size();
+		final int numJobs = results.getJobIds().size();
 		
 		
 		getLogger().info("Creating system result directories...");
 		Map<String, File> jobIDToResultDir = makeSystemResultDirs(results);
 
+		RenderPipeline pipeline = createRenderPipeline(results);
+
 		/* Write out leaderboard CSV file */
-		getLogger().info("Writing out leaderboard CSV...");
-		File leaderboardCSV = this.writeLeaderBoardCSVFile(NemaDataConstants.CHORD_WEIGHTED_AVERAGE_OVERLAP_RATIO, results, false);
+		RenderPipeline.Stage<File> leaderboardCSV = pipeline.add("leaderboard CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeLeaderBoardCSVFile(NemaDataConstants.CHORD_WEIGHTED_AVERAGE_OVERLAP_RATIO, results, false);
+			}
+		});
 		
 		/* Write out summary CSV */
-		getLogger().info("Writing out CSV result files over whole task...");
-		File overlapCsv = new File(outputDir.getAbsolutePath() + File.separator
-				+ "overlap.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles
-				.prepTableDataOverTracksAndSystems(results
-						.getTestSetTrackLists(), results
-						.getJobIdToPerTrackEvaluationAndResults(), results
-						.getJobIdToJobName(),
-						NemaDataConstants.CHORD_OVERLAP_RATIO), overlapCsv);
-
-		/* Write out per track CSV for each system */
-		getLogger().info("Writing out per-system result files...");
-		File summaryCsv = writeOverallResultsCSV(results);
+		final RenderPipeline.Stage<Table> overlapTable = pipeline.add("overlap table", new Callable<Table>() {
+			public Table call() {
+				return WriteCsvResultFiles
+						.prepTableDataOverTracksAndSystems(results
+								.getTestSetTrackLists(), results
+								.getJobIdToPerTrackEvaluationAndResults(), results
+								.getJobIdToJobName(),
+								NemaDataConstants.CHORD_OVERLAP_RATIO);
+			}
+		});
+		final RenderPipeline.Stage<File> overlapCsv = pipeline.add("overlap CSV", new Callable<File>() {
+			public File call() throws IOException {
+				File overlapCsv = new File(outputDir.getAbsolutePath() + File.separator
+						+ "overlap.csv");
+				WriteCsvResultFiles.writeTableToCsv(overlapTable.get(), overlapCsv);
+				return overlapCsv;
+			}
+		}).after(overlapTable);
+
+		final RenderPipeline.Stage<File> summaryCsv = pipeline.add("summary CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeOverallResultsCSV(results);
+			}
+		});
 
 		// write out per system CSVs - per track
-		getLogger().info("Writing out CSV result files for each system...");
-		Map<String, File> jobIDToPerTrackCSV = writePerTrackSystemResultCSVs(
-				results, jobIDToResultDir);
-		Map<String, File> jobIDToPerFoldCSV = writePerFoldSystemResultCSVs(
-				results, jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerTrackCSV = addPerTrackCSVStages(
+				pipeline, results, jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerFoldCSV = addPerFoldCSVStages(
+				pipeline, results, jobIDToResultDir);
 		
 		
 
@@ -89,37 +107,45 @@ public class ChordResultRenderer extends ResultRendererImpl {
 			performStatSigTests = false;
 		}
 
-		File friedmanOverlapTablePNG = null;
-		File friedmanOverlapTable = null;
-		File friedmanWeightedOverlapTablePNG = null;
-		File friedmanWeightedOverlapTable = null;
+		final RenderPipeline.Stage<FriedmanResult> friedmanOverlap;
 
 		if (getPerformMatlabStatSigTests() && performStatSigTests) {
-			getLogger().info("Performing Friedman's tests in Matlab...");
-
-			File[] tmp = FriedmansAnovaTkHsd.performFriedman(outputDir,
-					overlapCsv, 0, 2, 1, numJobs, getMatlabPath());
-			friedmanOverlapTablePNG = tmp[0];
-			friedmanOverlapTable = tmp[1];
-
-			// tmp = performFriedmanTestWithFoldAccuracy(outputDir, perFoldCSV,
-			// systemNamesArr);
-			tmp = FriedmansAnovaTkHsd.performFriedman(outputDir, overlapCsv, 0,
-					2, 1, numJobs, getMatlabPath());
-			friedmanWeightedOverlapTablePNG = tmp[0];
-			friedmanWeightedOverlapTable = tmp[1];
+			friedmanOverlap = pipeline.add("Friedman's test", new Callable<FriedmanResult>() {
+				public FriedmanResult call() throws IOException {
+					FriedmanResult friedman = FriedmansAnovaTkHsd.performFriedman("overlap",
+							overlapTable.get(), 2, numJobs);
+					FriedmansAnovaTkHsd.writeFriedmanTable(outputDir, friedman);
+					return friedman;
+				}
+			}).after(overlapTable);
+		}else{
+			friedmanOverlap = null;
 		}
 
 		/* Create tar-balls of individual result directories */
-		getLogger().info("Preparing evaluation data tarballs...");
-		Map<String, File> jobIDToTgz = compressResultDirectories(jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToTgz = addCompressionStages(pipeline, jobIDToResultDir);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerTrackCSV);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerFoldCSV);
 
 
 		// write result HTML pages
-		writeHtmlResultPages(performStatSigTests, results, overlapCsv,
-				summaryCsv, jobIDToPerTrackCSV, jobIDToPerFoldCSV, friedmanOverlapTablePNG,
-				friedmanOverlapTable, friedmanWeightedOverlapTablePNG,
-				friedmanWeightedOverlapTable, jobIDToTgz);
+		final boolean statSigTests = performStatSigTests;
+		RenderPipeline.Stage<Void> pages = pipeline.add("HTML pages", new Callable<Void>() {
+			public Void call() {
+				writeHtmlResultPages(statSigTests, results, overlapCsv.get(),
+						summaryCsv.get(), RenderPipeline.values(jobIDToPerTrackCSV), RenderPipeline.values(jobIDToPerFoldCSV), 
+						friedmanOverlap == null ? null : friedmanOverlap.get(),
+						RenderPipeline.values(jobIDToTgz));
+				return null;
+			}
+		}).after(leaderboardCSV).after(overlapCsv).after(summaryCsv).after(jobIDToPerTrackCSV.values())
+				.after(jobIDToPerFoldCSV.values()).after(jobIDToTgz.values());
+		if (friedmanOverlap != null){
+			pages.after(friedmanOverlap);
+		}
+		
+		getLogger().info("Rendering results...");
+		runRenderPipeline(pipeline);
 
 	}
 
@@ -200,9 +226,8 @@ public class ChordResultRenderer extends ResultRendererImpl {
 	private void writeHtmlResultPages(boolean performStatSigTests,
 			NemaEvaluationResultSet results, File overlapCsv, File summaryCsv,
 			Map<String, File> jobIDToPerTrackCSV, 
-			Map<String, File> jobIDToPerFoldCSV, File friedmanOverlapTablePNG,
-			File friedmanOverlapTable, File friedmanWeightedOverlapTablePNG,
-			File friedmanWeightedOverlapTable, Map<String, File> jobIDToTgz) {
+			Map<String, File> jobIDToPerFoldCSV, FriedmanResult friedmanOverlap,
+			Map<String, File> jobIDToTgz) {
 
 		int numJobs = results.getJobIds().size();
 
@@ -347,15 +372,9 @@ public class ChordResultRenderer extends ResultRendererImpl {
 			getLogger().info("Performing significance tests...");
 			items = new ArrayList<PageItem>();
 			items.add(legendTable);
-			items.add(new ImageItem("friedmanOverlapTablePNG",
+			items.add(new ProtovisFriedmanPlotItem("friedmanOverlapTable",
 					"Chord Overlap: Friedman's ANOVA w/ Tukey Kramer HSD",
-					IOUtil.makeRelative(friedmanOverlapTablePNG, outputDir)));
-			items
-					.add(new ImageItem(
-							"friedmanWeightedOverlapTablePNG",
-							"Chord Weighted Overlap: Friedman's ANOVA w/ Tukey Kramer HSD",
-							IOUtil.makeRelative(
-									friedmanWeightedOverlapTablePNG, outputDir)));
+					friedmanOverlap));
 
 			aPage = new Page("sig_tests", "Significance Tests", items, true);
 			resultPages.add(aPage);
@@ -390,27 +409,14 @@ public class ChordResultRenderer extends ResultRendererImpl {
 			items.add(new FileListItem("perSystemCSVs",
 					"Per-system CSV result files", perSystemCsvs));
 
-			// Friedman's tables and plots
+			// Friedman's tables
 			if (getPerformMatlabStatSigTests() && performStatSigTests) {
-				// Friedmans tables
-				List<String> sigCSVPaths = new ArrayList<String>(2);
-				sigCSVPaths.add(IOUtil.makeRelative(friedmanOverlapTable,
-						outputDir));
+				List<String> sigCSVPaths = new ArrayList<String>(1);
 				sigCSVPaths.add(IOUtil.makeRelative(
-						friedmanWeightedOverlapTable, outputDir));
+						friedmanOverlap.getTableFile(), outputDir));
 
 				items.add(new FileListItem("sigCSVs", "Significance test CSVs",
 						sigCSVPaths));
-
-				// Friedmans plots
-				List<String> sigPNGPaths = new ArrayList<String>(2);
-				sigPNGPaths.add(IOUtil.makeRelative(friedmanOverlapTablePNG,
-						outputDir));
-				sigPNGPaths.add(IOUtil.makeRelative(
-						friedmanWeightedOverlapTablePNG, outputDir));
-
-				items.add(new FileListItem("sigPNGs",
-						"Significance test plots", sigPNGPaths));
 			}
 
 			// System Tarballs
@@ -90,6 +90,14 @@ public class ClassificationEvaluator extends EvaluatorImpl{
     /**
      * Initializes the class names list from the ground-truth.
      */
+    @Override
+    protected void prepareEvaluation() throws IllegalArgumentException{
+    	standardizeGtClassnames();
+    	if(classNames == null){
+    		initClassNames();
+    	}
+    }
+    
     private void initClassNames() throws IllegalArgumentException{
     	String type = this.getTask().getSubjectTrackMetadataName();
     	String aClass;
@@ -279,8 +287,8 @@ public class ClassificationEvaluator extends EvaluatorImpl{
     	int numJobs = jobIDToFoldResults.size();
         String jobId, jobName;
         
-        //standardize GT class names
-        standardizeGtClassnames();
+        //standardize GT class names and initialise class names before the folds are evaluated concurrently
+        prepareEvaluation();
         
         //check that all systems have the same number of results
         checkFolds();
@@ -290,20 +298,7 @@ public class ClassificationEvaluator extends EvaluatorImpl{
 
 		{
 			/* Perform the evaluations on all jobIds (systems) */
-			Map<NemaTrackList,List<NemaData>> sysResults;
-			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
-			for (Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();) {
-				jobId = it.next();
-				getLogger().info("Evaluating experiment for jobID: " + jobId);
-				sysResults = jobIDToFoldResults.get(jobId);
-				Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
-				for (Iterator<NemaTrackList> trackIt = sysResults.keySet().iterator(); trackIt.hasNext();) {
-					NemaTrackList trackList = testSets.get(testSets.indexOf(trackIt.next()));
-					NemaData result = evaluateResultFold(jobId, trackList, sysResults.get(trackList));
-					foldEvals.put(trackList, result);
-				}
-				jobIdToFoldEvaluation.put(jobId, foldEvals);
-			}
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
 			
 			/* Aggregated evaluation to produce overall results */
 			Map<String, NemaData> jobIdToOverallEvaluation = new HashMap<String, NemaData>(numJobs);
@@ -641,5 +636,13 @@ public class ClassificationEvaluator extends EvaluatorImpl{
 	public File getHierarchyFile() {
 		return hierarchyFile;
 	}
+
+	@Override
+	protected String getCacheParameters() {
+		if (hierarchyFile == null){
+			return "hierarchyFile=null";
+		}
+		return "hierarchyFile=" + hierarchyFile.getAbsolutePath() + "," + hierarchyFile.length() + "," + hierarchyFile.lastModified();
+	}
 	
 }
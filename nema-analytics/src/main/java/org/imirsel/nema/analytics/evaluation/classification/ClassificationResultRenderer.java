@@ -8,18 +8,22 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.io.FileUtils;
+import org.imirsel.nema.analytics.evaluation.FriedmanResult;
 import org.imirsel.nema.analytics.evaluation.FriedmansAnovaTkHsd;
+import org.imirsel.nema.analytics.evaluation.RenderPipeline;
 import org.imirsel.nema.analytics.evaluation.ResultRendererImpl;
 import org.imirsel.nema.analytics.evaluation.WriteCsvResultFiles;
 import org.imirsel.nema.analytics.evaluation.resultpages.FileListItem;
-import org.imirsel.nema.analytics.evaluation.resultpages.ImageItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.Page;
 import org.imirsel.nema.analytics.evaluation.resultpages.PageItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisConfusionMatrixPlotItem;
+import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisFriedmanPlotItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.Table;
 import org.imirsel.nema.analytics.evaluation.resultpages.TableItem;
 import org.imirsel.nema.model.NemaData;
@@ -32,7 +36,12 @@ import org.imirsel.nema.model.util.IOUtil;
 
 public class ClassificationResultRenderer extends ResultRendererImpl {
 
-    private static final DecimalFormat dec = new DecimalFormat("0.00");
+    private static final ThreadLocal<DecimalFormat> dec = new ThreadLocal<DecimalFormat>() {
+    	@Override
+    	protected DecimalFormat initialValue() {
+    		return new DecimalFormat("0.00");
+    	}
+    };
     private static final String BIG_DIVIDER =    "================================================================================\n";
     private static final String SMALL_DIVIDER = "--------------------------------------------------------------------------------\n";
     private static final int COL_WIDTH = 7;
@@ -42,12 +51,12 @@ public class ClassificationResultRenderer extends ResultRendererImpl {
     }
     
     @SuppressWarnings("unchecked")
-	public void renderResults(NemaEvaluationResultSet results) throws IOException {
+	public void renderResults(final NemaEvaluationResultSet results) throws IOException {
 
-    	boolean usingAHierarchy = usingAHierarchy(results);
+    	final boolean usingAHierarchy = usingAHierarchy(results);
     	
 		String jobId;
-		int numJobs = results.getJobIds().size();
+		final int numJobs = results.getJobIds().size();
 		
 		/* Make per system result directories */
 		Map<String, File> jobIDToResultDir = new HashMap<String, File>();
@@ -60,9 +69,14 @@ public class ClassificationResultRenderer extends ResultRendererImpl {
 			jobIDToResultDir.put(jobId, sysDir);
 		}
 		
+		RenderPipeline pipeline = createRenderPipeline(results);
+		
 		/* Write out leaderboard CSV file */
-		getLogger().info("Writing out leaderboard CSV...");
-		File leaderboardCSV = this.writeLeaderBoardCSVFile(NemaDataConstants.CLASSIFICATION_ACCURACY, results, false);
+		RenderPipeline.Stage<File> leaderboardCSV = pipeline.add("leaderboard CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeLeaderBoardCSVFile(NemaDataConstants.CLASSIFICATION_ACCURACY, results, false);
+			}
+		});
 		
 //		//plot confusion matrices for each fold
 //		getLogger().info("Plotting confusion matrices for each fold for each job");
@@ -87,98 +101,126 @@ public class ClassificationResultRenderer extends ResultRendererImpl {
 		//retrieve class names from eval data
 		jobId = results.getJobIds().iterator().next();
 		NemaData aggregateEval = results.getOverallEvaluation(jobId);
-		List<String> classNames = (List<String>)aggregateEval.getMetadata(NemaDataConstants.CLASSIFICATION_EXPERIMENT_CLASSNAMES);
+		final List<String> classNames = (List<String>)aggregateEval.getMetadata(NemaDataConstants.CLASSIFICATION_EXPERIMENT_CLASSNAMES);
 		
 		//write out CSV results files
-		getLogger().info("Writing out CSV result files over whole task...");
-		File perClassCSV = new File(outputDir.getAbsolutePath()+ File.separator + "PerClassResults.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassArrays(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),classNames,NemaDataConstants.CLASSIFICATION_CONFUSION_MATRIX_PERCENT),perClassCSV);
+		final Map<String,RenderPipeline.Stage<Table>> friedmanTables = new LinkedHashMap<String,RenderPipeline.Stage<Table>>();
+		final File perClassCSV = new File(outputDir.getAbsolutePath()+ File.separator + "PerClassResults.csv");
+		RenderPipeline.Stage<Table> perClassTable = pipeline.add("task CSV", new Callable<Table>() {
+			public Table call() throws IOException {
+				Table perClassTable = WriteCsvResultFiles.prepTableDataOverClassArrays(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),classNames,NemaDataConstants.CLASSIFICATION_CONFUSION_MATRIX_PERCENT);
+				WriteCsvResultFiles.writeTableToCsv(perClassTable,perClassCSV);
+				return perClassTable;
+			}
+		});
+		friedmanTables.put("PerClassResults", perClassTable);
 		
-		File perFoldCSV = new File(outputDir.getAbsolutePath() + File.separator + "PerFoldResults.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(), results.getJobIdToPerFoldEvaluation(), results.getJobIdToJobName(),NemaDataConstants.CLASSIFICATION_ACCURACY),perFoldCSV);
+		final File perFoldCSV = new File(outputDir.getAbsolutePath() + File.separator + "PerFoldResults.csv");
+		RenderPipeline.Stage<Table> perFoldTable = pipeline.add("task CSV", new Callable<Table>() {
+			public Table call() throws IOException {
+				Table perFoldTable = WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(), results.getJobIdToPerFoldEvaluation(), results.getJobIdToJobName(),NemaDataConstants.CLASSIFICATION_ACCURACY);
+				WriteCsvResultFiles.writeTableToCsv(perFoldTable,perFoldCSV);
+				return perFoldTable;
+			}
+		});
+		friedmanTables.put("PerFoldResults", perFoldTable);
 		
 		//write out discounted results summary CSVs
 		File discountedPerClassCSV = null;
 		File discountedPerFoldCSV = null;
 		if (results.getOverallEvalMetricsKeys().contains(NemaDataConstants.CLASSIFICATION_DISCOUNTED_ACCURACY)){
 		    discountedPerClassCSV = new File(outputDir.getAbsolutePath() + File.separator + "DiscountedPerClassResults.csv");
-		    WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassArrays(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),classNames,NemaDataConstants.CLASSIFICATION_DISCOUNT_CONFUSION_VECTOR_PERCENT),discountedPerClassCSV);
+		    final File discountedPerClassFile = discountedPerClassCSV;
+		    RenderPipeline.Stage<Table> discountedPerClassTable = pipeline.add("task CSV", new Callable<Table>() {
+		    	public Table call() throws IOException {
+		    		Table discountedPerClassTable = WriteCsvResultFiles.prepTableDataOverClassArrays(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),classNames,NemaDataConstants.CLASSIFICATION_DISCOUNT_CONFUSION_VECTOR_PERCENT);
+		    		WriteCsvResultFiles.writeTableToCsv(discountedPerClassTable,discountedPerClassFile);
+		    		return discountedPerClassTable;
+		    	}
+		    });
 		    discountedPerFoldCSV = new File(outputDir.getAbsolutePath() + File.separator + "DiscountedPerFoldResults.csv");
-		    WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(), results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.CLASSIFICATION_DISCOUNTED_ACCURACY),discountedPerFoldCSV);
+		    final File discountedPerFoldFile = discountedPerFoldCSV;
+		    RenderPipeline.Stage<Table> discountedPerFoldTable = pipeline.add("task CSV", new Callable<Table>() {
+		    	public Table call() throws IOException {
+		    		Table discountedPerFoldTable = WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(), results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.CLASSIFICATION_DISCOUNTED_ACCURACY);
+		    		WriteCsvResultFiles.writeTableToCsv(discountedPerFoldTable,discountedPerFoldFile);
+		    		return discountedPerFoldTable;
+		    	}
+		    });
+		    if (usingAHierarchy){
+		        friedmanTables.put("DiscountedPerClassResults", discountedPerClassTable);
+		        friedmanTables.put("DiscountedPerFoldResults", discountedPerFoldTable);
+		    }
 		}
 		
 		//write out results summary CSV
-		File summaryCSV = new File(outputDir.getAbsolutePath() + File.separator + "summaryResults.csv");
-		List<String> metrics = new ArrayList<String>();
+		final File summaryCSV = new File(outputDir.getAbsolutePath() + File.separator + "summaryResults.csv");
+		final List<String> metrics = new ArrayList<String>();
 		metrics.add(NemaDataConstants.CLASSIFICATION_ACCURACY);
 		metrics.add(NemaDataConstants.CLASSIFICATION_NORMALISED_ACCURACY);
 		if (results.getOverallEvalMetricsKeys().contains(NemaDataConstants.CLASSIFICATION_DISCOUNTED_ACCURACY)){
 			metrics.add(NemaDataConstants.CLASSIFICATION_DISCOUNTED_ACCURACY);
 			metrics.add(NemaDataConstants.CLASSIFICATION_NORMALISED_DISCOUNTED_ACCURACY);
 		}
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepSummaryTable(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),metrics),summaryCSV);
+		RenderPipeline.Stage<File> summaryStage = pipeline.add("summary CSV", new Callable<File>() {
+			public File call() throws IOException {
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepSummaryTable(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),metrics),summaryCSV);
+				return summaryCSV;
+			}
+		});
 		
 		
 		//perform statistical tests
-		File friedmanClassTablePNG = null;
-		File friedmanClassTable = null;
-		File friedmanFoldTablePNG = null;
-		File friedmanFoldTable = null;
-		File friedmanDiscountClassTablePNG = null;
-		File friedmanDiscountClassTable = null;
-		File friedmanDiscountFoldTablePNG = null;
-		File friedmanDiscountFoldTable = null;
+		final RenderPipeline.Stage<Map<String,FriedmanResult>> friedmanResults;
 		if (getPerformMatlabStatSigTests() && results.getJobIds().size() > 1){
-		    getLogger().info("Performing Friedman's tests...");
-		
-		    File[] tmp = FriedmansAnovaTkHsd.performFriedman(outputDir, perClassCSV, 0, 1, 1, numJobs, getMatlabPath());
-		    friedmanClassTablePNG = tmp[0];
-		    friedmanClassTable = tmp[1];
-		
-		    tmp = FriedmansAnovaTkHsd.performFriedman(outputDir, perFoldCSV, 0, 1, 1, numJobs, getMatlabPath());
-		    friedmanFoldTablePNG = tmp[0];
-		    friedmanFoldTable = tmp[1];
-		
-		    if (usingAHierarchy){
-		        tmp = FriedmansAnovaTkHsd.performFriedman(outputDir, discountedPerClassCSV, 0, 1, 1, numJobs, getMatlabPath());
-		        friedmanDiscountClassTablePNG = tmp[0];
-		        friedmanDiscountClassTable = tmp[1];
-		        
-		        tmp = FriedmansAnovaTkHsd.performFriedman(outputDir, discountedPerFoldCSV, 0, 1, 1, numJobs, getMatlabPath());
-		        friedmanDiscountFoldTablePNG = tmp[0];
-		        friedmanDiscountFoldTable = tmp[1];
-		    }
+			friedmanResults = pipeline.add("Friedman's tests", new Callable<Map<String,FriedmanResult>>() {
+				public Map<String,FriedmanResult> call() throws IOException {
+					return FriedmansAnovaTkHsd.performFriedman(outputDir, RenderPipeline.values(friedmanTables), 1, numJobs);
+				}
+			}).after(friedmanTables.values());
+		}else{
+			friedmanResults = null;
 		}
 		
 		//write text reports
-		getLogger().info("Writing text evaluation reports...");
-		Map<String,File> jobIDToReportFile = new HashMap<String,File>(numJobs);
+		Map<String,RenderPipeline.Stage<File>> jobIDToReportFile = new HashMap<String,RenderPipeline.Stage<File>>(numJobs);
 		for (Iterator<String> it = results.getJobIdToJobName().keySet().iterator();it.hasNext();) {
-			jobId = it.next();
-			File reportFile = new File(jobIDToResultDir.get(jobId).getAbsolutePath() + File.separator + "report.txt");
-			writeSystemTextReport(results, jobId, results.getJobIdToJobName().get(jobId), usingAHierarchy, reportFile);
-			jobIDToReportFile.put(jobId, reportFile);
+			final String reportJobId = it.next();
+			final File reportFile = new File(jobIDToResultDir.get(reportJobId).getAbsolutePath() + File.separator + "report.txt");
+			jobIDToReportFile.put(reportJobId, pipeline.add("text report", new Callable<File>() {
+				public File call() throws IOException {
+					writeSystemTextReport(results, reportJobId, results.getJobIdToJobName().get(reportJobId), usingAHierarchy, reportFile);
+					return reportFile;
+				}
+			}));
 		}
 		
 		//create tarballs of individual result dirs
-		getLogger().info("Preparing evaluation data tarballs...");
-		Map<String,File> jobIDToTgz = new HashMap<String,File>(results.getJobIdToJobName().size());
-		for (Iterator<String> it = results.getJobIdToJobName().keySet().iterator();it.hasNext();) {
-			jobId = it.next();
-			jobIDToTgz.put(jobId, IOUtil.tarAndGzip(new File(outputDir.getAbsolutePath() + File.separator + jobId)));
-		}
+		final Map<String,RenderPipeline.Stage<File>> jobIDToTgz = addCompressionStages(pipeline, jobIDToResultDir);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToReportFile);
 		
 		
 		//write result HTML pages
-		getLogger().info("Creating result HTML files...");
-		writeHtmlResultPages(usingAHierarchy, results, classNames,
-				perClassCSV, perFoldCSV,
-				discountedPerClassCSV, discountedPerFoldCSV,
-				friedmanClassTablePNG, friedmanClassTable,
-				friedmanFoldTablePNG, friedmanFoldTable,
-				friedmanDiscountClassTablePNG, friedmanDiscountClassTable,
-				friedmanDiscountFoldTablePNG, friedmanDiscountFoldTable,
-				jobIDToTgz, outputDir);
+		final File discountedPerClassFile = discountedPerClassCSV;
+		final File discountedPerFoldFile = discountedPerFoldCSV;
+		RenderPipeline.Stage<Void> pages = pipeline.add("HTML pages", new Callable<Void>() {
+			public Void call() {
+				Map<String,FriedmanResult> friedman = friedmanResults == null ? new HashMap<String,FriedmanResult>() : friedmanResults.get();
+				writeHtmlResultPages(usingAHierarchy, results, classNames,
+						perClassCSV, perFoldCSV,
+						discountedPerClassFile, discountedPerFoldFile,
+						friedman.get("PerClassResults"), friedman.get("PerFoldResults"),
+						friedman.get("DiscountedPerClassResults"), friedman.get("DiscountedPerFoldResults"),
+						RenderPipeline.values(jobIDToTgz), outputDir);
+				return null;
+			}
+		}).after(leaderboardCSV).after(friedmanTables.values()).after(summaryStage).after(jobIDToTgz.values());
+		if (friedmanResults != null){
+			pages.after(friedmanResults);
+		}
+		
+		getLogger().info("Rendering results...");
+		runRenderPipeline(pipeline);
     }
     
 
@@ -197,11 +239,9 @@ public class ClassificationResultRenderer extends ResultRendererImpl {
 			NemaEvaluationResultSet results, List<String> classNames,
 			File perClassCSV,
 			File perFoldCSV, File discountedPerClassCSV,
-			File discountedPerFoldCSV, File friedmanClassTablePNG,
-			File friedmanClassTable, File friedmanFoldTablePNG,
-			File friedmanFoldTable, File friedmanDiscountClassTablePNG,
-			File friedmanDiscountClassTable, File friedmanDiscountFoldTablePNG,
-			File friedmanDiscountFoldTable, Map<String, File> jobIDToTgz,
+			File discountedPerFoldCSV, FriedmanResult friedmanClass,
+			FriedmanResult friedmanFold, FriedmanResult friedmanDiscountClass,
+			FriedmanResult friedmanDiscountFold, Map<String, File> jobIDToTgz,
 			File outputDir) {
 		
 		int numJobs = results.getJobIds().size();
@@ -273,13 +313,13 @@ public class ClassificationResultRenderer extends ResultRendererImpl {
             items = new ArrayList<PageItem>();
             items.add(legendTable);
 
-            items.add(new ImageItem("friedmanClassTablePNG", "Accuracy Per Class: Friedman's ANOVA w/ Tukey Kramer HSD", IOUtil.makeRelative(friedmanClassTablePNG, outputDir)));
-            items.add(new ImageItem("friedmanFoldTablePNG", "Accuracy Per Fold: Friedman's ANOVA w/ Tukey Kramer HSD", IOUtil.makeRelative(friedmanFoldTablePNG, outputDir)));
-            if(friedmanDiscountClassTable != null){
-                items.add(new ImageItem("friedmanDiscountClassTablePNG", "Discounted Accuracy Per Class: Friedman's ANOVA w/ Tukey Kramer HSD", IOUtil.makeRelative(friedmanDiscountClassTablePNG, outputDir)));
+            items.add(new ProtovisFriedmanPlotItem("friedmanClassTable", "Accuracy Per Class: Friedman's ANOVA w/ Tukey Kramer HSD", friedmanClass));
+            items.add(new ProtovisFriedmanPlotItem("friedmanFoldTable", "Accuracy Per Fold: Friedman's ANOVA w/ Tukey Kramer HSD", friedmanFold));
+            if(friedmanDiscountClass != null){
+                items.add(new ProtovisFriedmanPlotItem("friedmanDiscountClassTable", "Discounted Accuracy Per Class: Friedman's ANOVA w/ Tukey Kramer HSD", friedmanDiscountClass));
             }
-            if(friedmanDiscountFoldTable != null){
-                items.add(new ImageItem("friedmanDiscountFoldTablePNG", "Accuracy Per Fold: Friedman's ANOVA w/ Tukey Kramer HSD", IOUtil.makeRelative(friedmanDiscountFoldTablePNG, outputDir)));
+            if(friedmanDiscountFold != null){
+                items.add(new ProtovisFriedmanPlotItem("friedmanDiscountFoldTable", "Accuracy Per Fold: Friedman's ANOVA w/ Tukey Kramer HSD", friedmanDiscountFold));
             }
             aPage = new Page("sig_tests", "Significance Tests", items, true);
             resultPages.add(aPage);
@@ -330,31 +370,18 @@ public class ClassificationResultRenderer extends ResultRendererImpl {
             }
             items.add(new FileListItem("dataCSVs", "CSV result files", CSVPaths));
 
-            //Friedman's tables and plots
+            //Friedman's tables
             if (performStatSigTests){
-                //Friedmans tables
                 List<String> sigCSVPaths = new ArrayList<String>(4);
-                sigCSVPaths.add(IOUtil.makeRelative(friedmanClassTable, outputDir));
-                sigCSVPaths.add(IOUtil.makeRelative(friedmanFoldTable, outputDir));
-                if(friedmanDiscountClassTable != null){
-                    sigCSVPaths.add(IOUtil.makeRelative(friedmanDiscountClassTable, outputDir));
+                sigCSVPaths.add(IOUtil.makeRelative(friedmanClass.getTableFile(), outputDir));
+                sigCSVPaths.add(IOUtil.makeRelative(friedmanFold.getTableFile(), outputDir));
+                if(friedmanDiscountClass != null){
+                    sigCSVPaths.add(IOUtil.makeRelative(friedmanDiscountClass.getTableFile(), outputDir));
                 }
-                if(friedmanDiscountFoldTable != null){
-                    sigCSVPaths.add(IOUtil.makeRelative(friedmanDiscountFoldTable, outputDir));
+                if(friedmanDiscountFold != null){
+                    sigCSVPaths.add(IOUtil.makeRelative(friedmanDiscountFold.getTableFile(), outputDir));
                 }
                 items.add(new FileListItem("sigCSVs", "Significance test CSVs", sigCSVPaths));
-
-                //Friedmans plots
-                List<String> sigPNGPaths = new ArrayList<String>(4);
-                sigPNGPaths.add(IOUtil.makeRelative(friedmanClassTablePNG, outputDir));
-                sigPNGPaths.add(IOUtil.makeRelative(friedmanFoldTablePNG, outputDir));
-                if(friedmanDiscountClassTable != null){
-                    sigPNGPaths.add(IOUtil.makeRelative(friedmanDiscountClassTablePNG, outputDir));
-                }
-                if(friedmanDiscountFoldTable != null){
-                    sigPNGPaths.add(IOUtil.makeRelative(friedmanDiscountFoldTablePNG, outputDir));
-                }
-                items.add(new FileListItem("sigPNGs", "Significance test plots", sigPNGPaths));
             }
 
             //System Tarballs
@@ -443,12 +470,12 @@ public class ClassificationResultRenderer extends ResultRendererImpl {
 	    	NemaData foldData = foldEvals.get(fold);
 	    	
 	    	bufferString += "Fold " + fold.getFoldNumber() + " (" + fold.getId() + ")\n";
-		    bufferString += "Accuracy: " + dec.format(foldData.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_ACCURACY) * 100) + "%\n";
-		    bufferString += "Accuracy (normalised for class sizes): " + dec.format(foldData.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_NORMALISED_ACCURACY) * 100) + "%\n";
+		    bufferString += "Accuracy: " + dec.get().format(foldData.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_ACCURACY) * 100) + "%\n";
+		    bufferString += "Accuracy (normalised for class sizes): " + dec.get().format(foldData.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_NORMALISED_ACCURACY) * 100) + "%\n";
 	    	
 		    if(usingAHierarchy) {
-		        bufferString += "Hierachically Discounted Accuracy: " + dec.format(foldData.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_DISCOUNTED_ACCURACY) * 100) + "%\n";
-		        bufferString += "Hierachically Discounted Accuracy (normalised for class sizes): " + dec.format(foldData.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_NORMALISED_DISCOUNTED_ACCURACY) * 100) + "%\n";
+		        bufferString += "Hierachically Discounted Accuracy: " + dec.get().format(foldData.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_DISCOUNTED_ACCURACY) * 100) + "%\n";
+		        bufferString += "Hierachically Discounted Accuracy (normalised for class sizes): " + dec.get().format(foldData.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_NORMALISED_DISCOUNTED_ACCURACY) * 100) + "%\n";
 		    }
 		    
 		    bufferString += "Raw Confusion Matrix:\n";
@@ -471,12 +498,12 @@ public class ClassificationResultRenderer extends ResultRendererImpl {
 	    
 	    bufferString += "\n" + BIG_DIVIDER;
 	    bufferString += "Overall Evaluation\n";
-	    bufferString += "Accuracy: " + dec.format(aggregateEval.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_ACCURACY) * 100) + "%\n";
-	    bufferString += "Accuracy (normalised for class sizes): " + dec.format(aggregateEval.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_NORMALISED_ACCURACY) * 100) + "%\n";
+	    bufferString += "Accuracy: " + dec.get().format(aggregateEval.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_ACCURACY) * 100) + "%\n";
+	    bufferString += "Accuracy (normalised for class sizes): " + dec.get().format(aggregateEval.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_NORMALISED_ACCURACY) * 100) + "%\n";
     	
 	    if(usingAHierarchy) {
-	        bufferString += "Hierachically Discounted Accuracy: " + dec.format(aggregateEval.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_DISCOUNTED_ACCURACY) * 100) + "%\n";
-	        bufferString += "Hierachically Discounted Accuracy (normalised for class sizes): " + dec.format(aggregateEval.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_NORMALISED_DISCOUNTED_ACCURACY) * 100) + "%\n";
+	        bufferString += "Hierachically Discounted Accuracy: " + dec.get().format(aggregateEval.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_DISCOUNTED_ACCURACY) * 100) + "%\n";
+	        bufferString += "Hierachically Discounted Accuracy (normalised for class sizes): " + dec.get().format(aggregateEval.getDoubleMetadata(NemaDataConstants.CLASSIFICATION_NORMALISED_DISCOUNTED_ACCURACY) * 100) + "%\n";
 	    }
 	    
 	    bufferString += "Raw Confusion Matrix:\n";
@@ -624,7 +651,7 @@ public class ClassificationResultRenderer extends ResultRendererImpl {
      * @return the formatted value
      */
     private String fmtDec(double val) {
-        return pad(dec.format(val), COL_WIDTH);
+        return pad(dec.get().format(val), COL_WIDTH);
     }
 
     /** 
@@ -642,7 +669,7 @@ public class ClassificationResultRenderer extends ResultRendererImpl {
      * @return the formatted value
      */
     private String fmtPercent(double val) {
-        return pad(dec.format(val) + "%", COL_WIDTH);
+        return pad(dec.get().format(val) + "%", COL_WIDTH);
     }
 
     /** 
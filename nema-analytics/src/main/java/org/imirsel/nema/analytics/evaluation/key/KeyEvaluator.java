@@ -112,21 +112,7 @@ public class KeyEvaluator extends EvaluatorImpl {
 		
 		{
 			/* Perform the evaluations on all jobIds (systems) */
-			Map<NemaTrackList,List<NemaData>> sysResults;
-			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
-			for (Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();) {
-				jobId = it.next();
-				getLogger().info("Evaluating experiment for jobID: " + jobId);
-				sysResults = jobIDToFoldResults.get(jobId);
-				Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
-				for (Iterator<NemaTrackList> trackIt = sysResults.keySet().iterator(); trackIt.hasNext();) {
-					//make sure we use the evaluators copy of the track list
-					NemaTrackList trackList = testSets.get(testSets.indexOf(trackIt.next()));
-					NemaData result = evaluateResultFold(jobId, trackList, sysResults.get(trackList));
-					foldEvals.put(trackList, result);
-				}
-				jobIdToFoldEvaluation.put(jobId, foldEvals);
-			}
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
 			
 			/* Aggregated evaluation to produce overall results */
 			Map<String, NemaData> jobIdToOverallEvaluation = new HashMap<String, NemaData>(numJobs);
@@ -68,8 +68,6 @@ public class MelodyEvaluator extends EvaluatorImpl {
 		String jobName;
 		int numJobs = jobIDToFoldResults.size();
 		
-		/* Check all systems have just one result set */
-		Map<NemaTrackList,List<NemaData>> sysResults;
 		
 		/* 
 		 * Make sure we only have one set of results per jobId (i.e. system), 
@@ -81,20 +79,7 @@ public class MelodyEvaluator extends EvaluatorImpl {
 		
 		{
 			/* Perform the evaluations on all jobIds (systems) */
-			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
-			for (Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();) {
-				jobId = it.next();
-				getLogger().info("Evaluating experiment for jobID: " + jobId);
-				sysResults = jobIDToFoldResults.get(jobId);
-				Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
-				for (Iterator<NemaTrackList> trackIt = sysResults.keySet().iterator(); trackIt.hasNext();) {
-					//make sure we use the evaluators copy of the track list
-					NemaTrackList trackList = testSets.get(testSets.indexOf(trackIt.next()));
-					NemaData result = evaluateResultFold(jobId, trackList, sysResults.get(trackList));
-					foldEvals.put(trackList, result);
-				}
-				jobIdToFoldEvaluation.put(jobId, foldEvals);
-			}
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
 			
 			/* Aggregated evaluation to produce overall results */
 			Map<String, NemaData> jobIdToOverallEvaluation = new HashMap<String, NemaData>(numJobs);
@@ -134,6 +119,10 @@ public class MelodyEvaluator extends EvaluatorImpl {
 		double rawPitchOverall = 0.0;
 		double rawChromaOverall = 0.0;
 		double accuracyOverall = 0.0;
+		
+		PitchFrameMatcher matcher = new PitchFrameMatcher(TOLERANCE, LOWER_BOUND, UPPER_BOUND);
+		double[] gtF0s = new double[0];
+		double[] detF0s = new double[0];
 
 		for (int x = 0; x < theData.size(); x++) {
 			
@@ -144,160 +133,25 @@ public class MelodyEvaluator extends EvaluatorImpl {
 					.get2dDoubleArrayMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA);
 			rawGtData = gtData
 					.get2dDoubleArrayMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA);
+			if (gtF0s.length < rawGtData.length) {
+				gtF0s = new double[rawGtData.length];
+			}
+			if (detF0s.length < rawData.length) {
+				detF0s = new double[rawData.length];
+			}
 
-			/* Initialize frame-by-frame counters for the evaluation measures */
-			int correct = 0;
-			int nomelcorrect = 0;
-			int incorrect = 0;
-			int falsePositives = 0;
-			int falseNegatives = 0;
-			int falseNegCorF0 = 0;
-			int octaveCorrect = 0;
-			int octaveNoMelCorrect = 0;
-			int octaveIncorrect = 0;
-			int octaveFalsePositives = 0;
-			int octaveFalseNegatives = 0;
-			int octaveFalseNegCorF0 = 0;
+			int numGt = PitchFrameMatcher.extractColumn(rawGtData, 1, gtF0s);
+			int numDet = PitchFrameMatcher.extractColumn(rawData, 1, detF0s);
 			
 			/* Perform evaluation */
-			int tot = rawGtData.length;
-			for (int t = 0; t < tot; t++) {
-				double gtF0 = rawGtData[t][1];
-				double detF0;
-				if (t >= rawData.length) {
-					detF0 = 0.0;
-				} else {
-					detF0 = rawData[t][1];
-				}
-
-				if ((gtF0 == 0) && (detF0 > 0)) {
-					falsePositives++;
-				} else if ((detF0 <= 0) && (gtF0 != 0)) {
-					falseNegatives++;
-					if ((-detF0 > (gtF0 / Math.pow(Math.pow(2.0, TOLERANCE),
-							(1.0 / 12.0))))
-							&& (-detF0 < (gtF0 * Math.pow(Math.pow(2.0,
-									TOLERANCE), (1.0 / 12.0))))) {
-						falseNegCorF0++;
-					}
-				} else if ((detF0 <= 0) && (gtF0 == 0)) {
-					nomelcorrect++;
-				} else if ((detF0 > (gtF0 / Math.pow(Math.pow(2.0, TOLERANCE),
-						(1.0 / 12.0))))
-						&& (detF0 < (gtF0 * Math.pow(Math.pow(2.0, TOLERANCE),
-								(1.0 / 12.0))))) {
-					correct++;
-				} else {
-					incorrect++;
-				}
-			}
-
-			/* Do one octave evaluation */
-			for (int t = 0; t < tot; t++) {
-				double gtF0 = rawGtData[t][1];
-				double detF0;
-				if (t >= rawData.length) {
-					detF0 = 0.0;
-				} else {
-					detF0 = rawData[t][1];
-				}
-
-				/* Map to one octave */
-				if (gtF0 != 0) {
-					while (!((gtF0 >= LOWER_BOUND) && (gtF0 < UPPER_BOUND))) {
-						gtF0 = (gtF0 >= UPPER_BOUND) ? (gtF0 / 2) : (gtF0 * 2);
-					}
-				}
-				if (detF0 != 0) {
-					if (detF0 > 0) {
-						while (!((detF0 >= LOWER_BOUND) && (detF0 < UPPER_BOUND))) {
-							detF0 = (detF0 >= UPPER_BOUND) ? (detF0 / 2)
-									: (detF0 * 2);
-						}
-					} else {
-						while (!((-detF0 >= LOWER_BOUND) && (-detF0 < UPPER_BOUND))) {
-							detF0 = (-detF0 >= UPPER_BOUND) ? (detF0 / 2)
-									: (detF0 * 2);
-						}
-					}
-				}
-
-				if ((gtF0 == 0) && (detF0 > 0)) {
-					octaveFalsePositives++;
-				} else if ((detF0 <= 0) && (gtF0 == 0)) {
-					octaveNoMelCorrect++;
-				} else if ((detF0 <= 0) && (gtF0 != 0)) {
-					octaveFalseNegatives++;
-					if ((-detF0 > (gtF0 / Math.pow(Math.pow(2.0, TOLERANCE),
-							(1.0 / 12.0))))
-							&& (-detF0 < (gtF0 * Math.pow(Math.pow(2.0,
-									TOLERANCE), (1.0 / 12.0))))) {
-						octaveFalseNegCorF0++;
-					}
-					/*
-					 * The following two else if's test a certain pathological
-					 * case in octave mapping. For example in mapping to the
-					 * range of [220, 440), a ground truth of 438 will stay 438
-					 * while a prediction of 442 will be mapped to 221.
-					 * Therefore we have to check if either double the
-					 * prediction or double the ground truth is within
-					 * TOLERANCE. This case will only arise in cases around the
-					 * pitch 'A' for these bounds.
-					 */
-					else if ((-2.0 * detF0 > (gtF0 / Math.pow(Math.pow(2.0,
-							TOLERANCE), (1.0 / 12.0))))
-							&& (-2.0 * detF0 < (gtF0 * Math.pow(Math.pow(2.0,
-									TOLERANCE), (1.0 / 12.0))))) {
-						octaveFalseNegCorF0++;
-					} else if ((-detF0 > (2.0 * gtF0 / Math.pow(Math.pow(2.0,
-							TOLERANCE), (1.0 / 12.0))))
-							&& (-detF0 < (2.0 * gtF0 * Math.pow(Math.pow(2.0,
-									TOLERANCE), (1.0 / 12.0))))) {
-						octaveFalseNegCorF0++;
-					}
-				} else if ((detF0 > (gtF0 / Math.pow(Math.pow(2.0, TOLERANCE),
-						(1.0 / 12.0))))
-						&& (detF0 < (gtF0 * Math.pow(Math.pow(2.0, TOLERANCE),
-								(1.0 / 12.0))))) {
-					octaveCorrect++;
-				}
-				/*
-				 * The following two else if's test a certain pathological case
-				 * in octave mapping. For example in mapping to the range of
-				 * [220, 440), a ground truth of 438 will stay 438 while a
-				 * prediction of 442 will be mapped to 221. Therefore we have to
-				 * check if either double the prediction or double the ground
-				 * truth is within TOLERANCE. This case will only arise in cases
-				 * around the pitch 'A' for these bounds.
-				 */
-				else if ((2.0 * detF0 > (gtF0 / Math.pow(Math.pow(2.0,
-						TOLERANCE), (1.0 / 12.0))))
-						&& (2.0 * detF0 < (gtF0 * Math.pow(Math.pow(2.0,
-								TOLERANCE), (1.0 / 12.0))))) {
-					octaveCorrect++;
-				} else if ((detF0 > (2.0 * gtF0 / Math.pow(Math.pow(2.0,
-						TOLERANCE), (1.0 / 12.0))))
-						&& (detF0 < (2.0 * gtF0 * Math.pow(Math.pow(2.0,
-								TOLERANCE), (1.0 / 12.0))))) {
-					octaveCorrect++;
-				} else {
-					octaveIncorrect++;
-				}
-			} 
+			matcher.match(gtF0s, numGt, detF0s, numDet);
 			
 			/* Calculate the evaluation measures for this track*/
-			int gv = correct + incorrect + falseNegatives;
-			int gu = nomelcorrect + falsePositives;
-			double vxRecall = ((double) correct + (double) incorrect)
-					/ (gv);
-			double vxFalseAlarm = (Math.max(0.001, falsePositives))
-					/ (Math.max(0.001, gu));
-			double rawPitch = ((double) correct + (double) falseNegCorF0) 
-					/ (gv); 
-			double rawChroma = ((double) octaveCorrect + (double) octaveFalseNegCorF0)
-					/ (gv);
-			double accuracy = ((double) correct + (double) nomelcorrect)
-					/ (tot);
+			double vxRecall = matcher.getVoicingRecall();
+			double vxFalseAlarm = matcher.getVoicingFalseAlarm();
+			double rawPitch = matcher.getRawPitchAccuracy();
+			double rawChroma = matcher.getRawChromaAccuracy();
+			double accuracy = matcher.getOverallAccuracy();
 			
 			vxRecallOvarall += vxRecall;
 			vxFalseAlarmOverall += vxFalseAlarm;
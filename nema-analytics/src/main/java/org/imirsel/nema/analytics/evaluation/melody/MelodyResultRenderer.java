@@ -7,8 +7,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 
+import org.imirsel.nema.analytics.evaluation.RenderPipeline;
 import org.imirsel.nema.analytics.evaluation.ResultRendererImpl;
 import org.imirsel.nema.analytics.evaluation.WriteCsvResultFiles;
 import org.imirsel.nema.analytics.evaluation.resultpages.FileListItem;
@@ -17,6 +19,7 @@ import org.imirsel.nema.analytics.evaluation.resultpages.PageItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisFunctionTimestepPlotItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.Table;
 import org.imirsel.nema.analytics.evaluation.resultpages.TableItem;
+import org.imirsel.nema.analytics.evaluation.resultpages.TimeSeriesDownsampler;
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
 import org.imirsel.nema.model.NemaDataset;
@@ -29,6 +32,9 @@ public class MelodyResultRenderer extends ResultRendererImpl {
 
 	public static final String MELODY_PLOT_EXT = ".melody.png";
 	public static final double TARGET_PLOT_RESOLUTION = 0.05;
+	/** Maximum number of points per series in the initial overview of each 
+	 * melody plot, the full resolution data is loaded in chunks on zoom. */
+	public static final int MAX_PLOT_OVERVIEW_POINTS = 2000;
 	
 	public MelodyResultRenderer() {
 		super();
@@ -39,13 +45,18 @@ public class MelodyResultRenderer extends ResultRendererImpl {
 	}
 	
 	@Override
-	public void renderResults(NemaEvaluationResultSet results) throws IOException {
+	public void renderResults(final NemaEvaluationResultSet results) throws IOException {
 		getLogger().info("Creating system result directories...");
 		Map<String, File> jobIDToResultDir = makeSystemResultDirs(results);
 		
+		RenderPipeline pipeline = createRenderPipeline(results);
+		
 		/* Write out leaderboard CSV file */
-		getLogger().info("Writing out leaderboard CSV...");
-		File leaderboardCSV = this.writeLeaderBoardCSVFile(NemaDataConstants.MELODY_OVERALL_ACCURACY, results, false);
+		RenderPipeline.Stage<File> leaderboardCSV = pipeline.add("leaderboard CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeLeaderBoardCSVFile(NemaDataConstants.MELODY_OVERALL_ACCURACY, results, false);
+			}
+		});
 
 //		/* Plot melody transcription against GT for each track result for each system */
 //		getLogger().info("Plotting transcriptions...");
@@ -62,23 +73,32 @@ public class MelodyResultRenderer extends ResultRendererImpl {
 //		}
 
 		/* Write out summary CSV */
-		getLogger().info("Writing out CSV result files over whole task...");
-		File summaryCsv = writeOverallResultsCSV(results);
+		final RenderPipeline.Stage<File> summaryCsv = pipeline.add("summary CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeOverallResultsCSV(results);
+			}
+		});
 		
 		/* Write out per track CSV for each system */
-		getLogger().info("Writing out per-system result files...");
-		Map<String, File> jobIDToPerTrackCSV = writePerTrackSystemResultCSVs(
-				results, jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerTrackCSV = addPerTrackCSVStages(
+				pipeline, results, jobIDToResultDir);
 
 		/* Create tar-balls of individual result directories */
-		getLogger().info("Preparing evaluation data tarballs...");
-		Map<String, File> jobIDToTgz = compressResultDirectories(jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToTgz = addCompressionStages(pipeline, jobIDToResultDir);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerTrackCSV);
 
 		/* Write result HTML pages */
-		getLogger().info("Creating result HTML files...");
-		writeHtmlResultPages(results,
-				/*jobIDToResultPlotFileList, */summaryCsv, jobIDToPerTrackCSV,
-				jobIDToTgz, outputDir);
+		pipeline.add("HTML pages", new Callable<Void>() {
+			public Void call() {
+				writeHtmlResultPages(results,
+						/*jobIDToResultPlotFileList, */summaryCsv.get(), RenderPipeline.values(jobIDToPerTrackCSV),
+						RenderPipeline.values(jobIDToTgz), outputDir);
+				return null;
+			}
+		}).after(leaderboardCSV).after(summaryCsv).after(jobIDToPerTrackCSV.values()).after(jobIDToTgz.values());
+		
+		getLogger().info("Rendering results...");
+		runRenderPipeline(pipeline);
 		
 		getLogger().info("Done.");
 		
@@ -337,8 +357,8 @@ public class MelodyResultRenderer extends ResultRendererImpl {
 							endTimeSecs, 
 							//current resolution of data
 							NemaDataConstants.MELODY_TIME_INC,
-							//resolution to downsample to for plotting (too many values and current plot grinds to a halt)
-							TARGET_PLOT_RESOLUTION,
+							//plot at full resolution, the overview is downsampled and detail loaded on zoom
+							NemaDataConstants.MELODY_TIME_INC,
 							//y axis label
 							"Dominant F0 (Hz)",
 							//series to plot
@@ -346,7 +366,12 @@ public class MelodyResultRenderer extends ResultRendererImpl {
 							//series names in order to plot
 							seriesNames,
 							//output dir
-							outputDir);
+							outputDir,
+							//delta-encode the time axis
+							true,
+							//keep peaks in the overview
+							TimeSeriesDownsampler.MIN_MAX_ENVELOPE,
+							MAX_PLOT_OVERVIEW_POINTS);
 					plotItems.add(plot);
 				}catch(IOException e){
 					getLogger().log(Level.SEVERE, "Failed to plot results for job " + results.getJobName(jobId) + " (" + jobId + ") for track " + result.getId(), e);
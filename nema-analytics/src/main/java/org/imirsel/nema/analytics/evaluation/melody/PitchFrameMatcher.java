@@ -0,0 +1,256 @@
+package org.imirsel.nema.analytics.evaluation.melody;
+
+/**
+ * Frame-level pitch comparison shared by the melody and multiple F0
+ * evaluators. Compares a ground-truth F0 sequence against a detected one,
+ * frame by frame, counting voicing decisions and pitches that fall within a
+ * tolerance (in semitones) of the ground-truth, both directly and after
+ * mapping both pitches into a single octave. Unvoiced frames are 0 and
+ * detections may be negative to give a pitch for a frame considered
+ * unvoiced.
+ *
+ * The tolerance ratio is computed once on construction and both the raw and
+ * the octave comparisons are made in a single pass over primitive arrays.
+ * Octaves are folded by adjusting the binary exponent, which gives exactly
+ * the same values as repeatedly halving or doubling. Instances hold only the
+ * counts from the last call to {@link #match} and may be reused across
+ * tracks, but are not thread-safe.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class PitchFrameMatcher {
+
+	private final double lowerBound;
+	private final double upperBound;
+	private final double ratio;
+	private final int lowerBoundExponent;
+
+	private int numFrames;
+	private int correct;
+	private int noMelodyCorrect;
+	private int incorrect;
+	private int falsePositives;
+	private int falseNegatives;
+	private int falseNegativeCorrectF0;
+	private int octaveCorrect;
+	private int octaveFalseNegativeCorrectF0;
+
+	/**
+	 * Constructor.
+	 * @param tolerance The tolerance in semitones within which a detected
+	 * pitch is considered correct.
+	 * @param lowerBound The lower bound (inclusive) of the octave pitches are
+	 * mapped to.
+	 * @param upperBound The upper bound (exclusive) of the octave pitches are
+	 * mapped to, which must be twice the lower bound.
+	 * @throws IllegalArgumentException Thrown if the bounds don't span an
+	 * octave.
+	 */
+	public PitchFrameMatcher(double tolerance, double lowerBound, double upperBound) throws IllegalArgumentException{
+		if (lowerBound <= 0 || upperBound != 2.0 * lowerBound){
+			throw new IllegalArgumentException("The bounds " + lowerBound + " and " + upperBound + " do not span a single octave");
+		}
+		this.lowerBound = lowerBound;
+		this.upperBound = upperBound;
+		this.ratio = Math.pow(Math.pow(2.0, tolerance), (1.0 / 12.0));
+		this.lowerBoundExponent = Math.getExponent(lowerBound);
+	}
+
+	/**
+	 * Copies one column of a 2D array of frames (time, F0, ...) into a
+	 * buffer.
+	 *
+	 * @param frames The frames.
+	 * @param column The column to extract.
+	 * @param buffer The buffer to copy into, which must have at least
+	 * frames.length elements.
+	 * @return The number of values copied.
+	 */
+	public static int extractColumn(double[][] frames, int column, double[] buffer) {
+		for (int i = 0; i < frames.length; i++) {
+			buffer[i] = frames[i][column];
+		}
+		return frames.length;
+	}
+
+	/**
+	 * Compares the first numDetected detected F0 values against the first
+	 * numGroundtruth ground-truth values, replacing the counts from any
+	 * previous call. Frames beyond the end of the detections are treated as
+	 * unvoiced.
+	 *
+	 * @param groundtruth The ground-truth F0 of each frame.
+	 * @param numGroundtruth The number of ground-truth frames.
+	 * @param detected The detected F0 of each frame.
+	 * @param numDetected The number of detected frames.
+	 */
+	public void match(double[] groundtruth, int numGroundtruth, double[] detected, int numDetected) {
+		int correct = 0;
+		int noMelodyCorrect = 0;
+		int incorrect = 0;
+		int falsePositives = 0;
+		int falseNegatives = 0;
+		int falseNegativeCorrectF0 = 0;
+		int octaveCorrect = 0;
+		int octaveFalseNegativeCorrectF0 = 0;
+
+		for (int t = 0; t < numGroundtruth; t++) {
+			double gtF0 = groundtruth[t];
+			double detF0 = t < numDetected ? detected[t] : 0.0;
+
+			if (gtF0 == 0) {
+				if (detF0 > 0) {
+					falsePositives++;
+				} else {
+					noMelodyCorrect++;
+				}
+				continue;
+			}
+
+			double lo = gtF0 / ratio;
+			double hi = gtF0 * ratio;
+			double octaveGtF0 = fold(gtF0);
+			if (detF0 <= 0) {
+				falseNegatives++;
+				if (-detF0 > lo && -detF0 < hi) {
+					falseNegativeCorrectF0++;
+				}
+				if (detF0 != 0 && octaveMatch(fold(-detF0), octaveGtF0)) {
+					octaveFalseNegativeCorrectF0++;
+				}
+			} else {
+				if (detF0 > lo && detF0 < hi) {
+					correct++;
+				} else {
+					incorrect++;
+				}
+				if (octaveMatch(fold(detF0), octaveGtF0)) {
+					octaveCorrect++;
+				}
+			}
+		}
+
+		this.numFrames = numGroundtruth;
+		this.correct = correct;
+		this.noMelodyCorrect = noMelodyCorrect;
+		this.incorrect = incorrect;
+		this.falsePositives = falsePositives;
+		this.falseNegatives = falseNegatives;
+		this.falseNegativeCorrectF0 = falseNegativeCorrectF0;
+		this.octaveCorrect = octaveCorrect;
+		this.octaveFalseNegativeCorrectF0 = octaveFalseNegativeCorrectF0;
+	}
+
+	/**
+	 * Returns true if an octave-mapped detection is within the tolerance of
+	 * an octave-mapped ground-truth pitch. Pitches either side of the octave
+	 * boundary (e.g. 438 and 442 mapped to 438 and 221 in [220, 440)) are
+	 * also matched by doubling either pitch.
+	 */
+	private boolean octaveMatch(double detF0, double gtF0) {
+		double lo = gtF0 / ratio;
+		double hi = gtF0 * ratio;
+		double detF0x2 = 2.0 * detF0;
+		return (detF0 > lo && detF0 < hi)
+				| (detF0x2 > lo && detF0x2 < hi)
+				| (detF0 > 2.0 * lo && detF0 < 2.0 * hi);
+	}
+
+	/**
+	 * Maps a positive pitch into [lowerBound, upperBound) by changing its
+	 * binary exponent, which is exact.
+	 */
+	private double fold(double f0) {
+		if (Double.isNaN(f0) || Double.isInfinite(f0)) {
+			return f0;
+		}
+		double folded = Math.scalb(f0, lowerBoundExponent - Math.getExponent(f0));
+		//subnormal inputs may need more than one correction
+		while (folded < lowerBound) {
+			folded *= 2;
+		}
+		while (folded >= upperBound) {
+			folded /= 2;
+		}
+		return folded;
+	}
+
+	public int getNumFrames() {
+		return numFrames;
+	}
+
+	public int getCorrect() {
+		return correct;
+	}
+
+	public int getNoMelodyCorrect() {
+		return noMelodyCorrect;
+	}
+
+	public int getIncorrect() {
+		return incorrect;
+	}
+
+	public int getFalsePositives() {
+		return falsePositives;
+	}
+
+	public int getFalseNegatives() {
+		return falseNegatives;
+	}
+
+	/**
+	 * @return the number of frames detected as unvoiced, but with a pitch
+	 * within the tolerance of the ground-truth.
+	 */
+	public int getFalseNegativeCorrectF0() {
+		return falseNegativeCorrectF0;
+	}
+
+	public int getOctaveCorrect() {
+		return octaveCorrect;
+	}
+
+	public int getOctaveFalseNegativeCorrectF0() {
+		return octaveFalseNegativeCorrectF0;
+	}
+
+	/**
+	 * @return the proportion of voiced frames detected as voiced.
+	 */
+	public double getVoicingRecall() {
+		return ((double) correct + (double) incorrect) / (correct + incorrect + falseNegatives);
+	}
+
+	/**
+	 * @return the proportion of unvoiced frames detected as voiced.
+	 */
+	public double getVoicingFalseAlarm() {
+		return (Math.max(0.001, falsePositives)) / (Math.max(0.001, noMelodyCorrect + falsePositives));
+	}
+
+	/**
+	 * @return the proportion of voiced frames with a pitch within the
+	 * tolerance, regardless of the voicing decision.
+	 */
+	public double getRawPitchAccuracy() {
+		return ((double) correct + (double) falseNegativeCorrectF0) / (correct + incorrect + falseNegatives);
+	}
+
+	/**
+	 * @return the proportion of voiced frames with a pitch within the
+	 * tolerance once mapped to a single octave.
+	 */
+	public double getRawChromaAccuracy() {
+		return ((double) octaveCorrect + (double) octaveFalseNegativeCorrectF0) / (correct + incorrect + falseNegatives);
+	}
+
+	/**
+	 * @return the proportion of all frames with a correct voicing decision
+	 * and, if voiced, pitch.
+	 */
+	public double getOverallAccuracy() {
+		return ((double) correct + (double) noMelodyCorrect) / (numFrames);
+	}
+}
@@ -0,0 +1,251 @@
+package org.imirsel.nema.analytics.evaluation.multif0;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.imirsel.nema.analytics.evaluation.EvaluatorImpl;
+import org.imirsel.nema.model.NemaData;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.NemaEvaluationResultSet;
+import org.imirsel.nema.model.NemaNote;
+import org.imirsel.nema.model.NemaTrackList;
+
+/**
+ * Multiple F0 note tracking evaluation. Transcribed notes are matched to the
+ * ground-truth with a {@link NoteMatcher}, both on onset and F0 alone and on
+ * onset, offset and F0, and the precision, recall, F-measure and average
+ * overlap ratio reported for each track, along with their averages over all
+ * tracks and over the tracks of each instrumentation (named by the
+ * ground-truth files). Tracks are evaluated in parallel.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class MultiF0NtEvaluator extends EvaluatorImpl {
+
+	/** Name of the instrumentation of tracks that don't declare one. */
+	public static final String UNCLASSIFIED = "Unclassified";
+
+	/** The per-track metrics, in the order they are computed. */
+	private static final String[] TRACK_METRICS = new String[]{
+		NemaDataConstants.MULTI_F0_NT_PRECISION,
+		NemaDataConstants.MULTI_F0_NT_RECALL,
+		NemaDataConstants.MULTI_F0_NT_F_MEASURE,
+		NemaDataConstants.MULTI_F0_NT_OVERLAP,
+		NemaDataConstants.MULTI_F0_NT_ONSET_PRECISION,
+		NemaDataConstants.MULTI_F0_NT_ONSET_RECALL,
+		NemaDataConstants.MULTI_F0_NT_ONSET_F_MEASURE,
+		NemaDataConstants.MULTI_F0_NT_ONSET_OVERLAP
+	};
+
+	/** The per-instrumentation metrics and the index of the track metric each averages. */
+	private static final String[] INSTRUMENT_METRICS = new String[]{
+		NemaDataConstants.MULTI_F0_NT_PRECISION_BY_INSTRUMENT,
+		NemaDataConstants.MULTI_F0_NT_RECALL_BY_INSTRUMENT,
+		NemaDataConstants.MULTI_F0_NT_F_MEASURE_BY_INSTRUMENT,
+		NemaDataConstants.MULTI_F0_NT_ONSET_PRECISION_BY_INSTRUMENT,
+		NemaDataConstants.MULTI_F0_NT_ONSET_RECALL_BY_INSTRUMENT,
+		NemaDataConstants.MULTI_F0_NT_ONSET_F_MEASURE_BY_INSTRUMENT
+	};
+	private static final int[] INSTRUMENT_METRIC_SOURCES = new int[]{0, 1, 2, 4, 5, 6};
+
+	private List<String> instrumentList = null;
+
+	/**
+	 * Constructor (no arg - task, dataset, output and working dirs, training
+	 * and test sets must be set manually).
+	 */
+	public MultiF0NtEvaluator() {
+		super();
+	}
+
+	@Override
+	protected void setupEvalMetrics() {
+		this.trackEvalMetrics.clear();
+		for (int i = 0; i < TRACK_METRICS.length; i++) {
+			this.trackEvalMetrics.add(TRACK_METRICS[i]);
+		}
+
+		this.overallEvalMetrics.clear();
+		for (int i = 0; i < TRACK_METRICS.length; i++) {
+			this.overallEvalMetrics.add(TRACK_METRICS[i]);
+		}
+
+		//same as overall metrics - single fold experiment format
+		this.foldEvalMetrics = this.overallEvalMetrics;
+	}
+
+	/**
+	 * {inheritDoc}
+	 */
+	@Override
+	public NemaEvaluationResultSet evaluate() throws IllegalArgumentException,
+			IOException {
+		String jobId;
+		String jobName;
+		int numJobs = jobIDToFoldResults.size();
+
+		//determine the instrumentations before the folds are evaluated concurrently
+		prepareEvaluation();
+
+		/*
+		 * Make sure we only have one set of results per jobId (i.e. system),
+		 * as this is not a cross-fold validated experiment */
+		checkFolds();
+
+		/* prepare NemaEvaluationResultSet*/
+		NemaEvaluationResultSet results = getEmptyEvaluationResultSet();
+
+		{
+			/* Perform the evaluations on all jobIds (systems) */
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
+
+			/* Aggregated evaluation to produce overall results */
+			Map<String, NemaData> jobIdToOverallEvaluation = new HashMap<String, NemaData>(numJobs);
+			for (Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();) {
+				jobId = it.next();
+				getLogger().info("Aggregating results for jobID: " + jobId);
+				Map<NemaTrackList,NemaData> foldEvals = jobIdToFoldEvaluation.get(jobId);
+				jobIdToOverallEvaluation.put(jobId, aggregateFoldEvaluations(jobId, foldEvals.values()));
+			}
+
+			/* Populate NemaEvaluationResultSet */
+			for (Iterator<String> it = jobIDToName.keySet().iterator(); it.hasNext();) {
+				jobId = it.next();
+				jobName = jobIDToName.get(jobId);
+				results.addCompleteResultSet(jobId, jobName, jobIdToOverallEvaluation.get(jobId), jobIdToFoldEvaluation.get(jobId), jobIDToFoldResults.get(jobId));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Determines the sorted list of instrumentations in the ground-truth.
+	 */
+	@Override
+	protected void prepareEvaluation() {
+		instrumentList = new ArrayList<String>();
+		for(NemaData gtData:this.getGroundTruth()){
+			String instrument = getInstrument(gtData);
+			if (!instrumentList.contains(instrument)) {
+				instrumentList.add(instrument);
+			}
+		}
+		//sort once here as the folds are evaluated concurrently
+		Collections.sort(instrumentList);
+	}
+
+	private static String getInstrument(NemaData gtData) {
+		if (gtData.hasMetadata(NemaDataConstants.MULTI_F0_NT_INSTRUMENT)) {
+			return gtData.getStringMetadata(NemaDataConstants.MULTI_F0_NT_INSTRUMENT);
+		}
+		return UNCLASSIFIED;
+	}
+
+	@Override
+	protected NemaData aggregateFoldEvaluations(String jobId, Collection<NemaData> foldEvals) {
+		NemaData overall = averageFoldMetrics(jobId, foldEvals);
+		NemaData[] foldData = foldEvals.toArray(new NemaData[foldEvals.size()]);
+		for (int m = 0; m < INSTRUMENT_METRICS.length; m++) {
+			double[] accum = new double[instrumentList.size()];
+			for (int i = 0; i < foldData.length; i++) {
+				double[] metricArr = foldData[i].getDoubleArrayMetadata(INSTRUMENT_METRICS[m]);
+				for (int k = 0; k < accum.length; k++) {
+					accum[k] += metricArr[k];
+				}
+			}
+			for (int k = 0; k < accum.length; k++) {
+				accum[k] /= foldData.length;
+			}
+			overall.setMetadata(INSTRUMENT_METRICS[m], accum);
+		}
+		overall.setMetadata(NemaDataConstants.MULTI_F0_NT_INSTRUMENTS, instrumentList);
+		return overall;
+	}
+
+	@Override
+	public NemaData evaluateResultFold(String jobID, NemaTrackList testSet,
+			List<NemaData> dataList) {
+		int numExamples = checkFoldResultsAreComplete(jobID, testSet, dataList);
+
+		List<TrackEvaluation> tasks = new ArrayList<TrackEvaluation>(dataList.size());
+		for(NemaData data:dataList){
+			tasks.add(new TrackEvaluation(trackIDToGT.get(data.getId()), data));
+		}
+		List<double[]> trackResults = invokeTrackTasks(tasks);
+
+		int numInstruments = instrumentList.size();
+		double[] totals = new double[TRACK_METRICS.length];
+		double[][] instrumentTotals = new double[INSTRUMENT_METRICS.length][numInstruments];
+		int[] instrumentCounts = new int[numInstruments];
+
+		for (int i = 0; i < dataList.size(); i++) {
+			NemaData data = dataList.get(i);
+			double[] trackResult = trackResults.get(i);
+			for (int m = 0; m < TRACK_METRICS.length; m++) {
+				data.setMetadata(TRACK_METRICS[m], trackResult[m]);
+				totals[m] += trackResult[m];
+			}
+			int instrumentIdx = instrumentList.indexOf(getInstrument(trackIDToGT.get(data.getId())));
+			instrumentCounts[instrumentIdx]++;
+			for (int m = 0; m < INSTRUMENT_METRICS.length; m++) {
+				instrumentTotals[m][instrumentIdx] += trackResult[INSTRUMENT_METRIC_SOURCES[m]];
+			}
+		}
+
+		NemaData outObj = new NemaData(jobID);
+		for (int m = 0; m < TRACK_METRICS.length; m++) {
+			outObj.setMetadata(TRACK_METRICS[m], totals[m] / numExamples);
+		}
+		for (int m = 0; m < INSTRUMENT_METRICS.length; m++) {
+			for (int k = 0; k < numInstruments; k++) {
+				if (instrumentCounts[k] > 0) {
+					instrumentTotals[m][k] /= instrumentCounts[k];
+				}
+			}
+			outObj.setMetadata(INSTRUMENT_METRICS[m], instrumentTotals[m]);
+		}
+		outObj.setMetadata(NemaDataConstants.MULTI_F0_NT_INSTRUMENTS, instrumentList);
+		return outObj;
+	}
+
+	/**
+	 * Evaluation of a single track, as run by
+	 * {@link EvaluatorImpl#invokeTrackTasks(List)}. Returns the metrics in
+	 * the order of {@link MultiF0NtEvaluator#TRACK_METRICS}.
+	 */
+	private static class TrackEvaluation implements Callable<double[]>{
+		private final NemaData gtData;
+		private final NemaData data;
+
+		TrackEvaluation(NemaData gtData, NemaData data){
+			this.gtData = gtData;
+			this.data = data;
+		}
+
+		@SuppressWarnings("unchecked")
+		public double[] call() {
+			NoteMatcher matcher = new NoteMatcher();
+			matcher.setGroundtruth((List<NemaNote>)gtData.getMetadata(NemaDataConstants.MULTI_F0_NT_NOTE_SEQUENCE));
+			matcher.match((List<NemaNote>)data.getMetadata(NemaDataConstants.MULTI_F0_NT_NOTE_SEQUENCE), true);
+			double[] out = new double[TRACK_METRICS.length];
+			out[0] = matcher.getPrecision();
+			out[1] = matcher.getRecall();
+			out[2] = matcher.getFMeasure();
+			out[3] = matcher.getAverageOverlap();
+			matcher.rematch(false);
+			out[4] = matcher.getPrecision();
+			out[5] = matcher.getRecall();
+			out[6] = matcher.getFMeasure();
+			out[7] = matcher.getAverageOverlap();
+			return out;
+		}
+	}
+}
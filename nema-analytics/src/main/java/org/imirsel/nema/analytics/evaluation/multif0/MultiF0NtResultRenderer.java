@@ -0,0 +1,394 @@
+package org.imirsel.nema.analytics.evaluation.multif0;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.imirsel.nema.analytics.evaluation.RenderPipeline;
+import org.imirsel.nema.analytics.evaluation.ResultRendererImpl;
+import org.imirsel.nema.analytics.evaluation.WriteCsvResultFiles;
+import org.imirsel.nema.analytics.evaluation.resultpages.FileListItem;
+import org.imirsel.nema.analytics.evaluation.resultpages.Page;
+import org.imirsel.nema.analytics.evaluation.resultpages.PageItem;
+import org.imirsel.nema.analytics.evaluation.resultpages.Table;
+import org.imirsel.nema.analytics.evaluation.resultpages.TableItem;
+import org.imirsel.nema.model.NemaData;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.NemaEvaluationResultSet;
+import org.imirsel.nema.model.NemaNote;
+import org.imirsel.nema.model.NemaTrackList;
+import org.imirsel.nema.model.util.IOUtil;
+
+/**
+ * Renders the results of a {@link MultiF0NtEvaluator} as CSV files and HTML
+ * result pages, with summary, per-instrumentation and per-track tables, or
+ * results without ground-truth as analysis pages listing the notes
+ * transcribed for each track.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class MultiF0NtResultRenderer extends ResultRendererImpl {
+
+	private static final String[] SUMMARY_METRICS = new String[]{
+		NemaDataConstants.MULTI_F0_NT_F_MEASURE,
+		NemaDataConstants.MULTI_F0_NT_PRECISION,
+		NemaDataConstants.MULTI_F0_NT_RECALL,
+		NemaDataConstants.MULTI_F0_NT_OVERLAP,
+		NemaDataConstants.MULTI_F0_NT_ONSET_F_MEASURE,
+		NemaDataConstants.MULTI_F0_NT_ONSET_PRECISION,
+		NemaDataConstants.MULTI_F0_NT_ONSET_RECALL,
+		NemaDataConstants.MULTI_F0_NT_ONSET_OVERLAP
+	};
+
+	private static final String[] INSTRUMENT_METRICS = new String[]{
+		NemaDataConstants.MULTI_F0_NT_F_MEASURE_BY_INSTRUMENT,
+		NemaDataConstants.MULTI_F0_NT_PRECISION_BY_INSTRUMENT,
+		NemaDataConstants.MULTI_F0_NT_RECALL_BY_INSTRUMENT,
+		NemaDataConstants.MULTI_F0_NT_ONSET_F_MEASURE_BY_INSTRUMENT,
+		NemaDataConstants.MULTI_F0_NT_ONSET_PRECISION_BY_INSTRUMENT,
+		NemaDataConstants.MULTI_F0_NT_ONSET_RECALL_BY_INSTRUMENT
+	};
+
+	private static final String[] INSTRUMENT_CSV_NAMES = new String[]{
+		"PerInstrumentFMeasure.csv",
+		"PerInstrumentPrecision.csv",
+		"PerInstrumentRecall.csv",
+		"PerInstrumentOnsetOnlyFMeasure.csv",
+		"PerInstrumentOnsetOnlyPrecision.csv",
+		"PerInstrumentOnsetOnlyRecall.csv"
+	};
+
+	private static final String[] NOTE_SUMMARY_COLS = new String[]{
+		"Fold", "Track", "Number of notes", "First onset (s)", "Last offset (s)", "Lowest F0 (Hz)", "Highest F0 (Hz)"
+	};
+
+	private static final String[] NOTE_LIST_COLS = new String[]{"Onset (s)", "Offset (s)", "F0 (Hz)"};
+
+	public MultiF0NtResultRenderer() {
+		super();
+	}
+
+	public MultiF0NtResultRenderer(File workingDir, File outputDir) {
+		super(workingDir, outputDir);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void renderResults(final NemaEvaluationResultSet results)
+			throws IOException {
+
+		getLogger().info("Creating system result directories...");
+		Map<String, File> jobIDToResultDir = makeSystemResultDirs(results);
+
+		RenderPipeline pipeline = createRenderPipeline(results);
+
+		/* Write out leaderboard CSV file */
+		RenderPipeline.Stage<File> leaderboardCSV = pipeline.add("leaderboard CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeLeaderBoardCSVFile(NemaDataConstants.MULTI_F0_NT_F_MEASURE, results, false);
+			}
+		});
+
+		/* Write out summary CSV and per-instrumentation CSVs */
+		final RenderPipeline.Stage<File> summaryCsv = pipeline.add("summary CSV", new Callable<File>() {
+			public File call() throws IOException {
+				File summaryCsv = new File(outputDir.getAbsolutePath() + File.separator + "summaryResults.csv");
+				WriteCsvResultFiles.writeTableToCsv(prepSummaryTable(results), summaryCsv);
+				return summaryCsv;
+			}
+		});
+
+		String firstJobId = results.getJobIds().iterator().next();
+		final List<String> instruments = (List<String>)results.getOverallEvaluation(firstJobId).getMetadata(NemaDataConstants.MULTI_F0_NT_INSTRUMENTS);
+
+		final List<RenderPipeline.Stage<File>> perInstrumentCsvs = new ArrayList<RenderPipeline.Stage<File>>(INSTRUMENT_METRICS.length);
+		for (int i = 0; i < INSTRUMENT_METRICS.length; i++) {
+			perInstrumentCsvs.add(addPerInstrumentCSVStage(pipeline, results, instruments, INSTRUMENT_METRICS[i], INSTRUMENT_CSV_NAMES[i]));
+		}
+
+		/* Write out per track CSV for each system */
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerTrackCSV = addPerTrackCSVStages(
+				pipeline, results, jobIDToResultDir);
+
+		/* Create tar-balls of individual result directories */
+		final Map<String, RenderPipeline.Stage<File>> jobIDToTgz = addCompressionStages(pipeline, jobIDToResultDir);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerTrackCSV);
+
+		/* Write result HTML pages */
+		pipeline.add("HTML pages", new Callable<Void>() {
+			public Void call() {
+				List<File> perInstrumentFiles = new ArrayList<File>(perInstrumentCsvs.size());
+				for (Iterator<RenderPipeline.Stage<File>> it = perInstrumentCsvs.iterator(); it.hasNext();) {
+					perInstrumentFiles.add(it.next().get());
+				}
+				writeResultHtmlPages(results, instruments, summaryCsv.get(), perInstrumentFiles,
+						RenderPipeline.values(jobIDToPerTrackCSV), RenderPipeline.values(jobIDToTgz), outputDir);
+				return null;
+			}
+		}).after(leaderboardCSV).after(summaryCsv).after(perInstrumentCsvs)
+				.after(jobIDToPerTrackCSV.values()).after(jobIDToTgz.values());
+
+		getLogger().info("Rendering results...");
+		runRenderPipeline(pipeline);
+
+		getLogger().info("Done.");
+	}
+
+	@Override
+	public void renderAnalysis(NemaEvaluationResultSet results) throws IOException {
+		/* Write analysis HTML pages */
+		getLogger().info("Creating result HTML files...");
+		writeHtmlAnalysisPages(results, outputDir);
+
+		getLogger().info("Done.");
+	}
+
+	private static Table prepSummaryTable(NemaEvaluationResultSet results) {
+		List<String> metrics = new ArrayList<String>(SUMMARY_METRICS.length);
+		for (int i = 0; i < SUMMARY_METRICS.length; i++) {
+			metrics.add(SUMMARY_METRICS[i]);
+		}
+		return WriteCsvResultFiles.prepSummaryTable(results.getJobIdToOverallEvaluation(), results.getJobIdToJobName(), metrics);
+	}
+
+	/**
+	 * Adds a stage writing a CSV file of a per-instrumentation metric for
+	 * each system to a rendering pipeline.
+	 */
+	private RenderPipeline.Stage<File> addPerInstrumentCSVStage(RenderPipeline pipeline,
+			final NemaEvaluationResultSet results, final List<String> instruments,
+			final String metadataKey, final String fileName) {
+		return pipeline.add("per-instrument CSV", new Callable<File>() {
+			public File call() throws IOException {
+				File csv = new File(outputDir.getAbsolutePath()+ File.separator + fileName);
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassArrays(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),instruments,metadataKey),csv);
+				return csv;
+			}
+		});
+	}
+
+	/**
+	 * Writes the analysis HTML pages for multiple jobs/algorithms, which list
+	 * the notes transcribed for each track, as there is no ground-truth to
+	 * evaluate them against.
+	 *
+	 * @param results   The NemaEvaluationResultSet to write analysis pages for.
+	 * @param outputDir directory to write the HTML pages to.
+	 */
+	private void writeHtmlAnalysisPages(NemaEvaluationResultSet results, File outputDir) {
+		String jobId;
+		List<Page> analysisPages = new ArrayList<Page>();
+		List<PageItem> items;
+		Page aPage;
+
+		TableItem legendTable = createLegendTable(results);
+
+		//do intro page to describe task
+		{
+			analysisPages.add(createIntroHtmlPage(results,legendTable));
+		}
+
+		/* Do per system pages */
+		{
+			for (Iterator<String> it = results.getJobIds().iterator(); it.hasNext();) {
+				jobId = it.next();
+				items = new ArrayList<PageItem>();
+				TableItem filtLegend = filterLegendTable(legendTable, jobId);
+				if(filtLegend != null){
+					items.add(filtLegend);
+				}
+				Map<NemaTrackList,List<NemaData>> sysResults = results.getPerTrackEvaluationAndResults(jobId);
+
+				/* Add per track summary table and the notes transcribed for each track */
+				List<String[]> summaryRows = new ArrayList<String[]>();
+				List<PageItem> noteTables = new ArrayList<PageItem>();
+				for (Iterator<NemaTrackList> foldIt = results.getTestSetTrackLists().iterator(); foldIt.hasNext();) {
+					NemaTrackList testSet = foldIt.next();
+					List<NemaData> trackResults = sysResults.get(testSet);
+					if (trackResults == null){
+						continue;
+					}
+					for (Iterator<NemaData> trackIt = trackResults.iterator(); trackIt.hasNext();) {
+						NemaData track = trackIt.next();
+						summaryRows.add(prepNoteSummaryRow(testSet, track));
+						noteTables.add(createNoteListTable(jobId, track));
+					}
+				}
+				items.add(new TableItem(results.getJobName(jobId) + "_notes", results.getJobName(jobId)
+						+ " Notes Transcribed per Track", NOTE_SUMMARY_COLS, summaryRows));
+				items.addAll(noteTables);
+
+				aPage = new Page(results.getJobName(jobId) + "_results", results.getJobName(jobId),
+						items, true);
+				analysisPages.add(aPage);
+			}
+		}
+
+		Page.writeResultPages(results.getTask().getName(), outputDir, analysisPages);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<NemaNote> getNotes(NemaData track) {
+		List<NemaNote> notes = (List<NemaNote>)track.getMetadata(NemaDataConstants.MULTI_F0_NT_NOTE_SEQUENCE);
+		if (notes == null){
+			return new ArrayList<NemaNote>();
+		}
+		return notes;
+	}
+
+	/**
+	 * Summarises the notes transcribed for a track: the number of notes, the
+	 * time they span and their range of fundamental frequencies.
+	 */
+	private static String[] prepNoteSummaryRow(NemaTrackList testSet, NemaData track) {
+		List<NemaNote> notes = getNotes(track);
+		if (notes.isEmpty()){
+			return new String[]{"" + testSet.getFoldNumber(), track.getId(), "0", "", "", "", ""};
+		}
+		double firstOnset = Double.POSITIVE_INFINITY;
+		double lastOffset = Double.NEGATIVE_INFINITY;
+		double minF0 = Double.POSITIVE_INFINITY;
+		double maxF0 = Double.NEGATIVE_INFINITY;
+		for (Iterator<NemaNote> it = notes.iterator(); it.hasNext();) {
+			NemaNote note = it.next();
+			firstOnset = Math.min(firstOnset, note.getOnset());
+			lastOffset = Math.max(lastOffset, note.getOffset());
+			minF0 = Math.min(minF0, note.getF0());
+			maxF0 = Math.max(maxF0, note.getF0());
+		}
+		DecimalFormat dec = new DecimalFormat("0.000");
+		return new String[]{"" + testSet.getFoldNumber(), track.getId(), "" + notes.size(),
+				dec.format(firstOnset), dec.format(lastOffset), dec.format(minF0), dec.format(maxF0)};
+	}
+
+	/**
+	 * Creates a table listing the notes transcribed for a track.
+	 */
+	private static TableItem createNoteListTable(String jobId, NemaData track) {
+		List<NemaNote> notes = getNotes(track);
+		List<String[]> rows = new ArrayList<String[]>(notes.size());
+		DecimalFormat dec = new DecimalFormat("0.000");
+		for (Iterator<NemaNote> it = notes.iterator(); it.hasNext();) {
+			NemaNote note = it.next();
+			rows.add(new String[]{dec.format(note.getOnset()), dec.format(note.getOffset()), dec.format(note.getF0())});
+		}
+		return new TableItem(jobId + "_" + track.getId() + "_notes", "Notes transcribed for " + track.getId(),
+				NOTE_LIST_COLS, rows);
+	}
+
+	/**
+	 * Writes the result HTML pages for the evaluation of multiple jobs/algorithms
+	 *
+	 * @param results                   The NemaEvaluationResultSet to write results pages for.
+	 * @param instruments               The instrumentations the results are broken down by.
+	 * @param summaryCsv 				the summary csv file that summarizes all jobs.
+	 * @param perInstrumentCsvs 		the per-instrumentation csv files, in the order of INSTRUMENT_METRICS.
+	 * @param jobIDToPerTrackCSV 		map of jobId to individual per-track results csv files for that job.
+	 * @param jobIDToTgz 				map of jobId to the tar-balls of individual job results.
+	 * @param outputDir                 directory to write the HTML pages to.
+	 */
+	private void writeResultHtmlPages(NemaEvaluationResultSet results, List<String> instruments,
+			File summaryCsv, List<File> perInstrumentCsvs,
+			Map<String, File> jobIDToPerTrackCSV, Map<String, File> jobIDToTgz, File outputDir) {
+		String jobId;
+		List<Page> resultPages = new ArrayList<Page>();
+		List<PageItem> items;
+		Page aPage;
+		int numJobs = results.getJobIds().size();
+
+		TableItem legendTable = createLegendTable(results);
+
+		//do intro page to describe task
+		{
+			resultPages.add(createIntroHtmlPage(results,legendTable));
+		}
+
+		/* Do summary page */
+		{
+			items = new ArrayList<PageItem>();
+			items.add(legendTable);
+			Table summaryTable = prepSummaryTable(results);
+			items.add(new TableItem("summary_results", "Summary Results",
+					summaryTable.getColHeaders(), summaryTable.getRows()));
+			aPage = new Page("summary", "Summary", items, false);
+			resultPages.add(aPage);
+		}
+
+		/* Do per instrumentation page */
+		{
+			items = new ArrayList<PageItem>();
+			items.add(legendTable);
+			for (int i = 0; i < INSTRUMENT_METRICS.length; i++) {
+				Table table = WriteCsvResultFiles.prepTableDataOverClassArrays(
+						results.getJobIdToOverallEvaluation(), results.getJobIdToJobName(),
+						instruments, INSTRUMENT_METRICS[i]);
+				items.add(new TableItem("instrument_" + i, INSTRUMENT_METRICS[i],
+						table.getColHeaders(), table.getRows()));
+			}
+			aPage = new Page("results_per_instrument", "Results per Instrumentation", items, false);
+			resultPages.add(aPage);
+		}
+
+		/* Do per system pages */
+		{
+			for (Iterator<String> it = results.getJobIds().iterator(); it.hasNext();) {
+				jobId = it.next();
+				items = new ArrayList<PageItem>();
+				TableItem filtLegend = filterLegendTable(legendTable, jobId);
+				if(filtLegend != null){
+					items.add(filtLegend);
+				}
+				Map<NemaTrackList,List<NemaData>> sysResults = results.getPerTrackEvaluationAndResults(jobId);
+
+				/* Add per track table */
+				Table perTrackTable = WriteCsvResultFiles.prepTableDataOverTracks(
+						results.getTestSetTrackLists(), sysResults,
+						results.getTrackEvalMetricsAndResultsKeys()
+					);
+
+				items.add(new TableItem(results.getJobName(jobId) + "_results", results.getJobName(jobId)
+						+ " Per Track Results", perTrackTable.getColHeaders(),
+						perTrackTable.getRows()));
+
+				aPage = new Page(results.getJobName(jobId) + "_results", results.getJobName(jobId),
+						items, true);
+				resultPages.add(aPage);
+			}
+		}
+
+		/* Do files page */
+		{
+			items = new ArrayList<PageItem>();
+
+			/* CSVs */
+			List<String> CSVPaths = new ArrayList<String>(numJobs + 1 + perInstrumentCsvs.size());
+			CSVPaths.add(IOUtil.makeRelative(summaryCsv, outputDir));
+			for (Iterator<File> it = perInstrumentCsvs.iterator(); it.hasNext();) {
+				CSVPaths.add(IOUtil.makeRelative(it.next(), outputDir));
+			}
+			for (Iterator<String> it = results.getJobIds().iterator(); it.hasNext();) {
+				jobId = it.next();
+				CSVPaths.add(IOUtil.makeRelative(jobIDToPerTrackCSV.get(jobId), outputDir));
+			}
+			items.add(new FileListItem("dataCSVs", "CSV result files", CSVPaths));
+
+			/* System tar-balls */
+			List<String> tarballPaths = new ArrayList<String>(numJobs);
+			for (Iterator<String> it = results.getJobIds().iterator(); it.hasNext();) {
+				jobId = it.next();
+				tarballPaths.add(IOUtil.makeRelative(jobIDToTgz.get(jobId), outputDir));
+			}
+			items.add(new FileListItem("tarballs", "Per algorithm evaluation tarball", tarballPaths));
+			aPage = new Page("files", "Raw data files", items, true);
+			resultPages.add(aPage);
+		}
+
+		Page.writeResultPages(results.getTask().getName(), outputDir, resultPages);
+	}
+}
@@ -0,0 +1,256 @@
+package org.imirsel.nema.analytics.evaluation.multif0;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.imirsel.nema.model.NemaNote;
+
+/**
+ * Matches a sequence of transcribed notes against a sequence of ground-truth
+ * notes, one-to-one, following the MIREX note tracking criteria. A transcribed
+ * note matches a ground-truth note if its onset is within the onset tolerance
+ * (50ms) and its F0 within the pitch tolerance (a quarter-tone) of the
+ * ground-truth note. When offsets are also matched its offset must
+ * additionally be within 20% of the ground-truth note's duration or the onset
+ * tolerance, whichever is larger.
+ *
+ * Both sequences are copied into primitive arrays sorted by onset. The
+ * ground-truth notes that could match a transcribed note then form a
+ * contiguous run of the sorted array, found by binary search on its onset,
+ * so each note is only compared to the notes sounding within the tolerance of
+ * its onset and the cost is near-linear in the length of the sequences,
+ * rather than quadratic. Where several unmatched ground-truth notes qualify
+ * the one with the closest onset is matched. Instances hold the ground-truth
+ * and the counts from the last call to {@link #match(List, boolean)} and may
+ * be reused across tracks, but are not thread-safe.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class NoteMatcher {
+
+	/** The default onset tolerance in seconds. */
+	public static final double DEFAULT_ONSET_TOLERANCE = 0.05;
+	/** The default offset tolerance, as a proportion of the note duration. */
+	public static final double DEFAULT_OFFSET_RATIO = 0.2;
+	/** The default pitch tolerance in semitones. */
+	public static final double DEFAULT_PITCH_TOLERANCE = 0.5;
+
+	private static final Comparator<NemaNote> ONSET_ORDER = new Comparator<NemaNote>() {
+		public int compare(NemaNote a, NemaNote b) {
+			return Double.compare(a.getOnset(), b.getOnset());
+		}
+	};
+
+	private double onsetTolerance;
+	private double offsetRatio;
+	private double maxF0Ratio;
+
+	private double[] gtOnsets = new double[0];
+	private double[] gtOffsets = new double[0];
+	private double[] gtF0s = new double[0];
+	private boolean[] gtMatched = new boolean[0];
+	private int numGroundtruth;
+
+	private double[] detOnsets = new double[0];
+	private double[] detOffsets = new double[0];
+	private double[] detF0s = new double[0];
+	private int numDetections;
+
+	private int correct;
+	private double sumOverlap;
+
+	/**
+	 * Constructor, using the MIREX tolerances.
+	 */
+	public NoteMatcher() {
+		this(DEFAULT_ONSET_TOLERANCE, DEFAULT_OFFSET_RATIO, DEFAULT_PITCH_TOLERANCE);
+	}
+
+	/**
+	 * Constructor.
+	 * @param onsetTolerance The maximum difference (in seconds) between the
+	 * onsets of matching notes, also the minimum offset tolerance.
+	 * @param offsetRatio The offset tolerance as a proportion of the
+	 * ground-truth note's duration.
+	 * @param pitchTolerance The maximum difference (in semitones) between the
+	 * F0s of matching notes.
+	 */
+	public NoteMatcher(double onsetTolerance, double offsetRatio, double pitchTolerance) {
+		this.onsetTolerance = onsetTolerance;
+		this.offsetRatio = offsetRatio;
+		this.maxF0Ratio = Math.pow(2.0, pitchTolerance / 12.0);
+	}
+
+	/**
+	 * Sets the ground-truth notes to match against.
+	 * @param groundtruth The ground-truth notes, in any order.
+	 */
+	public void setGroundtruth(List<NemaNote> groundtruth) {
+		numGroundtruth = groundtruth.size();
+		if (gtOnsets.length < numGroundtruth) {
+			gtOnsets = new double[numGroundtruth];
+			gtOffsets = new double[numGroundtruth];
+			gtF0s = new double[numGroundtruth];
+			gtMatched = new boolean[numGroundtruth];
+		}
+		copySorted(groundtruth, gtOnsets, gtOffsets, gtF0s);
+	}
+
+	/**
+	 * Matches transcribed notes against the ground-truth, replacing the
+	 * counts from any previous call.
+	 * @param detections The transcribed notes, in any order.
+	 * @param matchOffsets Flag indicating whether offsets must also match.
+	 */
+	public void match(List<NemaNote> detections, boolean matchOffsets) {
+		numDetections = detections.size();
+		if (detOnsets.length < numDetections) {
+			detOnsets = new double[numDetections];
+			detOffsets = new double[numDetections];
+			detF0s = new double[numDetections];
+		}
+		copySorted(detections, detOnsets, detOffsets, detF0s);
+		matchSorted(matchOffsets);
+	}
+
+	/**
+	 * Re-matches the transcribed notes passed to the last call to
+	 * {@link #match(List, boolean)}, e.g. to score the same transcription
+	 * with and without offsets, replacing the counts.
+	 * @param matchOffsets Flag indicating whether offsets must also match.
+	 */
+	public void rematch(boolean matchOffsets) {
+		matchSorted(matchOffsets);
+	}
+
+	private void matchSorted(boolean matchOffsets) {
+		correct = 0;
+		sumOverlap = 0.0;
+		Arrays.fill(gtMatched, 0, numGroundtruth, false);
+
+		double minF0Ratio = 1.0 / maxF0Ratio;
+		for (int d = 0; d < numDetections; d++) {
+			double onset = detOnsets[d];
+			double offset = detOffsets[d];
+			double f0 = detF0s[d];
+			int best = -1;
+			double bestDistance = Double.MAX_VALUE;
+			for (int g = lowerBound(onset - onsetTolerance); g < numGroundtruth && gtOnsets[g] <= onset + onsetTolerance; g++) {
+				if (gtMatched[g]) {
+					continue;
+				}
+				double ratio = f0 / gtF0s[g];
+				if (ratio < minF0Ratio || ratio > maxF0Ratio) {
+					continue;
+				}
+				if (matchOffsets) {
+					double offsetTolerance = Math.max(onsetTolerance, offsetRatio * (gtOffsets[g] - gtOnsets[g]));
+					if (Math.abs(offset - gtOffsets[g]) > offsetTolerance) {
+						continue;
+					}
+				}
+				double distance = Math.abs(onset - gtOnsets[g]);
+				if (distance < bestDistance) {
+					best = g;
+					bestDistance = distance;
+				}
+			}
+			if (best != -1) {
+				gtMatched[best] = true;
+				correct++;
+				double union = Math.max(offset, gtOffsets[best]) - Math.min(onset, gtOnsets[best]);
+				double intersection = Math.min(offset, gtOffsets[best]) - Math.max(onset, gtOnsets[best]);
+				if (union <= 0.0) {
+					//zero length notes at the same time
+					sumOverlap += 1.0;
+				} else if (intersection > 0.0) {
+					sumOverlap += intersection / union;
+				}
+			}
+		}
+	}
+
+	/** Returns the index of the first ground-truth onset >= time. */
+	private int lowerBound(double time) {
+		int lo = 0;
+		int hi = numGroundtruth;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (gtOnsets[mid] < time) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private static void copySorted(List<NemaNote> notes, double[] onsets, double[] offsets, double[] f0s) {
+		NemaNote[] sorted = notes.toArray(new NemaNote[notes.size()]);
+		Arrays.sort(sorted, ONSET_ORDER);
+		for (int i = 0; i < sorted.length; i++) {
+			onsets[i] = sorted[i].getOnset();
+			offsets[i] = sorted[i].getOffset();
+			f0s[i] = sorted[i].getF0();
+		}
+	}
+
+	/**
+	 * @return the number of ground-truth notes.
+	 */
+	public int getNumGroundtruth() {
+		return numGroundtruth;
+	}
+
+	/**
+	 * @return the number of transcribed notes.
+	 */
+	public int getNumDetections() {
+		return numDetections;
+	}
+
+	/**
+	 * @return the number of transcribed notes matched to a ground-truth note.
+	 */
+	public int getCorrect() {
+		return correct;
+	}
+
+	/**
+	 * @return the precision, the proportion of transcribed notes that were
+	 * matched.
+	 */
+	public double getPrecision() {
+		return numDetections == 0 ? 0.0 : (double)correct / numDetections;
+	}
+
+	/**
+	 * @return the recall, the proportion of ground-truth notes that were
+	 * matched.
+	 */
+	public double getRecall() {
+		return numGroundtruth == 0 ? 0.0 : (double)correct / numGroundtruth;
+	}
+
+	/**
+	 * @return the F-measure, the harmonic mean of precision and recall.
+	 */
+	public double getFMeasure() {
+		double precision = getPrecision();
+		double recall = getRecall();
+		if (precision == 0.0 || recall == 0.0) {
+			return 0.0;
+		}
+		return (2 * precision * recall) / (precision + recall);
+	}
+
+	/**
+	 * @return the mean overlap ratio (the duration of the intersection over
+	 * the duration of the union) of the matched notes.
+	 */
+	public double getAverageOverlap() {
+		return correct == 0 ? 0.0 : sumOverlap / correct;
+	}
+}
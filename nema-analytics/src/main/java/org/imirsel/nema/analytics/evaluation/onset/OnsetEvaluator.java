@@ -3,6 +3,7 @@ package org.imirsel.nema.analytics.evaluation.onset;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -23,6 +24,8 @@ public class OnsetEvaluator extends EvaluatorImpl {
 	private static final double TOLERANCE = 0.05;
 
 	private List<String> classList = null;
+
+	private double[] tolerances = null;
 	
 	/**
 	 * Constructor (no arg - task, dataset, output and working dirs, training
@@ -42,27 +45,8 @@ public class OnsetEvaluator extends EvaluatorImpl {
 		String jobName;
 		int numJobs = jobIDToFoldResults.size();
 
-		classList = new ArrayList<String>();
-		
-		// First determine number of unique classes/instrumentations
-		for(NemaData gtData:this.getGroundTruth()){
-			if (gtData.hasMetadata(NemaDataConstants.ONSET_DETECTION_CLASS)) {
-				String className = gtData.getStringMetadata(NemaDataConstants.ONSET_DETECTION_CLASS);
-				if (!classList.contains(className)) {
-					classList.add(className);
-				}	
-			} else {
-				String className = "Unclassified";
-				if (!classList.contains(className)) {
-					classList.add(className);
-				}
-				
-			}
-		}
-		
-		
-		/* Check all systems have just one result set */
-		Map<NemaTrackList,List<NemaData>> sysResults;
+		//determine the classes before the folds are evaluated concurrently
+		prepareEvaluation();
 
 		/* 
 		 * Make sure we only have one set of results per jobId (i.e. system), 
@@ -73,23 +57,14 @@ public class OnsetEvaluator extends EvaluatorImpl {
 		NemaEvaluationResultSet results = getEmptyEvaluationResultSet();
 
 		{
-			/* keep track of the classes */
-			Set<String> classNames = null;
-			
 			/* Perform the evaluations on all jobIds (systems) */
-			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
-			for (Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();) {
-				jobId = it.next();
-				getLogger().info("Evaluating experiment for jobID: " + jobId);
-				sysResults = jobIDToFoldResults.get(jobId);
-				Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
-				for (Iterator<NemaTrackList> trackIt = sysResults.keySet().iterator(); trackIt.hasNext();) {
-					//make sure we use the evaluators copy of the track list
-					NemaTrackList trackList = testSets.get(testSets.indexOf(trackIt.next()));
-					NemaData result = evaluateResultFold(jobId, trackList, sysResults.get(trackList));
-					
-					//check classes here - must be same across all folds/jobs
-					List<String> classes = (List<String>)result.getMetadata(NemaDataConstants.ONSET_DETECTION_CLASSES);
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
+			
+			/* check classes here - must be same across all folds/jobs */
+			Set<String> classNames = null;
+			for (Iterator<Map<NemaTrackList,NemaData>> it = jobIdToFoldEvaluation.values().iterator(); it.hasNext();) {
+				for (Iterator<NemaData> foldIt = it.next().values().iterator(); foldIt.hasNext();) {
+					List<String> classes = (List<String>)foldIt.next().getMetadata(NemaDataConstants.ONSET_DETECTION_CLASSES);
 					if(classNames == null){
 						classNames = new HashSet<String>(classes);
 					}else{
@@ -97,12 +72,7 @@ public class OnsetEvaluator extends EvaluatorImpl {
 							throw new IllegalArgumentException("");
 						}
 					}
-					
-					
-					
-					foldEvals.put(trackList, result);
 				}
-				jobIdToFoldEvaluation.put(jobId, foldEvals);
 			}
 
 			/* Aggregated evaluation to produce overall results */
@@ -111,16 +81,7 @@ public class OnsetEvaluator extends EvaluatorImpl {
 				jobId = it.next();
 				getLogger().info("Aggregating results for jobID: " + jobId);
 				Map<NemaTrackList,NemaData> foldEvals = jobIdToFoldEvaluation.get(jobId);
-				List<String> metricsSingle = new ArrayList<String>();
-				metricsSingle.add(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE);
-				metricsSingle.add(NemaDataConstants.ONSET_DETECTION_AVG_PRECISION);
-				metricsSingle.add(NemaDataConstants.ONSET_DETECTION_AVG_RECALL);
-				List<String> metricsArray = new ArrayList<String>();
-				metricsArray.add(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE_BY_CLASS);
-				metricsArray.add(NemaDataConstants.ONSET_DETECTION_AVG_PRECISION_BY_CLASS);
-				metricsArray.add(NemaDataConstants.ONSET_DETECTION_AVG_RECALL_BY_CLASS);
-				NemaData overall = averageFoldMetrics(jobId, foldEvals.values(), metricsSingle, metricsArray, classList, NemaDataConstants.ONSET_DETECTION_CLASSES);
-				jobIdToOverallEvaluation.put(jobId, overall);
+				jobIdToOverallEvaluation.put(jobId, aggregateFoldEvaluations(jobId, foldEvals.values()));
 			}
 
 			/* Populate NemaEvaluationResultSet */
@@ -133,6 +94,48 @@ public class OnsetEvaluator extends EvaluatorImpl {
 		return results;
 	}
 
+	/**
+	 * Determines the list of onset classes (instrumentations) in the 
+	 * ground-truth.
+	 */
+	@Override
+	protected void prepareEvaluation() {
+		classList = new ArrayList<String>();
+		
+		// First determine number of unique classes/instrumentations
+		for(NemaData gtData:this.getGroundTruth()){
+			if (gtData.hasMetadata(NemaDataConstants.ONSET_DETECTION_CLASS)) {
+				String className = gtData.getStringMetadata(NemaDataConstants.ONSET_DETECTION_CLASS);
+				if (!classList.contains(className)) {
+					classList.add(className);
+				}	
+			} else {
+				String className = "Unclassified";
+				if (!classList.contains(className)) {
+					classList.add(className);
+				}
+				
+			}
+		}
+		//sort once here as the folds are evaluated concurrently
+		Collections.sort(classList);
+	}
+
+	@Override
+	protected NemaData aggregateFoldEvaluations(String jobId, Collection<NemaData> foldEvals) {
+		List<String> metricsSingle = new ArrayList<String>();
+		metricsSingle.add(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE);
+		metricsSingle.add(NemaDataConstants.ONSET_DETECTION_AVG_PRECISION);
+		metricsSingle.add(NemaDataConstants.ONSET_DETECTION_AVG_RECALL);
+		List<String> metricsArray = new ArrayList<String>();
+		metricsArray.add(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE_BY_CLASS);
+		metricsArray.add(NemaDataConstants.ONSET_DETECTION_AVG_PRECISION_BY_CLASS);
+		metricsArray.add(NemaDataConstants.ONSET_DETECTION_AVG_RECALL_BY_CLASS);
+		NemaData overall = averageFoldMetrics(jobId, foldEvals, metricsSingle, metricsArray, classList, NemaDataConstants.ONSET_DETECTION_CLASSES);
+		averageFoldArrayMetrics(overall, foldEvals, NemaDataConstants.ONSET_DETECTION_TOLERANCES, getSweepMetrics());
+		return overall;
+	}
+
 	@Override
 	public NemaData evaluateResultFold(String jobID, NemaTrackList testSet,
 			List<NemaData> dataList) {
@@ -141,8 +144,6 @@ public class OnsetEvaluator extends EvaluatorImpl {
 
 		NemaData gtData;
 		
-		Collections.sort(classList);
-		
 		// Compute number of classes. We will create also a class "Total" hence the +1 if there are no distinct classes
 		int numClasses = 0;
 		if (!classList.isEmpty()) {
@@ -199,6 +200,29 @@ public class OnsetEvaluator extends EvaluatorImpl {
 		double meanAbsDistance = 0.0;
 		double meanDistance = 0.0;
 
+		OnsetMatcher matcher = new OnsetMatcher(TOLERANCE);
+		double[] gtBuffer = new double[0];
+
+		//one matcher per tolerance, each run over the same extracted onsets
+		OnsetMatcher[] sweepMatchers = null;
+		double[] sweepFMeasure = null;
+		double[] sweepRecall = null;
+		double[] sweepPrecision = null;
+		double[] fileSweepFMeasure = null;
+		double[] fileSweepRecall = null;
+		double[] fileSweepPrecision = null;
+		if (tolerances != null) {
+			sweepMatchers = new OnsetMatcher[tolerances.length];
+			for (int s = 0; s < tolerances.length; s++) {
+				sweepMatchers[s] = new OnsetMatcher(tolerances[s]);
+			}
+			sweepFMeasure = new double[tolerances.length];
+			sweepRecall = new double[tolerances.length];
+			sweepPrecision = new double[tolerances.length];
+			fileSweepFMeasure = new double[tolerances.length];
+			fileSweepRecall = new double[tolerances.length];
+			fileSweepPrecision = new double[tolerances.length];
+		}
 
 		for(NemaData data:dataList){
 			gtData = trackIDToGT.get(data.getId());
@@ -209,6 +233,9 @@ public class OnsetEvaluator extends EvaluatorImpl {
 				rawData[i] = rawData2D[i][0];
 			}
 			int numAnnotators = rawGtData2D[0].length;
+			if (gtBuffer.length < rawGtData2D.length) {
+				gtBuffer = new double[rawGtData2D.length];
+			}
 			
 			//Check which class it is if they exist. Find it in the classList and get the index. 
 			// We are reserving the 0th element for the total, overall, hence the + 1
@@ -231,95 +258,24 @@ public class OnsetEvaluator extends EvaluatorImpl {
             int totFNForFile = 0;
             int totMergedForFile = 0;
             int totDoubledForFile = 0;
+            if (sweepMatchers != null) {
+            	Arrays.fill(fileSweepFMeasure, 0.0);
+            	Arrays.fill(fileSweepRecall, 0.0);
+            	Arrays.fill(fileSweepPrecision, 0.0);
+            }
             
 			for (int curGT = 0; curGT < numAnnotators; curGT++) {
-				ArrayList<Double> gtDataArr = new ArrayList<Double>();
-				for (int t=0; t<rawGtData2D.length; t++) {
-					double onTime = rawGtData2D[t][curGT];
-					if (!Double.isNaN(onTime)) {
-						gtDataArr.add(new Double(rawGtData2D[t][curGT]));
-					}
-				}
-				double[] rawGtData = new double[gtDataArr.size()];
-				for(int i = 0; i < rawGtData.length; i++) {
-					rawGtData[i] = gtDataArr.get(i).doubleValue();
-				}
-
-				int correct = 0;
-				int doubled = 0;
-				int merged = 0;
-				int falsePositives = 0;
-				int falseNegatives = 0;
-
-				int count = 0;
-				for (int t=0; t<rawGtData.length; t++) {
-					double onTime = rawGtData[t];
-					{
-						// if we've allocated scores for everything in the detection, but there's more to go in the ground truth
-						// they will be falseNegatives
-						if(count > rawData.length - 1) {
-							falseNegatives++;
-						}
-						// main loop
-						for (int c=count;c<rawData.length;c++) {
-							if (Math.abs(rawData[c] - onTime) < TOLERANCE) {
-								correct++;
-								meanAbsDistance += Math.abs(rawData[c] - onTime);
-								meanDistance += onTime - rawData[c];
-								count = c+1;
-								for (int c1=count;c1<rawData.length;c1++) {
-									if (t < rawGtData.length - 1) {
-										double onTime2 = rawGtData[t+1];
-										// we're checking for doubles in the next predicted value in regards to the current ground truth.
-										// first though, we check that the next prediction doesn't lie in the tolerance of the next truth.
-										if (Math.abs(rawData[c1] - onTime2) < TOLERANCE) {
-											break;
-										}
-										if (Math.abs(rawData[c1] - onTime) < TOLERANCE) {
-											doubled++;
-										}
-									}
-								}
-								break;
-							} else if (rawData[c] > (onTime + TOLERANCE)) {
-								//System.out.println("false neg c: " + c + " t: " + t + " truth time: " + onTime + " test time: " + testSig.getData()[testOnsetCol][c]);
-								falseNegatives++;
-								count = c;
-								break;
-							}
-							// if we've allocated scores for everything in the detection, but there's more to go in the ground truth
-							// they will be falseNegatives
-							if(c == rawData.length - 1){
-								falseNegatives++;
-							}
+				int numGt = OnsetMatcher.extractColumn(rawGtData2D, curGT, gtBuffer);
+				matcher.match(gtBuffer, numGt, rawData, rawData.length);
 
-						}
-					}
-				}
-				int count2 = 0;
-				for (int c=0;c<rawData.length;c++) {
-					double onTime = rawData[c];
-					for (int t=count2; t<rawGtData.length; t++) {					
-						if (Math.abs(rawGtData[t] - onTime) < TOLERANCE) {
-							count2 = t+1;
-							for (int c1=count2;c1<rawGtData.length;c1++) {
-								if(c < rawData.length - 1) {
-									double onTime2 = rawData[c+1];
-
-									if (Math.abs(rawGtData[c1] - onTime2) < TOLERANCE) {
-										break;
-									}
-								}
-								if (Math.abs(rawGtData[c1] - onTime) < TOLERANCE) {
-									merged++;
-								}
-							}
-							break;
-						}
-					}
-				} 
+				int correct = matcher.getCorrect();
+				int doubled = matcher.getDoubled();
+				int merged = matcher.getMerged();
+				int falsePositives = matcher.getFalsePositives();
+				int falseNegatives = matcher.getFalseNegatives();
+				meanAbsDistance += matcher.getSumAbsDistance();
+				meanDistance += matcher.getSumDistance();
 
-				falsePositives = rawData.length - correct;
 				totalCorrect += correct;
 				totalFalseNegatives += falseNegatives;
 				totalFalsePositives += falsePositives;
@@ -327,15 +283,15 @@ public class OnsetEvaluator extends EvaluatorImpl {
 				totalMerged += merged;
 
 				numInDetFiles += rawData.length;
-				numInGTFiles += rawGtData.length;
+				numInGTFiles += numGt;
 
 				double precision = 0.0;
 				double recall = 0.0;
 				if (rawData.length > 0) {
 					precision = (((double)correct/(double)rawData.length));
 				}
-				if (rawGtData.length > 0) {
-					recall = (((double)correct/(double)rawGtData.length));
+				if (numGt > 0) {
+					recall = (((double)correct/(double)numGt));
 				}
 				double fmeasure = 0.0;
 				if (recall != 0.0 && precision != 0.0) {
@@ -357,6 +313,32 @@ public class OnsetEvaluator extends EvaluatorImpl {
 				totMergedForFile += merged;
 				totDoubledForFile += doubled;
 
+				if (sweepMatchers != null) {
+					for (int s = 0; s < sweepMatchers.length; s++) {
+						sweepMatchers[s].match(gtBuffer, numGt, rawData, rawData.length);
+						int sweepCorrect = sweepMatchers[s].getCorrect();
+						double sweepPrec = 0.0;
+						double sweepRec = 0.0;
+						if (rawData.length > 0) {
+							sweepPrec = (double)sweepCorrect/(double)rawData.length;
+						}
+						if (numGt > 0) {
+							sweepRec = (double)sweepCorrect/(double)numGt;
+						}
+						if (sweepRec != 0.0 && sweepPrec != 0.0) {
+							fileSweepFMeasure[s] += (2 * sweepRec * sweepPrec)/(sweepRec + sweepPrec);
+						}
+						fileSweepRecall[s] += sweepRec;
+						fileSweepPrecision[s] += sweepPrec;
+					}
+				}
+			}
+			if (sweepMatchers != null) {
+				for (int s = 0; s < sweepMatchers.length; s++) {
+					sweepFMeasure[s] += fileSweepFMeasure[s]/(double)numAnnotators;
+					sweepRecall[s] += fileSweepRecall[s]/(double)numAnnotators;
+					sweepPrecision[s] += fileSweepPrecision[s]/(double)numAnnotators;
+				}
 			}
 			avgFMeasureForFile = avgFMeasureForFile/(double)numAnnotators;
 			avgRecForFile = avgRecForFile/(double)numAnnotators;
@@ -416,6 +398,17 @@ public class OnsetEvaluator extends EvaluatorImpl {
 		outObj.setMetadata(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE_BY_CLASS, classFMeasures);
 		outObj.setMetadata(NemaDataConstants.ONSET_DETECTION_AVG_RECALL_BY_CLASS, classRecalls);
 		outObj.setMetadata(NemaDataConstants.ONSET_DETECTION_AVG_PRECISION_BY_CLASS, classPrecisions);
+		if (sweepMatchers != null) {
+			for (int s = 0; s < sweepMatchers.length; s++) {
+				sweepFMeasure[s] /= numExamples;
+				sweepRecall[s] /= numExamples;
+				sweepPrecision[s] /= numExamples;
+			}
+			outObj.setMetadata(NemaDataConstants.ONSET_DETECTION_TOLERANCES, tolerances.clone());
+			outObj.setMetadata(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE_BY_TOLERANCE, sweepFMeasure);
+			outObj.setMetadata(NemaDataConstants.ONSET_DETECTION_AVG_RECALL_BY_TOLERANCE, sweepRecall);
+			outObj.setMetadata(NemaDataConstants.ONSET_DETECTION_AVG_PRECISION_BY_TOLERANCE, sweepPrecision);
+		}
 		return outObj;
 	}
 
@@ -440,6 +433,41 @@ public class OnsetEvaluator extends EvaluatorImpl {
 
 	}
 	
+	/**
+	 * Sets the tolerance windows (in seconds) to sweep, in addition to the
+	 * standard 50ms window. When set, the average F-measure, precision and
+	 * recall are also computed at each tolerance and stored as arrays in the
+	 * fold and overall evaluations, indexed by the array held under
+	 * {@link NemaDataConstants#ONSET_DETECTION_TOLERANCES}.
+	 *
+	 * @param tolerances the tolerances to sweep or null to disable the sweep.
+	 * @since 0.4.1
+	 */
+	public void setTolerances(double[] tolerances) {
+		this.tolerances = tolerances;
+	}
+
+	/**
+	 * @return the tolerance windows swept or null if the sweep is disabled.
+	 * @since 0.4.1
+	 */
+	public double[] getTolerances() {
+		return tolerances;
+	}
+
+	@Override
+	protected String getCacheParameters() {
+		return "tolerances=" + Arrays.toString(tolerances);
+	}
+
+	private static List<String> getSweepMetrics() {
+		List<String> metrics = new ArrayList<String>();
+		metrics.add(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE_BY_TOLERANCE);
+		metrics.add(NemaDataConstants.ONSET_DETECTION_AVG_PRECISION_BY_TOLERANCE);
+		metrics.add(NemaDataConstants.ONSET_DETECTION_AVG_RECALL_BY_TOLERANCE);
+		return metrics;
+	}
+
 	public NemaData averageFoldMetrics(String jobId, Collection<NemaData> perFoldEvaluations, List<String> metricsSingle, List<String> metricsArray, List<String> classes, String classesKey){
 		NemaData[] foldData = perFoldEvaluations.toArray(new NemaData[perFoldEvaluations.size()]);
 		NemaData overall = new NemaData(jobId);
@@ -0,0 +1,216 @@
+package org.imirsel.nema.analytics.evaluation.onset;
+
+/**
+ * Matches a sequence of detected onsets against a sequence of ground-truth
+ * onsets within a tolerance window, counting correct detections, false
+ * positives, false negatives, doubled detections (extra detections in the
+ * window of a matched onset) and merged onsets (extra ground-truth onsets in
+ * the window of a matched detection).
+ *
+ * Both sequences must be sorted in ascending order. Matching is performed
+ * with a pair of forward-only pointers over primitive arrays, so the cost is
+ * linear in the length of the sequences rather than quadratic. Instances
+ * hold only the counts from the last call to {@link #match} and may be reused
+ * across annotators and tracks, but are not thread-safe.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class OnsetMatcher {
+
+	private double tolerance;
+
+	private int correct;
+	private int falsePositives;
+	private int falseNegatives;
+	private int doubled;
+	private int merged;
+	private double sumAbsDistance;
+	private double sumDistance;
+
+	/**
+	 * Constructor.
+	 * @param tolerance The half-width of the window (in seconds) within which
+	 * a detection is considered to match a ground-truth onset.
+	 */
+	public OnsetMatcher(double tolerance) {
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Copies the non-NaN values of one column of a 2D onset array into a
+	 * buffer, as used to hold the onsets of a single annotator.
+	 *
+	 * @param onsets2D The onset array, one column per annotator.
+	 * @param column The column to extract.
+	 * @param buffer The buffer to copy into, which must have at least
+	 * onsets2D.length elements.
+	 * @return The number of onsets copied.
+	 */
+	public static int extractColumn(double[][] onsets2D, int column, double[] buffer) {
+		int count = 0;
+		for (int i = 0; i < onsets2D.length; i++) {
+			double onset = onsets2D[i][column];
+			if (!Double.isNaN(onset)) {
+				buffer[count++] = onset;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Matches the first numDetections detections against the first
+	 * numGroundtruth ground-truth onsets, replacing the counts from any
+	 * previous call.
+	 *
+	 * @param groundtruth Sorted ground-truth onset times.
+	 * @param numGroundtruth The number of ground-truth onsets to use.
+	 * @param detections Sorted detected onset times.
+	 * @param numDetections The number of detections to use.
+	 */
+	public void match(double[] groundtruth, int numGroundtruth, double[] detections, int numDetections) {
+		correct = 0;
+		falseNegatives = 0;
+		doubled = 0;
+		merged = 0;
+		sumAbsDistance = 0.0;
+		sumDistance = 0.0;
+
+		matchGroundtruth(groundtruth, numGroundtruth, detections, numDetections);
+		countMerged(groundtruth, numGroundtruth, detections, numDetections);
+
+		falsePositives = numDetections - correct;
+	}
+
+	/**
+	 * Matches each ground-truth onset to the next unused detection in its
+	 * window, counting misses and doubled detections. Detections that fall
+	 * before the window of a ground-truth onset can never match a later onset,
+	 * so the scan resumes after them.
+	 */
+	private void matchGroundtruth(double[] gt, int m, double[] det, int n) {
+		int count = 0;
+		int early = 0;
+		for (int t = 0; t < m; t++) {
+			double onTime = gt[t];
+			boolean resolved = false;
+			early = Math.max(count, early);
+			for (int c = early; c < n; c++) {
+				double diff = det[c] - onTime;
+				if (Math.abs(diff) < tolerance) {
+					correct++;
+					sumAbsDistance += Math.abs(diff);
+					sumDistance -= diff;
+					count = c + 1;
+					if (t < m - 1) {
+						countDoubled(det, n, count, onTime, gt[t + 1]);
+					}
+					resolved = true;
+					break;
+				} else if (det[c] > (onTime + tolerance)) {
+					falseNegatives++;
+					count = c;
+					resolved = true;
+					break;
+				} else if (c == early && det[c] < onTime) {
+					early++;
+				}
+			}
+			if (!resolved) {
+				falseNegatives++;
+			}
+		}
+	}
+
+	/**
+	 * Counts further detections in the window of a matched onset, stopping at
+	 * the first that falls in the window of the next onset.
+	 */
+	private void countDoubled(double[] det, int n, int from, double onTime, double nextOnTime) {
+		for (int c = from; c < n; c++) {
+			if (Math.abs(det[c] - nextOnTime) < tolerance) {
+				return;
+			}
+			if (Math.abs(det[c] - onTime) < tolerance) {
+				doubled++;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Matches each detection to the next unused ground-truth onset in its
+	 * window and counts further ground-truth onsets in the same window,
+	 * stopping at the first that falls in the window of the next detection.
+	 */
+	private void countMerged(double[] gt, int m, double[] det, int n) {
+		int count = 0;
+		int early = 0;
+		for (int c = 0; c < n; c++) {
+			double onTime = det[c];
+			early = Math.max(count, early);
+			for (int t = early; t < m; t++) {
+				if (Math.abs(gt[t] - onTime) < tolerance) {
+					count = t + 1;
+					for (int t1 = count; t1 < m; t1++) {
+						if (c < n - 1 && Math.abs(gt[t1] - det[c + 1]) < tolerance) {
+							break;
+						}
+						if (Math.abs(gt[t1] - onTime) < tolerance) {
+							merged++;
+						} else {
+							break;
+						}
+					}
+					break;
+				} else if (gt[t] > onTime) {
+					//this and all later onsets are beyond the window
+					break;
+				} else if (t == early) {
+					early++;
+				}
+			}
+		}
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	public int getCorrect() {
+		return correct;
+	}
+
+	public int getFalsePositives() {
+		return falsePositives;
+	}
+
+	public int getFalseNegatives() {
+		return falseNegatives;
+	}
+
+	public int getDoubled() {
+		return doubled;
+	}
+
+	public int getMerged() {
+		return merged;
+	}
+
+	/**
+	 * @return the sum of the absolute distances between matched onsets and
+	 * detections.
+	 */
+	public double getSumAbsDistance() {
+		return sumAbsDistance;
+	}
+
+	/**
+	 * @return the sum of the signed distances (ground-truth minus detection)
+	 * between matched onsets and detections.
+	 */
+	public double getSumDistance() {
+		return sumDistance;
+	}
+}
@@ -8,8 +8,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 
+import org.imirsel.nema.analytics.evaluation.RenderPipeline;
 import org.imirsel.nema.analytics.evaluation.ResultRendererImpl;
 import org.imirsel.nema.analytics.evaluation.WriteCsvResultFiles;
 import org.imirsel.nema.analytics.evaluation.resultpages.FileListItem;
@@ -40,59 +42,89 @@ public class OnsetResultRenderer extends ResultRendererImpl {
 	}
 	
 	@Override
-	public void renderResults(NemaEvaluationResultSet results)
+	public void renderResults(final NemaEvaluationResultSet results)
 			throws IOException {
 		
 		getLogger().info("Creating system result directories...");
 		Map<String, File> jobIDToResultDir = makeSystemResultDirs(results);
 		String jobId;
 		
+		RenderPipeline pipeline = createRenderPipeline(results);
+		
 		/* Write out leaderboard CSV file */
-		getLogger().info("Writing out leaderboard CSV...");
-		File leaderboardCSV = this.writeLeaderBoardCSVFile(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE, results, false);
+		RenderPipeline.Stage<File> leaderboardCSV = pipeline.add("leaderboard CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeLeaderBoardCSVFile(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE, results, false);
+			}
+		});
 		
 		/* Write out summary CSV and per-class CSV */
-		getLogger().info("Writing out CSV result files over whole task...");
-		List<String> metrics = new ArrayList<String>();
+		final List<String> metrics = new ArrayList<String>();
 		metrics.add(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE);
 		metrics.add(NemaDataConstants.ONSET_DETECTION_AVG_PRECISION);
 		metrics.add(NemaDataConstants.ONSET_DETECTION_AVG_RECALL);
 		
-		File summaryCsv = new File(outputDir.getAbsolutePath() + File.separator + "summaryResults.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepSummaryTable(results.getJobIdToOverallEvaluation(), results.getJobIdToJobName(), metrics), summaryCsv);
+		final RenderPipeline.Stage<File> summaryCsv = pipeline.add("summary CSV", new Callable<File>() {
+			public File call() throws IOException {
+				File summaryCsv = new File(outputDir.getAbsolutePath() + File.separator + "summaryResults.csv");
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepSummaryTable(results.getJobIdToOverallEvaluation(), results.getJobIdToJobName(), metrics), summaryCsv);
+				return summaryCsv;
+			}
+		});
 		
 		jobId = results.getJobIds().iterator().next();
 		NemaData aggregateEval = results.getOverallEvaluation(jobId);
-		List<String> classNames = (List<String>)aggregateEval.getMetadata(NemaDataConstants.ONSET_DETECTION_CLASSES);
-		
-		File perClassFMeasureCsv = new File(outputDir.getAbsolutePath()+ File.separator + "PerClassFMeasure.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassArrays(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),classNames,NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE_BY_CLASS),perClassFMeasureCsv);
+		final List<String> classNames = (List<String>)aggregateEval.getMetadata(NemaDataConstants.ONSET_DETECTION_CLASSES);
 		
-		File perClassPrecisionCsv = new File(outputDir.getAbsolutePath()+ File.separator + "PerClassPrecision.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassArrays(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),classNames,NemaDataConstants.ONSET_DETECTION_AVG_PRECISION_BY_CLASS),perClassPrecisionCsv);
-		
-		File perClassRecallCsv = new File(outputDir.getAbsolutePath()+ File.separator + "PerClassRecall.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassArrays(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),classNames,NemaDataConstants.ONSET_DETECTION_AVG_RECALL_BY_CLASS),perClassRecallCsv);
+		final RenderPipeline.Stage<File> perClassFMeasureCsv = addPerClassCSVStage(pipeline, results, classNames, 
+				NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE_BY_CLASS, "PerClassFMeasure.csv");
+		final RenderPipeline.Stage<File> perClassPrecisionCsv = addPerClassCSVStage(pipeline, results, classNames, 
+				NemaDataConstants.ONSET_DETECTION_AVG_PRECISION_BY_CLASS, "PerClassPrecision.csv");
+		final RenderPipeline.Stage<File> perClassRecallCsv = addPerClassCSVStage(pipeline, results, classNames, 
+				NemaDataConstants.ONSET_DETECTION_AVG_RECALL_BY_CLASS, "PerClassRecall.csv");
 		
 		/* Write out per track CSV for each system */
-		getLogger().info("Writing out per-system result files...");
-		Map<String, File> jobIDToPerTrackCSV = writePerTrackSystemResultCSVs(
-				results, jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerTrackCSV = addPerTrackCSVStages(
+				pipeline, results, jobIDToResultDir);
 
 		/* Create tar-balls of individual result directories */
-		getLogger().info("Preparing evaluation data tarballs...");
-		Map<String, File> jobIDToTgz = compressResultDirectories(jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToTgz = addCompressionStages(pipeline, jobIDToResultDir);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerTrackCSV);
 
 		/* Write result HTML pages */
-		getLogger().info("Creating result HTML files...");
-		writeResultHtmlPages(results, classNames,
-				/*jobIDToResultPlotFileList, */summaryCsv, perClassFMeasureCsv, 
-				perClassPrecisionCsv, perClassRecallCsv, jobIDToPerTrackCSV,
-				jobIDToTgz, outputDir);
+		pipeline.add("HTML pages", new Callable<Void>() {
+			public Void call() {
+				writeResultHtmlPages(results, classNames,
+						/*jobIDToResultPlotFileList, */summaryCsv.get(), perClassFMeasureCsv.get(), 
+						perClassPrecisionCsv.get(), perClassRecallCsv.get(), RenderPipeline.values(jobIDToPerTrackCSV),
+						RenderPipeline.values(jobIDToTgz), outputDir);
+				return null;
+			}
+		}).after(leaderboardCSV).after(summaryCsv).after(perClassFMeasureCsv).after(perClassPrecisionCsv)
+				.after(perClassRecallCsv).after(jobIDToPerTrackCSV.values()).after(jobIDToTgz.values());
+		
+		getLogger().info("Rendering results...");
+		runRenderPipeline(pipeline);
 		
 		getLogger().info("Done.");
 		
 	}
+	
+	/**
+	 * Adds a stage writing a CSV file of a per-class metric for each system
+	 * to a rendering pipeline.
+	 */
+	private RenderPipeline.Stage<File> addPerClassCSVStage(RenderPipeline pipeline, 
+			final NemaEvaluationResultSet results, final List<String> classNames, 
+			final String metadataKey, final String fileName) {
+		return pipeline.add("per-class CSV", new Callable<File>() {
+			public File call() throws IOException {
+				File csv = new File(outputDir.getAbsolutePath()+ File.separator + fileName);
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassArrays(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),classNames,metadataKey),csv);
+				return csv;
+			}
+		});
+	}
 
 	@Override
 	public void renderAnalysis(NemaEvaluationResultSet results) throws IOException {
@@ -210,6 +242,16 @@ public class OnsetResultRenderer extends ResultRendererImpl {
 			
 			items.add(new TableItem("summary_results", "Summary Results",
 					summaryTable.getColHeaders(), summaryTable.getRows()));
+			
+			String[] sweepMetrics = new String[]{NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE_BY_TOLERANCE, 
+					NemaDataConstants.ONSET_DETECTION_AVG_PRECISION_BY_TOLERANCE, NemaDataConstants.ONSET_DETECTION_AVG_RECALL_BY_TOLERANCE};
+			for (int i = 0; i < sweepMetrics.length; i++) {
+				PageItem sweepPlot = plotToleranceSweep(NemaDataConstants.ONSET_DETECTION_TOLERANCES, sweepMetrics[i], 
+						results, "tolerance_sweep_" + i, sweepMetrics[i], "Tolerance window (secs)");
+				if (sweepPlot != null){
+					items.add(sweepPlot);
+				}
+			}
 			aPage = new Page("summary", "Summary", items, false);
 			resultPages.add(aPage);
 		}
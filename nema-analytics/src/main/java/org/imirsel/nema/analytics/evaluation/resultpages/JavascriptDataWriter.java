@@ -0,0 +1,452 @@
+package org.imirsel.nema.analytics.evaluation.resultpages;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Streams Javascript data declarations (variables holding arrays, objects,
+ * numbers and strings) for plot items to a Writer, rather than building them
+ * up in a String. Numbers are formatted to a fixed number of decimal places
+ * (with trailing zeros dropped) into a reused buffer.
+ *
+ * Time axes can also be written delta-encoded, as integer steps of the
+ * smallest decimal place, which the functions in {@link #DECODER_SCRIPT}
+ * decode on the page. For example a 10 ms time axis is written as
+ * <code>[0,10,10,10,...]</code> at 3 decimal places.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class JavascriptDataWriter implements Closeable {
+
+	/** The default number of decimal places numbers are written to. */
+	public static final int DEFAULT_DECIMAL_PLACES = 3;
+
+	/**
+	 * Script declaring the functions used to decode delta-encoded data, to be
+	 * added to the head of pages that load delta-encoded data files.
+	 */
+	public static final String DECODER_SCRIPT =
+		"<script type=\"text/javascript\">\n" +
+		"	function nema_decodeDeltas(deltas, decimals){\n" +
+		"		var scale = Math.pow(10, decimals), out = new Array(deltas.length), ticks = 0;\n" +
+		"		for (var i = 0; i < deltas.length; i++){\n" +
+		"			ticks += deltas[i];\n" +
+		"			out[i] = ticks / scale;\n" +
+		"		}\n" +
+		"		return out;\n" +
+		"	}\n" +
+		"	function nema_decodeDeltaSeries(series, decimals){\n" +
+		"		var out = new Array(series.length);\n" +
+		"		for (var s = 0; s < series.length; s++){\n" +
+		"			out[s] = nema_decodeDeltas(series[s], decimals);\n" +
+		"		}\n" +
+		"		return out;\n" +
+		"	}\n" +
+		"	function nema_decodeFunctionSeries(series, decimals){\n" +
+		"		var out = new Array(series.length);\n" +
+		"		for (var s = 0; s < series.length; s++){\n" +
+		"			var x = nema_decodeDeltas(series[s].x, decimals), y = series[s].y, points = new Array(x.length);\n" +
+		"			for (var i = 0; i < x.length; i++){\n" +
+		"				points[i] = {x: x[i], y: y[i]};\n" +
+		"			}\n" +
+		"			out[s] = points;\n" +
+		"		}\n" +
+		"		return out;\n" +
+		"	}\n" +
+		"</script>\n\n";
+
+	private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L,
+		10000000L, 100000000L, 1000000000L};
+	/* largest scaled magnitude that can be rounded to a long exactly */
+	private static final double MAX_SCALED = 9.0E15;
+	private static final int MAX_DEPTH = 64;
+
+	private final Writer out;
+	private final char[] digits = new char[20];
+	private final boolean[] hasElements = new boolean[MAX_DEPTH];
+	private int depth = 0;
+	private boolean afterKey = false;
+	private boolean lineBreak = false;
+
+	/**
+	 * Creates a writer for a Javascript data file.
+	 * @param file The file to write to.
+	 * @throws IOException Thrown if the file can't be opened.
+	 */
+	public JavascriptDataWriter(File file) throws IOException {
+		this(new BufferedWriter(new FileWriter(file), 64 * 1024));
+	}
+
+	/**
+	 * Creates a writer.
+	 * @param out The Writer to stream the data to, which should be buffered.
+	 */
+	public JavascriptDataWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Starts a variable declaration, which should be followed by a single
+	 * value (or array or object) and {@link #endVar()}.
+	 * @param name The variable name.
+	 * @throws IOException
+	 */
+	public void beginVar(String name) throws IOException {
+		if (depth != 0){
+			throw new IllegalStateException("Variables can only be declared at the top level, current depth: " + depth);
+		}
+		out.write("var ");
+		out.write(name);
+		out.write(" = ");
+		afterKey = true;
+	}
+
+	/**
+	 * Starts a variable declaration whose value is the result of calling a
+	 * function, e.g. to decode delta-encoded data. Should be followed by the
+	 * arguments and {@link #endCall()}.
+	 * @param name The variable name.
+	 * @param function The function to call.
+	 * @throws IOException
+	 */
+	public void beginVarCall(String name, String function) throws IOException {
+		beginVar(name);
+		beginCall(function);
+	}
+
+	/**
+	 * Starts a function call, either as a value or, at the top level, as a
+	 * statement (which should be ended with {@link #endStatement()}). Should
+	 * be followed by the arguments and {@link #endCall()}.
+	 * @param function The function to call.
+	 * @throws IOException
+	 */
+	public void beginCall(String function) throws IOException {
+		separator();
+		out.write(function);
+		out.write('(');
+		push();
+	}
+
+	/**
+	 * Ends the arguments of a function call started with
+	 * {@link #beginCall(String)} or {@link #beginVarCall(String, String)}.
+	 * @throws IOException
+	 */
+	public void endCall() throws IOException {
+		pop();
+		out.write(')');
+	}
+
+	/**
+	 * Ends a variable declaration.
+	 * @throws IOException
+	 */
+	public void endVar() throws IOException {
+		endStatement();
+	}
+
+	/**
+	 * Ends a top-level statement, such as a variable declaration or function
+	 * call.
+	 * @throws IOException
+	 */
+	public void endStatement() throws IOException {
+		if (depth != 0){
+			throw new IllegalStateException("Unclosed arrays or objects at depth: " + depth);
+		}
+		out.write(";\n");
+		afterKey = false;
+	}
+
+	public void beginArray() throws IOException {
+		separator();
+		out.write('[');
+		push();
+	}
+
+	public void endArray() throws IOException {
+		pop();
+		out.write(']');
+	}
+
+	public void beginObject() throws IOException {
+		separator();
+		out.write('{');
+		push();
+	}
+
+	public void endObject() throws IOException {
+		pop();
+		out.write('}');
+	}
+
+	/**
+	 * Writes the key of the next field of an object, which should be a
+	 * valid Javascript identifier.
+	 * @param key The key.
+	 * @throws IOException
+	 */
+	public void key(String key) throws IOException {
+		separator();
+		out.write(key);
+		out.write(':');
+		afterKey = true;
+	}
+
+	/**
+	 * Writes a line break, which is ignored by Javascript but makes long
+	 * arrays easier to read. Within an array or object the break is written
+	 * after the comma preceding the next element, if there is one.
+	 * @throws IOException
+	 */
+	public void newLine() throws IOException {
+		if (depth == 0){
+			out.write('\n');
+		}else{
+			lineBreak = true;
+		}
+	}
+
+	/**
+	 * Writes a number to the default number of decimal places.
+	 * @param value The number.
+	 * @throws IOException
+	 */
+	public void value(double value) throws IOException {
+		value(value, DEFAULT_DECIMAL_PLACES);
+	}
+
+	/**
+	 * Writes a number to a number of decimal places, dropping trailing zeros.
+	 * @param value The number.
+	 * @param decimalPlaces The number of decimal places (0-9).
+	 * @throws IOException
+	 */
+	public void value(double value, int decimalPlaces) throws IOException {
+		separator();
+		writeNumber(value, decimalPlaces);
+	}
+
+	public void value(long value) throws IOException {
+		separator();
+		writeLong(value);
+	}
+
+	public void value(boolean value) throws IOException {
+		separator();
+		out.write(value ? "true" : "false");
+	}
+
+	/**
+	 * Writes a quoted string, escaping quotes, backslashes and control
+	 * characters.
+	 * @param value The string, or null.
+	 * @throws IOException
+	 */
+	public void value(String value) throws IOException {
+		separator();
+		if (value == null){
+			out.write("null");
+			return;
+		}
+		out.write('"');
+		int len = value.length();
+		for (int i = 0; i < len; i++) {
+			char c = value.charAt(i);
+			switch (c){
+				case '"': out.write("\\\""); break;
+				case '\\': out.write("\\\\"); break;
+				case '\n': out.write("\\n"); break;
+				case '\r': out.write("\\r"); break;
+				case '\t': out.write("\\t"); break;
+				default:
+					if (c < 0x20 || c == '<' || c == 0x2028 || c == 0x2029){
+						//also escapes '<' so that the data can't close a script tag
+						out.write("\\u");
+						String hex = Integer.toHexString(c);
+						for (int p = hex.length(); p < 4; p++) {
+							out.write('0');
+						}
+						out.write(hex);
+					}else{
+						out.write(c);
+					}
+			}
+		}
+		out.write('"');
+	}
+
+	/**
+	 * Writes an array of numbers.
+	 * @param values The numbers.
+	 * @param decimalPlaces The number of decimal places to write them to.
+	 * @throws IOException
+	 */
+	public void array(double[] values, int decimalPlaces) throws IOException {
+		beginArray();
+		for (int i = 0; i < values.length; i++) {
+			value(values[i], decimalPlaces);
+		}
+		endArray();
+	}
+
+	/**
+	 * Writes an array of strings.
+	 * @param values The strings.
+	 * @throws IOException
+	 */
+	public void array(List<String> values) throws IOException {
+		beginArray();
+		for (int i = 0; i < values.size(); i++) {
+			value(values.get(i));
+		}
+		endArray();
+	}
+
+	/**
+	 * Writes an array of numbers (e.g. a time axis) delta-encoded: each
+	 * number is rounded to an integer count of the smallest decimal place
+	 * and the first count followed by the difference between each count and
+	 * the last is written. Decoded on the page by
+	 * <code>nema_decodeDeltas(deltas, decimalPlaces)</code>. As the counts
+	 * are summed as integers no rounding error accumulates.
+	 * @param values The numbers.
+	 * @param decimalPlaces The number of decimal places to preserve.
+	 * @throws IOException
+	 */
+	public void deltaArray(double[] values, int decimalPlaces) throws IOException {
+		checkDecimalPlaces(decimalPlaces);
+		long scale = POWERS_OF_TEN[decimalPlaces];
+		beginArray();
+		long last = 0L;
+		for (int i = 0; i < values.length; i++) {
+			double scaled = values[i] * scale;
+			if (Double.isNaN(scaled) || Math.abs(scaled) >= MAX_SCALED){
+				throw new IllegalArgumentException("Value " + values[i] + " at index " + i + " can't be delta-encoded to " + decimalPlaces + " decimal places");
+			}
+			long ticks = Math.round(scaled);
+			value(ticks - last);
+			last = ticks;
+		}
+		endArray();
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void push() {
+		if (depth == MAX_DEPTH - 1){
+			throw new IllegalStateException("Maximum nesting depth exceeded: " + MAX_DEPTH);
+		}
+		depth++;
+		hasElements[depth] = false;
+		afterKey = false;
+	}
+
+	private void pop() {
+		if (depth == 0){
+			throw new IllegalStateException("No array, object or call to end");
+		}
+		depth--;
+		afterKey = false;
+		lineBreak = false;
+	}
+
+	/**
+	 * Writes a comma before the second and subsequent elements of an array
+	 * or object, but not between a key and its value.
+	 */
+	private void separator() throws IOException {
+		if (afterKey){
+			afterKey = false;
+			return;
+		}
+		if (depth > 0){
+			if (hasElements[depth]){
+				out.write(',');
+				if (lineBreak){
+					out.write('\n');
+				}
+			}
+			hasElements[depth] = true;
+		}
+		lineBreak = false;
+	}
+
+	private static void checkDecimalPlaces(int decimalPlaces) {
+		if (decimalPlaces < 0 || decimalPlaces >= POWERS_OF_TEN.length){
+			throw new IllegalArgumentException("The number of decimal places must be between 0 and " + (POWERS_OF_TEN.length - 1) + ", received: " + decimalPlaces);
+		}
+	}
+
+	private void writeNumber(double value, int decimalPlaces) throws IOException {
+		checkDecimalPlaces(decimalPlaces);
+		if (Double.isNaN(value)){
+			out.write("NaN");
+			return;
+		}
+		if (Double.isInfinite(value)){
+			out.write(value > 0 ? "Infinity" : "-Infinity");
+			return;
+		}
+		long scale = POWERS_OF_TEN[decimalPlaces];
+		double scaled = Math.abs(value) * scale;
+		if (scaled >= MAX_SCALED){
+			out.write(Double.toString(value));
+			return;
+		}
+		long rounded = Math.round(scaled);
+		if (rounded == 0L){
+			out.write('0');
+			return;
+		}
+		if (value < 0){
+			out.write('-');
+		}
+		writeLong(rounded / scale);
+		long fraction = rounded % scale;
+		if (fraction != 0L){
+			int places = decimalPlaces;
+			while (fraction % 10L == 0L){
+				fraction /= 10L;
+				places--;
+			}
+			out.write('.');
+			int pos = digits.length;
+			for (int i = 0; i < places; i++) {
+				digits[--pos] = (char)('0' + (fraction % 10L));
+				fraction /= 10L;
+			}
+			out.write(digits, pos, digits.length - pos);
+		}
+	}
+
+	private void writeLong(long value) throws IOException {
+		if (value == Long.MIN_VALUE){
+			out.write(Long.toString(value));
+			return;
+		}
+		if (value < 0){
+			out.write('-');
+			value = -value;
+		}
+		int pos = digits.length;
+		do{
+			digits[--pos] = (char)('0' + (value % 10L));
+			value /= 10L;
+		}while (value != 0L);
+		out.write(digits, pos, digits.length - pos);
+	}
+}
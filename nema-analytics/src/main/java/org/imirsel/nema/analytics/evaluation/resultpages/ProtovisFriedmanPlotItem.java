@@ -0,0 +1,161 @@
+package org.imirsel.nema.analytics.evaluation.resultpages;
+
+import org.imirsel.nema.analytics.evaluation.FriedmanResult;
+
+/**
+ * A PageItem implementation for plotting the mean ranks of systems from a
+ * Friedman's ANOVA with Tukey-Kramer HSD comparisons. Each system is plotted
+ * with an interval around its mean rank, such that the intervals of two
+ * systems do not overlap if they are significantly different.
+ *
+ * Implements Javascript rendering using Protovis.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class ProtovisFriedmanPlotItem extends PageItem{
+
+	private FriedmanResult result;
+
+	public ProtovisFriedmanPlotItem(String name, String caption, FriedmanResult result){
+		super(name,caption);
+		this.setResult(result);
+	}
+
+	@Override
+	public String getHeadStaticDeclarations(){
+		String out = "<script type=\"text/javascript\" src=\"protovis-r3.2.js\"></script>\n";
+		return out;
+	}
+
+	@Override
+	public String getHeadData(){
+		return "";
+	}
+
+	@Override
+	public String getBodyData(boolean topLink){
+		String out = "\t<a name=\"" + getName() + "\"></a>\n" +
+		"\t<h4>" + getCaption();
+		if (topLink){
+			out += "&nbsp;&nbsp;&nbsp;&nbsp;<span class=\"toplink\"><a href=\"#top\">[top]</a></span>";
+		}
+		out += "</h4>\n";
+		out += 	"\t<div id=\"center\">\n" +
+				"\t\t<div style=\"width: 900px; height: 470px; padding: 2px; margin: 3px; border-width: 1px; border-color: black; border-style:solid;\">\n" +
+				"\t\t\t<script type=\"text/javascript+protovis\">\n";
+		out +=  "\t\t\tvar " + getName() + " = new function() {\n";
+
+		//setup data
+		String i = "\t\t\t\t";
+
+		String[] systemNames = result.getSystemNames();
+		double[] meanRanks = result.getMeanRanks();
+		int numSystems = systemNames.length;
+
+		out += i + "var systemNames = [";
+		for (int j = 0; j < numSystems; j++) {
+			out += "\"" + systemNames[j].replaceAll("\"", "\\\\\"") + "\"";
+			if (j < numSystems-1){
+				out += ",";
+			}
+		}
+		out += "];\n";
+
+		out += i + "var meanRanks = [";
+		for (int j = 0; j < numSystems; j++) {
+			out += meanRanks[j];
+			if (j < numSystems-1){
+				out += ",";
+			}
+		}
+		out += "];\n";
+		out += i + "var width = " + result.getPlotIntervalHalfWidth() + ";\n\n";
+
+		out += i + "/* Scales and sizing. */\n";
+		out += i + "var w = 870,\n";
+		out += i + "    h = 280,\n";
+		out += i + "    x = pv.Scale.ordinal(pv.range(" + numSystems + ")).splitBanded(0, w, 4/5),\n";
+		out += i + "    y = pv.Scale.linear(pv.min(meanRanks) - width, pv.max(meanRanks) + width).range(0, h).nice();\n\n";
+
+		out += i + "/* Root panel. */\n";
+		out += i + "var vis = new pv.Panel()\n";
+		out += i + "    .width(w)\n";
+		out += i + "    .height(h)\n";
+		out += i + "    .bottom(170)\n";
+		out += i + "    .left(30)\n";
+		out += i + "    .right(5)\n";
+		out += i + "    .top(15);\n\n";
+
+		out += i + "/* Y ticks. */\n";
+		out += i + "vis.add(pv.Rule)\n";
+		out += i + "    .data(y.ticks())\n";
+		out += i + "    .bottom(function(d) Math.round(y(d)) - .5)\n";
+		out += i + "    .strokeStyle(\"#eee\")\n";
+		out += i + "  .anchor(\"left\").add(pv.Label)\n";
+		out += i + "    .text(y.tickFormat);\n\n";
+
+		out += i + "/* Intervals around the mean ranks. */\n";
+		out += i + "var interval = vis.add(pv.Rule)\n";
+		out += i + "    .data(meanRanks)\n";
+		out += i + "    .left(function() x(this.index) + x.range().band / 2)\n";
+		out += i + "    .bottom(function(d) y(d - width))\n";
+		out += i + "    .height(function(d) y(d + width) - y(d - width))\n";
+		out += i + "    .strokeStyle(\"#1f77b4\");\n\n";
+
+		out += i + "interval.add(pv.Rule)\n";
+		out += i + "    .left(function() x(this.index) + x.range().band / 2 - 5)\n";
+		out += i + "    .width(10)\n";
+		out += i + "    .bottom(function(d) y(d - width))\n";
+		out += i + "    .height(null);\n\n";
+
+		out += i + "interval.add(pv.Rule)\n";
+		out += i + "    .left(function() x(this.index) + x.range().band / 2 - 5)\n";
+		out += i + "    .width(10)\n";
+		out += i + "    .bottom(function(d) y(d + width))\n";
+		out += i + "    .height(null);\n\n";
+
+		out += i + "/* Mean ranks. */\n";
+		out += i + "vis.add(pv.Dot)\n";
+		out += i + "    .data(meanRanks)\n";
+		out += i + "    .left(function() x(this.index) + x.range().band / 2)\n";
+		out += i + "    .bottom(y)\n";
+		out += i + "    .strokeStyle(\"#d62728\")\n";
+		out += i + "    .title(function(d) systemNames[this.index] + \": \" + d.toFixed(2));\n\n";
+
+		out += i + "/* System names. */\n";
+		out += i + "vis.add(pv.Label)\n";
+		out += i + "    .data(systemNames)\n";
+		out += i + "    .left(function() x(this.index) + x.range().band / 2)\n";
+		out += i + "    .bottom(-5)\n";
+		out += i + "    .textBaseline(\"middle\")\n";
+		out += i + "    .textAlign(\"right\")\n";
+		out += i + "    .textAngle(-Math.PI / 2);\n\n";
+
+		out += i + "vis.add(pv.Label)\n";
+		out += i + "    .left(-20)\n";
+		out += i + "    .bottom(h / 2)\n";
+		out += i + "    .textAlign(\"center\")\n";
+		out += i + "    .textAngle(-Math.PI / 2)\n";
+		out += i + "    .text(\"Mean Column Ranks\");\n\n";
+
+		out += i + "vis.render();\n\n";
+
+		out +=  "\t\t\t};\n";
+
+		out +=  "\t\t\t</script>\n" +
+				"\t\t</div>\n" +
+				"\t</div>\n";
+
+		out +=  "\t<br><br>\n";
+		return out;
+	}
+
+	public void setResult(FriedmanResult result) {
+		this.result = result;
+	}
+
+	public FriedmanResult getResult() {
+		return result;
+	}
+}
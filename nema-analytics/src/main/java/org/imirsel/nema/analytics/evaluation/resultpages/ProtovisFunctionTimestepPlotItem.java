@@ -5,12 +5,11 @@
 
 package org.imirsel.nema.analytics.evaluation.resultpages;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -47,12 +46,90 @@ public class ProtovisFunctionTimestepPlotItem extends PageItem{
 	private static final int LEGENDOFFSET = 100;
 	
     private double resolutionInSecs;
+    
+    /**
+     * Script holding the full resolution chunks of plots that have been 
+     * downsampled, which are loaded on demand when the focus region is 
+     * zoomed in.
+     */
+    private static final String DETAIL_LOADER_SCRIPT = 
+		"<script type=\"text/javascript\">\n" +
+		"	var nema_detail = {};\n" +
+		"	function nema_addDetail(name, k, series){\n" +
+		"		nema_detail[name + \"_\" + k] = series;\n" +
+		"	}\n" +
+		"	/* returns the chunk if loaded, otherwise starts loading it and returns null */\n" +
+		"	function nema_loadDetail(detail, k, callback){\n" +
+		"		var key = detail.name + \"_\" + k;\n" +
+		"		if (key in nema_detail){\n" +
+		"			return nema_detail[key];\n" +
+		"		}\n" +
+		"		nema_detail[key] = null;\n" +
+		"		var loadedscript = document.createElement('script');\n" +
+		"		loadedscript.setAttribute(\"type\",\"text/javascript\");\n" +
+		"		loadedscript.onload = loadedscript.onreadystatechange = function(){\n" +
+		"			if (!loadedscript.readyState || loadedscript.readyState == \"loaded\" || loadedscript.readyState == \"complete\"){\n" +
+		"				loadedscript.onload = loadedscript.onreadystatechange = null;\n" +
+		"				callback();\n" +
+		"			}\n" +
+		"		};\n" +
+		"		loadedscript.setAttribute(\"src\", detail.name + \"_detail_\" + k + \".js\");\n" +
+		"		document.body.appendChild(loadedscript);\n" +
+		"		return null;\n" +
+		"	}\n" +
+		"</script>\n\n";
 
     public ProtovisFunctionTimestepPlotItem(String name, String caption, 
     		double startTime, double endTime, double currentResolutionSecs,
     		double targetResolutionSecs, String yAxisLabel, 
     		Map<String,double[][]> series, List<String> seriesNames,
     		File outputDir) throws IOException{
+    	this(name, caption, startTime, endTime, currentResolutionSecs, 
+    			targetResolutionSecs, yAxisLabel, series, seriesNames, 
+    			outputDir, true);
+    }
+    
+    /**
+     * Creates the plot and writes its data file.
+     * 
+     * @param compactData Flag indicating whether the time axis of each 
+     * series should be delta-encoded in the data file (and decoded on the 
+     * page), which makes the file several times smaller and faster to load.
+     * @since 0.4.1
+     */
+    public ProtovisFunctionTimestepPlotItem(String name, String caption, 
+    		double startTime, double endTime, double currentResolutionSecs,
+    		double targetResolutionSecs, String yAxisLabel, 
+    		Map<String,double[][]> series, List<String> seriesNames,
+    		File outputDir, boolean compactData) throws IOException{
+    	this(name, caption, startTime, endTime, currentResolutionSecs, 
+    			targetResolutionSecs, yAxisLabel, series, seriesNames, 
+    			outputDir, compactData, TimeSeriesDownsampler.RESAMPLE_ONLY, 
+    			Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Creates the plot and writes its data files. If any series is longer 
+     * than <code>maxOverviewPoints</code> it is reduced to that length with 
+     * the specified downsampling method for the initial (overview) data file 
+     * and the full resolution data written out in chunks, each spanning 
+     * <code>maxOverviewPoints</code> timesteps, which the page loads when 
+     * the focus region is zoomed in to less than a chunk.
+     * 
+     * @param compactData Flag indicating whether the time axis of each 
+     * series should be delta-encoded in the data files.
+     * @param downsamplingMethod The method used to produce the overview, one
+     * of the constants defined in {@link TimeSeriesDownsampler}.
+     * @param maxOverviewPoints The maximum number of points per series in 
+     * the overview.
+     * @since 0.4.1
+     */
+    public ProtovisFunctionTimestepPlotItem(String name, String caption, 
+    		double startTime, double endTime, double currentResolutionSecs,
+    		double targetResolutionSecs, String yAxisLabel, 
+    		Map<String,double[][]> series, List<String> seriesNames,
+    		File outputDir, boolean compactData, int downsamplingMethod,
+    		int maxOverviewPoints) throws IOException{
     	
         super(name,caption);
         setStartTime(startTime);
@@ -61,134 +138,160 @@ public class ProtovisFunctionTimestepPlotItem extends PageItem{
         setSeries(reduceFunctionResolution(getResolutionInSecs(),targetResolutionSecs,series));
         setSeriesNames(seriesNames);
         setyAxisLabel(yAxisLabel);
-        writeOutData(outputDir);
+        writeOutData(outputDir, compactData, downsamplingMethod, maxOverviewPoints);
     }
     
-    private void writeOutData(File dir) throws IOException{
+    private void writeOutData(File dir, boolean compactData, int downsamplingMethod, int maxOverviewPoints) throws IOException{
+    	List<double[][]> overview = new ArrayList<double[][]>(getSeriesNames().size());
+    	boolean reduced = false;
+    	for (int s = 0; s < getSeriesNames().size(); s++) {
+    		double[][] data = series.get(getSeriesNames().get(s));
+    		double[][] reducedData = TimeSeriesDownsampler.downsample(data, downsamplingMethod, maxOverviewPoints);
+    		reduced |= reducedData != data;
+    		overview.add(reducedData);
+    	}
+    	double chunkSecs = maxOverviewPoints * getResolutionInSecs();
+    	int numChunks = reduced ? Math.max(1, (int)Math.ceil((getEndTime() - getStartTime()) / chunkSecs)) : 0;
+    	
     	File outFile = new File(dir.getPath() + File.separator + this.getName() + ".js");
+    	JavascriptDataWriter writer = new JavascriptDataWriter(outFile);
+    	try{
+    		writer.beginVar(this.getName() + "_data");
+    		writeSeries(writer, overview, compactData);
+    		writer.endVar();
+    		writer.newLine();
+    		
+    		writer.beginVar(this.getName() + "_detail");
+    		if (reduced){
+    			writer.beginObject();
+    			writer.key("name");
+    			writer.value(this.getName());
+    			writer.key("d");
+    			writer.value(chunkSecs);
+    			writer.key("n");
+    			writer.value(numChunks);
+    			writer.endObject();
+    		}else{
+    			writer.value((String)null);
+    		}
+    		writer.endVar();
+    		
+    		writer.beginVar(this.getName() + "_seriesNames");
+    		writer.array(getSeriesNames());
+    		writer.endVar();
+    		
+    		writer.beginVar(this.getName() + "_yAxisLabel");
+    		writer.value(yAxisLabel);
+    		writer.endVar();
+    	}finally{
+    		writer.close();
+    	}
     	
-    	String out = "var " + this.getName() + "_data = [\n";
-        for (int s = 0; s < getSeriesNames().size(); s++) {
-        	out += "[";
-        	double[][] data = series.get(getSeriesNames().get(s));
-        	
-        	for (int j = 0; j < data.length-1; j++) {
-				out += "{x: " + TIMESTAMP_FORMAT.format(data[j][0]) + ", y: " + data[j][1] + "},\n";
-			}
-			out += "{x: " + data[data.length-1][0] + ", y: " + data[data.length-1][1] + "}";
-			if(s < getSeriesNames().size()-1){
-				out += "],\n";
-			}else{
-				out += "]\n";
-			}
-		}
-        out += "];\n\n";
-        
-	    out += "var " + this.getName() + "_seriesNames = [";
-        for (int j = 0; j < getSeriesNames().size(); j++) {
-			out += "\"" + getSeriesNames().get(j) + "\"";
-			if (j < getSeriesNames().size()-1){
-				out += ",";
-			}
-		}
-        out += "];\n";
-        
-        out += "var " + this.getName() + "_yAxisLabel = \"" + yAxisLabel + "\";\n";
-        
-        BufferedWriter writer = null;
-        try{
-	        writer = new BufferedWriter(new FileWriter(outFile));
-	        writer.write(out);
-	        writer.flush();
-	        
-        }finally{
-        	if (writer != null){
-        		writer.close();
-        	}
-        }
+    	if (reduced){
+    		writeDetailChunks(dir, compactData, chunkSecs, numChunks);
+    	}
+    }
+    
+    /**
+     * Writes the full resolution series in chunks of <code>chunkSecs</code>,
+     * each file calling <code>nema_addDetail(name, chunkIndex, data)</code>.
+     */
+    private void writeDetailChunks(File dir, boolean compactData, double chunkSecs, int numChunks) throws IOException{
+    	int numSeries = getSeriesNames().size();
+    	int[] offsets = new int[numSeries];
+    	for (int k = 0; k < numChunks; k++) {
+    		double chunkEnd = getStartTime() + (k + 1) * chunkSecs;
+    		List<double[][]> chunk = new ArrayList<double[][]>(numSeries);
+    		for (int s = 0; s < numSeries; s++) {
+    			double[][] data = series.get(getSeriesNames().get(s));
+    			int to = offsets[s];
+    			if (k == numChunks - 1){
+    				to = data.length;
+    			}else{
+    				while (to < data.length && data[to][0] < chunkEnd){
+    					to++;
+    				}
+    			}
+    			chunk.add(Arrays.copyOfRange(data, offsets[s], to));
+    			offsets[s] = to;
+    		}
+    		
+    		File outFile = new File(dir.getPath() + File.separator + this.getName() + "_detail_" + k + ".js");
+    		JavascriptDataWriter writer = new JavascriptDataWriter(outFile);
+    		try{
+    			writer.beginCall("nema_addDetail");
+    			writer.value(this.getName());
+    			writer.value(k);
+    			writeSeries(writer, chunk, compactData);
+    			writer.endCall();
+    			writer.endStatement();
+    		}finally{
+    			writer.close();
+    		}
+    	}
+    }
+    
+    /**
+     * Writes a list of series as an array of arrays of {x,y} points, either
+     * directly or as a call to <code>nema_decodeFunctionSeries</code>.
+     */
+    private static void writeSeries(JavascriptDataWriter writer, List<double[][]> seriesData, boolean compactData) throws IOException{
+    	if (compactData){
+    		writer.beginCall("nema_decodeFunctionSeries");
+    		writer.beginArray();
+    		for (int s = 0; s < seriesData.size(); s++) {
+    			double[][] data = seriesData.get(s);
+    			double[] x = new double[data.length];
+    			double[] y = new double[data.length];
+    			for (int j = 0; j < data.length; j++) {
+    				x[j] = data[j][0];
+    				y[j] = data[j][1];
+    			}
+    			writer.beginObject();
+    			writer.key("x");
+    			writer.deltaArray(x, JavascriptDataWriter.DEFAULT_DECIMAL_PLACES);
+    			writer.key("y");
+    			writer.array(y, JavascriptDataWriter.DEFAULT_DECIMAL_PLACES);
+    			writer.endObject();
+    			writer.newLine();
+    		}
+    		writer.endArray();
+    		writer.value(JavascriptDataWriter.DEFAULT_DECIMAL_PLACES);
+    		writer.endCall();
+    	}else{
+    		writer.beginArray();
+    		for (int s = 0; s < seriesData.size(); s++) {
+    			double[][] data = seriesData.get(s);
+    			writer.beginArray();
+    			for (int j = 0; j < data.length; j++) {
+    				writer.beginObject();
+    				writer.key("x");
+    				writer.value(data[j][0]);
+    				writer.key("y");
+    				writer.value(data[j][1]);
+    				writer.endObject();
+    				writer.newLine();
+    			}
+    			writer.endArray();
+    		}
+    		writer.endArray();
+    	}
     }
     
     private Map<String,double[][]> reduceFunctionResolution(double currentIncrement, double targetIncrement, Map<String,double[][]> series){
     	if(currentIncrement >= targetIncrement){
     		setResolutionInSecs(currentIncrement);
-    		System.out.println("Not reducing function from resolution to ");
     		//no need to reduce - should be safe to return original as downstream processing is not expected modify it
     		return series;
     	}else{
     		//Return new map with modified data
     		Map<String,double[][]> out = new HashMap<String, double[][]>(series.size());
-    		
-    		String[] seriesNames = series.keySet().toArray(new String[series.size()]);
-    		for (int s = 0; s < seriesNames.length; s++) {
-    			double[][] data = series.get(seriesNames[s]);
-	    		
-    			/* 
-    			 * Set up the 0th-order interpolation to convert to the 
-    			 * target time-grid 
-    			 */
-    			List<Double> interpTimeStamp = new ArrayList<Double>();
-    			List<Double> interpValue = new ArrayList<Double>();
-    			int nrows = data.length;
-	    		
-    			/* Indices into the new, interpolated data array-list */
-    	        int index = 0;
-    	        int oldindex = 0;
-
-    	        /*
-    	         *  minDiff and currDiff represent time-stamp differences to make 
-    	         *  sure the value we use in the original data is the one 
-    	         *  closest-in-time to the desired time-stamp
-    	         */
-    	        double minDiff = 10000000.0;
-    	        double currDiff = 0.0;
-    	        
-    	        //init with first values
-    	        interpTimeStamp.add(data[0][0]);
-    	        interpValue.add(data[0][1]);
-    	        
-    	        /* Loop through original arbitrary time-stamped data */
-    	        for (int i = 1; i < nrows; i++) {
-    	            index = (int)Math.round(data[i][0]/targetIncrement);
-    	            
-    	            /* Case where the file's time-step is less than targetIncrement */
-    	            if (index == oldindex) {
-    	                currDiff = Math.abs(data[i][0] - targetIncrement*(double)index);
-    	                if (currDiff < minDiff) {	
-    	                	interpValue.set(index, new Double(data[i][1]));
-    	                	interpTimeStamp.set(index, new Double(targetIncrement*(double)index));
-    	                    minDiff = currDiff;
-    	                }
-    	            }
-    	            
-    	         	/*
-    	         	 *  Case where the file's time-step is targetIncrement or has 'caught up' if 
-    	         	 *  less than target increment and gone on to the next index in the targetIncrement grid
-    	         	 */
-    	            else if (index == oldindex + 1) {
-    	            	interpValue.add(new Double(data[i][1]));
-    	            	interpTimeStamp.add(new Double(targetIncrement*(double)index));
-    	                minDiff = Math.abs(data[i][0] - targetIncrement*(double)index);
-    	            }
-    	            
-    	            oldindex = index;                                
-    	        }   
-    			
-    	        /*
-    	         *  Put the contents of the Time-stamp and values array-lists into a 
-    	         *  single 2 column 2d-double array 
-    	         */
-    	        double[][] interpolatedData = new double[interpValue.size()][2];
-    	        for (int i = 0; i < interpolatedData.length; i++) {
-    	        	interpolatedData[i][0] = (interpTimeStamp.get(i)).doubleValue();
-    	        	interpolatedData[i][1] = (interpValue.get(i)).doubleValue();
-    	        }
-    			
-    	        out.put(seriesNames[s], interpolatedData);
-    			
+    		for (Iterator<String> it = series.keySet().iterator(); it.hasNext();) {
+    			String seriesName = it.next();
+    			out.put(seriesName, TimeSeriesDownsampler.resample(series.get(seriesName), targetIncrement));
     		}
     		setResolutionInSecs(targetIncrement);
     		return out;
-    		
     	}
     }
 
@@ -198,6 +301,8 @@ public class ProtovisFunctionTimestepPlotItem extends PageItem{
     	//String out = "<script type=\"text/javascript\" src=\"protovis-d3.2.js\"></script>\n" +
 		
     	String out = "<script type=\"text/javascript\" src=\"protovis-r3.2.js\"></script>\n\n" +
+		JavascriptDataWriter.DECODER_SCRIPT +
+		DETAIL_LOADER_SCRIPT +
 		"<script type=\"text/javascript+protovis\">\n" +
 		"	var colors = [\"salmon\", \"steelblue\", \"khakie\", \"green\", \"navy\"];\n" + 
 		"	var scaleToFit = false;\n\n" +
@@ -252,7 +357,7 @@ public class ProtovisFunctionTimestepPlotItem extends PageItem{
 		"			toggleScaling : function() { scaleToFit = !scaleToFit;vis.render(); },\n" + 
 		"			setLoaded : function(){loaded = true;},\n" +
 		"			isLoaded : function(){return loaded;},\n" +
-		"			plot : function(data,seriesNames,yAxisLabel){\n" +
+		"			plot : function(data,seriesNames,yAxisLabel,detail){\n" +
 		"				/* Interaction state. Focus scales will have domain set on-render. */\n" +
 		"				var scale = -1;\n" + 
 		"				for(s=0;s<numseries;s=s+1){;\n" +
@@ -267,6 +372,33 @@ public class ProtovisFunctionTimestepPlotItem extends PageItem{
 		"				    fx = pv.Scale.linear().range(0, w-legendOffset);\n" +
 		"				    fy = pv.Scale.linear().range(0, h1);\n\n" + 
 		"\n" + 
+		"				/* Full resolution data for the focus region if it is within one chunk \n" +
+		"				   and loaded, otherwise the (downsampled) overview. */\n" +
+		"				var showingDetail = (detail == null);\n" +
+		"				function focus_source(d1, d2){\n" +
+		"					if (detail == null || d2 - d1 > detail.d){\n" +
+		"						return data;\n" +
+		"					}\n" +
+		"					var k1 = Math.max(0, Math.floor((d1 - start) / detail.d)),\n" +
+		"					    k2 = Math.min(detail.n - 1, Math.floor((d2 - start) / detail.d)),\n" +
+		"					    chunks = [], complete = true;\n" +
+		"					for (var k = k1; k <= k2; k++){\n" +
+		"						var chunk = nema_loadDetail(detail, k, function(){ vis.render(); });\n" +
+		"						if (chunk == null){ complete = false; } else { chunks.push(chunk); }\n" +
+		"					}\n" +
+		"					if (!complete){\n" +
+		"						return data;\n" +
+		"					}\n" +
+		"					var out = new Array(numseries);\n" +
+		"					for (var s = 0; s < numseries; s++){\n" +
+		"						out[s] = [];\n" +
+		"						for (var c = 0; c < chunks.length; c++){\n" +
+		"							out[s] = out[s].concat(chunks[c][s]);\n" +
+		"						}\n" +
+		"					}\n" +
+		"					return out;\n" +
+		"				}\n" +
+		"\n" + 
 		
 		"				/* Legend area. */\n" +
 		"				var legend = vis.add(pv.Panel)\n" +
@@ -318,14 +450,16 @@ public class ProtovisFunctionTimestepPlotItem extends PageItem{
 		"				    .def(\"init_data\", function() {\n" +
 		"				        var d1 = x.invert(i.x),\n" +
 		"				            d2 = x.invert(i.x + i.dx);\n" +
+		"				        var src = focus_source(d1, d2);\n" +
+		"				        showingDetail = (detail == null || src != data);\n" +
 		"				        var out = new Array(numseries);\n" +
 		"						var scale = -1;\n" + 
 		"				        for(s=0;s<numseries;s=s+1){;\n" +
-		"				            offsetsearch = pv.search.index(data[s], d1, function(d) d.x),\n" +
+		"				            offsetsearch = pv.search.index(src[s], d1, function(d) d.x),\n" +
 		"				            firstvisible = offsetsearch >= 0 ? offsetsearch : -(1+offsetsearch),\n" +
-		"				            onsetsearch = pv.search.index(data[s], d2, function(d) d.x),\n" +
+		"				            onsetsearch = pv.search.index(src[s], d2, function(d) d.x),\n" +
 		"				            lastvisible = onsetsearch >= 0 ? onsetsearch : -(1+onsetsearch),\n" +
-		"					        out[s] = data[s].slice(firstvisible > 0 ? firstvisible-1:0,lastvisible+1);\n" +
+		"					        out[s] = src[s].slice(firstvisible > 0 ? firstvisible-1:0,lastvisible+1);\n" +
 		"					        var tmp = pv.max(out[s], function(d) d.y);\n" + 
 		"					        if(scale < tmp){scale = tmp;}\n" +
 		"					    }\n" +
@@ -407,7 +541,7 @@ public class ProtovisFunctionTimestepPlotItem extends PageItem{
 		"				  .top(-10)\n" + 
 		"				  .textAlign(\"center\")\n" + 
 		"				  .textBaseline(\"bottom\")\n" + 
-		"				  .text(\"Resolution: " + MS_FORMAT.format(resolutionInSecs*1000.0) + "\");\n" + 
+		"				  .text(function() showingDetail ? \"Resolution: " + MS_FORMAT.format(resolutionInSecs*1000.0) + "\" : \"Resolution: overview (zoom in for full resolution)\");\n" + 
 		"\n" + 
 		"				/* Context area chart. */\n" +
 		"				context.add(pv.Panel)\n" +
@@ -480,7 +614,7 @@ public class ProtovisFunctionTimestepPlotItem extends PageItem{
 				"\t\t\tfunction " + getName() + "_serviceInterval(){\n" +
 				"\t\t\t\tif(" + getName() + "_melody_plot.isLoaded()){\n" +
 				"\t\t\t\t\tclearInterval(" + getName() + "_interval);\n" + 
-				"\t\t\t\t\t" + getName() + "_melody_plot.plot(" + getName() + "_data," + getName() + "_seriesNames,\"" + getyAxisLabel() + "\");\n" +
+				"\t\t\t\t\t" + getName() + "_melody_plot.plot(" + getName() + "_data," + getName() + "_seriesNames,\"" + getyAxisLabel() + "\"," + getName() + "_detail);\n" +
 				"\t\t\t\t\tdocument.getElementById(\"" + getName() + "_button\").setAttribute(\"value\",\"done.\");\n" +
 				"\t\t\t\t}\n" + 
 				"\t\t\t}\n" +
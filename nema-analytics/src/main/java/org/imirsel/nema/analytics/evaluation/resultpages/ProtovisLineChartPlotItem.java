@@ -0,0 +1,198 @@
+package org.imirsel.nema.analytics.evaluation.resultpages;
+
+import java.util.List;
+
+/**
+ * A PageItem implementation for plotting one line per series over a shared,
+ * ordered set of x values, such as the score of each system at each of a set
+ * of evaluation tolerances.
+ *
+ * Implements Javascript rendering using Protovis.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class ProtovisLineChartPlotItem extends PageItem{
+
+	private String xAxisLabel;
+	private double[] xVals;
+	private List<String> seriesNames;
+	private List<double[]> seriesVals;
+
+	public ProtovisLineChartPlotItem(String name, String caption, String xAxisLabel,
+			double[] xVals, List<String> seriesNames, List<double[]> seriesVals){
+		super(name,caption);
+		this.setxAxisLabel(xAxisLabel);
+		this.setxVals(xVals);
+		this.setSeriesNames(seriesNames);
+		this.setSeriesVals(seriesVals);
+	}
+
+	@Override
+	public String getHeadStaticDeclarations(){
+		String out = "<script type=\"text/javascript\" src=\"protovis-r3.2.js\"></script>\n";
+		return out;
+	}
+
+	@Override
+	public String getHeadData(){
+		return "";
+	}
+
+	@Override
+	public String getBodyData(boolean topLink){
+		String out = "\t<a name=\"" + getName() + "\"></a>\n" +
+		"\t<h4>" + getCaption();
+		if (topLink){
+			out += "&nbsp;&nbsp;&nbsp;&nbsp;<span class=\"toplink\"><a href=\"#top\">[top]</a></span>";
+		}
+		out += "</h4>\n";
+		out += 	"\t<div id=\"center\">\n" +
+				"\t\t<div style=\"width: 900px; height: 400px; padding: 2px; margin: 3px; border-width: 1px; border-color: black; border-style:solid;\">\n" +
+				"\t\t\t<script type=\"text/javascript+protovis\">\n";
+		out +=  "\t\t\tvar " + getName() + " = new function() {\n";
+
+		//setup data
+		String i = "\t\t\t\t";
+
+		int numSeries = seriesNames.size();
+
+		out += i + "var seriesNames = [";
+		for (int j = 0; j < numSeries; j++) {
+			out += "\"" + seriesNames.get(j).replaceAll("\"", "\\\\\"") + "\"";
+			if (j < numSeries-1){
+				out += ",";
+			}
+		}
+		out += "];\n";
+
+		out += i + "var xVals = [";
+		for (int j = 0; j < xVals.length; j++) {
+			out += xVals[j];
+			if (j < xVals.length-1){
+				out += ",";
+			}
+		}
+		out += "];\n";
+
+		out += i + "var seriesVals = [\n";
+		for (int s = 0; s < numSeries; s++) {
+			double[] vals = seriesVals.get(s);
+			out += i + "    [";
+			for (int j = 0; j < vals.length; j++) {
+				out += vals[j];
+				if (j < vals.length-1){
+					out += ",";
+				}
+			}
+			out += "]";
+			if (s < numSeries-1){
+				out += ",";
+			}
+			out += "\n";
+		}
+		out += i + "];\n\n";
+
+		out += i + "/* Scales and sizing. */\n";
+		out += i + "var w = 650,\n";
+		out += i + "    h = 330,\n";
+		out += i + "    x = pv.Scale.linear(pv.min(xVals), pv.max(xVals)).range(0, w),\n";
+		out += i + "    y = pv.Scale.linear(0, pv.max(seriesVals, function(d) pv.max(d))).range(0, h).nice(),\n";
+		out += i + "    c = pv.Colors.category10();\n\n";
+
+		out += i + "/* Root panel. */\n";
+		out += i + "var vis = new pv.Panel()\n";
+		out += i + "    .width(w)\n";
+		out += i + "    .height(h)\n";
+		out += i + "    .bottom(40)\n";
+		out += i + "    .left(40)\n";
+		out += i + "    .right(200)\n";
+		out += i + "    .top(15);\n\n";
+
+		out += i + "/* Y ticks. */\n";
+		out += i + "vis.add(pv.Rule)\n";
+		out += i + "    .data(y.ticks())\n";
+		out += i + "    .bottom(function(d) Math.round(y(d)) - .5)\n";
+		out += i + "    .strokeStyle(function(d) d ? \"#eee\" : \"#000\")\n";
+		out += i + "  .anchor(\"left\").add(pv.Label)\n";
+		out += i + "    .text(y.tickFormat);\n\n";
+
+		out += i + "/* X ticks. */\n";
+		out += i + "vis.add(pv.Rule)\n";
+		out += i + "    .data(xVals)\n";
+		out += i + "    .left(function(d) Math.round(x(d)) - .5)\n";
+		out += i + "    .strokeStyle(\"#eee\")\n";
+		out += i + "  .anchor(\"bottom\").add(pv.Label)\n";
+		out += i + "    .text(function(d) d.toFixed(3));\n\n";
+
+		out += i + "/* One line per series. */\n";
+		out += i + "vis.add(pv.Panel)\n";
+		out += i + "    .data(seriesVals)\n";
+		out += i + "  .add(pv.Line)\n";
+		out += i + "    .data(function(d) d)\n";
+		out += i + "    .left(function() x(xVals[this.index]))\n";
+		out += i + "    .bottom(y)\n";
+		out += i + "    .strokeStyle(function() c(this.parent.index))\n";
+		out += i + "  .add(pv.Dot)\n";
+		out += i + "    .size(8)\n";
+		out += i + "    .title(function(d) seriesNames[this.parent.index] + \": \" + d.toFixed(3));\n\n";
+
+		out += i + "/* Legend. */\n";
+		out += i + "vis.add(pv.Dot)\n";
+		out += i + "    .data(seriesNames)\n";
+		out += i + "    .left(w + 20)\n";
+		out += i + "    .top(function() 10 + this.index * 15)\n";
+		out += i + "    .fillStyle(function() c(this.index))\n";
+		out += i + "    .strokeStyle(null)\n";
+		out += i + "  .anchor(\"right\").add(pv.Label);\n\n";
+
+		out += i + "vis.add(pv.Label)\n";
+		out += i + "    .left(w / 2)\n";
+		out += i + "    .bottom(-35)\n";
+		out += i + "    .textAlign(\"center\")\n";
+		out += i + "    .text(\"" + xAxisLabel.replaceAll("\"", "\\\\\"") + "\");\n\n";
+
+		out += i + "vis.render();\n\n";
+
+		out +=  "\t\t\t};\n";
+
+		out +=  "\t\t\t</script>\n" +
+				"\t\t</div>\n" +
+				"\t</div>\n";
+
+		out +=  "\t<br><br>\n";
+		return out;
+	}
+
+	public void setxAxisLabel(String xAxisLabel) {
+		this.xAxisLabel = xAxisLabel;
+	}
+
+	public String getxAxisLabel() {
+		return xAxisLabel;
+	}
+
+	public void setxVals(double[] xVals) {
+		this.xVals = xVals;
+	}
+
+	public double[] getxVals() {
+		return xVals;
+	}
+
+	public void setSeriesNames(List<String> seriesNames) {
+		this.seriesNames = seriesNames;
+	}
+
+	public List<String> getSeriesNames() {
+		return seriesNames;
+	}
+
+	public void setSeriesVals(List<double[]> seriesVals) {
+		this.seriesVals = seriesVals;
+	}
+
+	public List<double[]> getSeriesVals() {
+		return seriesVals;
+	}
+}
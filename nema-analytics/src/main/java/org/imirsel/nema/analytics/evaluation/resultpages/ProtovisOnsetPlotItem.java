@@ -5,9 +5,7 @@
 
 package org.imirsel.nema.analytics.evaluation.resultpages;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.List;
@@ -45,6 +43,22 @@ public class ProtovisOnsetPlotItem extends PageItem{
     		double startTime, double endTime, 
     		Map<String,double[]> series, List<String> seriesNames, 
     		List<Boolean> isGroundtruth,File outputDir) throws IOException{
+    	this(name, caption, startTime, endTime, series, seriesNames, 
+    			isGroundtruth, outputDir, true);
+    }
+    
+    /**
+     * Creates the plot and writes its data file.
+     * 
+     * @param compactData Flag indicating whether the onset times should be 
+     * delta-encoded in the data file (and decoded on the page), which makes
+     * the file smaller and faster to load.
+     * @since 0.4.1
+     */
+    public ProtovisOnsetPlotItem(String name, String caption, 
+    		double startTime, double endTime, 
+    		Map<String,double[]> series, List<String> seriesNames, 
+    		List<Boolean> isGroundtruth,File outputDir, boolean compactData) throws IOException{
     	
         super(name,caption);
         setStartTime(startTime);
@@ -52,60 +66,51 @@ public class ProtovisOnsetPlotItem extends PageItem{
         setSeries(series);
         setSeriesNames(seriesNames);
         setIsGroundtruth(isGroundtruth);
-        writeOutData(outputDir);
+        writeOutData(outputDir, compactData);
     }
     
-    private void writeOutData(File dir) throws IOException{
+    private void writeOutData(File dir, boolean compactData) throws IOException{
     	File outFile = new File(dir.getPath() + File.separator + this.getName() + ".js");
     	
-    	String out = "var " + this.getName() + "_data = [\n";
-        for (int s = 0; s < getSeriesNames().size(); s++) {
-        	out += "[";
-        	double[] data = series.get(seriesNames.get(s));
-			for (int i=0;i<data.length;i++) {
-				out += TIMESTAMP_FORMAT.format(data[i]);
-				if(i<data.length-1){
-					out +=", ";
-				}
-			}
-			if(s<seriesNames.size()-1){
-				out +="],\n";
-			}else{
-				out +="]\n";
-			}
-		}
-        out += "];\n\n";
-        
-        out += "var " + this.getName() + "_seriesNames = [";
-        for (int j = 0; j < getSeriesNames().size(); j++) {
-			out += "\"" + getSeriesNames().get(j) + "\"";
-			if (j < getSeriesNames().size()-1){
-				out += ",";
-			}
-		}
-        out += "];\n";
-        
-        out += "var " + this.getName() + "_isGroundtruth = [";
-        for (int j = 0; j < getIsGroundtruth().size(); j++) {
-			out += getIsGroundtruth().get(j);
-			if (j < getIsGroundtruth().size()-1){
-				out += ",";
-			}
-		}
-        out += "];\n";
-        
-        
-        BufferedWriter writer = null;
-        try{
-	        writer = new BufferedWriter(new FileWriter(outFile));
-	        writer.write(out);
-	        writer.flush();
-	        
-        }finally{
-        	if (writer != null){
-        		writer.close();
-        	}
-        }
+    	JavascriptDataWriter writer = new JavascriptDataWriter(outFile);
+    	try{
+    		if (compactData){
+    			writer.beginVarCall(this.getName() + "_data", "nema_decodeDeltaSeries");
+    		}else{
+    			writer.beginVar(this.getName() + "_data");
+    		}
+    		writer.beginArray();
+    		for (int s = 0; s < getSeriesNames().size(); s++) {
+    			double[] data = series.get(seriesNames.get(s));
+    			if (compactData){
+    				writer.deltaArray(data, JavascriptDataWriter.DEFAULT_DECIMAL_PLACES);
+    			}else{
+    				writer.array(data, JavascriptDataWriter.DEFAULT_DECIMAL_PLACES);
+    			}
+    			writer.newLine();
+    		}
+    		writer.endArray();
+    		if (compactData){
+    			writer.value(JavascriptDataWriter.DEFAULT_DECIMAL_PLACES);
+    			writer.endCall();
+    		}
+    		writer.endVar();
+    		writer.newLine();
+    		
+    		writer.beginVar(this.getName() + "_seriesNames");
+    		writer.array(getSeriesNames());
+    		writer.endVar();
+    		
+    		writer.beginVar(this.getName() + "_isGroundtruth");
+    		writer.beginArray();
+    		for (int j = 0; j < getIsGroundtruth().size(); j++) {
+    			writer.value(getIsGroundtruth().get(j).booleanValue());
+    		}
+    		writer.endArray();
+    		writer.endVar();
+    	}finally{
+    		writer.close();
+    	}
     }
 
     public String getHeadStaticDeclarations(){
@@ -113,6 +118,7 @@ public class ProtovisOnsetPlotItem extends PageItem{
     	//String out = "<script type=\"text/javascript\" src=\"protovis-d3.2.js\"></script>\n" +
 		
     	String out = "<script type=\"text/javascript\" src=\"protovis-r3.2.js\"></script>\n\n" +
+		JavascriptDataWriter.DECODER_SCRIPT +
 		"<script type=\"text/javascript+protovis\">\n" +
 		"	var predictionColor = \"salmon\";\n" +
 		"	var gtColor = \"steelblue\";\n" +
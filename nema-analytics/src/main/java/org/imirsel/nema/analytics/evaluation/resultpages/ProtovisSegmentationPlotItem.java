@@ -5,9 +5,7 @@
 
 package org.imirsel.nema.analytics.evaluation.resultpages;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.Iterator;
@@ -55,50 +53,41 @@ public class ProtovisSegmentationPlotItem extends PageItem{
     private void writeOutData(File dir) throws IOException{
     	File outFile = new File(dir.getPath() + File.separator + this.getName() + ".js");
     	
-    	String out = "var " + this.getName() + "_data = [\n";
-        for (int s = 0; s < getSeriesNames().size(); s++) {
-        	out += "[";
-			List<NemaSegment> data = series.get(getSeriesNames().get(s));
-			NemaSegment seg = null;
-			int count = 0;
-			for (Iterator<NemaSegment> it = data.iterator(); it.hasNext();) {
-				seg = it.next();
-				out += "{o: " + TIMESTAMP_FORMAT.format(seg.getOnset()) + ", f: " + TIMESTAMP_FORMAT.format(seg.getOffset()) + ", l: \"" + seg.getLabel().replaceAll("\"", "") + "\", a: " + count%2 + "}";
-				count++;
-				if(it.hasNext()){
-					out +=",\n";
-				}else{
-					if(s < getSeriesNames().size()-1){
-						out += "],\n";
-					}else{
-						out += "]\n";
-					}
-				}
-			}
-		}
-        out += "];\n\n";
-        
-	    out += "var " + this.getName() + "_seriesNames = [";
-        for (int j = 0; j < getSeriesNames().size(); j++) {
-			out += "\"" + getSeriesNames().get(j) + "\"";
-			if (j < getSeriesNames().size()-1){
-				out += ",";
-			}
-		}
-        out += "];\n";
-        
-        
-        BufferedWriter writer = null;
-        try{
-	        writer = new BufferedWriter(new FileWriter(outFile));
-	        writer.write(out);
-	        writer.flush();
-	        
-        }finally{
-        	if (writer != null){
-        		writer.close();
-        	}
-        }
+    	JavascriptDataWriter writer = new JavascriptDataWriter(outFile);
+    	try{
+    		writer.beginVar(this.getName() + "_data");
+    		writer.beginArray();
+    		for (int s = 0; s < getSeriesNames().size(); s++) {
+    			List<NemaSegment> data = series.get(getSeriesNames().get(s));
+    			writer.beginArray();
+    			int count = 0;
+    			for (Iterator<NemaSegment> it = data.iterator(); it.hasNext();) {
+    				NemaSegment seg = it.next();
+    				writer.beginObject();
+    				writer.key("o");
+    				writer.value(seg.getOnset());
+    				writer.key("f");
+    				writer.value(seg.getOffset());
+    				writer.key("l");
+    				writer.value(seg.getLabel());
+    				writer.key("a");
+    				writer.value(count%2);
+    				writer.endObject();
+    				writer.newLine();
+    				count++;
+    			}
+    			writer.endArray();
+    		}
+    		writer.endArray();
+    		writer.endVar();
+    		writer.newLine();
+    		
+    		writer.beginVar(this.getName() + "_seriesNames");
+    		writer.array(getSeriesNames());
+    		writer.endVar();
+    	}finally{
+    		writer.close();
+    	}
     }
 
     public String getHeadStaticDeclarations(){
@@ -0,0 +1,209 @@
+package org.imirsel.nema.analytics.evaluation.resultpages;
+
+/**
+ * Utility methods for reducing the number of points in a time-series (a 2d
+ * array of rows of [time, value], sorted by time) before it is plotted on a
+ * result page. All methods work on primitive arrays and return the input
+ * array unmodified if no reduction is necessary.
+ *
+ * Two decimation methods are offered that reduce a series to a target number
+ * of points: a min/max envelope, which keeps the smallest and largest value
+ * in each bucket of the series (so that peaks are never lost) and
+ * largest-triangle-three-buckets (LTTB), which keeps the single point in each
+ * bucket that best preserves the visual shape of the line.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class TimeSeriesDownsampler {
+
+	/** Only resample the series to a coarser time grid, no decimation. */
+	public static final int RESAMPLE_ONLY = 0;
+	/** Keep the minimum and maximum value in each bucket. */
+	public static final int MIN_MAX_ENVELOPE = 1;
+	/** Keep the point forming the largest triangle in each bucket. */
+	public static final int LARGEST_TRIANGLE_THREE_BUCKETS = 2;
+
+	/**
+	 * Reduces a series to at most the target number of points using the
+	 * specified method.
+	 * @param data The series.
+	 * @param method One of {@link #RESAMPLE_ONLY} (returns the series
+	 * unmodified), {@link #MIN_MAX_ENVELOPE} or
+	 * {@link #LARGEST_TRIANGLE_THREE_BUCKETS}.
+	 * @param targetPoints The maximum number of points to return.
+	 * @return The reduced series.
+	 */
+	public static double[][] downsample(double[][] data, int method, int targetPoints){
+		switch (method){
+			case RESAMPLE_ONLY: return data;
+			case MIN_MAX_ENVELOPE: return minMaxEnvelope(data, targetPoints);
+			case LARGEST_TRIANGLE_THREE_BUCKETS: return largestTriangleThreeBuckets(data, targetPoints);
+			default: throw new IllegalArgumentException("Unknown downsampling method: " + method);
+		}
+	}
+
+	/**
+	 * Resamples a series to a fixed time grid using 0th-order interpolation:
+	 * the value closest in time to each grid point is kept and its time-stamp
+	 * snapped to the grid. Grid points with no data (gaps in the series) are
+	 * skipped.
+	 * @param data The series.
+	 * @param increment The grid increment in seconds.
+	 * @return The resampled series.
+	 */
+	public static double[][] resample(double[][] data, double increment){
+		if (increment <= 0){
+			throw new IllegalArgumentException("The resampling increment must be positive, received: " + increment);
+		}
+		int n = data.length;
+		if (n == 0){
+			return data;
+		}
+		double[] times = new double[n];
+		double[] values = new double[n];
+		int count = 0;
+
+		long cell = Math.round(data[0][0] / increment);
+		double bestValue = data[0][1];
+		double minDiff = Math.abs(data[0][0] - cell * increment);
+		for (int i = 1; i < n; i++){
+			long index = Math.round(data[i][0] / increment);
+			double diff = Math.abs(data[i][0] - index * increment);
+			if (index == cell){
+				if (diff < minDiff){
+					bestValue = data[i][1];
+					minDiff = diff;
+				}
+			}else{
+				times[count] = cell * increment;
+				values[count++] = bestValue;
+				cell = index;
+				bestValue = data[i][1];
+				minDiff = diff;
+			}
+		}
+		times[count] = cell * increment;
+		values[count++] = bestValue;
+
+		double[][] out = new double[count][2];
+		for (int i = 0; i < count; i++){
+			out[i][0] = times[i];
+			out[i][1] = values[i];
+		}
+		return out;
+	}
+
+	/**
+	 * Reduces a series to at most the target number of points by dividing it
+	 * into <code>targetPoints / 2</code> buckets of consecutive points and
+	 * keeping the minimum and maximum value in each, in their original order.
+	 * @param data The series.
+	 * @param targetPoints The maximum number of points to return (at least 2).
+	 * @return The reduced series.
+	 */
+	public static double[][] minMaxEnvelope(double[][] data, int targetPoints){
+		if (targetPoints < 2){
+			throw new IllegalArgumentException("The min/max envelope requires at least 2 target points, received: " + targetPoints);
+		}
+		int n = data.length;
+		if (n <= targetPoints){
+			return data;
+		}
+		int numBuckets = targetPoints / 2;
+		double[][] out = new double[numBuckets * 2][];
+		int count = 0;
+		for (int b = 0; b < numBuckets; b++){
+			int from = (int)((long)b * n / numBuckets);
+			int to = (int)((long)(b + 1) * n / numBuckets);
+			int minIdx = from;
+			int maxIdx = from;
+			for (int i = from + 1; i < to; i++){
+				double value = data[i][1];
+				if (value < data[minIdx][1]){
+					minIdx = i;
+				}
+				if (value > data[maxIdx][1]){
+					maxIdx = i;
+				}
+			}
+			if (minIdx == maxIdx){
+				out[count++] = data[minIdx];
+			}else if (minIdx < maxIdx){
+				out[count++] = data[minIdx];
+				out[count++] = data[maxIdx];
+			}else{
+				out[count++] = data[maxIdx];
+				out[count++] = data[minIdx];
+			}
+		}
+		return copyRows(out, count);
+	}
+
+	/**
+	 * Reduces a series to the target number of points using the
+	 * largest-triangle-three-buckets algorithm. The first and last points
+	 * are always kept and the remainder of the series divided into
+	 * <code>targetPoints - 2</code> buckets. From each bucket the point
+	 * forming the largest triangle with the previously selected point and the
+	 * average of the next bucket is kept.
+	 * @param data The series.
+	 * @param targetPoints The number of points to return (at least 3).
+	 * @return The reduced series.
+	 */
+	public static double[][] largestTriangleThreeBuckets(double[][] data, int targetPoints){
+		if (targetPoints < 3){
+			throw new IllegalArgumentException("Largest-triangle-three-buckets requires at least 3 target points, received: " + targetPoints);
+		}
+		int n = data.length;
+		if (n <= targetPoints){
+			return data;
+		}
+		double[][] out = new double[targetPoints][];
+		double every = (double)(n - 2) / (targetPoints - 2);
+		int selected = 0;
+		out[0] = data[0];
+		for (int b = 0; b < targetPoints - 2; b++){
+			//average of the next bucket (or the last point)
+			int avgFrom = (int)Math.floor((b + 1) * every) + 1;
+			int avgTo = Math.min((int)Math.floor((b + 2) * every) + 1, n);
+			double avgX = 0.0;
+			double avgY = 0.0;
+			for (int i = avgFrom; i < avgTo; i++){
+				avgX += data[i][0];
+				avgY += data[i][1];
+			}
+			int avgLength = avgTo - avgFrom;
+			avgX /= avgLength;
+			avgY /= avgLength;
+
+			int from = (int)Math.floor(b * every) + 1;
+			int to = (int)Math.floor((b + 1) * every) + 1;
+			double ax = data[selected][0];
+			double ay = data[selected][1];
+			double maxArea = -1.0;
+			int maxIdx = from;
+			for (int i = from; i < to; i++){
+				//twice the triangle area, the constant factor doesn't matter
+				double area = Math.abs((ax - avgX) * (data[i][1] - ay) - (ax - data[i][0]) * (avgY - ay));
+				if (area > maxArea){
+					maxArea = area;
+					maxIdx = i;
+				}
+			}
+			out[b + 1] = data[maxIdx];
+			selected = maxIdx;
+		}
+		out[targetPoints - 1] = data[n - 1];
+		return out;
+	}
+
+	private static double[][] copyRows(double[][] rows, int count){
+		if (count == rows.length){
+			return rows;
+		}
+		double[][] out = new double[count][];
+		System.arraycopy(rows, 0, out, 0, count);
+		return out;
+	}
+}
@@ -16,17 +16,21 @@ import java.util.logging.Level;
 
 import org.imirsel.nema.analytics.evaluation.EvaluatorImpl;
 import org.imirsel.nema.analytics.util.io.CopyFileFromClassPathToDisk;
+import org.imirsel.nema.analytics.util.process.MatlabEnginePool;
 import org.imirsel.nema.analytics.util.process.MatlabExecutorImpl;
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
 import org.imirsel.nema.model.NemaEvaluationResultSet;
+import org.imirsel.nema.model.NemaSegment;
 import org.imirsel.nema.model.NemaTrackList;
 import org.imirsel.nema.model.fileTypes.StructureTextFile;
 import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
 
 /**
  * 
- * Wraps Paulus' matlab structure eval script.
+ * Structural segmentation evaluation, using a Java implementation of 
+ * Paulus' matlab structure eval scripts. The original scripts may still be 
+ * run, either instead of or as a cross-check on the Java implementation.
  * 
  * @author Andreas Ehmann
  * @author kris.west@gmail.com
@@ -35,6 +39,13 @@ import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
  */
 public class StructureEvaluator extends EvaluatorImpl {
 
+	/** Largest difference tolerated between the Java and matlab metrics when cross-checking. */
+	private static final double CROSS_CHECK_TOLERANCE = 1e-6;
+	
+	private boolean useMatlab = false;
+	private MatlabEnginePool matlabEnginePool = null;
+	private boolean crossCheckWithMatlab = false;
+
 	/**
 	 * Constructor (no arg - task, dataset, output and working dirs, training
 	 * and test sets must be set manually).
@@ -60,24 +71,9 @@ public class StructureEvaluator extends EvaluatorImpl {
 			int numJobs = jobIDToFoldResults.size();
 
 			String jobId, jobName;
-			Map<NemaTrackList,List<NemaData>> sysResults;
 
 			//evaluate each fold for each system
-			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
-			for(Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();){
-				jobId = it.next();
-				getLogger().info("Evaluating experiment folds for jobID: " + jobId);
-				sysResults = jobIDToFoldResults.get(jobId);
-				Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
-				for (Iterator<NemaTrackList> trackIt = sysResults.keySet().iterator(); trackIt.hasNext();) {
-					//make sure we use the evaluators copy of the track list
-					NemaTrackList trackList = testSets.get(testSets.indexOf(trackIt.next()));
-					NemaData result = evaluateResultFold(jobId, trackList, sysResults.get(trackList));
-					foldEvals.put(trackList, result);
-				}
-
-				jobIdToFoldEvaluation.put(jobId, foldEvals);
-			}
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
 
 			/* Aggregated evaluation to produce overall results */
 			Map<String, NemaData> jobIdToOverallEvaluation = new HashMap<String, NemaData>(numJobs);
@@ -107,6 +103,153 @@ public class StructureEvaluator extends EvaluatorImpl {
 
 		int numExamples = checkFoldResultsAreComplete(jobID, testSet, dataList);
 		NemaData outObj = new NemaData(jobID);
+
+		double[][] trackMetrics;
+		if (useMatlab){
+			trackMetrics = evaluateFoldInMatlab(jobID, testSet, dataList);
+		}else{
+			trackMetrics = new double[dataList.size()][];
+			for(int i=0;i<dataList.size();i++){
+				NemaData data = dataList.get(i);
+				trackMetrics[i] = StructureSegmentationMetrics.evaluate(getSegments(trackIDToGT.get(data.getId())), getSegments(data));
+			}
+			if (crossCheckWithMatlab){
+				crossCheck(jobID, dataList, trackMetrics, evaluateFoldInMatlab(jobID, testSet, dataList));
+			}
+		}
+		
+		// Initialize the per-track and aggregated/averaged results storage variables
+		double overSegScore = 0.0;
+		double underSegScore = 0.0;
+		double pwF = 0.0;
+		double pwPrecision = 0.0;
+		double pwRecall = 0.0;
+		double R = 0.0;
+		double fMeasure05 = 0.0;
+		double precRate05 = 0.0;
+		double recRate05 = 0.0;
+		double fMeasure3 = 0.0;
+		double precRate3 = 0.0;
+		double recRate3 = 0.0;
+		double medianTrue2Claim = 0.0;
+		double medianClaim2True = 0.0;
+		
+		double overSegScoreAvg = 0.0;
+		double underSegScoreAvg = 0.0;
+		double pwFAvg = 0.0;
+		double pwPrecisionAvg = 0.0;
+		double pwRecallAvg = 0.0;
+		double RAvg = 0.0;
+		double fMeasure05Avg = 0.0;
+		double precRate05Avg = 0.0;
+		double recRate05Avg = 0.0;
+		double fMeasure3Avg = 0.0;
+		double precRate3Avg = 0.0;
+		double recRate3Avg = 0.0;
+		double medianTrue2ClaimAvg = 0.0;
+		double medianClaim2TrueAvg = 0.0;
+		
+        for(int i=0;i<trackMetrics.length;i++){
+        	NemaData data = dataList.get(i);
+        	double[] metrics = trackMetrics[i];
+			
+			overSegScore = metrics[0];
+			underSegScore = metrics[1];
+			pwF = metrics[2];
+			pwPrecision = metrics[3];
+			pwRecall = metrics[4];
+			R = metrics[5];
+			fMeasure05 = metrics[6];
+			precRate05 = metrics[7];
+			recRate05 = metrics[8];
+			fMeasure3 = metrics[9];
+			precRate3 = metrics[10];
+			recRate3 = metrics[11];
+			medianTrue2Claim = metrics[12];
+			medianClaim2True = metrics[13];
+			
+			overSegScoreAvg += overSegScore;
+			underSegScoreAvg += underSegScore;
+			pwFAvg += pwF;
+			pwPrecisionAvg += pwPrecision;
+			pwRecallAvg += pwRecall;
+			RAvg += R;
+			fMeasure05Avg += fMeasure05;
+			precRate05Avg += precRate05;
+			recRate05Avg += recRate05;
+			fMeasure3Avg += fMeasure3;
+			precRate3Avg += precRate3;
+			recRate3Avg += recRate3;
+			medianTrue2ClaimAvg += medianTrue2Claim;
+			medianClaim2TrueAvg += medianClaim2True;
+			
+			/* 
+			 * Populate each track's NemaData object with the measures.  */
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_OVERSEGSCORE, overSegScore);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_UNDERSEGSCORE, underSegScore);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWF, pwF);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWPRECISION, pwPrecision);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWRECALL, pwRecall);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_R, R);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_FMEASUREATPOINTFIVE, fMeasure05);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PRECRATEATPOINTFIVE, precRate05);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_RECRATEATPOINTFIVE, recRate05);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_FMEASUREATTHREE, fMeasure3);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PRECRATEATTHREE, precRate3);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_RECRATEATTHREE, recRate3);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_MEDCLAIM2TRUE, medianTrue2Claim);
+			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_MEDTRUE2CLAIM, medianClaim2True);
+
+		}
+		
+		// Calculate and populate average/summary result 
+		overSegScoreAvg /= (double)numExamples;
+		underSegScoreAvg /= (double)numExamples;
+		pwFAvg /= (double)numExamples;
+		pwPrecisionAvg /= (double)numExamples;
+		pwRecallAvg /= (double)numExamples;
+		RAvg /= (double)numExamples;
+		fMeasure05Avg /= (double)numExamples;
+		precRate05Avg /= (double)numExamples;
+		recRate05Avg /= (double)numExamples;
+		fMeasure3Avg /= (double)numExamples;
+		precRate3Avg /= (double)numExamples;
+		recRate3Avg /= (double)numExamples;
+		medianTrue2ClaimAvg /= (double)numExamples;
+		medianClaim2TrueAvg /= (double)numExamples;
+		
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_OVERSEGSCORE, overSegScoreAvg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_UNDERSEGSCORE, underSegScoreAvg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWF, pwFAvg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWPRECISION, pwPrecisionAvg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWRECALL, pwRecallAvg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_R, RAvg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_FMEASUREATPOINTFIVE, fMeasure05Avg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PRECRATEATPOINTFIVE, precRate05Avg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_RECRATEATPOINTFIVE, recRate05Avg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_FMEASUREATTHREE, fMeasure3Avg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PRECRATEATTHREE, precRate3Avg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_RECRATEATTHREE, recRate3Avg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_MEDCLAIM2TRUE, medianTrue2ClaimAvg);
+		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_MEDTRUE2CLAIM, medianClaim2TrueAvg);
+
+		return outObj;
+	}
+
+	/**
+	 * Evaluates the tracks of a fold using Paulus' original matlab scripts,
+	 * by writing the segmentations out to a temporary directory and running
+	 * a generated m-file in matlab.
+	 * 
+	 * @param jobID the jobID being evaluated.
+	 * @param testSet the test set being evaluated.
+	 * @param dataList the results for each track.
+	 * @return the metrics for each track, in the same order as 
+	 * {@link StructureSegmentationMetrics#evaluate(List, List)}.
+	 * @throws IllegalArgumentException Thrown if matlab fails or its results 
+	 * can't be read.
+	 */
+	private double[][] evaluateFoldInMatlab(String jobID, NemaTrackList testSet, List<NemaData> dataList) throws IllegalArgumentException{
 		NemaData gtData;
 
 		// Set up temporary directory for the evaluation to take place in
@@ -152,37 +295,6 @@ public class StructureEvaluator extends EvaluatorImpl {
 		String gtFileName;
 		String resultFileName;
 		
-		// Initialize the per-track and aggregated/averaged results storage variables
-		double overSegScore = 0.0;
-		double underSegScore = 0.0;
-		double pwF = 0.0;
-		double pwPrecision = 0.0;
-		double pwRecall = 0.0;
-		double R = 0.0;
-		double fMeasure05 = 0.0;
-		double precRate05 = 0.0;
-		double recRate05 = 0.0;
-		double fMeasure3 = 0.0;
-		double precRate3 = 0.0;
-		double recRate3 = 0.0;
-		double medianTrue2Claim = 0.0;
-		double medianClaim2True = 0.0;
-		
-		double overSegScoreAvg = 0.0;
-		double underSegScoreAvg = 0.0;
-		double pwFAvg = 0.0;
-		double pwPrecisionAvg = 0.0;
-		double pwRecallAvg = 0.0;
-		double RAvg = 0.0;
-		double fMeasure05Avg = 0.0;
-		double precRate05Avg = 0.0;
-		double recRate05Avg = 0.0;
-		double fMeasure3Avg = 0.0;
-		double precRate3Avg = 0.0;
-		double recRate3Avg = 0.0;
-		double medianTrue2ClaimAvg = 0.0;
-		double medianClaim2TrueAvg = 0.0;
-		
 		ArrayList<File> resultFiles = new ArrayList<File>();
 		String evalMFileContent = "echo on\n";
 		StructureTextFile structFileWriter = new StructureTextFile();
@@ -211,7 +323,6 @@ public class StructureEvaluator extends EvaluatorImpl {
 			evalMFileContent += evalCommand + "('" + gtFile.getAbsolutePath() + "','" + algFile.getAbsolutePath() + "','" + resultFile.getAbsolutePath() + "');\n";		
 			//"echo 'evaluating track " + data.getId() + " for job " + jobID + "';\n" + 
 		}
-		evalMFileContent += "exit;\n";
 		byte[] jobIdBytes = {1};
 		try {
 			jobIdBytes = jobID.getBytes("UTF-8");
@@ -239,6 +350,7 @@ public class StructureEvaluator extends EvaluatorImpl {
 		
 		MatlabExecutorImpl matlabIntegrator = new MatlabExecutorImpl(evalTempDir,true,evalTempDir,evalTempDir,evalTempDir,"",evalFunction,null);
         matlabIntegrator.setMatlabBin(matlabPath);
+        matlabIntegrator.setEnginePool(matlabEnginePool);
         try {
 			matlabIntegrator.runCommand(null);
 		} catch (Exception e) {
@@ -246,8 +358,8 @@ public class StructureEvaluator extends EvaluatorImpl {
 			throw new IllegalArgumentException(e);
 		}
         
+        double[][] trackMetrics = new double[resultFiles.size()][];
         for(int i=0;i<resultFiles.size();i++){
-        	NemaData data = dataList.get(i);
         	File resultFile = resultFiles.get(i);
 	        String[][] structResultsStrArray = null;
 	        
@@ -257,92 +369,100 @@ public class StructureEvaluator extends EvaluatorImpl {
 				getLogger().log(Level.SEVERE, "Failed to write structure files and evaluate them using MATLAB",e);
 				throw new IllegalArgumentException(e);
 			}
-			
-			overSegScore = Double.valueOf(structResultsStrArray[0][0]);
-			underSegScore = Double.valueOf(structResultsStrArray[0][1]);
-			pwF = Double.valueOf(structResultsStrArray[0][2]);
-			pwPrecision = Double.valueOf(structResultsStrArray[0][3]);
-			pwRecall = Double.valueOf(structResultsStrArray[0][4]);
-			R = Double.valueOf(structResultsStrArray[0][5]);
-			fMeasure05 = Double.valueOf(structResultsStrArray[0][6]);
-			precRate05 = Double.valueOf(structResultsStrArray[0][7]);
-			recRate05 = Double.valueOf(structResultsStrArray[0][8]);
-			fMeasure3 = Double.valueOf(structResultsStrArray[0][9]);
-			precRate3 = Double.valueOf(structResultsStrArray[0][10]);
-			recRate3 = Double.valueOf(structResultsStrArray[0][11]);
-			medianTrue2Claim = Double.valueOf(structResultsStrArray[0][12]);
-			medianClaim2True = Double.valueOf(structResultsStrArray[0][13]);
-			
-			overSegScoreAvg += overSegScore;
-			underSegScoreAvg += underSegScore;
-			pwFAvg += pwF;
-			pwPrecisionAvg += pwPrecision;
-			pwRecallAvg += pwRecall;
-			RAvg += R;
-			fMeasure05Avg += fMeasure05;
-			precRate05Avg += precRate05;
-			recRate05Avg += recRate05;
-			fMeasure3Avg += fMeasure3;
-			precRate3Avg += precRate3;
-			recRate3Avg += recRate3;
-			medianTrue2ClaimAvg += medianTrue2Claim;
-			medianClaim2TrueAvg += medianClaim2True;
-			
-			/* 
-			 * Populate each track's NemaData object with the measures.  */
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_OVERSEGSCORE, overSegScore);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_UNDERSEGSCORE, underSegScore);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWF, pwF);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWPRECISION, pwPrecision);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWRECALL, pwRecall);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_R, R);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_FMEASUREATPOINTFIVE, fMeasure05);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PRECRATEATPOINTFIVE, precRate05);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_RECRATEATPOINTFIVE, recRate05);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_FMEASUREATTHREE, fMeasure3);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PRECRATEATTHREE, precRate3);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_RECRATEATTHREE, recRate3);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_MEDCLAIM2TRUE, medianTrue2Claim);
-			data.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_MEDTRUE2CLAIM, medianClaim2True);
-
-		}
-		
-		// Calculate and populate average/summary result 
-		overSegScoreAvg /= (double)numExamples;
-		underSegScoreAvg /= (double)numExamples;
-		pwFAvg /= (double)numExamples;
-		pwPrecisionAvg /= (double)numExamples;
-		pwRecallAvg /= (double)numExamples;
-		RAvg /= (double)numExamples;
-		fMeasure05Avg /= (double)numExamples;
-		precRate05Avg /= (double)numExamples;
-		recRate05Avg /= (double)numExamples;
-		fMeasure3Avg /= (double)numExamples;
-		precRate3Avg /= (double)numExamples;
-		recRate3Avg /= (double)numExamples;
-		medianTrue2ClaimAvg /= (double)numExamples;
-		medianClaim2TrueAvg /= (double)numExamples;
-		
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_OVERSEGSCORE, overSegScoreAvg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_UNDERSEGSCORE, underSegScoreAvg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWF, pwFAvg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWPRECISION, pwPrecisionAvg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PWRECALL, pwRecallAvg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_R, RAvg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_FMEASUREATPOINTFIVE, fMeasure05Avg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PRECRATEATPOINTFIVE, precRate05Avg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_RECRATEATPOINTFIVE, recRate05Avg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_FMEASUREATTHREE, fMeasure3Avg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_PRECRATEATTHREE, precRate3Avg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_RECRATEATTHREE, recRate3Avg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_MEDCLAIM2TRUE, medianTrue2ClaimAvg);
-		outObj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_MEDTRUE2CLAIM, medianClaim2TrueAvg);
+			trackMetrics[i] = new double[StructureSegmentationMetrics.NUM_METRICS];
+			for(int m=0;m<trackMetrics[i].length;m++){
+				trackMetrics[i][m] = Double.valueOf(structResultsStrArray[0][m]);
+			}
+        }
 		
 		// remove temporary directory and files
 		recursiveDeleteTempDir(evalTempDir);
 
+		return trackMetrics;
+	}
 
-		return outObj;
+	/**
+	 * Logs a warning for every track metric where the Java implementation 
+	 * and matlab disagree.
+	 */
+	private void crossCheck(String jobID, List<NemaData> dataList, double[][] javaMetrics, double[][] matlabMetrics){
+		for(int i=0;i<javaMetrics.length;i++){
+			for(int m=0;m<javaMetrics[i].length;m++){
+				double java = javaMetrics[i][m];
+				double matlab = matlabMetrics[i][m];
+				boolean bothNaN = Double.isNaN(java) && Double.isNaN(matlab);
+				if(!bothNaN && !(Math.abs(java - matlab) <= CROSS_CHECK_TOLERANCE)){
+					getLogger().warning("Structure metric " + trackEvalMetrics.get(m) + " for job ID '" + jobID + "', track '" 
+							+ dataList.get(i).getId() + "' differs between Java (" + java + ") and MATLAB (" + matlab + ")");
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<NemaSegment> getSegments(NemaData data){
+		return (List<NemaSegment>)data.getMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_DATA);
+	}
+
+	/**
+	 * Sets a flag determining whether the metrics are computed by Paulus' 
+	 * original matlab scripts rather than the Java implementation (the 
+	 * default).
+	 * 
+	 * @param useMatlab the flag to set.
+	 */
+	public void setUseMatlab(boolean useMatlab) {
+		this.useMatlab = useMatlab;
+	}
+
+	/**
+	 * @return a flag determining whether the metrics are computed in matlab.
+	 */
+	public boolean getUseMatlab() {
+		return useMatlab;
+	}
+
+	/**
+	 * Sets a pool of warm MATLAB engines to compute the matlab metrics in, 
+	 * rather than starting MATLAB for each evaluation.
+	 * 
+	 * @param pool the pool or null to start MATLAB for each evaluation.
+	 * @since 0.4.1
+	 */
+	public void setMatlabEnginePool(MatlabEnginePool pool) {
+		this.matlabEnginePool = pool;
+	}
+
+	/**
+	 * @return the pool of MATLAB engines used or null.
+	 * @since 0.4.1
+	 */
+	public MatlabEnginePool getMatlabEnginePool() {
+		return matlabEnginePool;
+	}
+
+	@Override
+	protected String getCacheParameters() {
+		return "useMatlab=" + useMatlab;
+	}
+
+	/**
+	 * Sets a flag determining whether the metrics computed in Java are also 
+	 * computed in matlab and any differences logged. The Java results are 
+	 * still the ones returned.
+	 * 
+	 * @param crossCheckWithMatlab the flag to set.
+	 */
+	public void setCrossCheckWithMatlab(boolean crossCheckWithMatlab) {
+		this.crossCheckWithMatlab = crossCheckWithMatlab;
+	}
+
+	/**
+	 * @return a flag determining whether the Java results are cross-checked 
+	 * against matlab.
+	 */
+	public boolean getCrossCheckWithMatlab() {
+		return crossCheckWithMatlab;
 	}
 
 	@Override
@@ -0,0 +1,520 @@
+package org.imirsel.nema.analytics.evaluation.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.imirsel.nema.model.NemaSegment;
+
+/**
+ * Pure-Java implementation of Paulus' structural segmentation metrics, as
+ * implemented by the matlab scripts in the <code>resources</code> package
+ * (<code>evaluateStructure.m</code> and the functions it calls). Segments are
+ * grouped by label, sampled onto a uniform grid of borders spanning both
+ * descriptions and compared frame by frame, exactly as the scripts do.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class StructureSegmentationMetrics {
+
+	/** Number of metrics returned by {@link #evaluate(List, List)}. */
+	public static final int NUM_METRICS = 14;
+
+	/** Number of grid borders used by the conditional entropy and Rand index. */
+	public static final int ENTROPY_BORDER_COUNT = 1000;
+
+	/** Number of grid borders used by the pairwise F-measure. */
+	public static final int PAIRWISE_BORDER_COUNT = 500;
+
+	/** Labels excluded from the boundary retrieval evaluation. */
+	private static final String[] BOUNDARY_EXCLUDE_LIST = {"sil","silence","silece","si"};
+
+	/** Matlab's <code>eps</code>. */
+	private static final double EPS = Math.ulp(1.0);
+
+	private StructureSegmentationMetrics(){
+	}
+
+	/**
+	 * Evaluates a segmentation against the ground-truth segmentation,
+	 * returning the metrics in the order written out by
+	 * <code>evaluateStructure.m</code>: over-segmentation score,
+	 * under-segmentation score, pairwise F-measure, precision and recall,
+	 * Rand index, boundary retrieval F-measure, precision and recall at 0.5s,
+	 * the same at 3s and finally the median true-to-claim and claim-to-true
+	 * boundary distances.
+	 *
+	 * @param gt the ground-truth segments.
+	 * @param result the segments returned by the system.
+	 * @return an array of {@link #NUM_METRICS} metric values.
+	 */
+	public static double[] evaluate(List<NemaSegment> gt, List<NemaSegment> result){
+		Description ref = new Description(gt);
+		Description res = new Description(result);
+
+		//the entropy and rand index share a grid, the pairwise F-measure uses a coarser one
+		int[][] confMat = confusion(ref, res, linspace(ref, res, ENTROPY_BORDER_COUNT));
+		int[][] pairwiseConfMat = confusion(ref, res, linspace(ref, res, PAIRWISE_BORDER_COUNT));
+
+		double[] out = new double[NUM_METRICS];
+		double[] entropy = condEntropyEval(confMat);
+		out[0] = entropy[0];
+		out[1] = entropy[1];
+		double[] pairwise = pairwiseF(pairwiseConfMat);
+		out[2] = pairwise[0];
+		out[3] = pairwise[1];
+		out[4] = pairwise[2];
+		out[5] = randClusteringIndex(confMat);
+		double[] retrieval05 = segmentRetrievalEval(ref, res, 0.5);
+		out[6] = retrieval05[0];
+		out[7] = retrieval05[1];
+		out[8] = retrieval05[2];
+		double[] retrieval3 = segmentRetrievalEval(ref, res, 3.0);
+		out[9] = retrieval3[0];
+		out[10] = retrieval3[1];
+		out[11] = retrieval3[2];
+		out[12] = retrieval3[3];
+		out[13] = retrieval3[4];
+		return out;
+	}
+
+	/**
+	 * Conditional entropy based over- and under-segmentation scores
+	 * (<code>condEntropyEval.m</code>). Frames not covered by any segment
+	 * are ignored.
+	 *
+	 * @param confMat the label confusion matrix returned by
+	 * {@link #confusion(Description, Description, double[])}.
+	 * @return an array holding the over-segmentation and under-segmentation
+	 * scores.
+	 */
+	static double[] condEntropyEval(int[][] confMat){
+		int refLabelCount = confMat.length - 1;
+		int resLabelCount = confMat[0].length - 1;
+
+		//drop the unlabelled row and column
+		double total = 0.0;
+		double[] refSums = new double[refLabelCount];
+		double[] resSums = new double[resLabelCount];
+		for (int i = 0; i < refLabelCount; i++) {
+			for (int j = 0; j < resLabelCount; j++) {
+				refSums[i] += confMat[i][j];
+				resSums[j] += confMat[i][j];
+				total += confMat[i][j];
+			}
+		}
+
+		double entResGivenRef = 0.0;
+		for (int i = 0; i < refLabelCount; i++) {
+			double rowEnt = 0.0;
+			for (int j = 0; j < resLabelCount; j++) {
+				rowEnt += plogp(confMat[i][j] / refSums[i]);
+			}
+			entResGivenRef += (refSums[i] / total) * rowEnt;
+		}
+		entResGivenRef = -entResGivenRef;
+
+		double entRefGivenRes = 0.0;
+		for (int j = 0; j < resLabelCount; j++) {
+			double colEnt = 0.0;
+			for (int i = 0; i < refLabelCount; i++) {
+				colEnt += plogp(confMat[i][j] / resSums[j]);
+			}
+			entRefGivenRes += (resSums[j] / total) * colEnt;
+		}
+		entRefGivenRes = -entRefGivenRes;
+
+		double overSegScore;
+		if (resLabelCount <= 1){
+			overSegScore = entResGivenRef > EPS ? 0.0 : 1.0;
+		}else{
+			overSegScore = 1.0 - entResGivenRef / log2(resLabelCount);
+		}
+		double underSegScore;
+		if (refLabelCount <= 1){
+			underSegScore = entRefGivenRes > EPS ? 0.0 : 1.0;
+		}else{
+			underSegScore = 1.0 - entRefGivenRes / log2(refLabelCount);
+		}
+		return new double[]{overSegScore, underSegScore};
+	}
+
+	/**
+	 * Pairwise frame clustering F-measure, precision and recall
+	 * (<code>pairwiseF.m</code>). Rather than building the frame by frame
+	 * recurrence matrices, the pair counts are derived from the label
+	 * co-occurrence counts, which gives the same integers.
+	 *
+	 * @param confMat the label confusion matrix returned by
+	 * {@link #confusion(Description, Description, double[])}.
+	 * @return an array holding the F-measure, precision and recall.
+	 */
+	static double[] pairwiseF(int[][] confMat){
+
+		double hitCount = 0.0;
+		double refCount = 0.0;
+		double resultCount = 0.0;
+		double[] resSums = new double[confMat[0].length];
+		for (int i = 0; i < confMat.length; i++) {
+			double rowSum = 0.0;
+			for (int j = 0; j < confMat[i].length; j++) {
+				hitCount += pairs(confMat[i][j]);
+				rowSum += confMat[i][j];
+				resSums[j] += confMat[i][j];
+			}
+			refCount += pairs(rowSum);
+		}
+		for (int j = 0; j < resSums.length; j++) {
+			resultCount += pairs(resSums[j]);
+		}
+
+		if (hitCount < EPS){
+			return new double[]{0.0, 0.0, 0.0};
+		}
+		double pwPrecision = hitCount / resultCount;
+		double pwRecall = hitCount / refCount;
+		double pwF = 2 * pwPrecision * pwRecall / (pwPrecision + pwRecall);
+		return new double[]{pwF, pwPrecision, pwRecall};
+	}
+
+	/**
+	 * Rand clustering index over the frame labels, including unlabelled
+	 * frames (<code>randClusteringIndex.m</code>).
+	 *
+	 * @param confMat the label confusion matrix returned by
+	 * {@link #confusion(Description, Description, double[])}.
+	 * @return the Rand index.
+	 */
+	static double randClusteringIndex(int[][] confMat){
+		double frameCount = 0.0;
+		double sumSq = 0.0;
+		double aVal = 0.0;
+		double rowSq = 0.0;
+		double[] colSums = new double[confMat[0].length];
+		for (int i = 0; i < confMat.length; i++) {
+			double rowSum = 0.0;
+			for (int j = 0; j < confMat[i].length; j++) {
+				double n = confMat[i][j];
+				aVal += n * (n - 1);
+				frameCount += n;
+				sumSq += n * n;
+				rowSum += n;
+				colSums[j] += n;
+			}
+			rowSq += rowSum * rowSum;
+		}
+		double colSq = 0.0;
+		for (int j = 0; j < colSums.length; j++) {
+			colSq += colSums[j] * colSums[j];
+		}
+		aVal /= 2;
+		double bVal = (frameCount * frameCount + sumSq - rowSq - colSq) / 2;
+		return (aVal + bVal) / (frameCount * (frameCount - 1) / 2);
+	}
+
+	/**
+	 * Boundary retrieval evaluation (<code>segmentRetrievalEval2.m</code>).
+	 * Boundaries are matched greedily, closest pair first, and a match is a
+	 * hit if it is closer than <code>deltaT</code>. Only candidate pairs
+	 * within the window are generated, found by sweeping the two sorted
+	 * boundary lists, as the greedy matching accepts nothing beyond it.
+	 *
+	 * @param deltaT the hit window in seconds.
+	 * @return an array holding the F-measure, precision, recall, median
+	 * true-to-claim distance and median claim-to-true distance.
+	 */
+	static double[] segmentRetrievalEval(Description ref, Description res, double deltaT){
+		double[] refBorders = ref.getBoundaries(BOUNDARY_EXCLUDE_LIST);
+		double[] resBorders = res.getBoundaries(BOUNDARY_EXCLUDE_LIST);
+		int refCount = refBorders.length;
+		int resCount = resBorders.length;
+
+		double medianTrue2claim = median(nearestDistances(refBorders, resBorders));
+		double medianClaim2true = median(nearestDistances(resBorders, refBorders));
+
+		//collect candidate pairs inside the window
+		List<BoundaryPair> candidates = new ArrayList<BoundaryPair>();
+		int lo = 0;
+		for (int r = 0; r < refCount; r++) {
+			while (lo < resCount && resBorders[lo] <= refBorders[r] - deltaT){
+				lo++;
+			}
+			for (int c = lo; c < resCount && resBorders[c] < refBorders[r] + deltaT; c++) {
+				double dist = Math.abs(refBorders[r] - resBorders[c]);
+				if (dist < deltaT){
+					candidates.add(new BoundaryPair(dist, r, c));
+				}
+			}
+		}
+		Collections.sort(candidates);
+
+		boolean[] refUsed = new boolean[refCount];
+		boolean[] resUsed = new boolean[resCount];
+		int totalHits = 0;
+		for (Iterator<BoundaryPair> it = candidates.iterator(); it.hasNext();) {
+			BoundaryPair pair = it.next();
+			if (!refUsed[pair.ref] && !resUsed[pair.res]){
+				refUsed[pair.ref] = true;
+				resUsed[pair.res] = true;
+				totalHits++;
+			}
+		}
+
+		double precRate = (double)totalHits / resCount;
+		double recRate = (double)totalHits / refCount;
+		double fMeasure = 0.0;
+		if (precRate + recRate > 0){
+			fMeasure = 2 * precRate * recRate / (precRate + recRate);
+		}
+		return new double[]{fMeasure, precRate, recRate, medianTrue2claim, medianClaim2true};
+	}
+
+	/**
+	 * Returns matlab's <code>linspace(minTime,maxTime,count)</code> over the
+	 * times in both descriptions.
+	 */
+	static double[] linspace(Description ref, Description res, int count){
+		double minTime = Math.min(ref.getMinTime(), res.getMinTime());
+		double maxTime = Math.max(Double.MIN_NORMAL, Math.max(ref.getMaxTime(), res.getMaxTime()));
+		double[] out = new double[count];
+		double step = (maxTime - minTime) / (count - 1);
+		for (int i = 0; i < count - 1; i++) {
+			out[i] = minTime + i * step;
+		}
+		out[count - 1] = maxTime;
+		return out;
+	}
+
+	/**
+	 * Samples both descriptions onto the frames between the borders and
+	 * builds their label confusion matrix, where the extra last row and column
+	 * count unlabelled frames.
+	 */
+	static int[][] confusion(Description ref, Description res, double[] borders){
+		int[] refSeq = ref.toSequence(borders);
+		int[] resSeq = res.toSequence(borders);
+		int refLabelCount = ref.getLabelCount();
+		int resLabelCount = res.getLabelCount();
+		int[][] confMat = new int[refLabelCount + 1][resLabelCount + 1];
+		for (int f = 0; f < refSeq.length; f++) {
+			int r = refSeq[f] < 0 ? refLabelCount : refSeq[f];
+			int c = resSeq[f] < 0 ? resLabelCount : resSeq[f];
+			confMat[r][c]++;
+		}
+		return confMat;
+	}
+
+	/**
+	 * For each time in <code>from</code> returns the distance to the
+	 * nearest time in the sorted array <code>to</code>.
+	 */
+	private static double[] nearestDistances(double[] from, double[] to){
+		if (to.length == 0){
+			return new double[0];
+		}
+		double[] out = new double[from.length];
+		for (int i = 0; i < from.length; i++) {
+			int idx = Arrays.binarySearch(to, from[i]);
+			if (idx >= 0){
+				out[i] = 0.0;
+			}else{
+				int ins = -idx - 1;
+				double best = Double.POSITIVE_INFINITY;
+				if (ins > 0){
+					best = Math.abs(from[i] - to[ins - 1]);
+				}
+				if (ins < to.length){
+					best = Math.min(best, Math.abs(from[i] - to[ins]));
+				}
+				out[i] = best;
+			}
+		}
+		return out;
+	}
+
+	private static double median(double[] values){
+		if (values.length == 0){
+			return Double.NaN;
+		}
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int mid = sorted.length / 2;
+		if (sorted.length % 2 == 1){
+			return sorted[mid];
+		}
+		return (sorted[mid - 1] + sorted[mid]) / 2.0;
+	}
+
+	private static double pairs(double n){
+		return n * (n - 1) / 2;
+	}
+
+	/** Returns p*log2(p), treating the non-finite results of p = 0 or 0/0 as zero. */
+	private static double plogp(double p){
+		double val = p * log2(p);
+		if (Double.isNaN(val) || Double.isInfinite(val)){
+			return 0.0;
+		}
+		return val;
+	}
+
+	private static double log2(double x){
+		return Math.log(x) / Math.log(2.0);
+	}
+
+	/**
+	 * A segmentation grouped by label, in order of first appearance, as
+	 * produced by <code>readStructureFromLab.m</code>.
+	 */
+	static class Description{
+		private final List<String> labels;
+		private final List<double[]> times;
+		private double minTime = Double.MAX_VALUE;
+		private double maxTime = Double.MIN_NORMAL;
+
+		Description(List<NemaSegment> segments){
+			Map<String,List<NemaSegment>> byLabel = new LinkedHashMap<String,List<NemaSegment>>();
+			for (Iterator<NemaSegment> it = segments.iterator(); it.hasNext();) {
+				NemaSegment seg = it.next();
+				String label = seg.getLabel() == null ? "" : seg.getLabel().trim();
+				List<NemaSegment> group = byLabel.get(label);
+				if (group == null){
+					group = new ArrayList<NemaSegment>();
+					byLabel.put(label, group);
+				}
+				group.add(seg);
+				minTime = Math.min(minTime, Math.min(seg.getOnset(), seg.getOffset()));
+				maxTime = Math.max(maxTime, Math.max(seg.getOnset(), seg.getOffset()));
+			}
+			labels = new ArrayList<String>(byLabel.keySet());
+			times = new ArrayList<double[]>(labels.size());
+			for (Iterator<List<NemaSegment>> it = byLabel.values().iterator(); it.hasNext();) {
+				List<NemaSegment> group = it.next();
+				double[] groupTimes = new double[group.size() * 2];
+				for (int i = 0; i < group.size(); i++) {
+					groupTimes[2 * i] = group.get(i).getOnset();
+					groupTimes[2 * i + 1] = group.get(i).getOffset();
+				}
+				times.add(groupTimes);
+			}
+		}
+
+		int getLabelCount(){
+			return labels.size();
+		}
+
+		double getMinTime(){
+			return minTime;
+		}
+
+		double getMaxTime(){
+			return maxTime;
+		}
+
+		/**
+		 * Samples the description onto the frames between the borders
+		 * (<code>desc2seq.m</code>), returning the label index of each frame
+		 * or -1 for unlabelled frames. Later labels overwrite earlier ones.
+		 */
+		int[] toSequence(double[] borders){
+			int[] seq = new int[borders.length - 1];
+			Arrays.fill(seq, -1);
+			for (int g = 0; g < times.size(); g++) {
+				double[] groupTimes = times.get(g);
+				for (int o = 0; o + 1 < groupTimes.length; o += 2) {
+					int start = nearestBorder(borders, groupTimes[o]);
+					int end = nearestBorder(borders, groupTimes[o + 1]);
+					for (int f = start; f < end; f++) {
+						seq[f] = g;
+					}
+				}
+			}
+			return seq;
+		}
+
+		/**
+		 * Returns the sorted, unique boundary times of all segments whose label
+		 * is not in the exclude list.
+		 */
+		double[] getBoundaries(String[] excludeList){
+			List<String> exclude = Arrays.asList(excludeList);
+			int count = 0;
+			for (int g = 0; g < labels.size(); g++) {
+				if (!exclude.contains(labels.get(g))){
+					count += times.get(g).length;
+				}
+			}
+			double[] all = new double[count];
+			int n = 0;
+			for (int g = 0; g < labels.size(); g++) {
+				if (!exclude.contains(labels.get(g))){
+					double[] groupTimes = times.get(g);
+					System.arraycopy(groupTimes, 0, all, n, groupTimes.length);
+					n += groupTimes.length;
+				}
+			}
+			Arrays.sort(all);
+			int unique = 0;
+			for (int i = 0; i < all.length; i++) {
+				if (unique == 0 || all[i] != all[unique - 1]){
+					all[unique++] = all[i];
+				}
+			}
+			return Arrays.copyOf(all, unique);
+		}
+
+		/** Index of the border nearest to t, the lowest index on ties. */
+		private static int nearestBorder(double[] borders, double t){
+			int idx = Arrays.binarySearch(borders, t);
+			if (idx >= 0){
+				while (idx > 0 && borders[idx - 1] == t){
+					idx--;
+				}
+				return idx;
+			}
+			int ins = -idx - 1;
+			if (ins == 0){
+				return 0;
+			}
+			if (ins == borders.length){
+				return borders.length - 1;
+			}
+			if (Math.abs(borders[ins - 1] - t) <= Math.abs(borders[ins] - t)){
+				return ins - 1;
+			}
+			return ins;
+		}
+	}
+
+	/**
+	 * A candidate match between a ground-truth and a returned boundary,
+	 * ordered by distance and then as matlab's <code>min</code> would find
+	 * them in a column-major distance matrix.
+	 */
+	private static class BoundaryPair implements Comparable<BoundaryPair>{
+		final double dist;
+		final int ref;
+		final int res;
+
+		BoundaryPair(double dist, int ref, int res){
+			this.dist = dist;
+			this.ref = ref;
+			this.res = res;
+		}
+
+		public int compareTo(BoundaryPair o) {
+			if (dist != o.dist){
+				return dist < o.dist ? -1 : 1;
+			}
+			if (res != o.res){
+				return res < o.res ? -1 : 1;
+			}
+			return ref < o.ref ? -1 : (ref > o.ref ? 1 : 0);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package org.imirsel.nema.analytics.evaluation.tagsClassification;
+
+import java.util.Arrays;
+
+/**
+ * The Receiver Operating Characteristic curve, area under it and precision at
+ * N of a set of affinity scores for positive and negative examples, computed
+ * on primitive arrays. The scores of the positive and negative examples are
+ * passed in separate arrays, each sorted once, and the curve is traced by
+ * walking both from the highest score down. Examples with equal scores are
+ * treated as a single threshold, so the curve has a point per distinct score
+ * and the area under it is the Mann-Whitney U statistic of the positive
+ * scores (the rank-sum with tied examples given their mean rank) divided by
+ * the number of positive-negative pairs. The curve may be downsampled for
+ * display, without affecting the area.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class RocCurve {
+
+	/** Passed as the maximum number of points to keep every point of the curve. */
+	public static final int ALL_POINTS = 0;
+
+	private final int numPositives;
+	private final int numNegatives;
+	private final double area;
+	private final double[] falsePositiveRates;
+	private final double[] truePositiveRates;
+	private final double[] precisionAtN;
+
+	private RocCurve(int numPositives, int numNegatives, double area,
+			double[] falsePositiveRates, double[] truePositiveRates, double[] precisionAtN) {
+		this.numPositives = numPositives;
+		this.numNegatives = numNegatives;
+		this.area = area;
+		this.falsePositiveRates = falsePositiveRates;
+		this.truePositiveRates = truePositiveRates;
+		this.precisionAtN = precisionAtN;
+	}
+
+	/**
+	 * Computes the curve. The first numPositives and numNegatives elements of
+	 * the score arrays are sorted in place.
+	 * @param positiveScores The scores of the positive examples.
+	 * @param numPositives The number of positive examples.
+	 * @param negativeScores The scores of the negative examples.
+	 * @param numNegatives The number of negative examples.
+	 * @param precisionLevels The numbers of top-scoring examples to compute
+	 * the precision of, or null. Where examples with equal scores straddle a
+	 * level the expected precision over their orderings is returned and
+	 * levels beyond the number of examples score 0.
+	 * @param maxPoints The maximum number of points to keep in the curve, at
+	 * least 2, or {@link #ALL_POINTS}.
+	 * @return the curve.
+	 * @throws IllegalArgumentException Thrown if any score is NaN.
+	 */
+	public static RocCurve compute(double[] positiveScores, int numPositives, double[] negativeScores, int numNegatives,
+			int[] precisionLevels, int maxPoints) {
+		Arrays.sort(positiveScores, 0, numPositives);
+		Arrays.sort(negativeScores, 0, numNegatives);
+		//NaN sorts last and can't be ranked
+		if ((numPositives > 0 && Double.isNaN(positiveScores[numPositives - 1])) 
+				|| (numNegatives > 0 && Double.isNaN(negativeScores[numNegatives - 1]))){
+			throw new IllegalArgumentException("Scores for an ROC curve must not be NaN");
+		}
+
+		double[] fpr = new double[numPositives + numNegatives + 1];
+		double[] tpr = new double[fpr.length];
+		int numPoints = 1;
+		double[] precisions = precisionLevels == null ? null : new double[precisionLevels.length];
+		int level = 0;
+
+		//walk the tie groups from the highest score down
+		int p = numPositives - 1;
+		int n = numNegatives - 1;
+		int truePositives = 0;
+		int falsePositives = 0;
+		double pairsOrdered = 0.0;
+		while (p >= 0 || n >= 0){
+			double score;
+			if (p < 0){
+				score = negativeScores[n];
+			} else if (n < 0){
+				score = positiveScores[p];
+			} else {
+				score = Math.max(positiveScores[p], negativeScores[n]);
+			}
+			int groupPositives = 0;
+			while (p >= 0 && positiveScores[p] == score){
+				groupPositives++;
+				p--;
+			}
+			int groupNegatives = 0;
+			while (n >= 0 && negativeScores[n] == score){
+				groupNegatives++;
+				n--;
+			}
+
+			//positives in the group rank above the negatives below it and tie with those in it
+			int negativesBelow = numNegatives - falsePositives - groupNegatives;
+			pairsOrdered += groupPositives * (double)negativesBelow + 0.5 * groupPositives * (double)groupNegatives;
+
+			if (precisions != null){
+				int before = truePositives + falsePositives;
+				int groupSize = groupPositives + groupNegatives;
+				while (level < precisionLevels.length && precisionLevels[level] <= before + groupSize){
+					int l = precisionLevels[level];
+					precisions[level] = (truePositives + groupPositives * (double)(l - before) / groupSize) / l;
+					level++;
+				}
+			}
+
+			truePositives += groupPositives;
+			falsePositives += groupNegatives;
+			fpr[numPoints] = numNegatives == 0 ? 0.0 : (double)falsePositives / numNegatives;
+			tpr[numPoints] = numPositives == 0 ? 0.0 : (double)truePositives / numPositives;
+			numPoints++;
+		}
+
+		double area = (numPositives == 0 || numNegatives == 0) ? 0.0 : pairsOrdered / ((double)numPositives * numNegatives);
+
+		int keep = numPoints;
+		if (maxPoints != ALL_POINTS && numPoints > maxPoints){
+			//keep evenly spaced points, including the first and last
+			keep = Math.max(2, maxPoints);
+			double step = (numPoints - 1) / (double)(keep - 1);
+			for (int i = 0; i < keep; i++) {
+				int src = (int)Math.round(i * step);
+				fpr[i] = fpr[src];
+				tpr[i] = tpr[src];
+			}
+		}
+		return new RocCurve(numPositives, numNegatives, area,
+				Arrays.copyOf(fpr, keep), Arrays.copyOf(tpr, keep), precisions);
+	}
+
+	/**
+	 * @return the area under the curve, or 0 if there are no positive or no
+	 * negative examples.
+	 */
+	public double getArea() {
+		return area;
+	}
+
+	/**
+	 * @return the false positive rate at each point of the curve, from (0,0)
+	 * to (1,1).
+	 */
+	public double[] getFalsePositiveRates() {
+		return falsePositiveRates;
+	}
+
+	/**
+	 * @return the true positive rate at each point of the curve.
+	 */
+	public double[] getTruePositiveRates() {
+		return truePositiveRates;
+	}
+
+	/**
+	 * @return the curve as an array of two arrays: the false positive rates
+	 * and the true positive rates.
+	 */
+	public double[][] getPoints() {
+		return new double[][]{falsePositiveRates, truePositiveRates};
+	}
+
+	/**
+	 * @return the precision at each of the levels requested, or null if none
+	 * were.
+	 */
+	public double[] getPrecisionAtN() {
+		return precisionAtN;
+	}
+
+	public int getNumPositives() {
+		return numPositives;
+	}
+
+	public int getNumNegatives() {
+		return numNegatives;
+	}
+}
@@ -9,7 +9,6 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -17,6 +16,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.imirsel.nema.analytics.evaluation.*;
 import org.imirsel.nema.model.*;
@@ -31,6 +31,9 @@ public class TagAffinityEvaluator extends EvaluatorImpl{
 
 
 	private Set<String> tags = null;
+	private TagDictionary dictionary = null;
+	private Map<String,long[]> trackIDToTagBits = null;
+	private int maxRocPoints = RocCurve.ALL_POINTS;
 	public static final int[] PRECISION_POINTS = new int[]{3,6,9,12,15};
     
     /**
@@ -67,6 +70,42 @@ public class TagAffinityEvaluator extends EvaluatorImpl{
 		this.overallEvalMetrics.add(NemaDataConstants.TAG_AFFINITY_AUC_ROC_MAP);
 	}
     
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void prepareEvaluation() {
+    	this.tags = getAllTags();
+    	//intern the tags and encode the ground-truth once for all jobs and folds
+    	this.dictionary = new TagDictionary(tags);
+    	this.trackIDToTagBits = new HashMap<String,long[]>();
+    	for (NemaData data:this.getGroundTruth()){
+    		trackIDToTagBits.put(data.getId(), dictionary.toBitSet((Set<String>)data.getMetadata(NemaDataConstants.TAG_CLASSIFICATIONS)));
+    	}
+    }
+    
+    /**
+     * Sets the maximum number of points kept in each ROC curve, which are 
+     * downsampled evenly if they have more. The AUC-ROC scores are always 
+     * computed from the full curves.
+     * 
+     * @param maxRocPoints the maximum number of points, or 
+     * {@link RocCurve#ALL_POINTS} (the default) to keep every point.
+     * @since 0.4.1
+     */
+    public void setMaxRocPoints(int maxRocPoints) {
+    	if (maxRocPoints != RocCurve.ALL_POINTS && maxRocPoints < 2){
+    		throw new IllegalArgumentException("An ROC curve requires at least 2 points, received: " + maxRocPoints);
+    	}
+    	this.maxRocPoints = maxRocPoints;
+    }
+    
+    /**
+     * @return the maximum number of points kept in each ROC curve.
+     * @since 0.4.1
+     */
+    public int getMaxRocPoints() {
+    	return maxRocPoints;
+    }
+    
     @SuppressWarnings("unchecked")
 	private Set<String> getAllTags(){
     	HashSet<String> tags = new HashSet<String>();
@@ -91,28 +130,14 @@ public class TagAffinityEvaluator extends EvaluatorImpl{
         //check that all systems have the same number of results
         checkFolds();
         
-        this.tags = getAllTags();
+        prepareEvaluation();
         
 		/* prepare NemaEvaluationResultSet*/
 		NemaEvaluationResultSet results = getEmptyEvaluationResultSet();
 
 		{
 			/* Perform the evaluations on all jobIds (systems) */
-			Map<NemaTrackList,List<NemaData>> sysResults;
-			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
-			for (Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();) {
-				jobId = it.next();
-				getLogger().info("Evaluating experiment for jobID: " + jobId);
-				sysResults = jobIDToFoldResults.get(jobId);
-				Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
-				for (Iterator<NemaTrackList> trackIt = sysResults.keySet().iterator(); trackIt.hasNext();) {
-					NemaTrackList trackList = testSets.get(testSets.indexOf(trackIt.next()));
-					getLogger().fine("Evaluating fold " + trackList.getFoldNumber() + ", set " + trackList.getId() + "...");
-					NemaData result = evaluateResultFold(jobId, trackList, sysResults.get(trackList));
-					foldEvals.put(trackList, result);
-				}
-				jobIdToFoldEvaluation.put(jobId, foldEvals);
-			}
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
 			
 			/* Aggregated evaluation to produce overall results */
 			Map<String, NemaData> jobIdToOverallEvaluation = new HashMap<String, NemaData>(numJobs);
@@ -221,49 +246,85 @@ public class TagAffinityEvaluator extends EvaluatorImpl{
 		return aggregateEval;
 	}
 
-	private void addROCpoint(List<double[]> ROCpointSequence, double falsePosRate, double truePosRate){
-        if (Double.isNaN(falsePosRate)){
-            falsePosRate = 0.0;
-        }
-        if (Double.isNaN(truePosRate)){
-            truePosRate = 0.0;
-        }
-        ROCpointSequence.add(new double[]{falsePosRate,truePosRate});
-    }
+	/**
+	 * Splits the affinities of a set of examples into positive and negative
+	 * columns for {@link RocCurve#compute(double[], int, double[], int, int[], int)}.
+	 */
+	private static class ScoreColumns{
+		final double[] positives;
+		final double[] negatives;
+		int numPositives = 0;
+		int numNegatives = 0;
+		
+		ScoreColumns(int maxPositives, int maxNegatives){
+			positives = new double[maxPositives];
+			negatives = new double[maxNegatives];
+		}
+		
+		void add(double affinity, boolean tagApplies){
+			if (tagApplies){
+				positives[numPositives++] = affinity;
+			}else{
+				negatives[numNegatives++] = affinity;
+			}
+		}
+	}
 	
-	private double computeAreaUnderROCCurve(List<double[]> ROCpointSequence){
-        if (ROCpointSequence.size() == 0){
-            return 0.0;
-        }
-        double[] last = ROCpointSequence.get(0);
-        double[] curr;
-        double area = 0.0;
-        for (int i = 1; i < ROCpointSequence.size(); i++) {
-            curr = ROCpointSequence.get(i);
-            double trap = trapezoidArea(last[0], curr[0], last[1], curr[1]);
-            //System.out.println("\ttrap area: " + trap);
-            area += trap;
-            last = curr;
-        }
-        //System.out.println("returning " + area);
-        if (Double.isNaN(area)){
-        	String msg = "WARNING: returning NaN area under ROC curve\n" +
-        	"ROC point seq: ";
-	        for (int i = 1; i < ROCpointSequence.size(); i++) {
-	            curr = ROCpointSequence.get(i);
-	            msg += curr[0] + "," + curr[1] + "\t";
-	        }
-	        getLogger().warning(msg);
-        }
-        return area;
-    }
+	private static boolean applies(long[] labels, int tagIdx){
+		return (labels[tagIdx >>> 6] & (1L << tagIdx)) != 0;
+	}
 	
-	private double trapezoidArea(double x1, double x2, double y1, double y2){
-        //System.out.println("x1: " + x1 + ", x2: " + x2 + ", y1: " + y1 + ", y2: " + y2);
-        double area = ((y1 + y2)/2.0) * (x2 - x1);
-        //System.out.println("trapezoid area: " + area);
-        return area;
-    }
+	/**
+	 * Computes the ROC curve and precision at N of the tags ranked for a clip.
+	 */
+	private class ClipEvaluation implements Callable<RocCurve>{
+		private final double[] affinities;
+		private final long[] labels;
+		private final int offset;
+		private final int numTags;
+		
+		ClipEvaluation(double[] affinities, long[] labels, int offset, int numTags){
+			this.affinities = affinities;
+			this.labels = labels;
+			this.offset = offset;
+			this.numTags = numTags;
+		}
+		
+		public RocCurve call(){
+			ScoreColumns columns = new ScoreColumns(numTags, numTags);
+			for (int t = 0; t < numTags; t++){
+				columns.add(affinities[offset + t], applies(labels, t));
+			}
+			return RocCurve.compute(columns.positives, columns.numPositives, columns.negatives, columns.numNegatives, 
+					PRECISION_POINTS, maxRocPoints);
+		}
+	}
+	
+	/**
+	 * Computes the ROC curve of the clips ranked for a tag.
+	 */
+	private class TagEvaluation implements Callable<RocCurve>{
+		private final double[] affinities;
+		private final long[][] labels;
+		private final int tagIdx;
+		private final int numTags;
+		
+		TagEvaluation(double[] affinities, long[][] labels, int tagIdx, int numTags){
+			this.affinities = affinities;
+			this.labels = labels;
+			this.tagIdx = tagIdx;
+			this.numTags = numTags;
+		}
+		
+		public RocCurve call(){
+			ScoreColumns columns = new ScoreColumns(labels.length, labels.length);
+			for (int x = 0; x < labels.length; x++){
+				columns.add(affinities[x * numTags + tagIdx], applies(labels[x], tagIdx));
+			}
+			return RocCurve.compute(columns.positives, columns.numPositives, columns.negatives, columns.numNegatives, 
+					null, maxRocPoints);
+		}
+	}
     
     @SuppressWarnings("unchecked")
 	public NemaData evaluateResultFold(String jobID, NemaTrackList testSet, List<NemaData> theData) {
@@ -273,310 +334,116 @@ public class TagAffinityEvaluator extends EvaluatorImpl{
     	
         NemaData outObj = new NemaData(jobID);
         
-        NemaData data;
-        NemaData gtData;
-        
-//        HashMap<String, Double> clip2AUC_ROC = new HashMap<String, Double>();
-        HashMap<String, List<double[]>> clip2ROCpointSequence = new HashMap<String, List<double[]>>();
-        
-//        HashMap<String, double[]> clip2PrecisionAtN = new HashMap<String, double[]>();
+        int numTracks = theData.size();
+        int numTags = dictionary.size();
         
-        HashMap<String, Double> tag2AUC_ROC = new HashMap<String, Double>();
-        HashMap<String, List<double[]>> tag2ROCpointSequence = new HashMap<String, List<double[]>>();
+        //affinity and label columns, by clip then tag, affinities not returned are 0
+        double[] affinities = new double[numTracks * numTags];
+        long[][] labels = new long[numTracks][];
+        int totalPositives = 0;
         
-        double overallAUC_ROC;
-        List<double[]> overallROCpointSequence = null;
-        
-        HashMap<String, List<AffinityDataPoint>> tag2affinityDataPoints = new HashMap<String, List<AffinityDataPoint>>();
-        for (Iterator<String> it = tags.iterator(); it.hasNext();) {
-            tag2affinityDataPoints.put(it.next(),new ArrayList<AffinityDataPoint>());
-        }
-        HashMap<String, Integer> tag2numPositiveExamples = new HashMap<String, Integer>();
-        HashMap<String, Integer> tag2numNegativeExamples = new HashMap<String, Integer>();
-        
-        //util references
-        String id, tag;
+        NemaData data;
+        String tag;
         Map<String,Double> returnedAffinities;
-        Set<String> trueSet, missingAffinities;
-        List<AffinityDataPoint> dataPointList;
-        int positives;
-        int negatives;
-        int truePositives;
-        int falsePositives;
-        double lastAffinity = 0.0;
-        AffinityDataPoint dataPoint;
-        List<double[]> anROCpointSequence;
-//        double[] ROCdomain;
-//        double[] ROCrange;
-//        double[] ds;
-        List<AffinityDataPoint> tmpClipROCPointList;
-        List<AffinityDataPoint> overallROCPointList = new ArrayList<AffinityDataPoint>();
-        
-        double[] avgPrecisionAtN = new double[PRECISION_POINTS.length];
-        
-        
-        getLogger().fine("Computing per track evaluations...");
-        for(int x=0; x < theData.size(); x++) {
-            //Do simple evaluation
+        for(int x=0; x < numTracks; x++) {
         	data = theData.get(x);
-        	id = data.getId();
-        	gtData = trackIDToGT.get(id);
-            
-        	
+        	labels[x] = trackIDToTagBits.get(data.getId());
+        	totalPositives += TagDictionary.count(labels[x]);
         	returnedAffinities = (Map<String,Double>)data.getMetadata(NemaDataConstants.TAG_AFFINITY_MAP);
-            trueSet = (Set<String>)gtData.getMetadata(NemaDataConstants.TAG_CLASSIFICATIONS);
-            tmpClipROCPointList = new ArrayList<AffinityDataPoint>();
-            
-            for (Iterator<String> it = returnedAffinities.keySet().iterator(); it.hasNext();) {
-                tag = it.next();
-                //System.out.println("\ttag: " + tag);
-                try{
-                    AffinityDataPoint tmpDataPoint = new AffinityDataPoint(trueSet.contains(tag), returnedAffinities.get(tag));
-                    tag2affinityDataPoints.get(tag).add(tmpDataPoint);
-                    tmpClipROCPointList.add(tmpDataPoint);
-                    overallROCPointList.add(tmpDataPoint);
-                }catch(Exception e){
+        	for (Iterator<Map.Entry<String,Double>> it = returnedAffinities.entrySet().iterator(); it.hasNext();) {
+        		Map.Entry<String,Double> entry = it.next();
+        		tag = entry.getKey();
+        		int tagIdx = dictionary.getIndex(tag);
+        		if (tagIdx == -1){
                     String tagSetStr = "";
-                    for (Iterator<String> tagit = tag2affinityDataPoints.keySet().iterator(); tagit.hasNext();){
+                    for (Iterator<String> tagit = tags.iterator(); tagit.hasNext();){
                         tagSetStr += "\t'" + tagit.next() + "'\n";
                     }
                     throw new IllegalArgumentException("Tag from returned affinities (" + tag + "), for track: " + data.getId() + 
                             ", not found in the tag set. Tag set contains:\n" + tagSetStr);
-                }
-            }
-            
-            //fill in missing affinities
-            missingAffinities = new HashSet<String>(tags);
-            missingAffinities.removeAll(returnedAffinities.keySet());
-            for (Iterator<String> it = missingAffinities.iterator(); it.hasNext();) {
-                tag = it.next();
-                AffinityDataPoint tmpDataPoint = new AffinityDataPoint(trueSet.contains(tag),0.0);
-                tag2affinityDataPoints.get(tag).add(tmpDataPoint);
-                tmpClipROCPointList.add(tmpDataPoint);
-                overallROCPointList.add(tmpDataPoint);
-            }
-            Collections.sort(tmpClipROCPointList);
-            
-            //count positives and negatives
-            positives = 0;
-            negatives = 0;
-            for (Iterator<AffinityDataPoint> it2 = tmpClipROCPointList.iterator(); it2.hasNext();) {
-                dataPoint = it2.next();
-                if(dataPoint.tagApplies){
-                    positives++;
-                }else{
-                    negatives++;
-                }
-            }
-            if (positives == 0){
-                System.out.println("no positives!");
-            }
-            if (negatives == 0){
-                System.out.println("no negatives!");
-            }
-            
-            //compute ROC for each clip
-            truePositives = 0;
-            falsePositives = 0;
-            lastAffinity = 0.0;
-            anROCpointSequence = new ArrayList<double[]>();
-            clip2ROCpointSequence.put(id,anROCpointSequence);
-            //addROCpoint(anROCpointSequence, 0.0, 0.0);
-            int pointCount = 0;
-            int currentN = 0;
-            double[] precisions = new double[PRECISION_POINTS.length];
-            for (Iterator<AffinityDataPoint> it2 = tmpClipROCPointList.iterator(); it2.hasNext();) {
-                dataPoint = it2.next();
-                pointCount++;
-                if (dataPoint.affinity != lastAffinity){
-                    addROCpoint(anROCpointSequence, ((double)falsePositives/(double)negatives), ((double)truePositives/(double)positives));
-                }
-                if (dataPoint.tagApplies){
-                    truePositives++;
-                }else{
-                    falsePositives++;
-                }
-                
-                //compute precision at N scores
-                if (currentN < PRECISION_POINTS.length && pointCount == PRECISION_POINTS[currentN]){
-                    precisions[currentN] = truePositives / (double)(truePositives + falsePositives);
-                    currentN++;
-                }
-            }
-            
-            //store precision at N for each clip
+        		}
+        		double affinity = entry.getValue();
+        		if (Double.isNaN(affinity) || Double.isInfinite(affinity)){
+        			throw new IllegalArgumentException("Affinity returned for tag (" + tag + "), for track: " + data.getId() + 
+        					", is not a finite number: " + affinity);
+        		}
+        		affinities[x * numTags + tagIdx] = affinity;
+        	}
+        }
+        
+        getLogger().fine("Computing per track evaluations...");
+        List<ClipEvaluation> clipTasks = new ArrayList<ClipEvaluation>(numTracks);
+        for(int x=0; x < numTracks; x++) {
+        	clipTasks.add(new ClipEvaluation(affinities, labels[x], x * numTags, numTags));
+        }
+        List<RocCurve> clipCurves = invokeTrackTasks(clipTasks);
+        
+        double[] avgPrecisionAtN = new double[PRECISION_POINTS.length];
+        for(int x=0; x < numTracks; x++) {
+        	data = theData.get(x);
+        	RocCurve curve = clipCurves.get(x);
+        	double[] precisions = curve.getPrecisionAtN();
             for (int i = 0; i < PRECISION_POINTS.length; i++){
                 avgPrecisionAtN[i] += precisions[i];
             }
             data.setMetadata(NemaDataConstants.TAG_AFFINITY_PRECISION_AT_N, precisions);
             data.setMetadata(NemaDataConstants.TAG_AFFINITY_PRECISION_AT_N_LEVELS, PRECISION_POINTS);
-            
-            if (anROCpointSequence.size() == 0){
-                addROCpoint(anROCpointSequence, 0.0, 0.0);
-            }
-            addROCpoint(anROCpointSequence, ((double)falsePositives/(double)negatives), ((double)truePositives/(double)positives));
-            
-            //compute AUC-ROC for each clip 
-            double auc = computeAreaUnderROCCurve(anROCpointSequence);
-            data.setMetadata(NemaDataConstants.TAG_AFFINITY_AUC_ROC, auc);
-            data.setMetadata(NemaDataConstants.TAG_AFFINITY_ROC_DATA, anROCpointSequence);
+            data.setMetadata(NemaDataConstants.TAG_AFFINITY_AUC_ROC, curve.getArea());
+            data.setMetadata(NemaDataConstants.TAG_AFFINITY_ROC_DATA, curve.getPoints());
         }
         
         //compute fold evaluation
         for (int i = 0; i < avgPrecisionAtN.length; i++){
             avgPrecisionAtN[i] /= numExamples;
         }
-        
         outObj.setMetadata(NemaDataConstants.TAG_AFFINITY_PRECISION_AT_N, avgPrecisionAtN);
         outObj.setMetadata(NemaDataConstants.TAG_AFFINITY_PRECISION_AT_N_LEVELS, PRECISION_POINTS);
-        
 
         //compute AUC-ROC for each tag
-        for (Iterator<String> it = tags.iterator(); it.hasNext();) {
-            tag = it.next();
-            dataPointList = tag2affinityDataPoints.get(tag);
-            //this is unlikely to test false as affinities are patched in for negatives
-            if (dataPointList.size() > 0){
-                Collections.sort(dataPointList);
-
-                //count positives and negatives
-                positives = 0;
-                negatives = 0;
-                for (Iterator<AffinityDataPoint> it2 = dataPointList.iterator(); it2.hasNext();) {
-                    dataPoint = it2.next();
-                    if(dataPoint.tagApplies){
-                        positives++;
-                    }else{
-                        negatives++;
-                    }
-                }
-
-                tag2numPositiveExamples.put(tag, positives);
-                tag2numNegativeExamples.put(tag, negatives);
-
-                //compute ROC
-                truePositives = 0;
-                falsePositives = 0;
-                lastAffinity = 0.0;
-                anROCpointSequence = new ArrayList<double[]>();
-                tag2ROCpointSequence.put(tag,anROCpointSequence);
-
-                for (Iterator<AffinityDataPoint> it2 = dataPointList.iterator(); it2.hasNext();) {
-                    dataPoint = it2.next();
-                    if (dataPoint.affinity != lastAffinity){
-                        addROCpoint(anROCpointSequence, ((double)falsePositives/(double)negatives), ((double)truePositives/(double)positives));
-                    }
-                    if (dataPoint.tagApplies){
-                        truePositives++;
-                    }else{
-                        falsePositives++;
-                    }
-                }
-                if (anROCpointSequence.size() == 0){
-                    addROCpoint(anROCpointSequence, 0.0, 0.0);
-                }
-                addROCpoint(anROCpointSequence, ((double)falsePositives/negatives), ((double)truePositives/(double)positives));
-
-//                ROCdomain = new double[anROCpointSequence.size()];
-//                ROCrange = new double[anROCpointSequence.size()];
-//                idx = 0;
-//                for (Iterator<double[]> it2 = anROCpointSequence.iterator(); it2.hasNext();) {
-//                    ds = it2.next();
-//                    ROCdomain[idx] = ds[0];
-//                    ROCrange[idx++] = ds[1];
-//                }
-//                
-//                SimpleNumericPlot tagROCPlot = new SimpleNumericPlot(false, false, dataToEvaluate.getFile().getName() + ", " + tag + " ROC curve", 
-//                        "tag", null, "True postive rate", "False positive rate", ROCdomain, ROCrange, null);
-//
-//                File plotFile = new File(plotDir.getAbsolutePath() + File.separator + tag + ".png");
-//                tagROCPlot.writeChartToFile(plotFile,600,600);
-
-
-                //compute AUC-ROC 
-                double auc = computeAreaUnderROCCurve(anROCpointSequence);
-                tag2AUC_ROC.put(tag, auc);
-            }else{
-                String message = "WARNING: no examples of tag '" + tag + "' found in the data";
-                System.out.println(message);
-            }
+        HashMap<String, Double> tag2AUC_ROC = new HashMap<String, Double>();
+        HashMap<String, double[][]> tag2ROCpointSequence = new HashMap<String, double[][]>();
+        HashMap<String, Integer> tag2numPositiveExamples = new HashMap<String, Integer>();
+        HashMap<String, Integer> tag2numNegativeExamples = new HashMap<String, Integer>();
+        if (numTracks > 0){
+        	getLogger().fine("Computing per tag evaluations...");
+        	List<TagEvaluation> tagTasks = new ArrayList<TagEvaluation>(numTags);
+        	for (int t = 0; t < numTags; t++){
+        		tagTasks.add(new TagEvaluation(affinities, labels, t, numTags));
+        	}
+        	List<RocCurve> tagCurves = invokeTrackTasks(tagTasks);
+        	for (int t = 0; t < numTags; t++){
+        		tag = dictionary.getTag(t);
+        		RocCurve curve = tagCurves.get(t);
+        		tag2numPositiveExamples.put(tag, curve.getNumPositives());
+        		tag2numNegativeExamples.put(tag, curve.getNumNegatives());
+        		tag2ROCpointSequence.put(tag, curve.getPoints());
+        		tag2AUC_ROC.put(tag, curve.getArea());
+        	}
         }
-        
         outObj.setMetadata(NemaDataConstants.TAG_AFFINITY_AUC_ROC_MAP,tag2AUC_ROC);
         outObj.setMetadata(NemaDataConstants.TAG_AFFINITY_ROC_DATA_MAP,tag2ROCpointSequence);
         
-        
-        {
-            //compute overall AUC-ROC
-            getLogger().fine("Sorting " + overallROCPointList.size() + " affinity scores in order to compute overall AUC-ROC");
-            Collections.sort(overallROCPointList);
-
-            getLogger().fine("Computing overall AUC-ROC");
-            //count positives and negatives
-            positives = 0;
-            negatives = 0;
-            for (Iterator<AffinityDataPoint> it2 = overallROCPointList.iterator(); it2.hasNext();) {
-                dataPoint = it2.next();
-                if(dataPoint.tagApplies){
-                    positives++;
-                }else{
-                    negatives++;
-                }
-            }
-
-            //compute ROC
-            truePositives = 0;
-            falsePositives = 0;
-            lastAffinity = 0.0;
-            anROCpointSequence = new ArrayList<double[]>();
-            overallROCpointSequence = anROCpointSequence;
-
-            for (Iterator<AffinityDataPoint> it2 = overallROCPointList.iterator(); it2.hasNext();) {
-                dataPoint = it2.next();
-                if (dataPoint.affinity != lastAffinity){
-                    addROCpoint(overallROCpointSequence, ((double)falsePositives/(double)negatives), ((double)truePositives/(double)positives));
-                }
-                if (dataPoint.tagApplies){
-                    truePositives++;
-                }else{
-                    falsePositives++;
-                }
-            }
-            if (overallROCpointSequence.size() == 0){
-                addROCpoint(overallROCpointSequence, 0.0, 0.0);
-            }
-            addROCpoint(overallROCpointSequence, ((double)falsePositives/negatives), ((double)truePositives/(double)positives));
-
-//            ROCdomain = new double[overallROCpointSequence.size()];
-//            ROCrange = new double[overallROCpointSequence.size()];
-//            idx = 0;
-//            for (Iterator<double[]> it2 = overallROCpointSequence.iterator(); it2.hasNext();) {
-//                ds = it2.next();
-//                ROCdomain[idx] = ds[0];
-//                ROCrange[idx++] = ds[1];
-//            }
-//            SimpleNumericPlot overallROCPlot = new SimpleNumericPlot(false, false, dataToEvaluate.getFile().getName() + ", overall ROC curve", 
-//                    "tag", null, "True postive rate", "False positive rate", ROCdomain, ROCrange, null);
-//
-//            File plotFile = new File(plotDir.getAbsolutePath() + File.separator + "overall.png");
-//            overallROCPlot.writeChartToFile(plotFile,600,600);
-
-            //compute AUC-ROC 
-            double auc = computeAreaUnderROCCurve(anROCpointSequence);
-            overallAUC_ROC = auc;
-
+        //compute overall AUC-ROC over every clip and tag
+        getLogger().fine("Sorting " + affinities.length + " affinity scores in order to compute overall AUC-ROC");
+        ScoreColumns columns = new ScoreColumns(totalPositives, affinities.length - totalPositives);
+        for(int x=0; x < numTracks; x++) {
+        	for (int t = 0; t < numTags; t++){
+        		columns.add(affinities[x * numTags + t], applies(labels[x], t));
+        	}
         }
+        RocCurve overall = RocCurve.compute(columns.positives, columns.numPositives, columns.negatives, columns.numNegatives, 
+        		null, maxRocPoints);
         
-        outObj.setMetadata(NemaDataConstants.TAG_AFFINITY_AUC_ROC,overallAUC_ROC);
-        outObj.setMetadata(NemaDataConstants.TAG_AFFINITY_ROC_DATA,overallROCpointSequence);
+        outObj.setMetadata(NemaDataConstants.TAG_AFFINITY_AUC_ROC,overall.getArea());
+        outObj.setMetadata(NemaDataConstants.TAG_AFFINITY_ROC_DATA,overall.getPoints());
         
         //Store tag names
         outObj.setMetadata(NemaDataConstants.TAG_EXPERIMENT_CLASSNAMES, tags);
         
         outObj.setMetadata(NemaDataConstants.TAG_NUM_POSITIVE_EXAMPLES_MAP, tag2numPositiveExamples);
         outObj.setMetadata(NemaDataConstants.TAG_NUM_NEGATIVE_EXAMPLES_MAP, tag2numNegativeExamples);
-        outObj.setMetadata(NemaDataConstants.TAG_NUM_POSITIVE_EXAMPLES, positives);
-        outObj.setMetadata(NemaDataConstants.TAG_NUM_NEGATIVE_EXAMPLES, negatives);
+        outObj.setMetadata(NemaDataConstants.TAG_NUM_POSITIVE_EXAMPLES, overall.getNumPositives());
+        outObj.setMetadata(NemaDataConstants.TAG_NUM_NEGATIVE_EXAMPLES, overall.getNumNegatives());
         
         return outObj;
     }
@@ -9,17 +9,21 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 
+import org.imirsel.nema.analytics.evaluation.FriedmanResult;
 import org.imirsel.nema.analytics.evaluation.FriedmansAnovaTkHsd;
+import org.imirsel.nema.analytics.evaluation.RenderPipeline;
 import org.imirsel.nema.analytics.evaluation.ResultRendererImpl;
 import org.imirsel.nema.analytics.evaluation.WriteCsvResultFiles;
 import org.imirsel.nema.analytics.evaluation.resultpages.FileListItem;
-import org.imirsel.nema.analytics.evaluation.resultpages.ImageItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.Page;
 import org.imirsel.nema.analytics.evaluation.resultpages.PageItem;
+import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisFriedmanPlotItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.Table;
 import org.imirsel.nema.analytics.evaluation.resultpages.TableItem;
 import org.imirsel.nema.model.NemaData;
@@ -294,68 +298,91 @@ public class TagAffinityResultRenderer extends ResultRendererImpl {
 	}
 	
 	@Override
-	public void renderResults(NemaEvaluationResultSet results)
+	public void renderResults(final NemaEvaluationResultSet results)
 			throws IOException {
 		
-		int numJobs = results.getJobIds().size();
+		final int numJobs = results.getJobIds().size();
 		
 		
 		getLogger().info("Creating system result directories...");
 		Map<String, File> jobIDToResultDir = makeSystemResultDirs(results);
 
+		RenderPipeline pipeline = createRenderPipeline(results);
+
 //		List<File> overallCSVs = new ArrayList<File>();
 
 		/* Write out leaderboard CSV file */
-		getLogger().info("Writing out leaderboard CSV...");
-		File leaderboardCSV = this.writeLeaderBoardCSVFile(NemaDataConstants.TAG_AFFINITY_AUC_ROC, results, false);
+		RenderPipeline.Stage<File> leaderboardCSV = pipeline.add("leaderboard CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeLeaderBoardCSVFile(NemaDataConstants.TAG_AFFINITY_AUC_ROC, results, false);
+			}
+		});
 //		overallCSVs.add(leaderboardCSV);
 		
-		getLogger().info("Writing out CSV result files...");
 		/* Write out summary CSV */
 		//write out results summary CSV
-		File summaryCSV = writeOverallResultsCSV(results);
+		final RenderPipeline.Stage<File> summaryCSV = pipeline.add("summary CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeOverallResultsCSV(results);
+			}
+		});
 //		overallCSVs.add(summaryCSV);
 		
 		
 		
-		List<File> foldCSVs = new ArrayList<File>();
+		final List<File> foldCSVs = new ArrayList<File>();
 		//write out summaries for each metric over folds
 		//AUC-ROC
-		File aucRocCsv = new File(outputDir.getAbsolutePath() + File.separator + "AUCROCByFold.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_AFFINITY_AUC_ROC),aucRocCsv);
+		final File aucRocCsv = new File(outputDir.getAbsolutePath() + File.separator + "AUCROCByFold.csv");
 		foldCSVs.add(aucRocCsv);
 		
 		//precision-at-N
 			//very ugly way of getting precision at N levels
-		int[] precisionAtNLevels = results.getOverallEvaluation(results.getJobIds().iterator().next()).getIntArrayMetadata(NemaDataConstants.TAG_AFFINITY_PRECISION_AT_N_LEVELS);
-		List<File> precisionAtNFiles = new ArrayList<File>(precisionAtNLevels.length);
+		final int[] precisionAtNLevels = results.getOverallEvaluation(results.getJobIds().iterator().next()).getIntArrayMetadata(NemaDataConstants.TAG_AFFINITY_PRECISION_AT_N_LEVELS);
 		for (int i = 0; i < precisionAtNLevels.length; i++) {
-			File precCSV = new File(outputDir.getAbsolutePath() + File.separator + "precision-at-" + precisionAtNLevels[i] + ".csv");
-			WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_AFFINITY_PRECISION_AT_N,i),precCSV);
-			foldCSVs.add(precCSV);
-			precisionAtNFiles.add(precCSV);
+			foldCSVs.add(new File(outputDir.getAbsolutePath() + File.separator + "precision-at-" + precisionAtNLevels[i] + ".csv"));
 		}
+		final RenderPipeline.Stage<Map<String,Table>> foldTables = pipeline.add("fold CSVs", new Callable<Map<String,Table>>() {
+			public Map<String,Table> call() throws IOException {
+				Map<String,Table> friedmanTables = new LinkedHashMap<String,Table>();
+				Table aucRocTable = WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_AFFINITY_AUC_ROC);
+				WriteCsvResultFiles.writeTableToCsv(aucRocTable,aucRocCsv);
+				friedmanTables.put("AUCROCByFold", aucRocTable);
+				for (int i = 0; i < precisionAtNLevels.length; i++) {
+					Table precTable = WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_AFFINITY_PRECISION_AT_N,i);
+					WriteCsvResultFiles.writeTableToCsv(precTable,foldCSVs.get(i + 1));
+					friedmanTables.put("precision-at-" + precisionAtNLevels[i], precTable);
+				}
+				return friedmanTables;
+			}
+		});
 		
 		
 		//write out summaries for each metric over tags
 		//get tag names
-		List<String> tags = new ArrayList<String>((Collection<String>)results.getJobIdToOverallEvaluation().values().iterator().next().getMetadata(NemaDataConstants.TAG_EXPERIMENT_CLASSNAMES));
+		final List<String> tags = new ArrayList<String>((Collection<String>)results.getJobIdToOverallEvaluation().values().iterator().next().getMetadata(NemaDataConstants.TAG_EXPERIMENT_CLASSNAMES));
 
 		//AUC-ROC
-		File aucRocTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "AUCROCByTag.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_AFFINITY_AUC_ROC_MAP),aucRocTagCSV);
+		final File aucRocTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "AUCROCByTag.csv");
+		final RenderPipeline.Stage<Table> aucRocTagTable = pipeline.add("tag CSVs", new Callable<Table>() {
+			public Table call() throws IOException {
+				Table aucRocTagTable = WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_AFFINITY_AUC_ROC_MAP);
+				WriteCsvResultFiles.writeTableToCsv(aucRocTagTable,aucRocTagCSV);
+				return aucRocTagTable;
+			}
+		});
 		
 		
-		List<File> tagCSVs = new ArrayList<File>();
+		final List<File> tagCSVs = new ArrayList<File>();
 		tagCSVs.add(aucRocTagCSV);
 		
 		//write out per system: folds and metrics
-		Map<String, File> jobIDToPerFoldCSV = writePerFoldSystemResultCSVs(
-				results, jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerFoldCSV = addPerFoldCSVStages(
+				pipeline, results, jobIDToResultDir);
 		
 		//write out per system: tracks and metrics
-		Map<String, File> jobIDToPerTrackCSV = writePerTrackSystemResultCSVs(
-				results, jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerTrackCSV = addPerTrackCSVStages(
+				pipeline, results, jobIDToResultDir);
 		
 
 		// perform statistical tests
@@ -365,56 +392,55 @@ public class TagAffinityResultRenderer extends ResultRendererImpl {
 			performStatSigTests = false;
 		}
 
-		File friedmanAUCROCperTagPNG = null;
-		File friedmanAUCROCperTagTable = null;
-		
-		File friedmanAUCROCperFoldPNG = null;
-		File friedmanAUCROCperFoldTable = null;
-
-		List<File> friedmanPrecisionAtNPNGs = null;
-		List<File> friedmanPrecisionAtNTables = null;
-		
+		final RenderPipeline.Stage<Map<String,FriedmanResult>> friedmanResults;
 		if (getPerformMatlabStatSigTests() && performStatSigTests) {
-			getLogger().info("Performing Friedman's tests in Matlab...");
-
-			File[] tmp =  null;
-			
-			tmp = FriedmansAnovaTkHsd.performFriedman(outputDir,
-					aucRocTagCSV, 0, 1, 1, numJobs, getMatlabPath());
-			friedmanAUCROCperTagPNG = tmp[0];
-			friedmanAUCROCperTagTable = tmp[1];
-
-			tmp = FriedmansAnovaTkHsd.performFriedman(outputDir, aucRocCsv, 0,
-					1, 1, numJobs, getMatlabPath());
-			friedmanAUCROCperFoldPNG = tmp[0];
-			friedmanAUCROCperFoldTable = tmp[1];
-			
-			
-			
-			friedmanPrecisionAtNPNGs = new ArrayList<File>(precisionAtNLevels.length);
-			friedmanPrecisionAtNTables = new ArrayList<File>(precisionAtNLevels.length);
-			
-			for (int i = 0; i < precisionAtNLevels.length; i++) {
-				File csv = precisionAtNFiles.get(i);
-				tmp = FriedmansAnovaTkHsd.performFriedman(outputDir, csv, 0,
-						1, 1, numJobs, getMatlabPath());
-				friedmanPrecisionAtNPNGs.add(tmp[0]);
-				friedmanPrecisionAtNTables.add(tmp[1]);
-			}
+			friedmanResults = pipeline.add("Friedman's tests", new Callable<Map<String,FriedmanResult>>() {
+				public Map<String,FriedmanResult> call() throws IOException {
+					Map<String,Table> friedmanTables = new LinkedHashMap<String,Table>(foldTables.get());
+					friedmanTables.put("AUCROCByTag", aucRocTagTable.get());
+					return FriedmansAnovaTkHsd.performFriedman(
+							outputDir, friedmanTables, 1, numJobs);
+				}
+			}).after(foldTables).after(aucRocTagTable);
+		}else{
+			friedmanResults = null;
 		}
 
 		/* Create tar-balls of individual result directories */
-		getLogger().info("Preparing evaluation data tarballs...");
-		Map<String, File> jobIDToTgz = compressResultDirectories(jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToTgz = addCompressionStages(pipeline, jobIDToResultDir);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerFoldCSV);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerTrackCSV);
 
 		
 		// write result HTML pages
-		writeHtmlResultPages(performStatSigTests, results, tags, summaryCSV, foldCSVs,
-				tagCSVs, jobIDToPerTrackCSV, jobIDToPerFoldCSV, 
-				friedmanAUCROCperFoldPNG, friedmanAUCROCperFoldTable,
-				friedmanAUCROCperTagPNG, friedmanAUCROCperTagTable,
-				friedmanPrecisionAtNPNGs, friedmanPrecisionAtNTables, 
-				jobIDToTgz);
+		final boolean statSigTests = performStatSigTests;
+		RenderPipeline.Stage<Void> pages = pipeline.add("HTML pages", new Callable<Void>() {
+			public Void call() {
+				FriedmanResult friedmanAUCROCperTag = null;
+				FriedmanResult friedmanAUCROCperFold = null;
+				List<FriedmanResult> friedmanPrecisionAtN = null;
+				if (friedmanResults != null){
+					friedmanAUCROCperTag = friedmanResults.get().get("AUCROCByTag");
+					friedmanAUCROCperFold = friedmanResults.get().get("AUCROCByFold");
+					friedmanPrecisionAtN = new ArrayList<FriedmanResult>(precisionAtNLevels.length);
+					for (int i = 0; i < precisionAtNLevels.length; i++) {
+						friedmanPrecisionAtN.add(friedmanResults.get().get("precision-at-" + precisionAtNLevels[i]));
+					}
+				}
+				writeHtmlResultPages(statSigTests, results, tags, summaryCSV.get(), foldCSVs,
+						tagCSVs, RenderPipeline.values(jobIDToPerTrackCSV), RenderPipeline.values(jobIDToPerFoldCSV), 
+						friedmanAUCROCperFold, friedmanAUCROCperTag,
+						friedmanPrecisionAtN, RenderPipeline.values(jobIDToTgz));
+				return null;
+			}
+		}).after(leaderboardCSV).after(summaryCSV).after(foldTables).after(aucRocTagTable)
+				.after(jobIDToPerFoldCSV.values()).after(jobIDToPerTrackCSV.values()).after(jobIDToTgz.values());
+		if (friedmanResults != null){
+			pages.after(friedmanResults);
+		}
+		
+		getLogger().info("Rendering results...");
+		runRenderPipeline(pipeline);
 	}
 
 	
@@ -425,12 +451,9 @@ public class TagAffinityResultRenderer extends ResultRendererImpl {
 			List<File> tagCSVs,
 			Map<String, File> jobIDToPerTrackCSV, 
 			Map<String, File> jobIDToPerFoldCSV, 
-			File friedmanAUCROCFoldTablePNG,
-			File friedmanAUCROCFoldTable, 
-			File friedmanAUCROCTagTablePNG,
-			File friedmanAUCROCTagTable, 
-			List<File> friedmanPrecisionAtNPNGs,
-			List<File> friedmanPrecisionAtNTables,
+			FriedmanResult friedmanAUCROCFold,
+			FriedmanResult friedmanAUCROCTag,
+			List<FriedmanResult> friedmanPrecisionAtN,
 			Map<String, File> jobIDToTgz) {
 
 		int numJobs = results.getJobIds().size();
@@ -555,20 +578,20 @@ public class TagAffinityResultRenderer extends ResultRendererImpl {
 			getLogger().info("Creating significance test pages...");
 			items = new ArrayList<PageItem>();
 			items.add(legendTable);
-			items.add(new ImageItem(
-					"friedmanAUCROCFoldTablePNG",
+			items.add(new ProtovisFriedmanPlotItem(
+					"friedmanAUCROCFoldTable",
 					"AUCROC by Fold: Friedman's ANOVA w/ Tukey Kramer HSD",
-					IOUtil.makeRelative(friedmanAUCROCFoldTablePNG, outputDir)));
-			items.add(new ImageItem(
-					"friedmanFmeasureTagTablePNG",
+					friedmanAUCROCFold));
+			items.add(new ProtovisFriedmanPlotItem(
+					"friedmanAUCROCTagTable",
 					"AUCROC by Tag: Friedman's ANOVA w/ Tukey Kramer HSD",
-					IOUtil.makeRelative(friedmanAUCROCTagTablePNG, outputDir)));
+					friedmanAUCROCTag));
 			int[] precisionAtNLevels = results.getOverallEvaluation(results.getJobIds().iterator().next()).getIntArrayMetadata(NemaDataConstants.TAG_AFFINITY_PRECISION_AT_N_LEVELS);
 			for (int i = 0; i < precisionAtNLevels.length; i++) {
-				items.add(new ImageItem(
-						"friedmanPrecisionAt" + precisionAtNLevels[i] + "PNG",
+				items.add(new ProtovisFriedmanPlotItem(
+						"friedmanPrecisionAt" + precisionAtNLevels[i] + "Table",
 						"Precision-at-" + precisionAtNLevels[i] + ": Friedman's ANOVA w/ Tukey Kramer HSD",
-						IOUtil.makeRelative(friedmanPrecisionAtNPNGs.get(i), outputDir)));
+						friedmanPrecisionAtN.get(i)));
 			}
 			
 			aPage = new Page("sig_tests", "Significance Tests", items, true);
@@ -618,30 +641,17 @@ public class TagAffinityResultRenderer extends ResultRendererImpl {
 			items.add(new FileListItem("perSystemCSVs",
 					"Per-system CSV result files", perSystemCsvs));
 
-			// Friedman's tables and plots
+			// Friedman's tables
 			if (getPerformMatlabStatSigTests() && performStatSigTests) {
-				// Friedmans tables
-				List<String> sigCSVPaths = new ArrayList<String>(2);
-				sigCSVPaths.add(IOUtil.makeRelative(friedmanAUCROCFoldTable, outputDir));
-				sigCSVPaths.add(IOUtil.makeRelative(friedmanAUCROCTagTable, outputDir));
-				for (int i = 0; i < friedmanPrecisionAtNTables.size(); i++) {
-					sigCSVPaths.add(IOUtil.makeRelative(friedmanPrecisionAtNTables.get(i), outputDir));
+				List<String> sigCSVPaths = new ArrayList<String>(2 + friedmanPrecisionAtN.size());
+				sigCSVPaths.add(IOUtil.makeRelative(friedmanAUCROCFold.getTableFile(), outputDir));
+				sigCSVPaths.add(IOUtil.makeRelative(friedmanAUCROCTag.getTableFile(), outputDir));
+				for (int i = 0; i < friedmanPrecisionAtN.size(); i++) {
+					sigCSVPaths.add(IOUtil.makeRelative(friedmanPrecisionAtN.get(i).getTableFile(), outputDir));
 				}
 
 				items.add(new FileListItem("sigCSVs", "Significance test CSVs",
 						sigCSVPaths));
-
-				// Friedmans plots
-				List<String> sigPNGPaths = new ArrayList<String>(2);
-				sigPNGPaths.add(IOUtil.makeRelative(friedmanAUCROCFoldTablePNG, outputDir));
-				sigPNGPaths.add(IOUtil.makeRelative(friedmanAUCROCTagTablePNG, outputDir));
-				for (int i = 0; i < friedmanPrecisionAtNPNGs.size(); i++) {
-					sigCSVPaths.add(IOUtil.makeRelative(friedmanPrecisionAtNPNGs.get(i), outputDir));
-				}
-				
-				
-				items.add(new FileListItem("sigPNGs",
-						"Significance test plots", sigPNGPaths));
 			}
 
 			// System Tarballs
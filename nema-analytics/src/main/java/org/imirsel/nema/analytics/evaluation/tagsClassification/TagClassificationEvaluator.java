@@ -15,7 +15,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.imirsel.nema.analytics.evaluation.*;
 import org.imirsel.nema.model.*;
@@ -30,6 +29,8 @@ public class TagClassificationEvaluator extends EvaluatorImpl{
 
 
 	private Set<String> tags = null;
+	private TagDictionary dictionary = null;
+	private Map<String,long[]> trackIDToTagBits = null;
 	
     /**
 	 * Constructor (no arg - task, dataset, output and working dirs, training
@@ -72,6 +73,18 @@ public class TagClassificationEvaluator extends EvaluatorImpl{
 		this.overallEvalMetrics = this.foldEvalMetrics;
 	}
     
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void prepareEvaluation() {
+    	this.tags = getAllTags();
+    	//intern the tags and encode the ground-truth once for all jobs and folds
+    	this.dictionary = new TagDictionary(tags);
+    	this.trackIDToTagBits = new HashMap<String,long[]>();
+    	for (NemaData data:this.getGroundTruth()){
+    		trackIDToTagBits.put(data.getId(), dictionary.toBitSet((Set<String>)data.getMetadata(NemaDataConstants.TAG_CLASSIFICATIONS)));
+    	}
+    }
+    
     @SuppressWarnings("unchecked")
 	private Set<String> getAllTags(){
     	HashSet<String> tags = new HashSet<String>();
@@ -96,28 +109,14 @@ public class TagClassificationEvaluator extends EvaluatorImpl{
         //check that all systems have the same number of results
         checkFolds();
         
-        this.tags = getAllTags();
+        prepareEvaluation();
         
 		/* prepare NemaEvaluationResultSet*/
 		NemaEvaluationResultSet results = getEmptyEvaluationResultSet();
 
 		{
 			/* Perform the evaluations on all jobIds (systems) */
-			Map<NemaTrackList,List<NemaData>> sysResults;
-			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
-			for (Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();) {
-				jobId = it.next();
-				getLogger().info("Evaluating experiment for jobID: " + jobId);
-				sysResults = jobIDToFoldResults.get(jobId);
-				Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
-				for (Iterator<NemaTrackList> trackIt = sysResults.keySet().iterator(); trackIt.hasNext();) {
-					NemaTrackList trackList = testSets.get(testSets.indexOf(trackIt.next()));
-					getLogger().fine("Evaluating fold " + trackList.getFoldNumber() + ", set " + trackList.getId() + "...");
-					NemaData result = evaluateResultFold(jobId, trackList, sysResults.get(trackList));
-					foldEvals.put(trackList, result);
-				}
-				jobIdToFoldEvaluation.put(jobId, foldEvals);
-			}
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
 			
 			/* Aggregated evaluation to produce overall results */
 			Map<String, NemaData> jobIdToOverallEvaluation = new HashMap<String, NemaData>(numJobs);
@@ -201,14 +200,6 @@ public class TagClassificationEvaluator extends EvaluatorImpl{
 		return aggregateEval;
 	}
 
-	private void incrementTagCount(HashMap<String, AtomicInteger> map, String tag) {
-        if (!map.containsKey(tag)) {
-            map.put(tag, new AtomicInteger(1));
-        } else {
-            map.get(tag).incrementAndGet();
-        }
-    }
-    
     @SuppressWarnings("unchecked")
 	public NemaData evaluateResultFold(String jobID, NemaTrackList testSet, List<NemaData> theData) {
 
@@ -218,15 +209,15 @@ public class TagClassificationEvaluator extends EvaluatorImpl{
         NemaData outObj = new NemaData(jobID);
         
         NemaData data;
-        NemaData gtData;
         
-        Set<String> trueSet;
         Set<String> returnedSet;
-        Set<String> remainder;
+        long[] trueBits;
+        long[] returnedBits = new long[dictionary.getNumWords()];
         
-        HashMap<String, AtomicInteger> tag2truePositive = new HashMap<String, AtomicInteger>();
-        HashMap<String, AtomicInteger> tag2falsePositive = new HashMap<String, AtomicInteger>();
-        HashMap<String, AtomicInteger> tag2falseNegative = new HashMap<String, AtomicInteger>();
+        int numTags = dictionary.size();
+        int[] tag2truePositive = new int[numTags];
+        int[] tag2falsePositive = new int[numTags];
+        int[] tag2falseNegative = new int[numTags];
         HashMap<String, Integer> tag2numPositiveExamples = new HashMap<String, Integer>();
         HashMap<String, Integer> tag2numNegativeExamples = new HashMap<String, Integer>();
         
@@ -257,36 +248,22 @@ public class TagClassificationEvaluator extends EvaluatorImpl{
             //Do simple evaluation
         	data = theData.get(x);
         	id = data.getId();
-        	gtData = trackIDToGT.get(id);
-            
         	
         	returnedSet = (Set<String>)data.getMetadata(NemaDataConstants.TAG_CLASSIFICATIONS);
-        	trueSet = (Set<String>)gtData.getMetadata(NemaDataConstants.TAG_CLASSIFICATIONS);
-        	
-        	int tp = 0;
-        	int fp = 0;
-        	int fn = 0;
+        	trueBits = trackIDToTagBits.get(id);
+        	dictionary.toBitSet(returnedSet, returnedBits);
         	
-        	for (Iterator<String> it = returnedSet.iterator(); it.hasNext();) {
-                tag = it.next();
-                if (trueSet.contains(tag)) {
-                    totalTruePositive++;
-                    incrementTagCount(tag2truePositive, tag);
-                    tp++;
-                } else {
-                    totalFalsePositive++;
-                    incrementTagCount(tag2falsePositive, tag);
-                    fp++;
-                }
-            }
-            remainder = new HashSet<String>(trueSet);
-            remainder.removeAll(returnedSet);
-            for (Iterator<String> it = remainder.iterator(); it.hasNext();) {
-                tag = it.next();
-                totalFalseNegative++;
-                incrementTagCount(tag2falseNegative, tag);
-                fn++;
-            }
+        	//returned tags that are not in the vocabulary are false positives
+        	int unknown = returnedSet.size() - TagDictionary.count(returnedBits);
+        	int tp = TagDictionary.countAnd(returnedBits, trueBits);
+        	int fp = TagDictionary.countAndNot(returnedBits, trueBits) + unknown;
+        	int fn = TagDictionary.countAndNot(trueBits, returnedBits);
+        	TagDictionary.addCounts(returnedBits, trueBits, false, tag2truePositive);
+        	TagDictionary.addCounts(returnedBits, trueBits, true, tag2falsePositive);
+        	TagDictionary.addCounts(trueBits, returnedBits, true, tag2falseNegative);
+        	totalTruePositive += tp;
+        	totalFalsePositive += fp;
+        	totalFalseNegative += fn;
 
             int tn = tags.size() - (tp + fp + fn);
             
@@ -312,7 +289,7 @@ public class TagClassificationEvaluator extends EvaluatorImpl{
             data.setMetadata(NemaDataConstants.TAG_POS_ACCURACY, posAccuracy);
             data.setMetadata(NemaDataConstants.TAG_NEG_ACCURACY, negAccuracy);
             data.setMetadata(NemaDataConstants.TAG_PRECISION, precision);
-            data.setMetadata(NemaDataConstants.TAG_RECALL, precision);
+            data.setMetadata(NemaDataConstants.TAG_RECALL, recall);
             data.setMetadata(NemaDataConstants.TAG_FMEASURE, fMeasure);
             
             
@@ -325,28 +302,15 @@ public class TagClassificationEvaluator extends EvaluatorImpl{
         
       //compute per tag stats
         getLogger().fine("Computing per tag statistics...");
-        for (Iterator<String> it = tags.iterator(); it.hasNext();) {
-            tag = it.next();
-
-            if(!tag2truePositive.containsKey(tag) && !tag2falseNegative.containsKey(tag)){
-                //Don't fill in any gaps in maps and don't evaluate
+        for (int t = 0; t < numTags; t++) {
+            if(tag2truePositive[t] == 0 && tag2falseNegative[t] == 0){
+                //Don't evaluate tags with no positive examples in the fold
                 
             }else{
-                //fill in any gaps in maps
-                if (!tag2truePositive.containsKey(tag)) {
-                    tag2truePositive.put(tag, new AtomicInteger(0));
-                }
-                if (!tag2falsePositive.containsKey(tag)) {
-                    tag2falsePositive.put(tag, new AtomicInteger(0));
-                }
-                if (!tag2falseNegative.containsKey(tag)) {
-                    tag2falseNegative.put(tag, new AtomicInteger(0));
-                }
-
-
-                int tp = tag2truePositive.get(tag).intValue();
-                int fp = tag2falsePositive.get(tag).intValue();
-                int fn = tag2falseNegative.get(tag).intValue();
+                tag = dictionary.getTag(t);
+                int tp = tag2truePositive[t];
+                int fp = tag2falsePositive[t];
+                int fn = tag2falseNegative[t];
                 int tn = numExamples - (tp + fp + fn);
 
                 totalTrueNegative += tn;
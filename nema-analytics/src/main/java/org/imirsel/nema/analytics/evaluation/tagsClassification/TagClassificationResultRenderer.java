@@ -7,17 +7,21 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 
+import org.imirsel.nema.analytics.evaluation.FriedmanResult;
 import org.imirsel.nema.analytics.evaluation.FriedmansAnovaTkHsd;
+import org.imirsel.nema.analytics.evaluation.RenderPipeline;
 import org.imirsel.nema.analytics.evaluation.ResultRendererImpl;
 import org.imirsel.nema.analytics.evaluation.WriteCsvResultFiles;
 import org.imirsel.nema.analytics.evaluation.resultpages.FileListItem;
-import org.imirsel.nema.analytics.evaluation.resultpages.ImageItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.Page;
 import org.imirsel.nema.analytics.evaluation.resultpages.PageItem;
+import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisFriedmanPlotItem;
 import org.imirsel.nema.analytics.evaluation.resultpages.Table;
 import org.imirsel.nema.analytics.evaluation.resultpages.TableItem;
 import org.imirsel.nema.model.NemaData;
@@ -148,89 +152,109 @@ public class TagClassificationResultRenderer extends ResultRendererImpl {
 	}
 	
 	@Override
-	public void renderResults(NemaEvaluationResultSet results)
+	public void renderResults(final NemaEvaluationResultSet results)
 			throws IOException {
 		
-		int numJobs = results.getJobIds().size();
+		final int numJobs = results.getJobIds().size();
 		
 		
 		getLogger().info("Creating system result directories...");
 		Map<String, File> jobIDToResultDir = makeSystemResultDirs(results);
 		
+		RenderPipeline pipeline = createRenderPipeline(results);
+		
 		/* Write out leaderboard CSV file */
-		getLogger().info("Writing out leaderboard CSV...");
-		File leaderboardCSV = this.writeLeaderBoardCSVFile(NemaDataConstants.TAG_FMEASURE, results, false);
+		RenderPipeline.Stage<File> leaderboardCSV = pipeline.add("leaderboard CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeLeaderBoardCSVFile(NemaDataConstants.TAG_FMEASURE, results, false);
+			}
+		});
 
-		getLogger().info("Writing out CSV result files...");
 		/* Write out summary CSV */
 		//write out results summary CSV
-		File summaryCSV = writeOverallResultsCSV(results);
+		final RenderPipeline.Stage<File> summaryCSV = pipeline.add("summary CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeOverallResultsCSV(results);
+			}
+		});
 		
 		//write out summaries for each metric over folds
-		//acc
-		File accCSV = new File(outputDir.getAbsolutePath() + File.separator + "accuracyByFold.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_ACCURACY),accCSV);
-		
-		//fmeasure
-		File fmeasureCSV = new File(outputDir.getAbsolutePath() + File.separator + "fmeasureByFold.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_FMEASURE),fmeasureCSV);
+		final File accCSV = new File(outputDir.getAbsolutePath() + File.separator + "accuracyByFold.csv");
+		final File fmeasureCSV = new File(outputDir.getAbsolutePath() + File.separator + "fmeasureByFold.csv");
+		final File precisionCSV = new File(outputDir.getAbsolutePath() + File.separator + "precisionByFold.csv");
+		final File recallCSV = new File(outputDir.getAbsolutePath() + File.separator + "recallByFold.csv");
+		final File posExAccCSV = new File(outputDir.getAbsolutePath() + File.separator + "positiveExampleAccuracyByFold.csv");
+		final File negExAccCSV = new File(outputDir.getAbsolutePath() + File.separator + "negativeExampleAccuracyByFold.csv");
+		final File[] foldCSVs = new File[]{accCSV,fmeasureCSV,precisionCSV,recallCSV,posExAccCSV,negExAccCSV};
 		
-		//precision
-		File precisionCSV = new File(outputDir.getAbsolutePath() + File.separator + "precisionByFold.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_PRECISION),precisionCSV);
-		
-		//recall
-		File recallCSV = new File(outputDir.getAbsolutePath() + File.separator + "recallByFold.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_RECALL),recallCSV);
-		
-		//positive example acc
-		File posExAccCSV = new File(outputDir.getAbsolutePath() + File.separator + "positiveExampleAccuracyByFold.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_POS_ACCURACY),posExAccCSV);
-
-		//negative example acc
-		File negExAccCSV = new File(outputDir.getAbsolutePath() + File.separator + "negativeExampleAccuracyByFold.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_NEG_ACCURACY),negExAccCSV);
+		final RenderPipeline.Stage<Table> fmeasureTable = pipeline.add("fold CSVs", new Callable<Table>() {
+			public Table call() throws IOException {
+				//acc
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_ACCURACY),accCSV);
+				
+				//fmeasure
+				Table fmeasureTable = WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_FMEASURE);
+				WriteCsvResultFiles.writeTableToCsv(fmeasureTable,fmeasureCSV);
+				
+				//precision
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_PRECISION),precisionCSV);
+				
+				//recall
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_RECALL),recallCSV);
+				
+				//positive example acc
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_POS_ACCURACY),posExAccCSV);
 		
-		File[] foldCSVs = new File[]{accCSV,fmeasureCSV,precisionCSV,recallCSV,posExAccCSV,negExAccCSV};
+				//negative example acc
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverFoldsAndSystems(results.getTestSetTrackLists(),results.getJobIdToPerFoldEvaluation(),results.getJobIdToJobName(),NemaDataConstants.TAG_NEG_ACCURACY),negExAccCSV);
+				return fmeasureTable;
+			}
+		});
 		
 		
 		//write out summaries for each metric over tags
 		//get tag names
-		List<String> tags = new ArrayList<String>((Collection<String>)results.getJobIdToOverallEvaluation().values().iterator().next().getMetadata(NemaDataConstants.TAG_EXPERIMENT_CLASSNAMES));
-
-		//acc
-		File accTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "accuracyByTag.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_ACCURACY_TAG_MAP),accTagCSV);
+		final List<String> tags = new ArrayList<String>((Collection<String>)results.getJobIdToOverallEvaluation().values().iterator().next().getMetadata(NemaDataConstants.TAG_EXPERIMENT_CLASSNAMES));
+
+		final File accTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "accuracyByTag.csv");
+		final File fmeasureTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "fmeasureByTag.csv");
+		final File precisionTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "precisionByTag.csv");
+		final File recallTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "recallByTag.csv");
+		final File posExAccTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "positiveExampleAccuracyByTag.csv");
+		final File negExAccTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "negativeExampleAccuracyByTag.csv");
+		final File[] tagCSVs = new File[]{accTagCSV,fmeasureTagCSV,precisionTagCSV,recallTagCSV,posExAccTagCSV,negExAccTagCSV};
 		
-		//fmeasure
-		File fmeasureTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "fmeasureByTag.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_FMEASURE_TAG_MAP),fmeasureTagCSV);
-		
-		//precision
-		File precisionTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "precisionByTag.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_PRECISION_TAG_MAP),precisionTagCSV);
-		
-		//recall
-		File recallTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "recallByTag.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_RECALL_TAG_MAP),recallTagCSV);
-		
-		//positive example acc
-		File posExAccTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "positiveExampleAccuracyByTag.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_POS_ACCURACY_TAG_MAP),posExAccTagCSV);
-
-		//negative example acc
-		File negExAccTagCSV = new File(outputDir.getAbsolutePath() + File.separator + "negativeExampleAccuracyByTag.csv");
-		WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_NEG_ACCURACY_TAG_MAP),negExAccTagCSV);
+		final RenderPipeline.Stage<Table> fmeasureTagTable = pipeline.add("tag CSVs", new Callable<Table>() {
+			public Table call() throws IOException {
+				//acc
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_ACCURACY_TAG_MAP),accTagCSV);
+				
+				//fmeasure
+				Table fmeasureTagTable = WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_FMEASURE_TAG_MAP);
+				WriteCsvResultFiles.writeTableToCsv(fmeasureTagTable,fmeasureTagCSV);
+				
+				//precision
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_PRECISION_TAG_MAP),precisionTagCSV);
+				
+				//recall
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_RECALL_TAG_MAP),recallTagCSV);
+				
+				//positive example acc
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_POS_ACCURACY_TAG_MAP),posExAccTagCSV);
 		
-		File[] tagCSVs = new File[]{accTagCSV,fmeasureTagCSV,precisionTagCSV,recallTagCSV,posExAccTagCSV,negExAccTagCSV};
+				//negative example acc
+				WriteCsvResultFiles.writeTableToCsv(WriteCsvResultFiles.prepTableDataOverClassMaps(results.getJobIdToOverallEvaluation(),results.getJobIdToJobName(),tags,NemaDataConstants.TAG_NEG_ACCURACY_TAG_MAP),negExAccTagCSV);
+				return fmeasureTagTable;
+			}
+		});
 		
 		//write out per system: folds and metrics
-		Map<String, File> jobIDToPerFoldCSV = writePerFoldSystemResultCSVs(
-				results, jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerFoldCSV = addPerFoldCSVStages(
+				pipeline, results, jobIDToResultDir);
 		
 		//write out per system: tracks and metrics
-		Map<String, File> jobIDToPerTrackCSV = writePerTrackSystemResultCSVs(
-				results, jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerTrackCSV = addPerTrackCSVStages(
+				pipeline, results, jobIDToResultDir);
 		
 
 		// perform statistical tests
@@ -240,36 +264,51 @@ public class TagClassificationResultRenderer extends ResultRendererImpl {
 			performStatSigTests = false;
 		}
 
-		File friedmanFmeasureFoldTablePNG = null;
-		File friedmanFmeasureFoldTable = null;
-		File friedmanFmeasureTagTablePNG = null;
-		File friedmanFmeasureTagTable = null;
-
 		//stats test on fmeasure by tag
-		//stats test fmeasure by track
+		//stats test fmeasure by fold
+		final RenderPipeline.Stage<Map<String,FriedmanResult>> friedmanResults;
 		if (getPerformMatlabStatSigTests() && performStatSigTests) {
-			getLogger().info("Performing Friedman's tests in Matlab...");
-
-			File[] tmp = FriedmansAnovaTkHsd.performFriedman(outputDir,
-					fmeasureCSV, 0, 1, 1, numJobs, getMatlabPath());
-			friedmanFmeasureFoldTablePNG = tmp[0];
-			friedmanFmeasureFoldTable = tmp[1];
-
-			tmp = FriedmansAnovaTkHsd.performFriedman(outputDir, fmeasureTagCSV, 0,
-					1, 1, numJobs, getMatlabPath());
-			friedmanFmeasureTagTablePNG = tmp[0];
-			friedmanFmeasureTagTable = tmp[1];
+			friedmanResults = pipeline.add("Friedman's tests", new Callable<Map<String,FriedmanResult>>() {
+				public Map<String,FriedmanResult> call() throws IOException {
+					Map<String,Table> friedmanTables = new LinkedHashMap<String,Table>();
+					friedmanTables.put("fmeasureByFold", fmeasureTable.get());
+					friedmanTables.put("fmeasureByTag", fmeasureTagTable.get());
+					return FriedmansAnovaTkHsd.performFriedman(
+							outputDir, friedmanTables, 1, numJobs);
+				}
+			}).after(fmeasureTable).after(fmeasureTagTable);
+		}else{
+			friedmanResults = null;
 		}
 
 		/* Create tar-balls of individual result directories */
-		getLogger().info("Preparing evaluation data tarballs...");
-		Map<String, File> jobIDToTgz = compressResultDirectories(jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToTgz = addCompressionStages(pipeline, jobIDToResultDir);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerFoldCSV);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerTrackCSV);
 
 		// write result HTML pages
-		writeHtmlResultPages(performStatSigTests, results, tags, summaryCSV, foldCSVs,
-				tagCSVs, jobIDToPerTrackCSV, jobIDToPerFoldCSV, friedmanFmeasureFoldTablePNG,
-				friedmanFmeasureFoldTable, friedmanFmeasureTagTablePNG,
-				friedmanFmeasureTagTable, jobIDToTgz);
+		final boolean statSigTests = performStatSigTests;
+		RenderPipeline.Stage<Void> pages = pipeline.add("HTML pages", new Callable<Void>() {
+			public Void call() {
+				FriedmanResult friedmanFmeasureFold = null;
+				FriedmanResult friedmanFmeasureTag = null;
+				if (friedmanResults != null){
+					friedmanFmeasureFold = friedmanResults.get().get("fmeasureByFold");
+					friedmanFmeasureTag = friedmanResults.get().get("fmeasureByTag");
+				}
+				writeHtmlResultPages(statSigTests, results, tags, summaryCSV.get(), foldCSVs,
+						tagCSVs, RenderPipeline.values(jobIDToPerTrackCSV), RenderPipeline.values(jobIDToPerFoldCSV), 
+						friedmanFmeasureFold, friedmanFmeasureTag, RenderPipeline.values(jobIDToTgz));
+				return null;
+			}
+		}).after(leaderboardCSV).after(summaryCSV).after(fmeasureTable).after(fmeasureTagTable)
+				.after(jobIDToPerFoldCSV.values()).after(jobIDToPerTrackCSV.values()).after(jobIDToTgz.values());
+		if (friedmanResults != null){
+			pages.after(friedmanResults);
+		}
+		
+		getLogger().info("Rendering results...");
+		runRenderPipeline(pipeline);
 	}
 
 	private void writeHtmlResultPages(boolean performStatSigTests,
@@ -279,10 +318,8 @@ public class TagClassificationResultRenderer extends ResultRendererImpl {
 			File[] tagCSVs,
 			Map<String, File> jobIDToPerTrackCSV, 
 			Map<String, File> jobIDToPerFoldCSV, 
-			File friedmanFmeasureFoldTablePNG,
-			File friedmanFmeasureFoldTable, 
-			File friedmanFmeasureTagTablePNG,
-			File friedmanFmeasureTagTable, 
+			FriedmanResult friedmanFmeasureFold,
+			FriedmanResult friedmanFmeasureTag, 
 			Map<String, File> jobIDToTgz) {
 
 		int numJobs = results.getJobIds().size();
@@ -511,15 +548,12 @@ public class TagClassificationResultRenderer extends ResultRendererImpl {
 			getLogger().info("Performing significance tests...");
 			items = new ArrayList<PageItem>();
 			items.add(legendTable);
-			items.add(new ImageItem("friedmanFmeasureFoldTablePNG",
+			items.add(new ProtovisFriedmanPlotItem("friedmanFmeasureFoldTable",
 					"F-measure by Fold: Friedman's ANOVA w/ Tukey Kramer HSD",
-					IOUtil.makeRelative(friedmanFmeasureFoldTablePNG, outputDir)));
-			items
-					.add(new ImageItem(
-							"friedmanFmeasureTagTablePNG",
-							"F-measure by Tag: Friedman's ANOVA w/ Tukey Kramer HSD",
-							IOUtil.makeRelative(
-									friedmanFmeasureTagTablePNG, outputDir)));
+					friedmanFmeasureFold));
+			items.add(new ProtovisFriedmanPlotItem("friedmanFmeasureTagTable",
+					"F-measure by Tag: Friedman's ANOVA w/ Tukey Kramer HSD",
+					friedmanFmeasureTag));
 
 			aPage = new Page("sig_tests", "Significance Tests", items, true);
 			resultPages.add(aPage);
@@ -568,27 +602,16 @@ public class TagClassificationResultRenderer extends ResultRendererImpl {
 			items.add(new FileListItem("perSystemCSVs",
 					"Per-system CSV result files", perSystemCsvs));
 
-			// Friedman's tables and plots
+			// Friedman's tables
 			if (getPerformMatlabStatSigTests() && performStatSigTests) {
-				// Friedmans tables
 				List<String> sigCSVPaths = new ArrayList<String>(2);
-				sigCSVPaths.add(IOUtil.makeRelative(friedmanFmeasureFoldTable,
-						outputDir));
 				sigCSVPaths.add(IOUtil.makeRelative(
-						friedmanFmeasureTagTable, outputDir));
+						friedmanFmeasureFold.getTableFile(), outputDir));
+				sigCSVPaths.add(IOUtil.makeRelative(
+						friedmanFmeasureTag.getTableFile(), outputDir));
 
 				items.add(new FileListItem("sigCSVs", "Significance test CSVs",
 						sigCSVPaths));
-
-				// Friedmans plots
-				List<String> sigPNGPaths = new ArrayList<String>(2);
-				sigPNGPaths.add(IOUtil.makeRelative(friedmanFmeasureFoldTablePNG,
-						outputDir));
-				sigPNGPaths.add(IOUtil.makeRelative(
-						friedmanFmeasureTagTablePNG, outputDir));
-
-				items.add(new FileListItem("sigPNGs",
-						"Significance test plots", sigPNGPaths));
 			}
 
 			// System Tarballs
@@ -0,0 +1,177 @@
+package org.imirsel.nema.analytics.evaluation.tagsClassification;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Interns a tag vocabulary to indices, so that the tags applied to a track
+ * can be held as a bitset in a <code>long[]</code> (one bit per tag in the
+ * vocabulary) and the true positives, false positives and false negatives
+ * of a track counted by popcounts of the AND and ANDNOT of two bitsets,
+ * without allocating sets or boxed counters per track. Indices are assigned
+ * to the tags in sorted order. Instances are immutable and may be shared
+ * between threads.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class TagDictionary {
+
+	private final String[] tags;
+	private final HashMap<String,Integer> tagToIndex;
+	private final int numWords;
+
+	/**
+	 * Constructor.
+	 * @param vocabulary The tags to index.
+	 */
+	public TagDictionary(Collection<String> vocabulary) {
+		tags = new HashSet<String>(vocabulary).toArray(new String[0]);
+		Arrays.sort(tags);
+		tagToIndex = new HashMap<String,Integer>(tags.length * 2);
+		for (int i = 0; i < tags.length; i++) {
+			tagToIndex.put(tags[i], i);
+		}
+		numWords = (tags.length + 63) >>> 6;
+	}
+
+	/**
+	 * @return the number of tags in the vocabulary.
+	 */
+	public int size() {
+		return tags.length;
+	}
+
+	/**
+	 * @return the number of longs in the bitsets produced.
+	 */
+	public int getNumWords() {
+		return numWords;
+	}
+
+	/**
+	 * @param tag The tag.
+	 * @return the index of the tag or -1 if it is not in the vocabulary.
+	 */
+	public int getIndex(String tag) {
+		Integer idx = tagToIndex.get(tag);
+		return idx == null ? -1 : idx.intValue();
+	}
+
+	/**
+	 * @param index The index.
+	 * @return the tag at the index.
+	 */
+	public String getTag(int index) {
+		return tags[index];
+	}
+
+	/**
+	 * Encodes a set of tags as a bitset. Tags not in the vocabulary are
+	 * ignored, the number ignored is the size of the (duplicate-free) input
+	 * minus {@link #count(long[])} of the output.
+	 * @param tagSet The tags.
+	 * @return the bitset.
+	 */
+	public long[] toBitSet(Collection<String> tagSet) {
+		return toBitSet(tagSet, new long[numWords]);
+	}
+
+	/**
+	 * Encodes a set of tags as a bitset, reusing an existing array.
+	 * @param tagSet The tags.
+	 * @param bits The array to clear and fill, of length
+	 * {@link #getNumWords()}.
+	 * @return the bitset.
+	 * @see #toBitSet(Collection)
+	 */
+	public long[] toBitSet(Collection<String> tagSet, long[] bits) {
+		Arrays.fill(bits, 0L);
+		for (Iterator<String> it = tagSet.iterator(); it.hasNext();) {
+			Integer idx = tagToIndex.get(it.next());
+			if (idx != null){
+				bits[idx >>> 6] |= 1L << idx;
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Decodes a bitset to the set of tags it holds.
+	 * @param bits The bitset.
+	 * @return the tags.
+	 */
+	public Set<String> toSet(long[] bits) {
+		Set<String> out = new HashSet<String>();
+		for (int w = 0; w < bits.length; w++) {
+			long word = bits[w];
+			while (word != 0){
+				out.add(tags[(w << 6) + Long.numberOfTrailingZeros(word)]);
+				word &= word - 1;
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * @param bits A bitset.
+	 * @return the number of tags in the bitset.
+	 */
+	public static int count(long[] bits) {
+		int count = 0;
+		for (int w = 0; w < bits.length; w++) {
+			count += Long.bitCount(bits[w]);
+		}
+		return count;
+	}
+
+	/**
+	 * @param a A bitset.
+	 * @param b Another bitset of the same length.
+	 * @return the number of tags in both bitsets.
+	 */
+	public static int countAnd(long[] a, long[] b) {
+		int count = 0;
+		for (int w = 0; w < a.length; w++) {
+			count += Long.bitCount(a[w] & b[w]);
+		}
+		return count;
+	}
+
+	/**
+	 * @param a A bitset.
+	 * @param b Another bitset of the same length.
+	 * @return the number of tags in a but not in b.
+	 */
+	public static int countAndNot(long[] a, long[] b) {
+		int count = 0;
+		for (int w = 0; w < a.length; w++) {
+			count += Long.bitCount(a[w] & ~b[w]);
+		}
+		return count;
+	}
+
+	/**
+	 * Increments the counter of each tag in a but not in b, or in both a and
+	 * b.
+	 * @param a A bitset.
+	 * @param b Another bitset of the same length.
+	 * @param andNot Flag indicating whether to count the tags in a but not b
+	 * (true) or in both (false).
+	 * @param counts The per-tag counters, indexed by tag index.
+	 */
+	public static void addCounts(long[] a, long[] b, boolean andNot, int[] counts) {
+		for (int w = 0; w < a.length; w++) {
+			long word = andNot ? a[w] & ~b[w] : a[w] & b[w];
+			int base = w << 6;
+			while (word != 0){
+				counts[base + Long.numberOfTrailingZeros(word)]++;
+				word &= word - 1;
+			}
+		}
+	}
+}
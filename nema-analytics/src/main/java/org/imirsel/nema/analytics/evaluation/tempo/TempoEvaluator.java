@@ -1,6 +1,9 @@
 package org.imirsel.nema.analytics.evaluation.tempo;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -19,6 +22,8 @@ public class TempoEvaluator extends EvaluatorImpl {
 	 */
 	public static final double TOLERANCE = 0.08;
 
+	private double[] tolerances = null;
+
 	/**
 	 * Constructor
 	 */
@@ -60,21 +65,7 @@ public class TempoEvaluator extends EvaluatorImpl {
 
 		{
 			/* Perform the evaluations on all jobIds (systems) */
-			Map<NemaTrackList,List<NemaData>> sysResults;
-			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = new HashMap<String, Map<NemaTrackList,NemaData>>(numJobs);
-			for (Iterator<String> it = jobIDToFoldResults.keySet().iterator(); it.hasNext();) {
-				jobId = it.next();
-				getLogger().info("Evaluating experiment for jobID: " + jobId);
-				sysResults = jobIDToFoldResults.get(jobId);
-				Map<NemaTrackList,NemaData> foldEvals = new HashMap<NemaTrackList,NemaData>(testSets.size());
-				for (Iterator<NemaTrackList> trackIt = sysResults.keySet().iterator(); trackIt.hasNext();) {
-					//make sure we use the evaluators copy of the track list
-					NemaTrackList trackList = testSets.get(testSets.indexOf(trackIt.next()));
-					NemaData result = evaluateResultFold(jobId, trackList, sysResults.get(trackList));
-					foldEvals.put(trackList, result);
-				}
-				jobIdToFoldEvaluation.put(jobId, foldEvals);
-			}
+			Map<String, Map<NemaTrackList,NemaData>> jobIdToFoldEvaluation = evaluateAllJobs();
 
 			/* Aggregated evaluation to produce overall results */
 			Map<String, NemaData> jobIdToOverallEvaluation = new HashMap<String, NemaData>(numJobs);
@@ -82,8 +73,7 @@ public class TempoEvaluator extends EvaluatorImpl {
 				jobId = it.next();
 				getLogger().info("Aggregating results for jobID: " + jobId);
 				Map<NemaTrackList,NemaData> foldEvals = jobIdToFoldEvaluation.get(jobId);
-				NemaData overall = averageFoldMetrics(jobId, foldEvals.values());
-				jobIdToOverallEvaluation.put(jobId, overall);
+				jobIdToOverallEvaluation.put(jobId, aggregateFoldEvaluations(jobId, foldEvals.values()));
 			}
 
 			/* Populate NemaEvaluationResultSet */
@@ -100,6 +90,13 @@ public class TempoEvaluator extends EvaluatorImpl {
 	
 
 
+	@Override
+	protected NemaData aggregateFoldEvaluations(String jobId, Collection<NemaData> foldEvals) {
+		NemaData overall = averageFoldMetrics(jobId, foldEvals);
+		averageFoldArrayMetrics(overall, foldEvals, NemaDataConstants.TEMPO_EXTRACTION_TOLERANCES, getSweepMetrics());
+		return overall;
+	}
+
 	/**
 	 * The core evaluation method. Evaluates each file against its ground-truth for a given jobId
 	 * @param jobID		the jobId to evaluate
@@ -124,6 +121,15 @@ public class TempoEvaluator extends EvaluatorImpl {
 		int overallTwoTempoCorrect = 0;
 		double overallP = 0.0;
 
+		double[] sweepOneCorrect = null;
+		double[] sweepTwoCorrect = null;
+		double[] sweepP = null;
+		if (tolerances != null) {
+			sweepOneCorrect = new double[tolerances.length];
+			sweepTwoCorrect = new double[tolerances.length];
+			sweepP = new double[tolerances.length];
+		}
+
 		/* Begin track by track evaluation */
 		int numTracks = theData.size();
 		for (int x = 0; x < numTracks; x++) {
@@ -135,30 +141,11 @@ public class TempoEvaluator extends EvaluatorImpl {
 			rawGtData = gtData
 			.getDoubleArrayMetadata(NemaDataConstants.TEMPO_EXTRACTION_DATA);
 			
-			int TT1 = 0;
-            int TT2 = 0;
+			int TT1 = firstTempoCorrect(rawGtData, rawData, TOLERANCE);
+            int TT2 = secondTempoCorrect(rawGtData, rawData, TOLERANCE);
 			int oneTempoCorrect = 0;
 			int twoTempoCorrect = 0;
 			double pScore = 0.0;
-
-			//First tempo correct
-            if (Math.abs(rawGtData[0] - rawData[0]) < (rawGtData[0] * TOLERANCE)) {
-                TT1++;
-            }
-            //check for case of switched TT1 and TT2
-            else if (Math.abs(rawGtData[0] - rawData[1]) < (rawGtData[0] * TOLERANCE)) {
-                TT1++;
-            }
-            
-            // Second tempo correct, if TT1 and TT2 were switched this won't
-            // be true anyway
-            if (Math.abs(rawGtData[1] - rawData[1]) < (rawGtData[1] * TOLERANCE)) {                   
-                TT2++;
-            }
-            // check for switched TT2 and TT1
-            else if(Math.abs(rawGtData[1] - rawData[0]) < (rawGtData[1] * TOLERANCE)) { 
-                TT2++;
-            }
 			
             if ((TT1 + TT2) == 1 || (TT1 + TT2) == 2) {
             	oneTempoCorrect = 1;
@@ -172,6 +159,20 @@ public class TempoEvaluator extends EvaluatorImpl {
             pScore = rawGtData[2] * TT1 + (1 - rawGtData[2]) * TT2;
             overallP += pScore;
             
+            if (tolerances != null) {
+            	for (int s = 0; s < tolerances.length; s++) {
+            		int sweepTT1 = firstTempoCorrect(rawGtData, rawData, tolerances[s]);
+            		int sweepTT2 = secondTempoCorrect(rawGtData, rawData, tolerances[s]);
+            		if (sweepTT1 + sweepTT2 > 0) {
+            			sweepOneCorrect[s]++;
+            		}
+            		if (sweepTT1 + sweepTT2 == 2) {
+            			sweepTwoCorrect[s]++;
+            		}
+            		sweepP[s] += rawGtData[2] * sweepTT1 + (1 - rawGtData[2]) * sweepTT2;
+            	}
+            }
+            
             
 
 			/* 
@@ -193,6 +194,86 @@ public class TempoEvaluator extends EvaluatorImpl {
 		outObj.setMetadata(NemaDataConstants.TEMPO_EXTRACTION_TWO_CORRECT, (double)overallTwoTempoCorrect/(double)numExamples);
 		outObj.setMetadata(NemaDataConstants.TEMPO_EXTRACTION_P_SCORE, overallP/numExamples);
 
+		if (tolerances != null) {
+			for (int s = 0; s < tolerances.length; s++) {
+				sweepOneCorrect[s] /= (double)numExamples;
+				sweepTwoCorrect[s] /= (double)numExamples;
+				sweepP[s] /= numExamples;
+			}
+			outObj.setMetadata(NemaDataConstants.TEMPO_EXTRACTION_TOLERANCES, tolerances.clone());
+			outObj.setMetadata(NemaDataConstants.TEMPO_EXTRACTION_ONE_CORRECT_BY_TOLERANCE, sweepOneCorrect);
+			outObj.setMetadata(NemaDataConstants.TEMPO_EXTRACTION_TWO_CORRECT_BY_TOLERANCE, sweepTwoCorrect);
+			outObj.setMetadata(NemaDataConstants.TEMPO_EXTRACTION_P_SCORE_BY_TOLERANCE, sweepP);
+		}
+
 		return outObj;
 	}
+
+	/**
+	 * Returns 1 if the first ground-truth tempo was found, in either position
+	 * of the results, within the tolerance ratio, otherwise 0.
+	 */
+	private static int firstTempoCorrect(double[] rawGtData, double[] rawData, double tolerance) {
+		//First tempo correct
+		if (Math.abs(rawGtData[0] - rawData[0]) < (rawGtData[0] * tolerance)) {
+			return 1;
+		}
+		//check for case of switched TT1 and TT2
+		else if (Math.abs(rawGtData[0] - rawData[1]) < (rawGtData[0] * tolerance)) {
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns 1 if the second ground-truth tempo was found, in either position
+	 * of the results, within the tolerance ratio, otherwise 0.
+	 */
+	private static int secondTempoCorrect(double[] rawGtData, double[] rawData, double tolerance) {
+		// Second tempo correct, if TT1 and TT2 were switched this won't
+		// be true anyway
+		if (Math.abs(rawGtData[1] - rawData[1]) < (rawGtData[1] * tolerance)) {
+			return 1;
+		}
+		// check for switched TT2 and TT1
+		else if (Math.abs(rawGtData[1] - rawData[0]) < (rawGtData[1] * tolerance)) {
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Sets the tolerance ratios to sweep, in addition to the standard
+	 * {@link #TOLERANCE}. When set, the P-score and the proportions of tracks
+	 * with one and both tempi correct are also computed at each tolerance and
+	 * stored as arrays in the fold and overall evaluations, indexed by the
+	 * array held under {@link NemaDataConstants#TEMPO_EXTRACTION_TOLERANCES}.
+	 *
+	 * @param tolerances the tolerances to sweep or null to disable the sweep.
+	 * @since 0.4.1
+	 */
+	public void setTolerances(double[] tolerances) {
+		this.tolerances = tolerances;
+	}
+
+	/**
+	 * @return the tolerance ratios swept or null if the sweep is disabled.
+	 * @since 0.4.1
+	 */
+	public double[] getTolerances() {
+		return tolerances;
+	}
+
+	@Override
+	protected String getCacheParameters() {
+		return "tolerances=" + Arrays.toString(tolerances);
+	}
+
+	private static List<String> getSweepMetrics() {
+		List<String> metrics = new ArrayList<String>();
+		metrics.add(NemaDataConstants.TEMPO_EXTRACTION_P_SCORE_BY_TOLERANCE);
+		metrics.add(NemaDataConstants.TEMPO_EXTRACTION_ONE_CORRECT_BY_TOLERANCE);
+		metrics.add(NemaDataConstants.TEMPO_EXTRACTION_TWO_CORRECT_BY_TOLERANCE);
+		return metrics;
+	}
 }
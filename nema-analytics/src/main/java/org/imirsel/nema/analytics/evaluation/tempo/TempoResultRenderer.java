@@ -7,7 +7,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
+import org.imirsel.nema.analytics.evaluation.RenderPipeline;
 import org.imirsel.nema.analytics.evaluation.ResultRendererImpl;
 import org.imirsel.nema.analytics.evaluation.WriteCsvResultFiles;
 import org.imirsel.nema.analytics.evaluation.resultpages.FileListItem;
@@ -25,31 +27,45 @@ import org.imirsel.nema.model.util.IOUtil;
 public class TempoResultRenderer extends ResultRendererImpl {
 
 	@Override
-	public void renderResults(NemaEvaluationResultSet results) throws IOException {
+	public void renderResults(final NemaEvaluationResultSet results) throws IOException {
 		getLogger().info("Creating system result directories...");
 		Map<String, File> jobIDToResultDir = makeSystemResultDirs(results);
 
+		RenderPipeline pipeline = createRenderPipeline(results);
+
 		/* Write out leaderboard CSV file */
-		getLogger().info("Writing out leaderboard CSV...");
-		File leaderboardCSV = this.writeLeaderBoardCSVFile(NemaDataConstants.TEMPO_EXTRACTION_P_SCORE, results, false);
+		RenderPipeline.Stage<File> leaderboardCSV = pipeline.add("leaderboard CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeLeaderBoardCSVFile(NemaDataConstants.TEMPO_EXTRACTION_P_SCORE, results, false);
+			}
+		});
 		
 		/* Write out summary CSV */
-		getLogger().info("Writing out CSV result files over whole task...");
-		File summaryCsv = writeOverallResultsCSV(results);
+		final RenderPipeline.Stage<File> summaryCsv = pipeline.add("summary CSV", new Callable<File>() {
+			public File call() throws IOException {
+				return writeOverallResultsCSV(results);
+			}
+		});
 		
 		/* Write out per track CSV for each system */
-		getLogger().info("Writing out per-system result files...");
-		Map<String, File> jobIDToPerTrackCSV = writePerTrackSystemResultCSVs(
-				results, jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToPerTrackCSV = addPerTrackCSVStages(
+				pipeline, results, jobIDToResultDir);
 
 		/* Create tar-balls of individual result directories */
-		getLogger().info("Preparing evaluation data tarballs...");
-		Map<String, File> jobIDToTgz = compressResultDirectories(jobIDToResultDir);
+		final Map<String, RenderPipeline.Stage<File>> jobIDToTgz = addCompressionStages(pipeline, jobIDToResultDir);
+		RenderPipeline.afterEach(jobIDToTgz, jobIDToPerTrackCSV);
 
 		/* Write result HTML pages */
-		getLogger().info("Creating result HTML files...");
-		writeResultHtmlPages(results, summaryCsv, 
-				jobIDToPerTrackCSV, jobIDToTgz, outputDir);
+		pipeline.add("HTML pages", new Callable<Void>() {
+			public Void call() {
+				writeResultHtmlPages(results, summaryCsv.get(), RenderPipeline.values(jobIDToPerTrackCSV),
+						RenderPipeline.values(jobIDToTgz), outputDir);
+				return null;
+			}
+		}).after(leaderboardCSV).after(summaryCsv).after(jobIDToPerTrackCSV.values()).after(jobIDToTgz.values());
+		
+		getLogger().info("Rendering results...");
+		runRenderPipeline(pipeline);
 	}
 	
 	@Override
@@ -102,6 +118,16 @@ public class TempoResultRenderer extends ResultRendererImpl {
 			items.add(plotOverallMetricBarChart(NemaDataConstants.TEMPO_EXTRACTION_ONE_CORRECT, results, NemaDataConstants.TEMPO_EXTRACTION_ONE_CORRECT, NemaDataConstants.TEMPO_EXTRACTION_ONE_CORRECT));
 			items.add(plotOverallMetricBarChart(NemaDataConstants.TEMPO_EXTRACTION_TWO_CORRECT, results, NemaDataConstants.TEMPO_EXTRACTION_TWO_CORRECT, NemaDataConstants.TEMPO_EXTRACTION_TWO_CORRECT));
 			
+			String[] sweepMetrics = new String[]{NemaDataConstants.TEMPO_EXTRACTION_P_SCORE_BY_TOLERANCE, 
+					NemaDataConstants.TEMPO_EXTRACTION_ONE_CORRECT_BY_TOLERANCE, NemaDataConstants.TEMPO_EXTRACTION_TWO_CORRECT_BY_TOLERANCE};
+			for (int i = 0; i < sweepMetrics.length; i++) {
+				PageItem sweepPlot = plotToleranceSweep(NemaDataConstants.TEMPO_EXTRACTION_TOLERANCES, sweepMetrics[i], 
+						results, "tolerance_sweep_" + i, sweepMetrics[i], "Tolerance (ratio of ground-truth tempo)");
+				if (sweepPlot != null){
+					items.add(sweepPlot);
+				}
+			}
+			
 			aPage = new Page("summary", "Summary", items, false);
 			resultPages.add(aPage);
 		}
@@ -9,8 +9,6 @@ import java.util.logging.Level;
 public class CommandLineExecutorImpl extends ProcessExecutorImpl {
 
 	protected boolean isRunning = false;
-	protected Process process;
-	protected ProcessOutputReceiver procOutputReceiverThread = null;
 	protected String commandFormattingStr = "$m -anOption $1 $2 $o";
 	protected File executablePath;
 
@@ -35,7 +33,6 @@ public class CommandLineExecutorImpl extends ProcessExecutorImpl {
 		this.commandFormattingStr = commandFormattingStr;
 		this.executablePath = executablePath;
 		this.isRunning = false;
-		this.procOutputReceiverThread = null;
 		this.process = null;
 	}
 
@@ -61,7 +58,6 @@ public class CommandLineExecutorImpl extends ProcessExecutorImpl {
 		this.executablePath = executablePath;
 		this.outpath = null;
 		this.isRunning = false;
-		this.procOutputReceiverThread = null;
 		this.process = null;
 	}
 
@@ -69,8 +65,8 @@ public class CommandLineExecutorImpl extends ProcessExecutorImpl {
 		if (process != null) {
 			process.destroy();
 		}
-		if (procOutputReceiverThread != null){
-			procOutputReceiverThread.kill();
+		if (outputCapture != null){
+			outputCapture.kill();
 		}
 	}
 
@@ -311,28 +307,25 @@ public class CommandLineExecutorImpl extends ProcessExecutorImpl {
 		pb.directory(processWorkingDir);
 		pb.redirectErrorStream(true);
 		InputStream is = null;
+		int exitStatus = -1;
+		boolean exited = false;
 		try {
 			process = pb.start();
 			is = process.getInputStream();
 			getLogger().info("*******************************************\n"
 					+ "EXTERNAL PROCESS STDOUT AND STDERR:");
 
-			procOutputReceiverThread = new ProcessOutputReceiver(is, getLogger());
-			procOutputReceiverThread.start();
-			int exitStatus;
+			startOutputCapture(is);
 			try {
 				exitStatus = process.waitFor();
-				getLogger().info("EXTERNAL PROCESS EXIT STATUS: " + exitStatus
-						+ "\n" + "*******************************************");
-				return exitStatus;
+				exited = true;
 			} catch (InterruptedException e) {
 				getLogger().log(Level.WARNING,
 						"Interupted while waiting for process to exit", e);
 			}
 		} finally {
-			if (procOutputReceiverThread != null) {
-				procOutputReceiverThread.kill();
-			}
+			//log the remaining output before the exit status
+			finishOutputCapture();
 			if (process != null) {
 				process.getErrorStream().close();
 			}
@@ -341,7 +334,11 @@ public class CommandLineExecutorImpl extends ProcessExecutorImpl {
 			}
 			isRunning = false;
 		}
-		return -1;
+		if (exited) {
+			getLogger().info("EXTERNAL PROCESS EXIT STATUS: " + exitStatus
+					+ "\n" + "*******************************************");
+		}
+		return exitStatus;
 	}
 
 	public boolean isRunning() {
@@ -0,0 +1,295 @@
+package org.imirsel.nema.analytics.util.process;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A long-lived MATLAB interpreter, started without a <code>-r</code> command
+ * and fed commands one line at a time on its standard input. Each command is
+ * evaluated from a string in a try/catch block (so that syntax errors are
+ * caught too) that prints a sentinel line, holding a token unique to the
+ * engine and the status of the command (0 for success, 1 if it raised an
+ * error), so that the end of its output can be detected without the
+ * interpreter exiting. The base workspace is cleared before each command.
+ * Commands must therefore not call <code>exit</code> or <code>quit</code>,
+ * which would be treated as a crash.
+ *
+ * Engines are created and recycled by a {@link MatlabEnginePool}.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class MatlabEngine {
+
+	/** Status returned for a command that raised a MATLAB error. */
+	public static final int STATUS_ERROR = 1;
+	/** Status returned if the engine exited (or was killed) during a command. */
+	public static final int STATUS_CRASHED = -1;
+
+	private static final int MAX_LOG_MESSAGE_LENGTH = 64 * 1024;
+	private static final AtomicInteger engineNumber = new AtomicInteger(1);
+
+	private final int id = engineNumber.getAndIncrement();
+	private final String token = "NEMA_ENGINE_DONE_" + UUID.randomUUID().toString().replace("-", "");
+	private final File matlabBin;
+	private final String matlabArgs;
+	private Process process = null;
+	private BufferedWriter stdin = null;
+	private BufferedReader stdout = null;
+	private int numStartupCommands = 0;
+	private int numCommands = 0;
+	private volatile boolean dead = false;
+	private Logger _logger;
+
+	/**
+	 * Constructor.
+	 * @param matlabBin The MATLAB executable.
+	 * @param matlabArgs The arguments to start MATLAB with, separated by
+	 * spaces.
+	 */
+	MatlabEngine(File matlabBin, String matlabArgs) {
+		this.matlabBin = matlabBin;
+		this.matlabArgs = matlabArgs;
+	}
+
+	public Logger getLogger() {
+		if (_logger == null){
+			_logger = Logger.getLogger(this.getClass().getName());
+		}
+		return _logger;
+	}
+
+	/**
+	 * Starts the interpreter and queues the startup commands (e.g. path
+	 * setup) on its input, without waiting for it to start.
+	 * @param startupCommands The commands to run once, before any other.
+	 * @throws IOException Thrown if the process can't be started.
+	 */
+	void launch(List<String> startupCommands) throws IOException {
+		List<String> cmd = new ArrayList<String>();
+		cmd.add(matlabBin.getPath());
+		String[] args = matlabArgs.trim().split(" +");
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].length() > 0){
+				cmd.add(args[i]);
+			}
+		}
+		getLogger().info("Starting MATLAB engine " + id + ": " + cmd);
+		ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.redirectErrorStream(true);
+		process = pb.start();
+		stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+		stdout = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		for (String command : startupCommands) {
+			send("", command);
+		}
+		numStartupCommands = startupCommands.size();
+		stdin.flush();
+	}
+
+	/**
+	 * Waits for the interpreter to start and run the startup commands.
+	 * @throws IOException Thrown if the interpreter exits before it is ready.
+	 */
+	void awaitReady() throws IOException {
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < numStartupCommands; i++) {
+			int status = readOutput();
+			if (status == STATUS_CRASHED){
+				throw new IOException("MATLAB engine " + id + " exited during startup");
+			} else if (status != 0){
+				getLogger().warning("A startup command failed in MATLAB engine " + id);
+			}
+		}
+		if (numStartupCommands == 0){
+			//wait for the interpreter to respond to an empty command
+			send("", "");
+			stdin.flush();
+			if (readOutput() == STATUS_CRASHED){
+				throw new IOException("MATLAB engine " + id + " exited during startup");
+			}
+		}
+		getLogger().info("MATLAB engine " + id + " ready in " + (System.currentTimeMillis() - start) + "ms");
+	}
+
+	/**
+	 * Runs a command in the engine, blocking until it completes. Its output
+	 * is sent to the Logger.
+	 * @param workingDir The directory to run the command in, or null to use
+	 * the current directory of the engine.
+	 * @param command The command, e.g. a call to a function or script.
+	 * @param envp Environment variables to set before running the command, in
+	 * the form <code>NAME=VALUE</code>, or null.
+	 * @return 0 if the command succeeded, {@link #STATUS_ERROR} if it raised
+	 * an error or {@link #STATUS_CRASHED} if the engine exited.
+	 * @throws IOException Thrown if the engine is no longer running.
+	 */
+	public synchronized int eval(File workingDir, String command, String[] envp) throws IOException {
+		if (dead){
+			throw new IOException("MATLAB engine " + id + " is no longer running");
+		}
+		StringBuilder prefix = new StringBuilder("clear variables; ");
+		if (envp != null){
+			for (int i = 0; i < envp.length; i++) {
+				int eq = envp[i].indexOf('=');
+				if (eq > 0){
+					prefix.append("setenv(").append(quote(envp[i].substring(0, eq))).append(",")
+							.append(quote(envp[i].substring(eq + 1))).append("); ");
+				}
+			}
+		}
+		if (workingDir != null){
+			prefix.append("cd(").append(quote(workingDir.getCanonicalPath())).append("); rehash; ");
+		}
+		numCommands++;
+		try {
+			send(prefix.toString(), command);
+			stdin.flush();
+		} catch (IOException e) {
+			getLogger().log(Level.WARNING, "Failed to send a command to MATLAB engine " + id, e);
+			kill();
+			return STATUS_CRASHED;
+		}
+		return readOutput();
+	}
+
+	/**
+	 * Writes a command wrapped in the try/catch block and sentinel line. The
+	 * command is passed to <code>eval</code> as a string literal, so that a
+	 * command that fails to parse raises an error that is caught, rather than
+	 * the interpreter rejecting the whole line and never printing the
+	 * sentinel. The token is split in two and joined by MATLAB, so the
+	 * echoed input can never match it.
+	 */
+	private void send(String prefix, String command) throws IOException {
+		int half = token.length() / 2;
+		stdin.write(prefix + "try, eval(" + quoteLines(command) + "); nemaStatus = 0; catch nemaErr, disp(getReport(nemaErr)); nemaStatus = "
+				+ STATUS_ERROR + "; end; fprintf('\\n%s %d\\n', ['" + token.substring(0, half) + "' '" 
+				+ token.substring(half) + "'], nemaStatus);");
+		stdin.newLine();
+	}
+
+	/**
+	 * Logs the output of the engine up to the next sentinel line.
+	 * @return the status printed on the sentinel line or
+	 * {@link #STATUS_CRASHED} if the output ended first.
+	 */
+	private int readOutput() {
+		StringBuilder output = new StringBuilder();
+		try {
+			String line;
+			while ((line = stdout.readLine()) != null){
+				int idx = line.indexOf(token);
+				if (idx != -1){
+					output.append(line.substring(0, idx));
+					logOutput(output);
+					return Integer.parseInt(line.substring(idx + token.length()).trim());
+				}
+				output.append(line).append('\n');
+				if (output.length() > MAX_LOG_MESSAGE_LENGTH){
+					logOutput(output);
+				}
+			}
+		} catch (IOException e) {
+			if (!dead){
+				getLogger().log(Level.WARNING, "IOException reading output of MATLAB engine " + id, e);
+			}
+		} catch (NumberFormatException e) {
+			getLogger().log(Level.WARNING, "Unreadable status from MATLAB engine " + id, e);
+		}
+		logOutput(output);
+		if (!dead){
+			getLogger().warning("MATLAB engine " + id + " exited unexpectedly");
+		}
+		kill();
+		return STATUS_CRASHED;
+	}
+
+	private void logOutput(StringBuilder output) {
+		if (output.toString().trim().length() > 0){
+			getLogger().info("MATLAB engine " + id + " output:\n" + output);
+		}
+		output.setLength(0);
+	}
+
+	/**
+	 * Kills the interpreter, interrupting any command in progress.
+	 */
+	public void kill() {
+		dead = true;
+		if (process != null){
+			process.destroy();
+		}
+	}
+
+	/**
+	 * @return a flag indicating whether the interpreter is still running.
+	 */
+	public boolean isAlive() {
+		if (dead || process == null){
+			return false;
+		}
+		try {
+			process.exitValue();
+			dead = true;
+			return false;
+		} catch (IllegalThreadStateException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * @return the number of commands run by the engine, excluding the startup
+	 * commands.
+	 */
+	public synchronized int getNumCommands() {
+		return numCommands;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Quotes a string as a MATLAB string expression on a single line, joining
+	 * the literals of its lines with newline characters.
+	 */
+	private static String quoteLines(String str) {
+		String[] lines = str.split("\r?\n|\r", -1);
+		if (lines.length == 1){
+			return quote(str);
+		}
+		StringBuilder out = new StringBuilder("[");
+		for (int i = 0; i < lines.length; i++) {
+			if (i > 0){
+				out.append(" char(10) ");
+			}
+			out.append(quote(lines[i]));
+		}
+		return out.append("]").toString();
+	}
+
+	/**
+	 * Quotes a string as a MATLAB string literal.
+	 * @param str The string.
+	 * @return the literal.
+	 */
+	public static String quote(String str) {
+		return "'" + str.replace("'", "''") + "'";
+	}
+
+	@Override
+	public String toString() {
+		return "MATLAB engine " + id;
+	}
+}
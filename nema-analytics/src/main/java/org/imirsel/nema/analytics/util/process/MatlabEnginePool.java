@@ -0,0 +1,261 @@
+package org.imirsel.nema.analytics.util.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A pool of up to N warm {@link MatlabEngine}s, so that MATLAB is started
+ * once per engine rather than once per command. Engines are started when
+ * first needed (or by {@link #warmUp()}), run the startup commands (such as
+ * path setup) once, and are then reused by each command borrowed from the
+ * pool. An engine that crashes, is killed or is found to have exited is
+ * discarded and replaced by a freshly started engine when one is next needed.
+ *
+ * Set a pool on a {@link MatlabExecutorImpl} to run its commands in the
+ * pool's engines instead of a new MATLAB process.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class MatlabEnginePool {
+
+	private final File matlabBin;
+	private final int size;
+	private String matlabArgs = "-nodesktop -nosplash";
+	private final List<String> startupCommands = new ArrayList<String>();
+	private final LinkedList<MatlabEngine> idle = new LinkedList<MatlabEngine>();
+	private int numEngines = 0;
+	private int numReplaced = 0;
+	private boolean closed = false;
+	private Logger _logger;
+
+	/**
+	 * Constructor.
+	 * @param matlabBin The MATLAB executable.
+	 * @param size The maximum number of engines to run at once.
+	 */
+	public MatlabEnginePool(File matlabBin, int size) {
+		if (size < 1){
+			throw new IllegalArgumentException("A MATLAB engine pool requires at least one engine, received: " + size);
+		}
+		this.matlabBin = matlabBin;
+		this.size = size;
+	}
+
+	public Logger getLogger() {
+		if (_logger == null){
+			_logger = Logger.getLogger(this.getClass().getName());
+		}
+		return _logger;
+	}
+
+	/**
+	 * Adds a directory to the MATLAB path of every engine started after the
+	 * call.
+	 * @param dir The directory.
+	 * @throws IOException Thrown if the path of the directory can't be
+	 * resolved.
+	 */
+	public synchronized void addPath(File dir) throws IOException {
+		startupCommands.add("addpath(" + MatlabEngine.quote(dir.getCanonicalPath()) + ")");
+	}
+
+	/**
+	 * Adds a command to be run once by every engine started after the call,
+	 * before any other command.
+	 * @param command The command.
+	 */
+	public synchronized void addStartupCommand(String command) {
+		startupCommands.add(command);
+	}
+
+	/**
+	 * Starts engines until the pool is full and waits for them to be ready.
+	 * The engines start concurrently.
+	 * @throws IOException Thrown if an engine fails to start.
+	 */
+	public void warmUp() throws IOException {
+		List<MatlabEngine> started = new ArrayList<MatlabEngine>();
+		List<String> startup;
+		synchronized (this) {
+			startup = new ArrayList<String>(startupCommands);
+			while (numEngines < size){
+				numEngines++;
+				started.add(new MatlabEngine(matlabBin, matlabArgs));
+			}
+		}
+		try {
+			for (MatlabEngine engine : started) {
+				engine.launch(startup);
+			}
+			for (MatlabEngine engine : started) {
+				engine.awaitReady();
+			}
+		} catch (IOException e) {
+			for (MatlabEngine engine : started) {
+				engine.kill();
+			}
+			synchronized (this) {
+				numEngines -= started.size();
+				notifyAll();
+			}
+			throw e;
+		}
+		for (MatlabEngine engine : started) {
+			release(engine);
+		}
+	}
+
+	/**
+	 * Borrows an idle engine, starting one if the pool is not full or
+	 * waiting for one to be released if it is. The engine must be returned
+	 * with {@link #release(MatlabEngine)}.
+	 * @return the engine.
+	 * @throws IOException Thrown if a new engine fails to start or the pool
+	 * has been closed.
+	 * @throws InterruptedException Thrown if interrupted while waiting for an
+	 * engine.
+	 */
+	public MatlabEngine borrow() throws IOException, InterruptedException {
+		List<String> startup;
+		synchronized (this) {
+			while (true){
+				if (closed){
+					throw new IOException("The MATLAB engine pool has been closed");
+				}
+				if (!idle.isEmpty()){
+					MatlabEngine engine = idle.removeFirst();
+					if (engine.isAlive()){
+						return engine;
+					}
+					discard(engine);
+				} else if (numEngines < size){
+					numEngines++;
+					startup = new ArrayList<String>(startupCommands);
+					break;
+				} else {
+					wait();
+				}
+			}
+		}
+		MatlabEngine engine = new MatlabEngine(matlabBin, matlabArgs);
+		try {
+			engine.launch(startup);
+			engine.awaitReady();
+		} catch (IOException e) {
+			engine.kill();
+			synchronized (this) {
+				numEngines--;
+				notifyAll();
+			}
+			throw e;
+		}
+		return engine;
+	}
+
+	/**
+	 * Returns a borrowed engine to the pool, discarding it if it is no longer
+	 * running.
+	 * @param engine The engine.
+	 */
+	public synchronized void release(MatlabEngine engine) {
+		if (closed){
+			engine.kill();
+			numEngines--;
+		} else if (engine.isAlive()){
+			idle.addLast(engine);
+		} else {
+			discard(engine);
+		}
+		notifyAll();
+	}
+
+	private void discard(MatlabEngine engine) {
+		getLogger().warning(engine + " is no longer running, it will be replaced");
+		engine.kill();
+		numEngines--;
+		numReplaced++;
+	}
+
+	/**
+	 * Runs a command in an engine from the pool.
+	 * @param workingDir The directory to run the command in.
+	 * @param command The command.
+	 * @param envp Environment variables to set, in the form
+	 * <code>NAME=VALUE</code>, or null.
+	 * @return the status of the command, as returned by
+	 * {@link MatlabEngine#eval(File, String, String[])}.
+	 * @throws IOException Thrown if an engine can't be started.
+	 * @throws InterruptedException Thrown if interrupted while waiting for an
+	 * engine.
+	 */
+	public int eval(File workingDir, String command, String[] envp) throws IOException, InterruptedException {
+		MatlabEngine engine = borrow();
+		try {
+			return engine.eval(workingDir, command, envp);
+		} finally {
+			release(engine);
+		}
+	}
+
+	/**
+	 * Kills the idle engines and any engine released after the call.
+	 */
+	public synchronized void close() {
+		closed = true;
+		for (Iterator<MatlabEngine> it = idle.iterator(); it.hasNext();) {
+			it.next().kill();
+			numEngines--;
+		}
+		idle.clear();
+		notifyAll();
+	}
+
+	public File getMatlabBin() {
+		return matlabBin;
+	}
+
+	/**
+	 * Sets the arguments to start MATLAB with, for engines started after the
+	 * call.
+	 * @param matlabArgs The arguments, separated by spaces.
+	 */
+	public synchronized void setMatlabArgs(String matlabArgs) {
+		this.matlabArgs = matlabArgs;
+	}
+
+	public synchronized String getMatlabArgs() {
+		return matlabArgs;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the number of engines running or starting.
+	 */
+	public synchronized int getNumEngines() {
+		return numEngines;
+	}
+
+	/**
+	 * @return the number of engines idle in the pool.
+	 */
+	public synchronized int getNumIdle() {
+		return idle.size();
+	}
+
+	/**
+	 * @return the number of engines discarded because they crashed or were
+	 * killed.
+	 */
+	public synchronized int getNumReplaced() {
+		return numReplaced;
+	}
+}
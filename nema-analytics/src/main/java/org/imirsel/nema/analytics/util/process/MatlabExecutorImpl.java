@@ -12,9 +12,9 @@ public class MatlabExecutorImpl extends ProcessExecutorImpl {
 	protected File matlabBin = new File("/opt/matlab2010/bin/matlab");
 	protected String functionName;
 	protected boolean isRunning = false;
-	protected Process process;
-	protected ProcessOutputReceiver procOutputReceiverThread = null;
 	protected String commandFormattingStr = "('$1','$o')";
+	protected MatlabEnginePool enginePool = null;
+	protected volatile MatlabEngine engine = null;
 	 
 	/**
 	 * Sets up the ProcessExecutor, with a specified output path. Note that this file
@@ -38,7 +38,6 @@ public class MatlabExecutorImpl extends ProcessExecutorImpl {
 		this.commandFormattingStr = commandFormattingStr;
 		this.functionName = functionName;
 		this.isRunning = false;
-		this.procOutputReceiverThread = null;
 		this.process = null;
 	}
 	
@@ -66,7 +65,6 @@ public class MatlabExecutorImpl extends ProcessExecutorImpl {
 		this.commandFormattingStr = commandFormattingStr;
 		this.outpath = null;
 		this.isRunning = false;
-		this.procOutputReceiverThread = null;
 		this.process = null;
 	}
 
@@ -74,6 +72,10 @@ public class MatlabExecutorImpl extends ProcessExecutorImpl {
 	 * @see org.imirsel.nema.analytics.util.process.ProcessExecutorInterface#killProcess()
 	 */
 	public void killProcess(){
+		MatlabEngine running = engine;
+		if(running != null) {
+			running.kill();
+		}
 		if(process != null) {
             process.destroy();
         }
@@ -121,63 +123,25 @@ public class MatlabExecutorImpl extends ProcessExecutorImpl {
 //		}
 
 		// Create command
+		String command = buildCommand(input);
+		if (enginePool != null){
+			try{
+				return runInEngine(command, envp);
+			}finally{
+				isRunning = false;
+			}
+		}
+
         String[] argArray = matlabArgs.split(" ");
         int commandLength = argArray.length+3;
-        int commandArgsIdx = commandLength-1;
-        String[] components = commandFormattingStr.split("[$]");
-		
 		String[] cmdArray = new String[commandLength];
         cmdArray[0] = this.matlabBin.getPath();//.getAbsolutePath();
         for (int i = 0; i < argArray.length; i++) {
         	cmdArray[i + 1] = argArray[i];
         }
         cmdArray[argArray.length + 1] = "-r";
-        
-        cmdArray[commandArgsIdx] = functionName;
-        
-        for (int i = 0; i < components.length; i++) {
-			if (components[i].length() >= 1) {
-				char testSymbol = components[i].charAt(0);
-				if(Character.isDigit(testSymbol)){
-					// cmdArray[cmdCount] = "\"" + inputFilename1 + "\"";
-					int idx = Integer.parseInt(""+ testSymbol);
-					if (input[idx] instanceof File){
-						cmdArray[commandArgsIdx] += ((File)input[idx]).getCanonicalPath() + components[i].substring(1);
-					}else{
-						cmdArray[commandArgsIdx] += input[idx].toString() + components[i].substring(1);
-					}
-				}
-				else if(testSymbol == 'o'){
-					cmdArray[commandArgsIdx] = outpath.getCanonicalPath();
-					if (!components[i].substring(1).trim().equals("")) {
-						String[] comps = components[i].substring(1).trim()
-								.split(" ");
-						for (int j = 0; j < comps.length; j++) {
-							cmdArray[commandArgsIdx] += comps[j].trim();
-						}
-					}
-				}
-				else if(testSymbol == 's'){
-					cmdArray[commandArgsIdx] = scratchDir.getCanonicalPath();
-					if (!components[i].substring(1).trim().equals("")) {
-						String[] comps = components[i].substring(1).trim()
-								.split(" ");
-						for (int j = 0; j < comps.length; j++) {
-							cmdArray[commandArgsIdx] += comps[j].trim();
-						}
-					}
-				} else {
-					if (components[i].trim().equals("")) {
-
-					} else {
-						String[] comps = components[i].trim().split(" ");
-						for (int j = 0; j < comps.length; j++) {
-							cmdArray[commandArgsIdx] += comps[j].trim();
-						}
-					}
-				}
-			}
-		}
+        //exit once the command completes, with a non-zero status if it fails
+        cmdArray[commandLength - 1] = "try, " + command + "; catch nemaErr, disp(getReport(nemaErr)); exit(1); end; exit(0);";
 		
 		String msg = "Running command:    ";
 		for (int i=0;i<cmdArray.length;i++) {
@@ -209,27 +173,24 @@ public class MatlabExecutorImpl extends ProcessExecutorImpl {
 		pb.directory(processWorkingDir);
 		pb.redirectErrorStream(true);
 		InputStream is = null;
+		int exitStatus = -1;
+		boolean exited = false;
 		try{
 			process = pb.start();
 			is = process.getInputStream();
 			getLogger().info("*******************************************\n" +
 			"MATLAB STDOUT AND STDERR:");
 			
-			procOutputReceiverThread = new ProcessOutputReceiver( is, _logger );
-			procOutputReceiverThread.start();
-			int exitStatus;
+			startOutputCapture(is);
 			try {
 				exitStatus = process.waitFor();
-				getLogger().info("MATLAB EXIT STATUS: " + exitStatus + "\n" +
-				"*******************************************");
-				return exitStatus;
+				exited = true;
 			} catch (InterruptedException e) {
 				getLogger().log(Level.WARNING, "Interupted while waiting for process to exit", e);
 			}
 		}finally{
-			if(procOutputReceiverThread != null){
-				procOutputReceiverThread.kill();
-			}
+			//log the remaining output before the exit status
+			finishOutputCapture();
 			if(process != null){
 				process.getErrorStream().close();
 			}
@@ -238,10 +199,106 @@ public class MatlabExecutorImpl extends ProcessExecutorImpl {
 			}
 			isRunning = false;
 		}
-		return -1;
+		if(exited){
+			getLogger().info("MATLAB EXIT STATUS: " + exitStatus + "\n" +
+			"*******************************************");
+		}
+		return exitStatus;
 	}
 
 
+	/**
+	 * Formats the MATLAB command to run, a call to the function with the 
+	 * arguments given by the command formatting string.
+	 * 
+	 * @param input The input to the command.
+	 * @return the command.
+	 * @throws IOException Thrown if the path of a file can't be resolved.
+	 */
+	protected String buildCommand(final Object[] input) throws IOException {
+        String[] components = commandFormattingStr.split("[$]");
+        String command = functionName;
+        
+        for (int i = 0; i < components.length; i++) {
+			if (components[i].length() >= 1) {
+				char testSymbol = components[i].charAt(0);
+				if(Character.isDigit(testSymbol)){
+					int idx = Integer.parseInt(""+ testSymbol);
+					if (input[idx] instanceof File){
+						command += ((File)input[idx]).getCanonicalPath() + components[i].substring(1);
+					}else{
+						command += input[idx].toString() + components[i].substring(1);
+					}
+				}
+				else if(testSymbol == 'o'){
+					command = outpath.getCanonicalPath();
+					if (!components[i].substring(1).trim().equals("")) {
+						String[] comps = components[i].substring(1).trim()
+								.split(" ");
+						for (int j = 0; j < comps.length; j++) {
+							command += comps[j].trim();
+						}
+					}
+				}
+				else if(testSymbol == 's'){
+					command = scratchDir.getCanonicalPath();
+					if (!components[i].substring(1).trim().equals("")) {
+						String[] comps = components[i].substring(1).trim()
+								.split(" ");
+						for (int j = 0; j < comps.length; j++) {
+							command += comps[j].trim();
+						}
+					}
+				} else {
+					if (!components[i].trim().equals("")) {
+						String[] comps = components[i].trim().split(" ");
+						for (int j = 0; j < comps.length; j++) {
+							command += comps[j].trim();
+						}
+					}
+				}
+			}
+		}
+        return command;
+	}
+
+	/**
+	 * Runs the command in an engine borrowed from the engine pool, rather 
+	 * than a new MATLAB process.
+	 * 
+	 * @param command The command.
+	 * @param envp The environment variables to set or null.
+	 * @return 0 if the command succeeded, or the non-zero status returned by
+	 * the engine.
+	 * @throws IOException Thrown if an engine can't be started.
+	 */
+	protected int runInEngine(String command, String[] envp) throws IOException {
+		String msg = "Running command in MATLAB engine: " + command + "\n";
+		msg += "In directory:       " + processWorkingDir.getCanonicalPath() + "\n";
+		msg += "Sending results to: " + processResultsDir.getCanonicalPath() + "\n";
+		getLogger().info(msg);
+		
+		//no process of our own to monitor or kill
+		process = null;
+		MatlabEngine borrowed;
+		try {
+			borrowed = enginePool.borrow();
+		} catch (InterruptedException e) {
+			getLogger().log(Level.WARNING, "Interupted while waiting for a MATLAB engine", e);
+			return -1;
+		}
+		try{
+			engine = borrowed;
+			int exitStatus = borrowed.eval(processWorkingDir, command, envp);
+			getLogger().info("MATLAB EXIT STATUS: " + exitStatus + "\n" +
+			"*******************************************");
+			return exitStatus;
+		}finally{
+			engine = null;
+			enginePool.release(borrowed);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see org.imirsel.nema.analytics.util.process.ProcessExecutorInterface#isAborted()
 	 */
@@ -296,6 +353,25 @@ public class MatlabExecutorImpl extends ProcessExecutorImpl {
         this.matlabBin = bin;
     }
 
+    /**
+     * Sets a pool of MATLAB engines to run commands in, instead of starting
+     * a new MATLAB process for each command. The generated command must not
+     * call exit, which would kill the engine.
+     * @param pool the pool, or null to start a new process for each command.
+     * @since 0.4.1
+     **/
+    public void setEnginePool(MatlabEnginePool pool) {
+        this.enginePool = pool;
+    }
+
+    /**
+     * @return the pool of MATLAB engines used or null.
+     * @since 0.4.1
+     **/
+    public MatlabEnginePool getEnginePool() {
+        return enginePool;
+    }
+
 	@Override
 	public String getExecutableName() {
 		return getFunctionName();
@@ -1,8 +1,10 @@
 package org.imirsel.nema.analytics.util.process;
 
 import java.io.File;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.logging.Handler;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.StreamHandler;
 import org.imirsel.nema.analytics.logging.ProcessExecutorLogFormatter;
@@ -25,6 +27,14 @@ public abstract class ProcessExecutorImpl implements ProcessExecutorInterface{
 	protected int inputToExtend = -1;
 	protected String extension = ".result";
 	protected String envVar = "VAR_NAME1=VAR_VAL1\nVAR_NAME2=VAR_VAL2";
+	
+	/** Time to wait for the output of an exited process to be drained, in milliseconds. */
+	protected static final long OUTPUT_DRAIN_TIMEOUT = 5000;
+	/** The running (or last) process, read by other threads to monitor it. */
+	protected volatile Process process = null;
+	protected ProcessOutputCapture outputCapture = null;
+	protected File outputLogFile = null;
+	protected int outputBufferSize = ProcessOutputCapture.DEFAULT_BUFFER_SIZE;
 
 	public ProcessExecutorImpl() {
 	}
@@ -124,6 +134,80 @@ public abstract class ProcessExecutorImpl implements ProcessExecutorInterface{
 		getLogger().addHandler(handler);
 	}
 	
+	/**
+	 * Starts capturing the combined stdout and stderr of a process to the
+	 * Logger, the output ring buffer and the output log file (if set).
+	 * @param is The output stream of the process.
+	 * @return the capture, also available from {@link #getOutputCapture()}.
+	 */
+	protected ProcessOutputCapture startOutputCapture(InputStream is) {
+		outputCapture = new ProcessOutputCapture(is, getLogger(), outputBufferSize, outputLogFile, ProcessOutputCapture.DEFAULT_MAX_LOG_FILE_SIZE);
+		outputCapture.start();
+		return outputCapture;
+	}
+	
+	/**
+	 * Waits briefly for the remaining output of an exited process to be 
+	 * captured, then stops the capture.
+	 */
+	protected void finishOutputCapture() {
+		if (outputCapture == null){
+			return;
+		}
+		try {
+			if (!outputCapture.waitFor(OUTPUT_DRAIN_TIMEOUT)){
+				getLogger().warning("Process output was still open " + OUTPUT_DRAIN_TIMEOUT + "ms after it exited, it may have left child processes running");
+			}
+		} catch (InterruptedException e) {
+			getLogger().log(Level.WARNING, "Interupted while waiting for process output", e);
+			Thread.currentThread().interrupt();
+		}
+		outputCapture.kill();
+	}
+	
+	/**
+	 * @return the running process, or the last process run, or null if none
+	 * has been started.
+	 */
+	public Process getProcess() {
+		return process;
+	}
+	
+	/**
+	 * Returns the capture of the output of the last process started, which
+	 * holds its tail and read rate.
+	 * @return the output capture or null if no process has been started.
+	 */
+	public ProcessOutputCapture getOutputCapture() {
+		return outputCapture;
+	}
+	
+	/**
+	 * Sets a file to append the output of processes to. The file is rolled
+	 * when it exceeds {@link ProcessOutputCapture#DEFAULT_MAX_LOG_FILE_SIZE}.
+	 * @param outputLogFile the log file or null to only send output to the
+	 * Logger.
+	 */
+	public void setOutputLogFile(File outputLogFile) {
+		this.outputLogFile = outputLogFile;
+	}
+	
+	public File getOutputLogFile() {
+		return outputLogFile;
+	}
+	
+	/**
+	 * Sets the size of the ring buffer holding the tail of process output.
+	 * @param outputBufferSize the size in bytes.
+	 */
+	public void setOutputBufferSize(int outputBufferSize) {
+		this.outputBufferSize = outputBufferSize;
+	}
+	
+	public int getOutputBufferSize() {
+		return outputBufferSize;
+	}
+	
 	public abstract String getProcessType();
 	
 	public abstract String getExecutableName();
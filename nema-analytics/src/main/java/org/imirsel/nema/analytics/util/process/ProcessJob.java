@@ -0,0 +1,111 @@
+package org.imirsel.nema.analytics.util.process;
+
+/**
+ * A process to run on a {@link ProcessScheduler}: an executor, the input to
+ * pass to its <code>runCommand</code> method and the resources, time limit
+ * and number of retries allowed for it. Each job must have its own executor,
+ * as executors hold the state of the process they are running.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class ProcessJob {
+
+	private final String name;
+	private final ProcessExecutorInterface executor;
+	private final Object[] input;
+	private int cpuSlots = 1;
+	private long memoryBytes = 0;
+	private long timeoutMillis = 0;
+	private int maxRetries = 0;
+
+	/**
+	 * Constructor. The job uses a single CPU slot, no memory budget, has no
+	 * time limit and is not retried.
+	 * @param name A name for the job, used in log messages.
+	 * @param executor The executor to run the job with.
+	 * @param input The input to pass to the executor.
+	 */
+	public ProcessJob(String name, ProcessExecutorInterface executor, Object[] input) {
+		if (executor == null){
+			throw new IllegalArgumentException("No executor was supplied for job: " + name);
+		}
+		this.name = name;
+		this.executor = executor;
+		this.input = input;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public ProcessExecutorInterface getExecutor() {
+		return executor;
+	}
+
+	public Object[] getInput() {
+		return input;
+	}
+
+	/**
+	 * Sets the number of CPU slots the job occupies while running.
+	 * @param cpuSlots the number of slots, at least 1.
+	 */
+	public void setCpuSlots(int cpuSlots) {
+		if (cpuSlots < 1){
+			throw new IllegalArgumentException("A job must occupy at least one CPU slot, received: " + cpuSlots);
+		}
+		this.cpuSlots = cpuSlots;
+	}
+
+	public int getCpuSlots() {
+		return cpuSlots;
+	}
+
+	/**
+	 * Sets the amount of memory reserved from the scheduler's budget while
+	 * the job is running.
+	 * @param memoryBytes the memory in bytes.
+	 */
+	public void setMemoryBytes(long memoryBytes) {
+		if (memoryBytes < 0){
+			throw new IllegalArgumentException("The memory reserved for a job cannot be negative, received: " + memoryBytes);
+		}
+		this.memoryBytes = memoryBytes;
+	}
+
+	public long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	/**
+	 * Sets the time limit for each attempt at running the job, after which
+	 * the process is killed.
+	 * @param timeoutMillis the limit in milliseconds or 0 for no limit.
+	 */
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * Sets the number of times the job is re-run if it returns a non-zero
+	 * exit status, times out or fails to start.
+	 * @param maxRetries the number of retries.
+	 */
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,85 @@
+package org.imirsel.nema.analytics.util.process;
+
+/**
+ * The outcome of the last attempt at running a {@link ProcessJob} on a
+ * {@link ProcessScheduler}.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class ProcessJobResult {
+
+	private final ProcessJob job;
+	private final int exitStatus;
+	private final boolean timedOut;
+	private final int attempts;
+	private final long wallTimeMillis;
+	private final long cpuTimeMillis;
+
+	public ProcessJobResult(ProcessJob job, int exitStatus, boolean timedOut,
+			int attempts, long wallTimeMillis, long cpuTimeMillis) {
+		this.job = job;
+		this.exitStatus = exitStatus;
+		this.timedOut = timedOut;
+		this.attempts = attempts;
+		this.wallTimeMillis = wallTimeMillis;
+		this.cpuTimeMillis = cpuTimeMillis;
+	}
+
+	public ProcessJob getJob() {
+		return job;
+	}
+
+	/**
+	 * @return the exit status returned by the process, or -1 if it could not
+	 * be determined.
+	 */
+	public int getExitStatus() {
+		return exitStatus;
+	}
+
+	/**
+	 * @return a flag indicating whether the process was killed for exceeding
+	 * the job's time limit.
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * @return a flag indicating whether the process exited with status 0
+	 * within the time limit.
+	 */
+	public boolean isSuccessful() {
+		return exitStatus == 0 && !timedOut;
+	}
+
+	/**
+	 * @return the number of times the job was run, including retries.
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * @return the wall-clock time taken by the last attempt, in milliseconds.
+	 */
+	public long getWallTimeMillis() {
+		return wallTimeMillis;
+	}
+
+	/**
+	 * @return the user and system CPU time used by the process during the
+	 * last attempt, in milliseconds, as last sampled while it was running,
+	 * or -1 if the CPU time of processes can't be read on this platform.
+	 */
+	public long getCpuTimeMillis() {
+		return cpuTimeMillis;
+	}
+
+	@Override
+	public String toString() {
+		return job + ": exit status " + exitStatus + (timedOut ? " (timed out)" : "") + ", attempts " + attempts
+				+ ", wall time " + wallTimeMillis + "ms, CPU time " + cpuTimeMillis + "ms";
+	}
+}
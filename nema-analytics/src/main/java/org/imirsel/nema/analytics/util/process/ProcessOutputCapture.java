@@ -0,0 +1,385 @@
+package org.imirsel.nema.analytics.util.process;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Captures the console output of a child process. The output stream of the
+ * process is drained with blocking reads, on a thread borrowed from a cached
+ * pool shared by all captures, until the process closes it. The blocking
+ * read holds its thread for the whole life of the process, so N processes
+ * running at once still need N threads; the pool only saves creating a new
+ * thread for each process run after another has finished, and no thread
+ * spins while a process is quiet. Everything read is:
+ * <ul>
+ * <li>kept in a bounded ring buffer, from which the tail or last N lines of
+ * the output may be retrieved at any time,</li>
+ * <li>optionally appended to a rolling log file, which is moved to
+ * <code>&lt;name&gt;.1</code> when it exceeds a maximum size,</li>
+ * <li>sent to a Logger, one message per read of complete lines.</li>
+ * </ul>
+ * The number of bytes read and the read rate are also recorded.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class ProcessOutputCapture implements Runnable {
+
+	/** The default size of the ring buffer, in bytes. */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	/** The default maximum size of the log file before it is rolled, in bytes. */
+	public static final long DEFAULT_MAX_LOG_FILE_SIZE = 10 * 1024 * 1024;
+
+	/** The length, in bytes, beyond which output with no newline is logged as a line. */
+	public static final int MAX_LINE_LENGTH = 64 * 1024;
+
+	private static final int READ_SIZE = 8192;
+	private static final AtomicInteger threadNumber = new AtomicInteger(1);
+	private static ExecutorService pool = null;
+
+	private final InputStream is;
+	private final Logger logger;
+	private final Charset charset = Charset.defaultCharset();
+
+	private final byte[] ring;
+	private int ringPos = 0;
+	private long totalBytes = 0;
+	private long startTime = -1;
+	private long endTime = -1;
+
+	private final File logFile;
+	private final long maxLogFileSize;
+	private OutputStream logOut = null;
+	private long logFileSize = 0;
+
+	private byte[] partialLine = new byte[256];
+	private int partialLength = 0;
+
+	private volatile boolean killed = false;
+	private final CountDownLatch finished = new CountDownLatch(1);
+
+	/**
+	 * Constructor, capturing output to a ring buffer of the default size and
+	 * the Logger only.
+	 * @param is The output stream of the child process.
+	 * @param logger The logger to use to report console output from the
+	 * process being monitored.
+	 */
+	public ProcessOutputCapture(InputStream is, Logger logger) {
+		this(is, logger, DEFAULT_BUFFER_SIZE, null, DEFAULT_MAX_LOG_FILE_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 * @param is The output stream of the child process.
+	 * @param logger The logger to use to report console output from the
+	 * process being monitored, may be null.
+	 * @param bufferSize The size of the ring buffer, in bytes.
+	 * @param logFile The file to append the output to or null.
+	 * @param maxLogFileSize The size, in bytes, beyond which the log file is
+	 * rolled.
+	 */
+	public ProcessOutputCapture(InputStream is, Logger logger, int bufferSize, File logFile, long maxLogFileSize) {
+		if (bufferSize <= 0){
+			throw new IllegalArgumentException("The output buffer size must be positive, received: " + bufferSize);
+		}
+		this.is = is;
+		//this should be the only class where we pass loggers around. Elsewhere the logger
+		//from the specific class should be used instead.
+		this.logger = logger;
+		this.ring = new byte[bufferSize];
+		this.logFile = logFile;
+		this.maxLogFileSize = maxLogFileSize;
+	}
+
+	private static synchronized ExecutorService getPool(){
+		if (pool == null){
+			pool = Executors.newCachedThreadPool(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "nema-process-output-" + threadNumber.getAndIncrement());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return pool;
+	}
+
+	/**
+	 * Starts draining the output of the process on the shared pool.
+	 */
+	public void start() {
+		getPool().execute(this);
+	}
+
+	/**
+	 * Waits for the process to close its output and for all of it to be
+	 * captured. Returns immediately if the capture has been killed.
+	 * @param timeoutMillis The maximum time to wait, in milliseconds.
+	 * @return true if the output was completely captured, false if the wait
+	 * timed out.
+	 * @throws InterruptedException Thrown if interrupted while waiting.
+	 */
+	public boolean waitFor(long timeoutMillis) throws InterruptedException {
+		if (killed){
+			return isFinished();
+		}
+		return finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops capturing output, closing the stream to interrupt any read in
+	 * progress. Output not yet read is lost.
+	 */
+	public void kill() {
+		killed = true;
+		try {
+			is.close();
+		} catch (IOException e) {
+			//only closing to unblock the reader
+		}
+	}
+
+	/**
+	 * Reads the output of the process until it is closed or the capture is
+	 * killed.
+	 */
+	public void run() {
+		synchronized (this) {
+			startTime = System.currentTimeMillis();
+		}
+		byte[] buffer = new byte[READ_SIZE];
+		try {
+			if (logFile != null){
+				logFileSize = logFile.exists() ? logFile.length() : 0;
+				logOut = new FileOutputStream(logFile, true);
+			}
+			int numRead;
+			while (!killed && (numRead = is.read(buffer)) != -1){
+				capture(buffer, numRead);
+			}
+		} catch (IOException e) {
+			if (!killed){
+				log(Level.WARNING, "IOException receiving data from child process", e);
+			}
+		} finally {
+			flushLines();
+			synchronized (this) {
+				endTime = System.currentTimeMillis();
+			}
+			if (logOut != null){
+				try {
+					logOut.close();
+				} catch (IOException e) {
+					log(Level.WARNING, "Failed to close process log file: " + logFile.getAbsolutePath(), e);
+				}
+			}
+			try {
+				is.close();
+			} catch (IOException e) {
+				//already finished with the stream
+			}
+			finished.countDown();
+		}
+	}
+
+	private void capture(byte[] buffer, int length) throws IOException {
+		synchronized (this) {
+			int offset = 0;
+			if (length > ring.length){
+				offset = length - ring.length;
+			}
+			while (offset < length){
+				int count = Math.min(length - offset, ring.length - ringPos);
+				System.arraycopy(buffer, offset, ring, ringPos, count);
+				ringPos = (ringPos + count) % ring.length;
+				offset += count;
+			}
+			totalBytes += length;
+		}
+		if (logOut != null){
+			writeLog(buffer, length);
+		}
+		logLines(buffer, length);
+	}
+
+	private void writeLog(byte[] buffer, int length) throws IOException {
+		if (logFileSize > 0 && logFileSize + length > maxLogFileSize){
+			logOut.close();
+			File rolled = new File(logFile.getPath() + ".1");
+			if ((rolled.exists() && !rolled.delete()) || !logFile.renameTo(rolled)){
+				log(Level.WARNING, "Failed to roll process log file: " + logFile.getAbsolutePath(), null);
+			}
+			logOut = new FileOutputStream(logFile, true);
+			logFileSize = logFile.length();
+		}
+		logOut.write(buffer, 0, length);
+		logFileSize += length;
+	}
+
+	/**
+	 * Sends the complete lines read to the logger as a single message,
+	 * keeping any incomplete line for the next read.
+	 */
+	private void logLines(byte[] buffer, int length) {
+		int lastNewline = -1;
+		for (int i = length - 1; i >= 0; i--){
+			if (buffer[i] == '\n'){
+				lastNewline = i;
+				break;
+			}
+		}
+		if (lastNewline == -1){
+			appendPartial(buffer, 0, length);
+			return;
+		}
+		if (logger != null){
+			StringBuilder lines = new StringBuilder(partialLength + lastNewline);
+			if (partialLength > 0){
+				lines.append(new String(partialLine, 0, partialLength, charset));
+			}
+			lines.append(new String(buffer, 0, lastNewline, charset));
+			logger.info(stripCarriageReturns(lines));
+		}
+		partialLength = 0;
+		appendPartial(buffer, lastNewline + 1, length - lastNewline - 1);
+	}
+
+	private void appendPartial(byte[] buffer, int offset, int length) {
+		while (length > 0){
+			int count = Math.min(length, MAX_LINE_LENGTH - partialLength);
+			if (partialLength + count > partialLine.length){
+				byte[] grown = new byte[Math.min(MAX_LINE_LENGTH, Math.max(partialLine.length * 2, partialLength + count))];
+				System.arraycopy(partialLine, 0, grown, 0, partialLength);
+				partialLine = grown;
+			}
+			System.arraycopy(buffer, offset, partialLine, partialLength, count);
+			partialLength += count;
+			offset += count;
+			length -= count;
+			//output with no newlines is logged in pieces rather than held indefinitely
+			if (partialLength == MAX_LINE_LENGTH){
+				flushLines();
+			}
+		}
+	}
+
+	private void flushLines() {
+		if (partialLength > 0 && logger != null){
+			logger.info(stripCarriageReturns(new StringBuilder(new String(partialLine, 0, partialLength, charset))));
+		}
+		partialLength = 0;
+	}
+
+	private static String stripCarriageReturns(StringBuilder lines) {
+		int out = 0;
+		for (int i = 0; i < lines.length(); i++){
+			char c = lines.charAt(i);
+			if (c != '\r'){
+				lines.setCharAt(out++, c);
+			}
+		}
+		lines.setLength(out);
+		return lines.toString();
+	}
+
+	private void log(Level level, String msg, Throwable t) {
+		if (logger != null){
+			logger.log(level, msg, t);
+		}
+	}
+
+	/**
+	 * Returns the most recent output held in the ring buffer. If more output
+	 * than the buffer holds has been read the partial first line is dropped.
+	 * @return the tail of the output.
+	 */
+	public synchronized String getTail() {
+		int size = (int)Math.min(totalBytes, ring.length);
+		byte[] tail = new byte[size];
+		int start = (ringPos - size + ring.length) % ring.length;
+		int first = Math.min(size, ring.length - start);
+		System.arraycopy(ring, start, tail, 0, first);
+		System.arraycopy(ring, 0, tail, first, size - first);
+		int offset = 0;
+		if (totalBytes > ring.length){
+			while (offset < size && tail[offset] != '\n'){
+				offset++;
+			}
+			offset = Math.min(offset + 1, size);
+		}
+		return new String(tail, offset, size - offset, charset);
+	}
+
+	/**
+	 * Returns up to the last N lines of output held in the ring buffer.
+	 * @param n The maximum number of lines to return.
+	 * @return the lines, oldest first.
+	 * @throws IllegalArgumentException if n is negative.
+	 */
+	public List<String> getLastLines(int n) {
+		if (n < 0){
+			throw new IllegalArgumentException("The number of lines must not be negative, received: " + n);
+		}
+		String[] lines = getTail().split("\r?\n", -1);
+		int end = lines.length;
+		//drop the empty string after a trailing newline
+		if (end > 0 && lines[end - 1].length() == 0){
+			end--;
+		}
+		List<String> out = new ArrayList<String>(Math.min(n, end));
+		for (int i = Math.max(0, end - n); i < end; i++){
+			out.add(lines[i]);
+		}
+		return out;
+	}
+
+	/**
+	 * @return the total number of bytes of output read.
+	 */
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * @return the average rate at which output has been read, in bytes per
+	 * second, from the start of the capture until now or until the process
+	 * closed its output.
+	 */
+	public synchronized double getBytesPerSecond() {
+		if (startTime == -1){
+			return 0.0;
+		}
+		long end = endTime == -1 ? System.currentTimeMillis() : endTime;
+		return totalBytes * 1000.0 / Math.max(1, end - startTime);
+	}
+
+	/**
+	 * @return a flag indicating whether the process has closed its output
+	 * (or the capture was killed) and all output was captured.
+	 */
+	public boolean isFinished() {
+		return finished.getCount() == 0;
+	}
+
+	/**
+	 * @return the file output is logged to or null.
+	 */
+	public File getLogFile() {
+		return logFile;
+	}
+}
@@ -0,0 +1,506 @@
+package org.imirsel.nema.analytics.util.process;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs many {@link ProcessJob}s concurrently within a budget of CPU slots and
+ * memory. Jobs are started in the order they are submitted, as soon as the
+ * slots and memory they reserve are free, and run on their own thread (as
+ * <code>runCommand</code> blocks until the process exits). A job that
+ * exceeds its time limit has its process killed and jobs that fail are
+ * re-run up to their retry limit. Each submission returns a Future holding
+ * the exit status, wall-clock time and CPU time of the job; cancelling a
+ * running job kills its process and stops any further attempts.
+ *
+ * Time limits are enforced by polling each attempt every
+ * {@link #CPU_SAMPLE_INTERVAL} milliseconds, so a process may run for up to
+ * that long after its limit expires.
+ *
+ * The CPU time of a process is sampled from <code>/proc</code> while it runs
+ * and so is only available on Linux and may miss up to
+ * {@link #CPU_SAMPLE_INTERVAL} milliseconds at the end of the process.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class ProcessScheduler {
+
+	/** Interval at which running processes are polled to sample their CPU time and enforce time limits, in milliseconds. */
+	public static final long CPU_SAMPLE_INTERVAL = 100;
+	/** Clock ticks per second used by <code>/proc/[pid]/stat</code> on Linux. */
+	private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+	private static final AtomicInteger poolNumber = new AtomicInteger(1);
+
+	private final int cpuSlots;
+	private final long memoryBudget;
+	private int slotsInUse = 0;
+	private long memoryInUse = 0;
+	private final LinkedList<ScheduledJob> queue = new LinkedList<ScheduledJob>();
+	private final Set<JobRunner> active = new HashSet<JobRunner>();
+	private boolean shutdown = false;
+	private boolean stopped = false;
+
+	private final ExecutorService runners;
+	private final ScheduledExecutorService monitor;
+	private Logger _logger;
+
+	/**
+	 * Constructor, using one CPU slot per available processor and no memory
+	 * budget.
+	 */
+	public ProcessScheduler() {
+		this(Runtime.getRuntime().availableProcessors(), Long.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor.
+	 * @param cpuSlots The number of CPU slots that may be in use at once.
+	 * @param memoryBudget The amount of memory (in bytes) that may be
+	 * reserved by running jobs at once.
+	 */
+	public ProcessScheduler(int cpuSlots, long memoryBudget) {
+		if (cpuSlots < 1){
+			throw new IllegalArgumentException("A scheduler requires at least one CPU slot, received: " + cpuSlots);
+		}
+		this.cpuSlots = cpuSlots;
+		this.memoryBudget = memoryBudget;
+		int pool = poolNumber.getAndIncrement();
+		this.runners = Executors.newCachedThreadPool(new SchedulerThreadFactory("nema-process-" + pool + "-"));
+		this.monitor = Executors.newSingleThreadScheduledExecutor(new SchedulerThreadFactory("nema-process-monitor-" + pool + "-"));
+	}
+
+	public Logger getLogger() {
+		if (_logger == null){
+			_logger = Logger.getLogger(this.getClass().getName());
+		}
+		return _logger;
+	}
+
+	/**
+	 * Queues a job to be run once the resources it requires are free.
+	 * @param job The job.
+	 * @return a Future holding the result of the job's last attempt.
+	 * @throws IllegalArgumentException Thrown if the job requires more CPU
+	 * slots or memory than the scheduler has, or the scheduler has been shut
+	 * down.
+	 */
+	public synchronized Future<ProcessJobResult> submit(ProcessJob job) throws IllegalArgumentException{
+		if (shutdown){
+			throw new IllegalArgumentException("The scheduler has been shut down, job " + job + " was rejected");
+		}
+		if (job.getCpuSlots() > cpuSlots || job.getMemoryBytes() > memoryBudget){
+			throw new IllegalArgumentException("Job " + job + " requires " + job.getCpuSlots() + " CPU slots and "
+					+ job.getMemoryBytes() + " bytes of memory, but the scheduler only has " + cpuSlots
+					+ " slots and " + memoryBudget + " bytes");
+		}
+		ScheduledJob scheduled = new ScheduledJob(new JobRunner(job));
+		queue.add(scheduled);
+		dispatch();
+		return scheduled;
+	}
+
+	/**
+	 * Queues a collection of jobs, such as every fold of every submission.
+	 * @param jobs The jobs.
+	 * @return a Future for each job, in the order of the collection.
+	 * @throws IllegalArgumentException Thrown if any job can't be run by the
+	 * scheduler, in which case none are queued.
+	 */
+	public synchronized List<Future<ProcessJobResult>> submitAll(Collection<ProcessJob> jobs) throws IllegalArgumentException{
+		for (Iterator<ProcessJob> it = jobs.iterator(); it.hasNext();) {
+			ProcessJob job = it.next();
+			if (job.getCpuSlots() > cpuSlots || job.getMemoryBytes() > memoryBudget){
+				throw new IllegalArgumentException("Job " + job + " requires more CPU slots or memory than the scheduler has");
+			}
+		}
+		List<Future<ProcessJobResult>> futures = new ArrayList<Future<ProcessJobResult>>(jobs.size());
+		for (Iterator<ProcessJob> it = jobs.iterator(); it.hasNext();) {
+			futures.add(submit(it.next()));
+		}
+		return futures;
+	}
+
+	/**
+	 * Starts queued jobs, in order, while the resources they require are
+	 * free.
+	 */
+	private synchronized void dispatch() {
+		while (!queue.isEmpty()){
+			ScheduledJob next = queue.getFirst();
+			if (next.isDone()){
+				queue.removeFirst();
+				continue;
+			}
+			ProcessJob job = next.runner.job;
+			if (slotsInUse + job.getCpuSlots() > cpuSlots || memoryInUse + job.getMemoryBytes() > memoryBudget){
+				return;
+			}
+			queue.removeFirst();
+			slotsInUse += job.getCpuSlots();
+			memoryInUse += job.getMemoryBytes();
+			next.runner.reserved.set(true);
+			active.add(next.runner);
+			runners.execute(next);
+		}
+	}
+
+	private synchronized void release(JobRunner runner) {
+		if (runner.reserved.compareAndSet(true, false)){
+			slotsInUse -= runner.job.getCpuSlots();
+			memoryInUse -= runner.job.getMemoryBytes();
+			active.remove(runner);
+			if (!stopped){
+				dispatch();
+			}
+			terminateIfIdle();
+		}
+	}
+
+	/**
+	 * Shuts down the runner threads and the monitor once the scheduler has
+	 * been shut down and no job is queued or running, as the monitor is
+	 * required to enforce the time limits of the jobs still to complete.
+	 */
+	private synchronized void terminateIfIdle() {
+		if (shutdown && queue.isEmpty() && active.isEmpty()){
+			runners.shutdown();
+			monitor.shutdown();
+		}
+	}
+
+	private synchronized boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * Stops accepting jobs. Queued and running jobs are completed.
+	 */
+	public synchronized void shutdown() {
+		shutdown = true;
+		terminateIfIdle();
+	}
+
+	/**
+	 * Stops accepting jobs, cancels all queued jobs and kills the processes
+	 * of all running jobs, which are not retried.
+	 * @return the number of queued jobs cancelled.
+	 */
+	public int shutdownNow() {
+		List<ScheduledJob> queued;
+		List<JobRunner> running;
+		synchronized (this) {
+			shutdown = true;
+			stopped = true;
+			queued = new ArrayList<ScheduledJob>(queue);
+			queue.clear();
+			running = new ArrayList<JobRunner>(active);
+			for (Iterator<JobRunner> it = running.iterator(); it.hasNext();) {
+				it.next().cancelled = true;
+			}
+		}
+		for (Iterator<ScheduledJob> it = queued.iterator(); it.hasNext();) {
+			it.next().cancel(false);
+		}
+		for (Iterator<JobRunner> it = running.iterator(); it.hasNext();) {
+			JobRunner runner = it.next();
+			if (runner.isStarted()){
+				runner.job.getExecutor().killProcess();
+			}
+		}
+		terminateIfIdle();
+		return queued.size();
+	}
+	/**
+	 * Waits for all jobs to complete after a shutdown.
+	 * @param timeout The maximum time to wait.
+	 * @param unit The unit of the timeout.
+	 * @return true if all jobs completed, false if the wait timed out.
+	 * @throws InterruptedException Thrown if interrupted while waiting.
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return runners.awaitTermination(timeout, unit);
+	}
+
+	public int getCpuSlots() {
+		return cpuSlots;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public synchronized int getSlotsInUse() {
+		return slotsInUse;
+	}
+
+	public synchronized long getMemoryInUse() {
+		return memoryInUse;
+	}
+
+	public synchronized int getNumQueued() {
+		return queue.size();
+	}
+
+	/**
+	 * Future for a job, which kills the job's process if cancelled while it
+	 * is running.
+	 */
+	private class ScheduledJob extends FutureTask<ProcessJobResult> {
+		private final JobRunner runner;
+
+		ScheduledJob(JobRunner runner) {
+			super(runner);
+			this.runner = runner;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			//stop any further attempts before done() or the runner can see the cancellation
+			runner.cancelled = true;
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled && runner.isStarted()){
+				runner.job.getExecutor().killProcess();
+			}
+			return cancelled;
+		}
+
+		@Override
+		protected void done() {
+			//a job cancelled before it started, otherwise the runner releases it
+			if (runner.state.compareAndSet(JobRunner.NEW, JobRunner.CANCELLED)){
+				release(runner);
+			}
+		}
+	}
+
+	/**
+	 * Runs the attempts at a job, monitoring the time limit and CPU time of
+	 * each.
+	 */
+	private class JobRunner implements Callable<ProcessJobResult> {
+		static final int NEW = 0;
+		static final int RUNNING = 1;
+		static final int CANCELLED = 2;
+
+		private final ProcessJob job;
+		private final AtomicBoolean reserved = new AtomicBoolean(false);
+		/** Whichever of call() or done() moves this out of NEW frees the reservation. */
+		private final AtomicInteger state = new AtomicInteger(NEW);
+		private volatile boolean cancelled = false;
+		private volatile boolean timedOut;
+		private volatile long cpuTime;
+
+		JobRunner(ProcessJob job) {
+			this.job = job;
+		}
+
+		boolean isStarted() {
+			return state.get() == RUNNING;
+		}
+
+		public ProcessJobResult call() throws IOException {
+			if (!state.compareAndSet(NEW, RUNNING)){
+				//cancelled before it started, done() has released it
+				return new ProcessJobResult(job, -1, false, 0, 0, -1);
+			}
+			try {
+				ProcessJobResult result = null;
+				int attempt = 0;
+				//a killed process clears the interrupt of this thread, so check the flags before every attempt
+				while (!cancelled && !isStopped()){
+					attempt++;
+					result = runAttempt(attempt);
+					if (result.isSuccessful() || attempt > job.getMaxRetries()){
+						break;
+					}
+					getLogger().warning("Retrying job " + job + " after attempt " + attempt + " failed, " + result);
+				}
+				if (result == null){
+					//cancelled before the first attempt
+					result = new ProcessJobResult(job, -1, false, 0, 0, -1);
+				}
+				getLogger().info("Completed " + result);
+				return result;
+			} finally {
+				release(this);
+			}
+		}
+
+		private ProcessJobResult runAttempt(int attempt) throws IOException {
+			ProcessExecutorInterface executor = job.getExecutor();
+			timedOut = false;
+			cpuTime = -1;
+			long start = System.currentTimeMillis();
+			AttemptMonitor attemptMonitor = new AttemptMonitor(executor, start);
+			ScheduledFuture<?> watcher = monitor.scheduleAtFixedRate(attemptMonitor, CPU_SAMPLE_INTERVAL, 
+					CPU_SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+			int exitStatus = -1;
+			try {
+				exitStatus = executor.runCommand(job.getInput());
+			} catch (IOException e) {
+				if (attempt > job.getMaxRetries()){
+					throw e;
+				}
+				getLogger().log(Level.WARNING, "IOException running job " + job, e);
+			} finally {
+				attemptMonitor.finished = true;
+				watcher.cancel(false);
+			}
+			long wallTime = System.currentTimeMillis() - start;
+			return new ProcessJobResult(job, exitStatus, timedOut, attempt, wallTime, cpuTime);
+		}
+
+		/**
+		 * Polls an attempt while it runs, enforcing the time limit, killing
+		 * the process if the job is cancelled and sampling its CPU time. Once
+		 * the time limit has expired or the job is cancelled the kill is
+		 * repeated on each poll until the attempt ends, so that a process
+		 * still being launched at the time (which can't yet be killed) is
+		 * killed as soon as the executor has started it.
+		 */
+		private class AttemptMonitor implements Runnable {
+			private final ProcessExecutorInterface executor;
+			private final long start;
+			private final Process previous;
+			private volatile boolean finished = false;
+
+			AttemptMonitor(ProcessExecutorInterface executor, long start) {
+				this.executor = executor;
+				this.start = start;
+				//ignore the process left over from a previous run
+				this.previous = executor instanceof ProcessExecutorImpl ? ((ProcessExecutorImpl)executor).getProcess() : null;
+			}
+
+			public void run() {
+				if (finished){
+					return;
+				}
+				if (!timedOut && job.getTimeoutMillis() > 0 && System.currentTimeMillis() - start >= job.getTimeoutMillis()){
+					getLogger().warning("Job " + job + " exceeded its time limit of " + job.getTimeoutMillis() + "ms, killing it");
+					timedOut = true;
+				}
+				if (timedOut || cancelled){
+					executor.killProcess();
+				}
+				if (executor instanceof ProcessExecutorImpl){
+					Process process = ((ProcessExecutorImpl)executor).getProcess();
+					if (process != null && process != previous){
+						long sample = readCpuTimeMillis(process);
+						if (sample != -1){
+							cpuTime = sample;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static Method pidMethod = null;
+	private static boolean pidMethodChecked = false;
+
+	/**
+	 * Returns the user and system CPU time used so far by a running process
+	 * and its reaped children on Linux.
+	 * @param process The process.
+	 * @return the CPU time in milliseconds or -1 if it can't be read.
+	 */
+	static long readCpuTimeMillis(Process process) {
+		long pid = getPid(process);
+		if (pid == -1){
+			return -1;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(new File("/proc/" + pid + "/stat")));
+			String stat = reader.readLine();
+			//the command name may contain spaces, the fields after it don't
+			String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+			//utime, stime, cutime and cstime, so that shell-wrapped jobs count their children
+			long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12])
+					+ Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+			return ticks * 1000 / CLOCK_TICKS_PER_SECOND;
+		} catch (Exception e) {
+			return -1;
+		} finally {
+			if (reader != null){
+				try {
+					reader.close();
+				} catch (IOException e) {
+					//nothing to do
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the process ID, using Process.pid() where available and the
+	 * pid field of the UNIX implementation of Process otherwise.
+	 */
+	private static long getPid(Process process) {
+		synchronized (ProcessScheduler.class) {
+			if (!pidMethodChecked){
+				try {
+					pidMethod = Process.class.getMethod("pid");
+				} catch (NoSuchMethodException e) {
+					pidMethod = null;
+				}
+				pidMethodChecked = true;
+			}
+		}
+		try {
+			if (pidMethod != null){
+				return ((Number)pidMethod.invoke(process)).longValue();
+			}
+			Field field = process.getClass().getDeclaredField("pid");
+			field.setAccessible(true);
+			return field.getInt(process);
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Creates named daemon threads, so that an abandoned scheduler doesn't
+	 * keep the VM alive.
+	 */
+	private static class SchedulerThreadFactory implements ThreadFactory {
+		private final String prefix;
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		SchedulerThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, prefix + threadNumber.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.imirsel.nema.analytics.evaluation.beat.BeatTrackingMetrics;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.fileTypes.BeatTextFile;
+import org.junit.Test;
+
+public class BeatTrackingMetricsTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void testIdenticalBeatsScorePerfectly() {
+		double[][] beats = regularBeats(0.5);
+		double[] metrics = BeatTrackingMetrics.evaluate(beats, beats);
+
+		//every accuracy is 100%
+		for (int i = 0; i < 8; i++) {
+			assertEquals(100.0, metrics[i], DELTA);
+		}
+		//all of the beat errors fall into a single bin
+		assertEquals(BeatTrackingMetrics.NUM_METRICS + BeatTrackingMetrics.NUM_BINS, metrics.length);
+		assertEquals(beats.length - 10, metrics[BeatTrackingMetrics.NUM_METRICS + BeatTrackingMetrics.NUM_BINS / 2], DELTA);
+	}
+
+	@Test
+	public void testHalfTempoOnlyScoresAtAllowedMetricalLevels() {
+		double[] metrics = BeatTrackingMetrics.evaluate(regularBeats(0.5), regularBeats(1.0));
+
+		//CMLc and CMLt fail, AMLc and AMLt allow half tempo
+		assertEquals(0.0, metrics[4], DELTA);
+		assertEquals(0.0, metrics[5], DELTA);
+		assertEquals(100.0, metrics[6], DELTA);
+		assertEquals(100.0, metrics[7], DELTA);
+	}
+
+	@Test
+	public void testMatchesMatlabScripts() throws Exception {
+		//expected values from a direct transcription of be_mirexWrapper.m
+		BeatTextFile reader = new BeatTextFile();
+		double[][] gt = reader.readFile(new File("src/test/resources/beat/groundtruth/test1.txt")).get2dDoubleArrayMetadata(NemaDataConstants.BEAT_TRACKING_DATA);
+		double[][] result = reader.readFile(new File("src/test/resources/beat/results/gp1/test1.wav.out")).get2dDoubleArrayMetadata(NemaDataConstants.BEAT_TRACKING_DATA);
+		double[] expected = {67.96135909393738, 50.422609717558664, 57.5, 76.57101484155046, 59.806785195936136,
+				61.63370827285921, 94.57228116710874, 96.48541114058355, 2.4562425647375683};
+		double[] metrics = BeatTrackingMetrics.evaluate(gt, result);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], metrics[i], DELTA);
+		}
+	}
+
+	@Test
+	public void testFMeasureSweepMatchesStandardWindow() throws Exception {
+		BeatTextFile reader = new BeatTextFile();
+		double[][] gt = reader.readFile(new File("src/test/resources/beat/groundtruth/test1.txt")).get2dDoubleArrayMetadata(NemaDataConstants.BEAT_TRACKING_DATA);
+		double[][] result = reader.readFile(new File("src/test/resources/beat/results/gp1/test1.wav.out")).get2dDoubleArrayMetadata(NemaDataConstants.BEAT_TRACKING_DATA);
+		double[] sweep = BeatTrackingMetrics.fMeasureSweep(gt, result, new double[]{0.01, 0.07, 0.2});
+
+		assertEquals(BeatTrackingMetrics.evaluate(gt, result)[0], sweep[1], DELTA);
+		assertTrue(sweep[0] <= sweep[1]);
+		assertTrue(sweep[1] <= sweep[2]);
+	}
+
+	private static double[][] regularBeats(double period) {
+		int n = (int)(30.0 / period);
+		double[][] beats = new double[n][1];
+		for (int i = 0; i < n; i++) {
+			beats[i][0] = i * period;
+		}
+		return beats;
+	}
+}
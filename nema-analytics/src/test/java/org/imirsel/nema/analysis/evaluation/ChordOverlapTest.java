@@ -0,0 +1,110 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.imirsel.nema.analytics.evaluation.chord.ChordEvaluator;
+import org.imirsel.nema.analytics.evaluation.chord.ChordEvaluatorFull;
+import org.imirsel.nema.model.NemaChord;
+import org.junit.Test;
+
+public class ChordOverlapTest {
+
+	private static final int GRID_RESOLUTION = 1000;
+
+	private static final int[][] CHORDS = {
+		{24}, {0, 4, 7}, {0, 3, 7}, {2, 5, 9}, {0, 3, 6}, {0, 4, 8}, {7, 11, 2, 5}, {9, 0, 4}
+	};
+
+	@Test
+	public void testMatchesLegacyGrid() {
+		Random rand = new Random(11);
+		ChordEvaluator[] evaluators = {new GridChordEvaluator(), new GridChordEvaluatorFull()};
+		for (ChordEvaluator eval : evaluators) {
+			for (int i = 0; i < 500; i++) {
+				List<NemaChord> gt = randomChords(rand, rand.nextBoolean());
+				List<NemaChord> sys = randomChords(rand, rand.nextBoolean());
+				int lnGT = (int)(GRID_RESOLUTION * gt.get(gt.size() - 1).getOffset());
+				int lnSys = (int)(Math.ceil(GRID_RESOLUTION * sys.get(sys.size() - 1).getOffset()));
+				//earlier chords must not run past the end of the grid
+				if (maxOffset(gt) > lnGT || maxOffset(sys) > lnSys || lnGT == 0 || lnSys == 0) {
+					continue;
+				}
+				assertEquals(((GridScorer)eval).legacyOverlap(gt, lnGT, sys, lnSys), eval.overlapFrames(gt, lnGT, sys, lnSys));
+			}
+		}
+	}
+
+	private static List<NemaChord> randomChords(Random rand, boolean overlapping) {
+		List<NemaChord> chords = new ArrayList<NemaChord>();
+		int num = 1 + rand.nextInt(30);
+		double time = rand.nextDouble();
+		for (int i = 0; i < num; i++) {
+			double onset = time;
+			double offset = onset + rand.nextInt(3000) / 1000.0 + rand.nextDouble() * 0.001;
+			if (overlapping && rand.nextInt(3) == 0) {
+				//paint over the previous chord, or leave a gap
+				onset = Math.max(0.0, onset - rand.nextDouble());
+			} else if (rand.nextInt(4) == 0) {
+				onset += rand.nextDouble();
+				offset += 1.0;
+			}
+			chords.add(new NemaChord(onset, offset, CHORDS[rand.nextInt(CHORDS.length)]));
+			time = offset;
+		}
+		return chords;
+	}
+
+	private static int maxOffset(List<NemaChord> chords) {
+		int max = 0;
+		for (NemaChord chord : chords) {
+			max = Math.max(max, (int)(chord.getOffset() * GRID_RESOLUTION));
+		}
+		return max;
+	}
+
+	private interface GridScorer {
+		long legacyOverlap(List<NemaChord> gtChords, int lnGT, List<NemaChord> systemChords, int lnSys);
+	}
+
+	private static class GridChordEvaluator extends ChordEvaluator implements GridScorer {
+		public long legacyOverlap(List<NemaChord> gtChords, int lnGT, List<NemaChord> systemChords, int lnSys) {
+			int[][] gridGT = grid(gtChords, lnGT);
+			int[][] gridSys = grid(systemChords, lnSys);
+			long total = 0;
+			for (int i = 0; i < Math.min(lnGT, lnSys); i++) {
+				total += calcOverlap(gridGT[i], gridSys[i]);
+			}
+			return total;
+		}
+	}
+
+	private static class GridChordEvaluatorFull extends ChordEvaluatorFull implements GridScorer {
+		public long legacyOverlap(List<NemaChord> gtChords, int lnGT, List<NemaChord> systemChords, int lnSys) {
+			int[][] gridGT = grid(gtChords, lnGT);
+			int[][] gridSys = grid(systemChords, lnSys);
+			long total = 0;
+			for (int i = 0; i < Math.min(lnGT, lnSys); i++) {
+				total += calcOverlap(gridGT[i], gridSys[i]);
+			}
+			return total;
+		}
+	}
+
+	/**
+	 * The frame grid ChordEvaluator filled for each track before it swept
+	 * chord intervals, later chords overwriting earlier ones.
+	 */
+	private static int[][] grid(List<NemaChord> chords, int length) {
+		int[][] grid = new int[length][];
+		for (NemaChord chord : chords) {
+			for (int j = (int)(chord.getOnset() * GRID_RESOLUTION); j < (int)(chord.getOffset() * GRID_RESOLUTION); j++) {
+				grid[j] = chord.getNotes();
+			}
+		}
+		return grid;
+	}
+}
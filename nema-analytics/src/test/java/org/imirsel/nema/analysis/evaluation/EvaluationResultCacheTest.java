@@ -0,0 +1,106 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.imirsel.nema.analytics.evaluation.EvaluationResultCache;
+import org.imirsel.nema.model.NemaData;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.NemaTrack;
+import org.imirsel.nema.model.NemaTrackList;
+import org.junit.Test;
+
+public class EvaluationResultCacheTest {
+
+	private static File newCacheDir() throws Exception {
+		File dir = File.createTempFile("evalCache", "");
+		dir.delete();
+		return dir;
+	}
+
+	private static String key(int i) {
+		List<NemaTrack> tracks = new ArrayList<NemaTrack>();
+		tracks.add(new NemaTrack("track1"));
+		NemaTrackList fold = new NemaTrackList(1, 1, 3, "test", 0, tracks);
+		return EvaluationResultCache.buildKey("SomeEvaluator", "", "job" + i, fold, "gt", "results" + i);
+	}
+
+	private static List<NemaData> trackData() {
+		List<NemaData> data = new ArrayList<NemaData>();
+		data.add(new NemaData("track1"));
+		return data;
+	}
+
+	private static void store(EvaluationResultCache cache, int i) throws Exception {
+		NemaData fold = new NemaData("job" + i);
+		fold.setMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY, i / 10.0);
+		NemaData track = new NemaData("track1");
+		track.setMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY, i / 20.0);
+		List<NemaData> tracks = new ArrayList<NemaData>();
+		tracks.add(track);
+		cache.put(key(i), fold, tracks);
+	}
+
+	@Test
+	public void testHitRestoresTrackMetadata() throws Exception {
+		EvaluationResultCache cache = new EvaluationResultCache(newCacheDir());
+		store(cache, 4);
+		List<NemaData> data = trackData();
+		NemaData fold = cache.get(key(4), data);
+		assertEquals("job4", fold.getId());
+		assertEquals(0.4, fold.getDoubleMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY), 0.0);
+		assertEquals(0.2, data.get(0).getDoubleMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY), 0.0);
+		assertNull(cache.get(key(5), trackData()));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		cache.clear();
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() throws Exception {
+		File dir = newCacheDir();
+		EvaluationResultCache cache = new EvaluationResultCache(dir, Long.MAX_VALUE, 3);
+		store(cache, 0);
+		store(cache, 1);
+		store(cache, 2);
+		//use entry 0 so that entry 1 is the least recently used
+		assertNotNull(cache.get(key(0), trackData()));
+		store(cache, 3);
+		assertEquals(3, cache.getNumEntries());
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.get(key(1), trackData()));
+		assertNotNull(cache.get(key(0), trackData()));
+
+		//the entries are indexed again when the cache is reopened
+		EvaluationResultCache reopened = new EvaluationResultCache(dir, cache.getTotalBytes(), 3);
+		assertEquals(3, reopened.getNumEntries());
+		assertNotNull(reopened.get(key(3), trackData()));
+		reopened.clear();
+	}
+
+	@Test
+	public void testCorruptEntryIsDiscarded() throws Exception {
+		File dir = newCacheDir();
+		EvaluationResultCache cache = new EvaluationResultCache(dir);
+		store(cache, 7);
+		File[] files = dir.listFiles();
+		assertEquals(1, files.length);
+		RandomAccessFile raf = new RandomAccessFile(files[0], "rw");
+		raf.seek(12);
+		int b = raf.read();
+		raf.seek(12);
+		raf.write(b ^ 0xFF);
+		raf.close();
+
+		List<NemaData> data = trackData();
+		assertNull(cache.get(key(7), data));
+		assertFalse(data.get(0).hasMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY));
+		assertEquals(1, cache.getFailures());
+		assertEquals(0, cache.getNumEntries());
+		assertFalse(files[0].exists());
+	}
+}
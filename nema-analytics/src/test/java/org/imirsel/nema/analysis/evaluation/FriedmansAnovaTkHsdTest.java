@@ -0,0 +1,75 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.imirsel.nema.analytics.evaluation.FriedmanResult;
+import org.imirsel.nema.analytics.evaluation.FriedmansAnovaTkHsd;
+import org.imirsel.nema.analytics.evaluation.resultpages.Table;
+import org.junit.Test;
+
+public class FriedmansAnovaTkHsdTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void testRanksWithTies() {
+		double[][] data = {{1,2,3},{2,3,1},{3,1,2},{1,3,2},{4,4,1}};
+		FriedmanResult result = FriedmansAnovaTkHsd.performFriedman("test", new String[]{"a","b","c"}, data);
+
+		//systems sorted by descending mean score
+		assertEquals("b", result.getSystemNames()[0]);
+		assertEquals("a", result.getSystemNames()[1]);
+		assertEquals("c", result.getSystemNames()[2]);
+		assertEquals(2.3, result.getMeanRanks()[0], DELTA);
+		assertEquals(1.9, result.getMeanRanks()[1], DELTA);
+		assertEquals(1.8, result.getMeanRanks()[2], DELTA);
+
+		//sigma^2 = 1 - 6/120 after the tie adjustment
+		assertEquals(0.7 / 0.95, result.getChiSquare(), DELTA);
+		assertEquals(Math.exp(-0.7 / 0.95 / 2.0), result.getPValue(), DELTA);
+
+		//tukey-kramer interval uses q(0.95,3,inf) = 3.3145
+		double[] first = result.getComparisons()[0];
+		assertEquals(0.4, first[3], DELTA);
+		assertEquals(3.3145 / Math.sqrt(2.0) * Math.sqrt(0.95 * 2.0 / 5.0), first[4] - first[3], 1e-4);
+		assertFalse(result.isSignificant(0));
+	}
+
+	@Test
+	public void testBatchWritesComparisonTables() throws Exception {
+		List<String[]> rows = new ArrayList<String[]>();
+		for (int i = 0; i < 20; i++) {
+			rows.add(new String[]{"" + i, "0.9" + i, "0.5" + i, "0.1" + i});
+		}
+		Map<String,Table> tables = new LinkedHashMap<String,Table>();
+		tables.put("accuracy", new Table(new String[]{"Fold","low","mid","high"}, rows));
+
+		File outputDir = new File(System.getProperty("java.io.tmpdir"), "friedmanTest" + System.nanoTime());
+		outputDir.mkdirs();
+		try{
+			Map<String,FriedmanResult> results = FriedmansAnovaTkHsd.performFriedman(outputDir, tables, 1, 3);
+			FriedmanResult result = results.get("accuracy");
+			assertEquals("low", result.getSystemNames()[0]);
+			assertTrue(result.isSignificant(1));
+
+			File tableFile = new File(outputDir, "accuracy.friedmanTKHSD.csv");
+			assertEquals(tableFile.getAbsolutePath(), result.getTableFile().getAbsolutePath());
+			List<String> lines = FileUtils.readLines(tableFile, "UTF-8");
+			assertEquals("*TeamID,TeamID,Lowerbound,Mean,Upperbound,Significance", lines.get(0));
+			assertEquals(4, lines.size());
+			assertTrue(lines.get(2).startsWith("low,high,"));
+			assertTrue(lines.get(2).endsWith(",2.0000,2.7411,TRUE"));
+		}finally{
+			FileUtils.deleteDirectory(outputDir);
+		}
+	}
+}
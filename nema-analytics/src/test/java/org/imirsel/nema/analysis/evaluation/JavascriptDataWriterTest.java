@@ -0,0 +1,102 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.imirsel.nema.analytics.evaluation.resultpages.JavascriptDataWriter;
+import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisFunctionTimestepPlotItem;
+import org.junit.Test;
+
+public class JavascriptDataWriterTest {
+
+	@Test
+	public void testNumberFormatting() throws Exception {
+		StringWriter out = new StringWriter();
+		JavascriptDataWriter writer = new JavascriptDataWriter(out);
+		writer.beginVar("n");
+		writer.array(new double[]{0.0, -0.0001, 1.5, 440.12345, -2.0005, 123456.1, 0.01, Double.NaN}, 3);
+		writer.endVar();
+		assertEquals("var n = [0,0,1.5,440.123,-2.001,123456.1,0.01,NaN];\n", out.toString());
+
+		//matches the DecimalFormat previously used for timestamps
+		DecimalFormat format = new DecimalFormat("###.###");
+		double[] values = {0.01, 0.1, 12.345, 99.999, 100.0, 3.0004};
+		for (int i = 0; i < values.length; i++) {
+			StringWriter one = new StringWriter();
+			new JavascriptDataWriter(one).value(values[i]);
+			assertEquals(format.format(values[i]), one.toString());
+		}
+	}
+
+	@Test
+	public void testStructureAndEscaping() throws Exception {
+		StringWriter out = new StringWriter();
+		JavascriptDataWriter writer = new JavascriptDataWriter(out);
+		writer.beginVar("d");
+		writer.beginArray();
+		writer.beginObject();
+		writer.key("l");
+		writer.value("say \"hi\"</script>");
+		writer.key("a");
+		writer.value(1);
+		writer.endObject();
+		writer.beginArray();
+		writer.endArray();
+		writer.value(true);
+		writer.endArray();
+		writer.endVar();
+		assertEquals("var d = [{l:\"say \\\"hi\\\"\\u003c/script>\",a:1},[],true];\n", out.toString());
+	}
+
+	@Test
+	public void testDeltaArray() throws Exception {
+		StringWriter out = new StringWriter();
+		JavascriptDataWriter writer = new JavascriptDataWriter(out);
+		writer.beginVarCall("t", "nema_decodeDeltaSeries");
+		writer.beginArray();
+		writer.deltaArray(new double[]{0.01, 0.02, 0.03, 0.0301, 1.5}, 3);
+		writer.endArray();
+		writer.value(3);
+		writer.endCall();
+		writer.endVar();
+		assertEquals("var t = nema_decodeDeltaSeries([[10,10,10,0,1470]],3);\n", out.toString());
+	}
+
+	@Test
+	public void testFunctionPlotData() throws Exception {
+		File dir = File.createTempFile("jsWriterTest", "");
+		dir.delete();
+		dir.mkdirs();
+		int n = 20000;
+		double[][] data = new double[n][2];
+		for (int i = 0; i < n; i++) {
+			data[i][0] = i * 0.01;
+			data[i][1] = i % 7 == 0 ? 0.0 : 220.0 + i % 100;
+		}
+		Map<String,double[][]> series = new HashMap<String,double[][]>();
+		series.put("gt", data);
+		List<String> names = new ArrayList<String>(Arrays.asList(new String[]{"gt"}));
+
+		new ProtovisFunctionTimestepPlotItem("plain", "plain", 0, n * 0.01, 0.01, 0.01, "Hz", series, names, dir, false);
+		new ProtovisFunctionTimestepPlotItem("compact", "compact", 0, n * 0.01, 0.01, 0.01, "Hz", series, names, dir, true);
+		String plain = FileUtils.readFileToString(new File(dir, "plain.js"));
+		String compact = FileUtils.readFileToString(new File(dir, "compact.js"));
+
+		assertTrue(plain.startsWith("var plain_data = [[{x:0,y:0},\n{x:0.01,y:221},\n{x:0.02,y:222},\n"));
+		assertTrue(plain.contains("var plain_seriesNames = [\"gt\"];\n"));
+		assertTrue(compact.startsWith("var compact_data = nema_decodeFunctionSeries([{x:[0,10,10,10,"));
+		assertTrue(compact.contains("],y:[0,221,222,223,"));
+		assertTrue(compact.length() * 2 < plain.length());
+		FileUtils.deleteDirectory(dir);
+	}
+}
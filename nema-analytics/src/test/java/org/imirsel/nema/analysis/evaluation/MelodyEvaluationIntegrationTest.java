@@ -3,15 +3,24 @@ package org.imirsel.nema.analysis.evaluation;
 
 //import static org.imirsel.nema.test.matchers.NemaMatchers.fileContentEquals;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import org.imirsel.nema.analytics.evaluation.EvaluationListener;
+import org.imirsel.nema.analytics.evaluation.EvaluationResultCache;
 import org.imirsel.nema.analytics.evaluation.Evaluator;
+import org.imirsel.nema.analytics.evaluation.EvaluatorImpl;
 import org.imirsel.nema.analytics.evaluation.EvaluatorFactory;
 import org.imirsel.nema.analytics.evaluation.ResultRenderer;
 import org.imirsel.nema.analytics.evaluation.ResultRendererFactory;
@@ -212,6 +221,121 @@ public class MelodyEvaluationIntegrationTest extends BaseManagerTestCase{
 	
 	
 
+	@Test
+	public void testParallelEvaluationMatchesSerial()  throws IllegalArgumentException, IOException, InstantiationException, IllegalAccessException{ 
+		File resultsDirectory = new File("src/test/resources/melody/results");
+		SingleTrackEvalFileType reader = new MelodyTextFile();
+		List<NemaData> groundTruth = reader.readDirectory(groundTruthDirectory, ".txt");
+		
+		NemaEvaluationResultSet[] evalResults = new NemaEvaluationResultSet[2];
+		for (int mode = 0; mode < 2; mode++) {
+			EvaluatorImpl evaluator = (EvaluatorImpl)EvaluatorFactory.getEvaluator(singleSetTask.getSubjectTrackMetadataName(), singleSetTask, singleSetDataset, null, singleTestSet);
+			evaluator.setParallelEvaluation(mode == 1);
+			evaluator.setGroundTruth(groundTruth);
+			File [] files = resultsDirectory.listFiles();
+	        for (int i = 0; i < files.length; i++) {
+				if(files[i].isDirectory() && !(files[i].getName().equals(".svn"))){
+					evaluator.addResults(files[i].getName(), files[i].getName(), singleTestSet.get(0), reader.readDirectory(files[i], null));
+				}
+	        }
+			evalResults[mode] = evaluator.evaluate();
+		}
+		
+		for (String jobId : evalResults[0].getJobIds()) {
+			assertEquals(evalResults[0].getOverallEvaluation(jobId).toString(), evalResults[1].getOverallEvaluation(jobId).toString());
+		}
+	}
+
+	@Test
+	public void testResultCacheMatchesUncached()  throws IllegalArgumentException, IOException, InstantiationException, IllegalAccessException{
+		File resultsDirectory = new File("src/test/resources/melody/results");
+		SingleTrackEvalFileType reader = new MelodyTextFile();
+		File cacheDir = new File(outputDirectory, "evalCache");
+		EvaluationResultCache cache = new EvaluationResultCache(cacheDir);
+
+		NemaEvaluationResultSet[] evalResults = new NemaEvaluationResultSet[3];
+		for (int run = 0; run < 3; run++) {
+			EvaluatorImpl evaluator = (EvaluatorImpl)EvaluatorFactory.getEvaluator(singleSetTask.getSubjectTrackMetadataName(), singleSetTask, singleSetDataset, null, singleTestSet);
+			if (run > 0){
+				evaluator.setResultCache(cache);
+			}
+			evaluator.setGroundTruth(reader.readDirectory(groundTruthDirectory, ".txt"));
+			File [] files = resultsDirectory.listFiles();
+	        for (int i = 0; i < files.length; i++) {
+				if(files[i].isDirectory() && !(files[i].getName().equals(".svn"))){
+					evaluator.addResults(files[i].getName(), files[i].getName(), singleTestSet.get(0), reader.readDirectory(files[i], null));
+				}
+	        }
+			evalResults[run] = evaluator.evaluate();
+		}
+		int numJobs = evalResults[0].getJobIds().size();
+		assertEquals(numJobs, cache.getMisses());
+		assertEquals(numJobs, cache.getStores());
+		assertEquals(numJobs, cache.getHits());
+
+		for (String jobId : evalResults[0].getJobIds()) {
+			assertEquals(evalResults[0].getOverallEvaluation(jobId).toString(), evalResults[2].getOverallEvaluation(jobId).toString());
+			assertEquals(evalResults[0].getPerFoldEvaluation(jobId).toString(), evalResults[2].getPerFoldEvaluation(jobId).toString());
+			List<NemaData> uncached = evalResults[0].getPerTrackEvaluationAndResults(jobId).get(singleTestSet.get(0));
+			List<NemaData> cached = evalResults[2].getPerTrackEvaluationAndResults(jobId).get(singleTestSet.get(0));
+			for (int i = 0; i < uncached.size(); i++) {
+				assertEquals(uncached.get(i).getDoubleMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY),
+						cached.get(i).getDoubleMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY), 0.0);
+			}
+		}
+		cache.clear();
+	}
+
+	@Test
+	public void testIncrementalEvaluationMatchesBatch()  throws IllegalArgumentException, IOException, InstantiationException, IllegalAccessException{
+		File resultsDirectory1 = new File("src/test/resources/melody/KD-2-fold/fold1");
+		File resultsDirectory2 = new File("src/test/resources/melody/KD-2-fold/fold2");
+		String systemName = "SystemName";
+		String jobId = "**FlowID**";
+		SingleTrackEvalFileType reader = new MelodyTextFile();
+
+		Evaluator batch = EvaluatorFactory.getEvaluator(twoSetTask.getSubjectTrackMetadataName(), twoSetTask, twoSetDataset, null, twoTestSets);
+		batch.setGroundTruth(reader.readDirectory(groundTruthDirectory, ".txt"));
+		batch.addResults(systemName, jobId, twoTestSets.get(0), reader.readDirectory(resultsDirectory1, null));
+		batch.addResults(systemName, jobId, twoTestSets.get(1), reader.readDirectory(resultsDirectory2, null));
+		NemaEvaluationResultSet batchResults = batch.evaluate();
+
+		EvaluatorImpl evaluator = (EvaluatorImpl)EvaluatorFactory.getEvaluator(twoSetTask.getSubjectTrackMetadataName(), twoSetTask, twoSetDataset, null, twoTestSets);
+		evaluator.setGroundTruth(reader.readDirectory(groundTruthDirectory, ".txt"));
+		evaluator.setIncrementalEvaluation(true);
+		final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+		evaluator.addEvaluationListener(new EvaluationListener() {
+			public void foldEvaluated(NemaEvaluationResultSet results, String jobId, NemaTrackList testSet) {
+				events.add("fold" + testSet.getFoldNumber());
+			}
+			public void jobEvaluated(NemaEvaluationResultSet results, String jobId) {
+				events.add("job");
+			}
+			public void evaluationFailed(String jobId, NemaTrackList testSet, Throwable cause) {
+				events.add("failed");
+			}
+		});
+
+		evaluator.addResults(systemName, jobId, twoTestSets.get(0), reader.readDirectory(resultsDirectory1, null));
+		NemaEvaluationResultSet results = evaluator.waitForIncrementalResults();
+		assertEquals(1, results.getPerFoldEvaluation(jobId).size());
+		assertNull(results.getOverallEvaluation(jobId));
+		assertFalse(results.resultsAreComplete());
+
+		evaluator.addResults(systemName, jobId, twoTestSets.get(1), reader.readDirectory(resultsDirectory2, null));
+		assertSame(results, evaluator.waitForIncrementalResults());
+		assertTrue(results.resultsAreComplete());
+		assertEquals(batchResults.getOverallEvaluation(jobId).toString(), results.getOverallEvaluation(jobId).toString());
+		assertEquals(batchResults.getPerFoldEvaluation(jobId).toString(), results.getPerFoldEvaluation(jobId).toString());
+		assertEquals(Arrays.asList("fold0", "fold1", "job"), events);
+
+		//replacing a fold recomputes the overall evaluation of the job
+		evaluator.addResults(systemName, jobId, twoTestSets.get(1), reader.readDirectory(resultsDirectory1, null));
+		evaluator.waitForIncrementalResults();
+		assertEquals(5, events.size());
+		assertEquals("job", events.get(4));
+	}
+
 	@After
 	public void tearDown() throws Exception {
 	}
@@ -0,0 +1,133 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.imirsel.nema.analytics.evaluation.Evaluator;
+import org.imirsel.nema.analytics.evaluation.EvaluatorFactory;
+import org.imirsel.nema.analytics.evaluation.ResultRenderer;
+import org.imirsel.nema.analytics.evaluation.ResultRendererFactory;
+import org.imirsel.nema.model.NemaData;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.NemaDataset;
+import org.imirsel.nema.model.NemaEvaluationResultSet;
+import org.imirsel.nema.model.NemaNote;
+import org.imirsel.nema.model.NemaTask;
+import org.imirsel.nema.model.NemaTrack;
+import org.imirsel.nema.model.NemaTrackList;
+import org.imirsel.nema.model.fileTypes.MultiF0NtTextFile;
+import org.imirsel.nema.model.fileTypes.SingleTrackEvalFileType;
+import org.imirsel.nema.test.BaseManagerTestCase;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MultiF0NtEvaluationIntegrationTest extends BaseManagerTestCase {
+
+	public static final String GT_PATH = "src/test/resources/multiF0NT/groundtruth";
+
+	private NemaTask singleSetTask;
+	private NemaDataset singleSetDataset;
+	private List<NemaTrackList> singleTestSet;
+	private List<NemaData> groundTruth;
+	private static File workingDirectory;
+	private static File outputDirectory;
+
+	@BeforeClass
+	public static void  prepareWorkingLocation(){
+		String tempLocation = System.getProperty("java.io.tmpdir");
+		workingDirectory = new File(tempLocation);
+		outputDirectory = new File(workingDirectory,(System.currentTimeMillis())+"");
+		outputDirectory.mkdirs();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		singleSetTask = new NemaTask();
+		singleSetTask.setId(1);
+		singleSetTask.setName("Multiple F0 Note Tracking");
+		singleSetTask.setDescription("Transcription of the notes (onset, offset and F0) played in polyphonic music");
+		singleSetTask.setDatasetId(1);
+		singleSetTask.setSubjectTrackMetadataId(1);
+		singleSetTask.setSubjectTrackMetadataName(NemaDataConstants.MULTI_F0_NT_DATA);
+
+		singleSetDataset = new NemaDataset();
+		singleSetDataset.setId(singleSetTask.getDatasetId());
+		singleSetDataset.setName("MIREX Multi-F0 woodwind quintet");
+		singleSetDataset.setDescription("Multi-track woodwind quintet recordings mixed down to between 2 and 5 instruments");
+
+		SingleTrackEvalFileType reader = new MultiF0NtTextFile();
+		groundTruth = reader.readDirectory(new File(GT_PATH), ".txt");
+		List<NemaTrack> trackList = new ArrayList<NemaTrack>(groundTruth.size());
+		for (NemaData gt : groundTruth) {
+			//the file names list the instruments in each mix
+			gt.setMetadata(NemaDataConstants.MULTI_F0_NT_INSTRUMENT, (gt.getId().split("_").length - 1) + " instruments");
+			trackList.add(new NemaTrack(gt.getId()));
+		}
+		singleTestSet = new ArrayList<NemaTrackList>(1);
+		singleTestSet.add(new NemaTrackList(0, singleSetTask.getDatasetId(), 3, "test", 0, trackList));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testEvaluateNoteTracking() throws IllegalArgumentException, IOException, InstantiationException, IllegalAccessException {
+		Evaluator evaluator = EvaluatorFactory.getEvaluator(singleSetTask.getSubjectTrackMetadataName(), singleSetTask, singleSetDataset, null, singleTestSet);
+		ResultRenderer renderer = ResultRendererFactory.getRenderer(singleSetTask.getSubjectTrackMetadataName(), outputDirectory, workingDirectory, false, null);
+		evaluator.setGroundTruth(groundTruth);
+
+		//a perfect transcription and one that gets the offset of every note wrong
+		List<NemaData> perfect = new ArrayList<NemaData>(groundTruth.size());
+		List<NemaData> noOffsets = new ArrayList<NemaData>(groundTruth.size());
+		for (NemaData gt : groundTruth) {
+			List<NemaNote> notes = (List<NemaNote>)gt.getMetadata(NemaDataConstants.MULTI_F0_NT_NOTE_SEQUENCE);
+			List<NemaNote> shortened = new ArrayList<NemaNote>(notes.size());
+			for (NemaNote note : notes) {
+				double duration = note.getOffset() - note.getOnset();
+				shortened.add(new NemaNote(note.getOnset(), note.getOffset() - Math.max(0.1, 0.3 * duration), note.getF0()));
+			}
+			NemaData result = new NemaData(gt.getId());
+			result.setMetadata(NemaDataConstants.MULTI_F0_NT_NOTE_SEQUENCE, notes);
+			perfect.add(result);
+			result = new NemaData(gt.getId());
+			result.setMetadata(NemaDataConstants.MULTI_F0_NT_NOTE_SEQUENCE, shortened);
+			noOffsets.add(result);
+		}
+		evaluator.addResults("perfect", "perfect", singleTestSet.get(0), perfect);
+		evaluator.addResults("noOffsets", "noOffsets", singleTestSet.get(0), noOffsets);
+
+		NemaEvaluationResultSet results = evaluator.evaluate();
+		NemaData overall = results.getJobIdToOverallEvaluation().get("perfect");
+		assertEquals(1.0, overall.getDoubleMetadata(NemaDataConstants.MULTI_F0_NT_F_MEASURE), 1e-12);
+		assertEquals(1.0, overall.getDoubleMetadata(NemaDataConstants.MULTI_F0_NT_OVERLAP), 1e-12);
+		assertEquals(1.0, overall.getDoubleMetadata(NemaDataConstants.MULTI_F0_NT_ONSET_F_MEASURE), 1e-12);
+		List<String> instruments = (List<String>)overall.getMetadata(NemaDataConstants.MULTI_F0_NT_INSTRUMENTS);
+		assertTrue(instruments.contains("3 instruments"));
+		double[] byInstrument = overall.getDoubleArrayMetadata(NemaDataConstants.MULTI_F0_NT_F_MEASURE_BY_INSTRUMENT);
+		assertEquals(instruments.size(), byInstrument.length);
+		for (int i = 0; i < byInstrument.length; i++) {
+			assertEquals(1.0, byInstrument[i], 1e-12);
+		}
+
+		overall = results.getJobIdToOverallEvaluation().get("noOffsets");
+		//a few short or overlapping ground-truth notes still match
+		assertTrue(overall.getDoubleMetadata(NemaDataConstants.MULTI_F0_NT_F_MEASURE) < 0.01);
+		assertEquals(1.0, overall.getDoubleMetadata(NemaDataConstants.MULTI_F0_NT_ONSET_RECALL), 1e-12);
+		assertTrue(overall.getDoubleMetadata(NemaDataConstants.MULTI_F0_NT_ONSET_OVERLAP) < 0.8);
+
+		//test rendering
+		renderer.renderResults(results);
+		assertTrue(new File(outputDirectory, "PerInstrumentFMeasure.csv").exists());
+
+		//test analysis rendering, which lists the notes transcribed
+		File analysisDirectory = new File(outputDirectory, "analysis");
+		analysisDirectory.mkdirs();
+		renderer.setOutputDir(analysisDirectory);
+		renderer.renderAnalysis(results);
+		assertTrue(new File(analysisDirectory, "perfectresults.html").exists());
+	}
+}
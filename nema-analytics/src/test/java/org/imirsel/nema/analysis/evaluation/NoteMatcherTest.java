@@ -0,0 +1,115 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.imirsel.nema.analytics.evaluation.multif0.NoteMatcher;
+import org.imirsel.nema.model.NemaNote;
+import org.junit.Test;
+
+public class NoteMatcherTest {
+
+	@Test
+	public void testOnsetAndOffsetCriteria() {
+		List<NemaNote> gt = new ArrayList<NemaNote>();
+		gt.add(new NemaNote(1.0, 2.0, 440.0));
+		gt.add(new NemaNote(1.0, 1.5, 220.0));
+		gt.add(new NemaNote(3.0, 3.1, 330.0));
+		gt.add(new NemaNote(5.0, 6.0, 100.0));
+		List<NemaNote> det = new ArrayList<NemaNote>();
+		//within 50ms and a quarter-tone, offset within 20% of the duration
+		det.add(new NemaNote(1.04, 1.85, 445.0));
+		//right pitch class but a semitone flat
+		det.add(new NemaNote(1.0, 1.5, 207.65));
+		//offset outside 20% of 0.1s but within the 50ms minimum
+		det.add(new NemaNote(3.01, 3.14, 330.0));
+		//onset too late, duplicate of the first note
+		det.add(new NemaNote(5.06, 6.0, 100.0));
+		det.add(new NemaNote(1.02, 2.0, 440.0));
+
+		NoteMatcher matcher = new NoteMatcher();
+		matcher.setGroundtruth(gt);
+		matcher.match(det, true);
+		assertEquals(2, matcher.getCorrect());
+		assertEquals(0.4, matcher.getPrecision(), 1e-12);
+		assertEquals(0.5, matcher.getRecall(), 1e-12);
+
+		det.set(2, new NemaNote(3.01, 3.2, 330.0));
+		matcher.match(det, true);
+		assertEquals(1, matcher.getCorrect());
+		matcher.rematch(false);
+		assertEquals(2, matcher.getCorrect());
+		//the earlier of the duplicates is matched
+		assertEquals((0.98 / 1.0 + 0.09 / 0.2) / 2, matcher.getAverageOverlap(), 1e-9);
+	}
+
+	@Test
+	public void testMatchesNestedLoopMatcher() {
+		Random rand = new Random(7);
+		NoteMatcher matcher = new NoteMatcher();
+		for (int i = 0; i < 2000; i++) {
+			List<NemaNote> gt = randomNotes(rand, rand.nextInt(40));
+			List<NemaNote> det = randomNotes(rand, rand.nextInt(40));
+			matcher.setGroundtruth(gt);
+			for (int m = 0; m < 2; m++) {
+				matcher.match(det, m == 0);
+				assertEquals(nestedLoopCorrect(gt, det, m == 0), matcher.getCorrect());
+			}
+		}
+	}
+
+	private static List<NemaNote> randomNotes(Random rand, int n) {
+		List<NemaNote> notes = new ArrayList<NemaNote>(n);
+		for (int i = 0; i < n; i++) {
+			//quantised onsets and pitches produce many near matches
+			double onset = rand.nextInt(100) * 0.03;
+			double f0 = 220.0 * Math.pow(2.0, rand.nextInt(4) / 12.0 + rand.nextInt(3) * 0.01);
+			notes.add(new NemaNote(onset, onset + 0.05 + rand.nextInt(10) * 0.05, f0));
+		}
+		return notes;
+	}
+
+	/** Reference greedy matching over every pair of notes. */
+	private static int nestedLoopCorrect(List<NemaNote> gt, List<NemaNote> det, boolean matchOffsets) {
+		List<NemaNote> sortedGt = new ArrayList<NemaNote>(gt);
+		List<NemaNote> sortedDet = new ArrayList<NemaNote>(det);
+		Collections.sort(sortedGt, new Comparator<NemaNote>() {
+			public int compare(NemaNote a, NemaNote b) {
+				return Double.compare(a.getOnset(), b.getOnset());
+			}
+		});
+		Collections.sort(sortedDet, new Comparator<NemaNote>() {
+			public int compare(NemaNote a, NemaNote b) {
+				return Double.compare(a.getOnset(), b.getOnset());
+			}
+		});
+		boolean[] used = new boolean[sortedGt.size()];
+		int correct = 0;
+		double maxRatio = Math.pow(2.0, 0.5 / 12.0);
+		for (NemaNote d : sortedDet) {
+			int best = -1;
+			double bestDistance = Double.MAX_VALUE;
+			for (int g = 0; g < sortedGt.size(); g++) {
+				NemaNote note = sortedGt.get(g);
+				double distance = Math.abs(d.getOnset() - note.getOnset());
+				double ratio = d.getF0() / note.getF0();
+				boolean offsetOk = !matchOffsets || Math.abs(d.getOffset() - note.getOffset()) <= Math.max(0.05, 0.2 * (note.getOffset() - note.getOnset()));
+				if (!used[g] && d.getOnset() - 0.05 <= note.getOnset() && note.getOnset() <= d.getOnset() + 0.05
+						&& ratio >= 1.0 / maxRatio && ratio <= maxRatio && offsetOk && distance < bestDistance) {
+					best = g;
+					bestDistance = distance;
+				}
+			}
+			if (best != -1) {
+				used[best] = true;
+				correct++;
+			}
+		}
+		return correct;
+	}
+}
@@ -1,5 +1,6 @@
 package org.imirsel.nema.analysis.evaluation;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -11,6 +12,7 @@ import org.imirsel.nema.analytics.evaluation.Evaluator;
 import org.imirsel.nema.analytics.evaluation.EvaluatorFactory;
 import org.imirsel.nema.analytics.evaluation.ResultRenderer;
 import org.imirsel.nema.analytics.evaluation.ResultRendererFactory;
+import org.imirsel.nema.analytics.evaluation.onset.OnsetEvaluator;
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
 import org.imirsel.nema.model.NemaDataset;
@@ -139,6 +141,41 @@ public class OnsetEvaluationIntegrationTest extends BaseManagerTestCase {
 	
 	
 
+	@Test
+	public void testToleranceSweep() throws IllegalArgumentException, IOException, InstantiationException, IllegalAccessException{
+		File groundTruthDirectory = new File(GT_PATH);
+		File resultsDirectory = new File(RESULT_PATH);
+		
+		double[] tolerances = new double[]{0.02, 0.05, 0.1};
+		OnsetEvaluator evaluator = (OnsetEvaluator)EvaluatorFactory.getEvaluator(singleSetTask.getSubjectTrackMetadataName(), singleSetTask, singleSetDataset, null, singleTestSet);
+		evaluator.setTolerances(tolerances);
+		SingleTrackEvalFileType reader = new OnsetTextFile();
+		evaluator.setGroundTruth(reader.readDirectory(groundTruthDirectory, ".txt"));
+		
+		File [] files = resultsDirectory.listFiles();
+		for (int i = 0; i < files.length; i++) {
+			if(files[i].isDirectory() && !(files[i].getName().equals(".svn"))){
+				evaluator.addResults(files[i].getName(), files[i].getName(), singleTestSet.get(0), reader.readDirectory(files[i], null));
+			}
+		}
+		
+		NemaEvaluationResultSet results = evaluator.evaluate();
+		for (String jobId : results.getJobIds()) {
+			NemaData overall = results.getJobIdToOverallEvaluation().get(jobId);
+			double[] fMeasures = overall.getDoubleArrayMetadata(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE_BY_TOLERANCE);
+			
+			//the sweep includes the standard 50ms window
+			assertEquals(overall.getDoubleMetadata(NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE), fMeasures[1], 1e-12);
+			assertEquals(overall.getDoubleMetadata(NemaDataConstants.ONSET_DETECTION_AVG_RECALL), 
+					overall.getDoubleArrayMetadata(NemaDataConstants.ONSET_DETECTION_AVG_RECALL_BY_TOLERANCE)[1], 1e-12);
+			assertTrue(overall.getDoubleArrayMetadata(NemaDataConstants.ONSET_DETECTION_TOLERANCES).length == tolerances.length);
+		}
+		
+		//test rendering of the sweep curves
+		ResultRenderer renderer = ResultRendererFactory.getRenderer(singleSetTask.getSubjectTrackMetadataName(), outputDirectory, workingDirectory, false, null);
+		renderer.renderResults(results);
+	}
+
 	@After
 	public void tearDown() throws Exception {
 	}
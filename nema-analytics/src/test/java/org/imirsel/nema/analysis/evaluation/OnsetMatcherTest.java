@@ -0,0 +1,114 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.imirsel.nema.analytics.evaluation.onset.OnsetMatcher;
+import org.junit.Test;
+
+public class OnsetMatcherTest {
+
+	private static final double TOLERANCE = 0.05;
+
+	@Test
+	public void testCountsDoubledAndMerged() {
+		double[] gt = {1.0, 1.02, 2.0, 3.0, 4.0};
+		double[] det = {0.5, 1.01, 2.01, 2.03, 3.5, 4.0};
+		OnsetMatcher matcher = new OnsetMatcher(TOLERANCE);
+		matcher.match(gt, gt.length, det, det.length);
+
+		//1.0 and 1.02 share a detection, 2.03 doubles 2.01, 1.02 and 3.0 are missed
+		assertEquals(3, matcher.getCorrect());
+		assertEquals(3, matcher.getFalsePositives());
+		assertEquals(2, matcher.getFalseNegatives());
+		assertEquals(1, matcher.getDoubled());
+		assertEquals(1, matcher.getMerged());
+	}
+
+	@Test
+	public void testMatchesNestedLoopMatcher() {
+		Random rand = new Random(42);
+		OnsetMatcher matcher = new OnsetMatcher(TOLERANCE);
+		for (int i = 0; i < 5000; i++) {
+			//quantised times put many onsets exactly on the window boundaries
+			double[] gt = randomOnsets(rand, rand.nextInt(20));
+			double[] det = randomOnsets(rand, rand.nextInt(30));
+			matcher.match(gt, gt.length, det, det.length);
+			int[] expected = nestedLoopCounts(gt, det);
+			assertEquals(expected[0], matcher.getCorrect());
+			assertEquals(expected[1], matcher.getFalseNegatives());
+			assertEquals(expected[2], matcher.getDoubled());
+			assertEquals(expected[3], matcher.getMerged());
+		}
+	}
+
+	private static double[] randomOnsets(Random rand, int n) {
+		double[] onsets = new double[n];
+		for (int i = 0; i < n; i++) {
+			onsets[i] = Math.round(rand.nextDouble() * 100.0) / 100.0;
+		}
+		Arrays.sort(onsets);
+		return onsets;
+	}
+
+	/**
+	 * The original nested-loop matching from OnsetEvaluator, returning
+	 * correct, false negative, doubled and merged counts.
+	 */
+	private static int[] nestedLoopCounts(double[] gt, double[] det) {
+		int correct = 0;
+		int falseNegatives = 0;
+		int doubled = 0;
+		int merged = 0;
+		int count = 0;
+		for (int t = 0; t < gt.length; t++) {
+			if (count > det.length - 1) {
+				falseNegatives++;
+			}
+			for (int c = count; c < det.length; c++) {
+				if (Math.abs(det[c] - gt[t]) < TOLERANCE) {
+					correct++;
+					count = c + 1;
+					for (int c1 = count; c1 < det.length; c1++) {
+						if (t < gt.length - 1) {
+							if (Math.abs(det[c1] - gt[t + 1]) < TOLERANCE) {
+								break;
+							}
+							if (Math.abs(det[c1] - gt[t]) < TOLERANCE) {
+								doubled++;
+							}
+						}
+					}
+					break;
+				} else if (det[c] > (gt[t] + TOLERANCE)) {
+					falseNegatives++;
+					count = c;
+					break;
+				}
+				if (c == det.length - 1) {
+					falseNegatives++;
+				}
+			}
+		}
+		int count2 = 0;
+		for (int c = 0; c < det.length; c++) {
+			for (int t = count2; t < gt.length; t++) {
+				if (Math.abs(gt[t] - det[c]) < TOLERANCE) {
+					count2 = t + 1;
+					for (int t1 = count2; t1 < gt.length; t1++) {
+						if (c < det.length - 1 && Math.abs(gt[t1] - det[c + 1]) < TOLERANCE) {
+							break;
+						}
+						if (Math.abs(gt[t1] - det[c]) < TOLERANCE) {
+							merged++;
+						}
+					}
+					break;
+				}
+			}
+		}
+		return new int[]{correct, falseNegatives, doubled, merged};
+	}
+}
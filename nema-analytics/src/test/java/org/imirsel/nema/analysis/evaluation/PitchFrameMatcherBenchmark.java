@@ -0,0 +1,179 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.imirsel.nema.analytics.evaluation.melody.PitchFrameMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the frame-level pitch comparison used by the melody and
+ * multiple F0 evaluators, reporting frames per second for the original
+ * two-pass loops over double[][] rows and for {@link PitchFrameMatcher}, on
+ * a synthetic 10 minute track at a 10ms hop.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.imirsel.nema.analysis.evaluation.PitchFrameMatcherBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PitchFrameMatcherBenchmark {
+
+	private static final int LOWER_BOUND = 220;
+	private static final int UPPER_BOUND = 440;
+	private static final double TOLERANCE = 0.5;
+
+	/** 10 minutes of 10ms frames. */
+	private static final int NUM_FRAMES = 60000;
+
+	private double[][] gtRows;
+	private double[][] detRows;
+	private double[] gtF0s;
+	private double[] detF0s;
+	private PitchFrameMatcher matcher;
+
+	@Setup
+	public void setUp() {
+		Random rand = new Random(1234);
+		gtRows = new double[NUM_FRAMES][2];
+		detRows = new double[NUM_FRAMES][2];
+		double f0 = 220.0;
+		for (int t = 0; t < NUM_FRAMES; t++) {
+			//a slowly wandering melody with rests
+			f0 = Math.min(1200.0, Math.max(80.0, f0 * Math.pow(2.0, rand.nextGaussian() / 48.0)));
+			double gt = rand.nextInt(5) == 0 ? 0.0 : f0;
+			double det = f0 * Math.pow(2.0, rand.nextInt(3) - 1) * Math.pow(2.0, rand.nextGaussian() / 24.0);
+			int voicing = rand.nextInt(6);
+			gtRows[t][0] = t * 0.01;
+			gtRows[t][1] = gt;
+			detRows[t][0] = t * 0.01;
+			detRows[t][1] = voicing == 0 ? 0.0 : (voicing == 1 ? -det : det);
+		}
+		gtF0s = new double[NUM_FRAMES];
+		detF0s = new double[NUM_FRAMES];
+		matcher = new PitchFrameMatcher(TOLERANCE, LOWER_BOUND, UPPER_BOUND);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_FRAMES)
+	public int legacyFrameLoops() {
+		return legacyCounts(gtRows, detRows);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_FRAMES)
+	public int pitchFrameMatcher() {
+		int numGt = PitchFrameMatcher.extractColumn(gtRows, 1, gtF0s);
+		int numDet = PitchFrameMatcher.extractColumn(detRows, 1, detF0s);
+		matcher.match(gtF0s, numGt, detF0s, numDet);
+		return matcher.getCorrect() + matcher.getNoMelodyCorrect() + matcher.getIncorrect()
+				+ matcher.getFalsePositives() + matcher.getFalseNegatives() + matcher.getFalseNegativeCorrectF0()
+				+ matcher.getOctaveCorrect() + matcher.getOctaveFalseNegativeCorrectF0();
+	}
+
+	/**
+	 * The frame loops as they were in MelodyEvaluator and MultiF0EstEvaluator
+	 * before they shared {@link PitchFrameMatcher}.
+	 */
+	private static int legacyCounts(double[][] rawGtData, double[][] rawData) {
+		int correct = 0;
+		int nomelcorrect = 0;
+		int incorrect = 0;
+		int falsePositives = 0;
+		int falseNegatives = 0;
+		int falseNegCorF0 = 0;
+		int octaveCorrect = 0;
+		int octaveFalseNegCorF0 = 0;
+		int tot = rawGtData.length;
+		for (int t = 0; t < tot; t++) {
+			double gtF0 = rawGtData[t][1];
+			double detF0 = t >= rawData.length ? 0.0 : rawData[t][1];
+			if ((gtF0 == 0) && (detF0 > 0)) {
+				falsePositives++;
+			} else if ((detF0 <= 0) && (gtF0 != 0)) {
+				falseNegatives++;
+				if ((-detF0 > (gtF0 / Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))
+						&& (-detF0 < (gtF0 * Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))) {
+					falseNegCorF0++;
+				}
+			} else if ((detF0 <= 0) && (gtF0 == 0)) {
+				nomelcorrect++;
+			} else if ((detF0 > (gtF0 / Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))
+					&& (detF0 < (gtF0 * Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))) {
+				correct++;
+			} else {
+				incorrect++;
+			}
+		}
+		for (int t = 0; t < tot; t++) {
+			double gtF0 = rawGtData[t][1];
+			double detF0 = t >= rawData.length ? 0.0 : rawData[t][1];
+			if (gtF0 != 0) {
+				while (!((gtF0 >= LOWER_BOUND) && (gtF0 < UPPER_BOUND))) {
+					gtF0 = (gtF0 >= UPPER_BOUND) ? (gtF0 / 2) : (gtF0 * 2);
+				}
+			}
+			if (detF0 != 0) {
+				if (detF0 > 0) {
+					while (!((detF0 >= LOWER_BOUND) && (detF0 < UPPER_BOUND))) {
+						detF0 = (detF0 >= UPPER_BOUND) ? (detF0 / 2) : (detF0 * 2);
+					}
+				} else {
+					while (!((-detF0 >= LOWER_BOUND) && (-detF0 < UPPER_BOUND))) {
+						detF0 = (-detF0 >= UPPER_BOUND) ? (detF0 / 2) : (detF0 * 2);
+					}
+				}
+			}
+			if (gtF0 == 0) {
+				//voicing errors are counted by the first pass
+			} else if (detF0 <= 0) {
+				if ((-detF0 > (gtF0 / Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))
+						&& (-detF0 < (gtF0 * Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))) {
+					octaveFalseNegCorF0++;
+				} else if ((-2.0 * detF0 > (gtF0 / Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))
+						&& (-2.0 * detF0 < (gtF0 * Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))) {
+					octaveFalseNegCorF0++;
+				} else if ((-detF0 > (2.0 * gtF0 / Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))
+						&& (-detF0 < (2.0 * gtF0 * Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))) {
+					octaveFalseNegCorF0++;
+				}
+			} else if ((detF0 > (gtF0 / Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))
+					&& (detF0 < (gtF0 * Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))) {
+				octaveCorrect++;
+			} else if ((2.0 * detF0 > (gtF0 / Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))
+					&& (2.0 * detF0 < (gtF0 * Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))) {
+				octaveCorrect++;
+			} else if ((detF0 > (2.0 * gtF0 / Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))
+					&& (detF0 < (2.0 * gtF0 * Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0))))) {
+				octaveCorrect++;
+			}
+		}
+		return correct + nomelcorrect + incorrect + falsePositives + falseNegatives
+				+ falseNegCorF0 + octaveCorrect + octaveFalseNegCorF0;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(PitchFrameMatcherBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,155 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.imirsel.nema.analytics.evaluation.melody.PitchFrameMatcher;
+import org.junit.Test;
+
+public class PitchFrameMatcherTest {
+
+	private static final int LOWER_BOUND = 220;
+	private static final int UPPER_BOUND = 440;
+	private static final double TOLERANCE = 0.5;
+
+	@Test
+	public void testOctaveBoundaryAndUnvoicedPitches() {
+		double[] gt = {0, 0, 438, 438, 110, 440, 440};
+		double[] det = {0, 200, 442, -221, -440, 880, 470};
+		PitchFrameMatcher matcher = new PitchFrameMatcher(TOLERANCE, LOWER_BOUND, UPPER_BOUND);
+		matcher.match(gt, gt.length, det, det.length);
+
+		assertEquals(1, matcher.getNoMelodyCorrect());
+		assertEquals(1, matcher.getFalsePositives());
+		//442 is within a quarter tone of 438, 880 and 470 are not within it of 440
+		assertEquals(1, matcher.getCorrect());
+		assertEquals(2, matcher.getIncorrect());
+		assertEquals(2, matcher.getFalseNegatives());
+		assertEquals(0, matcher.getFalseNegativeCorrectF0());
+		//442 folds to 221 and 880 to 440 (220), matching across the boundary
+		assertEquals(2, matcher.getOctaveCorrect());
+		//221 doubled matches 438, 440 folds onto 110
+		assertEquals(2, matcher.getOctaveFalseNegativeCorrectF0());
+	}
+
+	@Test
+	public void testMatchesLegacyFrameLoops() {
+		Random rand = new Random(7);
+		PitchFrameMatcher matcher = new PitchFrameMatcher(TOLERANCE, LOWER_BOUND, UPPER_BOUND);
+		for (int i = 0; i < 2000; i++) {
+			int numGt = rand.nextInt(200);
+			int numDet = rand.nextInt(220);
+			double[] gt = new double[numGt];
+			double[] det = new double[numDet];
+			for (int t = 0; t < numGt; t++) {
+				gt[t] = rand.nextInt(4) == 0 ? 0.0 : 40.0 + rand.nextDouble() * 2000.0;
+			}
+			for (int t = 0; t < numDet; t++) {
+				double base = t < numGt && gt[t] != 0 ? gt[t] : 40.0 + rand.nextDouble() * 2000.0;
+				//octave errors and near misses around the tolerance
+				double f0 = base * Math.pow(2.0, rand.nextInt(5) - 2) * Math.pow(2.0, (rand.nextDouble() - 0.5) / 12.0);
+				switch (rand.nextInt(4)) {
+				case 0:
+					det[t] = 0.0;
+					break;
+				case 1:
+					det[t] = -f0;
+					break;
+				default:
+					det[t] = f0;
+				}
+			}
+			matcher.match(gt, numGt, det, numDet);
+			int[] expected = legacyCounts(gt, det);
+			assertEquals(expected[0], matcher.getCorrect());
+			assertEquals(expected[1], matcher.getNoMelodyCorrect());
+			assertEquals(expected[2], matcher.getIncorrect());
+			assertEquals(expected[3], matcher.getFalsePositives());
+			assertEquals(expected[4], matcher.getFalseNegatives());
+			assertEquals(expected[5], matcher.getFalseNegativeCorrectF0());
+			assertEquals(expected[6], matcher.getOctaveCorrect());
+			assertEquals(expected[7], matcher.getOctaveFalseNegativeCorrectF0());
+		}
+	}
+
+	/**
+	 * The original two-pass frame loops from MelodyEvaluator, returning the
+	 * correct, no melody correct, incorrect, false positive, false negative,
+	 * false negative with correct F0, octave correct and octave false
+	 * negative with correct F0 counts.
+	 */
+	static int[] legacyCounts(double[] rawGt, double[] rawDet) {
+		int correct = 0;
+		int nomelcorrect = 0;
+		int incorrect = 0;
+		int falsePositives = 0;
+		int falseNegatives = 0;
+		int falseNegCorF0 = 0;
+		int octaveCorrect = 0;
+		int octaveFalseNegCorF0 = 0;
+		double r = Math.pow(Math.pow(2.0, TOLERANCE), (1.0 / 12.0));
+
+		int tot = rawGt.length;
+		for (int t = 0; t < tot; t++) {
+			double gtF0 = rawGt[t];
+			double detF0 = t >= rawDet.length ? 0.0 : rawDet[t];
+			if ((gtF0 == 0) && (detF0 > 0)) {
+				falsePositives++;
+			} else if ((detF0 <= 0) && (gtF0 != 0)) {
+				falseNegatives++;
+				if ((-detF0 > (gtF0 / r)) && (-detF0 < (gtF0 * r))) {
+					falseNegCorF0++;
+				}
+			} else if ((detF0 <= 0) && (gtF0 == 0)) {
+				nomelcorrect++;
+			} else if ((detF0 > (gtF0 / r)) && (detF0 < (gtF0 * r))) {
+				correct++;
+			} else {
+				incorrect++;
+			}
+		}
+
+		for (int t = 0; t < tot; t++) {
+			double gtF0 = rawGt[t];
+			double detF0 = t >= rawDet.length ? 0.0 : rawDet[t];
+			if (gtF0 != 0) {
+				while (!((gtF0 >= LOWER_BOUND) && (gtF0 < UPPER_BOUND))) {
+					gtF0 = (gtF0 >= UPPER_BOUND) ? (gtF0 / 2) : (gtF0 * 2);
+				}
+			}
+			if (detF0 != 0) {
+				if (detF0 > 0) {
+					while (!((detF0 >= LOWER_BOUND) && (detF0 < UPPER_BOUND))) {
+						detF0 = (detF0 >= UPPER_BOUND) ? (detF0 / 2) : (detF0 * 2);
+					}
+				} else {
+					while (!((-detF0 >= LOWER_BOUND) && (-detF0 < UPPER_BOUND))) {
+						detF0 = (-detF0 >= UPPER_BOUND) ? (detF0 / 2) : (detF0 * 2);
+					}
+				}
+			}
+			if ((gtF0 == 0) && (detF0 > 0)) {
+				//octave false positive
+			} else if ((detF0 <= 0) && (gtF0 == 0)) {
+				//octave no melody correct
+			} else if ((detF0 <= 0) && (gtF0 != 0)) {
+				if ((-detF0 > (gtF0 / r)) && (-detF0 < (gtF0 * r))) {
+					octaveFalseNegCorF0++;
+				} else if ((-2.0 * detF0 > (gtF0 / r)) && (-2.0 * detF0 < (gtF0 * r))) {
+					octaveFalseNegCorF0++;
+				} else if ((-detF0 > (2.0 * gtF0 / r)) && (-detF0 < (2.0 * gtF0 * r))) {
+					octaveFalseNegCorF0++;
+				}
+			} else if ((detF0 > (gtF0 / r)) && (detF0 < (gtF0 * r))) {
+				octaveCorrect++;
+			} else if ((2.0 * detF0 > (gtF0 / r)) && (2.0 * detF0 < (gtF0 * r))) {
+				octaveCorrect++;
+			} else if ((detF0 > (2.0 * gtF0 / r)) && (detF0 < (2.0 * gtF0 * r))) {
+				octaveCorrect++;
+			}
+		}
+		return new int[]{correct, nomelcorrect, incorrect, falsePositives, falseNegatives,
+				falseNegCorF0, octaveCorrect, octaveFalseNegCorF0};
+	}
+}
@@ -0,0 +1,132 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.imirsel.nema.analytics.evaluation.RenderPipeline;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenderPipelineTest {
+
+	private static final Logger logger = Logger.getLogger(RenderPipelineTest.class.getName());
+	private ExecutorService pool;
+
+	@Before
+	public void setUp() {
+		pool = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	private static Callable<String> record(final List<String> order, final String name) {
+		return new Callable<String>() {
+			public String call() {
+				order.add(name);
+				return name;
+			}
+		};
+	}
+
+	@Test
+	public void testStagesRunAfterTheirDependencies() throws Exception {
+		for (int run = 0; run < 2; run++) {
+			final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+			RenderPipeline pipeline = new RenderPipeline("test", logger);
+			final RenderPipeline.Stage<String> csv = pipeline.add("csv", record(order, "csv"));
+			RenderPipeline.Stage<String> tgz = pipeline.add("tgz", record(order, "tgz")).after(csv);
+			RenderPipeline.Stage<String> stats = pipeline.add("stats", record(order, "stats"));
+			RenderPipeline.Stage<String> pages = pipeline.add("pages", new Callable<String>() {
+				public String call() {
+					order.add("pages");
+					return "pages after " + csv.get();
+				}
+			}).after(tgz).after(stats);
+			pipeline.run(run == 0 ? null : pool);
+
+			assertEquals(4, order.size());
+			assertTrue(order.indexOf("csv") < order.indexOf("tgz"));
+			assertTrue(order.indexOf("tgz") < order.indexOf("pages"));
+			assertTrue(order.indexOf("stats") < order.indexOf("pages"));
+			assertEquals("pages after csv", pages.get());
+			Map<String,Long> times = pipeline.getStageTimes();
+			assertEquals(4, times.size());
+			assertTrue(times.containsKey("stats"));
+		}
+	}
+
+	@Test
+	public void testIndependentStagesRunConcurrently() throws Exception {
+		//both stages must be running at once for either to complete
+		final CountDownLatch latch = new CountDownLatch(2);
+		RenderPipeline pipeline = new RenderPipeline("test", logger);
+		for (int i = 0; i < 2; i++) {
+			pipeline.add("wait", new Callable<Boolean>() {
+				public Boolean call() throws InterruptedException {
+					latch.countDown();
+					return latch.await(10, TimeUnit.SECONDS);
+				}
+			});
+		}
+		pipeline.run(pool);
+		assertEquals(0, latch.getCount());
+	}
+
+	@Test
+	public void testFailureStopsDependentStages() throws Exception {
+		final AtomicInteger numRun = new AtomicInteger();
+		RenderPipeline pipeline = new RenderPipeline("test", logger);
+		RenderPipeline.Stage<Void> failing = pipeline.add("failing", new Callable<Void>() {
+			public Void call() throws IOException {
+				throw new IOException("disk full");
+			}
+		});
+		pipeline.add("dependent", new Callable<Integer>() {
+			public Integer call() {
+				return numRun.incrementAndGet();
+			}
+		}).after(failing);
+		try {
+			pipeline.run(pool);
+			fail("Expected the stage's IOException");
+		} catch (IOException e) {
+			assertEquals("disk full", e.getMessage());
+		}
+		assertEquals(0, numRun.get());
+	}
+
+	@Test
+	public void testCycleIsRejected() throws Exception {
+		RenderPipeline pipeline = new RenderPipeline("test", logger);
+		List<String> order = new ArrayList<String>();
+		RenderPipeline.Stage<String> a = pipeline.add("a", record(order, "a"));
+		RenderPipeline.Stage<String> b = pipeline.add("b", record(order, "b")).after(a);
+		a.after(b);
+		try {
+			pipeline.run(null);
+			fail("Expected the cycle to be rejected");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		assertFalse(order.contains("a"));
+	}
+}
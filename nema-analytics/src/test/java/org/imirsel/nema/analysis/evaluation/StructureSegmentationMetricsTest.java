@@ -0,0 +1,67 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.imirsel.nema.analytics.evaluation.structure.StructureSegmentationMetrics;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.NemaSegment;
+import org.imirsel.nema.model.fileTypes.StructureTextFile;
+import org.junit.Test;
+
+public class StructureSegmentationMetricsTest {
+
+	private static final double DELTA = 1e-12;
+
+	@Test
+	public void testIdenticalSegmentationsScorePerfectly() throws Exception {
+		List<NemaSegment> gt = readSegments(new File("src/test/resources/structure/groundtruth/01__come_together.txt"));
+		double[] metrics = StructureSegmentationMetrics.evaluate(gt, gt);
+
+		//every score is perfect and the boundary distances are zero
+		for (int i = 0; i < 12; i++) {
+			assertEquals(1.0, metrics[i], DELTA);
+		}
+		assertEquals(0.0, metrics[12], DELTA);
+		assertEquals(0.0, metrics[13], DELTA);
+	}
+
+	@Test
+	public void testMatchesMatlabScripts() throws Exception {
+		//expected values from a direct transcription of evaluateStructure.m
+		List<NemaSegment> gt = readSegments(new File("src/test/resources/structure/groundtruth/01__drive_my_car.txt"));
+		List<NemaSegment> result = readSegments(new File("src/test/resources/structure/results/anon_1/01__drive_my_car.lab"));
+		double[] expected = {0.80348179895086, 0.8660993708790233, 0.8636299693329207, 0.9002815579540122,
+				0.8298459042984591, 0.9200723769862046, 0.2727272727272727, 0.2727272727272727, 0.2727272727272727,
+				0.8181818181818182, 0.8181818181818182, 0.8181818181818182, 0.755, 0.755};
+		double[] metrics = StructureSegmentationMetrics.evaluate(gt, result);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], metrics[i], 1e-9);
+		}
+	}
+
+	@Test
+	public void testBoundaryRetrievalWindows() throws Exception {
+		List<NemaSegment> gt = new ArrayList<NemaSegment>();
+		gt.add(new NemaSegment(0.0, 10.0, "A"));
+		gt.add(new NemaSegment(10.0, 20.0, "B"));
+		List<NemaSegment> result = new ArrayList<NemaSegment>();
+		result.add(new NemaSegment(0.0, 11.0, "A"));
+		result.add(new NemaSegment(11.0, 20.0, "B"));
+		double[] metrics = StructureSegmentationMetrics.evaluate(gt, result);
+
+		//the middle boundary is missed at 0.5s but hit at 3s
+		assertEquals(2.0 / 3.0, metrics[6], DELTA);
+		assertEquals(1.0, metrics[9], DELTA);
+		assertEquals(0.0, metrics[12], DELTA);
+		assertEquals(0.0, metrics[13], DELTA);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<NemaSegment> readSegments(File file) throws Exception {
+		return (List<NemaSegment>)new StructureTextFile().readFile(file).getMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_DATA);
+	}
+}
@@ -0,0 +1,252 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.imirsel.nema.analytics.evaluation.Evaluator;
+import org.imirsel.nema.analytics.evaluation.EvaluatorFactory;
+import org.imirsel.nema.analytics.evaluation.tagsClassification.RocCurve;
+import org.imirsel.nema.model.NemaData;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.NemaDataset;
+import org.imirsel.nema.model.NemaEvaluationResultSet;
+import org.imirsel.nema.model.NemaTask;
+import org.imirsel.nema.model.NemaTrack;
+import org.imirsel.nema.model.NemaTrackList;
+import org.junit.Test;
+
+/**
+ * Checks the rank-sum AUC-ROC against a count over every positive-negative
+ * pair, with tied scores counting half.
+ */
+public class TagAffinityEvaluatorTest {
+
+	private static final int NUM_TAGS = 40;
+	private static final int NUM_TRACKS = 60;
+
+	private static double pairwiseAuc(List<Double> positives, List<Double> negatives) {
+		if (positives.isEmpty() || negatives.isEmpty()) {
+			return 0.0;
+		}
+		double ordered = 0.0;
+		for (double p : positives) {
+			for (double n : negatives) {
+				if (p > n) {
+					ordered += 1.0;
+				} else if (p == n) {
+					ordered += 0.5;
+				}
+			}
+		}
+		return ordered / (positives.size() * (double)negatives.size());
+	}
+
+	@Test
+	public void testRocCurve() {
+		Random rand = new Random(3);
+		for (int i = 0; i < 50; i++) {
+			int numPos = rand.nextInt(30);
+			int numNeg = rand.nextInt(30);
+			double[] pos = new double[numPos + 5];
+			double[] neg = new double[numNeg + 5];
+			List<Double> posList = new ArrayList<Double>();
+			List<Double> negList = new ArrayList<Double>();
+			for (int p = 0; p < numPos; p++) {
+				//coarse scores, so that many are tied
+				pos[p] = rand.nextInt(8) / 4.0;
+				posList.add(pos[p]);
+			}
+			for (int n = 0; n < numNeg; n++) {
+				neg[n] = rand.nextInt(6) / 4.0;
+				negList.add(neg[n]);
+			}
+			RocCurve curve = RocCurve.compute(pos, numPos, neg, numNeg, null, RocCurve.ALL_POINTS);
+			assertEquals(pairwiseAuc(posList, negList), curve.getArea(), 1e-12);
+
+			//trapezoids under the curve give the same area when both classes are present
+			double[] fpr = curve.getFalsePositiveRates();
+			double[] tpr = curve.getTruePositiveRates();
+			assertEquals(0.0, fpr[0], 0.0);
+			assertEquals(0.0, tpr[0], 0.0);
+			if (numPos > 0 && numNeg > 0) {
+				double trapezoids = 0.0;
+				for (int j = 1; j < fpr.length; j++) {
+					trapezoids += (fpr[j] - fpr[j - 1]) * (tpr[j] + tpr[j - 1]) / 2.0;
+				}
+				assertEquals(curve.getArea(), trapezoids, 1e-12);
+				assertEquals(1.0, fpr[fpr.length - 1], 0.0);
+				assertEquals(1.0, tpr[tpr.length - 1], 0.0);
+			}
+
+			//downsampling keeps the end points and the area
+			RocCurve small = RocCurve.compute(pos, numPos, neg, numNeg, null, 3);
+			assertEquals(Math.min(3, fpr.length), small.getFalsePositiveRates().length);
+			assertEquals(fpr[fpr.length - 1], small.getFalsePositiveRates()[small.getFalsePositiveRates().length - 1], 0.0);
+			assertEquals(curve.getArea(), small.getArea(), 0.0);
+		}
+	}
+
+	@Test
+	public void testPrecisionAtN() {
+		//ranked: 0.9+, 0.8-, {0.5+, 0.5-, 0.5-, 0.5+}, 0.1-
+		double[] pos = new double[]{0.5, 0.9, 0.5};
+		double[] neg = new double[]{0.1, 0.5, 0.8, 0.5};
+		RocCurve curve = RocCurve.compute(pos, 3, neg, 4, new int[]{1, 2, 4, 6, 8}, RocCurve.ALL_POINTS);
+		double[] precisions = curve.getPrecisionAtN();
+		assertEquals(1.0, precisions[0], 1e-12);
+		assertEquals(0.5, precisions[1], 1e-12);
+		//half of the two tied examples taken are expected to be positive
+		assertEquals(2.0 / 4.0, precisions[2], 1e-12);
+		assertEquals(3.0 / 6.0, precisions[3], 1e-12);
+		assertEquals(0.0, precisions[4], 0.0);
+		//the origin and a point per distinct score
+		assertEquals(5, curve.getFalsePositiveRates().length);
+	}
+
+	@Test
+	public void testNaNAffinityIsRejected() throws Exception {
+		try {
+			RocCurve.compute(new double[]{0.9, Double.NaN}, 2, new double[]{0.1}, 1, null, RocCurve.ALL_POINTS);
+			fail("A NaN score should be rejected");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+
+		NemaTask task = new NemaTask();
+		task.setId(1);
+		task.setName("Tag affinity");
+		task.setDatasetId(1);
+		task.setSubjectTrackMetadataId(1);
+		task.setSubjectTrackMetadataName(NemaDataConstants.TAG_AFFINITY_MAP);
+		NemaDataset dataset = new NemaDataset();
+		dataset.setId(1);
+		dataset.setName("NaN affinity");
+		List<NemaData> groundTruth = new ArrayList<NemaData>();
+		List<NemaData> results = new ArrayList<NemaData>();
+		List<NemaTrack> tracks = new ArrayList<NemaTrack>();
+		for (int i = 0; i < 2; i++) {
+			Set<String> truth = new HashSet<String>();
+			truth.add("tag" + i);
+			NemaData gt = new NemaData("t" + i);
+			gt.setMetadata(NemaDataConstants.TAG_CLASSIFICATIONS, truth);
+			groundTruth.add(gt);
+			Map<String,Double> affinities = new HashMap<String,Double>();
+			affinities.put("tag0", i == 1 ? Double.NaN : 0.5);
+			NemaData result = new NemaData("t" + i);
+			result.setMetadata(NemaDataConstants.TAG_AFFINITY_MAP, affinities);
+			results.add(result);
+			tracks.add(new NemaTrack("t" + i));
+		}
+		List<NemaTrackList> testSets = new ArrayList<NemaTrackList>();
+		testSets.add(new NemaTrackList(0, 1, 3, "test", 0, tracks));
+		Evaluator evaluator = EvaluatorFactory.getEvaluator(NemaDataConstants.TAG_AFFINITY_MAP, task, dataset, null, testSets);
+		evaluator.setGroundTruth(groundTruth);
+		evaluator.addResults("nan", "nan", testSets.get(0), results);
+		try {
+			evaluator.evaluate();
+			fail("A NaN affinity should be rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("t1") && e.getMessage().contains("tag0"));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testEvaluateMatchesPairwiseAuc() throws Exception {
+		NemaTask task = new NemaTask();
+		task.setId(1);
+		task.setName("Tag affinity");
+		task.setDatasetId(1);
+		task.setSubjectTrackMetadataId(1);
+		task.setSubjectTrackMetadataName(NemaDataConstants.TAG_AFFINITY_MAP);
+		NemaDataset dataset = new NemaDataset();
+		dataset.setId(1);
+		dataset.setName("Random tags");
+
+		Random rand = new Random(5);
+		List<NemaData> groundTruth = new ArrayList<NemaData>();
+		List<NemaData> results = new ArrayList<NemaData>();
+		List<NemaTrack> tracks = new ArrayList<NemaTrack>();
+		//the evaluator sorts the lists it is given, so keep the tags by track
+		List<Set<String>> truthSets = new ArrayList<Set<String>>();
+		List<Map<String,Double>> affinityMaps = new ArrayList<Map<String,Double>>();
+		for (int i = 0; i < NUM_TRACKS; i++) {
+			Set<String> truth = new HashSet<String>();
+			Map<String,Double> affinities = new HashMap<String,Double>();
+			for (int t = 0; t < NUM_TAGS; t++) {
+				boolean applies = rand.nextDouble() < 0.2;
+				if (applies) {
+					truth.add("tag" + t);
+				}
+				//some affinities are not returned and count as 0
+				if (rand.nextDouble() < 0.9) {
+					affinities.put("tag" + t, (rand.nextInt(10) + (applies ? 3 : 0)) / 10.0);
+				}
+			}
+			truthSets.add(truth);
+			affinityMaps.add(affinities);
+			NemaData gt = new NemaData("t" + i);
+			gt.setMetadata(NemaDataConstants.TAG_CLASSIFICATIONS, truth);
+			groundTruth.add(gt);
+			NemaData result = new NemaData("t" + i);
+			result.setMetadata(NemaDataConstants.TAG_AFFINITY_MAP, affinities);
+			results.add(result);
+			tracks.add(new NemaTrack("t" + i));
+		}
+		List<NemaTrackList> testSets = new ArrayList<NemaTrackList>();
+		testSets.add(new NemaTrackList(0, 1, 3, "test", 0, tracks));
+
+		Evaluator evaluator = EvaluatorFactory.getEvaluator(NemaDataConstants.TAG_AFFINITY_MAP, task, dataset, null, testSets);
+		evaluator.setGroundTruth(groundTruth);
+		evaluator.addResults("random", "random", testSets.get(0), results);
+		NemaEvaluationResultSet resultSet = evaluator.evaluate();
+
+		Set<String> vocabulary = new HashSet<String>();
+		for (Set<String> truth : truthSets) {
+			vocabulary.addAll(truth);
+		}
+		Map<String,NemaData> trackEvals = new HashMap<String,NemaData>();
+		for (NemaData track : resultSet.getPerTrackEvaluationAndResults("random").get(testSets.get(0))) {
+			trackEvals.put(track.getId(), track);
+		}
+		List<Double> allPositives = new ArrayList<Double>();
+		List<Double> allNegatives = new ArrayList<Double>();
+		for (int i = 0; i < NUM_TRACKS; i++) {
+			List<Double> positives = new ArrayList<Double>();
+			List<Double> negatives = new ArrayList<Double>();
+			for (String tag : vocabulary) {
+				Double affinity = affinityMaps.get(i).get(tag);
+				(truthSets.get(i).contains(tag) ? positives : negatives).add(affinity == null ? 0.0 : affinity);
+			}
+			allPositives.addAll(positives);
+			allNegatives.addAll(negatives);
+			assertEquals(pairwiseAuc(positives, negatives),
+					trackEvals.get("t" + i).getDoubleMetadata(NemaDataConstants.TAG_AFFINITY_AUC_ROC), 1e-12);
+		}
+
+		NemaData fold = resultSet.getPerFoldEvaluation("random").get(testSets.get(0));
+		assertEquals(pairwiseAuc(allPositives, allNegatives), fold.getDoubleMetadata(NemaDataConstants.TAG_AFFINITY_AUC_ROC), 1e-12);
+		assertEquals(allPositives.size(), fold.getIntMetadata(NemaDataConstants.TAG_NUM_POSITIVE_EXAMPLES));
+
+		Map<String,Double> tagAuc = (Map<String,Double>)fold.getMetadata(NemaDataConstants.TAG_AFFINITY_AUC_ROC_MAP);
+		assertEquals(vocabulary.size(), tagAuc.size());
+		for (String tag : vocabulary) {
+			List<Double> positives = new ArrayList<Double>();
+			List<Double> negatives = new ArrayList<Double>();
+			for (int i = 0; i < NUM_TRACKS; i++) {
+				Double affinity = affinityMaps.get(i).get(tag);
+				(truthSets.get(i).contains(tag) ? positives : negatives).add(affinity == null ? 0.0 : affinity);
+			}
+			assertEquals(pairwiseAuc(positives, negatives), tagAuc.get(tag).doubleValue(), 1e-12);
+		}
+	}
+}
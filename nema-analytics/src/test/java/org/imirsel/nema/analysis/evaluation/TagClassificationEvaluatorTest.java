@@ -0,0 +1,168 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.imirsel.nema.analytics.evaluation.Evaluator;
+import org.imirsel.nema.analytics.evaluation.EvaluatorFactory;
+import org.imirsel.nema.analytics.evaluation.tagsClassification.TagDictionary;
+import org.imirsel.nema.model.NemaData;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.NemaDataset;
+import org.imirsel.nema.model.NemaEvaluationResultSet;
+import org.imirsel.nema.model.NemaTask;
+import org.imirsel.nema.model.NemaTrack;
+import org.imirsel.nema.model.NemaTrackList;
+import org.junit.Test;
+
+/**
+ * Checks the bitset tag evaluation against counts computed with sets.
+ */
+public class TagClassificationEvaluatorTest {
+
+	private static final int NUM_TAGS = 150;
+	private static final int NUM_TRACKS = 200;
+
+	private static Set<String> randomTags(Random rand, double p, boolean addUnknown) {
+		Set<String> tags = new HashSet<String>();
+		for (int t = 0; t < NUM_TAGS; t++) {
+			if (rand.nextDouble() < p) {
+				tags.add("tag" + t);
+			}
+		}
+		if (addUnknown) {
+			tags.add("unknown" + rand.nextInt(5));
+		}
+		return tags;
+	}
+
+	@Test
+	public void testDictionaryCounts() {
+		Random rand = new Random(7);
+		Set<String> vocabulary = new HashSet<String>();
+		for (int t = 0; t < NUM_TAGS; t++) {
+			vocabulary.add("tag" + t);
+		}
+		TagDictionary dictionary = new TagDictionary(vocabulary);
+		assertEquals(NUM_TAGS, dictionary.size());
+		assertEquals(3, dictionary.getNumWords());
+		for (int i = 0; i < 100; i++) {
+			Set<String> a = randomTags(rand, 0.3, false);
+			Set<String> b = randomTags(rand, 0.3, false);
+			long[] aBits = dictionary.toBitSet(a);
+			long[] bBits = dictionary.toBitSet(b);
+			assertEquals(a, dictionary.toSet(aBits));
+			Set<String> and = new HashSet<String>(a);
+			and.retainAll(b);
+			Set<String> andNot = new HashSet<String>(a);
+			andNot.removeAll(b);
+			assertEquals(and.size(), TagDictionary.countAnd(aBits, bBits));
+			assertEquals(andNot.size(), TagDictionary.countAndNot(aBits, bBits));
+
+			int[] counts = new int[NUM_TAGS];
+			TagDictionary.addCounts(aBits, bBits, true, counts);
+			for (int t = 0; t < NUM_TAGS; t++) {
+				assertEquals(andNot.contains(dictionary.getTag(t)) ? 1 : 0, counts[t]);
+			}
+		}
+		assertEquals(-1, dictionary.getIndex("unknown"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testEvaluateMatchesSetCounts() throws Exception {
+		NemaTask task = new NemaTask();
+		task.setId(1);
+		task.setName("Tag classification");
+		task.setDatasetId(1);
+		task.setSubjectTrackMetadataId(1);
+		task.setSubjectTrackMetadataName(NemaDataConstants.TAG_CLASSIFICATIONS);
+		NemaDataset dataset = new NemaDataset();
+		dataset.setId(1);
+		dataset.setName("Random tags");
+
+		Random rand = new Random(11);
+		List<NemaData> groundTruth = new ArrayList<NemaData>();
+		List<NemaData> results = new ArrayList<NemaData>();
+		List<NemaTrack> tracks = new ArrayList<NemaTrack>();
+		//the evaluator sorts the lists it is given, so keep the sets by track
+		List<Set<String>> truthSets = new ArrayList<Set<String>>();
+		List<Set<String>> returnedSets = new ArrayList<Set<String>>();
+		for (int i = 0; i < NUM_TRACKS; i++) {
+			NemaData gt = new NemaData("t" + i);
+			truthSets.add(randomTags(rand, 0.1, false));
+			gt.setMetadata(NemaDataConstants.TAG_CLASSIFICATIONS, truthSets.get(i));
+			groundTruth.add(gt);
+			NemaData result = new NemaData("t" + i);
+			returnedSets.add(randomTags(rand, 0.1, i % 3 == 0));
+			result.setMetadata(NemaDataConstants.TAG_CLASSIFICATIONS, returnedSets.get(i));
+			results.add(result);
+			tracks.add(new NemaTrack("t" + i));
+		}
+		List<NemaTrackList> testSets = new ArrayList<NemaTrackList>();
+		testSets.add(new NemaTrackList(0, 1, 3, "test", 0, tracks));
+
+		Evaluator evaluator = EvaluatorFactory.getEvaluator(NemaDataConstants.TAG_CLASSIFICATIONS, task, dataset, null, testSets);
+		evaluator.setGroundTruth(groundTruth);
+		evaluator.addResults("random", "random", testSets.get(0), results);
+		NemaEvaluationResultSet resultSet = evaluator.evaluate();
+
+		//reference counts computed with sets
+		Set<String> vocabulary = new HashSet<String>();
+		for (Set<String> truth : truthSets) {
+			vocabulary.addAll(truth);
+		}
+		Map<String,NemaData> trackEvals = new HashMap<String,NemaData>();
+		for (NemaData track : resultSet.getPerTrackEvaluationAndResults("random").get(testSets.get(0))) {
+			trackEvals.put(track.getId(), track);
+		}
+		int totalTp = 0, totalFp = 0, totalFn = 0;
+		for (int i = 0; i < NUM_TRACKS; i++) {
+			Set<String> truth = truthSets.get(i);
+			Set<String> returned = returnedSets.get(i);
+			Set<String> tp = new HashSet<String>(returned);
+			tp.retainAll(truth);
+			int fp = returned.size() - tp.size();
+			int fn = truth.size() - tp.size();
+			totalTp += tp.size();
+			totalFp += fp;
+			totalFn += fn;
+			NemaData track = trackEvals.get("t" + i);
+			double precision = returned.isEmpty() ? 0.0 : (double)tp.size() / returned.size();
+			double recall = truth.isEmpty() ? 0.0 : (double)tp.size() / truth.size();
+			assertEquals(precision, track.getDoubleMetadata(NemaDataConstants.TAG_PRECISION), 1e-12);
+			assertEquals(recall, track.getDoubleMetadata(NemaDataConstants.TAG_RECALL), 1e-12);
+			assertEquals((double)(vocabulary.size() - fp - fn) / vocabulary.size(),
+					track.getDoubleMetadata(NemaDataConstants.TAG_ACCURACY), 1e-12);
+		}
+
+		NemaData fold = resultSet.getPerFoldEvaluation("random").get(testSets.get(0));
+		assertEquals(totalTp + totalFn, fold.getIntMetadata(NemaDataConstants.TAG_NUM_POSITIVE_EXAMPLES));
+		assertEquals((double)totalTp / (totalTp + totalFp), fold.getDoubleMetadata(NemaDataConstants.TAG_PRECISION), 1e-12);
+		assertEquals((double)totalTp / (totalTp + totalFn), fold.getDoubleMetadata(NemaDataConstants.TAG_RECALL), 1e-12);
+
+		Map<String,Double> tagRecall = (Map<String,Double>)fold.getMetadata(NemaDataConstants.TAG_RECALL_TAG_MAP);
+		assertFalse(tagRecall.containsKey("unknown0"));
+		for (String tag : vocabulary) {
+			int tp = 0, fn = 0;
+			for (int i = 0; i < NUM_TRACKS; i++) {
+				if (truthSets.get(i).contains(tag)) {
+					if (returnedSets.get(i).contains(tag)) {
+						tp++;
+					} else {
+						fn++;
+					}
+				}
+			}
+			assertEquals((double)tp / (tp + fn), tagRecall.get(tag).doubleValue(), 1e-12);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package org.imirsel.nema.analysis.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.imirsel.nema.analytics.evaluation.resultpages.ProtovisFunctionTimestepPlotItem;
+import org.imirsel.nema.analytics.evaluation.resultpages.TimeSeriesDownsampler;
+import org.junit.Test;
+
+public class TimeSeriesDownsamplerTest {
+
+	private static double[][] makeSeries(int n, double increment) {
+		double[][] data = new double[n][2];
+		for (int i = 0; i < n; i++) {
+			data[i][0] = i * increment;
+			data[i][1] = 200.0 + 50.0 * Math.sin(i / 40.0);
+		}
+		return data;
+	}
+
+	@Test
+	public void testResample() {
+		double[][] data = {{0.0, 1}, {0.01, 2}, {0.02, 3}, {0.03, 4}, {0.04, 5}, {0.05, 6}, {0.3, 7}, {0.31, 8}};
+		double[][] out = TimeSeriesDownsampler.resample(data, 0.05);
+		//the value closest to each grid point is kept and the gap skipped
+		double[][] expected = {{0.0, 1}, {0.05, 6}, {0.3, 7}};
+		assertEquals(expected.length, out.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i][0], out[i][0], 1e-9);
+			assertEquals(expected[i][1], out[i][1], 1e-9);
+		}
+	}
+
+	@Test
+	public void testMinMaxEnvelopeKeepsPeaks() {
+		double[][] data = makeSeries(10000, 0.01);
+		data[1234][1] = 5000.0;
+		data[7777][1] = -10.0;
+		double[][] out = TimeSeriesDownsampler.minMaxEnvelope(data, 500);
+		assertTrue(out.length <= 500);
+		assertTrue(out.length > 250);
+		boolean foundPeak = false;
+		boolean foundTrough = false;
+		for (int i = 0; i < out.length; i++) {
+			foundPeak |= out[i][1] == 5000.0;
+			foundTrough |= out[i][1] == -10.0;
+			if (i > 0){
+				assertTrue(out[i][0] > out[i - 1][0]);
+			}
+		}
+		assertTrue(foundPeak);
+		assertTrue(foundTrough);
+		assertSame(data, TimeSeriesDownsampler.minMaxEnvelope(data, 20000));
+	}
+
+	@Test
+	public void testLargestTriangleThreeBuckets() {
+		double[][] data = makeSeries(10000, 0.01);
+		data[5000][1] = 5000.0;
+		double[][] out = TimeSeriesDownsampler.largestTriangleThreeBuckets(data, 300);
+		assertEquals(300, out.length);
+		assertSame(data[0], out[0]);
+		assertSame(data[9999], out[299]);
+		boolean foundPeak = false;
+		for (int i = 1; i < out.length; i++) {
+			assertTrue(out[i][0] > out[i - 1][0]);
+			foundPeak |= out[i][1] == 5000.0;
+		}
+		assertTrue(foundPeak);
+		assertSame(data, TimeSeriesDownsampler.downsample(data, TimeSeriesDownsampler.RESAMPLE_ONLY, 10));
+	}
+
+	@Test
+	public void testPlotWritesOverviewAndDetailChunks() throws Exception {
+		File dir = File.createTempFile("downsampleTest", "");
+		dir.delete();
+		dir.mkdirs();
+		int n = 5000;
+		Map<String,double[][]> series = new HashMap<String,double[][]>();
+		series.put("gt", makeSeries(n, 0.01));
+		List<String> names = new ArrayList<String>(Arrays.asList(new String[]{"gt"}));
+
+		new ProtovisFunctionTimestepPlotItem("lod", "lod", 0, n * 0.01, 0.01, 0.01, "Hz", series, names, dir,
+				true, TimeSeriesDownsampler.MIN_MAX_ENVELOPE, 1000);
+		String main = FileUtils.readFileToString(new File(dir, "lod.js"));
+		assertTrue(main.contains("var lod_detail = {name:\"lod\",d:10,n:5};\n"));
+		for (int k = 0; k < 5; k++) {
+			String chunk = FileUtils.readFileToString(new File(dir, "lod_detail_" + k + ".js"));
+			assertTrue(chunk.startsWith("nema_addDetail(\"lod\"," + k + ",nema_decodeFunctionSeries([{x:[" + (k * 10000) + ",10,10,"));
+			assertTrue(chunk.endsWith("],3));\n"));
+		}
+		assertTrue(!new File(dir, "lod_detail_5.js").exists());
+
+		new ProtovisFunctionTimestepPlotItem("full", "full", 0, n * 0.01, 0.01, 0.01, "Hz", series, names, dir,
+				true, TimeSeriesDownsampler.MIN_MAX_ENVELOPE, 10000);
+		String full = FileUtils.readFileToString(new File(dir, "full.js"));
+		assertTrue(full.contains("var full_detail = null;\n"));
+		assertTrue(!new File(dir, "full_detail_0.js").exists());
+		FileUtils.deleteDirectory(dir);
+	}
+}
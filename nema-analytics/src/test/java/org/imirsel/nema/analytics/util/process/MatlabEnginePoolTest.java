@@ -0,0 +1,117 @@
+package org.imirsel.nema.analytics.util.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the MATLAB engine pool against fake-matlab.sh, which runs the
+ * function called by each command as a shell script.
+ */
+public class MatlabEnginePoolTest {
+
+	private File dir;
+	private MatlabEnginePool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = File.createTempFile("matlabEngine", "");
+		dir.delete();
+		dir.mkdirs();
+		File fakeMatlab = new File(getClass().getResource("fake-matlab.sh").toURI());
+		pool = new MatlabEnginePool(new File("/bin/sh"), 2);
+		pool.setMatlabArgs(fakeMatlab.getAbsolutePath() + " -nodesktop -nosplash");
+		pool.addPath(dir);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pool.close();
+		FileUtils.deleteDirectory(dir);
+	}
+
+	private void writeFunction(String name, String script) throws Exception {
+		FileUtils.writeStringToFile(new File(dir, name + ".sh"), script);
+	}
+
+	@Test
+	public void testExecutorReusesEngine() throws Exception {
+		writeFunction("evaluate", "echo evaluated >> results.txt\n");
+		MatlabExecutorImpl executor = new MatlabExecutorImpl(dir, true, dir, dir, dir, "", "evaluate", null);
+		executor.setEnginePool(pool);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, executor.runCommand(null));
+		}
+		assertEquals(3, FileUtils.readLines(new File(dir, "results.txt")).size());
+		assertEquals(1, pool.getNumEngines());
+		assertEquals(1, pool.getNumIdle());
+
+		//errors are reported without losing the engine
+		assertEquals(MatlabEngine.STATUS_ERROR, pool.eval(dir, "missingFunction", null));
+		writeFunction("failing", "exit 3\n");
+		assertEquals(MatlabEngine.STATUS_ERROR, pool.eval(dir, "failing('arg')", null));
+		//a command that fails to parse is reported as an error rather than hanging the engine
+		assertEquals(MatlabEngine.STATUS_ERROR, pool.eval(dir, "evaluate('it's')", null));
+		assertEquals(0, executor.runCommand(null));
+		assertEquals(1, pool.getNumEngines());
+		assertEquals(0, pool.getNumReplaced());
+	}
+
+	@Test
+	public void testCrashedEngineIsReplaced() throws Exception {
+		//kill the fake interpreter
+		writeFunction("crash", "kill -9 $PPID\n");
+		writeFunction("evaluate", "true\n");
+		assertEquals(MatlabEngine.STATUS_CRASHED, pool.eval(dir, "crash", null));
+		assertEquals(0, pool.getNumEngines());
+		assertEquals(0, pool.eval(dir, "evaluate", null));
+		assertEquals(1, pool.getNumEngines());
+
+		//an engine killed while idle is replaced when next borrowed
+		MatlabEngine engine = pool.borrow();
+		pool.release(engine);
+		engine.kill();
+		assertEquals(0, pool.eval(dir, "evaluate", null));
+		assertEquals(2, pool.getNumReplaced());
+	}
+
+	@Test
+	public void testConcurrentCommandsShareEngines() throws Exception {
+		writeFunction("slow", "sleep 0.2\n");
+		pool.warmUp();
+		assertEquals(2, pool.getNumIdle());
+		final List<Integer> statuses = Collections.synchronizedList(new ArrayList<Integer>());
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 6; i++) {
+			Thread t = new Thread() {
+				public void run() {
+					try {
+						statuses.add(pool.eval(dir, "slow", null));
+					} catch (Exception e) {
+						statuses.add(-2);
+					}
+				}
+			};
+			threads.add(t);
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join(30000);
+		}
+		assertEquals(6, statuses.size());
+		for (Integer status : statuses) {
+			assertEquals(0, status.intValue());
+		}
+		assertTrue(pool.getNumEngines() <= 2);
+		assertEquals(0, pool.getNumReplaced());
+	}
+}
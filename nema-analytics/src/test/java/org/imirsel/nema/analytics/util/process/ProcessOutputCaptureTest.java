@@ -0,0 +1,122 @@
+package org.imirsel.nema.analytics.util.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class ProcessOutputCaptureTest {
+
+	private static byte[] makeOutput(int numLines) throws Exception {
+		StringBuilder out = new StringBuilder();
+		for (int i = 0; i < numLines; i++) {
+			out.append("line ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		out.append("no newline");
+		return out.toString().getBytes("UTF-8");
+	}
+
+	@Test
+	public void testTailAndLogger() throws Exception {
+		final List<String> messages = new ArrayList<String>();
+		Logger logger = Logger.getAnonymousLogger();
+		logger.setUseParentHandlers(false);
+		logger.addHandler(new Handler() {
+			public void publish(LogRecord record) {
+				messages.add(record.getMessage());
+			}
+			public void flush() {}
+			public void close() {}
+		});
+
+		byte[] output = makeOutput(20000);
+		ProcessOutputCapture capture = new ProcessOutputCapture(new ByteArrayInputStream(output), logger, 1024, null, 0);
+		capture.start();
+		assertTrue(capture.waitFor(10000));
+		assertTrue(capture.isFinished());
+		assertEquals(output.length, capture.getTotalBytes());
+		assertTrue(capture.getBytesPerSecond() > 0.0);
+
+		//every line is logged once, in order, in a few large messages
+		StringBuilder logged = new StringBuilder();
+		for (String message : messages) {
+			logged.append(message).append("\n");
+		}
+		assertEquals(new String(output, "UTF-8").replace("\r", "") + "\n", logged.toString());
+		assertTrue(messages.size() < 100);
+
+		List<String> last = capture.getLastLines(3);
+		assertEquals(3, last.size());
+		assertEquals("line 19998", last.get(0));
+		assertEquals("line 19999", last.get(1));
+		assertEquals("no newline", last.get(2));
+		String tail = capture.getTail();
+		assertTrue(tail.length() <= 1024);
+		assertTrue(tail.startsWith("line "));
+		assertTrue(tail.endsWith("line 19999\r\nno newline"));
+		//only the lines held in the 1k buffer are available
+		int numHeld = capture.getLastLines(1000).size();
+		assertTrue(numHeld > 50 && numHeld < 100);
+	}
+
+	@Test
+	public void testLongLineIsLoggedInPieces() throws Exception {
+		final List<String> messages = new ArrayList<String>();
+		Logger logger = Logger.getAnonymousLogger();
+		logger.setUseParentHandlers(false);
+		logger.addHandler(new Handler() {
+			public void publish(LogRecord record) {
+				messages.add(record.getMessage());
+			}
+			public void flush() {}
+			public void close() {}
+		});
+
+		byte[] output = new byte[ProcessOutputCapture.MAX_LINE_LENGTH * 2 + 10];
+		Arrays.fill(output, (byte)'x');
+		ProcessOutputCapture capture = new ProcessOutputCapture(new ByteArrayInputStream(output), logger, 1024, null, 0);
+		capture.run();
+		assertEquals(3, messages.size());
+		assertEquals(ProcessOutputCapture.MAX_LINE_LENGTH, messages.get(0).length());
+		assertEquals(ProcessOutputCapture.MAX_LINE_LENGTH, messages.get(1).length());
+		assertEquals(10, messages.get(2).length());
+
+		try {
+			capture.getLastLines(-1);
+			fail("A negative number of lines should be rejected");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void testRollingLogFile() throws Exception {
+		File dir = File.createTempFile("outputCapture", "");
+		dir.delete();
+		dir.mkdirs();
+		File log = new File(dir, "process.log");
+		byte[] output = makeOutput(5000);
+		ProcessOutputCapture capture = new ProcessOutputCapture(new ByteArrayInputStream(output), null, 4096, log, 16 * 1024);
+		capture.run();
+
+		File rolled = new File(dir, "process.log.1");
+		assertTrue(rolled.exists());
+		assertTrue(log.length() <= 16 * 1024);
+		assertTrue(rolled.length() <= 16 * 1024);
+		String end = FileUtils.readFileToString(rolled) + FileUtils.readFileToString(log);
+		assertTrue(new String(output, "UTF-8").endsWith(end));
+		assertTrue(end.length() > 16 * 1024);
+		FileUtils.deleteDirectory(dir);
+	}
+}
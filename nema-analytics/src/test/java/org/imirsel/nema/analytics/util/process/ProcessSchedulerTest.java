@@ -0,0 +1,148 @@
+package org.imirsel.nema.analytics.util.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessSchedulerTest {
+
+	private File dir;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = File.createTempFile("scheduler", "");
+		dir.delete();
+		dir.mkdirs();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(dir);
+	}
+
+	private ProcessJob makeJob(String name, String script) {
+		CommandLineExecutorImpl executor = new CommandLineExecutorImpl(new File(dir, name + ".out"), false,
+				dir, dir, dir, "$m -c $1", new File("/bin/sh"), null);
+		//$1 refers to the second input
+		return new ProcessJob(name, executor, new Object[]{"unused", script});
+	}
+
+	@Test
+	public void testSlotLimit() throws Exception {
+		ProcessScheduler scheduler = new ProcessScheduler(2, 1000);
+		List<Future<ProcessJobResult>> futures = new ArrayList<Future<ProcessJobResult>>();
+		for (int i = 0; i < 6; i++) {
+			//each job records the number of jobs running alongside it
+			ProcessJob job = makeJob("job" + i, "touch run." + i + "; ls run.* | wc -l > count." + i
+					+ "; sleep 0.3; rm run." + i);
+			job.setMemoryBytes(i == 0 ? 1000 : 10);
+			futures.add(scheduler.submit(job));
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			ProcessJobResult result = futures.get(i).get(30, TimeUnit.SECONDS);
+			assertEquals(0, result.getExitStatus());
+			assertTrue(result.isSuccessful());
+			assertEquals(1, result.getAttempts());
+			assertTrue(result.getWallTimeMillis() >= 300);
+			int running = Integer.parseInt(FileUtils.readFileToString(new File(dir, "count." + i)).trim());
+			assertTrue("job " + i + " ran alongside " + running, running <= (i == 0 ? 1 : 2));
+		}
+		assertEquals(0, scheduler.getSlotsInUse());
+		assertEquals(0, scheduler.getMemoryInUse());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testTimeoutAndRetries() throws Exception {
+		ProcessScheduler scheduler = new ProcessScheduler(4, Long.MAX_VALUE);
+		ProcessJob slow = makeJob("slow", "exec sleep 20");
+		slow.setTimeoutMillis(300);
+		slow.setMaxRetries(1);
+		ProcessJob failing = makeJob("failing", "echo x >> attempts; exit 3");
+		failing.setMaxRetries(2);
+
+		ProcessJobResult slowResult = scheduler.submit(slow).get(30, TimeUnit.SECONDS);
+		assertTrue(slowResult.isTimedOut());
+		assertFalse(slowResult.isSuccessful());
+		assertEquals(2, slowResult.getAttempts());
+		assertTrue(slowResult.getWallTimeMillis() < 5000);
+		//sampled from /proc while the process runs
+		assertTrue(slowResult.getCpuTimeMillis() >= 0);
+
+		ProcessJobResult failingResult = scheduler.submit(failing).get(30, TimeUnit.SECONDS);
+		assertEquals(3, failingResult.getExitStatus());
+		assertEquals(3, failingResult.getAttempts());
+		assertEquals(3, FileUtils.readLines(new File(dir, "attempts")).size());
+		scheduler.shutdown();
+	}
+
+	private void waitForFile(File file) throws InterruptedException {
+		for (int i = 0; i < 300 && !file.exists(); i++) {
+			Thread.sleep(20);
+		}
+		assertTrue(file.exists());
+	}
+
+	@Test
+	public void testCancelRunningJobWithRetries() throws Exception {
+		ProcessScheduler scheduler = new ProcessScheduler(1, Long.MAX_VALUE);
+		ProcessJob job = makeJob("cancelled", "echo x >> attempts; exec sleep 20");
+		job.setMaxRetries(3);
+		Future<ProcessJobResult> future = scheduler.submit(job);
+		waitForFile(new File(dir, "attempts"));
+		assertTrue(future.cancel(false));
+
+		//the slot is freed once the killed attempt ends and no retry is started
+		ProcessJobResult next = scheduler.submit(makeJob("next", "true")).get(10, TimeUnit.SECONDS);
+		assertTrue(next.isSuccessful());
+		Thread.sleep(300);
+		assertEquals(1, FileUtils.readLines(new File(dir, "attempts")).size());
+		assertEquals(0, scheduler.getSlotsInUse());
+		scheduler.shutdown();
+		assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testShutdownNowKillsRunningJobs() throws Exception {
+		ProcessScheduler scheduler = new ProcessScheduler(1, Long.MAX_VALUE);
+		ProcessJob job = makeJob("running", "echo x >> attempts; exec sleep 20");
+		job.setMaxRetries(3);
+		Future<ProcessJobResult> running = scheduler.submit(job);
+		Future<ProcessJobResult> queued = scheduler.submit(makeJob("queued", "touch queued"));
+		waitForFile(new File(dir, "attempts"));
+		assertEquals(1, scheduler.shutdownNow());
+		assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+		ProcessJobResult result = running.get(1, TimeUnit.SECONDS);
+		assertFalse(result.isSuccessful());
+		assertEquals(1, result.getAttempts());
+		assertTrue(result.getWallTimeMillis() < 5000);
+		assertTrue(queued.isCancelled());
+		assertFalse(new File(dir, "queued").exists());
+	}
+
+	@Test
+	public void testOversizedJob() throws Exception {
+		ProcessScheduler scheduler = new ProcessScheduler(1, 100);
+		ProcessJob job = makeJob("big", "true");
+		job.setMemoryBytes(101);
+		try {
+			scheduler.submit(job);
+			fail("A job larger than the memory budget should be rejected");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		scheduler.shutdown();
+	}
+}
@@ -0,0 +1,48 @@
+#!/bin/sh
+# Stand-in for the MATLAB interpreter, for testing MatlabEngine and
+# MatlabEnginePool without MATLAB installed. Reads the commands written by
+# MatlabEngine from stdin, one per line, and:
+#  - changes to the directory given to cd(...), if any,
+#  - unquotes the command passed to eval(...) in the try block, reporting a
+#    command with unbalanced quotes as a MATLAB parse error,
+#  - runs the function called by the command as the shell script
+#    <function>.sh in that directory, passing its arguments as $1,
+#  - reports a missing script or non-zero exit status as a MATLAB error,
+#  - ignores addpath and empty commands,
+#  - exits on exit or quit,
+# then prints the sentinel line with the status, joining the two halves of
+# the token as MATLAB would.
+echo "Fake MATLAB started with arguments: $*"
+while IFS= read -r line; do
+	dir=$(printf '%s\n' "$line" | sed -n "s/.*cd('\([^']*\)').*/\1/p")
+	command=$(printf '%s\n' "$line" | sed -n "s/.*try, eval('\(.*\)'); nemaStatus = 0;.*/\1/p" | sed "s/''/'/g")
+	func=$(printf '%s\n' "$command" | sed -n "s/^\([A-Za-z0-9_]*\).*/\1/p")
+	args=$(printf '%s\n' "$command" | sed -n "s/^[A-Za-z0-9_]*(\([^)]*\)).*/\1/p")
+	token=$(printf '%s\n' "$line" | sed -n "s/.*\['\([A-Za-z0-9_]*\)' '\([A-Za-z0-9_]*\)'\], nemaStatus.*/\1\2/p")
+	if [ -n "$dir" ]; then
+		cd "$dir" || exit 2
+	fi
+	status=0
+	quotes=$(printf '%s' "$command" | tr -cd "'" | wc -c)
+	if [ $((quotes % 2)) -ne 0 ]; then
+		echo "Error: String is not terminated properly."
+		func=""
+		status=1
+	fi
+	case "$func" in
+		""|addpath)
+			;;
+		exit|quit)
+			exit 0
+			;;
+		*)
+			if [ -f "$func.sh" ]; then
+				sh "$func.sh" "$args" || { echo "Error using $func"; status=1; }
+			else
+				echo "Undefined function or variable '$func'."
+				status=1
+			fi
+			;;
+	esac
+	printf '\n%s %d\n' "$token" "$status"
+done
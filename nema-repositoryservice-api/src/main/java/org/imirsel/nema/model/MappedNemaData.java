@@ -0,0 +1,266 @@
+package org.imirsel.nema.model;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+import org.imirsel.nema.model.NemaDataBinaryFormat.Decoder;
+
+/**
+ * Read-only view of a NemaData record in the format written by
+ * {@link NemaDataBinaryFormat}, usually memory-mapped from a file. Only the
+ * key directory is decoded when the view is created, each value is decoded
+ * from the buffer when it is retrieved, so that a single key may be fetched
+ * without parsing the whole record.
+ *
+ * Values are decoded into new arrays on each call, so callers may modify
+ * them. Instances are thread-safe.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class MappedNemaData {
+
+	private final ByteBuffer buffer;
+	private final int[] stringOffsets;
+	private final String[] strings;
+	private final String[] keys;
+	private final byte[] types;
+	private final int[] offsets;
+	private final HashMap<String,Integer> keyIndex;
+
+	/**
+	 * Creates a view of the record held from the buffer's position to its
+	 * limit.
+	 * @param record The record.
+	 * @throws IllegalArgumentException Thrown if the record is not in the
+	 * binary format, is of a later version or is corrupt.
+	 */
+	public MappedNemaData(ByteBuffer record) throws IllegalArgumentException{
+		buffer = record.slice().order(ByteOrder.LITTLE_ENDIAN);
+		try{
+			for (int i = 0; i < NemaDataBinaryFormat.MAGIC.length; i++) {
+				if (buffer.get(i) != NemaDataBinaryFormat.MAGIC[i]){
+					throw new IllegalArgumentException("Not a binary NemaData record");
+				}
+			}
+			int version = buffer.get(NemaDataBinaryFormat.MAGIC.length);
+			if (version > NemaDataBinaryFormat.VERSION){
+				throw new IllegalArgumentException("Binary NemaData record is version " + version
+						+ ", this reader supports up to version " + NemaDataBinaryFormat.VERSION);
+			}
+			Decoder in = new Decoder(buffer, NemaDataBinaryFormat.MAGIC.length + 1);
+
+			//index the string table, strings are decoded when first used
+			int numStrings = in.readLength();
+			stringOffsets = new int[numStrings];
+			strings = new String[numStrings];
+			for (int i = 0; i < numStrings; i++) {
+				stringOffsets[i] = in.position();
+				in.skip(in.readLength());
+			}
+
+			int numKeys = in.readLength();
+			keys = new String[numKeys];
+			types = new byte[numKeys];
+			offsets = new int[numKeys];
+			keyIndex = new HashMap<String,Integer>(numKeys * 2);
+			for (int i = 0; i < numKeys; i++) {
+				keys[i] = NemaDataKey.intern(string(in.readVarint()));
+				types[i] = in.readByte();
+				offsets[i] = in.readVarint();
+				keyIndex.put(keys[i], i);
+			}
+			int dataLength = in.readLength();
+			int dataStart = in.position();
+			for (int i = 0; i < numKeys; i++) {
+				if (offsets[i] >= dataLength){
+					throw new IllegalArgumentException("Value of metadata '" + keys[i] + "' starts past the end of the record");
+				}
+				offsets[i] += dataStart;
+			}
+		}catch(IndexOutOfBoundsException e){
+			throw new IllegalArgumentException("Binary NemaData record is truncated", e);
+		}
+	}
+
+	/**
+	 * Maps a file holding a single binary record.
+	 * @param theFile The file to map.
+	 * @return The view of the record.
+	 * @throws IOException Thrown if the file can't be read.
+	 * @throws IllegalArgumentException Thrown if the file is not in the binary
+	 * format or is corrupt.
+	 */
+	public static MappedNemaData open(File theFile) throws IOException, IllegalArgumentException{
+		if (!theFile.exists()){
+			throw new FileNotFoundException("MappedNemaData.open(): The specified file does not exist!\n File: " + theFile.getPath());
+		}
+		RandomAccessFile raf = new RandomAccessFile(theFile, "r");
+		try{
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE){
+				throw new IllegalArgumentException("MappedNemaData.open(): File is too large to be a NemaData record: " + theFile.getPath());
+			}
+			//the mapping remains valid once the file is closed
+			return new MappedNemaData(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}finally{
+			raf.close();
+		}
+	}
+
+	private String string(int idx){
+		String out = strings[idx];
+		if (out == null){
+			//racing threads decode equal Strings, so the cache needs no locking
+			Decoder in = new Decoder(buffer, stringOffsets[idx]);
+			out = in.readUTF8(in.readLength());
+			strings[idx] = out;
+		}
+		return out;
+	}
+
+	/**
+	 * Lists the metadata keys held in the record.
+	 * @return The keys, in the order they were written.
+	 */
+	public String[] metadataKeys(){
+		return keys.clone();
+	}
+
+	public boolean hasMetadata(String key){
+		return keyIndex.containsKey(key);
+	}
+
+	public String getId() throws IllegalArgumentException{
+		return getStringMetadata(NemaDataConstants.PROP_ID);
+	}
+
+	private int indexOf(String key) throws IllegalArgumentException{
+		Integer idx = keyIndex.get(key);
+		if (idx == null){
+			throw new IllegalArgumentException("There is no metadata corresponding to the supplied key in the binary record!\n" +
+					"Key supplied = " + key);
+		}
+		return idx;
+	}
+
+	/**
+	 * Decodes the value of a single key.
+	 * @param key The key to return the value for.
+	 * @return The value, boxed if an int or double.
+	 * @throws IllegalArgumentException Thrown if the key does not exist or the
+	 * value is corrupt.
+	 */
+	public Object getMetadata(String key) throws IllegalArgumentException{
+		return decode(indexOf(key));
+	}
+
+	public int getIntMetadata(String key) throws IllegalArgumentException{
+		int i = indexOf(key);
+		if (types[i] != NemaDataBinaryFormat.TYPE_INT){
+			throw new ClassCastException("Metadata '" + key + "' is not an int");
+		}
+		return buffer.getInt(offsets[i]);
+	}
+
+	public double getDoubleMetadata(String key) throws IllegalArgumentException{
+		int i = indexOf(key);
+		if (types[i] != NemaDataBinaryFormat.TYPE_DOUBLE){
+			throw new ClassCastException("Metadata '" + key + "' is not a double");
+		}
+		return buffer.getDouble(offsets[i]);
+	}
+
+	public String getStringMetadata(String key) throws IllegalArgumentException{
+		return (String)getMetadata(key);
+	}
+
+	public int[] getIntArrayMetadata(String key) throws IllegalArgumentException{
+		return (int[])getMetadata(key);
+	}
+
+	public double[] getDoubleArrayMetadata(String key) throws IllegalArgumentException{
+		return (double[])getMetadata(key);
+	}
+
+	public String[] getStringArrayMetadata(String key) throws IllegalArgumentException{
+		return (String[])getMetadata(key);
+	}
+
+	public double[][] get2dDoubleArrayMetadata(String key) throws IllegalArgumentException{
+		return (double[][])getMetadata(key);
+	}
+
+	/**
+	 * Decodes every value in the record.
+	 * @return A NemaData holding all of the metadata in the record.
+	 * @throws IllegalArgumentException Thrown if a value is corrupt.
+	 */
+	public NemaData toNemaData() throws IllegalArgumentException{
+		NemaData out = new NemaData();
+		for (int i = 0; i < keys.length; i++) {
+			out.setMetadata(keys[i], decode(i));
+		}
+		return out;
+	}
+
+	private Object decode(int i) throws IllegalArgumentException{
+		Decoder in = new Decoder(buffer, offsets[i]);
+		try{
+			switch(types[i]){
+			case NemaDataBinaryFormat.TYPE_INT:
+				return Integer.valueOf(in.readInt());
+			case NemaDataBinaryFormat.TYPE_DOUBLE:
+				return Double.valueOf(in.readDouble());
+			case NemaDataBinaryFormat.TYPE_STRING:
+				return string(in.readVarint());
+			case NemaDataBinaryFormat.TYPE_INT_ARRAY:
+				return in.readInts();
+			case NemaDataBinaryFormat.TYPE_DOUBLE_ARRAY:
+				return in.readDoubles();
+			case NemaDataBinaryFormat.TYPE_STRING_ARRAY:
+				return readStrings(in);
+			case NemaDataBinaryFormat.TYPE_2D_INT_ARRAY:{
+				int[][] out = new int[in.readLength()][];
+				for (int r = 0; r < out.length; r++) {
+					out[r] = in.readInts();
+				}
+				return out;
+			}
+			case NemaDataBinaryFormat.TYPE_2D_DOUBLE_ARRAY:{
+				double[][] out = new double[in.readLength()][];
+				for (int r = 0; r < out.length; r++) {
+					out[r] = in.readDoubles();
+				}
+				return out;
+			}
+			case NemaDataBinaryFormat.TYPE_2D_STRING_ARRAY:{
+				String[][] out = new String[in.readLength()][];
+				for (int r = 0; r < out.length; r++) {
+					out[r] = readStrings(in);
+				}
+				return out;
+			}
+			default:
+				throw new IllegalArgumentException("Unknown type " + types[i] + " for metadata '" + keys[i] + "'");
+			}
+		}catch(IndexOutOfBoundsException e){
+			throw new IllegalArgumentException("Value of metadata '" + keys[i] + "' is truncated", e);
+		}
+	}
+
+	private String[] readStrings(Decoder in){
+		String[] out = new String[in.readLength()];
+		for (int s = 0; s < out.length; s++) {
+			int idx = in.readVarint();
+			out[s] = idx == 0 ? null : string(idx - 1);
+		}
+		return out;
+	}
+}
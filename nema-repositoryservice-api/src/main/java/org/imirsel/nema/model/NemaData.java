@@ -11,10 +11,15 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.Map;
 
 /**
  * A multi-purpose data-structure so be used to store, index and retrieve data and metadata
@@ -22,9 +27,15 @@ import java.util.Set;
  * 
  * Note: in the current implementation string constants are declared in this class for representing
  * different items of data. The value of these constants is likely to change in future, which will 
- * break files written to disk at that time. Further no typing is provided at present and hence,
- * retrieval methods currently require the user to know the type of the data they are retrieving
- * or setting and therefore to not mix types for the same key. 
+ * break files written to disk at that time. Typing is provided only for the keys declared in 
+ * {@link NemaDataKey}, for other keys retrieval methods require the user to know the type of the 
+ * data they are retrieving or setting and therefore to not mix types for the same key. 
+ * 
+ * Metadata is held in a flat open-addressing table keyed on interned key names. Double and 
+ * Integer values are stored unboxed (and boxed again only if retrieved with 
+ * {@link #getMetadata(String)}), 2D double arrays may be stored by column with 
+ * {@link #setDoubleColumnsMetadata(String, double[][])} and all other values are stored 
+ * by reference.
  * 
  * @author kris.west@gmail.com
  */
@@ -32,22 +43,40 @@ public class NemaData implements Serializable, Comparable<NemaData>{
 
     public static final long serialVersionUID = -1234567894463456789L;
     
-    /**
-     * The metadata hashmap.
-     */
-    private HashMap<String,Object> metadata;
+    /** Serialized as a single map of the metadata, as before values were stored unboxed. */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("metadata", HashMap.class)
+    };
+    
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private static final byte SLOT_EMPTY = 0;
+    private static final byte SLOT_DOUBLE = 1;
+    private static final byte SLOT_INT = 2;
+    private static final byte SLOT_OBJECT = 3;
+    private static final byte SLOT_COLUMNS = 4;
+    
+    /** The interned metadata keys, null for an empty slot. */
+    private transient String[] keys;
+    /** The kind of value held in each slot. */
+    private transient byte[] slotTypes;
+    /** Double and int values. */
+    private transient double[] numbers;
+    /** All other values, including the columns of column-wise 2D arrays. */
+    private transient Object[] objects;
+    private transient int size;
     
     /** Creates a new instance of NemaData */
     public NemaData() {
-        metadata = new HashMap<String,Object>();
+        init(INITIAL_CAPACITY);
     }
     
     /** Creates a new instance of NemaData with the file location as metadata
      *  @param fileLocation Original location of evaluation file, used as an identifier
      */
     public NemaData(String id) {
-        metadata = new HashMap<String,Object>();
-        metadata.put(NemaDataConstants.PROP_ID, id);
+        init(INITIAL_CAPACITY);
+        setMetadata(NemaDataConstants.PROP_ID, id);
     }
     
     /**
@@ -56,14 +85,156 @@ public class NemaData implements Serializable, Comparable<NemaData>{
      * @param oldObj The NemaData to copy
      */
     public NemaData(NemaData oldObj) {
-        //copy metadata
-        metadata = new HashMap<String,Object>();
-        Set<String> keys = oldObj.metadata.keySet();
-        String[] keysArray = keys.toArray(new String[keys.size()]);
-        for (int i=0;i<keysArray.length;i++) {
-            metadata.put(new String(keysArray[i]), oldObj.metadata.get(keysArray[i]));
+        //copy the table, values are mapped to the original value instances
+        keys = oldObj.keys.clone();
+        slotTypes = oldObj.slotTypes.clone();
+        numbers = oldObj.numbers.clone();
+        objects = oldObj.objects.clone();
+        size = oldObj.size;
+    }
+    
+    private void init(int capacity){
+        keys = new String[capacity];
+        slotTypes = new byte[capacity];
+        numbers = new double[capacity];
+        objects = new Object[capacity];
+        size = 0;
+    }
+    
+    private static int hash(String key){
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Returns the slot holding the key or -1 if there is none.
+     */
+    private int indexOf(String key){
+        if (key == null){
+            return -1;
         }
-        //this is only copying/cloning keys and just mapping to original value instance
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        String k;
+        while((k = keys[i]) != null){
+            if (k == key || k.equals(key)){
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the slot for an interned key, claiming an empty one if the 
+     * key isn't present.
+     */
+    private int slotFor(String key){
+        int i = indexOf(key);
+        if (i != -1){
+            return i;
+        }
+        if ((size + 1) * 4 > keys.length * 3){
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        i = hash(key) & mask;
+        while(keys[i] != null){
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        size++;
+        return i;
+    }
+    
+    private void resize(int capacity){
+        String[] oldKeys = keys;
+        byte[] oldTypes = slotTypes;
+        double[] oldNumbers = numbers;
+        Object[] oldObjects = objects;
+        keys = new String[capacity];
+        slotTypes = new byte[capacity];
+        numbers = new double[capacity];
+        objects = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null){
+                int i = hash(oldKeys[j]) & mask;
+                while(keys[i] != null){
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                slotTypes[i] = oldTypes[j];
+                numbers[i] = oldNumbers[j];
+                objects[i] = oldObjects[j];
+            }
+        }
+    }
+    
+    private void put(String key, Object value){
+        int i = slotFor(NemaDataKey.intern(key));
+        if (value instanceof Double){
+            slotTypes[i] = SLOT_DOUBLE;
+            numbers[i] = ((Double)value).doubleValue();
+            objects[i] = null;
+        }else if (value instanceof Integer){
+            slotTypes[i] = SLOT_INT;
+            numbers[i] = ((Integer)value).intValue();
+            objects[i] = null;
+        }else{
+            slotTypes[i] = SLOT_OBJECT;
+            numbers[i] = 0;
+            objects[i] = value;
+        }
+    }
+    
+    /**
+     * Returns the value in a slot, boxing numbers and converting column-wise 
+     * arrays to rows.
+     */
+    private Object valueAt(int i){
+        switch(slotTypes[i]){
+            case SLOT_DOUBLE:
+                return Double.valueOf(numbers[i]);
+            case SLOT_INT:
+                return Integer.valueOf((int)numbers[i]);
+            case SLOT_COLUMNS:
+                return columnsToRows((double[][])objects[i]);
+            default:
+                return objects[i];
+        }
+    }
+    
+    private static double[][] columnsToRows(double[][] columns){
+        int numRows = columns.length == 0 ? 0 : columns[0].length;
+        double[][] rows = new double[numRows][columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            double[] column = columns[c];
+            for (int r = 0; r < numRows; r++) {
+                rows[r][c] = column[r];
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * Returns the slot for a key or throws an exception listing the 
+     * available keys.
+     */
+    private int requireIndex(String key) throws IllegalArgumentException {
+        int i = indexOf(key);
+        if (i == -1) {
+            String[] available = metadataKeys();
+            String keyString = "";
+            for (int j=0;j<available.length;j++) {
+                keyString += available[j] + "\n";
+            }
+            throw new IllegalArgumentException("There is no metadata corresponding to the supplied key for NemaData id: " + this.getId() + "!\n" +
+                    "Key supplied = " + key + "\n" +
+                    "Keys available:\n" +
+                    keyString);
+        }
+        return i;
     }
     
     /**
@@ -74,7 +245,7 @@ public class NemaData implements Serializable, Comparable<NemaData>{
      * for the specified key.
      */
     public boolean hasMetadata(String key){
-        return metadata.containsKey(key);
+        return indexOf(key) != -1;
     }
     
     /**
@@ -112,12 +283,14 @@ public class NemaData implements Serializable, Comparable<NemaData>{
      * the specified <code>key</code>. If there is already metadata 
      * corresponding to the supplied key it is replaced. Primitive datatypes 
      * must be wrapped in Object based datatypes, e.g. int is wrapped
-     * in the Integer class, double is wrapped in the Double class.
+     * in the Integer class, double is wrapped in the Double class, although 
+     * they are stored unwrapped.
      * @param key The key to be added to the <code>metadata</code> 
      * <code>HashMap</code>.
      * @param value The value to be added to the <code>metadata</code>
      * <code>HashMap</code>.
-     * @throws IllegalArgumentException Thrown if either key and value are null.
+     * @throws IllegalArgumentException Thrown if either key and value are 
+     * null, or the value is not of the type declared for the key.
      */
     public void setMetadata(String key, Object value) throws IllegalArgumentException {
     	if(key == null)
@@ -128,7 +301,104 @@ public class NemaData implements Serializable, Comparable<NemaData>{
         {
         	throw new IllegalArgumentException("The value must not be null! key=" + key);
         }
-        metadata.put(key, value);
+    	NemaDataKey.forName(key).checkValue(value);
+        put(key, value);
+    }
+    
+    /**
+     * Sets a double value, without boxing it.
+     * @param key The key to set.
+     * @param value The value.
+     * @throws IllegalArgumentException Thrown if the key is null or is 
+     * declared to hold another type.
+     * @since 0.4.1
+     */
+    public void setDoubleMetadata(String key, double value) throws IllegalArgumentException {
+        checkNumberKey(key, NemaDataKey.TYPE_DOUBLE);
+        int i = slotFor(NemaDataKey.intern(key));
+        slotTypes[i] = SLOT_DOUBLE;
+        numbers[i] = value;
+        objects[i] = null;
+    }
+    
+    /**
+     * Sets an int value, without boxing it.
+     * @param key The key to set.
+     * @param value The value.
+     * @throws IllegalArgumentException Thrown if the key is null or is 
+     * declared to hold another type.
+     * @since 0.4.1
+     */
+    public void setIntMetadata(String key, int value) throws IllegalArgumentException {
+        checkNumberKey(key, NemaDataKey.TYPE_INT);
+        int i = slotFor(NemaDataKey.intern(key));
+        slotTypes[i] = SLOT_INT;
+        numbers[i] = value;
+        objects[i] = null;
+    }
+    
+    private static void checkNumberKey(String key, int type) throws IllegalArgumentException {
+        if(key == null){
+            throw new IllegalArgumentException("The key must not be null!");
+        }
+        int declared = NemaDataKey.forName(key).getType();
+        if (declared != NemaDataKey.TYPE_ANY && declared != type){
+            throw new IllegalArgumentException("Metadata key '" + key + "' is declared to hold another type of value");
+        }
+    }
+    
+    /**
+     * Sets a 2D double array, such as a time series of frames, stored by 
+     * column. Each column may be retrieved without copying with 
+     * {@link #getDoubleColumnMetadata(String, int)}, while 
+     * {@link #get2dDoubleArrayMetadata(String)} returns a new row-wise copy.
+     * @param key The key to set.
+     * @param columns The columns, each of the same length.
+     * @throws IllegalArgumentException Thrown if the key or columns are null, 
+     * the columns differ in length or the key is declared to hold another 
+     * type.
+     * @since 0.4.1
+     */
+    public void setDoubleColumnsMetadata(String key, double[][] columns) throws IllegalArgumentException {
+        if(key == null){
+            throw new IllegalArgumentException("The key must not be null!");
+        }
+        if(columns == null){
+            throw new IllegalArgumentException("The value must not be null! key=" + key);
+        }
+        for (int c = 0; c < columns.length; c++) {
+            if (columns[c] == null || columns[c].length != columns[0].length){
+                throw new IllegalArgumentException("Column " + c + " for key " + key + " is null or differs in length from column 0");
+            }
+        }
+        NemaDataKey.forName(key).checkValue(columns);
+        int i = slotFor(NemaDataKey.intern(key));
+        slotTypes[i] = SLOT_COLUMNS;
+        numbers[i] = 0;
+        objects[i] = columns;
+    }
+    
+    /**
+     * Returns one column of a 2D double array. If the array was set by column 
+     * the column is returned without copying, otherwise it is copied out of 
+     * the rows.
+     * @param key The key to return the value for
+     * @param column The index of the column.
+     * @throws IllegalArgumentException Thrown if the key does not exist.
+     * @return The column.
+     * @since 0.4.1
+     */
+    public double[] getDoubleColumnMetadata(String key, int column) throws IllegalArgumentException {
+        int i = requireIndex(key);
+        if (slotTypes[i] == SLOT_COLUMNS){
+            return ((double[][])objects[i])[column];
+        }
+        double[][] rows = (double[][])valueAt(i);
+        double[] out = new double[rows.length];
+        for (int r = 0; r < rows.length; r++) {
+            out[r] = rows[r][column];
+        }
+        return out;
     }
     
     /**
@@ -136,7 +406,14 @@ public class NemaData implements Serializable, Comparable<NemaData>{
      * @return An array of Strings representing the available metadata.
      */
     public String[] metadataKeys() {
-        return (String[])metadata.keySet().toArray(new String[metadata.size()]);
+        String[] out = new String[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null){
+                out[n++] = keys[i];
+            }
+        }
+        return out;
     }
     
     /**
@@ -146,18 +423,7 @@ public class NemaData implements Serializable, Comparable<NemaData>{
      * @return The value corresponding to the supplied key.
      */
     public Object getMetadata(String key) throws IllegalArgumentException {
-        if (metadata.containsKey(key) == false) {
-            Object[] keys = metadata.keySet().toArray();
-            String keyString = "";
-            for (int i=0;i<keys.length;i++) {
-                keyString += (String)keys[i] + "\n";
-            }
-            throw new IllegalArgumentException("There is no metadata corresponding to the supplied key for NemaData id: " + this.getId() + "!\n" +
-                    "Key supplied = " + key + "\n" +
-                    "Keys available:\n" +
-                    keyString);
-        }
-        return metadata.get(key);
+        return valueAt(requireIndex(key));
     }
     
     /**
@@ -168,7 +434,11 @@ public class NemaData implements Serializable, Comparable<NemaData>{
      * @return The integer value corresponding to the supplied key
      */
     public int getIntMetadata(String key) throws IllegalArgumentException {
-        return ((Integer)this.getMetadata(key)).intValue();
+        int i = requireIndex(key);
+        if (slotTypes[i] == SLOT_INT){
+            return (int)numbers[i];
+        }
+        return ((Integer)valueAt(i)).intValue();
     }
     
     /**
@@ -234,7 +504,11 @@ public class NemaData implements Serializable, Comparable<NemaData>{
      * @return The double value corresponding to the supplied key
      */
     public double getDoubleMetadata(String key) throws IllegalArgumentException {
-        return ((Double)this.getMetadata(key)).doubleValue();
+        int i = requireIndex(key);
+        if (slotTypes[i] == SLOT_DOUBLE){
+            return numbers[i];
+        }
+        return ((Double)valueAt(i)).doubleValue();
     }
     
     /**
@@ -250,7 +524,8 @@ public class NemaData implements Serializable, Comparable<NemaData>{
     
     /**
      * Returns the metadata value corresponding to the supplied key and casts it
-     * as a double[][]
+     * as a double[][]. If the array was set by column a new row-wise copy is 
+     * returned.
      * @param key The key to return the value for
      * @throws IllegalArgumentException Thrown if the key does not exist.
      * @return The double[][] of values corresponding to the supplied key
@@ -259,6 +534,31 @@ public class NemaData implements Serializable, Comparable<NemaData>{
         return ((double[][])this.getMetadata(key));
     }
     
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        HashMap<String,Object> metadata = new HashMap<String,Object>(size * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null){
+                metadata.put(keys[i], valueAt(i));
+            }
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("metadata", metadata);
+        out.writeFields();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        HashMap<String,Object> metadata = (HashMap<String,Object>)fields.get("metadata", null);
+        init(INITIAL_CAPACITY);
+        if (metadata != null){
+            for (Iterator<Map.Entry<String,Object>> it = metadata.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<String,Object> entry = it.next();
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
     /**
      * Reads a NemaData Object from an ASCII file in the format 
      * produced by the <code>write</code> method.
@@ -378,56 +678,56 @@ public class NemaData implements Serializable, Comparable<NemaData>{
         StringBuffer buffer = new StringBuffer();
         buffer.append(NemaDataConstants.fileHeader + "\n" + NemaDataConstants.DIVIDER + "\n");
         
-        if (metadata == null) {
+        if (size == 0) {
             buffer.append("null\n");
         } else {
-            Set<String> keys = this.metadata.keySet();
-            String[] keysArray = keys.toArray(new String[keys.size()]);
+            String[] keysArray = metadataKeys();
             // sort the keys so items are always output
             // in the same order
             Arrays.sort(keysArray);
             for (int i=0;i<keysArray.length;i++) {
                 buffer.append((String)keysArray[i] + NemaDataConstants.SEPARATOR);
                 int length = 0;
-                if (metadata.get(keysArray[i]) == null) {
+                Object value = getMetadata(keysArray[i]);
+                if (value == null) {
                     buffer.append("null\n");
-                } else if (metadata.get(keysArray[i]).getClass().isArray()) {
+                } else if (value.getClass().isArray()) {
                     //Supports only int array, String array and double array types
-                    String compName = metadata.get(keysArray[i]).getClass().getComponentType().getName();
+                    String compName = value.getClass().getComponentType().getName();
                     if ((!compName.equals("int"))&&(!compName.equals("double"))&&(!compName.equals("java.lang.String"))) {
                         throw new IllegalArgumentException("NemaData.write(): Only intger, double and String array types are supported at present, contact developers.");
                     }
                     
                     if (compName.equals("int")) {
-                        length = ((int[])metadata.get(keysArray[i])).length;
+                        length = ((int[])value).length;
                     } else if (compName.equals("java.lang.String")) {
-                        length = ((String[])metadata.get(keysArray[i])).length;
+                        length = ((String[])value).length;
                     } else if (compName.equals("double")) {
-                        length = ((double[])metadata.get(keysArray[i])).length;
+                        length = ((double[])value).length;
                     }
                     buffer.append(compName + NemaDataConstants.SEPARATOR + length  + NemaDataConstants.SEPARATOR);
                     
                     for (int j=0;j<length;j++) {
                         if (compName.equals("int")) {
-                            buffer.append(((int[])metadata.get(keysArray[i]))[j] + NemaDataConstants.SEPARATOR);
+                            buffer.append(((int[])value)[j] + NemaDataConstants.SEPARATOR);
                         } else if (compName.equals("java.lang.String")) {
-                            buffer.append(((String[])metadata.get(keysArray[i]))[j] + NemaDataConstants.SEPARATOR);
+                            buffer.append(((String[])value)[j] + NemaDataConstants.SEPARATOR);
                         } else if (compName.equals("double")) {
-                            buffer.append(((double[])metadata.get(keysArray[i]))[j] + NemaDataConstants.SEPARATOR);
+                            buffer.append(((double[])value)[j] + NemaDataConstants.SEPARATOR);
                         }
                     }
                     buffer.append("\n");
                 } else {
                     //Supports only Integer, String and Double data types
-                    String className = metadata.get(keysArray[i]).getClass().getName();
+                    String className = value.getClass().getName();
                     length = -1;
                     buffer.append(className + NemaDataConstants.SEPARATOR + length  + NemaDataConstants.SEPARATOR);
                     if (className.equals("java.lang.Integer")) {
-                        buffer.append(((Integer)metadata.get(keysArray[i])).intValue() + "\n");
+                        buffer.append(((Integer)value).intValue() + "\n");
                     } else if (className.equals("java.lang.String")) {
-                        buffer.append(((String)metadata.get(keysArray[i])) + "\n");
+                        buffer.append(((String)value) + "\n");
                     } else if (className.equals("java.lang.Double")) {
-                        buffer.append(((Double)metadata.get(keysArray[i])).doubleValue() + "\n");
+                        buffer.append(((Double)value).doubleValue() + "\n");
                     }
                 } //TODO add support for collections and other objects that can be marshalled to a String
             }
@@ -457,6 +757,34 @@ public class NemaData implements Serializable, Comparable<NemaData>{
         textBuffer.close();
     }
 
+    /**
+     * Writes a NemaData Object to a file in the binary format of
+     * {@link NemaDataBinaryFormat}, which is smaller and much faster to read
+     * and write than the ASCII format.
+     * @param theFile The file to write the Object to.
+     * @throws java.io.IOException Thrown if an IO error occurs.
+     * @throws IllegalArgumentException Thrown if a value is of a type not
+     * supported by the binary format.
+     * @since 0.4.1
+     */
+    public void writeBinary(File theFile) throws java.io.IOException, IllegalArgumentException {
+        NemaDataBinaryFormat.write(this, theFile);
+    }
+
+    /**
+     * Reads a NemaData Object from a file in the binary format written by
+     * <code>writeBinary</code>.
+     * @param theFile The File object to load the NemaData from.
+     * @return The loaded NemaData.
+     * @throws java.io.IOException Thrown if an IOException occurs.
+     * @throws IllegalArgumentException Thrown if the file is not in the
+     * binary format or is corrupt.
+     * @since 0.4.1
+     */
+    public static NemaData readBinary(File theFile) throws java.io.IOException, IllegalArgumentException {
+        return NemaDataBinaryFormat.read(theFile);
+    }
+
     /**
      *  Compares two NemaData Objects for equality and sorting based on their 
      *  file location metadata.
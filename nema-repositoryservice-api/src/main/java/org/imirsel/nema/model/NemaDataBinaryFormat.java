@@ -0,0 +1,433 @@
+package org.imirsel.nema.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A compact binary format for {@link NemaData}, used in place of the ASCII
+ * format of {@link NemaData#write(File)} when results are cached on disk.
+ *
+ * A record is laid out as:
+ * <pre>
+ * 'N' 'E' 'M' 'B' version(byte)
+ * varint numStrings, then for each string: varint UTF-8 length, bytes
+ * varint numKeys, then for each key: varint key string index, type(byte), varint value offset
+ * varint data length, then the data block holding each value
+ * </pre>
+ * Keys and String values are written once in the string table and referred
+ * to by index. Numbers are written as raw little-endian int and double
+ * blocks, arrays are preceded by their varint length and 2D arrays by their
+ * varint number of rows. Value offsets are relative to the start of the data
+ * block, so that {@link MappedNemaData} can decode a single value without
+ * parsing the rest of the record.
+ *
+ * Supports Integer, Double and String values and 1D and 2D arrays of int,
+ * double and String.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class NemaDataBinaryFormat {
+
+	/** The version of the format written. */
+	public static final int VERSION = 1;
+
+	static final byte[] MAGIC = {'N', 'E', 'M', 'B'};
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	static final byte TYPE_INT = 1;
+	static final byte TYPE_DOUBLE = 2;
+	static final byte TYPE_STRING = 3;
+	static final byte TYPE_INT_ARRAY = 4;
+	static final byte TYPE_DOUBLE_ARRAY = 5;
+	static final byte TYPE_STRING_ARRAY = 6;
+	static final byte TYPE_2D_INT_ARRAY = 7;
+	static final byte TYPE_2D_DOUBLE_ARRAY = 8;
+	static final byte TYPE_2D_STRING_ARRAY = 9;
+
+	private NemaDataBinaryFormat(){}
+
+	/**
+	 * Encodes a NemaData Object as a binary record.
+	 * @param data The NemaData to encode.
+	 * @return The record.
+	 * @throws IllegalArgumentException Thrown if the NemaData holds a value of
+	 * an unsupported type.
+	 */
+	public static byte[] encode(NemaData data) throws IllegalArgumentException{
+		String[] keys = data.metadataKeys();
+		//sort the keys so that records are always written in the same order
+		Arrays.sort(keys);
+
+		Encoder strings = new Encoder(64 * keys.length);
+		StringTable table = new StringTable(strings);
+		for (int i = 0; i < keys.length; i++) {
+			table.indexOf(keys[i]);
+		}
+
+		Encoder values = new Encoder(256);
+		byte[] types = new byte[keys.length];
+		int[] offsets = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			offsets[i] = values.length();
+			types[i] = encodeValue(keys[i], data.getMetadata(keys[i]), values, table);
+		}
+
+		Encoder out = new Encoder(values.length() + strings.length() + 8 * keys.length + 32);
+		out.writeBytes(MAGIC, 0, MAGIC.length);
+		out.writeByte(VERSION);
+		out.writeVarint(table.size());
+		out.writeBytes(strings.buffer(), 0, strings.length());
+		out.writeVarint(keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			out.writeVarint(table.indexOf(keys[i]));
+			out.writeByte(types[i]);
+			out.writeVarint(offsets[i]);
+		}
+		out.writeVarint(values.length());
+		out.writeBytes(values.buffer(), 0, values.length());
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes a binary record.
+	 * @param record The record.
+	 * @return The NemaData decoded.
+	 * @throws IllegalArgumentException Thrown if the record is not in the
+	 * binary format or is corrupt.
+	 */
+	public static NemaData decode(byte[] record) throws IllegalArgumentException{
+		return new MappedNemaData(ByteBuffer.wrap(record)).toNemaData();
+	}
+
+	/**
+	 * Writes a NemaData Object to a file in the binary format.
+	 * @param data The NemaData to write.
+	 * @param theFile The file to write to.
+	 * @throws IOException Thrown if the file can't be written.
+	 * @throws IllegalArgumentException Thrown if the NemaData holds a value of
+	 * an unsupported type.
+	 */
+	public static void write(NemaData data, File theFile) throws IOException, IllegalArgumentException{
+		byte[] record = encode(data);
+		File theDir = theFile.getParentFile();
+		if (theDir != null){
+			theDir.mkdirs();
+		}
+		FileOutputStream out = new FileOutputStream(theFile, false);
+		try{
+			out.write(record);
+		}finally{
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads a NemaData Object from a file in the binary format, decoding all
+	 * of its values. Use {@link MappedNemaData#open(File)} to decode values
+	 * only as they are used.
+	 * @param theFile The file to read.
+	 * @return The NemaData read.
+	 * @throws IOException Thrown if the file can't be read.
+	 * @throws IllegalArgumentException Thrown if the file is not in the binary
+	 * format or is corrupt.
+	 */
+	public static NemaData read(File theFile) throws IOException, IllegalArgumentException{
+		return MappedNemaData.open(theFile).toNemaData();
+	}
+
+	private static byte encodeValue(String key, Object value, Encoder out, StringTable table) throws IllegalArgumentException{
+		if (value instanceof Integer){
+			out.writeInt(((Integer)value).intValue());
+			return TYPE_INT;
+		}else if (value instanceof Double){
+			out.writeDouble(((Double)value).doubleValue());
+			return TYPE_DOUBLE;
+		}else if (value instanceof String){
+			out.writeVarint(table.indexOf((String)value));
+			return TYPE_STRING;
+		}else if (value instanceof int[]){
+			encodeInts((int[])value, out);
+			return TYPE_INT_ARRAY;
+		}else if (value instanceof double[]){
+			encodeDoubles((double[])value, out);
+			return TYPE_DOUBLE_ARRAY;
+		}else if (value instanceof String[]){
+			encodeStrings((String[])value, out, table);
+			return TYPE_STRING_ARRAY;
+		}else if (value instanceof int[][]){
+			int[][] rows = (int[][])value;
+			out.writeVarint(rows.length);
+			for (int r = 0; r < rows.length; r++) {
+				if (rows[r] == null){
+					throw new IllegalArgumentException("NemaDataBinaryFormat: row " + r + " of metadata '" + key + "' is null");
+				}
+				encodeInts(rows[r], out);
+			}
+			return TYPE_2D_INT_ARRAY;
+		}else if (value instanceof double[][]){
+			double[][] rows = (double[][])value;
+			out.writeVarint(rows.length);
+			for (int r = 0; r < rows.length; r++) {
+				if (rows[r] == null){
+					throw new IllegalArgumentException("NemaDataBinaryFormat: row " + r + " of metadata '" + key + "' is null");
+				}
+				encodeDoubles(rows[r], out);
+			}
+			return TYPE_2D_DOUBLE_ARRAY;
+		}else if (value instanceof String[][]){
+			String[][] rows = (String[][])value;
+			out.writeVarint(rows.length);
+			for (int r = 0; r < rows.length; r++) {
+				if (rows[r] == null){
+					throw new IllegalArgumentException("NemaDataBinaryFormat: row " + r + " of metadata '" + key + "' is null");
+				}
+				encodeStrings(rows[r], out, table);
+			}
+			return TYPE_2D_STRING_ARRAY;
+		}
+		throw new IllegalArgumentException("NemaDataBinaryFormat: Only Integer, Double, String and 1D or 2D int, double and " +
+				"String array types are supported, metadata '" + key + "' is a " + value.getClass().getName());
+	}
+
+	private static void encodeInts(int[] values, Encoder out){
+		out.writeVarint(values.length);
+		out.writeInts(values);
+	}
+
+	private static void encodeDoubles(double[] values, Encoder out){
+		out.writeVarint(values.length);
+		out.writeDoubles(values);
+	}
+
+	/**
+	 * Writes String array elements as their index in the string table plus
+	 * one, with 0 representing null.
+	 */
+	private static void encodeStrings(String[] values, Encoder out, StringTable table){
+		out.writeVarint(values.length);
+		for (int i = 0; i < values.length; i++) {
+			out.writeVarint(values[i] == null ? 0 : table.indexOf(values[i]) + 1);
+		}
+	}
+
+	/**
+	 * Assigns each distinct String an index, writing it to the table
+	 * encoder when first seen.
+	 */
+	private static class StringTable{
+		private final HashMap<String,Integer> indices = new HashMap<String,Integer>();
+		private final Encoder out;
+
+		StringTable(Encoder out){
+			this.out = out;
+		}
+
+		int indexOf(String value){
+			Integer idx = indices.get(value);
+			if (idx == null){
+				idx = indices.size();
+				indices.put(value, idx);
+				byte[] bytes = value.getBytes(UTF8);
+				out.writeVarint(bytes.length);
+				out.writeBytes(bytes, 0, bytes.length);
+			}
+			return idx;
+		}
+
+		int size(){
+			return indices.size();
+		}
+	}
+
+	/**
+	 * A growable little-endian byte buffer.
+	 */
+	static class Encoder{
+		private byte[] buf;
+		private int len = 0;
+
+		Encoder(int capacity){
+			buf = new byte[Math.max(16, capacity)];
+		}
+
+		private void ensure(int extra){
+			if (len + extra > buf.length){
+				buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+			}
+		}
+
+		void writeByte(int value){
+			ensure(1);
+			buf[len++] = (byte)value;
+		}
+
+		void writeBytes(byte[] bytes, int off, int length){
+			ensure(length);
+			System.arraycopy(bytes, off, buf, len, length);
+			len += length;
+		}
+
+		/**
+		 * Writes a non-negative int in 7 bit groups, least significant first.
+		 */
+		void writeVarint(int value){
+			ensure(5);
+			while ((value & ~0x7F) != 0){
+				buf[len++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buf[len++] = (byte)value;
+		}
+
+		void writeInt(int value){
+			ensure(4);
+			buf[len++] = (byte)value;
+			buf[len++] = (byte)(value >>> 8);
+			buf[len++] = (byte)(value >>> 16);
+			buf[len++] = (byte)(value >>> 24);
+		}
+
+		void writeLong(long value){
+			writeInt((int)value);
+			writeInt((int)(value >>> 32));
+		}
+
+		void writeDouble(double value){
+			writeLong(Double.doubleToRawLongBits(value));
+		}
+
+		void writeInts(int[] values){
+			ensure(4 * values.length);
+			ByteBuffer.wrap(buf, len, 4 * values.length).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(values);
+			len += 4 * values.length;
+		}
+
+		void writeDoubles(double[] values){
+			ensure(8 * values.length);
+			ByteBuffer.wrap(buf, len, 8 * values.length).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(values);
+			len += 8 * values.length;
+		}
+
+		int length(){
+			return len;
+		}
+
+		byte[] buffer(){
+			return buf;
+		}
+
+		byte[] toByteArray(){
+			return Arrays.copyOf(buf, len);
+		}
+	}
+
+	/**
+	 * Reads little-endian values from a buffer at a cursor position, without
+	 * moving the buffer's own position so that a buffer may be shared between
+	 * threads.
+	 */
+	static class Decoder{
+		private final ByteBuffer buffer;
+		private int pos;
+
+		Decoder(ByteBuffer buffer, int pos){
+			this.buffer = buffer;
+			this.pos = pos;
+		}
+
+		int position(){
+			return pos;
+		}
+
+		void skip(int length){
+			pos += length;
+		}
+
+		byte readByte(){
+			return buffer.get(pos++);
+		}
+
+		int readVarint(){
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				byte b = buffer.get(pos++);
+				value |= (b & 0x7F) << shift;
+				if (b >= 0){
+					if (value < 0){
+						break;
+					}
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Malformed varint ending at byte " + pos);
+		}
+
+		int readInt(){
+			int value = buffer.getInt(pos);
+			pos += 4;
+			return value;
+		}
+
+		long readLong(){
+			long value = buffer.getLong(pos);
+			pos += 8;
+			return value;
+		}
+
+		double readDouble(){
+			double value = buffer.getDouble(pos);
+			pos += 8;
+			return value;
+		}
+
+		int readLength(){
+			int length = readVarint();
+			if (length > buffer.limit() - pos){
+				throw new IllegalArgumentException("Length " + length + " at byte " + pos + " runs past the end of the record");
+			}
+			return length;
+		}
+
+		int[] readInts(){
+			int length = readVarint();
+			if (length > (buffer.limit() - pos) / 4){
+				throw new IllegalArgumentException("Length " + length + " at byte " + pos + " runs past the end of the record");
+			}
+			int[] out = new int[length];
+			ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			view.position(pos);
+			view.asIntBuffer().get(out);
+			pos += 4 * length;
+			return out;
+		}
+
+		double[] readDoubles(){
+			int length = readVarint();
+			if (length > (buffer.limit() - pos) / 8){
+				throw new IllegalArgumentException("Length " + length + " at byte " + pos + " runs past the end of the record");
+			}
+			double[] out = new double[length];
+			ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+			view.position(pos);
+			view.asDoubleBuffer().get(out);
+			pos += 8 * length;
+			return out;
+		}
+
+		String readUTF8(int length){
+			byte[] bytes = new byte[length];
+			ByteBuffer view = buffer.duplicate();
+			view.position(pos);
+			view.get(bytes);
+			pos += length;
+			return new String(bytes, UTF8);
+		}
+	}
+}
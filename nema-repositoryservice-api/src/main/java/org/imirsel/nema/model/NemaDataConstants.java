@@ -126,11 +126,11 @@ public class NemaDataConstants {
     public static final String TAG_AFFINITY_PRECISION_AT_N_LEVELS = "Tag affinity precision at N test levels";
     /** double - Area Under Curve - Receiver Operating Characteristic Curve */
     public static final String TAG_AFFINITY_AUC_ROC = "Tag affinity AUC-ROC";
-    /** List<double[]> - Receiver Operating Characteristic Curve data*/
+    /** double[][] - Receiver Operating Characteristic Curve data, {false positive rates, true positive rates}*/
     public static final String TAG_AFFINITY_ROC_DATA = "Tag affinity ROC data points";
     /** Map<String, Double>() - tag name to Area Under Curve - Receiver Operating Characteristic Curve */
     public static final String TAG_AFFINITY_AUC_ROC_MAP = "Tag affinity per-tag AUC-ROC map";
-    /** Map<String, List<double[]>> - tag name to Receiver Operating Characteristic Curve data*/
+    /** Map<String, double[][]> - tag name to Receiver Operating Characteristic Curve data, {false positive rates, true positive rates}*/
     public static final String TAG_AFFINITY_ROC_DATA_MAP = "Tag affinity per-tag ROC data points map";
     
     
@@ -171,6 +171,18 @@ public class NemaDataConstants {
     public static final String MULTI_F0_AVE_NT_OVERLAP = "Multi-F0 Note Tracking average overlap";	    
     public static final String MULTI_F0_NT_F_MEASURE = "Multi-F0 Note Tracking F-measure";
     public static final String MULTI_F0_NT_AVE_F_MEASURE = "Multi-F0 Note Tracking average F-measure";
+    public static final String MULTI_F0_NT_INSTRUMENT = "Multi-F0 Note Tracking instrumentation for single file";
+    public static final String MULTI_F0_NT_INSTRUMENTS = "Multi-F0 Note Tracking instrumentation list for overall evaluation";
+    public static final String MULTI_F0_NT_ONSET_PRECISION = "Multi-F0 Note Tracking onset-only precision";
+    public static final String MULTI_F0_NT_ONSET_RECALL = "Multi-F0 Note Tracking onset-only recall";
+    public static final String MULTI_F0_NT_ONSET_F_MEASURE = "Multi-F0 Note Tracking onset-only F-measure";
+    public static final String MULTI_F0_NT_ONSET_OVERLAP = "Multi-F0 Note Tracking onset-only overlap";
+    public static final String MULTI_F0_NT_PRECISION_BY_INSTRUMENT = "Multi-F0 Note Tracking precision per instrumentation";
+    public static final String MULTI_F0_NT_RECALL_BY_INSTRUMENT = "Multi-F0 Note Tracking recall per instrumentation";
+    public static final String MULTI_F0_NT_F_MEASURE_BY_INSTRUMENT = "Multi-F0 Note Tracking F-measure per instrumentation";
+    public static final String MULTI_F0_NT_ONSET_PRECISION_BY_INSTRUMENT = "Multi-F0 Note Tracking onset-only precision per instrumentation";
+    public static final String MULTI_F0_NT_ONSET_RECALL_BY_INSTRUMENT = "Multi-F0 Note Tracking onset-only recall per instrumentation";
+    public static final String MULTI_F0_NT_ONSET_F_MEASURE_BY_INSTRUMENT = "Multi-F0 Note Tracking onset-only F-measure per instrumentation";
     	        	
     	    	
     
@@ -188,6 +200,10 @@ public class NemaDataConstants {
     public static final String TEMPO_EXTRACTION_P_SCORE ="Tempo P-Score";
     public static final String TEMPO_EXTRACTION_ONE_CORRECT = "At least One Tempo Correct";
     public static final String TEMPO_EXTRACTION_TWO_CORRECT = "Both Tempi Correct";    
+    public static final String TEMPO_EXTRACTION_TOLERANCES = "Tempo tolerance sweep ratios";
+    public static final String TEMPO_EXTRACTION_P_SCORE_BY_TOLERANCE = "Tempo P-Score by tolerance";
+    public static final String TEMPO_EXTRACTION_ONE_CORRECT_BY_TOLERANCE = "At least One Tempo Correct by tolerance";
+    public static final String TEMPO_EXTRACTION_TWO_CORRECT_BY_TOLERANCE = "Both Tempi Correct by tolerance";
     
     // Chord Estimation Evaluator Constants
     public static final String CHORD_LABEL_SEQUENCE = "Chord label sequence";
@@ -226,6 +242,10 @@ public class NemaDataConstants {
     public static final String ONSET_DETECTION_AVG_PRECISION_BY_CLASS ="Average precision by class";
     public static final String ONSET_DETECTION_AVG_RECALL_BY_CLASS = "Average recall by class";
     public static final String ONSET_DETECTION_AVG_FMEASURE_BY_CLASS = "Average F-measure by class";
+    public static final String ONSET_DETECTION_TOLERANCES = "Onset tolerance sweep windows (secs)";
+    public static final String ONSET_DETECTION_AVG_PRECISION_BY_TOLERANCE = "Average precision by tolerance";
+    public static final String ONSET_DETECTION_AVG_RECALL_BY_TOLERANCE = "Average recall by tolerance";
+    public static final String ONSET_DETECTION_AVG_FMEASURE_BY_TOLERANCE = "Average F-measure by tolerance";
     
     //Beat Tracking Evaluator Constants
     public static final String BEAT_TRACKING_DATA = "List of beat times";
@@ -240,4 +260,6 @@ public class NemaDataConstants {
     public static final String BEAT_TRACKING_AMLT = "AMLt";
     public static final String BEAT_TRACKING_D = "D (bits)";
     public static final String BEAT_TRACKING_DG = "Dg (bits)";
+    public static final String BEAT_TRACKING_TOLERANCES = "F-Measure tolerance sweep windows (secs)";
+    public static final String BEAT_TRACKING_FMEASURE_BY_TOLERANCE = "F-Measure by tolerance";
 }
@@ -0,0 +1,338 @@
+package org.imirsel.nema.model;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.imirsel.nema.model.NemaDataBinaryFormat.Decoder;
+import org.imirsel.nema.model.NemaDataBinaryFormat.Encoder;
+
+/**
+ * A file holding many NemaData records in the format written by
+ * {@link NemaDataBinaryFormat}, followed by an index of the id, offset and
+ * length of each record, so that single records may be read by id without
+ * reading the rest of the file. The index also holds a CRC32 checksum of
+ * each record, which may be checked with {@link #verify(int)}.
+ *
+ * The file is laid out as:
+ * <pre>
+ * 'N' 'E' 'M' 'C' version(byte)
+ * each record
+ * varint numRecords, then for each record: varint UTF-8 id length, id bytes, offset(long), length(int), crc32(int)
+ * index offset(long) 'N' 'E' 'M' 'C'
+ * </pre>
+ * with numbers written little-endian.
+ *
+ * Files are written with {@link #write(File, Collection)} and read by
+ * opening a container with {@link #open(File)}, which maps the whole file
+ * into memory if it can, or each record as it is read otherwise. Open
+ * containers are thread-safe.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class NemaDataContainer implements Closeable {
+
+	static final byte[] MAGIC = {'N', 'E', 'M', 'C'};
+	private static final int HEADER_LENGTH = MAGIC.length + 1;
+	private static final int FOOTER_LENGTH = 8 + MAGIC.length;
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final ByteBuffer mapped;
+	private final String[] ids;
+	private final long[] offsets;
+	private final int[] lengths;
+	private final int[] checksums;
+	private final HashMap<String,Integer> idIndex;
+
+	private NemaDataContainer(File file, RandomAccessFile raf) throws IOException, IllegalArgumentException{
+		this.file = file;
+		this.raf = raf;
+		FileChannel channel = raf.getChannel();
+		long size = channel.size();
+		if (size < HEADER_LENGTH + FOOTER_LENGTH){
+			throw new IllegalArgumentException("Not a NemaData container file: " + file.getPath());
+		}
+		ByteBuffer footer;
+		if (size <= Integer.MAX_VALUE){
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+			footer = mapped;
+		}else{
+			mapped = null;
+			footer = channel.map(FileChannel.MapMode.READ_ONLY, size - FOOTER_LENGTH, FOOTER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		ByteBuffer header = mapped != null ? mapped : channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (header.get(i) != MAGIC[i]){
+				throw new IllegalArgumentException("Not a NemaData container file: " + file.getPath());
+			}
+		}
+		int version = header.get(MAGIC.length);
+		if (version > NemaDataBinaryFormat.VERSION){
+			throw new IllegalArgumentException("NemaData container file is version " + version
+					+ ", this reader supports up to version " + NemaDataBinaryFormat.VERSION + ": " + file.getPath());
+		}
+		int footerStart = mapped == null ? 0 : (int)(size - FOOTER_LENGTH);
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (footer.get(footerStart + 8 + i) != MAGIC[i]){
+				throw new IllegalArgumentException("Not a NemaData container file, or the file is incomplete: " + file.getPath());
+			}
+		}
+		long indexOffset = footer.getLong(footerStart);
+		if (indexOffset < HEADER_LENGTH || indexOffset > size - FOOTER_LENGTH || size - FOOTER_LENGTH - indexOffset > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("NemaData container file has a corrupt index offset: " + file.getPath());
+		}
+
+		ByteBuffer index;
+		int indexStart;
+		if (mapped != null){
+			index = mapped;
+			indexStart = (int)indexOffset;
+		}else{
+			index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, size - FOOTER_LENGTH - indexOffset).order(ByteOrder.LITTLE_ENDIAN);
+			indexStart = 0;
+		}
+		try{
+			Decoder in = new Decoder(index, indexStart);
+			int numRecords = in.readLength();
+			ids = new String[numRecords];
+			offsets = new long[numRecords];
+			lengths = new int[numRecords];
+			checksums = new int[numRecords];
+			idIndex = new HashMap<String,Integer>(numRecords * 2);
+			for (int i = 0; i < numRecords; i++) {
+				ids[i] = in.readUTF8(in.readLength());
+				offsets[i] = in.readLong();
+				lengths[i] = in.readInt();
+				checksums[i] = in.readInt();
+				if (offsets[i] < HEADER_LENGTH || lengths[i] < 0 || offsets[i] + lengths[i] > indexOffset){
+					throw new IllegalArgumentException("NemaData container file has a corrupt index entry for '" + ids[i] + "': " + file.getPath());
+				}
+				idIndex.put(ids[i], i);
+			}
+		}catch(IndexOutOfBoundsException e){
+			throw new IllegalArgumentException("NemaData container file has a truncated index: " + file.getPath(), e);
+		}
+	}
+
+	/**
+	 * Opens a container file.
+	 * @param theFile The file to open.
+	 * @return The open container, which should be closed after use.
+	 * @throws IOException Thrown if the file can't be read.
+	 * @throws IllegalArgumentException Thrown if the file is not a container
+	 * or is corrupt.
+	 */
+	public static NemaDataContainer open(File theFile) throws IOException, IllegalArgumentException{
+		if (!theFile.exists()){
+			throw new FileNotFoundException("NemaDataContainer.open(): The specified file does not exist!\n File: " + theFile.getPath());
+		}
+		RandomAccessFile raf = new RandomAccessFile(theFile, "r");
+		try{
+			return new NemaDataContainer(theFile, raf);
+		}catch(IOException e){
+			raf.close();
+			throw e;
+		}catch(RuntimeException e){
+			raf.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes a container file holding each of the NemaData Objects, in the
+	 * order given. Each record is encoded and written in turn, so only one
+	 * encoded record is held in memory at a time.
+	 * @param theFile The file to write.
+	 * @param data The NemaData Objects to write, which must have distinct ids.
+	 * @throws IOException Thrown if the file can't be written.
+	 * @throws IllegalArgumentException Thrown if a NemaData has no id, two
+	 * have the same id or one holds a value of an unsupported type. The
+	 * partially written file is deleted.
+	 */
+	public static void write(File theFile, Collection<NemaData> data) throws IOException, IllegalArgumentException{
+		File theDir = theFile.getParentFile();
+		if (theDir != null){
+			theDir.mkdirs();
+		}
+		List<String> ids = new ArrayList<String>(data.size());
+		HashMap<String,Integer> seen = new HashMap<String,Integer>(data.size() * 2);
+		long[] offsets = new long[data.size()];
+		int[] lengths = new int[data.size()];
+		int[] checksums = new int[data.size()];
+		CRC32 crc = new CRC32();
+
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(theFile, false), 1 << 16);
+		boolean complete = false;
+		try{
+			out.write(MAGIC);
+			out.write(NemaDataBinaryFormat.VERSION);
+			long pos = HEADER_LENGTH;
+			int i = 0;
+			for (NemaData item : data) {
+				String id = item.getId();
+				if (seen.put(id, i) != null){
+					throw new IllegalArgumentException("NemaDataContainer.write(): Duplicate id '" + id + "' in data for file: " + theFile.getPath());
+				}
+				byte[] record = NemaDataBinaryFormat.encode(item);
+				out.write(record);
+				ids.add(id);
+				offsets[i] = pos;
+				lengths[i] = record.length;
+				crc.reset();
+				crc.update(record);
+				checksums[i] = (int)crc.getValue();
+				pos += record.length;
+				i++;
+			}
+
+			Encoder index = new Encoder(32 * ids.size() + FOOTER_LENGTH);
+			index.writeVarint(ids.size());
+			for (int r = 0; r < ids.size(); r++) {
+				byte[] id = ids.get(r).getBytes(NemaDataBinaryFormat.UTF8);
+				index.writeVarint(id.length);
+				index.writeBytes(id, 0, id.length);
+				index.writeLong(offsets[r]);
+				index.writeInt(lengths[r]);
+				index.writeInt(checksums[r]);
+			}
+			index.writeLong(pos);
+			index.writeBytes(MAGIC, 0, MAGIC.length);
+			out.write(index.buffer(), 0, index.length());
+			complete = true;
+		}finally{
+			out.close();
+			if (!complete){
+				//don't leave a file without an index behind
+				theFile.delete();
+			}
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the number of records in the container.
+	 */
+	public int size(){
+		return ids.length;
+	}
+
+	/**
+	 * @return the ids of the records, in the order they were written.
+	 */
+	public String[] getIds(){
+		return ids.clone();
+	}
+
+	public boolean contains(String id){
+		return idIndex.containsKey(id);
+	}
+
+	/**
+	 * Returns a view of a record, decoding values only as they are used.
+	 * @param id The id of the record.
+	 * @return The view of the record.
+	 * @throws IOException Thrown if the record can't be mapped.
+	 * @throws IllegalArgumentException Thrown if there is no record with the
+	 * id or it is corrupt.
+	 */
+	public MappedNemaData get(String id) throws IOException, IllegalArgumentException{
+		Integer idx = idIndex.get(id);
+		if (idx == null){
+			throw new IllegalArgumentException("NemaDataContainer: There is no record with id '" + id + "' in file: " + file.getPath());
+		}
+		return get(idx);
+	}
+
+	/**
+	 * Returns a view of a record, decoding values only as they are used.
+	 * @param idx The index of the record, in the order written.
+	 * @return The view of the record.
+	 * @throws IOException Thrown if the record can't be mapped.
+	 * @throws IllegalArgumentException Thrown if the record is corrupt.
+	 */
+	public MappedNemaData get(int idx) throws IOException, IllegalArgumentException{
+		return new MappedNemaData(recordBuffer(idx));
+	}
+
+	private ByteBuffer recordBuffer(int idx) throws IOException{
+		if (mapped != null){
+			ByteBuffer record = mapped.duplicate();
+			record.limit((int)offsets[idx] + lengths[idx]);
+			record.position((int)offsets[idx]);
+			return record;
+		}
+		return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, offsets[idx], lengths[idx]);
+	}
+
+	/**
+	 * Checks a record against the checksum held in the index.
+	 * @param idx The index of the record, in the order written.
+	 * @throws IOException Thrown if the record can't be mapped.
+	 * @throws IllegalArgumentException Thrown if the record doesn't match its
+	 * checksum.
+	 */
+	public void verify(int idx) throws IOException, IllegalArgumentException{
+		ByteBuffer record = recordBuffer(idx);
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[Math.min(lengths[idx], 1 << 16)];
+		while (record.hasRemaining()){
+			int length = Math.min(chunk.length, record.remaining());
+			record.get(chunk, 0, length);
+			crc.update(chunk, 0, length);
+		}
+		if ((int)crc.getValue() != checksums[idx]){
+			throw new IllegalArgumentException("NemaDataContainer: Checksum mismatch for record '" + ids[idx] + "' in file: " + file.getPath());
+		}
+	}
+
+	/**
+	 * Checks every record against the checksums held in the index.
+	 * @throws IOException Thrown if a record can't be mapped.
+	 * @throws IllegalArgumentException Thrown if a record doesn't match its
+	 * checksum.
+	 */
+	public void verifyAll() throws IOException, IllegalArgumentException{
+		for (int i = 0; i < ids.length; i++) {
+			verify(i);
+		}
+	}
+
+	/**
+	 * Decodes every record in the container.
+	 * @return The NemaData Objects, in the order written.
+	 * @throws IOException Thrown if a record can't be mapped.
+	 * @throws IllegalArgumentException Thrown if a record is corrupt.
+	 */
+	public List<NemaData> readAll() throws IOException, IllegalArgumentException{
+		List<NemaData> out = new ArrayList<NemaData>(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			out.add(get(i).toNemaData());
+		}
+		return out;
+	}
+
+	/**
+	 * Closes the file. Records already returned remain readable.
+	 */
+	public void close() throws IOException {
+		raf.close();
+	}
+}
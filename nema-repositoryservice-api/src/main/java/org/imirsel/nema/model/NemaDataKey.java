@@ -0,0 +1,221 @@
+package org.imirsel.nema.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the metadata keys used with {@link NemaData}, interning each
+ * key name so that a single String instance is held for each key however
+ * many NemaData Objects use it, and recording the type of value declared for
+ * the key, if any. The keys defined in {@link NemaDataConstants} for
+ * evaluation metrics and time series data are declared on class load,
+ * other keys may be declared with {@link #register(String, int)} and any
+ * key not declared accepts values of any type.
+ *
+ * {@link NemaData} stores values of keys declared as {@link #TYPE_DOUBLE} or
+ * {@link #TYPE_INT}, and any other Double or Integer values, unboxed.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class NemaDataKey {
+
+	/** Key accepting values of any type. */
+	public static final int TYPE_ANY = 0;
+	/** Key holding a double. */
+	public static final int TYPE_DOUBLE = 1;
+	/** Key holding an int. */
+	public static final int TYPE_INT = 2;
+	/** Key holding a String. */
+	public static final int TYPE_STRING = 3;
+	/** Key holding a double[]. */
+	public static final int TYPE_DOUBLE_ARRAY = 4;
+	/** Key holding a double[][], such as a time series of frames. */
+	public static final int TYPE_2D_DOUBLE_ARRAY = 5;
+	/** Key holding an int[]. */
+	public static final int TYPE_INT_ARRAY = 6;
+	/** Key holding a String[]. */
+	public static final int TYPE_STRING_ARRAY = 7;
+
+	private static final Class<?>[] TYPE_CLASSES = new Class<?>[]{
+		Object.class, Double.class, Integer.class, String.class,
+		double[].class, double[][].class, int[].class, String[].class
+	};
+
+	private static final ConcurrentHashMap<String,NemaDataKey> KEYS = new ConcurrentHashMap<String,NemaDataKey>();
+
+	static{
+		register(NemaDataConstants.PROP_ID, TYPE_STRING);
+		register(NemaDataConstants.PROP_FILE_LOCATION, TYPE_STRING);
+		register(NemaDataConstants.PROP_FILE_SITE, TYPE_STRING);
+
+		register(NemaDataConstants.MELODY_EXTRACTION_DATA, TYPE_2D_DOUBLE_ARRAY);
+		registerAll(TYPE_DOUBLE,
+				NemaDataConstants.MELODY_RAW_PITCH_ACCURACY,
+				NemaDataConstants.MELODY_RAW_CHROMA_ACCURACY,
+				NemaDataConstants.MELODY_VOICING_RECALL,
+				NemaDataConstants.MELODY_VOICING_FALSE_ALARM,
+				NemaDataConstants.MELODY_OVERALL_ACCURACY);
+
+		register(NemaDataConstants.MULTI_F0_EST_DATA, TYPE_2D_DOUBLE_ARRAY);
+		registerAll(TYPE_DOUBLE,
+				NemaDataConstants.MULTI_F0_EST_ACCURACY,
+				NemaDataConstants.MULTI_F0_EST_CHROMA_ACCURACY,
+				NemaDataConstants.MULTI_F0_EST_PRECISION,
+				NemaDataConstants.MULTI_F0_EST_E_TOT,
+				NemaDataConstants.MULTI_F0_EST_E_MISS,
+				NemaDataConstants.MULTI_F0_EST_E_FA);
+
+		registerAll(TYPE_DOUBLE,
+				NemaDataConstants.TEMPO_EXTRACTION_P_SCORE,
+				NemaDataConstants.TEMPO_EXTRACTION_ONE_CORRECT,
+				NemaDataConstants.TEMPO_EXTRACTION_TWO_CORRECT);
+		registerAll(TYPE_DOUBLE_ARRAY,
+				NemaDataConstants.TEMPO_EXTRACTION_TOLERANCES,
+				NemaDataConstants.TEMPO_EXTRACTION_P_SCORE_BY_TOLERANCE,
+				NemaDataConstants.TEMPO_EXTRACTION_ONE_CORRECT_BY_TOLERANCE,
+				NemaDataConstants.TEMPO_EXTRACTION_TWO_CORRECT_BY_TOLERANCE);
+
+		registerAll(TYPE_DOUBLE,
+				NemaDataConstants.CHORD_OVERLAP_RATIO,
+				NemaDataConstants.CHORD_WEIGHTED_AVERAGE_OVERLAP_RATIO);
+
+		registerAll(TYPE_DOUBLE,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_OVERSEGSCORE,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_UNDERSEGSCORE,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_PWF,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_PWPRECISION,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_PWRECALL,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_R,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_FMEASUREATPOINTFIVE,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_PRECRATEATPOINTFIVE,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_RECRATEATPOINTFIVE,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_FMEASUREATTHREE,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_PRECRATEATTHREE,
+				NemaDataConstants.STRUCTURE_SEGMENTATION_RECRATEATTHREE);
+
+		registerAll(TYPE_2D_DOUBLE_ARRAY,
+				NemaDataConstants.ONSET_DETECTION_DATA,
+				NemaDataConstants.BEAT_TRACKING_DATA);
+		registerAll(TYPE_DOUBLE_ARRAY,
+				NemaDataConstants.ONSET_DETECTION_TOLERANCES,
+				NemaDataConstants.ONSET_DETECTION_AVG_PRECISION_BY_TOLERANCE,
+				NemaDataConstants.ONSET_DETECTION_AVG_RECALL_BY_TOLERANCE,
+				NemaDataConstants.ONSET_DETECTION_AVG_FMEASURE_BY_TOLERANCE,
+				NemaDataConstants.BEAT_TRACKING_TOLERANCES,
+				NemaDataConstants.BEAT_TRACKING_FMEASURE_BY_TOLERANCE);
+		registerAll(TYPE_DOUBLE,
+				NemaDataConstants.BEAT_TRACKING_FMEASURE,
+				NemaDataConstants.BEAT_TRACKING_CEMGIL,
+				NemaDataConstants.BEAT_TRACKING_GOTO,
+				NemaDataConstants.BEAT_TRACKING_MCKINNEY,
+				NemaDataConstants.BEAT_TRACKING_CMLC,
+				NemaDataConstants.BEAT_TRACKING_CMLT,
+				NemaDataConstants.BEAT_TRACKING_AMLC,
+				NemaDataConstants.BEAT_TRACKING_AMLT,
+				NemaDataConstants.BEAT_TRACKING_D,
+				NemaDataConstants.BEAT_TRACKING_DG);
+	}
+
+	private final String name;
+	private final int type;
+
+	private NemaDataKey(String name, int type) {
+		this.name = name;
+		this.type = type;
+	}
+
+	/**
+	 * Declares the type of value held by a key. A key may be declared more
+	 * than once, but only with the same type.
+	 * @param name The name of the key.
+	 * @param type The type of value the key holds, one of the TYPE_
+	 * constants.
+	 * @return The key.
+	 * @throws IllegalArgumentException Thrown if the type is unknown or the
+	 * key has already been declared with a different type.
+	 */
+	public static NemaDataKey register(String name, int type) throws IllegalArgumentException{
+		if (type < TYPE_ANY || type >= TYPE_CLASSES.length){
+			throw new IllegalArgumentException("Unknown metadata type " + type + " for key: " + name);
+		}
+		NemaDataKey key = new NemaDataKey(name, type);
+		NemaDataKey existing = KEYS.putIfAbsent(name, key);
+		if (existing == null){
+			return key;
+		}
+		if (existing.type == type){
+			return existing;
+		}
+		if (existing.type == TYPE_ANY){
+			//upgrade a key interned before it was declared, keeping the same name instance
+			key = new NemaDataKey(existing.name, type);
+			if (KEYS.replace(name, existing, key)){
+				return key;
+			}
+			return register(name, type);
+		}
+		throw new IllegalArgumentException("Metadata key '" + name + "' is declared as "
+				+ TYPE_CLASSES[existing.type].getSimpleName() + ", can't redeclare it as "
+				+ TYPE_CLASSES[type].getSimpleName());
+	}
+
+	private static void registerAll(int type, String... names){
+		for (int i = 0; i < names.length; i++) {
+			register(names[i], type);
+		}
+	}
+
+	/**
+	 * Returns the key with the given name, interning it if it has not been
+	 * seen before.
+	 * @param name The name of the key.
+	 * @return The key.
+	 */
+	public static NemaDataKey forName(String name){
+		NemaDataKey key = KEYS.get(name);
+		if (key == null){
+			key = new NemaDataKey(name, TYPE_ANY);
+			NemaDataKey existing = KEYS.putIfAbsent(name, key);
+			if (existing != null){
+				key = existing;
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the canonical instance of a key name.
+	 * @param name The name of the key.
+	 * @return The interned name.
+	 */
+	public static String intern(String name){
+		return forName(name).name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * Checks that a value may be stored under this key.
+	 * @param value The value to check.
+	 * @throws IllegalArgumentException Thrown if the value is not of the type
+	 * declared for the key.
+	 */
+	public void checkValue(Object value) throws IllegalArgumentException{
+		if (type != TYPE_ANY && !TYPE_CLASSES[type].isInstance(value)){
+			throw new IllegalArgumentException("Metadata key '" + name + "' holds "
+					+ TYPE_CLASSES[type].getSimpleName() + " values, received: "
+					+ value.getClass().getSimpleName());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -320,7 +320,31 @@ public class NemaEvaluationResultSet {
 		}
 		perTrackMap.put(testSet, perTrackEvalAndResults);
 	}
-	
+
+	/**
+	 * Sets (or replaces) the overall evaluation for a system whose per-fold results have
+	 * been added one fold at a time with
+	 * {@link #addSingleFoldResultSet(String, String, NemaTrackList, NemaData, List)}.
+	 *
+	 * @param jobId The job Id the evaluation relates to.
+	 * @param overallEval NemaData Object containing the evaluation results averaged over the whole
+	 * experiment.
+	 * @throws IllegalArgumentException Thrown if no per-fold results have been added for the job
+	 * or the evaluation doesn't contain the expected metrics.
+	 */
+	public void setOverallEvaluation(String jobId, NemaData overallEval) throws IllegalArgumentException{
+		if(!jobIdToPerFoldEvaluation.containsKey(jobId)){
+			throw new IllegalArgumentException("No per-fold results have been added for jobId: " + jobId);
+		}
+		for (Iterator<String> iterator = overallEvalMetrics.iterator(); iterator.hasNext();) {
+			String key = iterator.next();
+			if(!overallEval.hasMetadata(key)){
+				throw new IllegalArgumentException("Expected overall evaluation to contain metric '" + key + "', but it was not found for jobId: " + jobId);
+			}
+		}
+		jobIdToOverallEvaluation.put(jobId, overallEval);
+	}
+
 	/**
 	 * Adds a complete set of analysis results for a system to the set of results.
 	 *  
@@ -450,7 +474,7 @@ public class NemaEvaluationResultSet {
 			NemaTrackList list = testSetIt.next();
 			if(list.getTracks() != null){ //check if we know the actual track list contents
 				List<NemaTrack> trackList = list.getTracks();
-				for (Iterator<String> jobIt = jobIdToJobName.keySet().iterator(); testSetIt.hasNext();) {
+				for (Iterator<String> jobIt = jobIdToJobName.keySet().iterator(); jobIt.hasNext();) {
 					String jobId = jobIt.next();
 					Map<NemaTrackList,List<NemaData>> perTrackMap = jobIdToPerTrackEvaluationAndResults.get(jobId);
 					if(perTrackMap.get(list).size() != trackList.size()){
@@ -537,7 +561,7 @@ public class NemaEvaluationResultSet {
 			NemaTrackList list = testSetIt.next();
 			if(list.getTracks() != null){ //check if we know the actual track list contents
 				List<NemaTrack> trackList = list.getTracks();
-				for (Iterator<String> jobIt = jobIdToJobName.keySet().iterator(); testSetIt.hasNext();) {
+				for (Iterator<String> jobIt = jobIdToJobName.keySet().iterator(); jobIt.hasNext();) {
 					String jobId = jobIt.next();
 					Map<NemaTrackList,List<NemaData>> perTrackMap = jobIdToPerTrackEvaluationAndResults.get(jobId);
 					if(perTrackMap.get(list).size() != trackList.size()){
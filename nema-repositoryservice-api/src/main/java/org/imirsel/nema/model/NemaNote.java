@@ -13,8 +13,6 @@ import org.imirsel.nema.model.NemaSegment;
  */
 public class NemaNote extends NemaSegment{
 	
-	double onset;
-	double offset;
 	Double f0;
 	
 	public NemaNote() {
@@ -58,12 +56,12 @@ public class NemaNote extends NemaSegment{
 	 */
 	public boolean isEqualOnsetOffset(NemaNote otherNote,double onsetThreshold, double  offsetThreshold, double f0ThresholdLower, double f0ThresholdHigher){
 		
-		if (!(Math.abs(this.onset-otherNote.getF0()) < onsetThreshold) )
+		if (!(Math.abs(this.onset-otherNote.getOnset()) < onsetThreshold) )
 			return false;
 		if (!(Math.abs(this.offset-otherNote.getOffset()) < offsetThreshold ))
 			return false;
-		if ( (this.f0/otherNote.getF0() > f0ThresholdLower) && (this.f0/otherNote.getF0() < f0ThresholdHigher)  );
-		return true;
+		double ratio = this.f0/otherNote.getF0();
+		return (ratio > f0ThresholdLower) && (ratio < f0ThresholdHigher);
 	}
 	
 
@@ -75,12 +73,4 @@ public class NemaNote extends NemaSegment{
 		this.f0 = fZero;
 	}
 	
-	public double getOnset() {
-		return onset;
-	}
-	
-	public double getOffset(){
-		return offset;
-	}
-	
 }
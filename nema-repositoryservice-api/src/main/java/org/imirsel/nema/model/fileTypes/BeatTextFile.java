@@ -4,16 +4,15 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
 import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
-import org.imirsel.nema.model.util.PathAndTagCleaner;
 
 public class BeatTextFile extends SingleTrackEvalFileTypeImpl {
 
@@ -29,91 +28,54 @@ public class BeatTextFile extends SingleTrackEvalFileTypeImpl {
 	@Override
 	public NemaData readFile(File theFile) throws IllegalArgumentException,
 			FileNotFoundException, IOException {
-		
-		if (theFile.exists())
-        {
-            if(theFile.canRead()){
-                BufferedReader textBuffer = null;
-                ArrayList<String[]> rowData = new ArrayList<String[]>();
-            	String[] annotators = null;
-                int maxRowLength = 0;
-                try
-                {
-	                try
-	                {
-	                    textBuffer = new BufferedReader( new FileReader(theFile) );
-	                }
-	                catch(java.io.FileNotFoundException fnfe)
-	                {
-	                    throw new IllegalArgumentException("The specified file does not exist.\n\tFile: " + theFile.getPath());
-	                }
-	                String line = null; 
-	                
-                    //read data
-                    line = textBuffer.readLine();
-                    while (line != null)
-                    {
-                        if (!line.trim().equals("")){
-                        	if (line.trim().startsWith("#")) {
-                        		String headerRow = line.trim().replaceFirst("#", "");
-                        		String[] headerRowArr = headerRow.split("=");
-                        		if(headerRowArr.length == 2) {
-                        			if(headerRowArr[0].equalsIgnoreCase("annotators")) {
-                        				annotators = DeliminatedTextFileUtilities.parseDelimTextLine(headerRowArr[1].trim(),READ_DELIMITER);
-                        			}
-                        			
-                        		}
-                        		
-                        	} else {
-                        		String[] row = DeliminatedTextFileUtilities.parseDelimTextLine(line,READ_DELIMITER);
-                                if (row != null){
-                                	rowData.add(row);
-                                	if (row.length > maxRowLength)
-                                    {
-                                        maxRowLength = row.length;
-                                    }
-                                }
-                        		
-                        	}
+		return readTextFile(theFile);
+	}
 
-                        }
-                        line = textBuffer.readLine();
-                    }
-                }
-                catch (java.io.IOException ioe)
-                {
-                    throw new java.io.IOException("An IOException occured while reading file: " + theFile.getPath() + "\n" + ioe);
-                }
-                catch (java.lang.NullPointerException npe)
-                {
-                    throw new RuntimeException("NullPointerException caused by: " + theFile.getCanonicalPath(), npe);
-                }
-                finally{
-                	if (textBuffer != null){
-                		textBuffer.close();
-                	}
-                }
-                
-                double[][] outputData = new double[rowData.size()][maxRowLength];
-                for (int i = 0; i < rowData.size(); i++) {
-                    String[] row = (String[])rowData.get(i);
-                    for (int j = 0; j < row.length; j++) {
-                        outputData[i][j] = Double.valueOf(row[j].trim());
-                    }
-                }
-                NemaData obj = new NemaData(PathAndTagCleaner.convertFileToMIREX_ID(theFile));
-                obj.setMetadata(NemaDataConstants.BEAT_TRACKING_DATA, outputData);
-                if(annotators != null) {
-                	obj.setMetadata(NemaDataConstants.BEAT_TRACKING_ANNOTATORS, annotators);
-                }
-                return obj;
-                
-            }else{
-                throw new IOException("The file: " + theFile.getPath() + " is not readable!");
-            }
-        }else{
-            throw new FileNotFoundException("The file: " + theFile.getPath() + " was not found!");
-        }
+	public NemaData readData(Reader reader, String trackId)
+			throws IllegalArgumentException, IOException {
+		BufferedReader textBuffer = DeliminatedTextFileUtilities.toBufferedReader(reader);
+		ArrayList<String[]> rowData = new ArrayList<String[]>();
+		String[] annotators = null;
+		int maxRowLength = 0;
+		
+		//read data
+		String line = textBuffer.readLine();
+		while (line != null){
+			if (line.trim().equals("")){
+				//skip empty lines
+			} else if (line.trim().startsWith("#")) {
+				String headerRow = line.trim().replaceFirst("#", "");
+				String[] headerRowArr = headerRow.split("=");
+				if(headerRowArr.length == 2) {
+					if(headerRowArr[0].equalsIgnoreCase("annotators")) {
+						annotators = DeliminatedTextFileUtilities.parseDelimTextLine(headerRowArr[1].trim(),READ_DELIMITER);
+					}
+				}
+			} else {
+				String[] row = DeliminatedTextFileUtilities.parseDelimTextLine(line,READ_DELIMITER);
+				if (row != null){
+					rowData.add(row);
+					if (row.length > maxRowLength){
+						maxRowLength = row.length;
+					}
+				}
+			}
+			line = textBuffer.readLine();
+		}
+		
+		double[][] outputData = new double[rowData.size()][maxRowLength];
+		for (int i = 0; i < rowData.size(); i++) {
+			String[] row = rowData.get(i);
+			for (int j = 0; j < row.length; j++) {
+				outputData[i][j] = Double.valueOf(row[j].trim());
+			}
+		}
+		NemaData obj = new NemaData(trackId);
+		obj.setMetadata(NemaDataConstants.BEAT_TRACKING_DATA, outputData);
+		if(annotators != null) {
+			obj.setMetadata(NemaDataConstants.BEAT_TRACKING_ANNOTATORS, annotators);
+		}
+		return obj;
 	}
 
 	@Override
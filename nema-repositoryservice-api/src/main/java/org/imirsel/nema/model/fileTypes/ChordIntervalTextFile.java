@@ -10,6 +10,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -20,7 +21,6 @@ import java.util.logging.Logger;
 import org.imirsel.nema.model.*;
 import org.imirsel.nema.model.util.ChordConversionUtil;
 import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
-import org.imirsel.nema.model.util.PathAndTagCleaner;
 
 
 /**
@@ -43,8 +43,14 @@ public class ChordIntervalTextFile extends SingleTrackEvalFileTypeImpl {
 	@Override
 	public NemaData readFile(File theFile)
 			throws IllegalArgumentException, FileNotFoundException, IOException {
+		return readTextFile(theFile);
+	}
+
+	@Override
+	public NemaData readData(Reader reader, String trackId)
+			throws IllegalArgumentException, IOException {
 		
-		String[][] chordStringsData = DeliminatedTextFileUtilities.loadDelimTextData(theFile, READ_DELIMITER, -1);
+		String[][] chordStringsData = DeliminatedTextFileUtilities.loadDelimTextData(reader, READ_DELIMITER, -1);
 		
 		// Convert the data to a 2D double array
 		int nrows = chordStringsData.length;
@@ -61,7 +67,7 @@ public class ChordIntervalTextFile extends SingleTrackEvalFileTypeImpl {
 			try{
 				notes = ChordConversionUtil.getInstance().convertIntervalsToNotenumbers(interval);
 			}catch(IllegalArgumentException e){
-				Logger.getLogger(ChordShortHandTextFile.class.getName()).log(Level.SEVERE, "Failed to convert chord format in file: " + theFile.getAbsolutePath(), e);
+				Logger.getLogger(ChordShortHandTextFile.class.getName()).log(Level.SEVERE, "Failed to convert chord format for track: " + trackId, e);
 				throw e;
 			}
 			chords.add(new NemaChord(onset, offset, notes));
@@ -69,7 +75,7 @@ public class ChordIntervalTextFile extends SingleTrackEvalFileTypeImpl {
 		Collections.sort(chords);
 		
 		// Form the NemaData Object for this file and return as a length-1 list
-		NemaData obj = new NemaData(PathAndTagCleaner.convertFileToMIREX_ID(theFile));
+		NemaData obj = new NemaData(trackId);
 		obj.setMetadata(NemaDataConstants.CHORD_LABEL_SEQUENCE, chords);
 		return obj;
 	}
@@ -10,6 +10,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -22,7 +23,6 @@ import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
 import org.imirsel.nema.model.util.ChordConversionUtil;
 import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
-import org.imirsel.nema.model.util.PathAndTagCleaner;
 
 
 /**
@@ -45,8 +45,14 @@ public class ChordNumberTextFile extends SingleTrackEvalFileTypeImpl {
 	@Override
 	public NemaData readFile(File theFile)
 			throws IllegalArgumentException, FileNotFoundException, IOException {
+		return readTextFile(theFile);
+	}
+
+	@Override
+	public NemaData readData(Reader reader, String trackId)
+			throws IllegalArgumentException, IOException {
 		
-		String[][] chordStringsData = DeliminatedTextFileUtilities.loadDelimTextData(theFile, READ_DELIMITER, -1);
+		String[][] chordStringsData = DeliminatedTextFileUtilities.loadDelimTextData(reader, READ_DELIMITER, -1);
 		
 		// Convert the data to a 2D double array
 		int nrows = chordStringsData.length;
@@ -60,14 +66,14 @@ public class ChordNumberTextFile extends SingleTrackEvalFileTypeImpl {
 			try{
 				notes = ChordConversionUtil.getInstance().convertChordNumbersToNoteNumbers(chordStringsData[r][2]);
 			}catch(IllegalArgumentException e){
-				Logger.getLogger(ChordShortHandTextFile.class.getName()).log(Level.SEVERE, "Failed to convert chord format in file: " + theFile.getAbsolutePath(), e);
+				Logger.getLogger(ChordShortHandTextFile.class.getName()).log(Level.SEVERE, "Failed to convert chord format for track: " + trackId, e);
 				throw e;
 			}
 			chords.add(new NemaChord(onset, offset, notes));
 		}
 		Collections.sort(chords);
 		
-		NemaData obj = new NemaData(PathAndTagCleaner.convertFileToMIREX_ID(theFile));
+		NemaData obj = new NemaData(trackId);
 		obj.setMetadata(NemaDataConstants.CHORD_LABEL_SEQUENCE, chords);
 		return obj;
 	}
@@ -3,11 +3,11 @@ package org.imirsel.nema.model.fileTypes;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Reader;
 
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
 import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
-import org.imirsel.nema.model.util.PathAndTagCleaner;
 
 /**
  * Key text file type.
@@ -34,11 +34,17 @@ public class KeyTextFile extends SingleTrackEvalFileTypeImpl {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public NemaData readFile(File theFile) throws IllegalArgumentException,
-			FileNotFoundException, IOException {
+	public NemaData readFile(File theFile)
+			throws IllegalArgumentException, FileNotFoundException, IOException {
+		return readTextFile(theFile);
+	}
+
+	@Override
+	public NemaData readData(Reader reader, String trackId)
+			throws IllegalArgumentException, IOException {
 		
 		/* Read a space-delimited key text file as a 2D string array (should have just 1 row, 2 columns)*/
-		String[][] keyDataStrArray = DeliminatedTextFileUtilities.loadDelimTextData(theFile, READ_DELIMITER, -1);
+		String[][] keyDataStrArray = DeliminatedTextFileUtilities.loadDelimTextData(reader, READ_DELIMITER, -1);
 
 		/* Check that the text file is of proper format: <tonic>\t<mode>\n<EOF> */
 		if (keyDataStrArray.length != 1) {
@@ -60,7 +66,7 @@ public class KeyTextFile extends SingleTrackEvalFileTypeImpl {
 		
 		/* Fill the NemaData object with the proper data and return it*/
 		String[] keyData = keyDataStrArray[0];
-		NemaData obj = new NemaData(PathAndTagCleaner.convertFileToMIREX_ID(theFile));
+		NemaData obj = new NemaData(trackId);
 		obj.setMetadata(NemaDataConstants.KEY_DETECTION_DATA, keyData);
 		return obj;
 	}
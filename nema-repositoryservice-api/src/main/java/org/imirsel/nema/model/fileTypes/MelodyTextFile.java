@@ -3,6 +3,7 @@ package org.imirsel.nema.model.fileTypes;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Reader;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,7 +11,6 @@ import java.util.List;
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
 import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
-import org.imirsel.nema.model.util.PathAndTagCleaner;
 
 
 /**
@@ -42,33 +42,16 @@ public class MelodyTextFile extends SingleTrackEvalFileTypeImpl {
 	@Override
 	public NemaData readFile(File theFile)
 			throws IllegalArgumentException, FileNotFoundException, IOException {
+		return readTextFile(theFile);
+	}
 
-		/* Read a space-delimited melody text file as a 2D string array */
-		String[][] melodyDataStrArray = DeliminatedTextFileUtilities.loadDelimTextData(theFile, READ_DELIMITER, -1);
+	@Override
+	public NemaData readData(Reader reader, String trackId)
+			throws IllegalArgumentException, IOException {
 
-		/* Convert the 2D string data to a 2D double array */
-		int nrows = melodyDataStrArray.length;
-		int ncols = 2;
-		double[][] melodyDataRaw = new double[nrows][ncols];
-		for(int r = 0; r < nrows; r++) {
-			try{
-				for(int c = 0; c < ncols; c++) {
-					melodyDataRaw[r][c] = Double.valueOf(melodyDataStrArray[r][c]);
-				}
-			}catch(Exception e){
-				String msg = "Failed to parse line " + r + " of file " + theFile.getAbsolutePath() + "\n" +
-				"Content: \n";
-				for (int i = 0; i < melodyDataStrArray[r].length; i++) {
-					msg += "'" + melodyDataStrArray[r][i] + "'";
-					if (i<melodyDataStrArray[r].length-1){
-						msg += ",";
-					}
-					
-				}
-				msg += "\n";
-				throw new IllegalArgumentException(msg,e);
-			}
-		}
+		/* Read the time-stamp and F0 columns of a space-delimited melody text file as a 2D double array */
+		double[][] melodyDataRaw = DeliminatedTextFileUtilities.loadDelimDoubleData(reader, READ_DELIMITER, 2, 2);
+		int nrows = melodyDataRaw.length;
 		
 		/* 
 		 * Set up the 0th-order interpolation to convert to the 
@@ -144,7 +127,7 @@ public class MelodyTextFile extends SingleTrackEvalFileTypeImpl {
         }
 		
 		/* Form the NemaData Object for this file and return it */
-		NemaData obj = new NemaData(PathAndTagCleaner.convertFileToMIREX_ID(theFile));
+		NemaData obj = new NemaData(trackId);
 		obj.setMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA, melodyDataInterpolated);
 		return obj;
 	}
@@ -3,11 +3,11 @@ package org.imirsel.nema.model.fileTypes;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Reader;
 import java.text.DecimalFormat;
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
 import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
-import org.imirsel.nema.model.util.PathAndTagCleaner;
 
 
 /**
@@ -37,44 +37,21 @@ public class MultiF0EstTextFile extends SingleTrackEvalFileTypeImpl {
 	@Override
 	public NemaData readFile(File theFile)
 			throws IllegalArgumentException, FileNotFoundException, IOException {
+		return readTextFile(theFile);
+	}
 
-		/* Read a space-delimited multiF0 text file as a 2D string array */
-		String[][] multiF0EstDataStrArray = DeliminatedTextFileUtilities.loadDelimTextData(theFile, READ_DELIMITER, -1);
-		int nrows = multiF0EstDataStrArray.length;
-		int ncols = multiF0EstDataStrArray[0].length;
+	@Override
+	public NemaData readData(Reader reader, String trackId)
+			throws IllegalArgumentException, IOException {
 
         /*
-         *  Put the contents of the Time-stamp and multi-F0s into a 
-         *  single variable column 2d-double array 
+         *  Read the Time-stamp and multi-F0s of a space-delimited multiF0 
+         *  text file into a single variable column 2d-double array 
          */
-		double[][] multiF0EstData = new double[nrows][];
-		for(int r = 0; r < nrows; r++) {
-			try{
-				int ctr = 0;
-				while ((ctr < ncols )&&(multiF0EstDataStrArray[r][ctr]!=null)){
-					ctr++;
-				}
-				double[] tmpRow = new double[ctr];
-				for(int c = 0; c < ctr; c++) {
-					tmpRow[c] = Double.valueOf(multiF0EstDataStrArray[r][c]);
-				}
-				multiF0EstData[r]=tmpRow;				
-			}catch(Exception e){
-				String msg = "Failed to parse line " + r + " of file " + theFile.getAbsolutePath() + "\n" +
-				"Content: \n";
-				for (int i = 0; i < multiF0EstDataStrArray[r].length; i++) {
-					msg += "'" + multiF0EstDataStrArray[r][i] + "'";
-					if (i<multiF0EstDataStrArray[r].length-1){
-						msg += ",";
-					}					
-				}
-				msg += "\n";
-				throw new IllegalArgumentException(msg,e);
-			}
-		}
+		double[][] multiF0EstData = DeliminatedTextFileUtilities.loadDelimDoubleData(reader, READ_DELIMITER, 1, -1);
 		
 		/* Form the NemaData Object for this file and return it */
-		NemaData obj = new NemaData(PathAndTagCleaner.convertFileToMIREX_ID(theFile));
+		NemaData obj = new NemaData(trackId);
 		obj.setMetadata(NemaDataConstants.MULTI_F0_EST_DATA, multiF0EstData);
 		return obj;
 	}
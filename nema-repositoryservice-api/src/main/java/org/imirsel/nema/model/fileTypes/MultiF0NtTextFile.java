@@ -5,22 +5,24 @@
 
 package org.imirsel.nema.model.fileTypes;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 import org.imirsel.nema.model.fileTypes.SingleTrackEvalFileTypeImpl; 
-import org.imirsel.nema.model.util.PathAndTagCleaner;
 import org.imirsel.nema.model.NemaNote;
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
 import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
+import org.imirsel.nema.model.util.DelimitedTextTokenizer;
 
 
 /**
@@ -35,6 +37,7 @@ public class MultiF0NtTextFile extends SingleTrackEvalFileTypeImpl {
 	public static final String READ_DELIMITER = "\\s+";
 	public static final String WRITE_DELIMITER = "\t";	
 	public static final String TYPE_NAME = "MultiF0 Note-Tracking text file";
+	public static final String INSTRUMENT_HEADER = "instrument";
 	
 	public MultiF0NtTextFile() {
 		super(TYPE_NAME);
@@ -43,25 +46,52 @@ public class MultiF0NtTextFile extends SingleTrackEvalFileTypeImpl {
 	@Override
 	public NemaData readFile(File theFile)
 			throws IllegalArgumentException, FileNotFoundException, IOException {
+		return readTextFile(theFile);
+	}
+
+	/**
+	 * Reads rows of onset, offset and F0 values. An optional header line of 
+	 * the form <code># instrument = piano</code> names the instrumentation 
+	 * of the track, which is used to break down the evaluation.
+	 */
+	@Override
+	public NemaData readData(Reader reader, String trackId)
+			throws IllegalArgumentException, IOException {
+		BufferedReader textBuffer = DeliminatedTextFileUtilities.toBufferedReader(reader);
+		DelimitedTextTokenizer tokenizer = DelimitedTextTokenizer.getInstance(READ_DELIMITER);
+		List<NemaNote> notes = new ArrayList<NemaNote>();
+		String instrument = null;
+		double[] row = new double[3];
 		
-		String[][] mf0NtStringsData = DeliminatedTextFileUtilities.loadDelimTextData(theFile, READ_DELIMITER, -1);
-		
-		// Convert the data to a 2D double array
-		int nrows = mf0NtStringsData.length;
-		List<NemaNote> notes = new ArrayList<NemaNote>(nrows);
-		
-		double onset,offset;
-		Double f0;
-		for(int r = 0; r < nrows-1; r++) {
-			onset = Double.parseDouble(mf0NtStringsData[r][0]);
-			offset = Double.parseDouble(mf0NtStringsData[r][1]);
-			f0 = Double.parseDouble(mf0NtStringsData[r][2]);
-			notes.add(new NemaNote(onset, offset, f0));
+		String line = textBuffer.readLine();
+		while (line != null){
+			String trimmed = line.trim();
+			if (trimmed.startsWith("#")) {
+				String[] headerRowArr = trimmed.replaceFirst("#", "").split("=");
+				if(headerRowArr.length == 2 && headerRowArr[0].trim().equalsIgnoreCase(INSTRUMENT_HEADER)) {
+					instrument = headerRowArr[1].trim();
+				}
+			} else if (!trimmed.equals("")){
+				int numCols;
+				try{
+					numCols = tokenizer.parseDoubles(trimmed, row);
+				}catch(NumberFormatException e){
+					throw new IllegalArgumentException("Failed to parse note for track " + trackId + " from line: " + line, e);
+				}
+				if (numCols != 3){
+					throw new IllegalArgumentException("Expected 3 columns (onset, offset and F0) for track " + trackId + ", found " + numCols + " on line: " + line);
+				}
+				notes.add(new NemaNote(row[0], row[1], row[2]));
+			}
+			line = textBuffer.readLine();
 		}
 		Collections.sort(notes);
 		
-		NemaData obj = new NemaData(PathAndTagCleaner.convertFileToMIREX_ID(theFile));
+		NemaData obj = new NemaData(trackId);
 		obj.setMetadata(NemaDataConstants.MULTI_F0_NT_NOTE_SEQUENCE, notes);
+		if (instrument != null){
+			obj.setMetadata(NemaDataConstants.MULTI_F0_NT_INSTRUMENT, instrument);
+		}
 		return obj;
 	}
 	
@@ -80,6 +110,9 @@ public class MultiF0NtTextFile extends SingleTrackEvalFileTypeImpl {
 				throw new IllegalArgumentException("Failed to retrieve notes from: " + data.getId()); 
 			}
 			writer = new BufferedWriter(new FileWriter(theFile));
+			if (data.hasMetadata(NemaDataConstants.MULTI_F0_NT_INSTRUMENT)){
+				writer.write("# " + INSTRUMENT_HEADER + " = " + data.getStringMetadata(NemaDataConstants.MULTI_F0_NT_INSTRUMENT) + "\n");
+			}
 			
 			NemaNote nemaNote;
 			for (Iterator<NemaNote> it = notes.iterator(); it.hasNext();) {
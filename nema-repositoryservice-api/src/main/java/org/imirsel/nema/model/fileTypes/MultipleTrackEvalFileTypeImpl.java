@@ -5,7 +5,6 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import org.imirsel.nema.model.NemaData;
 
@@ -51,11 +50,11 @@ public abstract class MultipleTrackEvalFileTypeImpl extends NemaFileTypeImpl imp
 		//   (otherwise there is no way to know if they are about the same test across different submissions)
 		Collections.sort(filesToUse);
 		
-		for(Iterator<File> it = filesToUse.iterator();it.hasNext();){
-			File toRead = it.next();
-			getLogger().info("Reading file: " + toRead.getAbsolutePath());
-			out.add(readFile(toRead));
-		}
+		out.addAll(readFiles(filesToUse, new ParallelFileReader.FileReadTask<List<NemaData>>() {
+			public List<NemaData> read(File theFile) throws IllegalArgumentException, FileNotFoundException, IOException {
+				return readFile(theFile);
+			}
+		}));
 		
 		getLogger().info("Retrieved " + out.size() + " of " + files.length + " files from " + theDir.getAbsolutePath());
 		
@@ -1,6 +1,10 @@
 package org.imirsel.nema.model.fileTypes;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.util.List;
 import java.util.logging.Handler;
 import java.util.logging.Logger;
 import java.util.logging.StreamHandler;
@@ -19,6 +23,9 @@ public abstract class NemaFileTypeImpl implements NemaFileType{
 	private String typeName;
 	private String filenameExtension = ".txt";
 	private boolean refersToAudio;
+	private boolean parallelRead = false;
+	private int numReadThreads = ParallelFileReader.DEFAULT_NUM_THREADS;
+	private long[] lastReadTimes = new long[0];
 	
 	public NemaFileTypeImpl(String typeName) {
 		this.typeName = typeName;
@@ -57,4 +64,62 @@ public abstract class NemaFileTypeImpl implements NemaFileType{
 	public boolean refersToTrackIds() {
 		return refersToAudio;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Sets whether directories are read with a pool of threads, rather than 
+	 * one file at a time.
+	 * @param parallelRead true to read files concurrently.
+	 * @since 0.4.1
+	 */
+	public void setParallelRead(boolean parallelRead) {
+		this.parallelRead = parallelRead;
+	}
+
+	public boolean getParallelRead() {
+		return parallelRead;
+	}
+
+	/**
+	 * Sets the maximum number of files read at once when reading in parallel.
+	 * @param numReadThreads the number of threads to read with.
+	 * @since 0.4.1
+	 */
+	public void setNumReadThreads(int numReadThreads) {
+		if (numReadThreads < 1){
+			throw new IllegalArgumentException("The number of threads must be at least 1, received: " + numReadThreads);
+		}
+		this.numReadThreads = numReadThreads;
+	}
+
+	public int getNumReadThreads() {
+		return numReadThreads;
+	}
+
+	/**
+	 * @return the time taken to read each file in the last directory read, 
+	 * in nanoseconds and in the order the data was returned.
+	 * @since 0.4.1
+	 */
+	public long[] getLastReadTimes() {
+		return lastReadTimes;
+	}
+	
+	/**
+	 * Reads a list of files, in parallel if enabled, returning the data read 
+	 * in the same order as the files.
+	 * @param files The files to read.
+	 * @param readTask The task to read each file with.
+	 * @return The data read from each file.
+	 * @throws IllegalArgumentException Thrown if a file is not in the expected format.
+	 * @throws FileNotFoundException Thrown if a file didn't exist or couldn't be read.
+	 * @throws IOException Thrown if there is a problem reading a file, unrelated to format.
+	 * @since 0.4.1
+	 */
+	protected <T> List<T> readFiles(List<File> files, ParallelFileReader.FileReadTask<T> readTask) 
+			throws IllegalArgumentException, FileNotFoundException, IOException{
+		ParallelFileReader<T> reader = new ParallelFileReader<T>(readTask, parallelRead ? numReadThreads : 1, getLogger());
+		List<T> out = reader.readAll(files);
+		lastReadTimes = reader.getReadTimes();
+		return out;
+	}
+}
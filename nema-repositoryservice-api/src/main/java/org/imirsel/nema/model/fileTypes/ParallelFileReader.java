@@ -0,0 +1,276 @@
+package org.imirsel.nema.model.fileTypes;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads a list of files with a bounded pool of worker threads, returning the
+ * data read in the same order as the files. Used by the single and multiple
+ * track file type base classes to read directories of result files, where
+ * reading is dominated by file system latency rather than parsing.
+ *
+ * If any file fails to read, no further reads are started, reads in
+ * progress are interrupted and an exception of the same type as the first
+ * failure is thrown, reporting all of the failures observed. The time taken
+ * to read each file is recorded and may be retrieved after a read with
+ * {@link #getReadTimes()}.
+ *
+ * Instances hold the timings of the last read and are not thread-safe.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class ParallelFileReader<T> {
+
+	/** The default number of reads to run at once. */
+	public static final int DEFAULT_NUM_THREADS = Math.min(16, 2 * Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Reads the data from a single file.
+	 */
+	public static interface FileReadTask<T> {
+		public T read(File theFile) throws IllegalArgumentException, FileNotFoundException, IOException;
+	}
+
+	private static final AtomicInteger poolNumber = new AtomicInteger(1);
+
+	private final FileReadTask<T> readTask;
+	private final int numThreads;
+	private final Logger logger;
+	private long[] readTimes = new long[0];
+	private long totalTime = 0;
+
+	/**
+	 * Constructor.
+	 * @param readTask The task to read each file with.
+	 * @param numThreads The maximum number of files to read at once, 1 reads
+	 * them sequentially on the calling thread.
+	 * @param logger The logger to report timings and failures to.
+	 */
+	public ParallelFileReader(FileReadTask<T> readTask, int numThreads, Logger logger) {
+		if (numThreads < 1){
+			throw new IllegalArgumentException("The number of threads must be at least 1, received: " + numThreads);
+		}
+		this.readTask = readTask;
+		this.numThreads = numThreads;
+		this.logger = logger;
+	}
+
+	/**
+	 * Reads each of the files.
+	 *
+	 * @param files The files to read.
+	 * @return The data read from each file, in the same order as the files.
+	 * @throws IllegalArgumentException Thrown if a file is not in the expected format.
+	 * @throws FileNotFoundException Thrown if a file didn't exist or couldn't be read.
+	 * @throws IOException Thrown if there is a problem reading a file, unrelated to format.
+	 */
+	public List<T> readAll(List<File> files) throws IllegalArgumentException, FileNotFoundException, IOException{
+		final int numFiles = files.size();
+		final long[] times = new long[numFiles];
+		List<T> out = new ArrayList<T>(numFiles);
+		long start = System.nanoTime();
+
+		if (numThreads == 1 || numFiles < 2){
+			for (int i = 0; i < numFiles; i++) {
+				File toRead = files.get(i);
+				long fileStart = System.nanoTime();
+				try{
+					out.add(readTask.read(toRead));
+				}catch(IOException e){
+					throw rethrowIO(e, toRead, 1, numFiles);
+				}catch(RuntimeException e){
+					throw rethrowRuntime(e, toRead, 1, numFiles);
+				}
+				times[i] = System.nanoTime() - fileStart;
+				logger.fine("Read file: " + toRead.getAbsolutePath() + " in " + (times[i] / 1000000) + "ms");
+			}
+		}else{
+			ExecutorService pool = Executors.newFixedThreadPool(Math.min(numThreads, numFiles), new ReaderThreadFactory());
+			try{
+				ExecutorCompletionService<Integer> completion = new ExecutorCompletionService<Integer>(pool);
+				List<Future<Integer>> futures = new ArrayList<Future<Integer>>(numFiles);
+				final List<T> results = new ArrayList<T>(numFiles);
+				for (int i = 0; i < numFiles; i++) {
+					results.add(null);
+				}
+				for (int i = 0; i < numFiles; i++) {
+					futures.add(completion.submit(new ReadFile(files.get(i), i, results, times)));
+				}
+
+				//wait for each read in completion order so that the first failure stops the rest
+				Throwable firstFailure = null;
+				File firstFailedFile = null;
+				int numFailures = 0;
+				for (int done = 0; done < numFiles; done++) {
+					Future<Integer> future;
+					try{
+						future = completion.take();
+					}catch(InterruptedException e){
+						Thread.currentThread().interrupt();
+						cancelAll(futures);
+						throw new IOException("Interrupted while reading " + numFiles + " files", e);
+					}
+					try{
+						future.get();
+					}catch(CancellationException e){
+						//cancelled after an earlier failure
+					}catch(InterruptedException e){
+						Thread.currentThread().interrupt();
+						cancelAll(futures);
+						throw new IOException("Interrupted while reading " + numFiles + " files", e);
+					}catch(ExecutionException e){
+						numFailures++;
+						File failed = files.get(futures.indexOf(future));
+						if (firstFailure == null){
+							firstFailure = e.getCause();
+							firstFailedFile = failed;
+							cancelAll(futures);
+						}else{
+							logger.log(Level.SEVERE, "Also failed to read file: " + failed.getAbsolutePath(), e.getCause());
+						}
+					}
+				}
+				if (firstFailure != null){
+					if (firstFailure instanceof IOException){
+						throw rethrowIO((IOException)firstFailure, firstFailedFile, numFailures, numFiles);
+					}else if (firstFailure instanceof RuntimeException){
+						throw rethrowRuntime((RuntimeException)firstFailure, firstFailedFile, numFailures, numFiles);
+					}else if (firstFailure instanceof Error){
+						throw (Error)firstFailure;
+					}
+					throw new RuntimeException("Failed to read file: " + firstFailedFile.getAbsolutePath(), firstFailure);
+				}
+				out.addAll(results);
+			}finally{
+				pool.shutdownNow();
+			}
+		}
+
+		totalTime = System.nanoTime() - start;
+		readTimes = times;
+		if (numFiles > 0){
+			long max = 0;
+			int maxIdx = 0;
+			long sum = 0;
+			for (int i = 0; i < numFiles; i++) {
+				sum += times[i];
+				if (times[i] > max){
+					max = times[i];
+					maxIdx = i;
+				}
+			}
+			logger.info("Read " + numFiles + " files in " + (totalTime / 1000000) + "ms using "
+					+ Math.min(numThreads, numFiles) + " thread(s), mean " + (sum / numFiles / 1000000)
+					+ "ms per file, slowest " + (max / 1000000) + "ms for " + files.get(maxIdx).getAbsolutePath());
+		}
+		return out;
+	}
+
+	/**
+	 * @return the time taken to read each file in the last call to
+	 * {@link #readAll(List)} in nanoseconds, in the same order as the files.
+	 */
+	public long[] getReadTimes() {
+		return readTimes;
+	}
+
+	/**
+	 * @return the elapsed time of the last call to {@link #readAll(List)} in
+	 * nanoseconds.
+	 */
+	public long getTotalTime() {
+		return totalTime;
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	private void cancelAll(List<Future<Integer>> futures){
+		for (Future<Integer> future : futures) {
+			future.cancel(true);
+		}
+	}
+
+	private IOException rethrowIO(IOException e, File file, int numFailures, int numFiles){
+		String msg = failureMessage(e, file, numFailures, numFiles);
+		IOException out;
+		if (e instanceof FileNotFoundException){
+			out = new FileNotFoundException(msg);
+			out.initCause(e);
+		}else{
+			out = new IOException(msg, e);
+		}
+		return out;
+	}
+
+	private RuntimeException rethrowRuntime(RuntimeException e, File file, int numFailures, int numFiles){
+		String msg = failureMessage(e, file, numFailures, numFiles);
+		if (e instanceof IllegalArgumentException){
+			return new IllegalArgumentException(msg, e);
+		}
+		return new RuntimeException(msg, e);
+	}
+
+	private static String failureMessage(Exception e, File file, int numFailures, int numFiles){
+		return "Failed to read " + numFailures + " of " + numFiles + " files, first failure reading: "
+				+ file.getAbsolutePath() + ": " + e.getMessage();
+	}
+
+	/**
+	 * Reads one file into its slot in the results.
+	 */
+	private class ReadFile implements Callable<Integer> {
+		private final File theFile;
+		private final int index;
+		private final List<T> results;
+		private final long[] times;
+
+		ReadFile(File theFile, int index, List<T> results, long[] times){
+			this.theFile = theFile;
+			this.index = index;
+			this.results = results;
+			this.times = times;
+		}
+
+		public Integer call() throws Exception {
+			long fileStart = System.nanoTime();
+			T data = readTask.read(theFile);
+			times[index] = System.nanoTime() - fileStart;
+			//each slot is written by a single task, visibility is given by Future.get()
+			results.set(index, data);
+			logger.fine("Read file: " + theFile.getAbsolutePath() + " in " + (times[index] / 1000000) + "ms");
+			return index;
+		}
+	}
+
+	/**
+	 * Creates named daemon threads, so that an abandoned read doesn't keep
+	 * the VM alive.
+	 */
+	private static class ReaderThreadFactory implements ThreadFactory {
+		private final int pool = poolNumber.getAndIncrement();
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "nema-file-reader-" + pool + "-" + threadNumber.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
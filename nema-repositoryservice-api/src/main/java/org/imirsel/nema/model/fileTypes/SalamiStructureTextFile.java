@@ -7,6 +7,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -20,6 +21,7 @@ import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaSalamiSegment;
 import org.imirsel.nema.model.NemaSegment;
 import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
 import org.imirsel.nema.model.util.IOUtil;
 import org.imirsel.nema.model.util.PathAndTagCleaner;
 
@@ -147,10 +149,38 @@ public class SalamiStructureTextFile extends SingleTrackEvalFileTypeImpl {
 	static int parseFailed = 0;
 	static int equalsSymbol = 0;
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	public NemaData readFile(File theFile) throws IllegalArgumentException,
 	FileNotFoundException, IOException {
+		BufferedReader textBuffer = new BufferedReader( new FileReader(theFile) );
+		try{
+			return read(textBuffer, PathAndTagCleaner.convertFileToMIREX_ID(theFile), theFile);
+		}finally{
+			try {
+				textBuffer.close();
+			} catch (IOException ex) {
+				getLogger().log(Level.SEVERE, null, ex);
+			}
+		}
+	}
+
+	/**
+	 * Reads from a stream, logging any issues found rather than writing them
+	 * to an issues file alongside the input.
+	 */
+	@Override
+	public NemaData readData(Reader reader, String trackId)
+			throws IllegalArgumentException, IOException {
+		return read(DeliminatedTextFileUtilities.toBufferedReader(reader), trackId, null);
+	}
+
+	/**
+	 * Parses SALAMI structure annotations, if the file read is non-null 
+	 * issues found are written to a <code>.issues</code> file alongside it.
+	 */
+	@SuppressWarnings("unchecked")
+	private NemaData read(BufferedReader textBuffer, String trackId, File theFile) throws IllegalArgumentException,
+	IOException {
 
 		double onset = -1;
 		double currentMacroOnset = -1, currentMicroOnset = -1, currentNonMusicOnset = -1;
@@ -168,7 +198,6 @@ public class SalamiStructureTextFile extends SingleTrackEvalFileTypeImpl {
         
 		boolean ended = false;
 		
-		BufferedReader textBuffer = new BufferedReader( new FileReader(theFile) );
 		try{
 			ArrayList<NemaSalamiSegment> macro_segments = new ArrayList<NemaSalamiSegment>(10);
 			ArrayList<NemaSalamiSegment> micro_segments = new ArrayList<NemaSalamiSegment>(40);
@@ -432,9 +461,13 @@ public class SalamiStructureTextFile extends SingleTrackEvalFileTypeImpl {
     		
 	        if(!allIssues.equals("")){
 	        	totalIssues++;
-	        	File issueFile = new File(theFile.getAbsolutePath() + ".issues");
-	        	IOUtil.writeBytesToFile(issueFile, issues.getBytes("UTF-8"));
-	        	System.out.println("\n\nFound issues for file: " + theFile.getAbsolutePath() + "\n" + allIssues);
+	        	if (theFile != null){
+	        		File issueFile = new File(theFile.getAbsolutePath() + ".issues");
+	        		IOUtil.writeBytesToFile(issueFile, issues.getBytes("UTF-8"));
+	        		System.out.println("\n\nFound issues for file: " + theFile.getAbsolutePath() + "\n" + allIssues);
+	        	}else{
+	        		getLogger().warning("Found issues for track: " + trackId + "\n" + allIssues);
+	        	}
 	        }
     		
 	        for (int j = 0; j < lists.length; j++) {
@@ -442,28 +475,24 @@ public class SalamiStructureTextFile extends SingleTrackEvalFileTypeImpl {
 			}
 	        
 			/* Fill the NemaData object with the proper data and return it*/
-			NemaData obj = new NemaData(PathAndTagCleaner.convertFileToMIREX_ID(theFile));
+			NemaData obj = new NemaData(trackId);
 			obj.setMetadata(NemaDataConstants.SALAMI_STRUCTURE_SEGMENTATION_DATA, 
 					lists
 					);
 			return obj;
 		}catch(Exception e){
-			String msg = "Parsing of " + theFile.getAbsolutePath() + " failed with exception:\n";
+			String msg = "Parsing of " + (theFile != null ? theFile.getAbsolutePath() : trackId) + " failed with exception:\n";
 			msg += e.toString();
-			System.out.println(msg);
-			e.printStackTrace(System.out);
 			parseFailed++;
-			File issueFile = new File(theFile.getAbsolutePath() + ".issues");
-        	IOUtil.writeBytesToFile(issueFile, msg.getBytes("UTF-8"));
-        	return null;
-		}finally{
-			if(textBuffer != null){
-				try {
-					textBuffer.close();
-				} catch (IOException ex) {
-					getLogger().log(Level.SEVERE, null, ex);
-				}
+			if (theFile != null){
+				System.out.println(msg);
+				e.printStackTrace(System.out);
+				File issueFile = new File(theFile.getAbsolutePath() + ".issues");
+				IOUtil.writeBytesToFile(issueFile, msg.getBytes("UTF-8"));
+			}else{
+				getLogger().log(Level.SEVERE, msg, e);
 			}
+        	return null;
 		}
 	}
 
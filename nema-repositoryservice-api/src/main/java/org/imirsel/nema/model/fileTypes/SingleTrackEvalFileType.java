@@ -12,6 +12,7 @@ package org.imirsel.nema.model.fileTypes;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 import org.imirsel.nema.model.NemaData;
 
@@ -37,6 +38,38 @@ public interface SingleTrackEvalFileType extends NemaFileType{
      */
     public NemaData readFile(File theFile) throws IllegalArgumentException, FileNotFoundException, IOException;
     
+    /**
+     * Read data on one track from a stream in the same format as an 
+     * evaluation file, e.g. a repository metadata value, without writing it 
+     * to disk first. The reader is not closed.
+     * 
+     * @param reader The stream to read the evaluation data from.
+     * @param trackId The id of the track that the data describes.
+     * @return A <code>NemaData<code> Object encoding the 
+     * evaluation data read.
+     * @throws IllegalArgumentException Thrown if the data is not in the expected format.
+     * @throws UnsupportedOperationException Thrown if the file type is not a
+     * text format that can be read from a stream.
+     * @throws IOException Thrown if there is a problem reading the stream, unrelated to format.
+     * @since 0.4.1
+     */
+    public NemaData readData(Reader reader, String trackId) throws IllegalArgumentException, IOException;
+    
+    /**
+     * Parse data on one track from text in the same format as an evaluation
+     * file.
+     * 
+     * @param text The evaluation data.
+     * @param trackId The id of the track that the data describes.
+     * @return A <code>NemaData<code> Object encoding the 
+     * evaluation data read.
+     * @throws IllegalArgumentException Thrown if the data is not in the expected format.
+     * @throws UnsupportedOperationException Thrown if the file type is not a
+     * text format.
+     * @since 0.4.1
+     */
+    public NemaData parseData(CharSequence text, String trackId) throws IllegalArgumentException;
+    
     /**
      * Parse a directory of data files and read data on one track from each file. 
      * If non-null a filename extension is used to filter the files read. Supports both list 
@@ -1,13 +1,17 @@
 package org.imirsel.nema.model.fileTypes;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import org.imirsel.nema.model.NemaData;
+import org.imirsel.nema.model.util.PathAndTagCleaner;
 
 /**
  * 
@@ -50,11 +54,11 @@ public abstract class SingleTrackEvalFileTypeImpl extends NemaFileTypeImpl imple
 			//   (otherwise there is no way to know if they are about the same test across different submissions)
 			Collections.sort(filesToUse);
 			
-			for(Iterator<File> it = filesToUse.iterator();it.hasNext();){
-				File toRead = it.next();
-				getLogger().info("Reading file: " + toRead.getAbsolutePath());
-				out.add(readFile(toRead));
-			}
+			out.addAll(readFiles(filesToUse, new ParallelFileReader.FileReadTask<NemaData>() {
+				public NemaData read(File theFile) throws IllegalArgumentException, FileNotFoundException, IOException {
+					return readFile(theFile);
+				}
+			}));
 			
 			getLogger().info("Retrieved " + out.size() + " of " + files.length + " files from " + theDir.getAbsolutePath());
 		}else {
@@ -67,6 +71,54 @@ public abstract class SingleTrackEvalFileTypeImpl extends NemaFileTypeImpl imple
     
     public abstract NemaData readFile(File theFile)
 		throws IllegalArgumentException, FileNotFoundException, IOException;
+    
+    /**
+     * Reads from a stream. This implementation throws an 
+     * UnsupportedOperationException, text file types should override it.
+     */
+    public NemaData readData(Reader reader, String trackId)
+    		throws IllegalArgumentException, IOException{
+    	throw new UnsupportedOperationException(getTypeName() + " files can't be read from a stream");
+    }
+    
+    public NemaData parseData(CharSequence text, String trackId)
+    		throws IllegalArgumentException{
+    	try{
+    		return readData(new StringReader(text.toString()), trackId);
+    	}catch(IOException e){
+    		//not thrown by a StringReader
+    		throw new RuntimeException("Unexpected IOException parsing data for track: " + trackId, e);
+    	}
+    }
+    
+    /**
+     * Reads a text file by opening it and passing it to 
+     * {@link #readData(Reader, String)}, with the track id derived from the
+     * file name.
+     * @param theFile The file to read.
+     * @return The data read.
+     * @throws IllegalArgumentException Thrown if the file is not in the expected format.
+     * @throws FileNotFoundException Thrown if the file didn't exist.
+     * @throws IOException Thrown if the file couldn't be read.
+     * @since 0.4.1
+     */
+    protected NemaData readTextFile(File theFile)
+    		throws IllegalArgumentException, FileNotFoundException, IOException{
+    	if (!theFile.exists()){
+    		throw new FileNotFoundException("The file: " + theFile.getPath() + " was not found!");
+    	}
+    	if (!theFile.canRead()){
+    		throw new IOException("The file: " + theFile.getPath() + " is not readable!");
+    	}
+    	BufferedReader textBuffer = new BufferedReader(new FileReader(theFile));
+    	try{
+    		return readData(textBuffer, PathAndTagCleaner.convertFileToMIREX_ID(theFile));
+    	}catch(IOException e){
+    		throw new IOException("An IOException occured while reading file: " + theFile.getPath() + "\n" + e, e);
+    	}finally{
+    		textBuffer.close();
+    	}
+    }
 	
 	public abstract void writeFile(File theFile, NemaData data)
 		throws IllegalArgumentException, FileNotFoundException, IOException;
@@ -4,9 +4,9 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -18,7 +18,7 @@ import java.util.regex.Pattern;
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaSegment;
 import org.imirsel.nema.model.NemaDataConstants;
-import org.imirsel.nema.model.util.PathAndTagCleaner;
+import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
 
 public class StructureTextFile extends SingleTrackEvalFileTypeImpl {
 
@@ -72,38 +72,31 @@ public class StructureTextFile extends SingleTrackEvalFileTypeImpl {
 	@Override
 	public NemaData readFile(File theFile) throws IllegalArgumentException,
 	FileNotFoundException, IOException {
+		return readTextFile(theFile);
+	}
 
-		BufferedReader textBuffer = new BufferedReader( new FileReader(theFile) );
-		try{
-			ArrayList<NemaSegment> segments = new ArrayList<NemaSegment>();
-	
-	        String line = null; 
-	    
-	        //read data
-	        line = textBuffer.readLine();
-	        while (line != null)
-	        {
-	        	line = line.trim();
-	        	if (!line.equals("")){
-	                segments.add(parseStructureLine(line));
-	            }
-	            line = textBuffer.readLine();
-	        }
-	        segments.trimToSize();
-	        
-			/* Fill the NemaData object with the proper data and return it*/
-			NemaData obj = new NemaData(PathAndTagCleaner.convertFileToMIREX_ID(theFile));
-			obj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_DATA, segments);
-			return obj;
-		}finally{
-			if(textBuffer != null){
-				try {
-					textBuffer.close();
-				} catch (IOException ex) {
-					getLogger().log(Level.SEVERE, null, ex);
-				}
+	@Override
+	public NemaData readData(Reader reader, String trackId)
+			throws IllegalArgumentException, IOException {
+		BufferedReader textBuffer = DeliminatedTextFileUtilities.toBufferedReader(reader);
+		ArrayList<NemaSegment> segments = new ArrayList<NemaSegment>();
+
+		//read data
+		String line = textBuffer.readLine();
+		while (line != null)
+		{
+			line = line.trim();
+			if (!line.equals("")){
+				segments.add(parseStructureLine(line));
 			}
+			line = textBuffer.readLine();
 		}
+		segments.trimToSize();
+
+		/* Fill the NemaData object with the proper data and return it*/
+		NemaData obj = new NemaData(trackId);
+		obj.setMetadata(NemaDataConstants.STRUCTURE_SEGMENTATION_DATA, segments);
+		return obj;
 	}
 
 	@SuppressWarnings("unchecked")
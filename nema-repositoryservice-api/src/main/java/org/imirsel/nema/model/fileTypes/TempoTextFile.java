@@ -3,12 +3,12 @@ package org.imirsel.nema.model.fileTypes;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Reader;
 import java.text.DecimalFormat;
 
 import org.imirsel.nema.model.NemaData;
 import org.imirsel.nema.model.NemaDataConstants;
 import org.imirsel.nema.model.util.DeliminatedTextFileUtilities;
-import org.imirsel.nema.model.util.PathAndTagCleaner;
 
 /**
  * Tempo estimation text file type.
@@ -33,11 +33,17 @@ public class TempoTextFile extends SingleTrackEvalFileTypeImpl {
 	}
 	
 	@Override
-	public NemaData readFile(File theFile) throws IllegalArgumentException,
-			FileNotFoundException, IOException {
+	public NemaData readFile(File theFile)
+			throws IllegalArgumentException, FileNotFoundException, IOException {
+		return readTextFile(theFile);
+	}
+
+	@Override
+	public NemaData readData(Reader reader, String trackId)
+			throws IllegalArgumentException, IOException {
 		
 		/* Read a space-delimited key text file as a 2D string array (should have just 1 row, 2 columns)*/
-		String[][] tempoDataStrArray = DeliminatedTextFileUtilities.loadDelimTextData(theFile, READ_DELIMITER, -1);
+		String[][] tempoDataStrArray = DeliminatedTextFileUtilities.loadDelimTextData(reader, READ_DELIMITER, -1);
 
 		/* Check that the text file is of proper format: <tempo1>\t<tempo2>\t<salience>\n<EOF> */
 		if (tempoDataStrArray.length != 1) {
@@ -65,7 +71,7 @@ public class TempoTextFile extends SingleTrackEvalFileTypeImpl {
 			}
 			tempoData[i] = Double.valueOf(tempoDataStrArray[0][i]);
 		}
-		NemaData obj = new NemaData(PathAndTagCleaner.convertFileToMIREX_ID(theFile));
+		NemaData obj = new NemaData(trackId);
 		obj.setMetadata(NemaDataConstants.TEMPO_EXTRACTION_DATA, tempoData);
 		return obj;
 
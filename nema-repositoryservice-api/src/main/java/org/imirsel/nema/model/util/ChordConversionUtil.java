@@ -35,7 +35,7 @@ public class ChordConversionUtil {
     public static final String CHORDNUMBERS_DICTIONARY_CLASSPATH = "/org/imirsel/nema/model/util/NoteNumbersDictionary.txt";
     public static final String NOTE_NUMBERS_TO_CHORD_NUMBER_CLASSPATH = "/org/imirsel/nema/model/util/NoteNumbersToChordNumbers.txt";
 
-    public static ChordConversionUtil getInstance() {
+    public static synchronized ChordConversionUtil getInstance() {
         if (instance == null) {
             instance = new ChordConversionUtil();
         }
@@ -9,11 +9,11 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.imirsel.nema.model.util.IOUtil;
 
@@ -287,8 +287,6 @@ public class DeliminatedTextFileUtilities {
         {
             if(csvFile.canRead()){
                 BufferedReader textBuffer = null;
-                ArrayList<String[]> rowData = new ArrayList<String[]>();
-                int maxRowLength = 0;
                 try
                 {
 	                try
@@ -299,26 +297,7 @@ public class DeliminatedTextFileUtilities {
 	                {
 	                    throw new RuntimeException("The specified file does not exist, this exception should never be thrown and indicates a serious bug.\n\tFile: " + csvFile.getPath());
 	                }
-	                String line = null; 
-	                
-                    //read data
-                    int count = 0;
-                    line = textBuffer.readLine();
-                    while ((line != null)&&((count < lines)|(lines == -1)))
-                    {
-                        if (!line.trim().equals("")){
-                            String[] row = parseDelimTextLine(line,delimiter);
-                            if (row != null){
-                            	rowData.add(row);
-	                            if (row.length > maxRowLength)
-	                            {
-	                                maxRowLength = row.length;
-	                            }
-                            }
-                        }
-                        line = textBuffer.readLine();
-                        count++;
-                    }
+	                return loadDelimTextData(textBuffer, delimiter, lines);
                 }
                 catch (java.io.IOException ioe)
                 {
@@ -333,17 +312,6 @@ public class DeliminatedTextFileUtilities {
                 		textBuffer.close();
                 	}
                 }
-                
-                String[][] outputData = new String[rowData.size()][maxRowLength];
-                for (int i = 0; i < rowData.size(); i++) {
-                    String[] row = (String[])rowData.get(i);
-                    for (int j = 0; j < row.length; j++) {
-                        outputData[i][j] = row[j].trim();
-                        //detect and remove speechmarks
-                    }
-                }
-                textBuffer.close();
-                return outputData;
             }else{
                 throw new IOException("The file: " + csvFile.getPath() + " is not readable!");
             }
@@ -352,6 +320,160 @@ public class DeliminatedTextFileUtilities {
         }
     }
     
+    /**
+     * Loads deliminated text from a stream into a 2d String array. The 
+     * stream is not closed.
+     * @param reader The stream to read.
+     * @param delimiter The delimiter to be used to read the text.
+     * @param lines Number of lines to read or -1 for all of them.
+     * @return the deliminated text represented as a 2d String array.
+     * @throws java.io.IOException Thrown if there was a problem reading the stream.
+     * @since 0.4.1
+     */
+    public static String[][] loadDelimTextData(Reader reader, String delimiter, int lines) throws IOException{
+        BufferedReader textBuffer = toBufferedReader(reader);
+        ArrayList<String[]> rowData = new ArrayList<String[]>();
+        int maxRowLength = 0;
+        DelimitedTextTokenizer tokenizer = DelimitedTextTokenizer.getInstance(delimiter);
+        
+        //read data
+        int count = 0;
+        String line = textBuffer.readLine();
+        while ((line != null)&&((count < lines)|(lines == -1)))
+        {
+            if (!line.trim().equals("")){
+                String[] row = tokenizer.tokenize(line);
+                if (row != null){
+                	rowData.add(row);
+                    if (row.length > maxRowLength)
+                    {
+                        maxRowLength = row.length;
+                    }
+                }
+            }
+            line = textBuffer.readLine();
+            count++;
+        }
+        
+        String[][] outputData = new String[rowData.size()][maxRowLength];
+        for (int i = 0; i < rowData.size(); i++) {
+            String[] row = (String[])rowData.get(i);
+            for (int j = 0; j < row.length; j++) {
+                outputData[i][j] = row[j].trim();
+            }
+        }
+        return outputData;
+    }
+    
+    /**
+     * Loads a deliminated text file of numbers directly into a 2d double 
+     * array, streaming the file line by line without creating a 2d String 
+     * array. Empty lines are skipped.
+     * @param csvFile The deliminated text file name and path.
+     * @param delimiter The delimiter to be used to read the text file.
+     * @param minColumns The minimum number of columns each line must have.
+     * @param maxColumns The maximum number of columns to read from each line 
+     * or -1 for all of them.
+     * @return a row of doubles for each non-empty line in the file, each 
+     * holding the first maxColumns columns of the line.
+     * @throws java.io.IOException Thrown if there was a problem reading the deliminated text file.
+     * @throws java.io.FileNotFoundException Thrown if the deliminated text file was not found.
+     * @throws IllegalArgumentException Thrown if a line has too few columns 
+     * or a column could not be parsed as a number.
+     * @since 0.4.1
+     */
+    public static double[][] loadDelimDoubleData(File csvFile, String delimiter, int minColumns, int maxColumns) throws IOException, FileNotFoundException, IllegalArgumentException{
+        if (!csvFile.exists()){
+            throw new FileNotFoundException("The file: " + csvFile.getPath() + " was not found!");
+        }
+        if (!csvFile.canRead()){
+            throw new IOException("The file: " + csvFile.getPath() + " is not readable!");
+        }
+        BufferedReader textBuffer = null;
+        try{
+            textBuffer = new BufferedReader( new FileReader(csvFile) );
+            return loadDelimDoubleData(textBuffer, delimiter, minColumns, maxColumns, " of file " + csvFile.getAbsolutePath());
+        }
+        catch (java.io.IOException ioe)
+        {
+            throw new java.io.IOException("An IOException occured while reading file: " + csvFile.getPath() + "\n" + ioe);
+        }
+        finally{
+            if (textBuffer != null){
+                textBuffer.close();
+            }
+        }
+    }
+    
+    /**
+     * Loads deliminated numbers from a stream directly into a 2d double 
+     * array. Empty lines are skipped and the stream is not closed.
+     * @param reader The stream to read.
+     * @param delimiter The delimiter to be used to read the text.
+     * @param minColumns The minimum number of columns each line must have.
+     * @param maxColumns The maximum number of columns to read from each line 
+     * or -1 for all of them.
+     * @return a row of doubles for each non-empty line.
+     * @throws java.io.IOException Thrown if there was a problem reading the stream.
+     * @throws IllegalArgumentException Thrown if a line has too few columns 
+     * or a column could not be parsed as a number.
+     * @since 0.4.1
+     */
+    public static double[][] loadDelimDoubleData(Reader reader, String delimiter, int minColumns, int maxColumns) throws IOException, IllegalArgumentException{
+        return loadDelimDoubleData(toBufferedReader(reader), delimiter, minColumns, maxColumns, "");
+    }
+    
+    private static double[][] loadDelimDoubleData(BufferedReader textBuffer, String delimiter, int minColumns, int maxColumns, String source) throws IOException, IllegalArgumentException{
+        DelimitedTextTokenizer tokenizer = DelimitedTextTokenizer.getInstance(delimiter);
+        double[] buffer = new double[maxColumns == -1 ? Math.max(minColumns, 8) : maxColumns];
+        double[][] rows = new double[256][];
+        int numRows = 0;
+        int lineNum = 0;
+        String line = textBuffer.readLine();
+        while (line != null){
+            int numColumns;
+            try{
+                numColumns = tokenizer.parseDoubles(line, buffer);
+                if (numColumns > buffer.length && maxColumns == -1){
+                    buffer = new double[numColumns * 2];
+                    tokenizer.parseDoubles(line, buffer);
+                }
+            }catch(NumberFormatException e){
+                throw new IllegalArgumentException("Failed to parse line " + lineNum + source + "\n" +
+                        "Content: \n'" + line + "'\n", e);
+            }
+            if (numColumns > 0){
+                if (numColumns < minColumns){
+                    throw new IllegalArgumentException("Failed to parse line " + lineNum + source + 
+                            ", expected at least " + minColumns + " columns but found " + numColumns + "\n" +
+                            "Content: \n'" + line + "'\n");
+                }
+                if (numRows == rows.length){
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                }
+                int rowLength = maxColumns == -1 ? numColumns : Math.min(numColumns, maxColumns);
+                rows[numRows++] = Arrays.copyOf(buffer, rowLength);
+            }
+            line = textBuffer.readLine();
+            lineNum++;
+        }
+        return Arrays.copyOf(rows, numRows);
+    }
+    
+    /**
+     * Returns the reader if it is already buffered, otherwise wraps it in a
+     * BufferedReader.
+     * @param reader The reader.
+     * @return A BufferedReader reading from the reader.
+     * @since 0.4.1
+     */
+    public static BufferedReader toBufferedReader(Reader reader){
+        if (reader instanceof BufferedReader){
+            return (BufferedReader)reader;
+        }
+        return new BufferedReader(reader);
+    }
+    
     
     /**
      * Returns a 2D String array representation of the data block from the csv file.
@@ -494,103 +616,7 @@ public class DeliminatedTextFileUtilities {
      * bad delimiter or line.
      */
     public static String[] parseDelimTextLine(String line, String delimiter) throws IllegalArgumentException{
-    	if (line == null || line.trim().equals("")){
-    		return null;
-    	}
-        ArrayList<String> output = new ArrayList<String>();
-        String tmp = line.trim();
-//        char delimChar = delimiter.charAt(0);
-        
-        //add boundary requirement to delimiter
-        Pattern delimPattern = Pattern.compile("^" + delimiter);
-        Matcher matcher = delimPattern.matcher(tmp);
-        //set use Anchoring bounds 
-        matcher.useAnchoringBounds(true);
-        
-        
-        
-        int end = tmp.length();
-        int lastIdx = 0;
-        int i = 0;
-        try{
-//        	System.out.println("'" + line + "'");
-        	if (tmp.contains("\"")){
-        		boolean encounteredSpeechMarks = false;
-                boolean insideSpeechMarks = false;
-        	
-	            for (; i < end; i++){
-//	            	System.out.println("char: " + line.charAt(i));
-	            	if(tmp.charAt(i) == '\"'){
-	            		encounteredSpeechMarks = true;
-	                    insideSpeechMarks = !insideSpeechMarks;
-//	                    System.out.println("encountered speechmark, insideSpeechMarks=" + insideSpeechMarks);
-	            	}
-	            	if(!insideSpeechMarks){
-	            		matcher.region(i, end);
-		            	
-		                if (matcher.find()){
-//		                	System.out.println("did find");
-		                    if (encounteredSpeechMarks){
-		                    	String comp = tmp.substring(lastIdx+1, i-1);
-		                        output.add(comp);
-//		                        System.out.println("added " + comp + " in speech mark block");
-		                        encounteredSpeechMarks = false;
-		                        lastIdx = matcher.end();
-		                        i=lastIdx-1;
-//		                        System.out.println("lastIdx set to " + lastIdx);
-		                    }else{
-		                    	String comp = tmp.substring(lastIdx, i);
-		                        output.add(comp);
-//		                        System.out.println("added " + comp + " in NO speech mark block");
-		                        
-		                        lastIdx = matcher.end();
-		                        i=lastIdx-1;
-//		                        System.out.println("lastIdx set to " + lastIdx);
-		                    }
-		                }else{
-//		                	System.out.println("didn't find");
-		                }
-	            	}
-	            }
-	            if (lastIdx != i){
-	                if (encounteredSpeechMarks){
-	                    if (insideSpeechMarks){
-	                        System.out.println("WARNING: DeliminatedTextFileUtilities.parseDelimTextLine(): unclosed quotes (\") encountered on line '" + line + "'\n" +
-	                        		"lastIdx=" + lastIdx + "\ti=" + i );
-	                        output.add(tmp.substring(lastIdx+1, i));
-	                    }else{
-	                        output.add(tmp.substring(lastIdx+1, i-1));
-	                    }
-	                }else{
-	                    output.add(tmp.substring(lastIdx, i));
-	                }
-	            }
-            
-        	}else{
-	        	
-	            for (; i < end; i++){
-	            	matcher.region(i, end);
-	            	
-	                if (matcher.find()){
-	                    output.add(tmp.substring(lastIdx, i));
-                        lastIdx = matcher.end();
-                        i=lastIdx;
-	                }
-	            }
-	            if (lastIdx != i){
-                    output.add(tmp.substring(lastIdx, i));
-	            }
-        	}
-            
-        }catch(Exception e){
-        	throw new IllegalArgumentException("Error parsing line:\n\t[" + tmp + "]\n" + 
-        			"Was at index: " + i + "\n" +
-					"lastIdx: " + lastIdx + "\n",e);
-        }
-                
-        String[] outLine = output.toArray(new String[output.size()]);
-        
-        return outLine;
+        return DelimitedTextTokenizer.getInstance(delimiter).tokenize(line);
     }
     
 }
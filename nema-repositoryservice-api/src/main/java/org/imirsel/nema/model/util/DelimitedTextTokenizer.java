@@ -0,0 +1,321 @@
+package org.imirsel.nema.model.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits lines of deliminated text files into their columns, as
+ * {@link DeliminatedTextFileUtilities#parseDelimTextLine(String, String)}
+ * does, removing speechmarks where necessary.
+ *
+ * Instances are obtained through {@link #getInstance(String)}, which compiles
+ * each delimiter once and caches it. Whitespace (\s+ or \s), tab and other
+ * single character delimiters are matched directly without the regular
+ * expression engine, any other delimiter is matched with the compiled
+ * pattern. {@link #parseDoubles(String, double[])} parses the columns of
+ * numeric lines directly into a double[] without building a String[] per
+ * line. Instances hold no state between calls and are thread-safe.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class DelimitedTextTokenizer {
+
+	private static final int REGEX = 0;
+	private static final int WHITESPACE_RUN = 1;
+	private static final int WHITESPACE_CHAR = 2;
+	private static final int SINGLE_CHAR = 3;
+
+	private static final String REGEX_META_CHARS = "\\[](){}.*+?^$|";
+
+	private static final ConcurrentHashMap<String, DelimitedTextTokenizer> INSTANCES =
+		new ConcurrentHashMap<String, DelimitedTextTokenizer>();
+
+	private final String delimiter;
+	private final Pattern delimPattern;
+	private final int kind;
+	private final char delimChar;
+	private final Logger _logger = Logger.getLogger(DelimitedTextTokenizer.class.getName());
+
+	/**
+	 * Returns the tokenizer for a delimiter, compiling it on first use.
+	 * @param delimiter The delimiter, a regular expression matched at the
+	 * start of each column boundary.
+	 * @return the tokenizer.
+	 * @throws IllegalArgumentException Thrown if the delimiter is not a valid
+	 * regular expression.
+	 */
+	public static DelimitedTextTokenizer getInstance(String delimiter) throws IllegalArgumentException{
+		DelimitedTextTokenizer tokenizer = INSTANCES.get(delimiter);
+		if (tokenizer == null){
+			tokenizer = new DelimitedTextTokenizer(delimiter);
+			DelimitedTextTokenizer existing = INSTANCES.putIfAbsent(delimiter, tokenizer);
+			if (existing != null){
+				tokenizer = existing;
+			}
+		}
+		return tokenizer;
+	}
+
+	public Logger getLogger() {
+		return _logger;
+	}
+
+	private DelimitedTextTokenizer(String delimiter) throws IllegalArgumentException{
+		this.delimiter = delimiter;
+		try{
+			//add boundary requirement to delimiter
+			this.delimPattern = Pattern.compile("^" + delimiter);
+		}catch(Exception e){
+			throw new IllegalArgumentException("Invalid delimiter: '" + delimiter + "'", e);
+		}
+		if (delimiter.equals("\\s+")){
+			kind = WHITESPACE_RUN;
+			delimChar = 0;
+		}else if (delimiter.equals("\\s")){
+			kind = WHITESPACE_CHAR;
+			delimChar = 0;
+		}else if (delimiter.equals("\\t")){
+			kind = SINGLE_CHAR;
+			delimChar = '\t';
+		}else if (delimiter.length() == 1 && REGEX_META_CHARS.indexOf(delimiter.charAt(0)) == -1){
+			kind = SINGLE_CHAR;
+			delimChar = delimiter.charAt(0);
+		}else{
+			kind = REGEX;
+			delimChar = 0;
+		}
+	}
+
+	public String getDelimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * Parse a single line of a deliminated text file, removing speechmarks if
+	 * necessary.
+	 *
+	 * @param line The line to parse.
+	 * @return A String[] representing the data from the delimited line or
+	 * null if the line is empty.
+	 * @throws IllegalArgumentException Thrown if an exception is caused by a
+	 * bad line.
+	 */
+	public String[] tokenize(String line) throws IllegalArgumentException{
+		if (line == null){
+			return null;
+		}
+		String tmp = line.trim();
+		if (tmp.length() == 0){
+			return null;
+		}
+		if (tmp.indexOf('\"') != -1){
+			return tokenizeQuoted(line, tmp);
+		}
+		int[] bounds = unquotedBounds(tmp);
+		int numTokens = bounds[0];
+		String[] out = new String[numTokens];
+		for (int t = 0; t < numTokens; t++) {
+			out[t] = tmp.substring(bounds[2*t+1], bounds[2*t+2]);
+		}
+		return out;
+	}
+
+	/**
+	 * Parses the columns of a single line of a deliminated text file as
+	 * doubles, without creating a String[] for the line. Columns beyond the
+	 * length of the values array are counted but not parsed.
+	 *
+	 * @param line The line to parse.
+	 * @param values The array to parse the columns into.
+	 * @return The number of columns on the line, or 0 if it is empty.
+	 * @throws NumberFormatException Thrown if one of the columns parsed is
+	 * not a number.
+	 * @throws IllegalArgumentException Thrown if an exception is caused by a
+	 * bad line.
+	 */
+	public int parseDoubles(String line, double[] values) throws NumberFormatException, IllegalArgumentException{
+		if (line == null){
+			return 0;
+		}
+		String tmp = line.trim();
+		if (tmp.length() == 0){
+			return 0;
+		}
+		if (tmp.indexOf('\"') != -1){
+			String[] row = tokenizeQuoted(line, tmp);
+			int numParsed = Math.min(row.length, values.length);
+			for (int t = 0; t < numParsed; t++) {
+				values[t] = Double.parseDouble(row[t].trim());
+			}
+			return row.length;
+		}
+		int[] bounds = unquotedBounds(tmp);
+		int numTokens = bounds[0];
+		int numParsed = Math.min(numTokens, values.length);
+		for (int t = 0; t < numParsed; t++) {
+			values[t] = Double.parseDouble(tmp.substring(bounds[2*t+1], bounds[2*t+2]).trim());
+		}
+		return numTokens;
+	}
+
+	/**
+	 * Returns the index after the delimiter matched at index i of the
+	 * trimmed line, or -1 if there is no match.
+	 */
+	private int matchEnd(String tmp, int i, int end, Matcher matcher){
+		switch (kind){
+		case WHITESPACE_RUN:
+			if (!isWhitespace(tmp.charAt(i))){
+				return -1;
+			}
+			int j = i + 1;
+			while (j < end && isWhitespace(tmp.charAt(j))){
+				j++;
+			}
+			return j;
+		case WHITESPACE_CHAR:
+			return isWhitespace(tmp.charAt(i)) ? i + 1 : -1;
+		case SINGLE_CHAR:
+			return tmp.charAt(i) == delimChar ? i + 1 : -1;
+		default:
+			matcher.region(i, end);
+			return matcher.find() ? matcher.end() : -1;
+		}
+	}
+
+	/**
+	 * Matches the characters of \s in a regular expression.
+	 */
+	private static boolean isWhitespace(char c){
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	private Matcher newMatcher(String tmp){
+		if (kind != REGEX){
+			return null;
+		}
+		Matcher matcher = delimPattern.matcher(tmp);
+		//set use Anchoring bounds
+		matcher.useAnchoringBounds(true);
+		return matcher;
+	}
+
+	/**
+	 * Finds the column boundaries of a trimmed line without speechmarks,
+	 * returning the number of columns followed by the start and end index of
+	 * each.
+	 */
+	private int[] unquotedBounds(String tmp) throws IllegalArgumentException{
+		Matcher matcher = newMatcher(tmp);
+		int[] bounds = new int[17];
+		int numTokens = 0;
+		int end = tmp.length();
+		int lastIdx = 0;
+		int i = 0;
+		try{
+			for (; i < end; i++){
+				int matchEnd = matchEnd(tmp, i, end, matcher);
+				if (matchEnd != -1){
+					bounds = addBounds(bounds, numTokens++, lastIdx, i);
+					lastIdx = matchEnd;
+					//the character after a delimiter never starts another
+					i=lastIdx;
+				}
+			}
+		}catch(Exception e){
+			throw new IllegalArgumentException("Error parsing line:\n\t[" + tmp + "]\n" +
+					"Was at index: " + i + "\n" +
+					"lastIdx: " + lastIdx + "\n",e);
+		}
+		if (lastIdx != i){
+			if (i > end){
+				throw new IllegalArgumentException("Error parsing line:\n\t[" + tmp + "]\n" +
+						"Was at index: " + i + "\n" +
+						"lastIdx: " + lastIdx + "\n",
+						new StringIndexOutOfBoundsException("end " + i + ", length " + end));
+			}
+			bounds = addBounds(bounds, numTokens++, lastIdx, i);
+		}
+		bounds[0] = numTokens;
+		return bounds;
+	}
+
+	private static int[] addBounds(int[] bounds, int token, int start, int end){
+		if (2*token+2 >= bounds.length){
+			bounds = Arrays.copyOf(bounds, bounds.length * 2);
+		}
+		bounds[2*token+1] = start;
+		bounds[2*token+2] = end;
+		return bounds;
+	}
+
+	/**
+	 * Splits a trimmed line containing speechmarks, ignoring delimiters
+	 * within them.
+	 */
+	private String[] tokenizeQuoted(String line, String tmp) throws IllegalArgumentException{
+		Matcher matcher = newMatcher(tmp);
+		String[] output = new String[8];
+		int numTokens = 0;
+		int end = tmp.length();
+		int lastIdx = 0;
+		int i = 0;
+		try{
+			boolean encounteredSpeechMarks = false;
+			boolean insideSpeechMarks = false;
+			for (; i < end; i++){
+				if(tmp.charAt(i) == '\"'){
+					encounteredSpeechMarks = true;
+					insideSpeechMarks = !insideSpeechMarks;
+				}
+				if(!insideSpeechMarks){
+					int matchEnd = matchEnd(tmp, i, end, matcher);
+					if (matchEnd != -1){
+						String comp;
+						if (encounteredSpeechMarks){
+							comp = tmp.substring(lastIdx+1, i-1);
+							encounteredSpeechMarks = false;
+						}else{
+							comp = tmp.substring(lastIdx, i);
+						}
+						output = addToken(output, numTokens++, comp);
+						lastIdx = matchEnd;
+						i=lastIdx-1;
+					}
+				}
+			}
+			if (lastIdx != i){
+				String comp;
+				if (encounteredSpeechMarks){
+					if (insideSpeechMarks){
+						getLogger().warning("DelimitedTextTokenizer: unclosed quotes (\") encountered on line '" + line + "'\n" +
+								"lastIdx=" + lastIdx + "\ti=" + i );
+						comp = tmp.substring(lastIdx+1, i);
+					}else{
+						comp = tmp.substring(lastIdx+1, i-1);
+					}
+				}else{
+					comp = tmp.substring(lastIdx, i);
+				}
+				output = addToken(output, numTokens++, comp);
+			}
+		}catch(Exception e){
+			throw new IllegalArgumentException("Error parsing line:\n\t[" + tmp + "]\n" +
+					"Was at index: " + i + "\n" +
+					"lastIdx: " + lastIdx + "\n",e);
+		}
+		return Arrays.copyOf(output, numTokens);
+	}
+
+	private static String[] addToken(String[] output, int token, String comp){
+		if (token == output.length){
+			output = Arrays.copyOf(output, output.length * 2);
+		}
+		output[token] = comp;
+		return output;
+	}
+}
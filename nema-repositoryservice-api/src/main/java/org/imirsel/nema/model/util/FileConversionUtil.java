@@ -1,9 +1,7 @@
 package org.imirsel.nema.model.util;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Arrays;
@@ -12,6 +10,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import org.imirsel.nema.model.NemaData;
@@ -30,9 +33,11 @@ import org.imirsel.nema.model.fileTypes.MultiF0EstTextFile;
 import org.imirsel.nema.model.fileTypes.MultiF0NtTextFile;
 import org.imirsel.nema.model.fileTypes.MultipleTrackEvalFileType;
 import org.imirsel.nema.model.fileTypes.NemaFileType;
+import org.imirsel.nema.model.fileTypes.NemaFileTypeImpl;
 import org.imirsel.nema.model.fileTypes.OnsetTextFile;
 import org.imirsel.nema.model.fileTypes.OpaqueDirectoryFormat;
 import org.imirsel.nema.model.fileTypes.OpaqueFileFormat;
+import org.imirsel.nema.model.fileTypes.ParallelFileReader;
 import org.imirsel.nema.model.fileTypes.RawAudioFile;
 import org.imirsel.nema.model.fileTypes.SingleTrackEvalFileType;
 import org.imirsel.nema.model.fileTypes.StructureTextFile;
@@ -58,6 +63,13 @@ import org.imirsel.nema.repositoryservice.RepositoryClientInterface;
  */
 public class FileConversionUtil {
 
+	/** 
+	 * The default number of threads used to parse ground-truth metadata 
+	 * retrieved from the repository.
+	 * @since 0.4.1
+	 */
+	public static final int DEFAULT_NUM_PARSE_THREADS = Runtime.getRuntime().availableProcessors();
+	
 	/**
 	 * Registry map for file types available to use as input to binaries 
 	 * extracting or predicting the specified metadata key (i.e. doesn't contain 
@@ -747,11 +759,45 @@ public class FileConversionUtil {
 			NemaTask task) 
 			throws IllegalArgumentException, InstantiationException, 
 				IllegalAccessException, FileNotFoundException, IOException{
+		return convertMetadataToGroundtruthModel(trackToMeta, task, DEFAULT_NUM_PARSE_THREADS);
+	}
 	
+	/**
+	 * Converts metadata entries retrieved from the repository into a list of
+	 * NemaData Object models by parsing each metadata value directly through 
+	 * the file type registered for the repository on the task metadata, 
+	 * using up to the specified number of threads. The data is returned in 
+	 * the same order as the tracks are iterated in the map.
+	 * 
+	 * @param trackToMeta Map of track ID to the List of NemaMetadataEntry
+	 * Objects retrieved from the repository for it.
+	 * @param task The task that the data relates to ().
+	 * @param numThreads The maximum number of tracks to parse at once, 1 
+	 * parses them sequentially on the calling thread.
+	 * @return a List of NemaData Objects encoding the desired data for each 
+	 * track.
+	 * @throws IllegalArgumentException Thrown if an unknown sub-interface of 
+	 * NemaFileType is received or a metadata value can't be parsed.
+	 * @throws InstantiationException Thrown if the file reader can't be 
+	 * instantiated (for example if there is no zero-arg constructor).
+	 * @throws IllegalAccessException Thrown if we do not have access to the 
+	 * definition of the specified file type class.
+	 * @throws FileNotFoundException Not thrown, retained for compatibility.
+	 * @throws IOException Thrown if parsing is interrupted.
+	 * @since 0.4.1
+	 */
+	public static List<NemaData> convertMetadataToGroundtruthModel(
+			Map<String,List<NemaMetadataEntry>> trackToMeta, 
+			NemaTask task, int numThreads) 
+			throws IllegalArgumentException, InstantiationException, 
+				IllegalAccessException, FileNotFoundException, IOException{
+		if (numThreads < 1){
+			throw new IllegalArgumentException("The number of threads must be at least 1, received: " + numThreads);
+		}
 		List<NemaData> out = new ArrayList<NemaData>(trackToMeta.size());
 	
 		//get and instantiate reader file type
-		String metadataType = task.getSubjectTrackMetadataName();
+		final String metadataType = task.getSubjectTrackMetadataName();
 		Class<? extends SingleTrackEvalFileType> readerClass = REPOSITORY_METADATA_FILE_TYPE_REGISTRY.get(metadataType);
 		if (readerClass == null){
 			//a classification task has no repository file type
@@ -774,39 +820,91 @@ public class FileConversionUtil {
 	            out.add(aTrack);
 			}
 		}else{
-			SingleTrackEvalFileType reader = readerClass.newInstance();
+			//the text file types hold no per-read state so a single instance is shared
+			final SingleTrackEvalFileType reader = readerClass.newInstance();
+			List<Callable<NemaData>> tasks = new ArrayList<Callable<NemaData>>(trackToMeta.size());
 			for (Iterator<String> it = trackToMeta.keySet().iterator(); it.hasNext();){
-	            String id = it.next();
-	            
-	            List<NemaMetadataEntry> meta_list = trackToMeta.get(id);
-	            NemaData aTrack;
-	            if (meta_list.size() > 0){
-	            	NemaMetadataEntry metadata = meta_list.iterator().next();
-	            	
-	            	File temp = File.createTempFile(id + ".", ".txt");
-	        		BufferedWriter tmpOut = new BufferedWriter(new FileWriter(temp));
-	        		tmpOut.write(metadata.getValue());
-	        		tmpOut.flush();
-	        		tmpOut.close();
-	        		
-	        		aTrack = reader.readFile(temp);
-	        		aTrack.setMetadata(NemaDataConstants.PROP_ID, id);
-	            	
-	            	if(meta_list.size() > 1) {
-	            		//use only first value and print warning
-	            		Logger.getLogger(FileConversionUtil.class.getName()).warning("Found " + meta_list.size() + " " + metadataType + " metadata records for id '" + id + "', using only first value");
-	            	}
-	            }else {
-	            	aTrack = new NemaData(id);
-	            	Logger.getLogger(FileConversionUtil.class.getName()).severe("No metadata " + metadataType + " found for id '" + id + "', it is being dropped!");
-	            }
-	            out.add(aTrack);
+	            final String id = it.next();
+	            final List<NemaMetadataEntry> meta_list = trackToMeta.get(id);
+	            tasks.add(new Callable<NemaData>() {
+					public NemaData call() throws IllegalArgumentException {
+						NemaData aTrack;
+			            if (meta_list.size() > 0){
+			            	NemaMetadataEntry metadata = meta_list.iterator().next();
+			        		aTrack = reader.parseData(metadata.getValue(), id);
+			        		aTrack.setMetadata(NemaDataConstants.PROP_ID, id);
+			            	
+			            	if(meta_list.size() > 1) {
+			            		//use only first value and print warning
+			            		Logger.getLogger(FileConversionUtil.class.getName()).warning("Found " + meta_list.size() + " " + metadataType + " metadata records for id '" + id + "', using only first value");
+			            	}
+			            }else {
+			            	aTrack = new NemaData(id);
+			            	Logger.getLogger(FileConversionUtil.class.getName()).severe("No metadata " + metadataType + " found for id '" + id + "', it is being dropped!");
+			            }
+			            return aTrack;
+					}
+				});
 			}
+			out.addAll(runAll(tasks, numThreads, "parsing " + metadataType + " ground-truth"));
 		}
 		
 		return out;
 	}
 	
+	/**
+	 * Runs a list of tasks using up to the specified number of threads and 
+	 * returns their results in order. If a task fails the remaining tasks 
+	 * are cancelled and its exception rethrown.
+	 */
+	private static <T> List<T> runAll(List<Callable<T>> tasks, int numThreads, String description) 
+			throws IllegalArgumentException, IOException{
+		List<T> out = new ArrayList<T>(tasks.size());
+		if (numThreads == 1 || tasks.size() < 2){
+			for (Iterator<Callable<T>> it = tasks.iterator(); it.hasNext();) {
+				try{
+					out.add(it.next().call());
+				}catch(IOException e){
+					throw e;
+				}catch(RuntimeException e){
+					throw e;
+				}catch(Exception e){
+					throw new IOException("Failed while " + description, e);
+				}
+			}
+			return out;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(numThreads, tasks.size()));
+		try{
+			List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+			for (Iterator<Callable<T>> it = tasks.iterator(); it.hasNext();) {
+				futures.add(pool.submit(it.next()));
+			}
+			for (Iterator<Future<T>> it = futures.iterator(); it.hasNext();) {
+				try{
+					out.add(it.next().get());
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while " + description, e);
+				}catch(ExecutionException e){
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException){
+						throw (RuntimeException)cause;
+					}else if (cause instanceof Error){
+						throw (Error)cause;
+					}else if (cause instanceof IOException){
+						throw (IOException)cause;
+					}
+					throw new IOException("Failed while " + description, cause);
+				}
+			}
+			return out;
+		}finally{
+			//cancels any tasks remaining after a failure
+			pool.shutdownNow();
+		}
+	}
+	
 	
 	
 	/**
@@ -843,18 +941,87 @@ public class FileConversionUtil {
 			Class<? extends NemaFileType> fileType) 
 			throws IllegalArgumentException, InstantiationException, 
 				IllegalAccessException, FileNotFoundException, IOException{
+		return readProcessOutput(filesOrDirectoriesToRead, task, fileType, ParallelFileReader.DEFAULT_NUM_THREADS);
+	}
+	
+	/**
+	 * Reads the files output by a process using the specified file type, 
+	 * reading up to the specified number of files at once. Directories of 
+	 * files encoding a single track each are read one after another, with 
+	 * the files in each directory read concurrently, while files encoding 
+	 * multiple tracks (typically one per fold) are all read concurrently. 
+	 * The data for each fold is returned in the same order as it would be 
+	 * read sequentially.
+	 * 
+	 * @param filesOrDirectoriesToRead Map of NemaTrackList to a list of File 
+	 * Objects representing the files to be read in.
+	 * @param task The task that the data relates (only required for 
+	 * classification file types).
+	 * @param fileType The file type to use to read the files or directories.
+	 * @param numThreads The maximum number of files to read at once, 1 reads 
+	 * them sequentially.
+	 * @return A Map of NemaTrackList to a List of NemaData Objects encoding the 
+	 * data read from each file or directory.
+	 * @throws IllegalArgumentException Thrown if an unknown sub-interface of 
+	 * NemaFileType is received.
+	 * @throws InstantiationException Thrown if the file reader can't be 
+	 * instantiated (for example if there is no zero-arg constructor).
+	 * @throws IllegalAccessException Thrown if we do not have access to the 
+	 * definition of the specified file type class.
+	 * @throws FileNotFoundException Thrown if a file or directory cannot be 
+	 * found.
+	 * @throws IOException Thrown if there is a problem reading a file.
+	 * @since 0.4.1
+	 */
+	public static Map<NemaTrackList,List<NemaData>> readProcessOutput(
+			Map<NemaTrackList,List<File>> filesOrDirectoriesToRead, 
+			final NemaTask task, 
+			final Class<? extends NemaFileType> fileType,
+			int numThreads) 
+			throws IllegalArgumentException, InstantiationException, 
+				IllegalAccessException, FileNotFoundException, IOException{
 		Map<NemaTrackList,List<NemaData>> out = new HashMap<NemaTrackList,List<NemaData>>(filesOrDirectoriesToRead.size());
+		
+		//flatten the files of each fold, remembering which fold they belong to
+		List<File> allFiles = new ArrayList<File>();
+		List<NemaTrackList> fileSets = new ArrayList<NemaTrackList>();
 		for (Iterator<NemaTrackList> iterator = filesOrDirectoriesToRead.keySet().iterator(); iterator.hasNext();) {
 			NemaTrackList testSet = iterator.next();
 			List<File> files = filesOrDirectoriesToRead.get(testSet);
-			//read all files relevant to the fold and merge into single list for fold
-			List<NemaData> dataRead = new ArrayList<NemaData>();
-			for (Iterator<File> fileIt = files.iterator(); fileIt.hasNext();) {
-				File file = fileIt.next();
-				List<NemaData> data = readData(file, task, fileType);
-				dataRead.addAll(data);
+			allFiles.addAll(files);
+			for (int i = 0; i < files.size(); i++) {
+				fileSets.add(testSet);
 			}
-			out.put(testSet, dataRead);
+			out.put(testSet, new ArrayList<NemaData>());
+		}
+		
+		List<List<NemaData>> dataRead;
+		if (SingleTrackEvalFileType.class.isAssignableFrom(fileType) || numThreads == 1) {
+			dataRead = new ArrayList<List<NemaData>>(allFiles.size());
+			for (Iterator<File> fileIt = allFiles.iterator(); fileIt.hasNext();) {
+				dataRead.add(readData(fileIt.next(), task, fileType, numThreads));
+			}
+		}else{
+			//fail on instantiation before starting any reads
+			fileType.newInstance();
+			ParallelFileReader<List<NemaData>> reader = new ParallelFileReader<List<NemaData>>(
+					new ParallelFileReader.FileReadTask<List<NemaData>>() {
+						public List<NemaData> read(File theFile) throws IllegalArgumentException, FileNotFoundException, IOException {
+							try{
+								return readData(theFile, task, fileType, 1);
+							}catch(InstantiationException e){
+								throw new IllegalArgumentException("Failed to instantiate file type: " + fileType.getName(), e);
+							}catch(IllegalAccessException e){
+								throw new IllegalArgumentException("Failed to instantiate file type: " + fileType.getName(), e);
+							}
+						}
+					}, numThreads, Logger.getLogger(FileConversionUtil.class.getName()));
+			dataRead = reader.readAll(allFiles);
+		}
+		
+		//read all files relevant to the fold and merge into single list for fold
+		for (int i = 0; i < allFiles.size(); i++) {
+			out.get(fileSets.get(i)).addAll(dataRead.get(i));
 		}
 		return out;
 	}
@@ -884,8 +1051,21 @@ public class FileConversionUtil {
 			NemaTask task, 
 			Class<? extends NemaFileType> fileType
 			) throws IllegalArgumentException, InstantiationException, IllegalAccessException, FileNotFoundException, IOException{
+		return readData(fileOrDirectoryToRead, task, fileType, 1);
+	}
+	
+	private static List<NemaData> readData(
+			File fileOrDirectoryToRead, 
+			NemaTask task, 
+			Class<? extends NemaFileType> fileType,
+			int numThreads
+			) throws IllegalArgumentException, InstantiationException, IllegalAccessException, FileNotFoundException, IOException{
 		if (SingleTrackEvalFileType.class.isAssignableFrom(fileType)) {
 			SingleTrackEvalFileType typeInstance = (SingleTrackEvalFileType)fileType.newInstance();
+			if (numThreads > 1 && typeInstance instanceof NemaFileTypeImpl){
+				((NemaFileTypeImpl)typeInstance).setParallelRead(true);
+				((NemaFileTypeImpl)typeInstance).setNumReadThreads(numThreads);
+			}
 			return typeInstance.readDirectory(fileOrDirectoryToRead, null);
 		}else if(MultipleTrackEvalFileType.class.isAssignableFrom(fileType)) {
 			MultipleTrackEvalFileType typeInstance = (MultipleTrackEvalFileType)fileType.newInstance();
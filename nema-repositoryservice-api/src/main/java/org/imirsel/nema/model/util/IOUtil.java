@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
@@ -26,6 +27,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
@@ -39,6 +41,7 @@ public class IOUtil {
 
     private static final DecimalFormat MEMORY_FORMAT = new DecimalFormat("###,###,###,###.#");
     private static final double MEGABYTE_DIVISOR = 1024 * 1024;
+    private static final int ARCHIVE_BUFFER_SIZE = 64 * 1024;
 
     
     /**
@@ -132,53 +135,33 @@ public class IOUtil {
     }
 	    
     private static long addTarEntry(File toTar, String name,
-                                    TarArchiveOutputStream tarOut) throws IOException{
+                                    TarArchiveOutputStream tarOut, byte[] buffer) throws IOException{
         TarArchiveEntry entry = new TarArchiveEntry(name);
         long len = toTar.length();
         entry.setSize(len);
+        entry.setModTime(toTar.lastModified());
         tarOut.putArchiveEntry(entry);
 
-        if (toTar.isDirectory()){
-            //do something with dirs?
-//            System.out.println("Created entry for directory: " + toTar.getAbsolutePath());
-        }else{
-//            System.out.println("Reading " + len + " bytes from file: " + toTar.getAbsolutePath());
-            byte[] bytes = getBytesFromFile(toTar);
-            tarOut.write(bytes);
-            len = bytes.length;
-//            System.out.println("got " + len + " bytes from file: " + toTar.getAbsolutePath());
+        //stream the file through the archive rather than reading it whole
+        long copied = 0L;
+        InputStream in = new FileInputStream(toTar);
+        try{
+            int numRead;
+            while (copied < len && (numRead = in.read(buffer, 0, (int)Math.min(buffer.length, len - copied))) >= 0){
+                tarOut.write(buffer, 0, numRead);
+                copied += numRead;
+            }
+        }finally{
+            in.close();
+        }
+        if (copied < len){
+            throw new IOException("Could not completely read file " + toTar.getName());
         }
         tarOut.closeArchiveEntry();
         
         return len;
     }
 
-    private static byte[] getBytesFromFile(File file) throws IOException{
-        InputStream is = new FileInputStream(file);
-
-        // Get the size of the file
-        long length = file.length();
-
-        // Create the byte array to hold the data
-        byte[] bytes = new byte[(int)length];
-
-        // Read in the bytes
-        int offset = 0;
-        int numRead = 0;
-        while (offset < bytes.length && (numRead = is.read(bytes, offset, bytes.length - offset)) >= 0){
-            offset += numRead;
-        }
-
-        // Ensure all the bytes have been read in
-        if (offset < bytes.length){
-            throw new IOException("Could not completely read file " + file.getName());
-        }
-
-        // Close the input stream and return bytes
-        is.close();
-        return bytes;
-    }
-
     /**
      * Returns the relative path from the first File to the second File.
      * @param toModify The FIle path to make relative.
@@ -236,27 +219,84 @@ public class IOUtil {
         return false;
     }
 
+    /**
+     * Creates a zipped tarball from the File or Directory indicated and writes
+     * it out to a file name created from the source file with .tar.gz added.
+     * Files containing the specified keywords are ignored.
+     * @param toTar The File or Directory to compress.
+     * @param keywords Ignore files containing any of the specified strings,
+     * may be null.
+     * @param compressionLevel The GZIP compression level (0-9, or 
+     * <code>Deflater.DEFAULT_COMPRESSION</code>).
+     * @param numThreads The number of threads to compress on.
+     * @return Returns the location the tarball was written to.
+     * @throws IOException Thrown if the tarball can't be written.
+     */
+    public static File tarAndGzip(File toTar, String[] keywords, int compressionLevel, int numThreads) throws IOException{
+        File out = new File(toTar.getAbsolutePath() + ".tar.gz");
+        tarAndGzip(toTar,out,keywords,compressionLevel,numThreads);
+        return out;
+    }
+
     /**
      * Creates a zipped tarball from the File or Directory indicated and writes
      * it out to the specified file. Files containing the specified keywords
-     * are ignored.
+     * are ignored. Any error is logged rather than thrown.
      * @param toTar The File or Directory to compress.
      * @param outfile The location to write the output to.
      * @param keywords Ignore files containing any of the specified strings.
      */
     public static void tarAndGzip(File toTar, File outfile, String[] keywords){
-        TarArchiveOutputStream tarOut = null;
-        long uncompressedSize = 0L;
+        try{
+            tarAndGzip(toTar, outfile, keywords, Deflater.DEFAULT_COMPRESSION, 1);
+        }catch (IOException e){
+            Logger.getLogger(IOUtil.class.getName()).log(Level.SEVERE, "Exception occured while attempting to compress " + toTar.getAbsolutePath() + " to " + outfile.getAbsolutePath(), e);
+        }
+    }
 
-        FileOutputStream tarFout = null;
-        File tempTar = null;
+    /**
+     * Creates a zipped tarball from the File or Directory indicated and writes
+     * it out to the specified file. Files containing the specified keywords
+     * are ignored. The tarball is written in a single pass, with each file 
+     * streamed through the tar and gzip encoders to the output file, so no 
+     * temporary tar file is written. With more than one thread, blocks of 
+     * the tar stream are compressed concurrently by a 
+     * {@link ParallelGZIPOutputStream}.
+     * @param toTar The File or Directory to compress.
+     * @param outfile The location to write the output to.
+     * @param keywords Ignore files containing any of the specified strings,
+     * may be null.
+     * @param compressionLevel The GZIP compression level (0-9, or 
+     * <code>Deflater.DEFAULT_COMPRESSION</code>).
+     * @param numThreads The number of threads to compress on, 1 compresses
+     * in the calling thread.
+     * @throws IOException Thrown if the tarball can't be written, in which 
+     * case the partially written file is deleted.
+     */
+    public static void tarAndGzip(File toTar, File outfile, String[] keywords, final int compressionLevel, int numThreads) throws IOException{
+        if (numThreads < 1){
+            throw new IllegalArgumentException("The number of threads must be at least 1, received: " + numThreads);
+        }
+        long start = System.currentTimeMillis();
+        long uncompressedSize = 0L;
+        OutputStream fileOut = new BufferedOutputStream(new FileOutputStream(outfile), ARCHIVE_BUFFER_SIZE);
+        TarArchiveOutputStream tarOut = null;
+        boolean complete = false;
         try{
-            tempTar = File.createTempFile(outfile.getName() + "_" + toTar.getName(), ".tar");
-            tempTar.deleteOnExit();
-            tarFout = new FileOutputStream(tempTar);
-            tarOut = new TarArchiveOutputStream(tarFout);
+            OutputStream gzOut;
+            if (numThreads == 1){
+                gzOut = new GZIPOutputStream(fileOut, ARCHIVE_BUFFER_SIZE){
+                    {
+                        def.setLevel(compressionLevel);
+                    }
+                };
+            }else{
+                gzOut = new ParallelGZIPOutputStream(fileOut, compressionLevel, numThreads);
+            }
+            tarOut = new TarArchiveOutputStream(gzOut);
+            tarOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+            byte[] buffer = new byte[ARCHIVE_BUFFER_SIZE];
 
-            //String base = toTar.getAbsolutePath();
             if (toTar.isDirectory()){
                 LinkedList<File> todo = new LinkedList<File>();
                 todo.add(toTar);
@@ -265,65 +305,46 @@ public class IOUtil {
                     String name = makeRelative(aFile,toTar);
 
                     if (aFile.isDirectory()){
-//                        name += "/";
-//                        uncompressedSize += addTarEntry(aFile, name, tarOut);
                         File[] files = aFile.listFiles();
+                        if (files == null){
+                            throw new IOException("Could not list the contents of directory " + aFile.getAbsolutePath());
+                        }
                         for (int i = 0; i < files.length; i++){
                             todo.add(files[i]);
                         }
 
                     }else{
                         if(keywords==null||!checkName(keywords, name)){
-                            uncompressedSize += addTarEntry(aFile, name, tarOut);
+                            uncompressedSize += addTarEntry(aFile, name, tarOut, buffer);
                         }
                     }
 
                 }
             }else{
-                uncompressedSize += addTarEntry(toTar, toTar.getName(), tarOut);
+                uncompressedSize += addTarEntry(toTar, toTar.getName(), tarOut, buffer);
             }
 
             tarOut.finish();
-            tarOut.flush();
-            
-
-        }catch (FileNotFoundException ex){
-            Logger.getLogger(IOUtil.class.getName()).log(Level.SEVERE, "Exception occured while attempting to compress " + toTar.getAbsolutePath() + " to a temp tar file", ex);
-        }catch (IOException e){
-            Logger.getLogger(IOUtil.class.getName()).log(Level.SEVERE,"Exception occured while attempting to compress " + toTar.getAbsolutePath() + " to a temp tar file", e);
-        }finally{
-            try{
-                if (tarOut!=null){
-                    tarOut.close();
-                }
-            }catch (IOException ex){}
-        }
-
-        long tarSize = tempTar.length();
-
-        FileOutputStream gzFout = null;
-        GZIPOutputStream gzOut = null;
-        try{
-            gzFout = new FileOutputStream(outfile);
-            gzOut = new GZIPOutputStream(gzFout);
-            gzOut.write(getBytesFromFile(tempTar));
-            gzOut.finish();
-            gzOut.flush();
-        }catch (FileNotFoundException ex){
-            Logger.getLogger(IOUtil.class.getName()).log(Level.SEVERE, "Exception occured while attempting to Gzip the temp tar file: " + tempTar.getAbsolutePath(), ex);
-        }catch (IOException ex){
-            Logger.getLogger(IOUtil.class.getName()).log(Level.SEVERE, "Exception occured while attempting to Gzip the Document tar file: " + tempTar.getAbsolutePath(), ex);
+            tarOut.close();
+            complete = true;
         }finally{
-            try{
-                gzOut.close();
-            }catch (IOException ex){}
+            if (!complete){
+                try{
+                    if (tarOut != null){
+                        tarOut.close();
+                    }else{
+                        fileOut.close();
+                    }
+                }catch (IOException ex){}
+                outfile.delete();
+            }
         }
 
         long gzSize = outfile.length();
 
-        Logger.getLogger(IOUtil.class.getName()).log(Level.INFO, "Created zipped tarball from: " + toTar.getAbsolutePath() + ", archive: " + outfile.getAbsolutePath() + "\n" +
+        Logger.getLogger(IOUtil.class.getName()).log(Level.INFO, "Created zipped tarball from: " + toTar.getAbsolutePath() + ", archive: " + outfile.getAbsolutePath() 
+                + " in " + (System.currentTimeMillis() - start) + "ms\n" +
                 "Original file size:     " + uncompressedSize + " bytes\n" +
-                "Tar file size:          " + tarSize + " bytes\n" +
                 ".tar.gz file size:      " + gzSize + " bytes");
     }
 
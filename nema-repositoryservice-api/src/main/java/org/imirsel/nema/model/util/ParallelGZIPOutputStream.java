@@ -0,0 +1,273 @@
+package org.imirsel.nema.model.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An OutputStream that writes data in the GZIP format, compressing blocks of
+ * the data on several threads at once. Each block is deflated independently
+ * (primed with the last 32KB of the previous block as a dictionary, so the
+ * compression ratio is close to that of a single stream) and ended with a
+ * sync flush, so the compressed blocks can simply be concatenated. The
+ * output is a single standard GZIP member that any GZIP reader can
+ * decompress.
+ *
+ * At most two blocks per thread are held in memory at once; writes block
+ * while the oldest block is still being compressed.
+ *
+ * @author kris.west@gmail.com
+ * @since 0.4.1
+ */
+public class ParallelGZIPOutputStream extends FilterOutputStream {
+
+	/** Default size of the blocks compressed by each thread. */
+	public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final AtomicInteger poolNumber = new AtomicInteger(1);
+
+	private final int level;
+	private final int blockSize;
+	private final int maxPending;
+	private final ExecutorService pool;
+	private final LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+	private final CRC32 crc = new CRC32();
+	private long totalIn = 0L;
+	private byte[] buf;
+	private int count = 0;
+	private byte[] previous = null;
+	private int previousCount = 0;
+	private boolean finished = false;
+
+	/**
+	 * Creates a stream with the default block size.
+	 * @param out The stream to write the compressed data to.
+	 * @param level The compression level (0-9, or
+	 * <code>Deflater.DEFAULT_COMPRESSION</code>).
+	 * @param numThreads The number of threads to compress on.
+	 * @throws IOException Thrown if the GZIP header can't be written.
+	 */
+	public ParallelGZIPOutputStream(OutputStream out, int level, int numThreads) throws IOException {
+		this(out, level, numThreads, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates a stream.
+	 * @param out The stream to write the compressed data to.
+	 * @param level The compression level (0-9, or
+	 * <code>Deflater.DEFAULT_COMPRESSION</code>).
+	 * @param numThreads The number of threads to compress on.
+	 * @param blockSize The number of bytes compressed by each task, at least
+	 * 32KB.
+	 * @throws IOException Thrown if the GZIP header can't be written.
+	 */
+	public ParallelGZIPOutputStream(OutputStream out, int level, int numThreads, int blockSize) throws IOException {
+		super(out);
+		if (numThreads < 1){
+			throw new IllegalArgumentException("The number of threads must be at least 1, received: " + numThreads);
+		}
+		if (blockSize < DICTIONARY_SIZE){
+			throw new IllegalArgumentException("The block size must be at least " + DICTIONARY_SIZE + " bytes, received: " + blockSize);
+		}
+		if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION){
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		this.level = level;
+		this.blockSize = blockSize;
+		this.maxPending = 2 * numThreads;
+		this.buf = new byte[blockSize];
+		//magic, deflate, no flags, no mtime, no extra flags, unknown OS
+		out.write(new byte[]{(byte)0x1f, (byte)0x8b, 8, 0, 0, 0, 0, 0, 0, (byte)0xff});
+		this.pool = Executors.newFixedThreadPool(numThreads, new CompressorThreadFactory());
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (finished){
+			throw new IOException("Write after the stream was finished");
+		}
+		if (count == blockSize){
+			submitBlock(false);
+		}
+		buf[count++] = (byte)b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (finished){
+			throw new IOException("Write after the stream was finished");
+		}
+		while (len > 0){
+			if (count == blockSize){
+				submitBlock(false);
+			}
+			int n = Math.min(len, blockSize - count);
+			System.arraycopy(b, off, buf, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Hands the buffered block to the pool, first writing out the oldest
+	 * compressed block if too many are pending.
+	 */
+	private void submitBlock(boolean last) throws IOException {
+		final byte[] block = buf;
+		final int length = count;
+		final byte[] dictionary = previous;
+		final int dictionaryEnd = previousCount;
+		final boolean finish = last;
+		crc.update(block, 0, length);
+		totalIn += length;
+
+		while (pending.size() >= maxPending){
+			writeCompressed(pending.removeFirst());
+		}
+		pending.add(pool.submit(new Callable<byte[]>() {
+			public byte[] call() {
+				return deflate(block, length, dictionary, dictionaryEnd, finish);
+			}
+		}));
+		previous = block;
+		previousCount = length;
+		buf = new byte[blockSize];
+		count = 0;
+	}
+
+	private byte[] deflate(byte[] block, int length, byte[] dictionary, int dictionaryEnd, boolean finish){
+		Deflater deflater = new Deflater(level, true);
+		try{
+			if (dictionary != null && dictionaryEnd > 0){
+				int dictionaryLength = Math.min(DICTIONARY_SIZE, dictionaryEnd);
+				deflater.setDictionary(dictionary, dictionaryEnd - dictionaryLength, dictionaryLength);
+			}
+			deflater.setInput(block, 0, length);
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+			byte[] chunk = new byte[Math.max(length / 4, 4096)];
+			if (finish){
+				deflater.finish();
+				while (!deflater.finished()){
+					int n = deflater.deflate(chunk, 0, chunk.length);
+					compressed.write(chunk, 0, n);
+				}
+			}else{
+				//a full output buffer means there may be more to flush
+				int n;
+				do{
+					n = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+					compressed.write(chunk, 0, n);
+				}while (n == chunk.length);
+			}
+			return compressed.toByteArray();
+		}finally{
+			deflater.end();
+		}
+	}
+
+	private void writeCompressed(Future<byte[]> block) throws IOException {
+		try {
+			byte[] compressed = block.get();
+			out.write(compressed, 0, compressed.length);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing");
+		} catch (ExecutionException e) {
+			IOException ex = new IOException("Failed to compress a block of data");
+			ex.initCause(e.getCause());
+			throw ex;
+		}
+	}
+
+	/**
+	 * Compresses any buffered data and writes all of the compressed blocks
+	 * out. As each block ends with a sync flush, everything written so far
+	 * can then be decompressed.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (!finished){
+			if (count > 0){
+				submitBlock(false);
+			}
+			while (!pending.isEmpty()){
+				writeCompressed(pending.removeFirst());
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Compresses the remaining data and writes the GZIP trailer, without
+	 * closing the underlying stream.
+	 * @throws IOException Thrown if the data can't be compressed or written.
+	 */
+	public void finish() throws IOException {
+		if (finished){
+			return;
+		}
+		try{
+			submitBlock(true);
+			while (!pending.isEmpty()){
+				writeCompressed(pending.removeFirst());
+			}
+			writeIntLE((int)crc.getValue());
+			writeIntLE((int)totalIn);
+			finished = true;
+		}finally{
+			if (!finished){
+				for (Future<byte[]> block : pending) {
+					block.cancel(true);
+				}
+				pending.clear();
+			}
+			pool.shutdown();
+			buf = null;
+			previous = null;
+		}
+	}
+
+	private void writeIntLE(int value) throws IOException {
+		out.write(value & 0xff);
+		out.write((value >>> 8) & 0xff);
+		out.write((value >>> 16) & 0xff);
+		out.write((value >>> 24) & 0xff);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try{
+			finish();
+		}finally{
+			out.close();
+		}
+	}
+
+	/**
+	 * Creates named daemon threads, so that an abandoned stream doesn't keep
+	 * the VM alive.
+	 */
+	private static class CompressorThreadFactory implements ThreadFactory {
+		private final int pool = poolNumber.getAndIncrement();
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "nema-gzip-" + pool + "-" + threadNumber.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
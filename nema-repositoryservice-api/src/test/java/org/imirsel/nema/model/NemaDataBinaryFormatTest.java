@@ -0,0 +1,186 @@
+package org.imirsel.nema.model;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NemaDataBinaryFormatTest {
+
+	private static NemaData makeData(String id, Random rand) {
+		NemaData data = new NemaData(id);
+		data.setMetadata(NemaDataConstants.PROP_FILE_LOCATION, "/data/" + id + ".wav");
+		data.setIntMetadata("count", rand.nextInt());
+		data.setDoubleMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY, rand.nextDouble());
+		double[][] frames = new double[rand.nextInt(500)][2];
+		for (int i = 0; i < frames.length; i++) {
+			frames[i][0] = i * 0.01;
+			frames[i][1] = rand.nextInt(4) == 0 ? 0.0 : 100.0 + 400.0 * rand.nextDouble();
+		}
+		data.setMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA, frames);
+		data.setMetadata("ints", new int[]{1, -2, Integer.MAX_VALUE});
+		data.setMetadata("doubles", new double[]{Double.NaN, -0.0, Double.NEGATIVE_INFINITY});
+		data.setMetadata("labels", new String[]{"verse", null, "chorus \u00e9", "verse"});
+		data.setMetadata("2dInts", new int[][]{{1, 2}, {}, {3}});
+		data.setMetadata("2dLabels", new String[][]{{"a"}, {"b", "c"}});
+		return data;
+	}
+
+	private static void assertSameData(NemaData expected, NemaData out) {
+		String[] keys = expected.metadataKeys();
+		Arrays.sort(keys);
+		String[] outKeys = out.metadataKeys();
+		Arrays.sort(outKeys);
+		assertTrue(Arrays.equals(keys, outKeys));
+		for (String key : keys) {
+			Object a = expected.getMetadata(key);
+			Object b = out.getMetadata(key);
+			assertEquals(a.getClass(), b.getClass());
+			assertTrue(key, Arrays.deepEquals(new Object[]{a}, new Object[]{b}));
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		NemaData data = makeData("track1", new Random(1));
+		assertSameData(data, NemaDataBinaryFormat.decode(NemaDataBinaryFormat.encode(data)));
+
+		File file = File.createTempFile("nemaData", ".bin");
+		file.deleteOnExit();
+		data.writeBinary(file);
+		assertSameData(data, NemaData.readBinary(file));
+
+		NemaData empty = new NemaData();
+		assertEquals(0, NemaDataBinaryFormat.decode(NemaDataBinaryFormat.encode(empty)).metadataKeys().length);
+	}
+
+	@Test
+	public void testSingleKeyAccess() throws Exception {
+		NemaData data = makeData("track1", new Random(2));
+		MappedNemaData mapped = new MappedNemaData(java.nio.ByteBuffer.wrap(NemaDataBinaryFormat.encode(data)));
+		assertEquals("track1", mapped.getId());
+		assertEquals(data.getDoubleMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY),
+				mapped.getDoubleMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY), 0.0);
+		assertEquals(data.getIntMetadata("count"), mapped.getIntMetadata("count"));
+		assertTrue(Arrays.deepEquals(data.get2dDoubleArrayMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA),
+				mapped.get2dDoubleArrayMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA)));
+		assertFalse(mapped.hasMetadata("missing"));
+		try{
+			mapped.getMetadata("missing");
+			fail("Expected an IllegalArgumentException");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+		try{
+			mapped.getIntMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY);
+			fail("Expected a ClassCastException");
+		}catch(ClassCastException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void testRejectsCorruptRecords() throws Exception {
+		byte[] record = NemaDataBinaryFormat.encode(makeData("track1", new Random(3)));
+		byte[] badMagic = record.clone();
+		badMagic[0] = 'X';
+		try{
+			NemaDataBinaryFormat.decode(badMagic);
+			fail("Expected an IllegalArgumentException");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+		for (int length = 0; length < record.length; length += 7) {
+			try{
+				NemaDataBinaryFormat.decode(Arrays.copyOf(record, length));
+				fail("Expected an IllegalArgumentException for a record truncated to " + length + " bytes");
+			}catch(IllegalArgumentException e){
+				//expected
+			}
+		}
+		NemaData unsupported = new NemaData("track1");
+		unsupported.setMetadata("list", new ArrayList<String>());
+		try{
+			NemaDataBinaryFormat.encode(unsupported);
+			fail("Expected an IllegalArgumentException");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void testContainer() throws Exception {
+		Random rand = new Random(4);
+		List<NemaData> data = new ArrayList<NemaData>();
+		for (int i = 0; i < 40; i++) {
+			data.add(makeData("track" + i, rand));
+		}
+		File file = File.createTempFile("nemaData", ".container");
+		file.deleteOnExit();
+		NemaDataContainer.write(file, data);
+
+		NemaDataContainer container = NemaDataContainer.open(file);
+		try{
+			assertEquals(data.size(), container.size());
+			assertTrue(container.contains("track17"));
+			assertFalse(container.contains("track40"));
+			assertEquals(data.get(17).getDoubleMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY),
+					container.get("track17").getDoubleMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY), 0.0);
+			List<NemaData> out = container.readAll();
+			for (int i = 0; i < data.size(); i++) {
+				assertSameData(data.get(i), out.get(i));
+			}
+		}finally{
+			container.close();
+		}
+
+		data.add(makeData("track3", rand));
+		try{
+			NemaDataContainer.write(file, data);
+			fail("Expected an IllegalArgumentException for a duplicate id");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+
+		assertFalse(file.exists());
+		NemaDataContainer.write(file, data.subList(0, 10));
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 1);
+		raf.close();
+		try{
+			NemaDataContainer.open(file).close();
+			fail("Expected an IllegalArgumentException for a truncated file");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+
+		//a later version or a different header is rejected
+		NemaDataContainer.write(file, data.subList(0, 10));
+		raf = new RandomAccessFile(file, "rw");
+		raf.seek(NemaDataContainer.MAGIC.length);
+		raf.write(NemaDataBinaryFormat.VERSION + 1);
+		raf.close();
+		try{
+			NemaDataContainer.open(file).close();
+			fail("Expected an IllegalArgumentException for a later version");
+		}catch(IllegalArgumentException e){
+			assertTrue(e.getMessage(), e.getMessage().contains("version"));
+		}
+		NemaDataContainer.write(file, data.subList(0, 10));
+		raf = new RandomAccessFile(file, "rw");
+		raf.write('X');
+		raf.close();
+		try{
+			NemaDataContainer.open(file).close();
+			fail("Expected an IllegalArgumentException for a bad header");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+	}
+}
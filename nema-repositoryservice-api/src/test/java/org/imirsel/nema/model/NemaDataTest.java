@@ -0,0 +1,147 @@
+package org.imirsel.nema.model;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NemaDataTest {
+
+	@Test
+	public void testMatchesMapAcrossResize() {
+		Random rand = new Random(11);
+		NemaData data = new NemaData("track1");
+		Map<String,Object> expected = new HashMap<String,Object>();
+		expected.put(NemaDataConstants.PROP_ID, "track1");
+		for (int i = 0; i < 2000; i++) {
+			String key = "key" + rand.nextInt(300);
+			Object value;
+			switch (rand.nextInt(4)){
+			case 0: value = Double.valueOf(rand.nextDouble()); break;
+			case 1: value = Integer.valueOf(rand.nextInt()); break;
+			case 2: value = "v" + i; break;
+			default: value = new double[]{rand.nextDouble()};
+			}
+			data.setMetadata(key, value);
+			expected.put(key, value);
+		}
+		String[] keys = data.metadataKeys();
+		assertEquals(expected.size(), keys.length);
+		for (String key : keys) {
+			assertTrue(data.hasMetadata(key));
+			assertEquals(expected.get(key), data.getMetadata(key));
+		}
+		assertFalse(data.hasMetadata("missing"));
+		try{
+			data.getMetadata("missing");
+			fail("Expected an IllegalArgumentException");
+		}catch(IllegalArgumentException e){
+			assertTrue(e.getMessage().contains("Key supplied = missing"));
+		}
+	}
+
+	@Test
+	public void testUnboxedValues() {
+		NemaData data = new NemaData("track1");
+		data.setDoubleMetadata("d", 0.25);
+		data.setIntMetadata("i", -7);
+		data.setMetadata("boxed", Integer.valueOf(Integer.MIN_VALUE));
+		assertEquals(0.25, data.getDoubleMetadata("d"), 0.0);
+		assertEquals(Double.valueOf(0.25), data.getMetadata("d"));
+		assertEquals(-7, data.getIntMetadata("i"));
+		assertEquals(Integer.valueOf(-7), data.getMetadata("i"));
+		assertEquals(Integer.MIN_VALUE, data.getIntMetadata("boxed"));
+		try{
+			data.getDoubleMetadata("i");
+			fail("Expected a ClassCastException");
+		}catch(ClassCastException e){
+			//expected, as when the value was held boxed
+		}
+		data.setMetadata("d", "replaced");
+		assertEquals("replaced", data.getStringMetadata("d"));
+	}
+
+	@Test
+	public void testDeclaredTypes() {
+		NemaData data = new NemaData("track1");
+		data.setMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY, 0.5);
+		try{
+			data.setMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY, "0.5");
+			fail("Expected an IllegalArgumentException");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+		try{
+			data.setIntMetadata(NemaDataConstants.MELODY_OVERALL_ACCURACY, 1);
+			fail("Expected an IllegalArgumentException");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+		try{
+			NemaDataKey.register(NemaDataConstants.MELODY_OVERALL_ACCURACY, NemaDataKey.TYPE_STRING);
+			fail("Expected an IllegalArgumentException");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+		assertSame(NemaDataKey.intern(new String("someKey")), NemaDataKey.intern(new String("someKey")));
+	}
+
+	@Test
+	public void testColumns() {
+		NemaData data = new NemaData("track1");
+		double[] times = {0.0, 0.01, 0.02};
+		double[] freqs = {0.0, 220.0, 440.0};
+		data.setDoubleColumnsMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA, new double[][]{times, freqs});
+		assertSame(freqs, data.getDoubleColumnMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA, 1));
+		double[][] rows = data.get2dDoubleArrayMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA);
+		assertEquals(3, rows.length);
+		assertTrue(Arrays.equals(new double[]{0.02, 440.0}, rows[2]));
+
+		data.setMetadata("rows", rows);
+		assertTrue(Arrays.equals(freqs, data.getDoubleColumnMetadata("rows", 1)));
+		try{
+			data.setDoubleColumnsMetadata("bad", new double[][]{times, {1.0}});
+			fail("Expected an IllegalArgumentException");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void testCopySerializeAndText() throws Exception {
+		NemaData data = new NemaData("track1");
+		data.setDoubleMetadata("d", 1.5);
+		data.setIntMetadata("i", 3);
+		data.setMetadata("s", new String[]{"a", "b"});
+		data.setDoubleColumnsMetadata("cols", new double[][]{{1.0, 2.0}, {3.0, 4.0}});
+
+		NemaData copy = new NemaData(data);
+		copy.setDoubleMetadata("d", 2.5);
+		assertEquals(1.5, data.getDoubleMetadata("d"), 0.0);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(data);
+		out.close();
+		NemaData read = (NemaData)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		assertEquals("track1", read.getId());
+		assertEquals(1.5, read.getDoubleMetadata("d"), 0.0);
+		assertEquals(3, read.getIntMetadata("i"));
+		assertTrue(Arrays.equals(new String[]{"a", "b"}, read.getStringArrayMetadata("s")));
+		assertTrue(Arrays.equals(new double[]{2.0, 4.0}, read.get2dDoubleArrayMetadata("cols")[1]));
+
+		NemaData text = new NemaData("track1");
+		text.setIntMetadata("i", 3);
+		text.setMetadata("s", new String[]{"a", "b"});
+		assertTrue(text.toString().contains("i"));
+		assertTrue(text.toString().contains("track1"));
+	}
+}
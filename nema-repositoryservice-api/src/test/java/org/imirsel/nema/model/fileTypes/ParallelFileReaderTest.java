@@ -0,0 +1,123 @@
+package org.imirsel.nema.model.fileTypes;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import org.imirsel.nema.model.NemaData;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.junit.Test;
+
+public class ParallelFileReaderTest {
+
+	private static final Logger logger = Logger.getLogger(ParallelFileReaderTest.class.getName());
+
+	@Test
+	public void testPreservesFileOrder() throws Exception {
+		List<File> files = new ArrayList<File>();
+		for (int i = 0; i < 50; i++) {
+			files.add(new File("file" + i));
+		}
+		final Random rand = new Random(5);
+		final int[] delays = new int[files.size()];
+		for (int i = 0; i < delays.length; i++) {
+			delays[i] = rand.nextInt(10);
+		}
+		ParallelFileReader<String> reader = new ParallelFileReader<String>(new ParallelFileReader.FileReadTask<String>() {
+			public String read(File theFile) throws IllegalArgumentException, FileNotFoundException, IOException {
+				int idx = Integer.parseInt(theFile.getName().substring(4));
+				try{
+					Thread.sleep(delays[idx]);
+				}catch(InterruptedException e){
+					throw new IOException("interrupted", e);
+				}
+				return theFile.getName();
+			}
+		}, 8, logger);
+		List<String> out = reader.readAll(files);
+		assertEquals(files.size(), out.size());
+		for (int i = 0; i < files.size(); i++) {
+			assertEquals(files.get(i).getName(), out.get(i));
+		}
+		assertEquals(files.size(), reader.getReadTimes().length);
+	}
+
+	@Test
+	public void testFailurePreservesExceptionType() throws Exception {
+		List<File> files = new ArrayList<File>();
+		for (int i = 0; i < 20; i++) {
+			files.add(new File("file" + i));
+		}
+		ParallelFileReader<String> reader = new ParallelFileReader<String>(new ParallelFileReader.FileReadTask<String>() {
+			public String read(File theFile) throws IllegalArgumentException, FileNotFoundException, IOException {
+				if (theFile.getName().equals("file7")){
+					throw new FileNotFoundException("missing " + theFile.getName());
+				}
+				return theFile.getName();
+			}
+		}, 4, logger);
+		try{
+			reader.readAll(files);
+			fail("Expected a FileNotFoundException");
+		}catch(FileNotFoundException e){
+			assertTrue(e.getMessage(), e.getMessage().contains("file7"));
+		}
+
+		reader = new ParallelFileReader<String>(new ParallelFileReader.FileReadTask<String>() {
+			public String read(File theFile) throws IllegalArgumentException, FileNotFoundException, IOException {
+				throw new IllegalArgumentException("bad format");
+			}
+		}, 4, logger);
+		try{
+			reader.readAll(files);
+			fail("Expected an IllegalArgumentException");
+		}catch(IllegalArgumentException e){
+			assertTrue(e.getMessage(), e.getMessage().contains("bad format"));
+		}
+	}
+
+	@Test
+	public void testParallelDirectoryReadMatchesSequential() throws Exception {
+		File dir = File.createTempFile("parallelRead", "");
+		dir.delete();
+		dir.mkdirs();
+		Random rand = new Random(9);
+		for (int f = 0; f < 30; f++) {
+			File file = new File(dir, "track" + f + ".txt");
+			file.deleteOnExit();
+			FileWriter writer = new FileWriter(file);
+			for (int t = 0; t < 100; t++) {
+				writer.write((t * 0.01) + "\t" + (rand.nextInt(4) == 0 ? 0.0 : 100.0 + rand.nextInt(500)) + "\n");
+			}
+			writer.close();
+		}
+		dir.deleteOnExit();
+
+		MelodyTextFile sequential = new MelodyTextFile();
+		List<NemaData> expected = sequential.readDirectory(dir, ".txt");
+		MelodyTextFile parallel = new MelodyTextFile();
+		parallel.setParallelRead(true);
+		parallel.setNumReadThreads(6);
+		List<NemaData> out = parallel.readDirectory(dir, ".txt");
+
+		assertEquals(expected.size(), out.size());
+		assertEquals(expected.size(), parallel.getLastReadTimes().length);
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getId(), out.get(i).getId());
+			double[][] a = expected.get(i).get2dDoubleArrayMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA);
+			double[][] b = out.get(i).get2dDoubleArrayMetadata(NemaDataConstants.MELODY_EXTRACTION_DATA);
+			assertEquals(a.length, b.length);
+			for (int r = 0; r < a.length; r++) {
+				assertEquals(a[r][0], b[r][0], 0.0);
+				assertEquals(a[r][1], b[r][1], 0.0);
+			}
+		}
+	}
+}
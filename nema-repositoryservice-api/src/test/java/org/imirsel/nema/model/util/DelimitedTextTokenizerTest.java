@@ -0,0 +1,168 @@
+package org.imirsel.nema.model.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class DelimitedTextTokenizerTest {
+
+	private static final String[] DELIMITERS = {"\\s+", "\\s", "\t", "\\t", ",", " ", ";", ",|;", "\\s*,\\s*"};
+	private static final String CHARS = "ab1.5-e, \t;\"";
+
+	@Test
+	public void testMatchesLegacyParser() {
+		Random rand = new Random(3);
+		for (String delim : DELIMITERS) {
+			DelimitedTextTokenizer tokenizer = DelimitedTextTokenizer.getInstance(delim);
+			assertSame(tokenizer, DelimitedTextTokenizer.getInstance(delim));
+			for (int i = 0; i < 5000; i++) {
+				StringBuilder line = new StringBuilder();
+				int length = rand.nextInt(30);
+				for (int c = 0; c < length; c++) {
+					line.append(CHARS.charAt(rand.nextInt(CHARS.length())));
+				}
+				String[] expected = null;
+				boolean expectedFailure = false;
+				try{
+					expected = legacyParseDelimTextLine(line.toString(), delim);
+				}catch(IllegalArgumentException e){
+					expectedFailure = true;
+				}
+				try{
+					String[] out = tokenizer.tokenize(line.toString());
+					assertFalse("Expected failure for '" + line + "' with delimiter '" + delim + "'", expectedFailure);
+					assertTrue("Line '" + line + "' with delimiter '" + delim + "'", Arrays.equals(expected, out));
+				}catch(IllegalArgumentException e){
+					assertTrue("Unexpected failure for '" + line + "' with delimiter '" + delim + "'", expectedFailure);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testParseDoubles() {
+		DelimitedTextTokenizer tokenizer = DelimitedTextTokenizer.getInstance("\\s+");
+		double[] values = new double[2];
+		assertEquals(3, tokenizer.parseDoubles("  0.01\t440.5   1e3 ", values));
+		assertEquals(0.01, values[0], 0.0);
+		assertEquals(440.5, values[1], 0.0);
+		assertEquals(2, tokenizer.parseDoubles("\"0.02\" \"-220\"", values));
+		assertEquals(0.02, values[0], 0.0);
+		assertEquals(-220.0, values[1], 0.0);
+		assertEquals(0, tokenizer.parseDoubles(" \t ", values));
+		try{
+			tokenizer.parseDoubles("0.01 abc", values);
+			fail("Expected a NumberFormatException");
+		}catch(NumberFormatException e){
+			//expected
+		}
+	}
+
+	@Test
+	public void testLoadDelimDoubleData() throws IOException {
+		File file = File.createTempFile("delimDoubles", ".txt");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write("0.00\t0.0\n\n0.01  220.0 440.0\n0.02\t110.5\n");
+		writer.close();
+
+		double[][] all = DeliminatedTextFileUtilities.loadDelimDoubleData(file, "\\s+", 1, -1);
+		String[][] strings = DeliminatedTextFileUtilities.loadDelimTextData(file, "\\s+", -1);
+		assertEquals(strings.length, all.length);
+		for (int r = 0; r < all.length; r++) {
+			for (int c = 0; c < all[r].length; c++) {
+				assertEquals(Double.valueOf(strings[r][c]), all[r][c], 0.0);
+			}
+		}
+		assertEquals(3, all[1].length);
+
+		double[][] two = DeliminatedTextFileUtilities.loadDelimDoubleData(file, "\\s+", 2, 2);
+		assertEquals(2, two[1].length);
+		assertEquals(110.5, two[2][1], 0.0);
+
+		try{
+			DeliminatedTextFileUtilities.loadDelimDoubleData(file, "\\s+", 3, -1);
+			fail("Expected an IllegalArgumentException for too few columns");
+		}catch(IllegalArgumentException e){
+			//expected
+		}
+	}
+
+	/**
+	 * DeliminatedTextFileUtilities.parseDelimTextLine as it was before it
+	 * used DelimitedTextTokenizer, without its logging.
+	 */
+	private static String[] legacyParseDelimTextLine(String line, String delimiter) throws IllegalArgumentException{
+		if (line == null || line.trim().equals("")){
+			return null;
+		}
+		ArrayList<String> output = new ArrayList<String>();
+		String tmp = line.trim();
+		Pattern delimPattern = Pattern.compile("^" + delimiter);
+		Matcher matcher = delimPattern.matcher(tmp);
+		matcher.useAnchoringBounds(true);
+		int end = tmp.length();
+		int lastIdx = 0;
+		int i = 0;
+		try{
+			if (tmp.contains("\"")){
+				boolean encounteredSpeechMarks = false;
+				boolean insideSpeechMarks = false;
+				for (; i < end; i++){
+					if(tmp.charAt(i) == '\"'){
+						encounteredSpeechMarks = true;
+						insideSpeechMarks = !insideSpeechMarks;
+					}
+					if(!insideSpeechMarks){
+						matcher.region(i, end);
+						if (matcher.find()){
+							if (encounteredSpeechMarks){
+								output.add(tmp.substring(lastIdx+1, i-1));
+								encounteredSpeechMarks = false;
+							}else{
+								output.add(tmp.substring(lastIdx, i));
+							}
+							lastIdx = matcher.end();
+							i=lastIdx-1;
+						}
+					}
+				}
+				if (lastIdx != i){
+					if (encounteredSpeechMarks){
+						if (insideSpeechMarks){
+							output.add(tmp.substring(lastIdx+1, i));
+						}else{
+							output.add(tmp.substring(lastIdx+1, i-1));
+						}
+					}else{
+						output.add(tmp.substring(lastIdx, i));
+					}
+				}
+			}else{
+				for (; i < end; i++){
+					matcher.region(i, end);
+					if (matcher.find()){
+						output.add(tmp.substring(lastIdx, i));
+						lastIdx = matcher.end();
+						i=lastIdx;
+					}
+				}
+				if (lastIdx != i){
+					output.add(tmp.substring(lastIdx, i));
+				}
+			}
+		}catch(Exception e){
+			throw new IllegalArgumentException("Error parsing line", e);
+		}
+		return output.toArray(new String[output.size()]);
+	}
+}
@@ -0,0 +1,105 @@
+package org.imirsel.nema.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.imirsel.nema.model.NemaData;
+import org.imirsel.nema.model.NemaDataConstants;
+import org.imirsel.nema.model.NemaMetadataEntry;
+import org.imirsel.nema.model.NemaTask;
+import org.imirsel.nema.model.fileTypes.KeyTextFile;
+import org.imirsel.nema.model.fileTypes.OnsetTextFile;
+import org.junit.Test;
+
+public class GroundtruthConversionTest {
+
+	private static Map<String,List<NemaMetadataEntry>> makeOnsetMetadata(int numTracks) {
+		Map<String,List<NemaMetadataEntry>> trackToMeta = new LinkedHashMap<String,List<NemaMetadataEntry>>();
+		for (int t = 0; t < numTracks; t++) {
+			StringBuilder value = new StringBuilder("# class = solo\n");
+			for (int i = 0; i <= t % 5; i++) {
+				value.append(t + i * 0.5).append("\t").append(t + i * 0.5 + 0.01).append("\n");
+			}
+			List<NemaMetadataEntry> entries = new ArrayList<NemaMetadataEntry>();
+			entries.add(new NemaMetadataEntry(NemaDataConstants.ONSET_DETECTION_DATA, value.toString()));
+			trackToMeta.put("track" + t, entries);
+		}
+		trackToMeta.put("missing", new ArrayList<NemaMetadataEntry>());
+		return trackToMeta;
+	}
+
+	@Test
+	public void testParallelConversionMatchesSerial() throws Exception {
+		NemaTask task = new NemaTask();
+		task.setSubjectTrackMetadataName(NemaDataConstants.ONSET_DETECTION_DATA);
+		Map<String,List<NemaMetadataEntry>> trackToMeta = makeOnsetMetadata(200);
+
+		List<NemaData> serial = FileConversionUtil.convertMetadataToGroundtruthModel(trackToMeta, task, 1);
+		List<NemaData> parallel = FileConversionUtil.convertMetadataToGroundtruthModel(trackToMeta, task, 4);
+		assertEquals(201, serial.size());
+		assertEquals(serial.size(), parallel.size());
+		for (int t = 0; t < 200; t++) {
+			NemaData track = parallel.get(t);
+			assertEquals("track" + t, track.getId());
+			assertEquals("solo", track.getStringMetadata(NemaDataConstants.ONSET_DETECTION_CLASS));
+			double[][] onsets = track.get2dDoubleArrayMetadata(NemaDataConstants.ONSET_DETECTION_DATA);
+			double[][] expected = serial.get(t).get2dDoubleArrayMetadata(NemaDataConstants.ONSET_DETECTION_DATA);
+			assertEquals(t % 5 + 1, onsets.length);
+			for (int i = 0; i < onsets.length; i++) {
+				assertEquals(expected[i][0], onsets[i][0], 0.0);
+				assertEquals(t + i * 0.5 + 0.01, onsets[i][1], 1e-9);
+			}
+		}
+		assertEquals("missing", parallel.get(200).getId());
+	}
+
+	@Test
+	public void testParseErrorIsRethrown() throws Exception {
+		NemaTask task = new NemaTask();
+		task.setSubjectTrackMetadataName(NemaDataConstants.KEY_DETECTION_DATA);
+		Map<String,List<NemaMetadataEntry>> trackToMeta = new LinkedHashMap<String,List<NemaMetadataEntry>>();
+		for (int t = 0; t < 20; t++) {
+			List<NemaMetadataEntry> entries = new ArrayList<NemaMetadataEntry>();
+			entries.add(new NemaMetadataEntry(NemaDataConstants.KEY_DETECTION_DATA, t == 13 ? "C\tmajor\nD\tminor\n" : "C\tmajor\n"));
+			trackToMeta.put("track" + t, entries);
+		}
+		try {
+			FileConversionUtil.convertMetadataToGroundtruthModel(trackToMeta, task, 4);
+			fail("Expected the two line key file to be rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("more than a single line"));
+		}
+	}
+
+	@Test
+	public void testParseMatchesReadFile() throws Exception {
+		String text = "# class = bass\n\n0.5\t0.6\n1.25\t1.3\n";
+		File temp = File.createTempFile("onsets.", ".txt");
+		IOUtil.writeBytesToFile(temp, text.getBytes("UTF-8"));
+		OnsetTextFile reader = new OnsetTextFile();
+		NemaData fromFile = reader.readFile(temp);
+		NemaData parsed = reader.parseData(text, PathAndTagCleaner.convertFileToMIREX_ID(temp));
+		temp.delete();
+
+		assertEquals(fromFile.getId(), parsed.getId());
+		assertEquals("bass", parsed.getStringMetadata(NemaDataConstants.ONSET_DETECTION_CLASS));
+		double[][] a = fromFile.get2dDoubleArrayMetadata(NemaDataConstants.ONSET_DETECTION_DATA);
+		double[][] b = parsed.get2dDoubleArrayMetadata(NemaDataConstants.ONSET_DETECTION_DATA);
+		assertEquals(2, b.length);
+		for (int i = 0; i < a.length; i++) {
+			assertEquals(a[i][0], b[i][0], 0.0);
+			assertEquals(a[i][1], b[i][1], 0.0);
+		}
+
+		String[] key = (String[])new KeyTextFile().parseData("A\tminor\n", "t1").getMetadata(NemaDataConstants.KEY_DETECTION_DATA);
+		assertEquals("A", key[0]);
+		assertEquals("minor", key[1]);
+	}
+}
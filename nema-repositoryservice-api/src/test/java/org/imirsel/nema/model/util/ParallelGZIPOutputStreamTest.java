@@ -0,0 +1,133 @@
+package org.imirsel.nema.model.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.Test;
+
+public class ParallelGZIPOutputStreamTest {
+
+	private static byte[] makeData(int length, Random rand) {
+		//repetitive enough to compress, with matches crossing block boundaries
+		String[] words = {"onset ", "melody ", "chord ", "0.01\t440.0\n", "beat "};
+		byte[] data = new byte[length];
+		int i = 0;
+		while (i < length){
+			byte[] word = words[rand.nextInt(words.length)].getBytes();
+			int n = Math.min(word.length, length - i);
+			System.arraycopy(word, 0, data, i, n);
+			i += n;
+		}
+		return data;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = in.read(buf)) >= 0){
+			out.write(buf, 0, n);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Random rand = new Random(1);
+		int[] lengths = {0, 1, 32 * 1024, 32 * 1024 + 1, 300 * 1024 + 17};
+		for (int l = 0; l < lengths.length; l++) {
+			byte[] data = makeData(lengths[l], rand);
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			ParallelGZIPOutputStream out = new ParallelGZIPOutputStream(compressed, Deflater.DEFAULT_COMPRESSION, 3, 32 * 1024);
+			//mix single byte and bulk writes
+			int i = 0;
+			while (i < data.length){
+				if (rand.nextInt(10) == 0){
+					out.write(data[i++]);
+				}else{
+					int n = Math.min(data.length - i, rand.nextInt(50000));
+					out.write(data, i, n);
+					i += n;
+				}
+			}
+			out.close();
+			byte[] decompressed = readAll(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+			assertTrue("length " + lengths[l], Arrays.equals(data, decompressed));
+			if (data.length > 100000){
+				assertTrue(compressed.size() < data.length / 3);
+			}
+		}
+	}
+
+	@Test
+	public void testFlushedDataIsReadable() throws Exception {
+		byte[] data = makeData(1000, new Random(2));
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		ParallelGZIPOutputStream out = new ParallelGZIPOutputStream(compressed, 9, 2);
+		out.write(data);
+		out.flush();
+		GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+		byte[] partial = new byte[data.length];
+		int read = 0;
+		while (read < partial.length){
+			read += in.read(partial, read, partial.length - read);
+		}
+		assertTrue(Arrays.equals(data, partial));
+		out.write(data);
+		out.close();
+		assertEquals(2 * data.length, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))).length);
+	}
+
+	@Test
+	public void testTarAndGzipDirectory() throws Exception {
+		File dir = File.createTempFile("tarTest", "");
+		dir.delete();
+		File sub = new File(dir, "fold_0");
+		sub.mkdirs();
+		Random rand = new Random(3);
+		Map<String,byte[]> files = new HashMap<String,byte[]>();
+		files.put("report.txt", makeData(5000, rand));
+		files.put("fold_0" + File.separator + "per_track_results.csv", makeData(400000, rand));
+		files.put("fold_0" + File.separator + "empty.csv", new byte[0]);
+		for (Map.Entry<String,byte[]> entry : files.entrySet()) {
+			IOUtil.writeBytesToFile(new File(dir, entry.getKey()), entry.getValue());
+		}
+
+		int[] threads = {1, 4};
+		for (int t = 0; t < threads.length; t++) {
+			File tgz = IOUtil.tarAndGzip(dir, null, 6, threads[t]);
+			TarArchiveInputStream tarIn = new TarArchiveInputStream(new GZIPInputStream(new FileInputStream(tgz)));
+			int numEntries = 0;
+			TarArchiveEntry entry;
+			while ((entry = tarIn.getNextTarEntry()) != null){
+				byte[] expected = files.get(entry.getName().replace('/', File.separatorChar));
+				assertNotNull(entry.getName(), expected);
+				byte[] contents = new byte[(int)entry.getSize()];
+				int read = 0;
+				while (read < contents.length){
+					read += tarIn.read(contents, read, contents.length - read);
+				}
+				assertTrue(entry.getName(), Arrays.equals(expected, contents));
+				numEntries++;
+			}
+			tarIn.close();
+			assertEquals(files.size(), numEntries);
+			tgz.delete();
+		}
+	}
+}